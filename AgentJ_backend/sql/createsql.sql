@@ -60,6 +60,11 @@ CREATE TABLE `cron_task` (
                              `create_time` datetime NOT NULL COMMENT '任务创建时间',
                              `last_executed_time` datetime DEFAULT NULL COMMENT '任务最后执行时间',
                              `plan_template_id` varchar(64) DEFAULT NULL COMMENT '计划模板ID（关联外部模板表）',
+                             `overlap_policy` varchar(16) DEFAULT NULL COMMENT '重叠策略（SKIP、QUEUE、REPLACE）',
+                             `misfire_policy` varchar(16) DEFAULT NULL COMMENT '错过触发策略（IGNORE、FIRE_ONCE）',
+                             `last_fire_time` datetime DEFAULT NULL COMMENT '最后认领的计划触发时间',
+                             `lease_owner` varchar(128) DEFAULT NULL COMMENT '当前执行租约持有者',
+                             `lease_until` datetime DEFAULT NULL COMMENT '执行租约到期时间',
                              PRIMARY KEY (`id`),
                              KEY `idx_cron_task_status` (`status`),
                              KEY `idx_cron_task_create_time` (`create_time`),
@@ -294,6 +299,28 @@ CREATE TABLE `act_tool_info` (
                                  CONSTRAINT `fk_act_tool_info_think_act` FOREIGN KEY (`think_act_record_id`) REFERENCES `think_act_record` (`id`) ON DELETE CASCADE ON UPDATE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='行动工具信息表（记录工具调用详情）';
 
+CREATE TABLE `llm_usage_record` (
+                                    `id` bigint(20) NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+                                    `plan_id` varchar(64) DEFAULT NULL COMMENT '计划ID',
+                                    `root_plan_id` varchar(64) DEFAULT NULL COMMENT '根计划ID',
+                                    `step_id` varchar(64) DEFAULT NULL COMMENT '步骤ID（步骤外调用为空）',
+                                    `agent_name` varchar(128) DEFAULT NULL COMMENT '调用的智能体或操作名称',
+                                    `model_name` varchar(128) DEFAULT NULL COMMENT '模型名称',
+                                    `user_id` bigint DEFAULT NULL COMMENT '用户ID（未知时为空）',
+                                    `attempt` int(11) NOT NULL COMMENT '尝试次数（1为首次调用，大于1为重试）',
+                                    `prompt_tokens` int(11) NOT NULL COMMENT '输入token数',
+                                    `completion_tokens` int(11) NOT NULL COMMENT '输出token数',
+                                    `total_tokens` int(11) NOT NULL COMMENT '总token数',
+                                    `latency_ms` bigint(20) NOT NULL COMMENT '调用耗时（毫秒）',
+                                    `ttft_ms` bigint(20) DEFAULT NULL COMMENT '首个流式分片耗时（毫秒）',
+                                    `success` bit(1) NOT NULL COMMENT '是否成功',
+                                    `create_time` datetime NOT NULL COMMENT '记录时间',
+                                    PRIMARY KEY (`id`),
+                                    KEY `idx_llm_usage_plan` (`plan_id`),
+                                    KEY `idx_llm_usage_root_plan` (`root_plan_id`),
+                                    KEY `idx_llm_usage_time_model` (`create_time`, `model_name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='LLM调用用量记录表（token、耗时、重试）';
+
 -- auto-generated definition
 create table user_personal_memories
 (
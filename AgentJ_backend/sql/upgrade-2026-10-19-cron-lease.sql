@@ -0,0 +1,7 @@
+-- Cluster-safe cron execution: per-fire claims, run leases and overlap/misfire policies
+ALTER TABLE cron_task
+    ADD COLUMN overlap_policy VARCHAR(16) DEFAULT NULL COMMENT '重叠策略（SKIP、QUEUE、REPLACE）',
+    ADD COLUMN misfire_policy VARCHAR(16) DEFAULT NULL COMMENT '错过触发策略（IGNORE、FIRE_ONCE）',
+    ADD COLUMN last_fire_time DATETIME DEFAULT NULL COMMENT '最后认领的计划触发时间',
+    ADD COLUMN lease_owner VARCHAR(128) DEFAULT NULL COMMENT '当前执行租约持有者',
+    ADD COLUMN lease_until DATETIME DEFAULT NULL COMMENT '执行租约到期时间';
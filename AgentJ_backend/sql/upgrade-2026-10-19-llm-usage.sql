@@ -0,0 +1,22 @@
+-- Per-call LLM token, latency and retry accounting
+CREATE TABLE `llm_usage_record` (
+                                    `id` bigint(20) NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+                                    `plan_id` varchar(64) DEFAULT NULL COMMENT '计划ID',
+                                    `root_plan_id` varchar(64) DEFAULT NULL COMMENT '根计划ID',
+                                    `step_id` varchar(64) DEFAULT NULL COMMENT '步骤ID（步骤外调用为空）',
+                                    `agent_name` varchar(128) DEFAULT NULL COMMENT '调用的智能体或操作名称',
+                                    `model_name` varchar(128) DEFAULT NULL COMMENT '模型名称',
+                                    `user_id` bigint DEFAULT NULL COMMENT '用户ID（未知时为空）',
+                                    `attempt` int(11) NOT NULL COMMENT '尝试次数（1为首次调用，大于1为重试）',
+                                    `prompt_tokens` int(11) NOT NULL COMMENT '输入token数',
+                                    `completion_tokens` int(11) NOT NULL COMMENT '输出token数',
+                                    `total_tokens` int(11) NOT NULL COMMENT '总token数',
+                                    `latency_ms` bigint(20) NOT NULL COMMENT '调用耗时（毫秒）',
+                                    `ttft_ms` bigint(20) DEFAULT NULL COMMENT '首个流式分片耗时（毫秒）',
+                                    `success` bit(1) NOT NULL COMMENT '是否成功',
+                                    `create_time` datetime NOT NULL COMMENT '记录时间',
+                                    PRIMARY KEY (`id`),
+                                    KEY `idx_llm_usage_plan` (`plan_id`),
+                                    KEY `idx_llm_usage_root_plan` (`root_plan_id`),
+                                    KEY `idx_llm_usage_time_model` (`create_time`, `model_name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='LLM调用用量记录表（token、耗时、重试）';
@@ -0,0 +1,38 @@
+package com.wangliang.agentj.agent;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.wangliang.agentj.benchmark.Corpus;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Normalisation of raw tool results before they are added to agent memory
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ToolResultProcessingBenchmark {
+
+    @Param({ "wrappedOutput", "doubleEncoded", "plainText", "largeArray" })
+    public String shape;
+
+    private String result;
+
+    @Setup
+    public void setup() {
+        Map<String, String> results = Corpus.json("tool-results.json", new TypeReference<Map<String, String>>() {
+        });
+        result = results.get(shape);
+    }
+
+    @Benchmark
+    public String processToolResult() {
+        return DynamicAgent.processToolResult(Corpus.MAPPER, result);
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.wangliang.agentj.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fixed benchmark inputs checked in under {@code src/jmh/resources/jmh-corpus}. Inputs
+ * never change between runs, so scores of two runs are comparable.
+ */
+public final class Corpus {
+
+    public static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private Corpus() {
+    }
+
+    public static String text(String name) {
+        try (InputStream in = open(name)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static <T> T json(String name, TypeReference<T> type) {
+        try (InputStream in = open(name)) {
+            return MAPPER.readValue(in, type);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static InputStream open(String name) {
+        InputStream in = Corpus.class.getResourceAsStream("/jmh-corpus/" + name);
+        if (in == null) {
+            throw new IllegalStateException("Missing benchmark corpus: " + name);
+        }
+        return in;
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.wangliang.agentj.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares a JMH JSON result with a baseline result of an earlier run and fails when a
+ * benchmark got slower than the tolerance allows.
+ * <p>
+ * Usage: {@code JmhRegressionCheck <result.json> <baseline.json> [tolerancePercent]}.
+ * Benchmarks missing from either file are reported but do not fail the check.
+ */
+public final class JmhRegressionCheck {
+
+    private static final double DEFAULT_TOLERANCE_PERCENT = 10.0;
+
+    private JmhRegressionCheck() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: JmhRegressionCheck <result.json> <baseline.json> [tolerancePercent]");
+            System.exit(2);
+        }
+        File baselineFile = new File(args[1]);
+        if (!baselineFile.isFile()) {
+            System.out.println("No baseline at " + baselineFile + ", skipping regression check");
+            return;
+        }
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_TOLERANCE_PERCENT;
+        Map<String, JsonNode> current = read(new File(args[0]));
+        Map<String, JsonNode> baseline = read(baselineFile);
+
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("NEW        %s%n", entry.getKey());
+                continue;
+            }
+            double oldScore = before.path("primaryMetric").path("score").asDouble();
+            double newScore = entry.getValue().path("primaryMetric").path("score").asDouble();
+            String unit = entry.getValue().path("primaryMetric").path("scoreUnit").asText();
+            // Throughput modes report operations per time unit, the others time per operation
+            boolean higherIsBetter = "thrpt".equals(entry.getValue().path("mode").asText());
+            double change = oldScore == 0 ? 0 : (newScore - oldScore) / oldScore * 100;
+            double slowdown = higherIsBetter ? -change : change;
+            boolean regressed = slowdown > tolerance;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-10s %s: %.3f -> %.3f %s (%+.1f%%)%n", regressed ? "REGRESSED" : "OK",
+                    entry.getKey(), oldScore, newScore, unit, change);
+        }
+        for (String key : baseline.keySet()) {
+            if (!current.containsKey(key)) {
+                System.out.printf("MISSING    %s%n", key);
+            }
+        }
+        if (regressions > 0) {
+            System.err.printf("%d benchmark(s) regressed by more than %.1f%%%n", regressions, tolerance);
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, JsonNode> read(File file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : Corpus.MAPPER.readTree(file)) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText());
+            result.path("params").fields().forEachRemaining(p -> key.append(' ').append(p.getKey()).append('=')
+                .append(p.getValue().asText()));
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.wangliang.agentj.llm;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.wangliang.agentj.benchmark.Corpus;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Grouping of agent memory into dialog rounds, done on every memory size check
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemoryRoundGroupingBenchmark {
+
+    private final ConversationMemoryLimitService service = new ConversationMemoryLimitService();
+
+    private List<Message> messages;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        List<Map<String, Object>> records = Corpus.json("conversation.json",
+                new TypeReference<List<Map<String, Object>>>() {
+                });
+        messages = new ArrayList<>();
+        for (Map<String, Object> record : records) {
+            String text = (String) record.get("text");
+            switch ((String) record.get("type")) {
+                case "user" -> messages.add(new UserMessage(text));
+                case "assistant" -> {
+                    Map<String, String> call = (Map<String, String>) record.get("toolCall");
+                    messages.add(new AssistantMessage(text, Map.of(), List.of(new AssistantMessage.ToolCall(
+                            call.get("id"), "function", call.get("name"), call.get("arguments")))));
+                }
+                default -> messages.add(new ToolResponseMessage(List.of(new ToolResponseMessage.ToolResponse(
+                        (String) record.get("id"), (String) record.get("name"), text))));
+            }
+        }
+    }
+
+    /**
+     * Group the rounds and size each one, as the trimming pass does
+     */
+    @Benchmark
+    public long groupAndSizeRounds() {
+        long chars = 0;
+        for (ConversationMemoryLimitService.DialogRound round : service.groupMessagesIntoRounds(messages)) {
+            chars += round.getTotalChars();
+        }
+        return chars;
+    }
+
+}
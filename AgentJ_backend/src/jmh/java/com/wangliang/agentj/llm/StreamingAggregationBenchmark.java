@@ -0,0 +1,76 @@
+package com.wangliang.agentj.llm;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.wangliang.agentj.benchmark.Corpus;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merging of a recorded chunk stream into one response, without a network call
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamingAggregationBenchmark {
+
+    @Param({ "textOnly", "toolCalls" })
+    public String stream;
+
+    private StreamingResponseHandler handler;
+
+    private List<ChatResponse> chunks;
+
+    @Setup
+    public void setup() {
+        handler = new StreamingResponseHandler();
+        ReflectionTestUtils.setField(handler, "objectMapper", Corpus.MAPPER);
+        Map<String, List<Map<String, Object>>> streams = Corpus.json("stream-chunks.json",
+                new TypeReference<Map<String, List<Map<String, Object>>>>() {
+                });
+        chunks = new ArrayList<>();
+        for (Map<String, Object> chunk : streams.get(stream)) {
+            chunks.add(toChatResponse(chunk));
+        }
+    }
+
+    @Benchmark
+    public StreamingResponseHandler.StreamingResult aggregate() {
+        return handler.processStreamingResponse(Flux.fromIterable(chunks), "benchmark", "plan-benchmark", true, false,
+                5000);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ChatResponse toChatResponse(Map<String, Object> chunk) {
+        List<AssistantMessage.ToolCall> toolCalls = new ArrayList<>();
+        List<Map<String, String>> calls = (List<Map<String, String>>) chunk.get("toolCalls");
+        if (calls != null) {
+            for (Map<String, String> call : calls) {
+                toolCalls.add(new AssistantMessage.ToolCall(call.get("id"), "function", call.get("name"),
+                        call.get("arguments")));
+            }
+        }
+        AssistantMessage message = new AssistantMessage((String) chunk.get("text"), Map.of(), toolCalls);
+        ChatResponseMetadata.Builder metadata = ChatResponseMetadata.builder();
+        Map<String, Integer> usage = (Map<String, Integer>) chunk.get("usage");
+        if (usage != null) {
+            metadata.usage(new DefaultUsage(usage.get("prompt"), usage.get("completion"), usage.get("total")));
+            metadata.model((String) chunk.get("model"));
+        }
+        return new ChatResponse(List.of(new Generation(message)), metadata.build());
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.wangliang.agentj.runtime.observation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-call cost the plan, step and tool observations add around a small unit of work,
+ * with the no-op registry used before startup and with a meter-backed registry
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObservationOverheadBenchmark {
+
+    private static final long WORK_TOKENS = 100;
+
+    @Param({ "noop", "meters" })
+    public String registry;
+
+    @Setup
+    public void setup() {
+        ObservationRegistry observationRegistry = ObservationRegistry.NOOP;
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        if ("meters".equals(registry)) {
+            observationRegistry = ObservationRegistry.create();
+            observationRegistry.observationConfig().observationHandler(new DefaultMeterObservationHandler(meterRegistry));
+        }
+        StaticListableBeanFactory beans = new StaticListableBeanFactory(
+                Map.of("observationRegistry", observationRegistry, "meterRegistry", meterRegistry));
+        new LynxeObservations(beans.getBeanProvider(ObservationRegistry.class),
+                beans.getBeanProvider(MeterRegistry.class));
+    }
+
+    @Benchmark
+    public void baseline() {
+        Blackhole.consumeCPU(WORK_TOKENS);
+    }
+
+    @Benchmark
+    public Object observed() {
+        return LynxeObservations.observe("lynxe.benchmark", () -> {
+            Blackhole.consumeCPU(WORK_TOKENS);
+            return WORK_TOKENS;
+        }, "tool", "benchmark");
+    }
+
+    /**
+     * Context capture done for every task handed to a level pool
+     */
+    @Benchmark
+    public void wrapped() {
+        LynxeObservations.wrap(() -> Blackhole.consumeCPU(WORK_TOKENS)).run();
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.wangliang.agentj.tools.browser;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.microsoft.playwright.Frame;
+import com.microsoft.playwright.Page;
+import com.wangliang.agentj.benchmark.Corpus;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the interactive element list and its text description from the elements the
+ * extraction script returns. The page is a stand-in that replays recorded frames, so no
+ * browser is started.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InteractiveTextProcessorBenchmark {
+
+    private Page page;
+
+    private InteractiveTextProcessor processor;
+
+    @Setup
+    public void setup() {
+        List<List<Map<String, Object>>> recordedFrames = Corpus.json("interactive-elements.json",
+                new TypeReference<List<List<Map<String, Object>>>>() {
+                });
+        List<Frame> frames = new ArrayList<>();
+        for (List<Map<String, Object>> elements : recordedFrames) {
+            frames.add(stub(Frame.class, elements, null));
+        }
+        page = stub(Page.class, null, frames);
+        processor = new InteractiveTextProcessor();
+    }
+
+    /**
+     * Full refresh followed by formatting; the stand-in page reports no DOM marker, so
+     * every call re-extracts as on a changed page
+     */
+    @Benchmark
+    public String interactiveElementsInfo() {
+        return processor.getInteractiveElementsInfo(page);
+    }
+
+    private static <T> T stub(Class<T> type, List<Map<String, Object>> elements, List<Frame> frames) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+                (self, method, args) -> switch (method.getName()) {
+                    case "evaluate" -> elements;
+                    case "frames" -> frames;
+                    case "hashCode" -> System.identityHashCode(self);
+                    case "equals" -> self == args[0];
+                    case "toString" -> type.getSimpleName() + "-stub";
+                    default -> null;
+                });
+        return type.cast(proxy);
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.wangliang.agentj.tools.convertToMarkdown;
+
+import com.wangliang.agentj.benchmark.Corpus;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Markdown formatting of extracted document text. File parsing and writing are left out,
+ * they depend on the disk more than on the converters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarkdownFormatBenchmark {
+
+    private static final Path TEXT_SOURCE = Path.of("report.txt");
+
+    private String content;
+
+    private TextToMarkdownProcessor textProcessor;
+
+    private WordToMarkdownProcessor wordProcessor;
+
+    private PdfToMarkdownProcessor pdfProcessor;
+
+    @Setup
+    public void setup() {
+        content = Corpus.text("document.txt");
+        // Formatting does not touch the directory manager or the OCR processor
+        textProcessor = new TextToMarkdownProcessor(null);
+        wordProcessor = new WordToMarkdownProcessor(null);
+        pdfProcessor = new PdfToMarkdownProcessor(null, null);
+    }
+
+    @Benchmark
+    public String text() {
+        return textProcessor.convertToMarkdownFormat(content, TEXT_SOURCE, null);
+    }
+
+    @Benchmark
+    public String word() {
+        return wordProcessor.convertToMarkdownFormat(content, null);
+    }
+
+    @Benchmark
+    public String pdf() {
+        return pdfProcessor.convertToMarkdownFormat(content, null);
+    }
+
+}
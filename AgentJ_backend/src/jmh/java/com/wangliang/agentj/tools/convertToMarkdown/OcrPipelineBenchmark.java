@@ -0,0 +1,130 @@
+package com.wangliang.agentj.tools.convertToMarkdown;
+
+import com.wangliang.agentj.llm.LlmCallScheduler;
+import com.wangliang.agentj.runtime.executor.ImageRecognitionExecutorPool;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.MimeType;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Page throughput of the OCR pipeline against a stub vision model with a fixed latency.
+ * The score is pages per second; requests and tokens per page, the cost of a page, are
+ * printed when a trial ends.
+ * <p>
+ * The stub answers after {@code 40 ms + 10 ms} per image and reports 300 prompt tokens
+ * per request, 800 per image and 150 completion tokens per image, so batching saves the
+ * per-request overhead and latency but not the per-image tokens.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class OcrPipelineBenchmark {
+
+    private static final int PAGES = 24;
+
+    @Param({ "1", "4" })
+    public int batchSize;
+
+    private ImageRecognitionExecutorPool executorPool;
+
+    private OcrPipeline pipeline;
+
+    private BufferedImage[] pages;
+
+    private long runs;
+
+    private long requests;
+
+    private long tokens;
+
+    private double pagesPerSecond;
+
+    @Setup
+    public void setup() {
+        // Without properties the pool uses its default of 4 workers
+        executorPool = new ImageRecognitionExecutorPool(null);
+        pipeline = new OcrPipeline(executorPool, new LlmCallScheduler(), new StubModel(),
+                new OcrPipeline.Settings("JPEG", 3, batchSize, 300 * 1024));
+        pages = new BufferedImage[PAGES];
+        for (int i = 0; i < PAGES; i++) {
+            pages[i] = page(i);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAGES)
+    public OcrPipeline.Stats ocr() throws InterruptedException {
+        OcrPipeline.Stats stats = pipeline.process(PAGES, pageIndex -> pages[pageIndex], null, (pageNumber, text) -> {
+        });
+        runs++;
+        requests += stats.requests();
+        tokens += stats.promptTokens() + stats.completionTokens();
+        pagesPerSecond += stats.pagesPerSecond();
+        return stats;
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (runs > 0) {
+            double pageCount = runs * (double) PAGES;
+            System.out.printf("%nbatchSize=%d: %.1f pages/s, %.2f requests per page, %.0f tokens per page%n",
+                    batchSize, pagesPerSecond / runs, requests / pageCount, tokens / pageCount);
+        }
+        executorPool.shutdown();
+    }
+
+    /**
+     * A4 page at 150 DPI with rows of dark blocks standing in for text lines
+     */
+    private static BufferedImage page(int seed) {
+        BufferedImage image = new BufferedImage(1240, 1754, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(Color.WHITE);
+        g2d.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g2d.setColor(Color.DARK_GRAY);
+        for (int y = 120; y < 1650; y += 36) {
+            int x = 100;
+            int word = seed + y;
+            while (x < 1100) {
+                int width = 20 + (word * 37) % 90;
+                g2d.fillRect(x, y, width, 18);
+                x += width + 14;
+                word++;
+            }
+        }
+        g2d.dispose();
+        return image;
+    }
+
+    private static final class StubModel implements OcrModel {
+
+        @Override
+        public String modelName() {
+            return "ocr-benchmark-stub";
+        }
+
+        @Override
+        public Reply recognize(String systemText, String userText, List<byte[]> images, MimeType mimeType)
+                throws InterruptedException {
+            TimeUnit.MILLISECONDS.sleep(40 + 10L * images.size());
+            StringBuilder text = new StringBuilder();
+            for (int i = 1; i <= images.size(); i++) {
+                if (images.size() > 1) {
+                    text.append("<<<PAGE ").append(i).append(">>>\n");
+                }
+                text.append("Recognized text of a page with ").append(images.get(i - 1).length).append(" bytes\n");
+            }
+            return new Reply(text.toString(), 300 + 800L * images.size(), 150L * images.size(), null);
+        }
+
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.wangliang.agentj.tools.database.action;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.wangliang.agentj.benchmark.Corpus;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering of a query result as a Markdown table. Rows come from a recorded result held
+ * in memory, so no database is needed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormatResultSetBenchmark {
+
+    @Param({ "50", "500" })
+    public int rows;
+
+    private final ExecuteSqlAction action = new ExecuteSqlAction();
+
+    private List<String> columns;
+
+    private List<List<Object>> data;
+
+    private ResultSetMetaData metaData;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        Map<String, Object> result = Corpus.json("sql-result.json", new TypeReference<Map<String, Object>>() {
+        });
+        columns = (List<String>) result.get("columns");
+        data = ((List<List<Object>>) result.get("rows")).subList(0, rows);
+        metaData = (ResultSetMetaData) Proxy.newProxyInstance(ResultSetMetaData.class.getClassLoader(),
+                new Class<?>[] { ResultSetMetaData.class }, (self, method, args) -> switch (method.getName()) {
+                    case "getColumnCount" -> columns.size();
+                    case "getColumnName", "getColumnLabel" -> columns.get((Integer) args[0] - 1);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    @Benchmark
+    public String formatResultSet() throws SQLException {
+        return action.formatResultSet(cursor());
+    }
+
+    private ResultSet cursor() {
+        int[] position = { -1 };
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+                (self, method, args) -> switch (method.getName()) {
+                    case "getMetaData" -> metaData;
+                    case "next" -> ++position[0] < data.size();
+                    case "getObject" -> data.get(position[0]).get((Integer) args[0] - 1);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+}
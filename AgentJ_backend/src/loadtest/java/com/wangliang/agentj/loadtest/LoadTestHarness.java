@@ -0,0 +1,511 @@
+package com.wangliang.agentj.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.wangliang.agentj.AgentJBackendApplication;
+import com.wangliang.agentj.llm.LlmService;
+import com.wangliang.agentj.mcp.model.vo.McpServiceEntity;
+import com.wangliang.agentj.mcp.service.IMcpService;
+import com.wangliang.agentj.model.entity.DynamicModelEntity;
+import com.wangliang.agentj.model.repository.DynamicModelRepository;
+import com.wangliang.agentj.runtime.service.ServiceGroupIndexService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Boots the backend against {@link StubLlmServer} and {@link StubMcpServer}, drives
+ * concurrent sessions through {@code executeByToolNameAsync} and {@code taskStream}, and
+ * reports throughput, latencies, threads, database statements and heap.
+ * <p>
+ * Every {@code --key=value} argument reaches Spring, so runs with different executor,
+ * recorder or memory settings are compared by changing arguments only. The harness
+ * writes the default model, an MCP server and a plan template, so point it at a scratch
+ * database. Its own settings:
+ * <ul>
+ * <li>{@code loadtest.sessions} concurrent sessions (default 10)</li>
+ * <li>{@code loadtest.plans-per-session} plans each session runs one after another
+ * (default 5)</li>
+ * <li>{@code loadtest.warmup-plans} plans run before measuring (default 2)</li>
+ * <li>{@code loadtest.llm.first-token-ms} and {@code loadtest.llm.tokens-per-second}
+ * (defaults 200 and 50)</li>
+ * <li>{@code loadtest.llm.script} classpath script (default
+ * {@code /loadtest/llm-script.json})</li>
+ * <li>{@code loadtest.mcp.latency-ms} echo tool latency (default 50)</li>
+ * <li>{@code loadtest.report} JSON report file (default
+ * {@code target/loadtest-report.json})</li>
+ * </ul>
+ */
+public final class LoadTestHarness {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private static final String SERVICE_GROUP = "loadtest";
+
+    private static final String TOOL_NAME = "loadtest_agent";
+
+    private static final String TEMPLATE_ID = "loadtest-agent";
+
+    private static final String MCP_SERVER = "loadtest-mcp";
+
+    private static final String MODEL_NAME = "loadtest-stub";
+
+    private static final Duration PLAN_TIMEOUT = Duration.ofMinutes(5);
+
+    private final ConfigurableApplicationContext context;
+
+    private final StubLlmServer llm;
+
+    private final StubMcpServer mcp;
+
+    private final int sessions;
+
+    private final int plansPerSession;
+
+    private final int warmupPlans;
+
+    private final String baseUrl;
+
+    private final HttpClient http = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(Duration.ofSeconds(10))
+        .build();
+
+    private final Map<String, Queue<Long>> observed = new ConcurrentHashMap<>();
+
+    private final Queue<Long> planLatencies = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger failures = new AtomicInteger();
+
+    private String token;
+
+    private LoadTestHarness(ConfigurableApplicationContext context, StubLlmServer llm, StubMcpServer mcp) {
+        Environment env = context.getEnvironment();
+        this.context = context;
+        this.llm = llm;
+        this.mcp = mcp;
+        this.sessions = env.getProperty("loadtest.sessions", Integer.class, 10);
+        this.plansPerSession = env.getProperty("loadtest.plans-per-session", Integer.class, 5);
+        this.warmupPlans = env.getProperty("loadtest.warmup-plans", Integer.class, 2);
+        this.baseUrl = "http://127.0.0.1:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> springArgs = new ArrayList<>();
+        for (String arg : args) {
+            // Maven passes the free form loadtest.args property as a single argument
+            Arrays.stream(arg.trim().split("\\s+")).filter(a -> !a.isEmpty()).forEach(springArgs::add);
+        }
+        springArgs.add("--server.port=0");
+        springArgs.add("--spring.jpa.properties.hibernate.generate_statistics=true");
+
+        int exitCode = 1;
+        ConfigurableApplicationContext context = SpringApplication.run(AgentJBackendApplication.class,
+                springArgs.toArray(String[]::new));
+        Environment env = context.getEnvironment();
+        try (StubLlmServer llm = new StubLlmServer(env.getProperty("loadtest.llm.script", "/loadtest/llm-script.json"),
+                env.getProperty("loadtest.llm.first-token-ms", Long.class, 200L),
+                env.getProperty("loadtest.llm.tokens-per-second", Double.class, 50.0));
+                StubMcpServer mcp = new StubMcpServer(env.getProperty("loadtest.mcp.latency-ms", Long.class, 50L))) {
+            llm.start();
+            mcp.start();
+            LoadTestHarness harness = new LoadTestHarness(context, llm, mcp);
+            Map<String, Object> report = harness.run(springArgs);
+            File reportFile = new File(env.getProperty("loadtest.report", "target/loadtest-report.json"));
+            if (reportFile.getParentFile() != null) {
+                reportFile.getParentFile().mkdirs();
+            }
+            MAPPER.writeValue(reportFile, report);
+            System.out.println(MAPPER.writeValueAsString(report));
+            System.out.println("Report written to " + reportFile.getAbsolutePath());
+            exitCode = harness.failures.get() == 0 ? 0 : 1;
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+        }
+        finally {
+            context.close();
+        }
+        System.exit(exitCode);
+    }
+
+    private Map<String, Object> run(List<String> springArgs) throws Exception {
+        DynamicModelRepository models = context.getBean(DynamicModelRepository.class);
+        LlmService llmService = context.getBean(LlmService.class);
+        DynamicModelEntity previousDefault = models.findByIsDefaultTrue();
+        DynamicModelEntity stubModel = null;
+        try {
+            token = register();
+            stubModel = installStubModel(models, llmService, previousDefault);
+            createTemplate(registerMcpServer());
+            context.getBean(ObservationRegistry.class).observationConfig().observationHandler(new Recorder());
+
+            for (int i = 0; i < warmupPlans; i++) {
+                runPlan("warmup " + i);
+            }
+            observed.clear();
+            planLatencies.clear();
+            failures.set(0);
+            return measure(springArgs);
+        }
+        finally {
+            cleanUp(models, llmService, previousDefault, stubModel);
+        }
+    }
+
+    private Map<String, Object> measure(List<String> springArgs) throws Exception {
+        MeterRegistry meters = context.getBean(MeterRegistry.class);
+        Statistics statistics = context.getBean(EntityManagerFactory.class)
+            .unwrap(SessionFactory.class)
+            .getStatistics();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        Map<Timer, long[]> queueWaitBefore = new LinkedHashMap<>();
+        for (Timer timer : meters.find("lynxe.executor.queue.wait").timers()) {
+            queueWaitBefore.put(timer, new long[] { timer.count(), (long) timer.totalTime(TimeUnit.NANOSECONDS) });
+        }
+        long gcCountBefore = gcCount();
+        long gcTimeBefore = gcTime();
+        long llmRequestsBefore = llm.requests();
+        long tokensBefore = llm.streamedTokens();
+        long mcpCallsBefore = mcp.calls();
+        statistics.clear();
+        threads.resetPeakThreadCount();
+
+        AtomicLong maxHeap = new AtomicLong();
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> maxHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max),
+                0, 1, TimeUnit.SECONDS);
+
+        long start = System.nanoTime();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> running = new ArrayList<>();
+            for (int s = 0; s < sessions; s++) {
+                int session = s;
+                running.add(clients.submit(() -> {
+                    for (int p = 0; p < plansPerSession; p++) {
+                        runPlan("session " + session + " plan " + p);
+                    }
+                }));
+            }
+            for (Future<?> future : running) {
+                future.get();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        sampler.shutdownNow();
+
+        int plans = sessions * plansPerSession;
+        int completed = plans - failures.get();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("arguments", springArgs.stream().filter(a -> !a.startsWith("--spring.datasource.password")).toList());
+        report.put("sessions", sessions);
+        report.put("plansPerSession", plansPerSession);
+        report.put("plans", plans);
+        report.put("failedPlans", failures.get());
+        report.put("wallSeconds", round(seconds));
+        report.put("plansPerSecond", round(completed / seconds));
+        report.put("stepsPerSecond", round(observed.getOrDefault("lynxe.step", new ConcurrentLinkedQueue<>()).size() / seconds));
+
+        Map<String, Object> latency = new TreeMap<>();
+        observed.forEach((name, durations) -> latency.put(name, summary(durations)));
+        report.put("latencyMs", latency);
+        // taskStream polls once a second, so client side figures are coarse
+        report.put("clientPlanLatencyMs", summary(planLatencies));
+
+        Map<String, Object> queueWait = new TreeMap<>();
+        queueWaitBefore.forEach((timer, before) -> {
+            long count = timer.count() - before[0];
+            double totalMs = (timer.totalTime(TimeUnit.NANOSECONDS) - before[1]) / 1e6;
+            queueWait.put(timer.getId().getTag("level"),
+                    Map.of("tasks", count, "meanMs", round(count == 0 ? 0 : totalMs / count)));
+        });
+        report.put("executorQueueWait", queueWait);
+
+        report.put("threads", Map.of("peak", threads.getPeakThreadCount(), "live", threads.getThreadCount(), "daemon",
+                threads.getDaemonThreadCount()));
+        report.put("heap", Map.of("maxUsedMb", maxHeap.get() >> 20, "endUsedMb",
+                memory.getHeapMemoryUsage().getUsed() >> 20, "gcCount", gcCount() - gcCountBefore, "gcMs",
+                gcTime() - gcTimeBefore));
+
+        Map<String, Object> database = new LinkedHashMap<>();
+        database.put("statements", statistics.getPrepareStatementCount());
+        database.put("queries", statistics.getQueryExecutionCount());
+        database.put("entityLoads", statistics.getEntityLoadCount());
+        database.put("entityInserts", statistics.getEntityInsertCount());
+        database.put("entityUpdates", statistics.getEntityUpdateCount());
+        database.put("statementsPerPlan", round(completed == 0 ? 0 : (double) statistics.getPrepareStatementCount() / completed));
+        report.put("database", database);
+
+        report.put("stubs", Map.of("llmRequests", llm.requests() - llmRequestsBefore, "llmTokens",
+                llm.streamedTokens() - tokensBefore, "mcpCalls", mcp.calls() - mcpCallsBefore));
+        return report;
+    }
+
+    /**
+     * Submit one plan and follow its task stream until it reports done
+     */
+    private void runPlan(String label) {
+        long start = System.nanoTime();
+        try {
+            JsonNode submitted = post("/api/executor/executeByToolNameAsync", Map.of("toolName", TOOL_NAME,
+                    "serviceGroup", SERVICE_GROUP, "replacementParams", Map.of("input", label)));
+            String planId = submitted.path("planId").asText(null);
+            if (planId == null) {
+                throw new IllegalStateException("No planId in " + submitted);
+            }
+            HttpResponse<Stream<String>> stream = http.send(request("/api/executor/taskStream", Map.of("planId", planId))
+                .timeout(PLAN_TIMEOUT)
+                .build(), HttpResponse.BodyHandlers.ofLines());
+            boolean done;
+            try (Stream<String> lines = stream.body()) {
+                done = lines.filter(line -> line.startsWith("data:"))
+                    .map(line -> readTree(line.substring(5)))
+                    .map(event -> event.path("type").asText())
+                    .filter(type -> "done".equals(type) || "error".equals(type))
+                    .findFirst()
+                    .map("done"::equals)
+                    .orElse(false);
+            }
+            if (!done) {
+                throw new IllegalStateException("Plan " + planId + " ended without completing");
+            }
+            planLatencies.add(System.nanoTime() - start);
+        }
+        catch (Exception e) {
+            failures.incrementAndGet();
+            System.err.println(label + " failed: " + e.getMessage());
+        }
+    }
+
+    private String register() throws IOException, InterruptedException {
+        String user = "loadtest" + System.currentTimeMillis();
+        JsonNode response = post("/api/auth/register",
+                Map.of("username", user, "email", user + "@loadtest.local", "password", "loadtest-" + user));
+        return response.path("token").asText();
+    }
+
+    private DynamicModelEntity installStubModel(DynamicModelRepository models, LlmService llmService,
+            DynamicModelEntity previousDefault) {
+        if (previousDefault != null) {
+            previousDefault.setIsDefault(false);
+            models.save(previousDefault);
+        }
+        DynamicModelEntity model = new DynamicModelEntity();
+        model.setBaseUrl(llm.baseUrl());
+        model.setApiKey("stub");
+        model.setModelName(MODEL_NAME);
+        model.setModelDescription("Scripted OpenAI compatible stub used by the load test harness");
+        model.setType("GENERAL");
+        model.setIsDefault(true);
+        model.setCompletionsPath("/v1/chat/completions");
+        model = models.save(model);
+        llmService.refreshDefaultModelCache();
+        return model;
+    }
+
+    /**
+     * Register the stub MCP server and wait for its tools to be connected
+     * @return the qualified key of the echo tool
+     */
+    private String registerMcpServer() throws Exception {
+        post("/api/mcp/server", Map.of("mcpServerName", MCP_SERVER, "connectionType", "SSE", "url", mcp.sseUrl(),
+                "status", "ENABLE"));
+        IMcpService mcpService = context.getBean(IMcpService.class);
+        Integer index = context.getBean(ServiceGroupIndexService.class).getOrAssignIndex(MCP_SERVER);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (System.nanoTime() < deadline) {
+            for (McpServiceEntity service : mcpService.getFunctionCallbacks("loadtest-setup")) {
+                if (!MCP_SERVER.equals(service.getServiceGroup())) {
+                    continue;
+                }
+                ToolCallback[] callbacks = service.getAsyncMcpToolCallbackProvider().getToolCallbacks();
+                if (callbacks.length > 0) {
+                    return callbacks[0].getToolDefinition().name() + "__" + index;
+                }
+            }
+            TimeUnit.MILLISECONDS.sleep(500);
+        }
+        throw new IllegalStateException("Stub MCP server did not connect within 30s");
+    }
+
+    private void createTemplate(String mcpToolKey) throws IOException, InterruptedException {
+        Map<String, Object> step = new LinkedHashMap<>();
+        step.put("agentName", "ConfigurableDynaAgent");
+        step.put("stepRequirement", "[DEFAULT_AGENT] Echo the input with the MCP tool, then terminate: <<input>>");
+        step.put("modelName", "");
+        step.put("terminateColumns", "");
+        step.put("selectedToolKeys", List.of(mcpToolKey, "terminate"));
+
+        Map<String, Object> toolConfig = new LinkedHashMap<>();
+        toolConfig.put("toolDescription", "Load test agent");
+        toolConfig.put("enableHttpService", true);
+        toolConfig.put("enableInternalToolcall", false);
+        toolConfig.put("enableInConversation", false);
+        toolConfig.put("inputSchema",
+                List.of(Map.of("name", "input", "description", "Text to echo", "type", "string", "required", true)));
+
+        Map<String, Object> template = new LinkedHashMap<>();
+        template.put("planTemplateId", TEMPLATE_ID);
+        template.put("title", TOOL_NAME);
+        template.put("serviceGroup", SERVICE_GROUP);
+        template.put("planType", "dynamic_agent");
+        template.put("directResponse", false);
+        template.put("steps", List.of(step));
+        template.put("toolConfig", toolConfig);
+        post("/api/plan-template/create-or-update-with-tool", template);
+    }
+
+    private void cleanUp(DynamicModelRepository models, LlmService llmService, DynamicModelEntity previousDefault,
+            DynamicModelEntity stubModel) {
+        try {
+            post("/api/plan-template/delete", Map.of("planId", TEMPLATE_ID));
+            post("/api/mcp/remove/" + MCP_SERVER, Map.of());
+        }
+        catch (Exception e) {
+            System.err.println("Could not remove load test template or MCP server: " + e.getMessage());
+        }
+        if (stubModel != null) {
+            models.delete(stubModel);
+        }
+        if (previousDefault != null) {
+            previousDefault.setIsDefault(true);
+            models.save(previousDefault);
+        }
+        llmService.refreshDefaultModelCache();
+    }
+
+    private JsonNode post(String path, Object body) throws IOException, InterruptedException {
+        HttpResponse<String> response = http.send(request(path, body).build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 300) {
+            throw new IllegalStateException(path + " returned " + response.statusCode() + ": " + response.body());
+        }
+        return readTree(response.body());
+    }
+
+    private HttpRequest.Builder request(String path, Object body) throws IOException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(MAPPER.writeValueAsBytes(body)));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+
+    private static JsonNode readTree(String body) {
+        try {
+            return MAPPER.readTree(body);
+        }
+        catch (IOException e) {
+            // Plain text answers such as "Success"
+            return MAPPER.getNodeFactory().textNode(body);
+        }
+    }
+
+    private static Map<String, Object> summary(Collection<Long> nanos) {
+        long[] sorted = nanos.stream().mapToLong(Long::longValue).sorted().toArray();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", sorted.length);
+        if (sorted.length > 0) {
+            summary.put("p50", round(percentile(sorted, 0.50) / 1e6));
+            summary.put("p99", round(percentile(sorted, 0.99) / 1e6));
+            summary.put("max", round(sorted[sorted.length - 1] / 1e6));
+        }
+        return summary;
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans()
+            .stream()
+            .mapToLong(GarbageCollectorMXBean::getCollectionCount)
+            .sum();
+    }
+
+    private static long gcTime() {
+        return ManagementFactory.getGarbageCollectorMXBeans()
+            .stream()
+            .mapToLong(GarbageCollectorMXBean::getCollectionTime)
+            .sum();
+    }
+
+    /**
+     * Keeps the raw duration of every lynxe observation so percentiles are exact rather
+     * than histogram buckets
+     */
+    private final class Recorder implements ObservationHandler<Observation.Context> {
+
+        private static final String START = Recorder.class.getName() + ".start";
+
+        @Override
+        public void onStart(Observation.Context context) {
+            context.put(START, System.nanoTime());
+        }
+
+        @Override
+        public void onStop(Observation.Context context) {
+            Long start = context.get(START);
+            String name = context.getName();
+            if (start != null && name != null && name.startsWith("lynxe.")) {
+                observed.computeIfAbsent(name, n -> new ConcurrentLinkedQueue<>()).add(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public boolean supportsContext(Observation.Context context) {
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,288 @@
+package com.wangliang.agentj.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * OpenAI compatible chat completions endpoint that replays a fixed script instead of
+ * calling a model.
+ * <p>
+ * The turn is chosen by the number of tool results already in the request, so every
+ * session walks the same script: turn {@code n} answers with its text and calls its tool.
+ * Requests that offer no tools (summaries, memory compression) get the script's
+ * {@code answer}. Text is streamed word by word after {@code firstTokenMs}, paced at
+ * {@code tokensPerSecond}; nothing is random, so two runs with the same settings send the
+ * same bytes at the same rate.
+ */
+public final class StubLlmServer implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final JsonNode script;
+
+    private final long firstTokenMs;
+
+    private final double tokensPerSecond;
+
+    private final HttpServer server;
+
+    private final AtomicLong requests = new AtomicLong();
+
+    private final AtomicLong streamedTokens = new AtomicLong();
+
+    public StubLlmServer(String scriptResource, long firstTokenMs, double tokensPerSecond) throws IOException {
+        try (InputStream in = StubLlmServer.class.getResourceAsStream(scriptResource)) {
+            if (in == null) {
+                throw new IOException("Script not found on classpath: " + scriptResource);
+            }
+            this.script = MAPPER.readTree(in);
+        }
+        this.firstTokenMs = firstTokenMs;
+        this.tokensPerSecond = tokensPerSecond;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        this.server.createContext("/v1/chat/completions", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public long requests() {
+        return requests.get();
+    }
+
+    public long streamedTokens() {
+        return streamedTokens.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            long id = requests.incrementAndGet();
+            JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+            Reply reply = reply(request);
+            String model = request.path("model").asText("loadtest-stub");
+            if (request.path("stream").asBoolean(false)) {
+                stream(exchange, id, model, reply);
+            }
+            else {
+                complete(exchange, id, model, reply);
+            }
+        }
+        catch (UncheckedIOException e) {
+            // The client went away mid stream, nothing left to answer
+        }
+    }
+
+    private Reply reply(JsonNode request) {
+        Set<String> offered = new HashSet<>();
+        for (JsonNode tool : request.path("tools")) {
+            offered.add(tool.path("function").path("name").asText());
+        }
+        if (offered.isEmpty()) {
+            return new Reply(script.path("answer").asText(), null, null);
+        }
+        int toolResults = 0;
+        for (JsonNode message : request.path("messages")) {
+            if ("tool".equals(message.path("role").asText())) {
+                toolResults++;
+            }
+        }
+        JsonNode turns = script.path("turns");
+        JsonNode turn = turns.get(Math.min(toolResults, turns.size() - 1));
+        String tool = resolve(turn.path("tool").asText(), offered);
+        JsonNode arguments = turn.path("arguments");
+        if (tool == null) {
+            // The scripted tool is not selected for this agent, end the step instead
+            tool = resolve("terminate", offered);
+            arguments = MAPPER.createObjectNode().put("message", turn.path("text").asText());
+        }
+        return new Reply(turn.path("text").asText(), tool, tool == null ? null : arguments.toString());
+    }
+
+    /**
+     * Offered tools carry a service group suffix ({@code echo__3}), scripts name the bare
+     * tool
+     */
+    private static String resolve(String name, Set<String> offered) {
+        if (offered.contains(name)) {
+            return name;
+        }
+        for (String candidate : offered) {
+            if (candidate.startsWith(name + "__")) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private void stream(HttpExchange exchange, long id, String model, Reply reply) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        String completionId = "chatcmpl-stub-" + id;
+        long created = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+
+        pause(firstTokenMs);
+        List<String> tokens = tokens(reply.text());
+        long tokenNanos = tokensPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / tokensPerSecond) : 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            if (i > 0) {
+                pauseNanos(tokenNanos);
+            }
+            ObjectNode delta = MAPPER.createObjectNode();
+            if (i == 0) {
+                delta.put("role", "assistant");
+            }
+            delta.put("content", tokens.get(i));
+            send(out, chunk(completionId, created, model, delta, null));
+            streamedTokens.incrementAndGet();
+        }
+        if (reply.tool() != null) {
+            ObjectNode delta = MAPPER.createObjectNode();
+            ObjectNode call = delta.putArray("tool_calls").addObject();
+            call.put("index", 0).put("id", "call_" + id).put("type", "function");
+            call.putObject("function").put("name", reply.tool()).put("arguments", reply.arguments());
+            send(out, chunk(completionId, created, model, delta, null));
+        }
+        send(out, chunk(completionId, created, model, MAPPER.createObjectNode(),
+                reply.tool() != null ? "tool_calls" : "stop"));
+
+        ObjectNode usage = MAPPER.createObjectNode();
+        usage.put("id", completionId).put("object", "chat.completion.chunk").put("created", created)
+            .put("model", model);
+        usage.putArray("choices");
+        usage.set("usage", usage(tokens.size()));
+        send(out, usage.toString());
+        send(out, "[DONE]");
+    }
+
+    private void complete(HttpExchange exchange, long id, String model, Reply reply) throws IOException {
+        pause(firstTokenMs);
+        List<String> tokens = tokens(reply.text());
+        if (tokensPerSecond > 0) {
+            pauseNanos((long) (TimeUnit.SECONDS.toNanos(1) * tokens.size() / tokensPerSecond));
+        }
+        streamedTokens.addAndGet(tokens.size());
+
+        ObjectNode message = MAPPER.createObjectNode().put("role", "assistant").put("content", reply.text());
+        if (reply.tool() != null) {
+            ObjectNode call = message.putArray("tool_calls").addObject();
+            call.put("id", "call_" + id).put("type", "function");
+            call.putObject("function").put("name", reply.tool()).put("arguments", reply.arguments());
+        }
+        ObjectNode body = MAPPER.createObjectNode();
+        body.put("id", "chatcmpl-stub-" + id)
+            .put("object", "chat.completion")
+            .put("created", TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()))
+            .put("model", model);
+        ObjectNode choice = body.putArray("choices").addObject();
+        choice.put("index", 0).set("message", message);
+        choice.put("finish_reason", reply.tool() != null ? "tool_calls" : "stop");
+        body.set("usage", usage(tokens.size()));
+
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static String chunk(String id, long created, String model, ObjectNode delta, String finishReason) {
+        ObjectNode chunk = MAPPER.createObjectNode();
+        chunk.put("id", id).put("object", "chat.completion.chunk").put("created", created).put("model", model);
+        ArrayNode choices = chunk.putArray("choices");
+        ObjectNode choice = choices.addObject().put("index", 0);
+        choice.set("delta", delta);
+        if (finishReason != null) {
+            choice.put("finish_reason", finishReason);
+        }
+        else {
+            choice.putNull("finish_reason");
+        }
+        return chunk.toString();
+    }
+
+    private static ObjectNode usage(int completionTokens) {
+        // Prompt size is not modelled; a fixed figure keeps token accounting comparable
+        int promptTokens = 1000;
+        return MAPPER.createObjectNode()
+            .put("prompt_tokens", promptTokens)
+            .put("completion_tokens", completionTokens)
+            .put("total_tokens", promptTokens + completionTokens);
+    }
+
+    private static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        int start = 0;
+        for (int i = 1; i <= text.length(); i++) {
+            if (i == text.length() || text.charAt(i) == ' ') {
+                tokens.add(text.substring(start, i));
+                start = i;
+            }
+        }
+        return tokens;
+    }
+
+    private static void send(OutputStream out, String data) {
+        try {
+            out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void pause(long millis) {
+        pauseNanos(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private static void pauseNanos(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Reply(String text, String tool, String arguments) {
+    }
+
+}
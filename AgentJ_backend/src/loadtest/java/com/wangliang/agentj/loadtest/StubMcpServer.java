@@ -0,0 +1,188 @@
+package com.wangliang.agentj.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MCP server over the HTTP+SSE transport with a single {@code echo} tool that answers
+ * after a fixed latency.
+ * <p>
+ * {@code GET /sse} opens a session and announces the message endpoint, JSON-RPC requests
+ * posted there are answered on the session's event stream.
+ */
+public final class StubMcpServer implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String TOOL_NAME = "echo";
+
+    private final long callLatencyMs;
+
+    private final HttpServer server;
+
+    private final ScheduledExecutorService replies = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "stub-mcp-replies");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    private final AtomicLong calls = new AtomicLong();
+
+    public StubMcpServer(long callLatencyMs) throws IOException {
+        this.callLatencyMs = callLatencyMs;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        this.server.createContext("/sse", this::openSession);
+        this.server.createContext("/message", this::receive);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * The backend only accepts SSE servers whose URL path mentions sse
+     */
+    public String sseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/sse";
+    }
+
+    public long calls() {
+        return calls.get();
+    }
+
+    @Override
+    public void close() {
+        sessions.values().forEach(Session::close);
+        replies.shutdownNow();
+        server.stop(0);
+    }
+
+    private void openSession(HttpExchange exchange) throws IOException {
+        String id = UUID.randomUUID().toString();
+        Session session = new Session(exchange);
+        sessions.put(id, session);
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            exchange.sendResponseHeaders(200, 0);
+            session.send("endpoint", "/message?sessionId=" + id);
+            session.awaitClose();
+        }
+        finally {
+            sessions.remove(id);
+            exchange.close();
+        }
+    }
+
+    private void receive(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String query = exchange.getRequestURI().getQuery();
+            String id = query != null && query.startsWith("sessionId=") ? query.substring("sessionId=".length()) : null;
+            Session session = id != null ? sessions.get(id) : null;
+            if (session == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            JsonNode message = MAPPER.readTree(exchange.getRequestBody());
+            exchange.sendResponseHeaders(202, -1);
+            if (!message.hasNonNull("id")) {
+                // Notifications need no answer
+                return;
+            }
+            ObjectNode response = MAPPER.createObjectNode().put("jsonrpc", "2.0");
+            response.set("id", message.get("id"));
+            String method = message.path("method").asText();
+            switch (method) {
+                case "initialize" -> {
+                    ObjectNode result = response.putObject("result");
+                    result.put("protocolVersion", message.path("params").path("protocolVersion").asText("2024-11-05"));
+                    result.putObject("capabilities").putObject("tools");
+                    result.putObject("serverInfo").put("name", "loadtest-mcp").put("version", "1.0.0");
+                    session.send("message", response.toString());
+                }
+                case "tools/list" -> {
+                    ObjectNode tool = response.putObject("result").putArray("tools").addObject();
+                    tool.put("name", TOOL_NAME).put("description", "Returns the given text unchanged");
+                    ObjectNode schema = tool.putObject("inputSchema").put("type", "object");
+                    schema.putObject("properties").putObject("text").put("type", "string");
+                    schema.putArray("required").add("text");
+                    session.send("message", response.toString());
+                }
+                case "tools/call" -> {
+                    calls.incrementAndGet();
+                    String text = message.path("params").path("arguments").path("text").asText();
+                    ObjectNode result = response.putObject("result");
+                    result.putArray("content").addObject().put("type", "text").put("text", text);
+                    result.put("isError", false);
+                    replies.schedule(() -> session.send("message", response.toString()), callLatencyMs,
+                            TimeUnit.MILLISECONDS);
+                }
+                case "ping" -> {
+                    response.putObject("result");
+                    session.send("message", response.toString());
+                }
+                default -> {
+                    response.putObject("error").put("code", -32601).put("message", "Method not found: " + method);
+                    session.send("message", response.toString());
+                }
+            }
+        }
+    }
+
+    private static final class Session {
+
+        private final HttpExchange exchange;
+
+        private final CountDownLatch closed = new CountDownLatch(1);
+
+        Session(HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+
+        synchronized void send(String event, String data) {
+            try {
+                OutputStream out = exchange.getResponseBody();
+                out.write(("event: " + event + "\ndata: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+            catch (IOException e) {
+                close();
+            }
+        }
+
+        void awaitClose() {
+            try {
+                closed.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void close() {
+            closed.countDown();
+        }
+
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.advisor;
+
+import com.wangliang.agentj.llm.LlmCallScheduler;
+import org.springframework.ai.chat.client.ChatClientMessageAggregator;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.core.Ordered;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Advisor that admits every call of a ChatClient through {@link LlmCallScheduler}, so
+ * planning, summarization and memory calls share the per-model limit, cooldown and token
+ * budget with the agents instead of bursting past them.
+ *
+ * Callers that acquire a permit themselves, such as agents that pass their plan depth
+ * as priority, set {@link #ADMITTED} in the advisor context to skip a second admission.
+ */
+public class LlmCallSchedulerAdvisor implements CallAdvisor, StreamAdvisor {
+
+	/**
+	 * Advisor context key; when true the call already holds a scheduler permit
+	 */
+	public static final String ADMITTED = "lynxe_llm_call_admitted";
+
+	private final LlmCallScheduler scheduler;
+
+	private final String defaultModel;
+
+	/**
+	 * @param scheduler Shared scheduler
+	 * @param defaultModel Limiter key for requests whose options name no model
+	 */
+	public LlmCallSchedulerAdvisor(LlmCallScheduler scheduler, String defaultModel) {
+		this.scheduler = scheduler;
+		this.defaultModel = defaultModel;
+	}
+
+	@Override
+	public String getName() {
+		return this.getClass().getSimpleName();
+	}
+
+	@Override
+	public int getOrder() {
+		// Innermost, so the permit covers the model call and not the other advisors
+		return Ordered.LOWEST_PRECEDENCE - 100;
+	}
+
+	@Override
+	public ChatClientResponse adviseCall(ChatClientRequest chatClientRequest, CallAdvisorChain callAdvisorChain) {
+		if (isAdmitted(chatClientRequest)) {
+			return callAdvisorChain.nextCall(chatClientRequest);
+		}
+		LlmCallScheduler.Permit permit = acquire(chatClientRequest);
+		try {
+			ChatClientResponse response = callAdvisorChain.nextCall(chatClientRequest);
+			permit.complete(response != null ? response.chatResponse() : null);
+			return response;
+		}
+		catch (RuntimeException e) {
+			permit.fail(e);
+			throw e;
+		}
+	}
+
+	@Override
+	public Flux<ChatClientResponse> adviseStream(ChatClientRequest chatClientRequest,
+			StreamAdvisorChain streamAdvisorChain) {
+		if (isAdmitted(chatClientRequest)) {
+			return streamAdvisorChain.nextStream(chatClientRequest);
+		}
+		// Waiting for admission blocks, so it must not run on an event loop thread
+		return Mono.fromCallable(() -> acquire(chatClientRequest))
+			.subscribeOn(Schedulers.boundedElastic())
+			.flatMapMany(permit -> new ChatClientMessageAggregator()
+				.aggregateChatClientResponse(streamAdvisorChain.nextStream(chatClientRequest),
+						aggregated -> permit.complete(aggregated.chatResponse()))
+				.doOnError(permit::fail)
+				.doOnCancel(() -> permit.complete(null)));
+	}
+
+	private boolean isAdmitted(ChatClientRequest request) {
+		return Boolean.TRUE.equals(request.context().get(ADMITTED));
+	}
+
+	private LlmCallScheduler.Permit acquire(ChatClientRequest request) {
+		String model = request.prompt().getOptions() != null ? request.prompt().getOptions().getModel() : null;
+		long chars = 0;
+		for (Message message : request.prompt().getInstructions()) {
+			String text = message.getText();
+			chars += text != null ? text.length() : 0;
+		}
+		try {
+			return scheduler.acquire(model != null && !model.isEmpty() ? model : defaultModel, 0,
+					chars / LlmCallScheduler.CHARS_PER_TOKEN);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for LLM call admission", e);
+		}
+	}
+
+}
@@ -18,7 +18,13 @@ package com.wangliang.agentj.agent;
 public enum AgentState {
 
 	NOT_STARTED("not_started"), IN_PROGRESS("in_progress"), COMPLETED("completed"), BLOCKED("blocked"),
-	FAILED("failed"), INTERRUPTED("interrupted");
+	FAILED("failed"), INTERRUPTED("interrupted"),
+
+	/**
+	 * Waiting for the user to answer a form; the run continues with
+	 * {@link BaseAgent#resume()} without holding a thread meanwhile
+	 */
+	SUSPENDED("suspended");
 
 	private final String state;
 
@@ -21,6 +21,7 @@ import org.springframework.ai.chat.prompt.PromptTemplate;
 import org.springframework.ai.tool.ToolCallback;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * An abstract base class for implementing AI agents that can execute multi-step tasks.
@@ -72,6 +73,11 @@ public abstract class BaseAgent {
 	private int maxSteps;
 	private int currentStep = 0;
 
+	// Round results of the current run, kept across a suspension
+	private List<AgentExecResult> results = new ArrayList<>();
+
+	private AgentExecResult lastStepResult;
+
 	// Change the data map to an immutable object and initialize it properly
 	private final Map<String, Object> initSettingData;
 
@@ -228,19 +234,67 @@ public abstract class BaseAgent {
 
 	public AgentExecResult run() {
 		currentStep = 0;
-		List<AgentExecResult> results = new ArrayList<>();
-		AgentExecResult lastStepResult = null;
+		results = new ArrayList<>();
+		lastStepResult = null;
+		return runRounds(null);
+	}
 
+	/**
+	 * Continue a run that returned {@link AgentState#SUSPENDED}, once
+	 * {@link #whenResumable()} has completed. The suspended round is finished first, then
+	 * the remaining rounds run as in {@link #run()}.
+	 */
+	public AgentExecResult resume() {
+		AgentExecResult resumedRound;
 		try {
-			while (currentStep < maxSteps) {
-				currentStep++;
-				log.info("Executing round {}/{}", currentStep, maxSteps);
+			resumedRound = completeSuspendedRound();
+		}
+		catch (Exception e) {
+			log.error("Failed to complete suspended round", e);
+			resumedRound = handleExceptionWithSystemErrorReport(e, results);
+		}
+		return runRounds(resumedRound);
+	}
 
-				AgentExecResult stepResult = step();
+	/**
+	 * Completes when a suspended run can continue with {@link #resume()}
+	 */
+	public CompletableFuture<?> whenResumable() {
+		return CompletableFuture.completedFuture(null);
+	}
+
+	/**
+	 * Finish the round that suspended, agents that suspend must override this
+	 * @return the result of the suspended round
+	 */
+	protected AgentExecResult completeSuspendedRound() {
+		throw new IllegalStateException("Agent " + getName() + " has no suspended round");
+	}
+
+	private AgentExecResult runRounds(AgentExecResult resumedRound) {
+		boolean suspended = false;
+		try {
+			while (currentStep < maxSteps || resumedRound != null) {
+				AgentExecResult stepResult;
+				if (resumedRound != null) {
+					stepResult = resumedRound;
+					resumedRound = null;
+				}
+				else {
+					currentStep++;
+					log.info("Executing round {}/{}", currentStep, maxSteps);
+					stepResult = step();
+				}
 				lastStepResult = stepResult;
 
 				// Check if agent should terminate
 				AgentState stepState = stepResult.getState();
+				if (stepState == AgentState.SUSPENDED) {
+					// Memory and records stay in place for resume()
+					log.info("Agent execution suspended at round {}/{}", currentStep, maxSteps);
+					suspended = true;
+					return stepResult;
+				}
 				if (stepState == AgentState.COMPLETED || stepState == AgentState.INTERRUPTED
 						|| stepState == AgentState.FAILED) {
 					String stateDescription = stepState == AgentState.COMPLETED ? "completed"
@@ -288,11 +342,13 @@ public abstract class BaseAgent {
 			lastStepResult = handleExceptionWithSystemErrorReport(e, results);
 		}
 		finally {
-			llmService.clearAgentMemory(currentPlanId);
+			if (!suspended) {
+				llmService.clearAgentMemory(getAgentMemoryId());
 
-			// Record execution at the end
-			if (currentPlanId != null && planExecutionRecorder != null) {
-				planExecutionRecorder.recordCompleteAgentExecution(step);
+				// Record execution at the end
+				if (currentPlanId != null && planExecutionRecorder != null) {
+					planExecutionRecorder.recordCompleteAgentExecution(step);
+				}
 			}
 		}
 
@@ -420,6 +476,17 @@ public abstract class BaseAgent {
 		this.currentPlanId = planId;
 	}
 
+	/**
+	 * Key of this agent's memory. Steps of one plan may run at the same time, so each
+	 * step keeps its own memory under the plan ID.
+	 */
+	public String getAgentMemoryId() {
+		if (currentPlanId == null || step == null || step.getStepId() == null) {
+			return currentPlanId;
+		}
+		return currentPlanId + "/" + step.getStepId();
+	}
+
 	public void setRootPlanId(String rootPlanId) {
 		this.rootPlanId = rootPlanId;
 	}
@@ -516,7 +583,7 @@ public abstract class BaseAgent {
 
 			// Get all memory entries for the current plan
 			List<Message> memoryEntries = llmService.getAgentMemory(lynxeProperties.getMaxMemory())
-				.get(getCurrentPlanId());
+				.get(getAgentMemoryId());
 
 			if (memoryEntries == null || memoryEntries.isEmpty()) {
 				return "No memory entries found for final summary";
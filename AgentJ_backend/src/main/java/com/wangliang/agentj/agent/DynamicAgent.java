@@ -17,20 +17,25 @@ package com.wangliang.agentj.agent;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wangliang.agentj.advisor.LlmCallSchedulerAdvisor;
 import com.wangliang.agentj.config.LynxeProperties;
 import com.wangliang.agentj.conversation.service.MemoryService;
 import com.wangliang.agentj.event.LynxeEventPublisher;
 import com.wangliang.agentj.event.PlanExceptionClearedEvent;
 import com.wangliang.agentj.llm.ConversationMemoryLimitService;
+import com.wangliang.agentj.llm.LlmCallScheduler;
 import com.wangliang.agentj.llm.LlmService;
 import com.wangliang.agentj.llm.StreamingResponseHandler;
+import com.wangliang.agentj.llm.usage.vo.LlmCallContext;
 import com.wangliang.agentj.planning.PlanningFactory;
 import com.wangliang.agentj.recorder.service.PlanExecutionRecorder;
 import com.wangliang.agentj.runtime.entity.vo.ExecutionStep;
 import com.wangliang.agentj.runtime.executor.AbstractPlanExecutor;
+import com.wangliang.agentj.runtime.observation.LynxeObservations;
 import com.wangliang.agentj.runtime.service.*;
 import com.wangliang.agentj.tools.*;
 import com.wangliang.agentj.tools.code.ToolExecuteResult;
+import com.wangliang.agentj.user.context.UserContextHolder;
 import io.micrometer.common.util.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,7 +59,7 @@ import reactor.core.publisher.Flux;
 
 import java.util.*;
 import java.lang.reflect.Field;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 public class DynamicAgent extends ReActAgent {
@@ -126,6 +131,11 @@ public class DynamicAgent extends ReActAgent {
 	 */
 	private boolean userRequestSavedToConversationMemory = false;
 
+	/**
+	 * Form round waiting for the user, set while the agent is suspended
+	 */
+	private SuspendedForm suspendedForm;
+
 	public void clearUp(String planId) {
 		Map<String, PlanningFactory.ToolCallBackContext> toolCallBackContext = toolCallbackProvider.getToolCallBackContext();
 		for (PlanningFactory.ToolCallBackContext toolCallBack : toolCallBackContext.values()) {
@@ -136,11 +146,25 @@ public class DynamicAgent extends ReActAgent {
 				log.error("Error cleaning up tool callback context: {}", e.getMessage(), e);
 			}
 		}
-		// Also remove any pending form input tool for this root plan ID
+		// Also remove any pending form of this agent for the root plan ID
 		if (userInputService != null) {
-			String rootPlanId = getRootPlanId();
-			if (rootPlanId != null) {
-				userInputService.removeFormInputTool(rootPlanId);
+			removeOwnFormInputTools();
+		}
+	}
+
+	/**
+	 * Remove the forms of this agent's form input tools from its root plan. Forms shown
+	 * or queued for other sub-plans of the same root plan are left in place.
+	 */
+	private void removeOwnFormInputTools() {
+		String rootPlanId = getRootPlanId();
+		if (rootPlanId == null) {
+			return;
+		}
+		for (PlanningFactory.ToolCallBackContext toolCallBack : toolCallbackProvider.getToolCallBackContext()
+			.values()) {
+			if (toolCallBack.getFunctionInstance() instanceof FormInputTool formInputTool) {
+				userInputService.removeFormInputTool(rootPlanId, formInputTool);
 			}
 		}
 	}
@@ -267,7 +291,7 @@ public class DynamicAgent extends ReActAgent {
 				List<Message> messages = new ArrayList<>();
 				// Add history message from agent memory
 				ChatMemory chatMemory = llmService.getAgentMemory(lynxeProperties.getMaxMemory());
-				List<Message> historyMem = chatMemory.get(getCurrentPlanId());
+				List<Message> historyMem = chatMemory.get(getAgentMemoryId());
 				// List<Message> subAgentMem = chatMemory.get(getCurrentPlanId());
 
 				// Add conversation history from MemoryService if conversationId is
@@ -334,16 +358,35 @@ public class DynamicAgent extends ReActAgent {
 				}).sum();
 				log.info("User prompt character count: {}", inputCharCount);
 
-				// Use streaming response handler for better user experience and content
-				// merging
-				Flux<ChatResponse> responseFlux = chatClient.prompt(userPrompt)
-					.toolCallbacks(callbacks)
-					.stream()
-					.chatResponse();
-				boolean isDebugModel = lynxeProperties.getDebugDetail() != null && lynxeProperties.getDebugDetail();
-				// Enable early termination for agent thinking (should have tool calls)
-				streamResult = streamingResponseHandler.processStreamingResponse(responseFlux,
-						"Agent " + getName() + " thinking", getCurrentPlanId(), isDebugModel, true, inputCharCount);
+				// Wait for the shared per-model scheduler before sending; deeper plans
+				// are admitted first
+				LlmCallScheduler.Permit permit = llmService.getCallScheduler()
+					.acquire(llmService.resolveModelName(modelName), getPlanDepth(),
+							inputCharCount / LlmCallScheduler.CHARS_PER_TOKEN);
+				try {
+					// Use streaming response handler for better user experience and
+					// content merging
+					Flux<ChatResponse> responseFlux = chatClient.prompt(userPrompt)
+						.advisors(advisor -> advisor.param(LlmCallSchedulerAdvisor.ADMITTED, true))
+						.toolCallbacks(callbacks)
+						.stream()
+						.chatResponse();
+					boolean isDebugModel = lynxeProperties.getDebugDetail() != null
+							&& lynxeProperties.getDebugDetail();
+					// Enable early termination for agent thinking (should have tool
+					// calls)
+					LlmCallContext callContext = new LlmCallContext(getCurrentPlanId(), getRootPlanId(),
+							step != null ? step.getStepId() : null, getName(), llmService.resolveModelName(modelName),
+							UserContextHolder.getUserId(), attempt);
+					streamResult = streamingResponseHandler.processStreamingResponse(responseFlux,
+							"Agent " + getName() + " thinking", getCurrentPlanId(), isDebugModel, true, inputCharCount,
+							callContext);
+					permit.complete(streamResult.getLastResponse());
+				}
+				catch (Exception e) {
+					permit.fail(e);
+					throw e;
+				}
 
 				response = streamResult.getLastResponse();
 
@@ -433,6 +476,12 @@ public class DynamicAgent extends ReActAgent {
 				// Check if this is a network-related error that should be retried
 				if (isRetryableException(e)) {
 					if (attempt < maxRetries) {
+						if (LlmCallScheduler.isRateLimitError(e)) {
+							// The scheduler already paused this model with a jittered
+							// cooldown; the next acquire waits it out
+							log.info("Retrying after rate limit cooldown: {}", e.getMessage());
+							continue;
+						}
 						long waitTime = calculateBackoffDelay(attempt);
 						log.info("Retrying in {}ms due to retryable error: {}", waitTime, e.getMessage());
 						try {
@@ -469,6 +518,11 @@ public class DynamicAgent extends ReActAgent {
 	 * Check if the exception is retryable (network issues, timeouts, etc.)
 	 */
 	private boolean isRetryableException(Exception e) {
+		// Rate-limit rejections are retried once the scheduler's cooldown has passed
+		if (LlmCallScheduler.isRateLimitError(e)) {
+			return true;
+		}
+
 		String message = e.getMessage();
 		if (message == null)
 			return false;
@@ -491,7 +545,7 @@ public class DynamicAgent extends ReActAgent {
 	@Override
 	public AgentExecResult step() {
 		try {
-			boolean shouldAct = think();
+			boolean shouldAct = LynxeObservations.observe("lynxe.agent.think", this::think, "agent", getName());
 			if (!shouldAct) {
 				// Check if we have a latest exception from LLM calls (max retries
 				// reached)
@@ -521,7 +575,7 @@ public class DynamicAgent extends ReActAgent {
 						"No tools were selected. You must select and call at least one tool to proceed. Please retry with tool calls.",
 						AgentState.IN_PROGRESS);
 			}
-			return act();
+			return LynxeObservations.observe("lynxe.agent.act", this::act, "agent", getName());
 		}
 		catch (TaskInterruptionCheckerService.TaskInterruptedException e) {
 			// Agent was interrupted, return INTERRUPTED state to stop execution
@@ -622,11 +676,8 @@ public class DynamicAgent extends ReActAgent {
 							? actToolInfoList.get(0).getParameters().toString() : "unknown";
 			errorMessage.append("  . llm return param :  ").append(firstToolcall);
 
-			// Clean up form input tool using root plan ID on error
-			String rootPlanId = getRootPlanId();
-			if (rootPlanId != null) {
-				userInputService.removeFormInputTool(rootPlanId);
-			}
+			// Clean up this agent's form input tool on error
+			removeOwnFormInputTools();
 			return new AgentExecResult(e.getMessage(), AgentState.COMPLETED);
 		}
 	}
@@ -646,8 +697,12 @@ public class DynamicAgent extends ReActAgent {
 				return new AgentExecResult("Tool execution interrupted by user", AgentState.INTERRUPTED);
 			}
 
-			// Execute tool call
-			toolExecutionResult = toolCallingManager.executeToolCalls(userPrompt, response);
+			// Execute tool call, collecting whether the tool result cache answered it
+			List<ToolResultCache.Outcome> cacheOutcomes;
+			try (ToolResultCache.Recording recording = ToolResultCache.startRecording()) {
+				toolExecutionResult = toolCallingManager.executeToolCalls(userPrompt, response);
+				cacheOutcomes = recording.getOutcomes();
+			}
 			processMemory(toolExecutionResult);
 
 			// Get tool response message
@@ -662,6 +717,10 @@ public class DynamicAgent extends ReActAgent {
 			ToolResponseMessage.ToolResponse toolCallResponse = toolResponseMessage.getResponses().get(0);
 			String toolName = toolCall.name();
 			PlanExecutionRecorder.ActToolParam param = actToolInfoList.get(0);
+			if (!cacheOutcomes.isEmpty()) {
+				ToolResultCache.Outcome outcome = cacheOutcomes.get(cacheOutcomes.size() - 1);
+				param.setCacheOutcome(outcome.hit(), outcome.savedMillis());
+			}
 
 			// Check if tool callback context exists
 			PlanningFactory.ToolCallBackContext toolCallBackContext = getToolCallBackContext(toolName);
@@ -669,7 +728,7 @@ public class DynamicAgent extends ReActAgent {
 				String errorMessage = String.format("Tool callback context not found for tool: %s", toolName);
 				log.error(errorMessage);
 				// Process tool result even if callback context is missing
-				String result = processToolResult(toolCallResponse.responseData());
+				String result = processToolResult(objectMapper, toolCallResponse.responseData());
 				param.setResult(result);
 				// Return error result but continue execution
 				return new AgentExecResult(errorMessage + ". Tool response: " + result, AgentState.IN_PROGRESS);
@@ -681,14 +740,13 @@ public class DynamicAgent extends ReActAgent {
 			boolean shouldTerminate = false;
 
 			// Handle different tool types
-			if (toolInstance instanceof FormInputTool) {
-				AgentExecResult formResult = handleFormInputTool((FormInputTool) toolInstance, param);
-				result = formResult.getResult();
-				param.setResult(result);
+			if (toolInstance instanceof FormInputTool formInputTool) {
+				// The post-tool flow runs in completeSuspendedRound() once the user answers
+				return suspendForFormInput(formInputTool, toolCallResponse, param);
 			}
 			else if (toolInstance instanceof TerminableTool) {
 				TerminableTool terminableTool = (TerminableTool) toolInstance;
-				result = processToolResult(toolCallResponse.responseData());
+				result = processToolResult(objectMapper, toolCallResponse.responseData());
 				param.setResult(result);
 
 				// Handle TerminateTool specifically - set state to COMPLETED
@@ -705,10 +763,7 @@ public class DynamicAgent extends ReActAgent {
 
 				if (terminableTool.canTerminate()) {
 					log.info("TerminableTool can terminate for planId: {}", getCurrentPlanId());
-					String rootPlanId = getRootPlanId();
-					if (rootPlanId != null) {
-						userInputService.removeFormInputTool(rootPlanId);
-					}
+					removeOwnFormInputTools();
 					shouldTerminate = true;
 				}
 				else {
@@ -717,7 +772,7 @@ public class DynamicAgent extends ReActAgent {
 			}
 			// Handle SystemErrorReportTool specifically to extract errorMessage
 			else if (toolInstance instanceof SystemErrorReportTool) {
-				result = processToolResult(toolCallResponse.responseData());
+				result = processToolResult(objectMapper, toolCallResponse.responseData());
 				param.setResult(result);
 				String errorMessage = extractAndSetErrorMessage(result, "SystemErrorReportTool");
 				recordErrorToolThinkingAndAction(param, "System error occurred during execution",
@@ -725,7 +780,7 @@ public class DynamicAgent extends ReActAgent {
 			}
 			else {
 				// Regular tool
-				result = processToolResult(toolCallResponse.responseData());
+				result = processToolResult(objectMapper, toolCallResponse.responseData());
 				param.setResult(result);
 				log.info("Tool {} executed successfully for planId: {}", toolName, getCurrentPlanId());
 			}
@@ -850,8 +905,12 @@ public class DynamicAgent extends ReActAgent {
 				String processedResult = null;
 				for (ParallelToolExecutionService.ToolExecutionResult result : parallelResults) {
 					if (result.getToolName().equals(toolName)) {
+						if (result.getCacheOutcome() != null) {
+							param.setCacheOutcome(result.getCacheOutcome().hit(),
+									result.getCacheOutcome().savedMillis());
+						}
 						if (result.isSuccess()) {
-							processedResult = processToolResult(result.getResult().getOutput());
+							processedResult = processToolResult(objectMapper, result.getResult().getOutput());
 						}
 						else {
 							processedResult = "Error: " + result.getResult().getOutput();
@@ -892,60 +951,74 @@ public class DynamicAgent extends ReActAgent {
 	}
 
 	/**
-	 * Handle FormInputTool specific logic with exclusive storage
+	 * Publish the form the LLM asked for and suspend the run until the user answers it, so
+	 * no thread is held while the form is open
 	 */
-	private AgentExecResult handleFormInputTool(FormInputTool formInputTool, PlanExecutionRecorder.ActToolParam param) {
+	private AgentExecResult suspendForFormInput(FormInputTool formInputTool,
+			ToolResponseMessage.ToolResponse toolCallResponse, PlanExecutionRecorder.ActToolParam param) {
 		// Ensure the form input tool has the correct plan IDs set
 		formInputTool.setCurrentPlanId(getCurrentPlanId());
 		formInputTool.setRootPlanId(getRootPlanId());
 
-		// Check if the tool is waiting for user input
-		if (formInputTool.getInputState() == FormInputTool.InputState.AWAITING_USER_INPUT) {
-			String rootPlanId = getRootPlanId();
-			String currentPlanId = getCurrentPlanId();
-			log.info("FormInputTool is awaiting user input for rootPlanId: {} (currentPlanId: {})", rootPlanId,
-					currentPlanId);
+		if (formInputTool.getInputState() != FormInputTool.InputState.AWAITING_USER_INPUT) {
+			throw new RuntimeException("FormInputTool is not in the correct state");
+		}
+		log.info("FormInputTool is awaiting user input for rootPlanId: {} (currentPlanId: {})", getRootPlanId(),
+				getCurrentPlanId());
 
-			// Use exclusive storage method - this will handle waiting and queuing
-			// automatically
-			boolean stored = userInputService.storeFormInputToolExclusive(rootPlanId, formInputTool, currentPlanId);
-			if (!stored) {
-				log.error("Failed to store form for sub-plan {} due to lock timeout or interruption", currentPlanId);
-				param.setResult("Failed to store form due to system timeout");
-				return new AgentExecResult("Failed to store form due to system timeout", AgentState.COMPLETED);
-			}
+		// Queues behind another sub-plan's form of the same root plan if there is one
+		CompletableFuture<FormInputTool.InputState> answer = userInputService.awaitFormInput(getRootPlanId(),
+				formInputTool, getCurrentPlanId());
+		suspendedForm = new SuspendedForm(formInputTool, toolCallResponse, param, answer);
+		return new AgentExecResult("Awaiting user input", AgentState.SUSPENDED);
+	}
 
-			// Wait for user input or timeout
-			waitForUserInputOrTimeout(formInputTool);
+	@Override
+	public CompletableFuture<?> whenResumable() {
+		SuspendedForm form = suspendedForm;
+		return form != null ? form.answer() : super.whenResumable();
+	}
 
-			// After waiting, check the state again
-			if (formInputTool.getInputState() == FormInputTool.InputState.INPUT_RECEIVED) {
-				log.info("User input received for rootPlanId: {} from sub-plan {}", rootPlanId, currentPlanId);
+	@Override
+	protected AgentExecResult completeSuspendedRound() {
+		SuspendedForm form = suspendedForm;
+		if (form == null) {
+			return super.completeSuspendedRound();
+		}
+		suspendedForm = null;
 
-				UserMessage userMessage = UserMessage.builder()
-					.text("User input received for form: " + formInputTool.getCurrentToolStateString())
-					.build();
-				processUserInputToMemory(userMessage);
+		String result = formInputResult(form.tool());
+		form.param().setResult(result);
 
-				// Update the result in actToolInfoList
-				param.setResult(formInputTool.getCurrentToolStateString());
-				return new AgentExecResult(param.getResult(), AgentState.IN_PROGRESS);
+		// Execute the post-tool flow skipped when the round suspended
+		executePostToolFlow(form.tool(), form.toolCallResponse(), result, List.of(form.param()));
+		checkAndHandleRepeatedResult(result);
+		return new AgentExecResult(result, AgentState.IN_PROGRESS);
+	}
 
-			}
-			else if (formInputTool.getInputState() == FormInputTool.InputState.INPUT_TIMEOUT) {
-				log.warn("Input timeout occurred for FormInputTool for rootPlanId: {} from sub-plan {}", rootPlanId,
-						currentPlanId);
+	/**
+	 * Note the answered or expired form in memory and build the tool result from it
+	 */
+	private String formInputResult(FormInputTool formInputTool) {
+		String rootPlanId = getRootPlanId();
+		String currentPlanId = getCurrentPlanId();
+		if (formInputTool.getInputState() == FormInputTool.InputState.INPUT_RECEIVED) {
+			log.info("User input received for rootPlanId: {} from sub-plan {}", rootPlanId, currentPlanId);
 
-				UserMessage userMessage = UserMessage.builder().text("Input timeout occurred for form: ").build();
-				processUserInputToMemory(userMessage);
-				userInputService.removeFormInputTool(rootPlanId);
-				param.setResult("Input timeout occurred");
+			UserMessage userMessage = UserMessage.builder()
+				.text("User input received for form: " + formInputTool.getCurrentToolStateString())
+				.build();
+			processUserInputToMemory(userMessage);
+			return formInputTool.getCurrentToolStateString();
+		}
+		else if (formInputTool.getInputState() == FormInputTool.InputState.INPUT_TIMEOUT) {
+			log.warn("Input timeout occurred for FormInputTool for rootPlanId: {} from sub-plan {}", rootPlanId,
+					currentPlanId);
 
-				return new AgentExecResult("Input timeout occurred.", AgentState.IN_PROGRESS);
-			}
-			else {
-				throw new RuntimeException("FormInputTool is not in the correct state");
-			}
+			UserMessage userMessage = UserMessage.builder().text("Input timeout occurred for form: ").build();
+			processUserInputToMemory(userMessage);
+			userInputService.removeFormInputTool(rootPlanId, formInputTool);
+			return "Input timeout occurred";
 		}
 		else {
 			throw new RuntimeException("FormInputTool is not in the correct state");
@@ -957,7 +1030,7 @@ public class DynamicAgent extends ReActAgent {
 	 * @param obj The object that may contain HashMaps
 	 * @return Object with all HashMaps converted to LinkedHashMaps
 	 */
-	private Object convertToLinkedHashMap(Object obj) {
+	private static Object convertToLinkedHashMap(Object obj) {
 		if (obj == null) {
 			return null;
 		}
@@ -987,10 +1060,11 @@ public class DynamicAgent extends ReActAgent {
 	/**
 	 * Process tool result to remove escaped JSON if it's a valid JSON string. This fixes
 	 * the issue where DefaultToolCallingManager returns escaped JSON strings.
+	 * @param objectMapper Mapper used to parse and re-serialize the result
 	 * @param result The raw tool result string
 	 * @return Processed result with unescaped JSON if applicable
 	 */
-	private String processToolResult(String result) {
+	static String processToolResult(ObjectMapper objectMapper, String result) {
 		if (result == null || result.trim().isEmpty()) {
 			return result;
 		}
@@ -1276,7 +1350,7 @@ public class DynamicAgent extends ReActAgent {
 				// Force compress agent memory to break the loop
 				if (conversationMemoryLimitService != null) {
 					conversationMemoryLimitService.forceCompressAgentMemory(
-							llmService.getAgentMemory(lynxeProperties.getMaxMemory()), getCurrentPlanId());
+							llmService.getAgentMemory(lynxeProperties.getMaxMemory()), getAgentMemoryId());
 				}
 
 				// Clear the recent results after compression
@@ -1294,7 +1368,7 @@ public class DynamicAgent extends ReActAgent {
 			if (!StringUtils.isBlank(userInput)) {
 				// Add user input to memory
 
-				llmService.getAgentMemory(lynxeProperties.getMaxMemory()).add(getCurrentPlanId(), userMessage);
+				llmService.getAgentMemory(lynxeProperties.getMaxMemory()).add(getAgentMemoryId(), userMessage);
 
 			}
 		}
@@ -1310,7 +1384,7 @@ public class DynamicAgent extends ReActAgent {
 			return;
 		}
 		// clear current plan memory
-		llmService.getAgentMemory(lynxeProperties.getMaxMemory()).clear(getCurrentPlanId());
+		llmService.getAgentMemory(lynxeProperties.getMaxMemory()).clear(getAgentMemoryId());
 		for (Message message : messages) {
 			// exclude all system message
 			if (message instanceof SystemMessage) {
@@ -1322,7 +1396,7 @@ public class DynamicAgent extends ReActAgent {
 				continue;
 			}
 			// only keep assistant message and tool_call message
-			llmService.getAgentMemory(lynxeProperties.getMaxMemory()).add(getCurrentPlanId(), message);
+			llmService.getAgentMemory(lynxeProperties.getMaxMemory()).add(getAgentMemoryId(), message);
 		}
 	}
 
@@ -1546,56 +1620,6 @@ public class DynamicAgent extends ReActAgent {
 		}
 	}
 
-	private void waitForUserInputOrTimeout(FormInputTool formInputTool) {
-		log.info("Waiting for user input for planId: {}...", getCurrentPlanId());
-		long startTime = System.currentTimeMillis();
-		long lastInterruptionCheck = startTime;
-		// Get timeout from LynxeProperties and convert to milliseconds
-		long userInputTimeoutMs = getLynxeProperties().getUserInputTimeout() * 1000L;
-		long interruptionCheckIntervalMs = 2000L; // Check for interruption every 2
-													// seconds
-
-		while (formInputTool.getInputState() == FormInputTool.InputState.AWAITING_USER_INPUT) {
-			long currentTime = System.currentTimeMillis();
-
-			// Check for interruption periodically
-			if (currentTime - lastInterruptionCheck >= interruptionCheckIntervalMs) {
-				if (agentInterruptionHelper != null
-						&& !agentInterruptionHelper.checkInterruptionAndContinue(getRootPlanId())) {
-					log.info("User input wait interrupted for rootPlanId: {}", getRootPlanId());
-					formInputTool.handleInputTimeout(); // Treat interruption as timeout
-					break;
-				}
-				lastInterruptionCheck = currentTime;
-			}
-
-			if (currentTime - startTime > userInputTimeoutMs) {
-				log.warn("Timeout waiting for user input for planId: {}", getCurrentPlanId());
-				formInputTool.handleInputTimeout(); // This will change its state to
-				// INPUT_TIMEOUT
-				break;
-			}
-			try {
-				// Poll for input state change. In a real scenario, this might involve
-				// a more sophisticated mechanism like a Future or a callback from the UI.
-				TimeUnit.MILLISECONDS.sleep(500); // Check every 500ms
-			}
-			catch (InterruptedException e) {
-				log.warn("Interrupted while waiting for user input for planId: {}", getCurrentPlanId());
-				Thread.currentThread().interrupt();
-				formInputTool.handleInputTimeout(); // Treat interruption as timeout for
-				// simplicity
-				break;
-			}
-		}
-		if (formInputTool.getInputState() == FormInputTool.InputState.INPUT_RECEIVED) {
-			log.info("User input received for planId: {}", getCurrentPlanId());
-		}
-		else if (formInputTool.getInputState() == FormInputTool.InputState.INPUT_TIMEOUT) {
-			log.warn("User input timed out for planId: {}", getCurrentPlanId());
-		}
-	}
-
 	/**
 	 * Fix common malformed JSON arguments from LLM tool calls (e.g., missing closing
 	 * quotes) by patching the in-memory ToolCall instance so downstream parsing
@@ -1656,4 +1680,8 @@ public class DynamicAgent extends ReActAgent {
 		return changed ? fixed : raw;
 	}
 
+	private record SuspendedForm(FormInputTool tool, ToolResponseMessage.ToolResponse toolCallResponse,
+			PlanExecutionRecorder.ActToolParam param, CompletableFuture<FormInputTool.InputState> answer) {
+	}
+
 }
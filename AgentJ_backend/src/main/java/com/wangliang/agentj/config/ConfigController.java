@@ -16,8 +16,10 @@
 package com.wangliang.agentj.config;
 
 import com.wangliang.agentj.config.entity.ConfigEntity;
+import com.wangliang.agentj.llm.LlmCallScheduler;
 import com.wangliang.agentj.model.entity.DynamicModelEntity;
 import com.wangliang.agentj.model.repository.DynamicModelRepository;
+import com.wangliang.agentj.runtime.service.PlanStateRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -37,6 +39,12 @@ public class ConfigController {
 	@Autowired
 	private DynamicModelRepository dynamicModelRepository;
 
+	@Autowired
+	private LlmCallScheduler llmCallScheduler;
+
+	@Autowired
+	private PlanStateRegistry planStateRegistry;
+
 	@GetMapping("/group/{groupName}")
 	public ResponseEntity<List<ConfigEntity>> getConfigsByGroup(@PathVariable("groupName") String groupName) {
 		return ResponseEntity.ok(configService.getConfigsByGroup(groupName));
@@ -82,4 +90,20 @@ public class ConfigController {
 		return ResponseEntity.ok(response);
 	}
 
+	/**
+	 * Per-model concurrency limit, queue and token statistics of the LLM call scheduler
+	 */
+	@GetMapping("/llm-scheduler-stats")
+	public ResponseEntity<Map<String, LlmCallScheduler.ModelStats>> getLlmSchedulerStats() {
+		return ResponseEntity.ok(llmCallScheduler.getStats());
+	}
+
+	/**
+	 * Number of plans and estimated heap size of each plan-scoped service state
+	 */
+	@GetMapping("/plan-state-stats")
+	public ResponseEntity<Map<String, PlanStateRegistry.Footprint>> getPlanStateStats() {
+		return ResponseEntity.ok(planStateRegistry.getFootprints());
+	}
+
 }
@@ -2,6 +2,8 @@ package com.wangliang.agentj.config;
 
 import com.wangliang.agentj.config.entity.ConfigEntity;
 import com.wangliang.agentj.config.repository.ConfigRepository;
+import com.wangliang.agentj.event.ConfigChangeEvent;
+import com.wangliang.agentj.event.LynxeEventPublisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,14 +12,24 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationListener;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.lang.reflect.Field;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
+/**
+ * Database-backed configuration store.
+ *
+ * Reads are served from an immutable {@link ConfigSnapshot} held in a volatile field, so
+ * they take no lock and never hit the database. Every write rebuilds the snapshot once
+ * its transaction commits and publishes a {@link ConfigChangeEvent} listing the changed
+ * paths; a periodic reconcile also picks up changes made by other instances or directly
+ * in the database.
+ */
 @Service
 public class ConfigService implements IConfigService, ApplicationListener<ContextRefreshedEvent> {
 
@@ -32,7 +44,10 @@ public class ConfigService implements IConfigService, ApplicationListener<Contex
 	@Autowired
 	private Environment environment;
 
-	private final Map<String, ConfigCacheEntry<String>> configCache = new ConcurrentHashMap<>();
+	@Autowired
+	private LynxeEventPublisher lynxeEventPublisher;
+
+	private volatile ConfigSnapshot snapshot;
 
 	private boolean initialized = false;
 
@@ -52,6 +67,7 @@ public class ConfigService implements IConfigService, ApplicationListener<Contex
 
 		// Initialize each configuration bean
 		configBeans.values().forEach(this::initializeConfig);
+		refreshSnapshot();
 	}
 
     // init single bean
@@ -75,8 +91,6 @@ public class ConfigService implements IConfigService, ApplicationListener<Contex
 				obsoleteConfigs.forEach(config -> {
 					log.info("  - Removing obsolete config: {} ({})", config.getConfigPath(), config.getDescription());
 					configRepository.delete(config);
-					// Remove from cache as well
-					configCache.remove(config.getConfigPath());
 				});
 				log.info("✅ Obsolete configuration cleanup completed");
 			}
@@ -137,28 +151,67 @@ public class ConfigService implements IConfigService, ApplicationListener<Contex
 					// Save configuration
 					log.debug("Creating new config: {}", configPath);
 					configRepository.save(entity);
-
-					// Set field value
-					setFieldValue(bean, field, entity.getConfigValue());
 				}
 			});
 	}
 
+	@Override
 	public String getConfigValue(String configPath) {
-		// Check cache
-		ConfigCacheEntry<String> cacheEntry = configCache.get(configPath);
-		if (cacheEntry != null && !cacheEntry.isExpired()) {
-			return cacheEntry.getValue();
+		return getSnapshot().getValue(configPath);
+	}
+
+	@Override
+	public ConfigSnapshot getSnapshot() {
+		ConfigSnapshot current = snapshot;
+		return current != null ? current : refreshSnapshot();
+	}
+
+	/**
+	 * Reload all configuration rows and publish them as the next snapshot if anything
+	 * changed. Also runs periodically so that changes written by other instances become
+	 * visible here.
+	 * @return the current snapshot
+	 */
+	@Scheduled(fixedDelayString = "${lynxe.config.refreshIntervalMs:30000}",
+			initialDelayString = "${lynxe.config.refreshIntervalMs:30000}")
+	public synchronized ConfigSnapshot refreshSnapshot() {
+		Map<String, String> values = new HashMap<>();
+		for (ConfigEntity entity : configRepository.findAll()) {
+			values.put(entity.getConfigPath(), entity.getConfigValue());
+		}
+
+		ConfigSnapshot previous = snapshot;
+		if (previous == null) {
+			snapshot = new ConfigSnapshot(1, values);
+			return snapshot;
+		}
+		ConfigSnapshot next = new ConfigSnapshot(previous.getVersion() + 1, values);
+		Set<String> changedPaths = next.changedPaths(previous);
+		if (changedPaths.isEmpty()) {
+			return previous;
 		}
+		snapshot = next;
+		log.info("Configuration snapshot updated to version {}, changed: {}", next.getVersion(), changedPaths);
+		lynxeEventPublisher.publish(new ConfigChangeEvent(previous, next, changedPaths));
+		return next;
+	}
 
-		// If cache doesn't exist or is expired, get from database
-		Optional<ConfigEntity> configOpt = configRepository.findByConfigPath(configPath);
-		if (configOpt.isPresent()) {
-			String value = configOpt.get().getConfigValue();
-			configCache.put(configPath, new ConfigCacheEntry<>(value));
-			return value;
+	/**
+	 * Refresh the snapshot once the surrounding transaction commits, so readers never see
+	 * values that are rolled back
+	 */
+	private void refreshAfterCommit() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					refreshSnapshot();
+				}
+			});
+		}
+		else {
+			refreshSnapshot();
 		}
-		return null;
 	}
 
 	@Transactional
@@ -169,61 +222,7 @@ public class ConfigService implements IConfigService, ApplicationListener<Contex
 		entity.setConfigValue(newValue);
 		configRepository.save(entity);
 
-		// Update cache
-		configCache.put(configPath, new ConfigCacheEntry<>(newValue));
-
-		// Update all beans using this configuration
-		Map<String, Object> configBeans = applicationContext.getBeansWithAnnotation(ConfigurationProperties.class);
-		configBeans.values().forEach(bean -> updateBeanConfig(bean, configPath, newValue));
-	}
-
-	private void updateBeanConfig(Object bean, String configPath, String newValue) {
-		Arrays.stream(bean.getClass().getDeclaredFields())
-			.filter(field -> field.isAnnotationPresent(ConfigProperty.class))
-			.filter(field -> field.getAnnotation(ConfigProperty.class).path().equals(configPath))
-			.forEach(field -> setFieldValue(bean, field, newValue));
-	}
-
-	private void setFieldValue(Object bean, Field field, String value) {
-		try {
-			field.setAccessible(true);
-
-			// Convert value based on field type
-			Object convertedValue = convertValue(value, field.getType());
-			field.set(bean, convertedValue);
-
-		}
-		catch (IllegalAccessException e) {
-			log.error("Failed to set field value", e);
-		}
-	}
-
-	private Object convertValue(String value, Class<?> targetType) {
-		if (value == null)
-			return null;
-
-		if (targetType == String.class) {
-			return value;
-		}
-		else if (targetType == Boolean.class || targetType == boolean.class) {
-			if ("on".equalsIgnoreCase(value))
-				return Boolean.TRUE;
-			return Boolean.valueOf(value);
-		}
-		else if (targetType == Integer.class || targetType == int.class) {
-			return Integer.valueOf(value);
-		}
-		else if (targetType == Long.class || targetType == long.class) {
-			return Long.valueOf(value);
-		}
-		else if (targetType == Double.class || targetType == double.class) {
-			return Double.valueOf(value);
-		}
-		else if (targetType == Float.class || targetType == float.class) {
-			return Float.valueOf(value);
-		}
-
-		throw new IllegalArgumentException("Unsupported type: " + targetType);
+		refreshAfterCommit();
 	}
 
 	public List<ConfigEntity> getAllConfigs() {
@@ -241,9 +240,7 @@ public class ConfigService implements IConfigService, ApplicationListener<Contex
 		entity.setConfigValue(entity.getDefaultValue());
 		configRepository.save(entity);
 
-		// Update all beans using this configuration
-		Map<String, Object> configBeans = applicationContext.getBeansWithAnnotation(ConfigurationProperties.class);
-		configBeans.values().forEach(bean -> updateBeanConfig(bean, configPath, entity.getDefaultValue()));
+		refreshAfterCommit();
 	}
 
 	/**
@@ -268,13 +265,9 @@ public class ConfigService implements IConfigService, ApplicationListener<Contex
 			// Only update configuration value
 			existingConfig.setConfigValue(config.getConfigValue());
 			configRepository.save(existingConfig);
-
-			// Update all beans using this configuration
-			Map<String, Object> configBeans = applicationContext.getBeansWithAnnotation(ConfigurationProperties.class);
-			configBeans.values()
-				.forEach(bean -> updateBeanConfig(bean, existingConfig.getConfigPath(),
-						existingConfig.getConfigValue()));
 		}
+
+		refreshAfterCommit();
 	}
 
 	/**
@@ -288,14 +281,10 @@ public class ConfigService implements IConfigService, ApplicationListener<Contex
 			if (config.getDefaultValue() != null && !config.getDefaultValue().equals(config.getConfigValue())) {
 				config.setConfigValue(config.getDefaultValue());
 				configRepository.save(config);
-
-				// Update all beans using this configuration
-				Map<String, Object> configBeans = applicationContext
-					.getBeansWithAnnotation(ConfigurationProperties.class);
-				configBeans.values()
-					.forEach(bean -> updateBeanConfig(bean, config.getConfigPath(), config.getDefaultValue()));
 			}
 		}
+
+		refreshAfterCommit();
 	}
 
 	@Override
@@ -88,6 +88,15 @@ public class ConfigServiceImpl implements IConfigService {
         return config != null ? config.getConfigValue() : null;
     }
 
+    @Override
+    public ConfigSnapshot getSnapshot() {
+        Map<String, String> values = new HashMap<>();
+        for (ConfigEntity config : configs.values()) {
+            values.put(config.getConfigPath(), config.getConfigValue());
+        }
+        return new ConfigSnapshot(0, values);
+    }
+
     @Override
     public void updateConfig(String configPath, String newValue) {
         if (configPath != null && newValue != null) {
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable view of all configuration values at one version.
+ *
+ * {@link ConfigService} publishes a new snapshot through a volatile reference whenever
+ * the stored configuration changes, so reads never touch the database and several
+ * settings read from one snapshot are always consistent with each other. Typed values
+ * are parsed once per snapshot and remembered; a value that does not parse reads as
+ * absent, so callers fall back to their defaults.
+ */
+public final class ConfigSnapshot {
+
+	private static final Logger log = LoggerFactory.getLogger(ConfigSnapshot.class);
+
+	private static final Object INVALID = new Object();
+
+	private final long version;
+
+	private final Map<String, String> values;
+
+	// Parsed values by path; a path is always read with the same type
+	private final Map<String, Object> parsed = new ConcurrentHashMap<>();
+
+	public ConfigSnapshot(long version, Map<String, String> values) {
+		this.version = version;
+		// Stored values may be null, which Map.copyOf does not allow
+		this.values = Collections.unmodifiableMap(new HashMap<>(values));
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Raw value of a configuration path, or null if the path is unknown
+	 */
+	public String getValue(String configPath) {
+		return values.get(configPath);
+	}
+
+	/**
+	 * Value of a configuration path converted to the given type
+	 * @return the value, or null if the path is unknown, empty or does not parse
+	 */
+	public <T> T get(String configPath, Class<T> type) {
+		Object value = parsed.get(configPath);
+		if (value == null || (value != INVALID && !type.isInstance(value))) {
+			value = parse(configPath, type);
+			parsed.put(configPath, value);
+		}
+		return value != INVALID ? type.cast(value) : null;
+	}
+
+	public Map<String, String> asMap() {
+		return values;
+	}
+
+	/**
+	 * Paths whose value differs from the previous snapshot, including added and removed
+	 * paths
+	 */
+	public Set<String> changedPaths(ConfigSnapshot previous) {
+		Set<String> changed = new HashSet<>();
+		for (Map.Entry<String, String> entry : values.entrySet()) {
+			if (!previous.values.containsKey(entry.getKey())
+					|| !Objects.equals(entry.getValue(), previous.values.get(entry.getKey()))) {
+				changed.add(entry.getKey());
+			}
+		}
+		for (String path : previous.values.keySet()) {
+			if (!values.containsKey(path)) {
+				changed.add(path);
+			}
+		}
+		return changed;
+	}
+
+	private Object parse(String configPath, Class<?> type) {
+		String value = values.get(configPath);
+		if (value == null || (value.isEmpty() && type != String.class)) {
+			return INVALID;
+		}
+		try {
+			return convertValue(value.trim(), type);
+		}
+		catch (IllegalArgumentException e) {
+			log.warn("Ignoring invalid value '{}' of {} for type {}", value, configPath, type.getSimpleName());
+			return INVALID;
+		}
+	}
+
+	static Object convertValue(String value, Class<?> targetType) {
+		if (targetType == String.class) {
+			return value;
+		}
+		else if (targetType == Boolean.class || targetType == boolean.class) {
+			if ("on".equalsIgnoreCase(value))
+				return Boolean.TRUE;
+			return Boolean.valueOf(value);
+		}
+		else if (targetType == Integer.class || targetType == int.class) {
+			return Integer.valueOf(value);
+		}
+		else if (targetType == Long.class || targetType == long.class) {
+			return Long.valueOf(value);
+		}
+		else if (targetType == Double.class || targetType == double.class) {
+			return Double.valueOf(value);
+		}
+		else if (targetType == Float.class || targetType == float.class) {
+			return Float.valueOf(value);
+		}
+
+		throw new IllegalArgumentException("Unsupported type: " + targetType);
+	}
+
+}
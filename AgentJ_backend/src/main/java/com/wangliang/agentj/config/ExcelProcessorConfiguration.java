@@ -15,6 +15,7 @@
  */
 package com.wangliang.agentj.config;
 
+import com.wangliang.agentj.runtime.service.PlanStateRegistry;
 import com.wangliang.agentj.tools.excelProcessor.ExcelProcessingService;
 import com.wangliang.agentj.tools.excelProcessor.IExcelProcessingService;
 import com.wangliang.agentj.tools.filesystem.UnifiedDirectoryManager;
@@ -33,12 +34,14 @@ public class ExcelProcessorConfiguration {
 	/**
 	 * Configure ExcelProcessingService Bean
 	 * @param unifiedDirectoryManager directory manager for file operations
+	 * @param planStateRegistry registry of plan-scoped state
 	 * @return IExcelProcessingService implementation
 	 */
 	@Bean
 	@ConditionalOnMissingBean
-	public IExcelProcessingService excelProcessingService(UnifiedDirectoryManager unifiedDirectoryManager) {
-		return new ExcelProcessingService(unifiedDirectoryManager);
+	public IExcelProcessingService excelProcessingService(UnifiedDirectoryManager unifiedDirectoryManager,
+			PlanStateRegistry planStateRegistry) {
+		return new ExcelProcessingService(unifiedDirectoryManager, planStateRegistry);
 	}
 
 }
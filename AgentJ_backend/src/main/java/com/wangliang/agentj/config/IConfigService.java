@@ -34,6 +34,13 @@ public interface IConfigService {
 	 */
 	String getConfigValue(String configPath);
 
+	/**
+	 * Get an immutable view of all configuration values. Values read from one snapshot
+	 * are consistent with each other.
+	 * @return the current configuration snapshot
+	 */
+	ConfigSnapshot getSnapshot();
+
 	/**
 	 * Update configuration value
 	 * @param configPath the configuration path
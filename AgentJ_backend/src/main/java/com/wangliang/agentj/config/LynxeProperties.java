@@ -19,6 +19,14 @@ public class LynxeProperties {
 	@Autowired
 	private Environment environment;
 
+	/**
+	 * Current configuration snapshot, for callers that read several settings and need
+	 * them to be consistent with each other
+	 */
+	public ConfigSnapshot configSnapshot() {
+		return configService.getSnapshot();
+	}
+
 	// Browser Settings
 	// Begin-------------------------------------------------------------------------------------------
 
@@ -31,9 +39,9 @@ public class LynxeProperties {
 
 	public Boolean getBrowserHeadless() {
 		String configPath = "lynxe.browser.headless";
-		String value = configService.getConfigValue(configPath);
+		Boolean value = configService.getSnapshot().get(configPath, Boolean.class);
 		if (value != null) {
-			browserHeadless = Boolean.valueOf(value);
+			return value;
 		}
 		return browserHeadless;
 	}
@@ -49,9 +57,9 @@ public class LynxeProperties {
 
 	public Integer getBrowserRequestTimeout() {
 		String configPath = "lynxe.browser.requestTimeout";
-		String value = configService.getConfigValue(configPath);
+		Integer value = configService.getSnapshot().get(configPath, Integer.class);
 		if (value != null) {
-			browserRequestTimeout = Integer.valueOf(value);
+			return value;
 		}
 		return browserRequestTimeout;
 	}
@@ -69,9 +77,9 @@ public class LynxeProperties {
 
 	public Boolean getDebugDetail() {
 		String configPath = "lynxe.general.debugDetail";
-		String value = configService.getConfigValue(configPath);
+		Boolean value = configService.getSnapshot().get(configPath, Boolean.class);
 		if (value != null) {
-			debugDetail = Boolean.valueOf(value);
+			return value;
 		}
 		return debugDetail;
 	}
@@ -100,9 +108,9 @@ public class LynxeProperties {
 		}
 
 		String configPath = "lynxe.general.openBrowser";
-		String value = configService.getConfigValue(configPath);
+		Boolean value = configService.getSnapshot().get(configPath, Boolean.class);
 		if (value != null) {
-			openBrowserAuto = Boolean.valueOf(value);
+			return value;
 		}
 		// 配置中心也无值时，采用默认 true
 		if (openBrowserAuto == null) {
@@ -124,9 +132,9 @@ public class LynxeProperties {
 
 	public Boolean getEnableShortUrl() {
 		String configPath = "lynxe.browser.enableShortUrl";
-		String value = configService.getConfigValue(configPath);
+		Boolean value = configService.getSnapshot().get(configPath, Boolean.class);
 		if (value != null) {
-			enableShortUrl = Boolean.valueOf(value);
+			return value;
 		}
 		// Default to true if not configured
 		if (enableShortUrl == null) {
@@ -151,9 +159,9 @@ public class LynxeProperties {
 
 	public Integer getMaxSteps() {
 		String configPath = "lynxe.maxSteps";
-		String value = configService.getConfigValue(configPath);
+		Integer value = configService.getSnapshot().get(configPath, Integer.class);
 		if (value != null) {
-			maxSteps = Integer.valueOf(value);
+			return value;
 		}
 		return maxSteps;
 	}
@@ -169,9 +177,9 @@ public class LynxeProperties {
 
 	public Integer getUserInputTimeout() {
 		String configPath = "lynxe.agent.userInputTimeout";
-		String value = configService.getConfigValue(configPath);
+		Integer value = configService.getSnapshot().get(configPath, Integer.class);
 		if (value != null) {
-			userInputTimeout = Integer.valueOf(value);
+			return value;
 		}
 		// Ensure a default value if not configured and not set
 		if (userInputTimeout == null) {
@@ -194,9 +202,9 @@ public class LynxeProperties {
 
 	public Integer getMaxMemory() {
 		String configPath = "lynxe.agent.maxMemory";
-		String value = configService.getConfigValue(configPath);
+		Integer value = configService.getSnapshot().get(configPath, Integer.class);
 		if (value != null) {
-			maxMemory = Integer.valueOf(value);
+			return value;
 		}
 		if (maxMemory == null) {
 			maxMemory = 1000;
@@ -218,9 +226,9 @@ public class LynxeProperties {
 
 	public Boolean getEnableConversationMemory() {
 		String configPath = "lynxe.general.enableConversationMemory";
-		String value = configService.getConfigValue(configPath);
+		Boolean value = configService.getSnapshot().get(configPath, Boolean.class);
 		if (value != null) {
-			enableConversationMemory = Boolean.valueOf(value);
+			return value;
 		}
 		// Default to true if not configured
 		if (enableConversationMemory == null) {
@@ -241,9 +249,9 @@ public class LynxeProperties {
 
 	public Integer getConversationMemoryMaxChars() {
 		String configPath = "lynxe.agent.conversationMemoryMaxChars";
-		String value = configService.getConfigValue(configPath);
+		Integer value = configService.getSnapshot().get(configPath, Integer.class);
 		if (value != null) {
-			conversationMemoryMaxChars = Integer.valueOf(value);
+			return value;
 		}
 		if (conversationMemoryMaxChars == null) {
 			conversationMemoryMaxChars = 30000;
@@ -264,14 +272,8 @@ public class LynxeProperties {
 
 	public Boolean getParallelToolCalls() {
 		String configPath = "lynxe.agent.parallelToolCalls";
-		String value = configService.getConfigValue(configPath);
-		if (value != null) {
-			parallelToolCalls = Boolean.valueOf(value);
-		}
-		if (value == null) {
-			parallelToolCalls = false;
-		}
-		return parallelToolCalls;
+		Boolean value = configService.getSnapshot().get(configPath, Boolean.class);
+		return value != null ? value : false;
 	}
 
 	public void setParallelToolCalls(Boolean parallelToolCalls) {
@@ -285,9 +287,9 @@ public class LynxeProperties {
 
 	public Integer getExecutorPoolSize() {
 		String configPath = "lynxe.agent.executorPoolSize";
-		String value = configService.getConfigValue(configPath);
+		Integer value = configService.getSnapshot().get(configPath, Integer.class);
 		if (value != null) {
-			executorPoolSize = Integer.valueOf(value);
+			return value;
 		}
 		// Ensure a default value if not configured and not set
 		if (executorPoolSize == null) {
@@ -300,6 +302,28 @@ public class LynxeProperties {
 		this.executorPoolSize = executorPoolSize;
 	}
 
+	@ConfigProperty(group = "lynxe", subGroup = "agent", key = "maxParallelSteps",
+			path = "lynxe.agent.maxParallelSteps", description = "lynxe.agent.maxParallelSteps.description",
+			defaultValue = "4", inputType = ConfigInputType.NUMBER)
+	private volatile Integer maxParallelSteps;
+
+	public Integer getMaxParallelSteps() {
+		String configPath = "lynxe.agent.maxParallelSteps";
+		Integer value = configService.getSnapshot().get(configPath, Integer.class);
+		if (value != null) {
+			return value;
+		}
+		// Ensure a default value if not configured and not set
+		if (maxParallelSteps == null) {
+			maxParallelSteps = 4;
+		}
+		return maxParallelSteps;
+	}
+
+	public void setMaxParallelSteps(Integer maxParallelSteps) {
+		this.maxParallelSteps = maxParallelSteps;
+	}
+
 	@ConfigProperty(group = "lynxe", subGroup = "agent", key = "llmReadTimeout", path = "lynxe.agent.llmReadTimeout",
 			description = "lynxe.agent.llmReadTimeout.description", defaultValue = "120",
 			inputType = ConfigInputType.NUMBER)
@@ -307,9 +331,9 @@ public class LynxeProperties {
 
 	public Integer getLlmReadTimeout() {
 		String configPath = "lynxe.agent.llmReadTimeout";
-		String value = configService.getConfigValue(configPath);
+		Integer value = configService.getSnapshot().get(configPath, Integer.class);
 		if (value != null) {
-			llmReadTimeout = Integer.valueOf(value);
+			return value;
 		}
 		// Ensure a default value if not configured and not set
 		if (llmReadTimeout == null) {
@@ -339,9 +363,9 @@ public class LynxeProperties {
 
 	public String getExternalLinkedFolder() {
 		String configPath = "lynxe.general.externalLinkedFolder";
-		String value = configService.getConfigValue(configPath);
+		String value = configService.getSnapshot().get(configPath, String.class);
 		if (value != null) {
-			externalLinkedFolder = value;
+			return value;
 		}
 		return externalLinkedFolder;
 	}
@@ -361,9 +385,9 @@ public class LynxeProperties {
 
 	public Integer getMcpConnectionTimeoutSeconds() {
 		String configPath = "lynxe.mcpServiceLoader.connectionTimeoutSeconds";
-		String value = configService.getConfigValue(configPath);
+		Integer value = configService.getSnapshot().get(configPath, Integer.class);
 		if (value != null) {
-			mcpConnectionTimeoutSeconds = Integer.valueOf(value);
+			return value;
 		}
 		// Ensure a default value if not configured and not set
 		if (mcpConnectionTimeoutSeconds == null) {
@@ -384,9 +408,9 @@ public class LynxeProperties {
 
 	public Integer getMcpMaxRetryCount() {
 		String configPath = "lynxe.mcpServiceLoader.maxRetryCount";
-		String value = configService.getConfigValue(configPath);
+		Integer value = configService.getSnapshot().get(configPath, Integer.class);
 		if (value != null) {
-			mcpMaxRetryCount = Integer.valueOf(value);
+			return value;
 		}
 		// Ensure a default value if not configured and not set
 		if (mcpMaxRetryCount == null) {
@@ -407,9 +431,9 @@ public class LynxeProperties {
 
 	public Integer getMcpMaxConcurrentConnections() {
 		String configPath = "lynxe.mcpServiceLoader.maxConcurrentConnections";
-		String value = configService.getConfigValue(configPath);
+		Integer value = configService.getSnapshot().get(configPath, Integer.class);
 		if (value != null) {
-			mcpMaxConcurrentConnections = Integer.valueOf(value);
+			return value;
 		}
 		// Ensure a default value if not configured and not set
 		if (mcpMaxConcurrentConnections == null) {
@@ -435,9 +459,9 @@ public class LynxeProperties {
 
 	public Integer getImageRecognitionPoolSize() {
 		String configPath = "lynxe.imageRecognition.poolSize";
-		String value = configService.getConfigValue(configPath);
+		Integer value = configService.getSnapshot().get(configPath, Integer.class);
 		if (value != null) {
-			imageRecognitionPoolSize = Integer.valueOf(value);
+			return value;
 		}
 		// Ensure a default value if not configured and not set
 		if (imageRecognitionPoolSize == null) {
@@ -457,9 +481,9 @@ public class LynxeProperties {
 
 	public String getImageRecognitionModelName() {
 		String configPath = "lynxe.imageRecognition.modelName";
-		String value = configService.getConfigValue(configPath);
+		String value = configService.getSnapshot().get(configPath, String.class);
 		if (value != null) {
-			imageRecognitionModelName = value;
+			return value;
 		}
 		// Ensure a default value if not configured and not set
 		if (imageRecognitionModelName == null) {
@@ -479,9 +503,9 @@ public class LynxeProperties {
 
 	public Float getImageRecognitionDpi() {
 		String configPath = "lynxe.imageRecognition.dpi";
-		String value = configService.getConfigValue(configPath);
+		Float value = configService.getSnapshot().get(configPath, Float.class);
 		if (value != null) {
-			imageRecognitionDpi = Float.valueOf(value);
+			return value;
 		}
 		// Ensure a default value if not configured and not set
 		if (imageRecognitionDpi == null) {
@@ -501,9 +525,9 @@ public class LynxeProperties {
 
 	public String getImageRecognitionImageType() {
 		String configPath = "lynxe.imageRecognition.imageType";
-		String value = configService.getConfigValue(configPath);
+		String value = configService.getSnapshot().get(configPath, String.class);
 		if (value != null) {
-			imageRecognitionImageType = value;
+			return value;
 		}
 		// Ensure a default value if not configured and not set
 		if (imageRecognitionImageType == null) {
@@ -524,9 +548,9 @@ public class LynxeProperties {
 
 	public Integer getImageRecognitionMaxRetryAttempts() {
 		String configPath = "lynxe.imageRecognition.maxRetryAttempts";
-		String value = configService.getConfigValue(configPath);
+		Integer value = configService.getSnapshot().get(configPath, Integer.class);
 		if (value != null) {
-			imageRecognitionMaxRetryAttempts = Integer.valueOf(value);
+			return value;
 		}
 		// Ensure a default value if not configured and not set
 		if (imageRecognitionMaxRetryAttempts == null) {
@@ -539,6 +563,58 @@ public class LynxeProperties {
 		this.imageRecognitionMaxRetryAttempts = imageRecognitionMaxRetryAttempts;
 	}
 
+	@ConfigProperty(group = "lynxe", subGroup = "imageRecognition", key = "batchSize",
+			path = "lynxe.imageRecognition.batchSize", description = "lynxe.imageRecognition.batchSize.description",
+			defaultValue = "1", inputType = ConfigInputType.NUMBER)
+	private volatile Integer imageRecognitionBatchSize;
+
+	/**
+	 * Pages packed into one OCR request; only raise it for models that accept several
+	 * images per message
+	 */
+	public Integer getImageRecognitionBatchSize() {
+		String configPath = "lynxe.imageRecognition.batchSize";
+		Integer value = configService.getSnapshot().get(configPath, Integer.class);
+		if (value != null) {
+			return value;
+		}
+		// Ensure a default value if not configured and not set
+		if (imageRecognitionBatchSize == null) {
+			imageRecognitionBatchSize = 1;
+		}
+		return imageRecognitionBatchSize;
+	}
+
+	public void setImageRecognitionBatchSize(Integer imageRecognitionBatchSize) {
+		this.imageRecognitionBatchSize = imageRecognitionBatchSize;
+	}
+
+	@ConfigProperty(group = "lynxe", subGroup = "imageRecognition", key = "batchImageMaxKb",
+			path = "lynxe.imageRecognition.batchImageMaxKb",
+			description = "lynxe.imageRecognition.batchImageMaxKb.description", defaultValue = "300",
+			inputType = ConfigInputType.NUMBER)
+	private volatile Integer imageRecognitionBatchImageMaxKb;
+
+	/**
+	 * Encoded pages larger than this are sent in a request of their own
+	 */
+	public Integer getImageRecognitionBatchImageMaxKb() {
+		String configPath = "lynxe.imageRecognition.batchImageMaxKb";
+		Integer value = configService.getSnapshot().get(configPath, Integer.class);
+		if (value != null) {
+			return value;
+		}
+		// Ensure a default value if not configured and not set
+		if (imageRecognitionBatchImageMaxKb == null) {
+			imageRecognitionBatchImageMaxKb = 300;
+		}
+		return imageRecognitionBatchImageMaxKb;
+	}
+
+	public void setImageRecognitionBatchImageMaxKb(Integer imageRecognitionBatchImageMaxKb) {
+		this.imageRecognitionBatchImageMaxKb = imageRecognitionBatchImageMaxKb;
+	}
+
 	// Image Recognition Settings
 	// End----------------------------------------------------------------------------------------------
 
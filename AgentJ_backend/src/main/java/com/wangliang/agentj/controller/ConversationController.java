@@ -201,17 +201,18 @@ public class ConversationController {
 	}
 
 	/**
-	 * 消息全文搜索
+	 * 消息全文搜索，翻页时可传入上一页返回的 nextCursor
 	 */
 	@GetMapping("/messages/search")
 	public ResponseEntity<?> searchMessages(@RequestParam String keyword,
 			@RequestParam(required = false) String conversationId, @RequestParam(defaultValue = "1") int page,
 			@RequestParam(defaultValue = "20") int size,
-			@RequestParam(defaultValue = "false") boolean includeDeleted) {
+			@RequestParam(defaultValue = "false") boolean includeDeleted,
+			@RequestParam(required = false) String cursor) {
 		Long userId = userService.currentUserId();
 		try {
 			PagedResult<ConversationMessageView> result = conversationRecordService.searchMessages(userId, keyword,
-					conversationId, includeDeleted, page, size);
+					conversationId, includeDeleted, page, size, cursor);
 			return ResponseEntity.ok(Map.of("success", true, "data", result));
 		} catch (IllegalArgumentException ex) {
 			return ResponseEntity.badRequest().body(Map.of("success", false, "message", ex.getMessage()));
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.conversation.entity.vo;
+
+import java.util.List;
+
+/**
+ * 支持游标翻页的分页响应结构
+ */
+public class CursorPagedResult<T> extends PagedResult<T> {
+
+	/**
+	 * 下一页游标，最后一页为 null
+	 */
+	private String nextCursor;
+
+	/**
+	 * total 是否为近似值（命中过多时只统计下限）
+	 */
+	private boolean totalApproximate;
+
+	public CursorPagedResult() {
+	}
+
+	public CursorPagedResult(List<T> items, long total, boolean totalApproximate, int page, int size,
+			String nextCursor) {
+		super(items, total, page, size);
+		this.totalApproximate = totalApproximate;
+		this.nextCursor = nextCursor;
+	}
+
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	public void setNextCursor(String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
+
+	public boolean isTotalApproximate() {
+		return totalApproximate;
+	}
+
+	public void setTotalApproximate(boolean totalApproximate) {
+		this.totalApproximate = totalApproximate;
+	}
+}
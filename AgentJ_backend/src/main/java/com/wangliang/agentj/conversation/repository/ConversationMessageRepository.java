@@ -24,6 +24,9 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Repository
 public interface ConversationMessageRepository extends JpaRepository<ConversationMessageEntity, String> {
 
@@ -33,38 +36,43 @@ public interface ConversationMessageRepository extends JpaRepository<Conversatio
 	Page<ConversationMessageEntity> findByConversationIdOrderByCreatedAtAsc(String conversationId, Pageable pageable);
 
 	@Modifying
-	@Query("UPDATE ConversationMessageEntity m SET m.isDeleted = true WHERE m.conversationId = :conversationId")
-	int softDeleteByConversationId(@Param("conversationId") String conversationId);
+	@Query("UPDATE ConversationMessageEntity m SET m.isDeleted = true, m.updatedAt = :now WHERE m.conversationId = :conversationId")
+	int softDeleteByConversationId(@Param("conversationId") String conversationId,
+			@Param("now") LocalDateTime now);
 
 	@Modifying
-	@Query("UPDATE ConversationMessageEntity m SET m.isDeleted = false WHERE m.conversationId = :conversationId")
-	int restoreByConversationId(@Param("conversationId") String conversationId);
+	@Query("UPDATE ConversationMessageEntity m SET m.isDeleted = false, m.updatedAt = :now WHERE m.conversationId = :conversationId")
+	int restoreByConversationId(@Param("conversationId") String conversationId, @Param("now") LocalDateTime now);
 
 	@Modifying
-	@Query("UPDATE ConversationMessageEntity m SET m.isDeleted = true WHERE m.id = :id AND m.conversationId = :conversationId")
-	int softDelete(@Param("id") String id, @Param("conversationId") String conversationId);
+	@Query("UPDATE ConversationMessageEntity m SET m.isDeleted = true, m.updatedAt = :now WHERE m.id = :id AND m.conversationId = :conversationId")
+	int softDelete(@Param("id") String id, @Param("conversationId") String conversationId,
+			@Param("now") LocalDateTime now);
 
 	@Modifying
-	@Query("UPDATE ConversationMessageEntity m SET m.isDeleted = false WHERE m.id = :id AND m.conversationId = :conversationId")
-	int restore(@Param("id") String id, @Param("conversationId") String conversationId);
+	@Query("UPDATE ConversationMessageEntity m SET m.isDeleted = false, m.updatedAt = :now WHERE m.id = :id AND m.conversationId = :conversationId")
+	int restore(@Param("id") String id, @Param("conversationId") String conversationId,
+			@Param("now") LocalDateTime now);
+
+	/**
+	 * Messages with the owner of their conversation, in id order for keyset paging
+	 */
+	@Query("""
+			SELECT m, s.userId FROM ConversationMessageEntity m, ConversationSessionEntity s
+			WHERE m.conversationId = s.id AND m.id > :afterId
+			ORDER BY m.id
+			""")
+	List<Object[]> findForIndex(@Param("afterId") String afterId, Pageable pageable);
 
-	@Query(value = """
-			SELECT m.* FROM conversation_messages m
-			INNER JOIN conversation_sessions s ON m.conversation_id = s.id
-			WHERE s.user_id = :userId
-			  AND (:conversationId IS NULL OR m.conversation_id = :conversationId)
-			  AND (:includeDeleted = true OR m.is_deleted = 0)
-			  AND (MATCH(m.content) AGAINST (:keyword IN BOOLEAN MODE))
-			ORDER BY m.created_at DESC
-			""", countQuery = """
-			SELECT COUNT(1) FROM conversation_messages m
-			INNER JOIN conversation_sessions s ON m.conversation_id = s.id
-			WHERE s.user_id = :userId
-			  AND (:conversationId IS NULL OR m.conversation_id = :conversationId)
-			  AND (:includeDeleted = true OR m.is_deleted = 0)
-			  AND (MATCH(m.content) AGAINST (:keyword IN BOOLEAN MODE))
-			""", nativeQuery = true)
-	Page<ConversationMessageEntity> searchByContent(@Param("userId") Long userId,
-			@Param("conversationId") String conversationId, @Param("keyword") String keyword,
-			@Param("includeDeleted") boolean includeDeleted, Pageable pageable);
+	/**
+	 * Messages updated since the given time with the owner of their conversation, in id
+	 * order for keyset paging
+	 */
+	@Query("""
+			SELECT m, s.userId FROM ConversationMessageEntity m, ConversationSessionEntity s
+			WHERE m.conversationId = s.id AND m.updatedAt >= :since AND m.id > :afterId
+			ORDER BY m.id
+			""")
+	List<Object[]> findForIndexUpdatedSince(@Param("since") LocalDateTime since, @Param("afterId") String afterId,
+			Pageable pageable);
 }
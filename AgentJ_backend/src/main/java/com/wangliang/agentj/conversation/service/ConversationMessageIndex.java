@@ -0,0 +1,414 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.conversation.service;
+
+import com.wangliang.agentj.conversation.entity.po.ConversationMessageEntity;
+import com.wangliang.agentj.conversation.repository.ConversationMessageRepository;
+import com.wangliang.agentj.tools.filesystem.UnifiedDirectoryManager;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.cjk.CJKAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lucene index of conversation message content on local disk, so message search works the
+ * same on every database the conversation tables live in.
+ *
+ * Messages are indexed after their transaction commits; soft delete and restore only
+ * flip a doc values flag instead of re-indexing the content. Changes become searchable
+ * on the next search and are committed every {@code lynxe.conversationSearch.commitIntervalSeconds}.
+ * Each commit stores a watermark of the message update time it covers, so on startup only
+ * rows updated after it are re-read from the database; an empty index is built from
+ * scratch in the background and answers with partial results until then.
+ *
+ * Content is analysed with the CJK analyzer: Chinese, Japanese and Korean text is indexed
+ * as overlapping bigrams, everything else as lower-cased words.
+ */
+@Component
+public class ConversationMessageIndex {
+
+	private static final Logger log = LoggerFactory.getLogger(ConversationMessageIndex.class);
+
+	private static final String INDEX_DIR = "search_index/conversation_messages";
+
+	private static final String FIELD_ID = "id";
+
+	private static final String FIELD_CONVERSATION = "conversationId";
+
+	private static final String FIELD_OWNER = "ownerId";
+
+	private static final String FIELD_CONTENT = "content";
+
+	private static final String FIELD_CREATED = "createdAt";
+
+	private static final String FIELD_DELETED = "deleted";
+
+	private static final String COMMIT_WATERMARK = "updatedThrough";
+
+	/**
+	 * Transactions still open when a commit is taken may carry older update times
+	 */
+	private static final long WATERMARK_MARGIN_SECONDS = 60;
+
+	private static final int REBUILD_BATCH_SIZE = 500;
+
+	private static final Sort NEWEST_FIRST = new Sort(new SortField(FIELD_CREATED, SortField.Type.LONG, true),
+			new SortField(FIELD_ID, SortField.Type.STRING, true));
+
+	private final ConversationMessageRepository messageRepository;
+
+	private final Path indexPath;
+
+	private final long commitIntervalSeconds;
+
+	private final Analyzer analyzer = new CJKAnalyzer();
+
+	private final AtomicBoolean uncommitted = new AtomicBoolean();
+
+	private final AtomicBoolean stale = new AtomicBoolean();
+
+	private final ScheduledExecutorService maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "ConversationMessageIndex");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private Directory directory;
+
+	private IndexWriter writer;
+
+	private SearcherManager searcherManager;
+
+	private volatile boolean caughtUp;
+
+	public ConversationMessageIndex(UnifiedDirectoryManager directoryManager,
+			ConversationMessageRepository messageRepository,
+			@Value("${lynxe.conversationSearch.commitIntervalSeconds:5}") long commitIntervalSeconds) {
+		this.messageRepository = messageRepository;
+		this.indexPath = directoryManager.getWorkingDirectory().resolve(INDEX_DIR);
+		this.commitIntervalSeconds = Math.max(1, commitIntervalSeconds);
+	}
+
+	@PostConstruct
+	public void init() throws IOException {
+		Files.createDirectories(indexPath);
+		directory = FSDirectory.open(indexPath);
+		writer = new IndexWriter(directory,
+				new IndexWriterConfig(analyzer).setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+		searcherManager = new SearcherManager(writer, null);
+
+		LocalDateTime since = readWatermark();
+		// Nothing is committed before the catch up finished, so a watermark never covers
+		// rows that were not read back
+		maintenance.execute(() -> catchUp(since));
+		maintenance.scheduleWithFixedDelay(this::commit, commitIntervalSeconds, commitIntervalSeconds,
+				TimeUnit.SECONDS);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		maintenance.shutdownNow();
+		commit();
+		try {
+			searcherManager.close();
+			writer.close();
+			directory.close();
+		}
+		catch (IOException e) {
+			log.warn("Error closing conversation message index: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * Add or replace a message once the surrounding transaction commits
+	 * @param message Saved message
+	 * @param ownerId User owning the conversation, assistant messages carry no user
+	 * themselves
+	 */
+	public void index(ConversationMessageEntity message, Long ownerId) {
+		afterCommit(() -> write(message, ownerId));
+	}
+
+	/**
+	 * Flag a single message as deleted or restored once the surrounding transaction
+	 * commits
+	 */
+	public void markMessageDeleted(String messageId, boolean deleted) {
+		afterCommit(() -> updateDeleted(new Term(FIELD_ID, messageId), deleted));
+	}
+
+	/**
+	 * Flag all messages of a conversation as deleted or restored once the surrounding
+	 * transaction commits
+	 */
+	public void markConversationDeleted(String conversationId, boolean deleted) {
+		afterCommit(() -> updateDeleted(new Term(FIELD_CONVERSATION, conversationId), deleted));
+	}
+
+	/**
+	 * Search message content, newest first
+	 * @param ownerId Only conversations of this user
+	 * @param keyword Terms that must all match; supports "phrases", -exclusion,
+	 * prefix* and a|b alternatives
+	 * @param conversationId Restrict to one conversation, or null
+	 * @param includeDeleted Whether soft deleted messages match
+	 * @param offset Hits to skip, ignored when a cursor is given
+	 * @param size Page size
+	 * @param cursor Cursor of the previous page, or null for the first page
+	 * @return Message ids of the page with the hit count and the cursor of the next page
+	 */
+	public Hits search(Long ownerId, String keyword, String conversationId, boolean includeDeleted, int offset,
+			int size, String cursor) throws IOException {
+		if (stale.getAndSet(false)) {
+			searcherManager.maybeRefreshBlocking();
+		}
+
+		SimpleQueryParser parser = new SimpleQueryParser(analyzer, FIELD_CONTENT);
+		parser.setDefaultOperator(BooleanClause.Occur.MUST);
+		BooleanQuery.Builder query = new BooleanQuery.Builder().add(parser.parse(keyword), BooleanClause.Occur.MUST)
+			.add(new TermQuery(new Term(FIELD_OWNER, String.valueOf(ownerId))), BooleanClause.Occur.FILTER);
+		if (conversationId != null) {
+			query.add(new TermQuery(new Term(FIELD_CONVERSATION, conversationId)), BooleanClause.Occur.FILTER);
+		}
+		if (!includeDeleted) {
+			query.add(NumericDocValuesField.newSlowExactQuery(FIELD_DELETED, 0), BooleanClause.Occur.FILTER);
+		}
+
+		IndexSearcher searcher = searcherManager.acquire();
+		try {
+			// Hit counts are exact up to the searcher's threshold (1000) and a lower
+			// bound beyond it, which keeps large result sets from being fully counted
+			TopDocs top;
+			int from;
+			if (cursor != null) {
+				top = searcher.searchAfter(decodeCursor(cursor), query.build(), size, NEWEST_FIRST);
+				from = 0;
+			}
+			else {
+				top = searcher.search(query.build(), offset + size, NEWEST_FIRST);
+				from = offset;
+			}
+
+			List<String> ids = new ArrayList<>();
+			ScoreDoc[] docs = top.scoreDocs;
+			for (int i = from; i < docs.length; i++) {
+				ids.add(searcher.storedFields().document(docs[i].doc).get(FIELD_ID));
+			}
+			String nextCursor = null;
+			if (!ids.isEmpty() && docs.length - from == size) {
+				nextCursor = encodeCursor((FieldDoc) docs[docs.length - 1]);
+			}
+			return new Hits(ids, top.totalHits.value,
+					top.totalHits.relation == TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO, nextCursor);
+		}
+		finally {
+			searcherManager.release(searcher);
+		}
+	}
+
+	private void write(ConversationMessageEntity message, Long ownerId) {
+		try {
+			Document doc = new Document();
+			doc.add(new StringField(FIELD_ID, message.getId(), Field.Store.YES));
+			doc.add(new SortedDocValuesField(FIELD_ID, new BytesRef(message.getId())));
+			doc.add(new StringField(FIELD_CONVERSATION, message.getConversationId(), Field.Store.NO));
+			doc.add(new StringField(FIELD_OWNER, String.valueOf(ownerId), Field.Store.NO));
+			doc.add(new TextField(FIELD_CONTENT, message.getContent() != null ? message.getContent() : "",
+					Field.Store.NO));
+			doc.add(new NumericDocValuesField(FIELD_CREATED, toMillis(message.getCreatedAt())));
+			doc.add(new NumericDocValuesField(FIELD_DELETED, Boolean.TRUE.equals(message.getIsDeleted()) ? 1 : 0));
+			writer.updateDocument(new Term(FIELD_ID, message.getId()), doc);
+			changed();
+		}
+		catch (IOException e) {
+			log.error("Failed to index conversation message {}: {}", message.getId(), e.getMessage(), e);
+		}
+	}
+
+	private void updateDeleted(Term term, boolean deleted) {
+		try {
+			writer.updateNumericDocValue(term, FIELD_DELETED, deleted ? 1 : 0);
+			changed();
+		}
+		catch (IOException e) {
+			log.error("Failed to update deleted flag for {}: {}", term, e.getMessage(), e);
+		}
+	}
+
+	private void changed() {
+		uncommitted.set(true);
+		stale.set(true);
+	}
+
+	private void afterCommit(Runnable action) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					action.run();
+				}
+			});
+		}
+		else {
+			action.run();
+		}
+	}
+
+	/**
+	 * Re-read messages updated since the watermark of the last commit, or all messages
+	 * when the index has never been committed
+	 */
+	private void catchUp(LocalDateTime since) {
+		long start = System.currentTimeMillis();
+		LocalDateTime commitStart = LocalDateTime.now();
+		int count = 0;
+		try {
+			String afterId = "";
+			List<Object[]> batch;
+			do {
+				PageRequest page = PageRequest.of(0, REBUILD_BATCH_SIZE);
+				batch = since != null ? messageRepository.findForIndexUpdatedSince(since, afterId, page)
+						: messageRepository.findForIndex(afterId, page);
+				for (Object[] row : batch) {
+					ConversationMessageEntity message = (ConversationMessageEntity) row[0];
+					write(message, (Long) row[1]);
+					afterId = message.getId();
+				}
+				count += batch.size();
+			}
+			while (batch.size() == REBUILD_BATCH_SIZE);
+			caughtUp = true;
+			commit(commitStart);
+			log.info("Conversation message index caught up with {} messages since {} in {} ms", count,
+					since != null ? since : "the beginning", System.currentTimeMillis() - start);
+		}
+		catch (RuntimeException e) {
+			// Without a commit the next start repeats the catch up
+			log.error("Conversation message index catch up failed after {} messages: {}", count, e.getMessage(), e);
+		}
+	}
+
+	private void commit() {
+		if (caughtUp && uncommitted.get()) {
+			commit(LocalDateTime.now());
+		}
+	}
+
+	private void commit(LocalDateTime started) {
+		try {
+			uncommitted.set(false);
+			writer.setLiveCommitData(Map.of(COMMIT_WATERMARK,
+					started.minusSeconds(WATERMARK_MARGIN_SECONDS).toString()).entrySet());
+			writer.commit();
+		}
+		catch (IOException | RuntimeException e) {
+			uncommitted.set(true);
+			log.error("Failed to commit conversation message index: {}", e.getMessage(), e);
+		}
+	}
+
+	private LocalDateTime readWatermark() {
+		Iterable<Map.Entry<String, String>> commitData = writer.getLiveCommitData();
+		if (commitData != null) {
+			for (Map.Entry<String, String> entry : commitData) {
+				if (COMMIT_WATERMARK.equals(entry.getKey())) {
+					return LocalDateTime.parse(entry.getValue());
+				}
+			}
+		}
+		return null;
+	}
+
+	private static long toMillis(LocalDateTime time) {
+		return time != null ? time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0;
+	}
+
+	private static String encodeCursor(FieldDoc last) {
+		String value = last.fields[0] + ":" + ((BytesRef) last.fields[1]).utf8ToString();
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static FieldDoc decodeCursor(String cursor) {
+		try {
+			String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			int separator = value.indexOf(':');
+			long created = Long.parseLong(value.substring(0, separator));
+			BytesRef id = new BytesRef(value.substring(separator + 1));
+			// Ids are unique, the doc id never breaks a tie
+			return new FieldDoc(Integer.MAX_VALUE, Float.NaN, new Object[] { created, id });
+		}
+		catch (RuntimeException e) {
+			throw new IllegalArgumentException("无效的分页游标");
+		}
+	}
+
+	/**
+	 * One page of search hits
+	 * @param ids Message ids in result order
+	 * @param total Number of hits, a lower bound when {@code approximate}
+	 * @param approximate Whether counting stopped early
+	 * @param nextCursor Cursor of the following page, null on the last page
+	 */
+	public record Hits(List<String> ids, long total, boolean approximate, String nextCursor) {
+	}
+
+}
@@ -7,6 +7,7 @@ import com.wangliang.agentj.conversation.entity.po.ConversationMessageEntity;
 import com.wangliang.agentj.conversation.entity.po.ConversationSessionEntity;
 import com.wangliang.agentj.conversation.entity.vo.ConversationMessageView;
 import com.wangliang.agentj.conversation.entity.vo.ConversationSessionView;
+import com.wangliang.agentj.conversation.entity.vo.CursorPagedResult;
 import com.wangliang.agentj.conversation.entity.vo.PagedResult;
 import com.wangliang.agentj.conversation.repository.ConversationMessageRepository;
 import com.wangliang.agentj.conversation.repository.ConversationSessionRepository;
@@ -23,8 +24,12 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -43,12 +48,16 @@ public class ConversationRecordService {
 
 	private final LlmService llmService;
 
+	private final ConversationMessageIndex messageIndex;
+
 	public ConversationRecordService(ConversationSessionRepository sessionRepository,
-			ConversationMessageRepository messageRepository, ObjectMapper objectMapper, LlmService llmService) {
+			ConversationMessageRepository messageRepository, ObjectMapper objectMapper, LlmService llmService,
+			ConversationMessageIndex messageIndex) {
 		this.sessionRepository = sessionRepository;
 		this.messageRepository = messageRepository;
 		this.objectMapper = objectMapper;
 		this.llmService = llmService;
+		this.messageIndex = messageIndex;
 	}
 
 	public String generateTitle(Long userId, ConversationTitleRequest request) {
@@ -159,7 +168,8 @@ public class ConversationRecordService {
 		if (affected == 0) {
 			throw new IllegalArgumentException("会话不存在或无权访问");
 		}
-		messageRepository.softDeleteByConversationId(sessionId);
+		messageRepository.softDeleteByConversationId(sessionId, LocalDateTime.now());
+		messageIndex.markConversationDeleted(sessionId, true);
 	}
 
 	public void restoreSession(Long userId, String sessionId) {
@@ -167,7 +177,8 @@ public class ConversationRecordService {
 		if (affected == 0) {
 			throw new IllegalArgumentException("会话不存在或无权访问");
 		}
-		messageRepository.restoreByConversationId(sessionId);
+		messageRepository.restoreByConversationId(sessionId, LocalDateTime.now());
+		messageIndex.markConversationDeleted(sessionId, false);
 	}
 
 	public PagedResult<ConversationSessionView> listSessions(Long userId, String keyword, boolean includeDeleted,
@@ -248,6 +259,7 @@ public class ConversationRecordService {
 		entity.setIsDeleted(Boolean.FALSE);
 
 		ConversationMessageEntity saved = messageRepository.save(entity);
+		messageIndex.index(saved, session.getUserId());
 		session.setLastMessageAt(now);
 		session.setUpdatedAt(now);
 		sessionRepository.save(session);
@@ -276,32 +288,49 @@ public class ConversationRecordService {
 	public void softDeleteMessage(Long userId, String conversationId, String messageId) {
 		sessionRepository.findByIdAndUserId(conversationId, userId)
 				.orElseThrow(() -> new IllegalArgumentException("会话不存在或无权访问"));
-		int affected = messageRepository.softDelete(messageId, conversationId);
+		int affected = messageRepository.softDelete(messageId, conversationId, LocalDateTime.now());
 		if (affected == 0) {
 			throw new IllegalArgumentException("消息不存在或无权访问");
 		}
+		messageIndex.markMessageDeleted(messageId, true);
 	}
 
 	public void restoreMessage(Long userId, String conversationId, String messageId) {
 		sessionRepository.findByIdAndUserId(conversationId, userId)
 				.orElseThrow(() -> new IllegalArgumentException("会话不存在或无权访问"));
-		int affected = messageRepository.restore(messageId, conversationId);
+		int affected = messageRepository.restore(messageId, conversationId, LocalDateTime.now());
 		if (affected == 0) {
 			throw new IllegalArgumentException("消息不存在或无权访问");
 		}
+		messageIndex.markMessageDeleted(messageId, false);
 	}
 
-	public PagedResult<ConversationMessageView> searchMessages(Long userId, String keyword, String conversationId,
-			boolean includeDeleted, int page, int size) {
+	/**
+	 * 基于本地全文索引搜索消息，按创建时间倒序。传入 cursor 时按游标翻页，忽略 page
+	 */
+	@Transactional(readOnly = true)
+	public CursorPagedResult<ConversationMessageView> searchMessages(Long userId, String keyword,
+			String conversationId, boolean includeDeleted, int page, int size, String cursor) {
 		if (!StringUtils.hasText(keyword)) {
 			throw new IllegalArgumentException("搜索关键字不能为空");
 		}
-		Page<ConversationMessageEntity> pageData = messageRepository.searchByContent(userId,
-				StringUtils.hasText(conversationId) ? conversationId : null, keyword, includeDeleted,
-				PageRequest.of(Math.max(page - 1, 0), Math.max(size, 1)));
-		List<ConversationMessageView> views = pageData.getContent().stream()
+		int pageNumber = Math.max(page, 1);
+		int pageSize = Math.max(size, 1);
+		ConversationMessageIndex.Hits hits;
+		try {
+			hits = messageIndex.search(userId, keyword, StringUtils.hasText(conversationId) ? conversationId : null,
+					includeDeleted, (pageNumber - 1) * pageSize, pageSize, StringUtils.hasText(cursor) ? cursor : null);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		Map<String, ConversationMessageEntity> entities = messageRepository.findAllById(hits.ids()).stream()
+				.collect(Collectors.toMap(ConversationMessageEntity::getId, entity -> entity));
+		List<ConversationMessageView> views = hits.ids().stream()
+				.map(entities::get)
+				.filter(Objects::nonNull)
 				.map(entity -> ConversationMessageView.fromEntity(entity, objectMapper))
 				.collect(Collectors.toList());
-		return new PagedResult<>(views, pageData.getTotalElements(), pageData.getNumber() + 1, pageData.getSize());
+		return new CursorPagedResult<>(views, hits.total(), hits.approximate(), pageNumber, pageSize,
+				hits.nextCursor());
 	}
 }
@@ -15,6 +15,8 @@
  */
 package com.wangliang.agentj.cron.entity;
 
+import com.wangliang.agentj.cron.enums.MisfirePolicy;
+import com.wangliang.agentj.cron.enums.OverlapPolicy;
 import com.wangliang.agentj.cron.vo.CronConfig;
 import jakarta.persistence.*;
 
@@ -50,6 +52,23 @@ public class CronEntity {
 	@Column
 	private String planTemplateId;
 
+	@Column(length = 16)
+	private String overlapPolicy;
+
+	@Column(length = 16)
+	private String misfirePolicy;
+
+	// Scheduling state below is only written through CronRepository's conditional updates
+
+	@Column(updatable = false)
+	private LocalDateTime lastFireTime;
+
+	@Column(length = 128, updatable = false)
+	private String leaseOwner;
+
+	@Column(updatable = false)
+	private LocalDateTime leaseUntil;
+
 	public CronEntity() {
 	}
 
@@ -122,6 +141,46 @@ public class CronEntity {
 		this.planTemplateId = planTemplateId;
 	}
 
+	public String getOverlapPolicy() {
+		return overlapPolicy;
+	}
+
+	public void setOverlapPolicy(String overlapPolicy) {
+		this.overlapPolicy = overlapPolicy;
+	}
+
+	public String getMisfirePolicy() {
+		return misfirePolicy;
+	}
+
+	public void setMisfirePolicy(String misfirePolicy) {
+		this.misfirePolicy = misfirePolicy;
+	}
+
+	public LocalDateTime getLastFireTime() {
+		return lastFireTime;
+	}
+
+	public void setLastFireTime(LocalDateTime lastFireTime) {
+		this.lastFireTime = lastFireTime;
+	}
+
+	public String getLeaseOwner() {
+		return leaseOwner;
+	}
+
+	public void setLeaseOwner(String leaseOwner) {
+		this.leaseOwner = leaseOwner;
+	}
+
+	public LocalDateTime getLeaseUntil() {
+		return leaseUntil;
+	}
+
+	public void setLeaseUntil(LocalDateTime leaseUntil) {
+		this.leaseUntil = leaseUntil;
+	}
+
 	public CronConfig mapToCronConfig() {
 		CronConfig config = new CronConfig();
 		config.setId(this.getId());
@@ -132,6 +191,8 @@ public class CronEntity {
 		config.setCreateTime(this.getCreateTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
 		config.setLastExecutedTime(this.getLastExecutedTime());
 		config.setPlanTemplateId(this.getPlanTemplateId());
+		config.setOverlapPolicy(OverlapPolicy.fromName(this.getOverlapPolicy()).name());
+		config.setMisfirePolicy(MisfirePolicy.fromName(this.getMisfirePolicy()).name());
 		return config;
 	}
 
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.cron.enums;
+
+/**
+ * What a scheduled task does about fires missed while no node was running it
+ */
+public enum MisfirePolicy {
+
+	/**
+	 * Drop missed fires and wait for the next regular one
+	 */
+	IGNORE("Ignore missed runs"),
+
+	/**
+	 * Run once right away when at least one fire was missed within the misfire threshold
+	 */
+	FIRE_ONCE("Catch up with one run");
+
+	private final String description;
+
+	MisfirePolicy(String description) {
+		this.description = description;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	/**
+	 * Resolve a stored policy name, defaulting to {@link #IGNORE}
+	 */
+	public static MisfirePolicy fromName(String name) {
+		if (name != null) {
+			for (MisfirePolicy policy : MisfirePolicy.values()) {
+				if (policy.name().equalsIgnoreCase(name.trim())) {
+					return policy;
+				}
+			}
+		}
+		return IGNORE;
+	}
+
+}
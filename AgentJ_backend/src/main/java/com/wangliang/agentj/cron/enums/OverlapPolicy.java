@@ -0,0 +1,62 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.cron.enums;
+
+/**
+ * What a scheduled task does when it fires while its previous run is still active
+ */
+public enum OverlapPolicy {
+
+	/**
+	 * Drop the new fire
+	 */
+	SKIP("Skip the new run"),
+
+	/**
+	 * Start the new fire once the previous run has finished (at most one waiting run)
+	 */
+	QUEUE("Run after the previous run"),
+
+	/**
+	 * Cancel the previous run and start the new one
+	 */
+	REPLACE("Cancel the previous run");
+
+	private final String description;
+
+	OverlapPolicy(String description) {
+		this.description = description;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	/**
+	 * Resolve a stored policy name, defaulting to {@link #SKIP}
+	 */
+	public static OverlapPolicy fromName(String name) {
+		if (name != null) {
+			for (OverlapPolicy policy : OverlapPolicy.values()) {
+				if (policy.name().equalsIgnoreCase(name.trim())) {
+					return policy;
+				}
+			}
+		}
+		return SKIP;
+	}
+
+}
@@ -17,8 +17,13 @@ package com.wangliang.agentj.cron.repository;
 
 import com.wangliang.agentj.cron.entity.CronEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -30,4 +35,40 @@ public interface CronRepository extends JpaRepository<CronEntity, Long> {
 
 	List<CronEntity> findByCronNameContaining(String cronName);
 
+	/**
+	 * Claim a scheduled fire; only one node succeeds per fire time
+	 * @return 1 if claimed, 0 if the fire was already claimed
+	 */
+	@Transactional
+	@Modifying
+	@Query("UPDATE CronEntity c SET c.lastFireTime = :fireTime WHERE c.id = :id AND (c.lastFireTime IS NULL OR c.lastFireTime < :fireTime)")
+	int claimFire(@Param("id") Long id, @Param("fireTime") LocalDateTime fireTime);
+
+	@Transactional
+	@Modifying
+	@Query("UPDATE CronEntity c SET c.leaseOwner = :owner, c.leaseUntil = :leaseUntil WHERE c.id = :id AND (c.leaseUntil IS NULL OR c.leaseUntil < :now)")
+	int acquireLease(@Param("id") Long id, @Param("owner") String owner, @Param("leaseUntil") LocalDateTime leaseUntil,
+			@Param("now") LocalDateTime now);
+
+	@Transactional
+	@Modifying
+	@Query("UPDATE CronEntity c SET c.leaseOwner = :owner, c.leaseUntil = :leaseUntil WHERE c.id = :id")
+	int takeOverLease(@Param("id") Long id, @Param("owner") String owner,
+			@Param("leaseUntil") LocalDateTime leaseUntil);
+
+	@Transactional
+	@Modifying
+	@Query("UPDATE CronEntity c SET c.leaseUntil = :leaseUntil WHERE c.id = :id AND c.leaseOwner = :owner")
+	int renewLease(@Param("id") Long id, @Param("owner") String owner, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+	@Transactional
+	@Modifying
+	@Query("UPDATE CronEntity c SET c.leaseOwner = NULL, c.leaseUntil = NULL WHERE c.id = :id AND c.leaseOwner = :owner")
+	int releaseLease(@Param("id") Long id, @Param("owner") String owner);
+
+	@Transactional
+	@Modifying
+	@Query("UPDATE CronEntity c SET c.lastExecutedTime = :executedTime WHERE c.id = :id")
+	int updateLastExecutedTime(@Param("id") Long id, @Param("executedTime") LocalDateTime executedTime);
+
 }
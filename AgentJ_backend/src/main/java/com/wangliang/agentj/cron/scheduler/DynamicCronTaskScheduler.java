@@ -17,6 +17,8 @@ package com.wangliang.agentj.cron.scheduler;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wangliang.agentj.cron.entity.CronEntity;
+import com.wangliang.agentj.cron.enums.MisfirePolicy;
+import com.wangliang.agentj.cron.enums.OverlapPolicy;
 import com.wangliang.agentj.cron.enums.TaskStatus;
 import com.wangliang.agentj.cron.repository.CronRepository;
 import com.wangliang.agentj.planning.PlanningFactory;
@@ -27,31 +29,52 @@ import com.wangliang.agentj.runtime.entity.vo.PlanInterface;
 import com.wangliang.agentj.runtime.entity.vo.RequestSource;
 import com.wangliang.agentj.runtime.service.PlanIdDispatcher;
 import com.wangliang.agentj.runtime.service.PlanningCoordinator;
+import com.wangliang.agentj.runtime.service.TaskInterruptionManager;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.scheduling.TaskScheduler;
-import org.springframework.scheduling.support.CronTrigger;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronExpression;
 import org.springframework.stereotype.Component;
 
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Dynamic task scheduler responsible for managing the lifecycle of all dynamic scheduled
- * tasks
+ * tasks.
+ *
+ * Every backend node schedules every enabled task, so each fire is claimed in the
+ * database by its nominal cron time and only the node that wins the claim runs it. A run
+ * holds a lease on its task row, renewed while the plan is running; a fire that finds the
+ * lease held follows the task's {@link OverlapPolicy}. Fires start after a random delay,
+ * missed fires are caught up according to the task's {@link MisfirePolicy}, and scheduled
+ * runs are only admitted while few plans are active so they do not starve interactive
+ * requests.
  */
 @Component
 public class DynamicCronTaskScheduler {
 
 	private static final Logger log = LoggerFactory.getLogger(DynamicCronTaskScheduler.class);
 
+	private static final long RETRY_INTERVAL_SECONDS = 5;
+
+	private static final int MAX_MISFIRE_SCAN = 100_000;
+
 	private final TaskScheduler taskScheduler;
 
 	private final CronRepository cronRepository;
@@ -72,61 +95,276 @@ public class DynamicCronTaskScheduler {
 	@Autowired
 	private PlanningCoordinator planningCoordinator;
 
+	@Autowired
+	private TaskInterruptionManager taskInterruptionManager;
+
 	@Autowired
 	private ObjectMapper objectMapper;
 
+	private final long leaseSeconds;
+
+	private final long maxJitterMillis;
+
+	private final long misfireThresholdHours;
+
+	private final int maxActivePlans;
+
+	private final long admissionWaitSeconds;
+
+	// Limits scheduled plans running on this node at the same time
+	private final Semaphore runPermits;
+
+	// Identifies this process in lease owners
+	private final String nodeName = ManagementFactory.getRuntimeMXBean().getName() + "-"
+			+ Long.toString(System.currentTimeMillis(), 36);
+
+	private final AtomicLong runSequence = new AtomicLong();
+
 	// Store running tasks
 	private final Map<Long, ScheduledFuture<?>> scheduledTasks = new ConcurrentHashMap<>();
 
-	public DynamicCronTaskScheduler(TaskScheduler taskScheduler, CronRepository cronRepository) {
+	// Runs started by this node, by task ID
+	private final Map<Long, ActiveRun> activeRuns = new ConcurrentHashMap<>();
+
+	// Tasks with a run waiting for the previous one under OverlapPolicy.QUEUE
+	private final Set<Long> queuedTasks = ConcurrentHashMap.newKeySet();
+
+	public DynamicCronTaskScheduler(TaskScheduler taskScheduler, CronRepository cronRepository,
+			@Value("${lynxe.cron.leaseSeconds:300}") long leaseSeconds,
+			@Value("${lynxe.cron.maxJitterSeconds:30}") long maxJitterSeconds,
+			@Value("${lynxe.cron.misfireThresholdHours:24}") long misfireThresholdHours,
+			@Value("${lynxe.cron.maxConcurrentRuns:2}") int maxConcurrentRuns,
+			@Value("${lynxe.cron.maxActivePlans:16}") int maxActivePlans,
+			@Value("${lynxe.cron.admissionWaitSeconds:600}") long admissionWaitSeconds) {
 		this.taskScheduler = taskScheduler;
 		this.cronRepository = cronRepository;
+		this.leaseSeconds = leaseSeconds;
+		this.maxJitterMillis = maxJitterSeconds * 1000;
+		this.misfireThresholdHours = misfireThresholdHours;
+		this.runPermits = new Semaphore(Math.max(maxConcurrentRuns, 1));
+		this.maxActivePlans = maxActivePlans;
+		this.admissionWaitSeconds = admissionWaitSeconds;
+	}
+
+	/**
+	 * Handle a scheduled fire: claim it for this node and start a run
+	 * @param taskId Task ID
+	 * @param fireTime Nominal cron time of the fire, identical on all nodes
+	 */
+	private void fire(Long taskId, LocalDateTime fireTime) {
+		try {
+			CronEntity cronEntity = cronRepository.findById(taskId).orElse(null);
+			if (cronEntity == null || !TaskStatus.ENABLED.getCode().equals(cronEntity.getStatus())) {
+				return;
+			}
+			if (cronRepository.claimFire(taskId, fireTime) == 0) {
+				log.debug("Fire {} of task {} was already claimed", fireTime, cronEntity.getCronName());
+				return;
+			}
+			startRun(cronEntity, OverlapPolicy.fromName(cronEntity.getOverlapPolicy()),
+					System.currentTimeMillis() + admissionWaitSeconds * 1000, false);
+		}
+		catch (Exception e) {
+			log.error("Task execution failed: {} - {}", taskId, e.getMessage());
+		}
+	}
+
+	/**
+	 * Start a run once it is admitted and the task lease is available
+	 * @param cronEntity Task entity
+	 * @param policy Overlap policy of the task
+	 * @param deadlineMillis Time after which a run that cannot start is dropped
+	 * @param queued Whether this run holds the task's queue slot
+	 */
+	private void startRun(CronEntity cronEntity, OverlapPolicy policy, long deadlineMillis, boolean queued) {
+		Long taskId = cronEntity.getId();
+		// Whether this method still owns the run permit; launch() takes it over
+		boolean permitHeld = false;
+		try {
+			if (!tryAdmit()) {
+				retryLater(cronEntity, policy, deadlineMillis, queued, "too many active plans");
+				return;
+			}
+			permitHeld = true;
+
+			String owner = nodeName + "#" + runSequence.incrementAndGet();
+			LocalDateTime now = LocalDateTime.now();
+			LocalDateTime leaseUntil = now.plusSeconds(leaseSeconds);
+			boolean leased;
+			if (policy == OverlapPolicy.REPLACE) {
+				ActiveRun previous = activeRuns.get(taskId);
+				if (previous != null) {
+					cancelRun(taskId, previous, "replaced by a new run");
+				}
+				// A previous run on another node notices the lost lease on its next renewal
+				leased = cronRepository.takeOverLease(taskId, owner, leaseUntil) > 0;
+			}
+			else {
+				leased = cronRepository.acquireLease(taskId, owner, leaseUntil, now) > 0;
+			}
+
+			if (!leased) {
+				permitHeld = false;
+				runPermits.release();
+				if (policy != OverlapPolicy.QUEUE) {
+					log.info("Skipping run of scheduled task {}: previous run is still active",
+							cronEntity.getCronName());
+					return;
+				}
+				if (!queued && !queuedTasks.add(taskId)) {
+					log.info("Skipping run of scheduled task {}: a run is already queued", cronEntity.getCronName());
+					return;
+				}
+				retryLater(cronEntity, policy, deadlineMillis, true, "previous run is still active");
+				return;
+			}
+
+			if (queued) {
+				queuedTasks.remove(taskId);
+			}
+			permitHeld = false;
+			launch(cronEntity, owner);
+		}
+		catch (Exception e) {
+			if (permitHeld) {
+				runPermits.release();
+			}
+			if (queued) {
+				queuedTasks.remove(taskId);
+			}
+			log.error("Task execution failed: {} - {}", cronEntity.getCronName(), e.getMessage());
+		}
+	}
+
+	/**
+	 * Admit a scheduled run: interactive plans go first, and only a few scheduled runs
+	 * execute at once on this node. Takes a run permit on success.
+	 */
+	private boolean tryAdmit() {
+		if (maxActivePlans > 0 && taskInterruptionManager.getRunningTaskCount() >= maxActivePlans) {
+			return false;
+		}
+		return runPermits.tryAcquire();
+	}
+
+	private void retryLater(CronEntity cronEntity, OverlapPolicy policy, long deadlineMillis, boolean queued,
+			String reason) {
+		if (System.currentTimeMillis() >= deadlineMillis) {
+			if (queued) {
+				queuedTasks.remove(cronEntity.getId());
+			}
+			log.warn("Dropping run of scheduled task {}: {} for {}s", cronEntity.getCronName(), reason,
+					admissionWaitSeconds);
+			return;
+		}
+		log.debug("Delaying run of scheduled task {}: {}", cronEntity.getCronName(), reason);
+		taskScheduler.schedule(() -> startRun(cronEntity, policy, deadlineMillis, queued),
+				Instant.now().plusSeconds(RETRY_INTERVAL_SECONDS));
 	}
 
 	/**
-	 * Execute scheduled task
+	 * Execute scheduled task while holding its lease and a run permit
 	 * @param cronEntity Task entity
+	 * @param owner Lease owner of this run
 	 */
-	private void executeTask(CronEntity cronEntity) {
+	private void launch(CronEntity cronEntity, String owner) {
+		Long taskId = cronEntity.getId();
 		try {
 			// Update task execution time
-			cronEntity.setLastExecutedTime(LocalDateTime.now());
-			cronRepository.save(cronEntity);
+			cronRepository.updateLastExecutedTime(taskId, LocalDateTime.now());
 
 			String planTemplateId = cronEntity.getPlanTemplateId();
-
+			String rootPlanId;
+			CompletableFuture<PlanExecutionResult> execution;
 			if (planTemplateId != null && !planTemplateId.trim().isEmpty()) {
 				// If plan template ID exists, execute according to plan template
-				executePlanTemplate(planTemplateId);
+				rootPlanId = planIdDispatcher.generateSubPlanId(planTemplateId);
+				execution = executePlanTemplate(planTemplateId, rootPlanId);
 			}
 			else {
-				executePlan(cronEntity);
+				rootPlanId = planIdDispatcher.generatePlanId();
+				execution = executePlan(cronEntity, rootPlanId);
 			}
+
+			ActiveRun run = new ActiveRun(owner, rootPlanId);
+			activeRuns.put(taskId, run);
+			execution.whenComplete((result, throwable) -> finishRun(taskId, run));
 		}
 		catch (Exception e) {
 			log.error("Task execution failed: {} - {}", cronEntity.getCronName(), e.getMessage());
+			releaseLease(taskId, owner);
+			runPermits.release();
+		}
+	}
+
+	private void finishRun(Long taskId, ActiveRun run) {
+		activeRuns.remove(taskId, run);
+		releaseLease(taskId, run.owner());
+		runPermits.release();
+	}
+
+	private void cancelRun(Long taskId, ActiveRun run, String reason) {
+		if (activeRuns.remove(taskId, run)) {
+			log.info("Cancelling run {} of scheduled task {}: {}", run.rootPlanId(), taskId, reason);
+			taskInterruptionManager.cancelTask(run.rootPlanId());
+		}
+	}
+
+	private void releaseLease(Long taskId, String owner) {
+		try {
+			cronRepository.releaseLease(taskId, owner);
+		}
+		catch (Exception e) {
+			log.warn("Failed to release lease of task {}: {}", taskId, e.getMessage());
 		}
 	}
 
+	/**
+	 * Renew the leases of runs on this node; a run whose lease was taken over is
+	 * cancelled
+	 */
+	@Scheduled(fixedRate = 30000)
+	public void renewLeases() {
+		LocalDateTime leaseUntil = LocalDateTime.now().plusSeconds(leaseSeconds);
+		activeRuns.forEach((taskId, run) -> {
+			try {
+				if (cronRepository.renewLease(taskId, run.owner(), leaseUntil) == 0) {
+					cancelRun(taskId, run, "lease lost");
+				}
+			}
+			catch (Exception e) {
+				log.warn("Failed to renew lease of task {}: {}", taskId, e.getMessage());
+			}
+		});
+	}
+
+	/**
+	 * Release the leases held by this node so other nodes can take over
+	 */
+	@PreDestroy
+	public void releaseLeases() {
+		activeRuns.forEach((taskId, run) -> releaseLease(taskId, run.owner()));
+	}
+
 	/**
 	 * Generate plan and execute
 	 * @param cronEntity Task entity
+	 * @param planId Plan ID of the run
 	 */
-	private void executePlan(CronEntity cronEntity) {
+	private CompletableFuture<PlanExecutionResult> executePlan(CronEntity cronEntity, String planId) {
 		String planDesc = cronEntity.getPlanDesc();
 		log.info("Executing scheduled task: {} - {}", cronEntity.getCronName(), planDesc);
 
-		String planId = planIdDispatcher.generatePlanId();
-
 		// Execute task asynchronously using PlanningCoordinator
-		executePlanByuserQueryDesc(planId, planDesc);
+		return executePlanByuserQueryDesc(planId, planDesc);
 	}
 
 	/**
 	 * Execute plan template
 	 * @param planTemplateId Plan template ID
+	 * @param planId Plan ID of the run
 	 */
-	private void executePlanTemplate(String planTemplateId) {
+	private CompletableFuture<PlanExecutionResult> executePlanTemplate(String planTemplateId, String planId) {
 		try {
 			log.info("Executing plan template: {}", planTemplateId);
 
@@ -139,7 +377,7 @@ public class DynamicCronTaskScheduler {
 			String planJson = planTemplateService.getLatestPlanVersion(planTemplateId);
 			if (planJson == null || planJson.trim().isEmpty()) {
 				log.error("Plan template not found or has no plan version: {}", planTemplateId);
-				return;
+				return CompletableFuture.completedFuture(null);
 			}
 
 			if (!coordinatorToolExists) {
@@ -147,10 +385,11 @@ public class DynamicCronTaskScheduler {
 			}
 
 			// Execute the plan template using the new method
-			executePlanTemplateInternal(planTemplateId, null, null);
+			return executePlanTemplateInternal(planTemplateId, null, null, planId);
 		}
 		catch (Exception e) {
 			log.error("Failed to execute plan template: {}", planTemplateId, e);
+			return CompletableFuture.completedFuture(null);
 		}
 	}
 
@@ -167,11 +406,14 @@ public class DynamicCronTaskScheduler {
 				return false;
 			}
 
-			ScheduledFuture<?> future = taskScheduler.schedule(() -> executeTask(cronEntity),
-					new CronTrigger(cronEntity.getCronTime()));
+			Long taskId = cronEntity.getId();
+			JitteredCronTrigger trigger = new JitteredCronTrigger(cronEntity.getCronTime(), maxJitterMillis);
+			ScheduledFuture<?> future = taskScheduler.schedule(() -> fire(taskId, trigger.getNominalFireTime()),
+					trigger);
 
-			scheduledTasks.put(cronEntity.getId(), future);
+			scheduledTasks.put(taskId, future);
 			log.info("Adding scheduled task: {} [{}]", cronEntity.getCronName(), cronEntity.getCronTime());
+			scheduleMisfireCatchUp(cronEntity);
 			return true;
 		}
 		catch (Exception e) {
@@ -180,6 +422,49 @@ public class DynamicCronTaskScheduler {
 		}
 	}
 
+	/**
+	 * Schedule one catch-up run when the task missed fires within the misfire threshold
+	 * and its policy asks for it. The catch-up is claimed like a regular fire, so it runs
+	 * once even when several nodes start together.
+	 */
+	private void scheduleMisfireCatchUp(CronEntity cronEntity) {
+		if (MisfirePolicy.fromName(cronEntity.getMisfirePolicy()) != MisfirePolicy.FIRE_ONCE) {
+			return;
+		}
+		LocalDateTime now = LocalDateTime.now();
+		LocalDateTime since = cronEntity.getLastFireTime() != null ? cronEntity.getLastFireTime()
+				: cronEntity.getLastExecutedTime() != null ? cronEntity.getLastExecutedTime()
+						: cronEntity.getCreateTime();
+		LocalDateTime threshold = now.minusHours(misfireThresholdHours);
+		if (since == null || since.isBefore(threshold)) {
+			since = threshold;
+		}
+
+		CronExpression expression = CronExpression.parse(cronEntity.getCronTime());
+		LocalDateTime missed = latestFireBetween(expression, since, now);
+		if (missed == null) {
+			return;
+		}
+		long delay = JitteredCronTrigger.nextJitterMillis(expression, missed.atZone(ZoneId.systemDefault()),
+				maxJitterMillis);
+		log.info("Scheduled task {} missed its fire at {}, catching up", cronEntity.getCronName(), missed);
+		Long taskId = cronEntity.getId();
+		taskScheduler.schedule(() -> fire(taskId, missed), Instant.now().plusMillis(delay));
+	}
+
+	/**
+	 * Latest fire time of the expression after {@code after} and not after {@code until}
+	 */
+	static LocalDateTime latestFireBetween(CronExpression expression, LocalDateTime after, LocalDateTime until) {
+		LocalDateTime latest = null;
+		LocalDateTime next = expression.next(after);
+		for (int i = 0; next != null && !next.isAfter(until) && i < MAX_MISFIRE_SCAN; i++) {
+			latest = next;
+			next = expression.next(next);
+		}
+		return latest;
+	}
+
 	/**
 	 * Remove scheduled task
 	 */
@@ -199,14 +484,16 @@ public class DynamicCronTaskScheduler {
 	}
 
 	/**
-	 * Execute task immediately by task ID
+	 * Execute task immediately by task ID. Manual runs are not claimed as fires but
+	 * follow the task's overlap policy.
 	 */
 	public void executeTaskById(Long taskId) {
 		CronEntity cronEntity = cronRepository.findById(taskId)
 			.orElseThrow(() -> new IllegalArgumentException("Cron task not found: " + taskId));
 
 		log.info("Manually executing scheduled task: {} - {}", cronEntity.getCronName(), cronEntity.getPlanDesc());
-		executeTask(cronEntity);
+		startRun(cronEntity, OverlapPolicy.fromName(cronEntity.getOverlapPolicy()),
+				System.currentTimeMillis() + admissionWaitSeconds * 1000, false);
 	}
 
 	/**
@@ -221,7 +508,7 @@ public class DynamicCronTaskScheduler {
 	 * @param planId The plan ID to execute
 	 * @param planDesc The plan description/user query
 	 */
-	private void executePlanByuserQueryDesc(String planId, String planDesc) {
+	private CompletableFuture<PlanExecutionResult> executePlanByuserQueryDesc(String planId, String planDesc) {
 		// try {
 		// log.info("Executing plan by user query description: {} - {}", planId,
 		// planDesc);
@@ -258,10 +545,11 @@ public class DynamicCronTaskScheduler {
 	 * @param planTemplateId The plan template ID to execute
 	 * @param rawParam Raw parameters for execution (can be null)
 	 * @param parentPlanId The parent plan ID (can be null for root plans)
+	 * @param currentPlanId The plan ID of this execution
 	 * @return CompletableFuture with execution result
 	 */
 	private CompletableFuture<PlanExecutionResult> executePlanTemplateInternal(String planTemplateId, String rawParam,
-                                                                               String parentPlanId) {
+			String parentPlanId, String currentPlanId) {
 		if (planTemplateId == null || planTemplateId.trim().isEmpty()) {
 			log.error("Plan template ID is null or empty");
 			PlanExecutionResult errorResult = new PlanExecutionResult();
@@ -271,9 +559,6 @@ public class DynamicCronTaskScheduler {
 		}
 
 		try {
-			// Generate a unique plan ID for this execution
-			String currentPlanId = planIdDispatcher
-				.generateSubPlanId(parentPlanId != null ? parentPlanId : planTemplateId);
 			String rootPlanId = parentPlanId != null ? parentPlanId : currentPlanId;
 
 			// Fetch the plan template from PlanTemplateService
@@ -333,4 +618,13 @@ public class DynamicCronTaskScheduler {
 		}
 	}
 
+	/**
+	 * Run of a task on this node
+	 * @param owner Lease owner of the run
+	 * @param rootPlanId Root plan ID of the executed plan
+	 */
+	private record ActiveRun(String owner, String rootPlanId) {
+
+	}
+
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.cron.scheduler;
+
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.TriggerContext;
+import org.springframework.scheduling.support.CronExpression;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Cron trigger that starts each fire after a random delay past its nominal cron time, so
+ * that tasks sharing a schedule (typically at :00) do not all start at once. The delay is
+ * capped at half the interval to the following fire.
+ *
+ * The nominal time of the fire being run is kept and identifies the fire across nodes.
+ */
+public class JitteredCronTrigger implements Trigger {
+
+	private final CronExpression expression;
+
+	private final long maxJitterMillis;
+
+	private volatile ZonedDateTime nominalFireTime;
+
+	public JitteredCronTrigger(String expression, long maxJitterMillis) {
+		this.expression = CronExpression.parse(expression);
+		this.maxJitterMillis = maxJitterMillis;
+	}
+
+	@Override
+	public Instant nextExecution(TriggerContext triggerContext) {
+		ZonedDateTime now = ZonedDateTime.now();
+		ZonedDateTime previous = nominalFireTime;
+		ZonedDateTime next = expression.next(previous != null && previous.isAfter(now) ? previous : now);
+		if (next == null) {
+			return null;
+		}
+		nominalFireTime = next;
+		return next.toInstant().plusMillis(nextJitterMillis(expression, next, maxJitterMillis));
+	}
+
+	/**
+	 * Nominal cron time of the fire currently being run
+	 */
+	public LocalDateTime getNominalFireTime() {
+		ZonedDateTime fireTime = nominalFireTime;
+		return fireTime != null ? fireTime.toLocalDateTime() : null;
+	}
+
+	/**
+	 * Random start delay for a fire, at most {@code maxJitterMillis} and at most half the
+	 * interval to the following fire
+	 */
+	static long nextJitterMillis(CronExpression expression, ZonedDateTime fireTime, long maxJitterMillis) {
+		long bound = maxJitterMillis;
+		ZonedDateTime following = expression.next(fireTime);
+		if (following != null) {
+			bound = Math.min(bound, Duration.between(fireTime, following).toMillis() / 2);
+		}
+		return bound > 0 ? ThreadLocalRandom.current().nextLong(bound + 1) : 0;
+	}
+
+}
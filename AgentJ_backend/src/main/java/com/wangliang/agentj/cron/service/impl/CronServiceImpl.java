@@ -16,6 +16,8 @@
 package com.wangliang.agentj.cron.service.impl;
 
 import com.wangliang.agentj.cron.entity.CronEntity;
+import com.wangliang.agentj.cron.enums.MisfirePolicy;
+import com.wangliang.agentj.cron.enums.OverlapPolicy;
 import com.wangliang.agentj.cron.repository.CronRepository;
 import com.wangliang.agentj.cron.scheduler.DynamicCronTaskScheduler;
 import com.wangliang.agentj.cron.service.CronService;
@@ -122,6 +124,12 @@ public class CronServiceImpl implements CronService {
 		}
 		// Update regardless of whether planTemplateId is empty or not
 		entity.setPlanTemplateId(config.getPlanTemplateId());
+		if (config.getOverlapPolicy() != null) {
+			entity.setOverlapPolicy(OverlapPolicy.fromName(config.getOverlapPolicy()).name());
+		}
+		if (config.getMisfirePolicy() != null) {
+			entity.setMisfirePolicy(MisfirePolicy.fromName(config.getMisfirePolicy()).name());
+		}
 	}
 
 	private void validateCronExpression(String cronExpression) {
@@ -41,6 +41,10 @@ public class CronConfig {
 
 	private LocalDateTime lastExecutedTime; // Last execution time
 
+	private String overlapPolicy; // SKIP, QUEUE or REPLACE
+
+	private String misfirePolicy; // IGNORE or FIRE_ONCE
+
 	public Long getId() {
 		return id;
 	}
@@ -105,4 +109,20 @@ public class CronConfig {
 		this.planTemplateId = planTemplateId;
 	}
 
+	public String getOverlapPolicy() {
+		return overlapPolicy;
+	}
+
+	public void setOverlapPolicy(String overlapPolicy) {
+		this.overlapPolicy = overlapPolicy;
+	}
+
+	public String getMisfirePolicy() {
+		return misfirePolicy;
+	}
+
+	public void setMisfirePolicy(String misfirePolicy) {
+		this.misfirePolicy = misfirePolicy;
+	}
+
 }
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.event;
+
+import com.wangliang.agentj.config.ConfigSnapshot;
+
+import java.util.Set;
+
+/**
+ * Published after a new configuration snapshot replaced the previous one
+ */
+public class ConfigChangeEvent implements LynxeEvent {
+
+	private final ConfigSnapshot previous;
+
+	private final ConfigSnapshot current;
+
+	private final Set<String> changedPaths;
+
+	private final long createTime;
+
+	public ConfigChangeEvent(ConfigSnapshot previous, ConfigSnapshot current, Set<String> changedPaths) {
+		this.previous = previous;
+		this.current = current;
+		this.changedPaths = Set.copyOf(changedPaths);
+		this.createTime = System.currentTimeMillis();
+	}
+
+	public ConfigSnapshot getPrevious() {
+		return previous;
+	}
+
+	public ConfigSnapshot getCurrent() {
+		return current;
+	}
+
+	public Set<String> getChangedPaths() {
+		return changedPaths;
+	}
+
+	public boolean isChanged(String configPath) {
+		return changedPaths.contains(configPath);
+	}
+
+	public long getCreateTime() {
+		return createTime;
+	}
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.event;
+
+/**
+ * Published after a plan (root or sub plan) finished executing and its agents were
+ * cleaned up, whether it succeeded, failed or was interrupted
+ */
+public class PlanCompletedEvent implements LynxeEvent {
+
+	private final String planId;
+
+	private final String rootPlanId;
+
+	private final boolean success;
+
+	private final long createTime;
+
+	public PlanCompletedEvent(String planId, String rootPlanId, boolean success) {
+		this.planId = planId;
+		this.rootPlanId = rootPlanId;
+		this.success = success;
+		this.createTime = System.currentTimeMillis();
+	}
+
+	public String getPlanId() {
+		return planId;
+	}
+
+	public String getRootPlanId() {
+		return rootPlanId;
+	}
+
+	public boolean isSuccess() {
+		return success;
+	}
+
+	public long getCreateTime() {
+		return createTime;
+	}
+
+}
@@ -304,7 +304,7 @@ public class ConversationMemoryLimitService {
 	 * @param messages List of messages
 	 * @return List of dialog rounds
 	 */
-	private List<DialogRound> groupMessagesIntoRounds(List<Message> messages) {
+	List<DialogRound> groupMessagesIntoRounds(List<Message> messages) {
 		List<DialogRound> rounds = new ArrayList<>();
 		DialogRound currentRound = null;
 
@@ -427,7 +427,7 @@ public class ConversationMemoryLimitService {
 	 * UserMessage + AssistantMessage pairs For agent memory: typically AssistantMessage
 	 * (with tool calls) + ToolResponseMessage pairs
 	 */
-	private static class DialogRound {
+	static class DialogRound {
 
 		private final List<Message> messages = new ArrayList<>();
 
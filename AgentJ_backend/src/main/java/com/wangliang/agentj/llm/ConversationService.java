@@ -17,6 +17,7 @@ package com.wangliang.agentj.llm;
 
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wangliang.agentj.advisor.LlmCallSchedulerAdvisor;
 import com.wangliang.agentj.advisor.MyLoggerAdvisor;
 import com.wangliang.agentj.advisor.ReReadingAdvisor;
 import com.wangliang.agentj.tools.searchAPI.WebSearch;
@@ -31,6 +32,7 @@ import org.springframework.ai.chat.memory.ChatMemory;
 import org.springframework.ai.chat.memory.MessageWindowChatMemory;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
 import org.springframework.ai.rag.advisor.RetrievalAugmentationAdvisor;
 import org.springframework.ai.rag.retrieval.search.VectorStoreDocumentRetriever;
 import org.springframework.ai.tool.ToolCallback;
@@ -59,7 +61,8 @@ public class ConversationService {
 			你是一个全能的博士，专门帮助用户解决各种的疑难杂症。
 			""";
 
-	public ConversationService(ChatModel dashScopeModel, ObjectMapper objectMapper) {
+	public ConversationService(ChatModel dashScopeModel, ObjectMapper objectMapper,
+			LlmCallScheduler llmCallScheduler) {
 		this.objectMapper = objectMapper;
 
 		// 基于内存的对话记忆
@@ -72,11 +75,18 @@ public class ConversationService {
 						// 自定义日志拦截器
 						new MyLoggerAdvisor(),
 						// Re2 拦截器
-						new ReReadingAdvisor()
+						new ReReadingAdvisor(),
+						// Shares the per-model limit with the agents
+						new LlmCallSchedulerAdvisor(llmCallScheduler, defaultModelName(dashScopeModel))
 				)
 				.build();
 	}
 
+	private static String defaultModelName(ChatModel chatModel) {
+		ChatOptions options = chatModel.getDefaultOptions();
+		return options != null && options.getModel() != null ? options.getModel() : "dashscope";
+	}
+
 	/**
 	 * 带记忆的聊天
 	 */
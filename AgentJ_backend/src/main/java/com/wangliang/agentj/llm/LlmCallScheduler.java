@@ -0,0 +1,508 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.llm;
+
+import com.wangliang.agentj.model.exception.RateLimitException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.metadata.EmptyRateLimit;
+import org.springframework.ai.chat.metadata.RateLimit;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Process-wide admission control for LLM calls, keyed by model name.
+ *
+ * Every model gets its own limiter with three gates that a call has to pass before it
+ * is sent:
+ * <ul>
+ * <li>An adaptive concurrency limit (AIMD): it grows by {@code 1/limit} per successful
+ * call, shrinks by 10% when the per-token latency rises well above its running baseline,
+ * and is halved on a 429.</li>
+ * <li>A cooldown after a 429 or an exhausted provider quota. The cooldown honors
+ * {@code Retry-After} and the reset times reported through
+ * {@link ChatResponse#getMetadata()}{@code .getRateLimit()}, and is jittered so that
+ * throttled agents do not retry in lockstep.</li>
+ * <li>A token bucket sized from the provider's token limit. Calls are charged an
+ * estimate of their prompt tokens on admission and reconciled with the reported usage
+ * on completion. Until the provider reports a limit the bucket is unbounded.</li>
+ * </ul>
+ * Waiting calls are admitted by priority (deeper plans first, so sub-plans that their
+ * parents wait on drain before new work starts) and FIFO within a priority.
+ */
+@Service
+public class LlmCallScheduler {
+
+	private static final Logger log = LoggerFactory.getLogger(LlmCallScheduler.class);
+
+	private static final double INITIAL_LIMIT = 4;
+
+	private static final double MIN_LIMIT = 1;
+
+	private static final double MAX_LIMIT = 32;
+
+	/**
+	 * Per-token latency above this multiple of the baseline counts as congestion
+	 */
+	private static final double LATENCY_TOLERANCE = 2.0;
+
+	private static final double LATENCY_BACKOFF = 0.9;
+
+	private static final double BASELINE_ALPHA = 0.1;
+
+	private static final long BASE_COOLDOWN_MS = 2000;
+
+	private static final long MAX_COOLDOWN_MS = 60000;
+
+	/**
+	 * Upper bound for a single wait, so that waiters re-check their gates even if no
+	 * signal arrives
+	 */
+	private static final long MAX_WAIT_SLICE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	/**
+	 * Rough characters-per-token ratio used to estimate prompt tokens before a call
+	 */
+	public static final int CHARS_PER_TOKEN = 4;
+
+	private final Map<String, ModelLimiter> limiters = new ConcurrentHashMap<>();
+
+	/**
+	 * Wait until a call to the model may be sent
+	 * @param model Model name used as limiter key
+	 * @param priority Admission priority, higher goes first (the plan depth)
+	 * @param estimatedTokens Estimated prompt tokens of the call
+	 * @return Permit that must be completed or failed once the call has finished
+	 * @throws InterruptedException If interrupted while waiting
+	 */
+	public Permit acquire(String model, int priority, long estimatedTokens) throws InterruptedException {
+		ModelLimiter limiter = limiters.computeIfAbsent(model != null ? model : "", ModelLimiter::new);
+		limiter.acquire(priority, Math.max(estimatedTokens, 0));
+		return new Permit(limiter, Math.max(estimatedTokens, 0), System.nanoTime());
+	}
+
+	/**
+	 * Per-model statistics, sorted by model name
+	 */
+	public Map<String, ModelStats> getStats() {
+		Map<String, ModelStats> stats = new TreeMap<>();
+		limiters.forEach((model, limiter) -> stats.put(model, limiter.stats()));
+		return stats;
+	}
+
+	/**
+	 * Whether the error is a provider rate-limit rejection. Only typed signals count: a
+	 * {@link RateLimitException}, an HTTP 429 response, or a response carrying
+	 * {@code Retry-After}. Error messages are not inspected, as they may mention 429 for
+	 * unrelated reasons.
+	 */
+	public static boolean isRateLimitError(Throwable error) {
+		for (Throwable t = error; t != null && t.getCause() != t; t = t.getCause()) {
+			if (t instanceof RateLimitException) {
+				return true;
+			}
+			if (t instanceof WebClientResponseException webClientException) {
+				return webClientException.getStatusCode().value() == 429
+						|| hasRetryAfter(webClientException.getHeaders());
+			}
+			if (t instanceof RestClientResponseException restClientException) {
+				return restClientException.getStatusCode().value() == 429
+						|| hasRetryAfter(restClientException.getResponseHeaders());
+			}
+		}
+		return false;
+	}
+
+	private static boolean hasRetryAfter(HttpHeaders headers) {
+		return headers != null && headers.getFirst(HttpHeaders.RETRY_AFTER) != null;
+	}
+
+	/**
+	 * {@code Retry-After} of a 429 response in milliseconds, or -1 if absent
+	 */
+	static long retryAfterMillis(Throwable error) {
+		for (Throwable t = error; t != null && t.getCause() != t; t = t.getCause()) {
+			HttpHeaders headers = null;
+			if (t instanceof WebClientResponseException webClientException) {
+				headers = webClientException.getHeaders();
+			}
+			else if (t instanceof RestClientResponseException restClientException) {
+				headers = restClientException.getResponseHeaders();
+			}
+			if (headers != null) {
+				String retryAfter = headers.getFirst(HttpHeaders.RETRY_AFTER);
+				if (retryAfter != null) {
+					try {
+						return (long) (Double.parseDouble(retryAfter.trim()) * 1000);
+					}
+					catch (NumberFormatException e) {
+						// HTTP-date form is not used by LLM providers; fall back to the
+						// computed cooldown
+						return -1;
+					}
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Admission of one call. Exactly one of {@link #complete(ChatResponse)} and
+	 * {@link #fail(Throwable)} takes effect; later calls are ignored.
+	 */
+	public static class Permit {
+
+		private final ModelLimiter limiter;
+
+		private final long estimatedTokens;
+
+		private final long startNanos;
+
+		private boolean released;
+
+		private Permit(ModelLimiter limiter, long estimatedTokens, long startNanos) {
+			this.limiter = limiter;
+			this.estimatedTokens = estimatedTokens;
+			this.startNanos = startNanos;
+		}
+
+		/**
+		 * Release the permit after a successful call and feed its usage, latency and
+		 * rate-limit metadata back into the limiter
+		 * @param response Final (aggregated) response, may be null
+		 */
+		public synchronized void complete(ChatResponse response) {
+			if (released) {
+				return;
+			}
+			long promptTokens = 0;
+			long completionTokens = 0;
+			RateLimit rateLimit = null;
+			if (response != null && response.getMetadata() != null) {
+				Usage usage = response.getMetadata().getUsage();
+				if (usage != null) {
+					promptTokens = usage.getPromptTokens() != null ? usage.getPromptTokens() : 0;
+					completionTokens = usage.getCompletionTokens() != null ? usage.getCompletionTokens() : 0;
+				}
+				rateLimit = response.getMetadata().getRateLimit();
+			}
+			complete(promptTokens, completionTokens, rateLimit);
+		}
+
+		/**
+		 * Release the permit after a successful call whose response is not a
+		 * {@link ChatResponse}
+		 * @param promptTokens Reported prompt tokens, 0 if unknown
+		 * @param completionTokens Reported completion tokens, 0 if unknown
+		 * @param rateLimit Provider rate-limit metadata, may be null
+		 */
+		public synchronized void complete(long promptTokens, long completionTokens, RateLimit rateLimit) {
+			if (released) {
+				return;
+			}
+			released = true;
+			limiter.onSuccess(System.nanoTime() - startNanos, estimatedTokens, promptTokens, completionTokens,
+					rateLimit);
+		}
+
+		/**
+		 * Release the permit after a failed call
+		 * @param error Failure; a 429 shrinks the limit and starts a cooldown
+		 */
+		public synchronized void fail(Throwable error) {
+			if (released) {
+				return;
+			}
+			released = true;
+			limiter.onFailure(error);
+		}
+
+	}
+
+	/**
+	 * Snapshot of a model limiter
+	 * @param limit Current concurrency limit
+	 * @param inFlight Calls currently admitted
+	 * @param queued Calls waiting for admission
+	 * @param completed Successful calls
+	 * @param failed Failed calls, including throttled ones
+	 * @param throttled Calls rejected with 429
+	 * @param averageLatencyMs Average latency of successful calls
+	 * @param promptTokens Reported prompt tokens of successful calls
+	 * @param completionTokens Reported completion tokens of successful calls
+	 * @param availableTokens Tokens left in the bucket, or -1 while no limit is known
+	 * @param cooldownRemainingMs Remaining cooldown before new calls are admitted
+	 */
+	public record ModelStats(int limit, int inFlight, int queued, long completed, long failed, long throttled,
+			long averageLatencyMs, long promptTokens, long completionTokens, long availableTokens,
+			long cooldownRemainingMs) {
+	}
+
+	private record Waiter(int priority, long sequence) implements Comparable<Waiter> {
+
+		@Override
+		public int compareTo(Waiter other) {
+			if (priority != other.priority) {
+				return Integer.compare(other.priority, priority);
+			}
+			return Long.compare(sequence, other.sequence);
+		}
+
+	}
+
+	static class ModelLimiter {
+
+		private final String model;
+
+		private final ReentrantLock lock = new ReentrantLock();
+
+		private final Condition changed = lock.newCondition();
+
+		private final PriorityQueue<Waiter> waiters = new PriorityQueue<>();
+
+		private final AtomicLong sequence = new AtomicLong();
+
+		private double limit = INITIAL_LIMIT;
+
+		private int inFlight;
+
+		private long blockedUntilNanos = System.nanoTime();
+
+		private int consecutiveThrottles;
+
+		// Token bucket; capacity 0 means no limit is known yet
+		private double tokenCapacity;
+
+		private double tokens;
+
+		private double refillPerNano;
+
+		private long lastRefillNanos = System.nanoTime();
+
+		// Running per-token latency baseline in nanoseconds, 0 until the first sample
+		private double latencyBaseline;
+
+		private long completed;
+
+		private long failed;
+
+		private long throttled;
+
+		private long totalLatencyNanos;
+
+		private long promptTokens;
+
+		private long completionTokens;
+
+		ModelLimiter(String model) {
+			this.model = model;
+		}
+
+		void acquire(int priority, long estimatedTokens) throws InterruptedException {
+			Waiter waiter = new Waiter(priority, sequence.getAndIncrement());
+			lock.lock();
+			try {
+				waiters.add(waiter);
+				try {
+					while (true) {
+						long now = System.nanoTime();
+						refill(now);
+						long waitNanos = MAX_WAIT_SLICE_NANOS;
+						if (waiters.peek() == waiter && inFlight < (int) limit) {
+							if (now - blockedUntilNanos < 0) {
+								waitNanos = Math.min(waitNanos, blockedUntilNanos - now);
+							}
+							else if (hasTokens(estimatedTokens)) {
+								break;
+							}
+							else if (refillPerNano > 0) {
+								waitNanos = Math.min(waitNanos,
+										(long) ((Math.min(estimatedTokens, tokenCapacity) - tokens) / refillPerNano) + 1);
+							}
+						}
+						changed.awaitNanos(Math.max(waitNanos, 1));
+					}
+				}
+				finally {
+					waiters.remove(waiter);
+					// Let the next waiter re-evaluate its position
+					changed.signalAll();
+				}
+				inFlight++;
+				if (tokenCapacity > 0) {
+					tokens -= estimatedTokens;
+				}
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+
+		void onSuccess(long latencyNanos, long estimatedTokens, long prompt, long completion, RateLimit rateLimit) {
+			lock.lock();
+			try {
+				inFlight--;
+				completed++;
+				totalLatencyNanos += latencyNanos;
+				promptTokens += prompt;
+				completionTokens += completion;
+				consecutiveThrottles = 0;
+
+				long now = System.nanoTime();
+				refill(now);
+				if (tokenCapacity > 0 && prompt + completion > 0) {
+					// Reconcile the admission estimate with the reported usage
+					tokens -= (prompt + completion) - estimatedTokens;
+				}
+				applyRateLimit(rateLimit, now);
+
+				double perToken = latencyNanos / (double) Math.max(completion, 1);
+				if (latencyBaseline > 0 && perToken > latencyBaseline * LATENCY_TOLERANCE) {
+					limit = Math.max(MIN_LIMIT, limit * LATENCY_BACKOFF);
+				}
+				else {
+					limit = Math.min(MAX_LIMIT, limit + 1.0 / limit);
+				}
+				latencyBaseline = latencyBaseline == 0 ? perToken
+						: latencyBaseline + BASELINE_ALPHA * (perToken - latencyBaseline);
+				changed.signalAll();
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+
+		void onFailure(Throwable error) {
+			lock.lock();
+			try {
+				inFlight--;
+				failed++;
+				if (isRateLimitError(error)) {
+					throttled++;
+					consecutiveThrottles++;
+					limit = Math.max(MIN_LIMIT, limit / 2);
+					long cooldownMs = retryAfterMillis(error);
+					if (cooldownMs < 0) {
+						cooldownMs = Math.min(BASE_COOLDOWN_MS << Math.min(consecutiveThrottles - 1, 5),
+								MAX_COOLDOWN_MS);
+					}
+					// Up to 50% jitter spreads the retries of throttled callers
+					cooldownMs += (long) (cooldownMs * ThreadLocalRandom.current().nextDouble(0.5));
+					blockUntil(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(cooldownMs));
+					log.warn("Model {} rate limited, concurrency limit lowered to {}, pausing calls for {} ms", model,
+							(int) limit, cooldownMs);
+				}
+				changed.signalAll();
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Adopt the provider's view of the request and token quota
+		 */
+		private void applyRateLimit(RateLimit rateLimit, long now) {
+			if (rateLimit == null || rateLimit instanceof EmptyRateLimit) {
+				return;
+			}
+			Long tokensLimit = rateLimit.getTokensLimit();
+			Long tokensRemaining = rateLimit.getTokensRemaining();
+			if (tokensLimit != null && tokensLimit > 0) {
+				if (tokenCapacity <= 0) {
+					// First report: start from the provider's remaining quota
+					tokens = tokensRemaining != null ? tokensRemaining : tokensLimit;
+				}
+				tokenCapacity = tokensLimit;
+				long resetNanos = toNanos(rateLimit.getTokensReset());
+				if (tokensRemaining != null) {
+					tokens = Math.min(tokens, tokensRemaining);
+					if (resetNanos > 0 && tokensRemaining < tokensLimit) {
+						refillPerNano = (tokensLimit - tokensRemaining) / (double) resetNanos;
+					}
+				}
+				if (refillPerNano <= 0) {
+					// Provider token limits are per minute
+					refillPerNano = tokensLimit / (double) TimeUnit.MINUTES.toNanos(1);
+				}
+				if (tokensRemaining != null && tokensRemaining <= 0 && resetNanos > 0) {
+					blockUntil(now + resetNanos);
+				}
+			}
+			Long requestsRemaining = rateLimit.getRequestsRemaining();
+			if (requestsRemaining != null && requestsRemaining <= 0) {
+				long resetNanos = toNanos(rateLimit.getRequestsReset());
+				if (resetNanos > 0) {
+					blockUntil(now + resetNanos);
+				}
+			}
+		}
+
+		private void blockUntil(long nanos) {
+			if (nanos - blockedUntilNanos > 0) {
+				blockedUntilNanos = nanos;
+			}
+		}
+
+		private boolean hasTokens(long estimatedTokens) {
+			// A call larger than the whole bucket is admitted once the bucket is full
+			return tokenCapacity <= 0 || tokens >= Math.min(estimatedTokens, tokenCapacity);
+		}
+
+		private void refill(long now) {
+			if (tokenCapacity > 0 && refillPerNano > 0) {
+				tokens = Math.min(tokenCapacity, tokens + (now - lastRefillNanos) * refillPerNano);
+			}
+			lastRefillNanos = now;
+		}
+
+		ModelStats stats() {
+			lock.lock();
+			try {
+				long now = System.nanoTime();
+				refill(now);
+				return new ModelStats((int) limit, inFlight, waiters.size(), completed, failed, throttled,
+						completed > 0 ? TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos / completed) : 0, promptTokens,
+						completionTokens, tokenCapacity > 0 ? (long) tokens : -1,
+						Math.max(TimeUnit.NANOSECONDS.toMillis(blockedUntilNanos - now), 0));
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+
+		private static long toNanos(Duration duration) {
+			return duration != null && !duration.isNegative() ? duration.toNanos() : 0;
+		}
+
+	}
+
+}
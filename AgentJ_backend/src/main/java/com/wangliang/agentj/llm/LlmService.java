@@ -15,6 +15,7 @@
  */
 package com.wangliang.agentj.llm;
 
+import com.wangliang.agentj.advisor.LlmCallSchedulerAdvisor;
 import com.wangliang.agentj.event.LynxeListener;
 import com.wangliang.agentj.event.ModelChangeEvent;
 import com.wangliang.agentj.model.entity.DynamicModelEntity;
@@ -39,14 +40,22 @@ import org.springframework.ai.openai.api.OpenAiApi;
 import org.springframework.ai.retry.RetryUtils;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.stereotype.Service;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResponseErrorHandler;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 
+import java.io.IOException;
+import java.net.URI;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
@@ -58,6 +67,40 @@ public class LlmService implements LynxeListener<ModelChangeEvent> {
 
 	private static final Logger log = LoggerFactory.getLogger(LlmService.class);
 
+	/**
+	 * Spring AI's default handler reports 429 as a plain NonTransientAiException. Throw
+	 * it as an HttpClientErrorException instead, so the status and Retry-After header
+	 * reach {@link LlmCallScheduler} as typed values.
+	 */
+	private static final ResponseErrorHandler RESPONSE_ERROR_HANDLER = new ResponseErrorHandler() {
+
+		@Override
+		public boolean hasError(ClientHttpResponse response) throws IOException {
+			return RetryUtils.DEFAULT_RESPONSE_ERROR_HANDLER.hasError(response);
+		}
+
+		@Override
+		public void handleError(URI url, HttpMethod method, ClientHttpResponse response) throws IOException {
+			throwIfTooManyRequests(response);
+			RetryUtils.DEFAULT_RESPONSE_ERROR_HANDLER.handleError(url, method, response);
+		}
+
+		@Override
+		@SuppressWarnings("deprecation")
+		public void handleError(ClientHttpResponse response) throws IOException {
+			throwIfTooManyRequests(response);
+			RetryUtils.DEFAULT_RESPONSE_ERROR_HANDLER.handleError(response);
+		}
+
+		private void throwIfTooManyRequests(ClientHttpResponse response) throws IOException {
+			if (response.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value()) {
+				throw HttpClientErrorException.create(response.getStatusCode(), response.getStatusText(),
+						response.getHeaders(), StreamUtils.copyToByteArray(response.getBody()), null);
+			}
+		}
+
+	};
+
 	private DynamicModelEntity defaultModel;
 
 	private ChatClient diaChatClient;
@@ -69,6 +112,8 @@ public class LlmService implements LynxeListener<ModelChangeEvent> {
 
 	private ChatMemory agentMemory;
 
+	private ChatMemoryRepository agentMemoryRepository;
+
 	/*
 	 * Required for creating custom chatModel
 	 */
@@ -106,6 +151,9 @@ public class LlmService implements LynxeListener<ModelChangeEvent> {
 	@org.springframework.context.annotation.Lazy
 	private ConversationMemoryLimitService conversationMemoryLimitService;
 
+	@Autowired
+	private LlmCallScheduler llmCallScheduler;
+
 	public LlmService() {
 	}
 
@@ -119,10 +167,13 @@ public class LlmService implements LynxeListener<ModelChangeEvent> {
 		// Use the existing openAiChatModel method which calls openAiApi()
 		OpenAiChatModel chatModel = openAiChatModel(modelName, model, options);
 
+		// Every call goes through the shared per-model scheduler
+		Advisor schedulerAdvisor = new LlmCallSchedulerAdvisor(llmCallScheduler,
+				modelName == null || modelName.isEmpty() ? model.getModelName() : modelName);
 		var personalMemoryAdvisor = personalMemoryAdvisorProvider.getIfAvailable();
 		Advisor[] defaultAdvisors = personalMemoryAdvisor == null
-				? new Advisor[] { new SimpleLoggerAdvisor() }
-				: new Advisor[] { new SimpleLoggerAdvisor(), personalMemoryAdvisor };
+				? new Advisor[] { new SimpleLoggerAdvisor(), schedulerAdvisor }
+				: new Advisor[] { new SimpleLoggerAdvisor(), personalMemoryAdvisor, schedulerAdvisor };
 
 		return ChatClient.builder(chatModel)
 			.defaultAdvisors(defaultAdvisors)
@@ -208,11 +259,30 @@ public class LlmService implements LynxeListener<ModelChangeEvent> {
 		return client;
 	}
 
+	/**
+	 * Name under which calls for the model are cached and scheduled; the default model's
+	 * name when modelName is null or empty
+	 */
+	public String resolveModelName(String modelName) {
+		if (modelName != null && !modelName.isEmpty()) {
+			return modelName;
+		}
+		return defaultModel != null ? defaultModel.getModelName() : "";
+	}
+
+	/**
+	 * Shared admission control for LLM calls
+	 */
+	public LlmCallScheduler getCallScheduler() {
+		return llmCallScheduler;
+	}
+
 	public ChatMemory getAgentMemory(Integer maxMessages) {
 		if (agentMemory == null) {
+			agentMemoryRepository = new InMemoryChatMemoryRepository();
 			agentMemory = MessageWindowChatMemory.builder()
 				// in memory use by agent
-				.chatMemoryRepository(new InMemoryChatMemoryRepository())
+				.chatMemoryRepository(agentMemoryRepository)
 				.maxMessages(maxMessages)
 				.build();
 		}
@@ -225,6 +295,22 @@ public class LlmService implements LynxeListener<ModelChangeEvent> {
 		}
 	}
 
+	/**
+	 * Clear the agent memory of a plan, which is keyed by the plan ID or by
+	 * {@code planId/stepId} for each of its steps
+	 */
+	public void clearPlanAgentMemory(String planId) {
+		if (this.agentMemory == null || planId == null) {
+			return;
+		}
+		String stepPrefix = planId + "/";
+		for (String memoryId : this.agentMemoryRepository.findConversationIds()) {
+			if (memoryId.equals(planId) || memoryId.startsWith(stepPrefix)) {
+				this.agentMemory.clear(memoryId);
+			}
+		}
+	}
+
 	public ChatClient getDiaChatClient() {
 		if (diaChatClient == null) {
 			// Try lazy initialization
@@ -459,7 +545,7 @@ public class LlmService implements LynxeListener<ModelChangeEvent> {
 
 		return new OpenAiApi(dynamicModelEntity.getBaseUrl(), new SimpleApiKey(dynamicModelEntity.getApiKey()),
 				multiValueMap, completionsPath, "/v1/embeddings", restClientBuilder, enhancedWebClientBuilder,
-				RetryUtils.DEFAULT_RESPONSE_ERROR_HANDLER) {
+				RESPONSE_ERROR_HANDLER) {
 
 			@Override
 			public ResponseEntity<ChatCompletion> chatCompletionEntity(ChatCompletionRequest chatRequest,
@@ -17,6 +17,9 @@ package com.wangliang.agentj.llm;
 
 import com.wangliang.agentj.event.LynxeEventPublisher;
 import com.wangliang.agentj.event.PlanExceptionEvent;
+import com.wangliang.agentj.llm.usage.service.LlmUsageAccountant;
+import com.wangliang.agentj.llm.usage.vo.LlmCallContext;
+import com.wangliang.agentj.runtime.observation.LynxeObservations;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.messages.AssistantMessage;
@@ -31,7 +34,9 @@ import org.springframework.util.StringUtils;
 import reactor.core.publisher.Flux;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -54,6 +59,9 @@ public class StreamingResponseHandler {
 	@Autowired
 	private com.fasterxml.jackson.databind.ObjectMapper objectMapper;
 
+	@Autowired
+	private LlmUsageAccountant llmUsageAccountant;
+
 	/**
 	 * Result container for streaming response processing
 	 */
@@ -155,6 +163,18 @@ public class StreamingResponseHandler {
 	 */
 	public StreamingResult processStreamingResponse(Flux<ChatResponse> responseFlux, String contextName, String planId,
 			boolean isDebugModel, boolean enableEarlyTermination, int inputCharCount) {
+		return processStreamingResponse(responseFlux, contextName, planId, isDebugModel, enableEarlyTermination,
+				inputCharCount, null);
+	}
+
+	/**
+	 * Process a streaming chat response flux and account its usage
+	 * @param callContext Caller of the request for usage accounting, null to skip
+	 * accounting
+	 * @see #processStreamingResponse(Flux, String, String, boolean, boolean, int)
+	 */
+	public StreamingResult processStreamingResponse(Flux<ChatResponse> responseFlux, String contextName, String planId,
+			boolean isDebugModel, boolean enableEarlyTermination, int inputCharCount, LlmCallContext callContext) {
 		// Create a new LlmTraceRecorder instance for this request
 		LlmTraceRecorder llmTraceRecorder = new LlmTraceRecorder(objectMapper);
 		// Set input count (calculated from messages in DynamicAgent/PlanFinalizer)
@@ -187,6 +207,9 @@ public class StreamingResponseHandler {
 
 			AtomicInteger responseCounter = new AtomicInteger(0);
 			long startTime = System.currentTimeMillis();
+			// The flux is cold, so the request is only sent when blockLast() subscribes
+			long callStartNanos = System.nanoTime();
+			AtomicLong firstChunkDelayNanos = new AtomicLong(-1);
 
 			// Store output character count for retrieval after stream completes
 			AtomicReference<Integer> outputCharCountRef = new AtomicReference<>(0);
@@ -219,7 +242,9 @@ public class StreamingResponseHandler {
 				metadataRateLimitRef.set(new EmptyRateLimit());
 
 			}).doOnNext(chatResponse -> {
-				responseCounter.incrementAndGet();
+				if (responseCounter.incrementAndGet() == 1) {
+					firstChunkDelayNanos.set(System.nanoTime() - callStartNanos);
+				}
 
 				if (chatResponse.getResult() != null) {
 					if (chatResponse.getResult().getMetadata() != null
@@ -277,7 +302,7 @@ public class StreamingResponseHandler {
 						metadataPromptMetadataRef.set(chatResponse.getMetadata().getPromptMetadata());
 					}
 					if (chatResponse.getMetadata().getRateLimit() != null
-							&& !(metadataRateLimitRef.get() instanceof EmptyRateLimit)) {
+							&& !(chatResponse.getMetadata().getRateLimit() instanceof EmptyRateLimit)) {
 						metadataRateLimitRef.set(chatResponse.getMetadata().getRateLimit());
 					}
 					if (StringUtils.hasText(chatResponse.getMetadata().getId())) {
@@ -390,9 +415,12 @@ public class StreamingResponseHandler {
 			});
 
 			try {
-				finalFlux.blockLast();
+				LynxeObservations.observe("lynxe.llm.stream", () -> finalFlux.blockLast());
 			}
 			catch (Exception e) {
+				recordUsage(callContext, metadataModelRef.get(), metadataUsagePromptTokensRef.get(),
+						metadataUsageGenerationTokensRef.get(), metadataUsageTotalTokensRef.get(), callStartNanos,
+						firstChunkDelayNanos.get(), false);
 				// Record error in trace logger
 				llmTraceRecorder.recordError(e);
 
@@ -419,6 +447,18 @@ public class StreamingResponseHandler {
 				outputCharCountRef.set(llmTraceRecorder.getOutputCharCount());
 				inputCharCountRef.set(llmTraceRecorder.getInputCharCount());
 			}
+			ChatResponse finalResponse = finalChatResponseRef.get();
+			if (finalResponse != null && finalResponse.getMetadata() != null
+					&& finalResponse.getMetadata().getUsage() != null) {
+				Usage usage = finalResponse.getMetadata().getUsage();
+				recordUsage(callContext, finalResponse.getMetadata().getModel(), usage.getPromptTokens(),
+						usage.getCompletionTokens(), usage.getTotalTokens(), callStartNanos, firstChunkDelayNanos.get(),
+						true);
+			}
+			else {
+				recordUsage(callContext, metadataModelRef.get(), 0, 0, 0, callStartNanos, firstChunkDelayNanos.get(),
+						true);
+			}
 			// Check if early termination occurred and pass the flag to StreamingResult
 			boolean wasEarlyTerminated = shouldEarlyTerminate.get();
 			return new StreamingResult(finalChatResponseRef.get(), wasEarlyTerminated, outputCharCountRef.get(),
@@ -449,12 +489,36 @@ public class StreamingResponseHandler {
 	 */
 	public String processStreamingTextResponse(Flux<ChatResponse> responseFlux, String contextName, String planId,
 			boolean isDebugModel, int inputCharCount) {
+		return processStreamingTextResponse(responseFlux, contextName, planId, isDebugModel, inputCharCount, null);
+	}
+
+	/**
+	 * Process a streaming text-only response and account its usage
+	 * @param callContext Caller of the request for usage accounting, null to skip
+	 * accounting
+	 * @see #processStreamingTextResponse(Flux, String, String, boolean, int)
+	 */
+	public String processStreamingTextResponse(Flux<ChatResponse> responseFlux, String contextName, String planId,
+			boolean isDebugModel, int inputCharCount, LlmCallContext callContext) {
 		// For text-only responses, disable early termination (no tool calls expected)
 		StreamingResult result = processStreamingResponse(responseFlux, contextName, planId, isDebugModel, false,
-				inputCharCount);
+				inputCharCount, callContext);
 		return result.getEffectiveText();
 	}
 
+	private void recordUsage(LlmCallContext callContext, String responseModel, Integer promptTokens,
+			Integer completionTokens, Integer totalTokens, long startNanos, long firstChunkDelayNanos,
+			boolean success) {
+		if (callContext == null || llmUsageAccountant == null) {
+			return;
+		}
+		long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+		long ttftMs = firstChunkDelayNanos >= 0 ? TimeUnit.NANOSECONDS.toMillis(firstChunkDelayNanos) : -1;
+		llmUsageAccountant.record(callContext, responseModel, promptTokens != null ? promptTokens : 0,
+				completionTokens != null ? completionTokens : 0, totalTokens != null ? totalTokens : 0, latencyMs,
+				ttftMs, success);
+	}
+
 	private void logProgress(String contextName, String currentText, List<ToolCall> toolCalls, int responseCount,
 			long startTime) {
 		int textLength = currentText != null ? currentText.length() : 0;
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.llm.usage.controller;
+
+import com.wangliang.agentj.llm.usage.entity.LlmUsageEntity;
+import com.wangliang.agentj.llm.usage.repository.LlmUsageRepository;
+import com.wangliang.agentj.llm.usage.service.LlmUsageAccountant;
+import com.wangliang.agentj.llm.usage.service.UsageTotals;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Token and latency accounting of LLM calls
+ */
+@RestController
+@RequestMapping("/api/llm-usage")
+public class LlmUsageController {
+
+	@Autowired
+	private LlmUsageAccountant llmUsageAccountant;
+
+	@Autowired
+	private LlmUsageRepository llmUsageRepository;
+
+	/**
+	 * Usage of a plan, per step while the plan is in memory and per call afterwards
+	 */
+	@GetMapping("/plans/{planId}")
+	public ResponseEntity<Map<String, Object>> getPlanUsage(@PathVariable("planId") String planId) {
+		Map<String, Object> response = new HashMap<>();
+		response.put("planId", planId);
+		UsageTotals.Snapshot live = llmUsageAccountant.getPlanUsage(planId);
+		if (live != null) {
+			response.put("source", "memory");
+			response.put("total", live);
+			response.put("steps", llmUsageAccountant.getStepUsage(planId));
+		}
+		else {
+			List<LlmUsageEntity> calls = llmUsageRepository.findByPlanIdOrderByIdAsc(planId);
+			if (calls.isEmpty()) {
+				return ResponseEntity.notFound().build();
+			}
+			response.put("source", "database");
+			response.put("calls", calls);
+		}
+		return ResponseEntity.ok(response);
+	}
+
+	/**
+	 * Usage of a root plan including its sub-plans
+	 */
+	@GetMapping("/root-plans/{rootPlanId}")
+	public ResponseEntity<Map<String, Object>> getRootPlanUsage(@PathVariable("rootPlanId") String rootPlanId) {
+		Map<String, Object> response = new HashMap<>();
+		response.put("rootPlanId", rootPlanId);
+		UsageTotals.Snapshot live = llmUsageAccountant.getRootPlanUsage(rootPlanId);
+		if (live != null) {
+			response.put("total", live);
+		}
+		// Per-plan breakdown only covers records flushed so far
+		List<LlmUsageRepository.UsageAggregate> plans = llmUsageRepository.sumByPlanOfRootPlan(rootPlanId);
+		if (live == null && plans.isEmpty()) {
+			return ResponseEntity.notFound().build();
+		}
+		response.put("plans", plans);
+		return ResponseEntity.ok(response);
+	}
+
+	/**
+	 * Root plans with the most tokens or latency in the last hours
+	 * @param orderBy "tokens" (default) or "latency"
+	 */
+	@GetMapping("/top-plans")
+	public ResponseEntity<List<LlmUsageRepository.UsageAggregate>> getTopPlans(
+			@RequestParam(value = "hours", defaultValue = "24") int hours,
+			@RequestParam(value = "limit", defaultValue = "20") int limit,
+			@RequestParam(value = "orderBy", defaultValue = "tokens") String orderBy) {
+		LocalDateTime since = LocalDateTime.now().minusHours(hours);
+		PageRequest page = PageRequest.of(0, Math.max(1, Math.min(limit, 500)));
+		if ("latency".equalsIgnoreCase(orderBy)) {
+			return ResponseEntity.ok(llmUsageRepository.topRootPlansByLatency(since, page));
+		}
+		return ResponseEntity.ok(llmUsageRepository.topRootPlansByTokens(since, page));
+	}
+
+	/**
+	 * Usage per model in the last hours
+	 */
+	@GetMapping("/models")
+	public ResponseEntity<List<LlmUsageRepository.UsageAggregate>> getModelUsage(
+			@RequestParam(value = "hours", defaultValue = "24") int hours) {
+		return ResponseEntity.ok(llmUsageRepository.sumByModel(LocalDateTime.now().minusHours(hours)));
+	}
+
+	/**
+	 * Usage per user in the last hours
+	 */
+	@GetMapping("/users")
+	public ResponseEntity<List<LlmUsageRepository.UsageAggregate>> getUserUsage(
+			@RequestParam(value = "hours", defaultValue = "24") int hours) {
+		return ResponseEntity.ok(llmUsageRepository.sumByUser(LocalDateTime.now().minusHours(hours)));
+	}
+
+	/**
+	 * Totals since startup per model and user, and the persistence queue state
+	 */
+	@GetMapping("/live")
+	public ResponseEntity<Map<String, Object>> getLiveUsage() {
+		Map<String, Object> response = new HashMap<>();
+		response.put("models", llmUsageAccountant.getModelUsage());
+		response.put("users", llmUsageAccountant.getUserUsage());
+		response.put("pendingRecords", llmUsageAccountant.getPendingCount());
+		response.put("droppedRecords", llmUsageAccountant.getDroppedCount());
+		return ResponseEntity.ok(response);
+	}
+
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.llm.usage.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Token usage and latency of one LLM call
+ */
+@Entity
+@Table(name = "llm_usage_record")
+public class LlmUsageEntity {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@Column(length = 64)
+	private String planId;
+
+	@Column(length = 64)
+	private String rootPlanId;
+
+	@Column(length = 64)
+	private String stepId;
+
+	@Column(length = 128)
+	private String agentName;
+
+	@Column(length = 128)
+	private String modelName;
+
+	@Column
+	private Long userId;
+
+	@Column(nullable = false)
+	private Integer attempt;
+
+	@Column(nullable = false)
+	private Integer promptTokens;
+
+	@Column(nullable = false)
+	private Integer completionTokens;
+
+	@Column(nullable = false)
+	private Integer totalTokens;
+
+	@Column(nullable = false)
+	private Long latencyMs;
+
+	// Time to first streamed chunk, null if no chunk arrived
+	@Column
+	private Long ttftMs;
+
+	@Column(nullable = false)
+	private Boolean success;
+
+	@Column(nullable = false)
+	private LocalDateTime createTime;
+
+	public LlmUsageEntity() {
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getPlanId() {
+		return planId;
+	}
+
+	public void setPlanId(String planId) {
+		this.planId = planId;
+	}
+
+	public String getRootPlanId() {
+		return rootPlanId;
+	}
+
+	public void setRootPlanId(String rootPlanId) {
+		this.rootPlanId = rootPlanId;
+	}
+
+	public String getStepId() {
+		return stepId;
+	}
+
+	public void setStepId(String stepId) {
+		this.stepId = stepId;
+	}
+
+	public String getAgentName() {
+		return agentName;
+	}
+
+	public void setAgentName(String agentName) {
+		this.agentName = agentName;
+	}
+
+	public String getModelName() {
+		return modelName;
+	}
+
+	public void setModelName(String modelName) {
+		this.modelName = modelName;
+	}
+
+	public Long getUserId() {
+		return userId;
+	}
+
+	public void setUserId(Long userId) {
+		this.userId = userId;
+	}
+
+	public Integer getAttempt() {
+		return attempt;
+	}
+
+	public void setAttempt(Integer attempt) {
+		this.attempt = attempt;
+	}
+
+	public Integer getPromptTokens() {
+		return promptTokens;
+	}
+
+	public void setPromptTokens(Integer promptTokens) {
+		this.promptTokens = promptTokens;
+	}
+
+	public Integer getCompletionTokens() {
+		return completionTokens;
+	}
+
+	public void setCompletionTokens(Integer completionTokens) {
+		this.completionTokens = completionTokens;
+	}
+
+	public Integer getTotalTokens() {
+		return totalTokens;
+	}
+
+	public void setTotalTokens(Integer totalTokens) {
+		this.totalTokens = totalTokens;
+	}
+
+	public Long getLatencyMs() {
+		return latencyMs;
+	}
+
+	public void setLatencyMs(Long latencyMs) {
+		this.latencyMs = latencyMs;
+	}
+
+	public Long getTtftMs() {
+		return ttftMs;
+	}
+
+	public void setTtftMs(Long ttftMs) {
+		this.ttftMs = ttftMs;
+	}
+
+	public Boolean getSuccess() {
+		return success;
+	}
+
+	public void setSuccess(Boolean success) {
+		this.success = success;
+	}
+
+	public LocalDateTime getCreateTime() {
+		return createTime;
+	}
+
+	public void setCreateTime(LocalDateTime createTime) {
+		this.createTime = createTime;
+	}
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.llm.usage.repository;
+
+import com.wangliang.agentj.llm.usage.entity.LlmUsageEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface LlmUsageRepository extends JpaRepository<LlmUsageEntity, Long> {
+
+	/**
+	 * Usage summed over a group of calls
+	 */
+	interface UsageAggregate {
+
+		String getName();
+
+		Long getCalls();
+
+		Long getFailures();
+
+		Long getRetries();
+
+		Long getPromptTokens();
+
+		Long getCompletionTokens();
+
+		Long getTotalTokens();
+
+		Long getLatencyMs();
+
+	}
+
+	String AGGREGATE_COLUMNS = "COUNT(u) AS calls, SUM(CASE WHEN u.success = false THEN 1 ELSE 0 END) AS failures, "
+			+ "SUM(CASE WHEN u.attempt > 1 THEN 1 ELSE 0 END) AS retries, SUM(u.promptTokens) AS promptTokens, "
+			+ "SUM(u.completionTokens) AS completionTokens, SUM(u.totalTokens) AS totalTokens, "
+			+ "SUM(u.latencyMs) AS latencyMs";
+
+	List<LlmUsageEntity> findByPlanIdOrderByIdAsc(String planId);
+
+	@Query("SELECT u.planId AS name, " + AGGREGATE_COLUMNS
+			+ " FROM LlmUsageEntity u WHERE u.rootPlanId = :rootPlanId GROUP BY u.planId")
+	List<UsageAggregate> sumByPlanOfRootPlan(@Param("rootPlanId") String rootPlanId);
+
+	@Query("SELECT u.rootPlanId AS name, " + AGGREGATE_COLUMNS
+			+ " FROM LlmUsageEntity u WHERE u.createTime >= :since GROUP BY u.rootPlanId ORDER BY SUM(u.totalTokens) DESC")
+	List<UsageAggregate> topRootPlansByTokens(@Param("since") LocalDateTime since, Pageable pageable);
+
+	@Query("SELECT u.rootPlanId AS name, " + AGGREGATE_COLUMNS
+			+ " FROM LlmUsageEntity u WHERE u.createTime >= :since GROUP BY u.rootPlanId ORDER BY SUM(u.latencyMs) DESC")
+	List<UsageAggregate> topRootPlansByLatency(@Param("since") LocalDateTime since, Pageable pageable);
+
+	@Query("SELECT u.modelName AS name, " + AGGREGATE_COLUMNS
+			+ " FROM LlmUsageEntity u WHERE u.createTime >= :since GROUP BY u.modelName ORDER BY SUM(u.totalTokens) DESC")
+	List<UsageAggregate> sumByModel(@Param("since") LocalDateTime since);
+
+	@Query("SELECT CAST(u.userId AS String) AS name, " + AGGREGATE_COLUMNS
+			+ " FROM LlmUsageEntity u WHERE u.createTime >= :since AND u.userId IS NOT NULL GROUP BY u.userId ORDER BY SUM(u.totalTokens) DESC")
+	List<UsageAggregate> sumByUser(@Param("since") LocalDateTime since);
+
+}
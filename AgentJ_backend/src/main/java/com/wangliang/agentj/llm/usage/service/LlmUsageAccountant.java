@@ -0,0 +1,340 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.llm.usage.service;
+
+import com.wangliang.agentj.llm.usage.entity.LlmUsageEntity;
+import com.wangliang.agentj.llm.usage.repository.LlmUsageRepository;
+import com.wangliang.agentj.llm.usage.vo.LlmCallContext;
+import com.wangliang.agentj.runtime.service.PlanScopedState;
+import com.wangliang.agentj.runtime.service.PlanStateRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token, latency and retry accounting of LLM calls.
+ *
+ * Each call is added to lock-free running totals per step, plan, root plan, model and
+ * user, counted in Micrometer meters, and queued for persistence. The queue is written to
+ * {@code llm_usage_record} in batches by a scheduled flush, so recording never waits for
+ * the database. Plan totals stay in memory until the plan has been idle for the plan
+ * state TTL; older plans are served from the persisted records.
+ */
+@Service
+public class LlmUsageAccountant {
+
+	private static final Logger log = LoggerFactory.getLogger(LlmUsageAccountant.class);
+
+	private static final String NO_STEP = "";
+
+	private final LlmUsageRepository llmUsageRepository;
+
+	private final MeterRegistry meterRegistry;
+
+	private final int batchSize;
+
+	private final int maxPending;
+
+	// planId -> stepId -> totals
+	private final PlanScopedState<Map<String, UsageTotals>> stepTotals;
+
+	private final PlanScopedState<UsageTotals> planTotals;
+
+	private final PlanScopedState<UsageTotals> rootPlanTotals;
+
+	private final Map<String, UsageTotals> modelTotals = new ConcurrentHashMap<>();
+
+	private final Map<Long, UsageTotals> userTotals = new ConcurrentHashMap<>();
+
+	private final Map<String, ModelMeters> modelMeters = new ConcurrentHashMap<>();
+
+	private final Queue<LlmUsageEntity> pending = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger pendingCount = new AtomicInteger();
+
+	private final AtomicLong droppedRecords = new AtomicLong();
+
+	public LlmUsageAccountant(LlmUsageRepository llmUsageRepository, MeterRegistry meterRegistry,
+			PlanStateRegistry planStateRegistry, @Value("${lynxe.llmUsage.batchSize:200}") int batchSize,
+			@Value("${lynxe.llmUsage.maxPending:10000}") int maxPending) {
+		this.llmUsageRepository = llmUsageRepository;
+		this.meterRegistry = meterRegistry;
+		this.batchSize = Math.max(1, batchSize);
+		this.maxPending = Math.max(this.batchSize, maxPending);
+		this.stepTotals = planStateRegistry.<Map<String, UsageTotals>>newScope("llmUsage.steps")
+			.evictOnCompletion(false)
+			.weigher(steps -> steps.size() * 256L)
+			.build();
+		this.planTotals = planStateRegistry.<UsageTotals>newScope("llmUsage.plans")
+			.evictOnCompletion(false)
+			.weigher(totals -> 256L)
+			.build();
+		this.rootPlanTotals = planStateRegistry.<UsageTotals>newScope("llmUsage.rootPlans")
+			.evictOnCompletion(false)
+			.weigher(totals -> 256L)
+			.build();
+		meterRegistry.gauge("lynxe.llm.usage.pending", pendingCount);
+	}
+
+	/**
+	 * Account for one LLM call
+	 * @param context Caller of the call
+	 * @param responseModel Model reported by the response, preferred over the requested
+	 * one when present
+	 * @param promptTokens Prompt tokens reported by the provider
+	 * @param completionTokens Completion tokens reported by the provider
+	 * @param totalTokens Total tokens reported by the provider
+	 * @param latencyMs Time from sending the request to the end of the stream
+	 * @param ttftMs Time to the first streamed chunk, negative if none arrived
+	 * @param success Whether the call completed without error
+	 */
+	public void record(LlmCallContext context, String responseModel, int promptTokens, int completionTokens,
+			int totalTokens, long latencyMs, long ttftMs, boolean success) {
+		if (context == null) {
+			return;
+		}
+		try {
+			String model = responseModel != null && !responseModel.isEmpty() ? responseModel
+					: (context.modelName() != null ? context.modelName() : "unknown");
+			int total = totalTokens > 0 ? totalTokens : promptTokens + completionTokens;
+			boolean retry = context.attempt() > 1;
+
+			if (context.planId() != null) {
+				String stepId = context.stepId() != null ? context.stepId() : NO_STEP;
+				stepTotals.computeIfAbsent(context.planId(), k -> new ConcurrentHashMap<>())
+					.computeIfAbsent(stepId, k -> new UsageTotals())
+					.add(promptTokens, completionTokens, total, latencyMs, ttftMs, retry, success);
+				planTotals.computeIfAbsent(context.planId(), k -> new UsageTotals())
+					.add(promptTokens, completionTokens, total, latencyMs, ttftMs, retry, success);
+			}
+			if (context.rootPlanId() != null) {
+				rootPlanTotals.computeIfAbsent(context.rootPlanId(), k -> new UsageTotals())
+					.add(promptTokens, completionTokens, total, latencyMs, ttftMs, retry, success);
+			}
+			modelTotals.computeIfAbsent(model, k -> new UsageTotals())
+				.add(promptTokens, completionTokens, total, latencyMs, ttftMs, retry, success);
+			if (context.userId() != null) {
+				userTotals.computeIfAbsent(context.userId(), k -> new UsageTotals())
+					.add(promptTokens, completionTokens, total, latencyMs, ttftMs, retry, success);
+			}
+
+			modelMeters.computeIfAbsent(model, ModelMeters::new)
+				.record(promptTokens, completionTokens, latencyMs, ttftMs, retry, success);
+
+			enqueue(toEntity(context, model, promptTokens, completionTokens, total, latencyMs, ttftMs, success));
+		}
+		catch (Exception e) {
+			// Accounting must never fail the call it describes
+			log.warn("Failed to record LLM usage for plan {}: {}", context.planId(), e.getMessage());
+		}
+	}
+
+	private LlmUsageEntity toEntity(LlmCallContext context, String model, int promptTokens, int completionTokens,
+			int totalTokens, long latencyMs, long ttftMs, boolean success) {
+		LlmUsageEntity entity = new LlmUsageEntity();
+		entity.setPlanId(context.planId());
+		entity.setRootPlanId(context.rootPlanId());
+		entity.setStepId(context.stepId());
+		entity.setAgentName(context.agentName());
+		entity.setModelName(model);
+		entity.setUserId(context.userId());
+		entity.setAttempt(context.attempt());
+		entity.setPromptTokens(promptTokens);
+		entity.setCompletionTokens(completionTokens);
+		entity.setTotalTokens(totalTokens);
+		entity.setLatencyMs(latencyMs);
+		entity.setTtftMs(ttftMs >= 0 ? ttftMs : null);
+		entity.setSuccess(success);
+		entity.setCreateTime(LocalDateTime.now());
+		return entity;
+	}
+
+	private void enqueue(LlmUsageEntity entity) {
+		pending.offer(entity);
+		if (pendingCount.incrementAndGet() > maxPending && pending.poll() != null) {
+			// Database is not keeping up; keep the newest records
+			pendingCount.decrementAndGet();
+			if (droppedRecords.incrementAndGet() % 1000 == 1) {
+				log.warn("LLM usage queue is full ({} records), {} records dropped so far", maxPending,
+						droppedRecords.get());
+			}
+		}
+	}
+
+	/**
+	 * Write queued records in batches
+	 */
+	@Scheduled(fixedDelayString = "${lynxe.llmUsage.flushIntervalMs:5000}")
+	public void flush() {
+		while (!pending.isEmpty()) {
+			List<LlmUsageEntity> batch = new ArrayList<>(batchSize);
+			LlmUsageEntity entity;
+			while (batch.size() < batchSize && (entity = pending.poll()) != null) {
+				batch.add(entity);
+			}
+			if (batch.isEmpty()) {
+				return;
+			}
+			pendingCount.addAndGet(-batch.size());
+			try {
+				llmUsageRepository.saveAll(batch);
+			}
+			catch (Exception e) {
+				log.error("Failed to persist {} LLM usage records, retrying in the next flush: {}", batch.size(),
+						e.getMessage());
+				batch.forEach(this::enqueue);
+				return;
+			}
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		flush();
+	}
+
+	/**
+	 * Running totals of a plan, or null if the plan is not in memory
+	 */
+	public UsageTotals.Snapshot getPlanUsage(String planId) {
+		UsageTotals totals = planTotals.get(planId);
+		return totals != null ? totals.snapshot() : null;
+	}
+
+	/**
+	 * Running totals per step of a plan; calls outside a step are keyed by an empty
+	 * string
+	 */
+	public Map<String, UsageTotals.Snapshot> getStepUsage(String planId) {
+		Map<String, UsageTotals.Snapshot> result = new TreeMap<>();
+		Map<String, UsageTotals> steps = stepTotals.get(planId);
+		if (steps != null) {
+			steps.forEach((stepId, totals) -> result.put(stepId, totals.snapshot()));
+		}
+		return result;
+	}
+
+	/**
+	 * Running totals of a root plan and all its sub-plans, or null if not in memory
+	 */
+	public UsageTotals.Snapshot getRootPlanUsage(String rootPlanId) {
+		UsageTotals totals = rootPlanTotals.get(rootPlanId);
+		return totals != null ? totals.snapshot() : null;
+	}
+
+	/**
+	 * Totals per model since startup
+	 */
+	public Map<String, UsageTotals.Snapshot> getModelUsage() {
+		Map<String, UsageTotals.Snapshot> result = new TreeMap<>();
+		modelTotals.forEach((model, totals) -> result.put(model, totals.snapshot()));
+		return result;
+	}
+
+	/**
+	 * Totals per user since startup
+	 */
+	public Map<Long, UsageTotals.Snapshot> getUserUsage() {
+		Map<Long, UsageTotals.Snapshot> result = new TreeMap<>();
+		userTotals.forEach((userId, totals) -> result.put(userId, totals.snapshot()));
+		return result;
+	}
+
+	public int getPendingCount() {
+		return pendingCount.get();
+	}
+
+	public long getDroppedCount() {
+		return droppedRecords.get();
+	}
+
+	/**
+	 * Meters of one model, looked up once instead of on every call
+	 */
+	private final class ModelMeters {
+
+		private final Counter promptTokens;
+
+		private final Counter completionTokens;
+
+		private final Counter retries;
+
+		private final Timer successLatency;
+
+		private final Timer failureLatency;
+
+		private final Timer ttft;
+
+		private ModelMeters(String model) {
+			this.promptTokens = Counter.builder("lynxe.llm.tokens")
+				.tag("model", model)
+				.tag("type", "prompt")
+				.register(meterRegistry);
+			this.completionTokens = Counter.builder("lynxe.llm.tokens")
+				.tag("model", model)
+				.tag("type", "completion")
+				.register(meterRegistry);
+			this.retries = Counter.builder("lynxe.llm.retries").tag("model", model).register(meterRegistry);
+			this.successLatency = Timer.builder("lynxe.llm.call.latency")
+				.tag("model", model)
+				.tag("outcome", "success")
+				.publishPercentileHistogram()
+				.register(meterRegistry);
+			this.failureLatency = Timer.builder("lynxe.llm.call.latency")
+				.tag("model", model)
+				.tag("outcome", "failure")
+				.publishPercentileHistogram()
+				.register(meterRegistry);
+			this.ttft = Timer.builder("lynxe.llm.ttft")
+				.tag("model", model)
+				.publishPercentileHistogram()
+				.register(meterRegistry);
+		}
+
+		private void record(int prompt, int completion, long latencyMs, long ttftMs, boolean retry,
+				boolean success) {
+			promptTokens.increment(prompt);
+			completionTokens.increment(completion);
+			if (retry) {
+				retries.increment();
+			}
+			(success ? successLatency : failureLatency).record(latencyMs, TimeUnit.MILLISECONDS);
+			if (ttftMs >= 0) {
+				ttft.record(ttftMs, TimeUnit.MILLISECONDS);
+			}
+		}
+
+	}
+
+}
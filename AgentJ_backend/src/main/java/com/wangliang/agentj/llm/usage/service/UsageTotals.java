@@ -0,0 +1,85 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.llm.usage.service;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free running totals of LLM calls. Agents of parallel steps add to the same plan
+ * and model totals, so every counter is a {@link LongAdder}.
+ */
+public class UsageTotals {
+
+	private final LongAdder calls = new LongAdder();
+
+	private final LongAdder failures = new LongAdder();
+
+	private final LongAdder retries = new LongAdder();
+
+	private final LongAdder promptTokens = new LongAdder();
+
+	private final LongAdder completionTokens = new LongAdder();
+
+	private final LongAdder totalTokens = new LongAdder();
+
+	private final LongAdder latencyMs = new LongAdder();
+
+	private final LongAdder ttftMs = new LongAdder();
+
+	private final LongAdder ttftSamples = new LongAdder();
+
+	void add(int prompt, int completion, int total, long latency, long ttft, boolean retry, boolean success) {
+		calls.increment();
+		if (!success) {
+			failures.increment();
+		}
+		if (retry) {
+			retries.increment();
+		}
+		promptTokens.add(prompt);
+		completionTokens.add(completion);
+		totalTokens.add(total);
+		latencyMs.add(latency);
+		if (ttft >= 0) {
+			ttftMs.add(ttft);
+			ttftSamples.increment();
+		}
+	}
+
+	/**
+	 * Copy of the current totals; counters are read one by one, so a snapshot taken
+	 * during a concurrent update may include part of that update
+	 */
+	public Snapshot snapshot() {
+		long samples = ttftSamples.sum();
+		long callCount = calls.sum();
+		long latency = latencyMs.sum();
+		return new Snapshot(callCount, failures.sum(), retries.sum(), promptTokens.sum(), completionTokens.sum(),
+				totalTokens.sum(), latency, callCount > 0 ? latency / callCount : 0,
+				samples > 0 ? ttftMs.sum() / samples : 0);
+	}
+
+	/**
+	 * @param latencyMs Summed latency of all calls
+	 * @param avgLatencyMs Average latency per call
+	 * @param avgTtftMs Average time to first chunk of calls that streamed
+	 */
+	public record Snapshot(long calls, long failures, long retries, long promptTokens, long completionTokens,
+			long totalTokens, long latencyMs, long avgLatencyMs, long avgTtftMs) {
+
+	}
+
+}
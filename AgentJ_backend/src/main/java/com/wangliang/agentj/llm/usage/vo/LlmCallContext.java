@@ -0,0 +1,32 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.llm.usage.vo;
+
+/**
+ * Who made an LLM call, used to attribute its usage
+ *
+ * @param planId Plan the call belongs to
+ * @param rootPlanId Root plan of the plan
+ * @param stepId Agent step, null for calls outside a step (e.g. summaries)
+ * @param agentName Calling agent or operation name
+ * @param modelName Requested model name
+ * @param userId User on whose behalf the call runs, null if unknown
+ * @param attempt 1 for the first attempt, higher for retries
+ */
+public record LlmCallContext(String planId, String rootPlanId, String stepId, String agentName, String modelName,
+		Long userId, int attempt) {
+
+}
@@ -18,6 +18,7 @@ package com.wangliang.agentj.mcp.model.vo;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wangliang.agentj.mcp.service.McpStateHolderService;
+import com.wangliang.agentj.runtime.observation.LynxeObservations;
 import com.wangliang.agentj.tools.AbstractBaseTool;
 import com.wangliang.agentj.tools.code.ToolExecuteResult;
 import com.wangliang.agentj.tools.innerStorage.ISmartContentSavingService;
@@ -82,7 +83,8 @@ public class McpTool extends AbstractBaseTool<Map<String, Object>> {
             return new ToolExecuteResult("Error: Failed to serialize input to JSON - " + e.getMessage());
         }
 
-        String result = toolCallback.call(jsonInput, null);
+        String result = LynxeObservations.observe("lynxe.mcp.call", () -> toolCallback.call(jsonInput, null),
+                "service", serviceNameString, "tool", getName());
         if (result == null) {
             result = "";
         }
@@ -30,9 +30,11 @@ import com.wangliang.agentj.planning.service.PlanFinalizer;
 import com.wangliang.agentj.recorder.service.PlanExecutionRecorder;
 import com.wangliang.agentj.runtime.executor.ImageRecognitionExecutorPool;
 import com.wangliang.agentj.runtime.executor.LevelBasedExecutorPool;
+import com.wangliang.agentj.runtime.observation.LynxeObservations;
 import com.wangliang.agentj.runtime.service.PlanIdDispatcher;
 import com.wangliang.agentj.runtime.service.ServiceGroupIndexService;
 import com.wangliang.agentj.runtime.service.TaskInterruptionManager;
+import com.wangliang.agentj.runtime.service.ToolResultCache;
 import com.wangliang.agentj.subplan.service.SubplanToolService;
 import com.wangliang.agentj.tools.DebugTool;
 import com.wangliang.agentj.tools.FormInputTool;
@@ -41,6 +43,7 @@ import com.wangliang.agentj.tools.ToolCallBiFunctionDef;
 import com.wangliang.agentj.tools.browser.BrowserUseTool;
 import com.wangliang.agentj.tools.browser.ChromeDriverService;
 import com.wangliang.agentj.tools.code.ToolExecuteResult;
+import com.wangliang.agentj.tools.convertToMarkdown.ConversionResultCache;
 import com.wangliang.agentj.tools.convertToMarkdown.ImageOcrProcessor;
 import com.wangliang.agentj.tools.convertToMarkdown.MarkdownConverterTool;
 import com.wangliang.agentj.tools.convertToMarkdown.PdfOcrProcessor;
@@ -48,6 +51,8 @@ import com.wangliang.agentj.tools.cron.CronTool;
 import com.wangliang.agentj.tools.database.*;
 import com.wangliang.agentj.tools.dirOperator.DirectoryOperator;
 import com.wangliang.agentj.tools.excelProcessor.IExcelProcessingService;
+import com.wangliang.agentj.tools.excelProcessor.SheetQueryService;
+import com.wangliang.agentj.tools.excelProcessor.SheetQueryTool;
 import com.wangliang.agentj.tools.filesystem.UnifiedDirectoryManager;
 import com.wangliang.agentj.tools.i18n.ToolI18nService;
 import com.wangliang.agentj.tools.innerStorage.SmartContentSavingService;
@@ -67,6 +72,7 @@ import org.apache.hc.client5.http.classic.HttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.model.ToolContext;
 import org.springframework.ai.model.tool.ToolCallingManager;
 import org.springframework.ai.tool.ToolCallback;
 import org.springframework.ai.tool.function.FunctionToolCallback;
@@ -87,6 +93,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
 
 /**
  * @author yuluo
@@ -180,6 +187,18 @@ public class PlanningFactory {
 	@Autowired
 	private ToolI18nService toolI18nService;
 
+	@Autowired
+	private ConversionResultCache conversionResultCache;
+
+	@Autowired
+	private ToolResultCache toolResultCache;
+
+	@Autowired
+	private SheetQueryService sheetQueryService;
+
+	@Autowired
+	private ImageRecognitionExecutorPool imageRecognitionExecutorPool;
+
 	public PlanningFactory(ChromeDriverService chromeDriverService, PlanExecutionRecorder recorder,
 			LynxeProperties lynxeProperties, TextFileService textFileService, McpService mcpService,
 			SmartContentSavingService innerStorageService, UnifiedDirectoryManager unifiedDirectoryManager,
@@ -258,8 +277,10 @@ public class PlanningFactory {
             toolDefinitions.add(DatabaseTableToExcelTool.getInstance(lynxeProperties, dataSourceService,
                     excelProcessingService, unifiedDirectoryManager, toolI18nService));
 			toolDefinitions.add(new FileImportOperator(textFileService, null, toolI18nService));
-			toolDefinitions.add(new FileSplitterTool(textFileService, objectMapper, toolI18nService));
+			toolDefinitions.add(new FileSplitterTool(textFileService, objectMapper, toolI18nService,
+					levelBasedExecutorPool));
 			toolDefinitions.add(new DirectoryOperator(unifiedDirectoryManager, objectMapper, toolI18nService));
+			toolDefinitions.add(new SheetQueryTool(sheetQueryService, objectMapper, toolI18nService));
 			// toolDefinitions.add(new UploadedFileLoaderTool(unifiedDirectoryManager,
 			// applicationContext));
 			// toolDefinitions.add(new TableProcessorTool(tableProcessingService));
@@ -276,10 +297,10 @@ public class PlanningFactory {
 			toolDefinitions.add(new CronTool(cronService, objectMapper, toolI18nService));
 			toolDefinitions.add(new MarkdownConverterTool(unifiedDirectoryManager,
 					new PdfOcrProcessor(unifiedDirectoryManager, llmService, lynxeProperties,
-							new ImageRecognitionExecutorPool(lynxeProperties)),
+							imageRecognitionExecutorPool),
 					new ImageOcrProcessor(unifiedDirectoryManager, llmService, lynxeProperties,
-							new ImageRecognitionExecutorPool(lynxeProperties)),
-					excelProcessingService, objectMapper, toolI18nService));
+							imageRecognitionExecutorPool),
+					excelProcessingService, objectMapper, toolI18nService, conversionResultCache));
 			// toolDefinitions.add(new ExcelProcessorTool(excelProcessingService));
 		}
 		else {
@@ -326,7 +347,7 @@ public class PlanningFactory {
 				// Build FunctionToolCallback with qualified name so LLM calls tools with
 				// qualified names
 				FunctionToolCallback<?, ToolExecuteResult> functionToolcallback = FunctionToolCallback
-					.builder(qualifiedKey, toolDefinition)
+					.builder(qualifiedKey, observed(qualifiedKey, toolDefinition))
 					.description(toolDefinition.getDescriptionWithServiceGroup())
 					.inputSchema(toolDefinition.getParameters())
 					.inputType(toolDefinition.getInputType())
@@ -415,6 +436,17 @@ public class PlanningFactory {
 		return () -> new HashMap<String, ToolCallBackContext>();
 	}
 
+	/**
+	 * Time each call of the tool under its qualified name; repeated calls of cacheable
+	 * tools are answered from the tool result cache
+	 */
+	private <I> BiFunction<I, ToolContext, ToolExecuteResult> observed(String qualifiedKey,
+			ToolCallBiFunctionDef<I> tool) {
+		return (input, toolContext) -> LynxeObservations.observe("lynxe.tool",
+				() -> toolResultCache.execute(tool, input, () -> tool.apply(input, toolContext)), "tool",
+				qualifiedKey);
+	}
+
 	private String extractBaseToolName(String qualifiedKey) {
 		if (qualifiedKey == null) {
 			return null;
@@ -487,6 +487,7 @@ public class PlanTemplateController {
 							stepConfig.setModelName(step.getModelName());
 							stepConfig.setTerminateColumns(step.getTerminateColumns());
 							stepConfig.setSelectedToolKeys(step.getSelectedToolKeys());
+							stepConfig.setDependsOn(step.getDependsOn());
 							stepConfigs.add(stepConfig);
 						}
 						configVO.setSteps(stepConfigs);
@@ -621,6 +622,7 @@ public class PlanTemplateController {
 					stepConfig.setModelName(step.getModelName());
 					stepConfig.setTerminateColumns(step.getTerminateColumns());
 					stepConfig.setSelectedToolKeys(step.getSelectedToolKeys());
+					stepConfig.setDependsOn(step.getDependsOn());
 					stepConfigs.add(stepConfig);
 				}
 				configVO.setSteps(stepConfigs);
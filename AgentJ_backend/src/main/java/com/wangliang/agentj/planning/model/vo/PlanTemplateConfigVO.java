@@ -16,6 +16,7 @@
 package com.wangliang.agentj.planning.model.vo;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.wangliang.agentj.planning.model.enums.PlanTemplateAccessLevel;
 
@@ -204,6 +205,9 @@ public class PlanTemplateConfigVO {
 
 		private List<String> selectedToolKeys;
 
+		@JsonInclude(JsonInclude.Include.NON_NULL)
+		private List<Integer> dependsOn;
+
 		/**
 		 * Default constructor
 		 */
@@ -252,11 +256,19 @@ public class PlanTemplateConfigVO {
 			this.selectedToolKeys = selectedToolKeys;
 		}
 
+		public List<Integer> getDependsOn() {
+			return dependsOn;
+		}
+
+		public void setDependsOn(List<Integer> dependsOn) {
+			this.dependsOn = dependsOn;
+		}
+
 		@Override
 		public String toString() {
 			return "StepConfig{" + "stepRequirement='" + stepRequirement + '\'' + ", agentName='" + agentName + '\''
 					+ ", modelName='" + modelName + '\'' + ", terminateColumns='" + terminateColumns + '\''
-					+ ", selectedToolKeys=" + selectedToolKeys + '}';
+					+ ", selectedToolKeys=" + selectedToolKeys + ", dependsOn=" + dependsOn + '}';
 		}
 
 	}
@@ -19,10 +19,12 @@ import com.wangliang.agentj.config.LynxeProperties;
 import com.wangliang.agentj.conversation.service.MemoryService;
 import com.wangliang.agentj.llm.LlmService;
 import com.wangliang.agentj.llm.StreamingResponseHandler;
+import com.wangliang.agentj.llm.usage.vo.LlmCallContext;
 import com.wangliang.agentj.recorder.service.PlanExecutionRecorder;
 import com.wangliang.agentj.runtime.entity.vo.ExecutionContext;
 import com.wangliang.agentj.runtime.entity.vo.PlanExecutionResult;
 import com.wangliang.agentj.runtime.service.TaskInterruptionManager;
+import com.wangliang.agentj.user.context.UserContextHolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
@@ -133,8 +135,10 @@ public class PlanFinalizer {
 
 		Flux<ChatResponse> responseFlux = requestSpec.stream().chatResponse();
 		boolean isDebugModel = lynxeProperties.getDebugDetail() != null && lynxeProperties.getDebugDetail();
+		LlmCallContext callContext = new LlmCallContext(context.getCurrentPlanId(), context.getRootPlanId(), null,
+				operationName, llmService.resolveModelName(null), UserContextHolder.getUserId(), 1);
 		return streamingResponseHandler.processStreamingTextResponse(responseFlux, operationName,
-				context.getCurrentPlanId(), isDebugModel, inputCharCount);
+				context.getCurrentPlanId(), isDebugModel, inputCharCount, callContext);
 	}
 
 	/**
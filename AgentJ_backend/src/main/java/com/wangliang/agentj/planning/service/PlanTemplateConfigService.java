@@ -896,6 +896,7 @@ public class PlanTemplateConfigService {
 							stepConfig.setModelName(step.getModelName());
 							stepConfig.setTerminateColumns(step.getTerminateColumns());
 							stepConfig.setSelectedToolKeys(step.getSelectedToolKeys());
+							stepConfig.setDependsOn(step.getDependsOn());
 							stepConfigs.add(stepConfig);
 						}
 						configVO.setSteps(stepConfigs);
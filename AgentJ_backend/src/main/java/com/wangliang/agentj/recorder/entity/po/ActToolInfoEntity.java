@@ -49,6 +49,14 @@ public class ActToolInfoEntity {
 	@Column(name = "tool_call_id")
 	private String toolCallId;
 
+	// Cache use of the call: hit, miss, or null for tools that are not cacheable
+	@Column(name = "cache_status", length = 16)
+	private String cacheStatus;
+
+	// Run time of the reused call when the result came from the cache
+	@Column(name = "cache_saved_ms")
+	private Long cacheSavedMillis;
+
 	/**
 	 * Constructor with required fields
 	 * @param name Tool name
@@ -108,6 +116,22 @@ public class ActToolInfoEntity {
 		this.toolCallId = toolCallId;
 	}
 
+	public String getCacheStatus() {
+		return cacheStatus;
+	}
+
+	public void setCacheStatus(String cacheStatus) {
+		this.cacheStatus = cacheStatus;
+	}
+
+	public Long getCacheSavedMillis() {
+		return cacheSavedMillis;
+	}
+
+	public void setCacheSavedMillis(Long cacheSavedMillis) {
+		this.cacheSavedMillis = cacheSavedMillis;
+	}
+
 	@Override
 	public String toString() {
 		return "ActToolInfoEntity{" + "name='" + name + '\'' + ", parameters='" + parameters + '\'' + ", result='"
@@ -39,6 +39,12 @@ public class ActToolInfo {
 	// Unique identifier for the tool call
 	private String id;
 
+	// Cache use of the call: hit, miss, or null for tools that are not cacheable
+	private String cacheStatus;
+
+	// Run time of the reused call when the result came from the cache
+	private Long cacheSavedMillis;
+
 	/**
 	 * Default constructor
 	 */
@@ -101,6 +107,22 @@ public class ActToolInfo {
 		this.id = id;
 	}
 
+	public String getCacheStatus() {
+		return cacheStatus;
+	}
+
+	public void setCacheStatus(String cacheStatus) {
+		this.cacheStatus = cacheStatus;
+	}
+
+	public Long getCacheSavedMillis() {
+		return cacheSavedMillis;
+	}
+
+	public void setCacheSavedMillis(Long cacheSavedMillis) {
+		this.cacheSavedMillis = cacheSavedMillis;
+	}
+
 	@Override
 	public String toString() {
 		return "ActToolInfo{" + "name='" + name + '\'' + ", parameters='" + parameters + '\'' + ", result='" + result
@@ -27,6 +27,7 @@ import com.wangliang.agentj.recorder.repository.AgentExecutionRecordRepository;
 import com.wangliang.agentj.recorder.repository.PlanExecutionRecordRepository;
 import com.wangliang.agentj.recorder.repository.ThinkActRecordRepository;
 import com.wangliang.agentj.runtime.entity.vo.ExecutionStep;
+import io.micrometer.observation.annotation.Observed;
 import jakarta.annotation.Resource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -67,6 +68,7 @@ public class NewRepoPlanExecutionRecorder implements PlanExecutionRecorder {
 	 * @return The ID of the created plan execution record, or null if creation failed
 	 */
 	@Transactional
+	@Observed(name = "lynxe.recorder.write", lowCardinalityKeyValues = { "operation", "planStart" })
 	public Long recordPlanExecutionStart(String currentPlanId, String title, String userRequset,
 			List<ExecutionStep> executionSteps, String parentPlanId, String rootPlanId, String toolcallId) {
 		try {
@@ -255,6 +257,7 @@ public class NewRepoPlanExecutionRecorder implements PlanExecutionRecorder {
 			case NOT_STARTED:
 				return ExecutionStatusEntity.IDLE;
 			case IN_PROGRESS:
+			case SUSPENDED:
 				return ExecutionStatusEntity.RUNNING;
 			case COMPLETED:
 			case INTERRUPTED:
@@ -280,10 +283,13 @@ public class NewRepoPlanExecutionRecorder implements PlanExecutionRecorder {
 		if (actToolParam.getResult() != null) {
 			entity.setResult(actToolParam.getResult());
 		}
+		entity.setCacheStatus(actToolParam.getCacheStatus());
+		entity.setCacheSavedMillis(actToolParam.getCacheSavedMillis());
 		return entity;
 	}
 
 	@Override
+	@Observed(name = "lynxe.recorder.write", lowCardinalityKeyValues = { "operation", "stepStart" })
 	public void recordStepStart(ExecutionStep step, String currentPlanId) {
 		try {
 			if (step == null || step.getStepId() == null || currentPlanId == null) {
@@ -332,6 +338,7 @@ public class NewRepoPlanExecutionRecorder implements PlanExecutionRecorder {
 	}
 
 	@Override
+	@Observed(name = "lynxe.recorder.write", lowCardinalityKeyValues = { "operation", "stepEnd" })
 	public void recordStepEnd(ExecutionStep step, String currentPlanId) {
 		try {
 			if (step == null || step.getStepId() == null || currentPlanId == null) {
@@ -381,6 +388,7 @@ public class NewRepoPlanExecutionRecorder implements PlanExecutionRecorder {
 
 	@Override
 	@Transactional
+	@Observed(name = "lynxe.recorder.write", lowCardinalityKeyValues = { "operation", "thinkAct" })
 	public Long recordThinkingAndAction(ExecutionStep step, ThinkActRecordParams params) {
 		try {
 			if (step == null || step.getStepId() == null || params == null) {
@@ -444,6 +452,7 @@ public class NewRepoPlanExecutionRecorder implements PlanExecutionRecorder {
 	}
 
 	@Override
+	@Observed(name = "lynxe.recorder.write", lowCardinalityKeyValues = { "operation", "actionResult" })
 	public void recordActionResult(List<ActToolParam> actToolParamList) {
 		try {
 			if (actToolParamList == null || actToolParamList.isEmpty()) {
@@ -482,6 +491,10 @@ public class NewRepoPlanExecutionRecorder implements PlanExecutionRecorder {
 						if (actToolParam.getResult() != null) {
 							existingEntity.setResult(actToolParam.getResult());
 						}
+						if (actToolParam.getCacheStatus() != null) {
+							existingEntity.setCacheStatus(actToolParam.getCacheStatus());
+							existingEntity.setCacheSavedMillis(actToolParam.getCacheSavedMillis());
+						}
 
 						// Save the updated entity
 						actToolInfoRepository.save(existingEntity);
@@ -514,6 +527,7 @@ public class NewRepoPlanExecutionRecorder implements PlanExecutionRecorder {
 	}
 
 	@Override
+	@Observed(name = "lynxe.recorder.write", lowCardinalityKeyValues = { "operation", "agentExecution" })
 	public void recordCompleteAgentExecution(ExecutionStep step) {
 		try {
 			if (step == null || step.getStepId() == null) {
@@ -598,6 +612,7 @@ public class NewRepoPlanExecutionRecorder implements PlanExecutionRecorder {
 	}
 
 	@Override
+	@Observed(name = "lynxe.recorder.write", lowCardinalityKeyValues = { "operation", "planCompletion" })
 	public void recordPlanCompletion(String currentPlanId, String summary) {
 		try {
 			if (currentPlanId == null || currentPlanId.trim().isEmpty()) {
@@ -720,6 +735,8 @@ public class NewRepoPlanExecutionRecorder implements PlanExecutionRecorder {
 						ActToolInfo actToolInfo = new ActToolInfo(toolInfoEntity.getName(),
 								toolInfoEntity.getParameters(), toolInfoEntity.getToolCallId());
 						actToolInfo.setResult(toolInfoEntity.getResult());
+						actToolInfo.setCacheStatus(toolInfoEntity.getCacheStatus());
+						actToolInfo.setCacheSavedMillis(toolInfoEntity.getCacheSavedMillis());
 						actToolInfoList.add(actToolInfo);
 					}
 					record.setActToolInfoList(actToolInfoList);
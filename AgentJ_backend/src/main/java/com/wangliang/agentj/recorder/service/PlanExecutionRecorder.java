@@ -164,6 +164,10 @@ public interface PlanExecutionRecorder {
 
 		private final String toolCallId;
 
+		private String cacheStatus;
+
+		private Long cacheSavedMillis;
+
 		public ActToolParam(String name, String parameters, String toolCallId) {
 			this.name = name;
 			this.parameters = parameters;
@@ -182,6 +186,16 @@ public interface PlanExecutionRecorder {
 			this.result = result;
 		}
 
+		/**
+		 * Record whether the result came from the tool result cache
+		 * @param hit Whether the result was reused
+		 * @param savedMillis Run time of the reused call
+		 */
+		public void setCacheOutcome(boolean hit, long savedMillis) {
+			this.cacheStatus = hit ? "hit" : "miss";
+			this.cacheSavedMillis = hit ? savedMillis : null;
+		}
+
 		// Getters
 		public String getName() {
 			return name;
@@ -199,6 +213,14 @@ public interface PlanExecutionRecorder {
 			return toolCallId;
 		}
 
+		public String getCacheStatus() {
+			return cacheStatus;
+		}
+
+		public Long getCacheSavedMillis() {
+			return cacheSavedMillis;
+		}
+
 		@Override
 		public String toString() {
 			return "ActToolParam{" + "name='" + name + '\'' + ", parameters='" + parameters + '\'' + ", result='"
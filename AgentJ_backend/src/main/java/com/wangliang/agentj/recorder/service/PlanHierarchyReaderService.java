@@ -454,6 +454,8 @@ public class PlanHierarchyReaderService {
 		vo.setParameters(entity.getParameters());
 		vo.setResult(entity.getResult());
 		vo.setId(entity.getToolCallId()); // Map toolCallId to id field
+		vo.setCacheStatus(entity.getCacheStatus());
+		vo.setCacheSavedMillis(entity.getCacheSavedMillis());
 		return vo;
 	}
 
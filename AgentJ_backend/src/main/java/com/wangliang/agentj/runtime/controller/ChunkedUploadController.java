@@ -0,0 +1,262 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.runtime.controller;
+
+import com.wangliang.agentj.runtime.entity.vo.ChunkedUploadStatus;
+import com.wangliang.agentj.runtime.entity.vo.FileUploadResult;
+import com.wangliang.agentj.runtime.service.ChunkedUploadService;
+import com.wangliang.agentj.runtime.service.ChunkedUploadService.ChunkedUploadException;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Resumable chunked upload of large files.
+ * <p>
+ * {@code POST /api/file-upload/chunked} creates a session, {@code PATCH} appends a chunk
+ * at the offset given in the {@code Upload-Offset} header, {@code HEAD} reports the
+ * offset to resume from, and {@code POST .../complete} adds the file to its upload key.
+ */
+@RestController
+@RequestMapping("/api/file-upload/chunked")
+@CrossOrigin(origins = "*", exposedHeaders = { ChunkedUploadController.UPLOAD_OFFSET,
+		ChunkedUploadController.UPLOAD_LENGTH, HttpHeaders.LOCATION })
+public class ChunkedUploadController {
+
+	private static final Logger logger = LoggerFactory.getLogger(ChunkedUploadController.class);
+
+	static final String UPLOAD_OFFSET = "Upload-Offset";
+
+	static final String UPLOAD_LENGTH = "Upload-Length";
+
+	@Autowired
+	private ChunkedUploadService chunkedUploadService;
+
+	/**
+	 * Create an upload session
+	 * @param request File name, length and optional upload key and SHA-256
+	 * @return Session status, with the session URL in the Location header
+	 */
+	@PostMapping
+	public ResponseEntity<?> create(@RequestBody CreateUploadRequest request) {
+		try {
+			ChunkedUploadStatus status = chunkedUploadService.create(request.getFileName(), request.getLength(),
+					request.getUploadKey(), request.getSha256());
+			return ResponseEntity.created(URI.create("/api/file-upload/chunked/" + status.getUploadId()))
+				.header(UPLOAD_OFFSET, String.valueOf(status.getOffset()))
+				.header(UPLOAD_LENGTH, String.valueOf(status.getLength()))
+				.body(status);
+		}
+		catch (Exception e) {
+			return error("create chunked upload", e);
+		}
+	}
+
+	/**
+	 * Get the offset to resume an upload from
+	 * @param uploadId The upload session ID
+	 * @return Empty response with Upload-Offset and Upload-Length headers
+	 */
+	@RequestMapping(value = "/{uploadId}", method = RequestMethod.HEAD)
+	public ResponseEntity<Void> head(@PathVariable("uploadId") String uploadId) {
+		try {
+			ChunkedUploadStatus status = chunkedUploadService.getStatus(uploadId);
+			return ResponseEntity.ok()
+				.header(UPLOAD_OFFSET, String.valueOf(status.getOffset()))
+				.header(UPLOAD_LENGTH, String.valueOf(status.getLength()))
+				.header(HttpHeaders.CACHE_CONTROL, "no-store")
+				.build();
+		}
+		catch (Exception e) {
+			return ResponseEntity.status(statusOf(e)).header(HttpHeaders.CACHE_CONTROL, "no-store").build();
+		}
+	}
+
+	/**
+	 * Get the status of an upload session
+	 * @param uploadId The upload session ID
+	 * @return Session status
+	 */
+	@GetMapping("/{uploadId}")
+	public ResponseEntity<?> getStatus(@PathVariable("uploadId") String uploadId) {
+		try {
+			return ResponseEntity.ok().header(HttpHeaders.CACHE_CONTROL, "no-store")
+				.body(chunkedUploadService.getStatus(uploadId));
+		}
+		catch (Exception e) {
+			return error("get chunked upload " + uploadId, e);
+		}
+	}
+
+	/**
+	 * Append a chunk. The request body is streamed into the file, it is not buffered.
+	 * @param uploadId The upload session ID
+	 * @param offset Offset the chunk starts at
+	 * @param request The request carrying the chunk as body
+	 * @return Empty response with the new Upload-Offset
+	 */
+	@PatchMapping("/{uploadId}")
+	public ResponseEntity<?> append(@PathVariable("uploadId") String uploadId,
+			@RequestHeader(UPLOAD_OFFSET) long offset, HttpServletRequest request) {
+		try {
+			long chunkLength = request.getContentLengthLong();
+			ChunkedUploadStatus before = chunkedUploadService.getStatus(uploadId);
+			if (chunkLength > before.getLength() - offset) {
+				return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+					.body(errorBody("Chunk exceeds the upload length of " + before.getLength() + " bytes"));
+			}
+			ChunkedUploadStatus status = chunkedUploadService.append(uploadId, offset, request.getInputStream());
+			return ResponseEntity.noContent().header(UPLOAD_OFFSET, String.valueOf(status.getOffset())).build();
+		}
+		catch (ChunkedUploadException e) {
+			if (e.getReason() == ChunkedUploadException.Reason.OFFSET_MISMATCH) {
+				// Tell the client where to resume without another round trip
+				ChunkedUploadStatus status = chunkedUploadService.getStatus(uploadId);
+				return ResponseEntity.status(HttpStatus.CONFLICT)
+					.header(UPLOAD_OFFSET, String.valueOf(status.getOffset()))
+					.body(errorBody(e.getMessage()));
+			}
+			return error("append to chunked upload " + uploadId, e);
+		}
+		catch (Exception e) {
+			return error("append to chunked upload " + uploadId, e);
+		}
+	}
+
+	/**
+	 * Complete an upload and add the file to its upload key
+	 * @param uploadId The upload session ID
+	 * @return Upload result with the upload key
+	 */
+	@PostMapping("/{uploadId}/complete")
+	public ResponseEntity<?> complete(@PathVariable("uploadId") String uploadId) {
+		try {
+			FileUploadResult result = chunkedUploadService.complete(uploadId);
+			logger.info("Chunked upload {} completed with uploadKey: {}", uploadId, result.getUploadKey());
+			return ResponseEntity.ok(result);
+		}
+		catch (Exception e) {
+			return error("complete chunked upload " + uploadId, e);
+		}
+	}
+
+	/**
+	 * Abort an upload and delete the received bytes
+	 * @param uploadId The upload session ID
+	 * @return Empty response
+	 */
+	@DeleteMapping("/{uploadId}")
+	public ResponseEntity<?> abort(@PathVariable("uploadId") String uploadId) {
+		try {
+			chunkedUploadService.abort(uploadId);
+			return ResponseEntity.noContent().build();
+		}
+		catch (Exception e) {
+			return error("abort chunked upload " + uploadId, e);
+		}
+	}
+
+	private ResponseEntity<Map<String, Object>> error(String action, Exception e) {
+		HttpStatus status = statusOf(e);
+		if (status.is5xxServerError()) {
+			logger.error("Failed to {}", action, e);
+		}
+		else {
+			logger.warn("Failed to {}: {}", action, e.getMessage());
+		}
+		return ResponseEntity.status(status).body(errorBody(e.getMessage()));
+	}
+
+	private static HttpStatus statusOf(Exception e) {
+		if (e instanceof ChunkedUploadException chunked) {
+			return switch (chunked.getReason()) {
+				case NOT_FOUND -> HttpStatus.NOT_FOUND;
+				case OFFSET_MISMATCH, BUSY -> HttpStatus.CONFLICT;
+				case TOO_LARGE -> HttpStatus.PAYLOAD_TOO_LARGE;
+				case INCOMPLETE, CHECKSUM_MISMATCH -> HttpStatus.UNPROCESSABLE_ENTITY;
+			};
+		}
+		if (e instanceof IllegalArgumentException) {
+			return HttpStatus.BAD_REQUEST;
+		}
+		return HttpStatus.INTERNAL_SERVER_ERROR;
+	}
+
+	private static Map<String, Object> errorBody(String message) {
+		Map<String, Object> body = new HashMap<>();
+		body.put("success", false);
+		body.put("error", message);
+		return body;
+	}
+
+	/**
+	 * Inner class for create upload request
+	 */
+	public static class CreateUploadRequest {
+
+		private String fileName;
+
+		private long length;
+
+		private String uploadKey;
+
+		private String sha256;
+
+		// Getters and setters
+		public String getFileName() {
+			return fileName;
+		}
+
+		public void setFileName(String fileName) {
+			this.fileName = fileName;
+		}
+
+		public long getLength() {
+			return length;
+		}
+
+		public void setLength(long length) {
+			this.length = length;
+		}
+
+		public String getUploadKey() {
+			return uploadKey;
+		}
+
+		public void setUploadKey(String uploadKey) {
+			this.uploadKey = uploadKey;
+		}
+
+		public String getSha256() {
+			return sha256;
+		}
+
+		public void setSha256(String sha256) {
+			this.sha256 = sha256;
+		}
+
+	}
+
+}
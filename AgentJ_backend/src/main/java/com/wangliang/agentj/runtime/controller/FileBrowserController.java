@@ -15,24 +15,37 @@
  */
 package com.wangliang.agentj.runtime.controller;
 
+import com.wangliang.agentj.runtime.service.PlanFileTreeIndex;
 import com.wangliang.agentj.tools.filesystem.UnifiedDirectoryManager;
+import com.wangliang.agentj.tools.textOperator.TextFileService;
+import com.wangliang.agentj.tools.textOperator.TextFileView;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/file-browser")
@@ -41,107 +54,52 @@ public class FileBrowserController {
 
 	private static final Logger logger = LoggerFactory.getLogger(FileBrowserController.class);
 
-	@Autowired
-	private UnifiedDirectoryManager directoryManager;
-
-	/**
-	 * File tree node representation
-	 */
-	public static class FileNode {
-
-		private String name;
-
-		private String path;
-
-		private String type; // "file" or "directory"
-
-		private long size;
-
-		private String lastModified;
-
-		private List<FileNode> children;
-
-		public FileNode() {
-		}
-
-		public FileNode(String name, String path, String type, long size, String lastModified) {
-			this.name = name;
-			this.path = path;
-			this.type = type;
-			this.size = size;
-			this.lastModified = lastModified;
-			this.children = new ArrayList<>();
-		}
-
-		// Getters and setters
-		public String getName() {
-			return name;
-		}
-
-		public void setName(String name) {
-			this.name = name;
-		}
-
-		public String getPath() {
-			return path;
-		}
+	// Request attributes of Tomcat's sendfile support, the kernel copies the file to the
+	// socket
+	private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
 
-		public void setPath(String path) {
-			this.path = path;
-		}
-
-		public String getType() {
-			return type;
-		}
+	private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
 
-		public void setType(String type) {
-			this.type = type;
-		}
+	private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
 
-		public long getSize() {
-			return size;
-		}
+	private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
 
-		public void setSize(long size) {
-			this.size = size;
-		}
-
-		public String getLastModified() {
-			return lastModified;
-		}
+	@Autowired
+	private UnifiedDirectoryManager directoryManager;
 
-		public void setLastModified(String lastModified) {
-			this.lastModified = lastModified;
-		}
+	@Autowired
+	private PlanFileTreeIndex fileTreeIndex;
 
-		public List<FileNode> getChildren() {
-			return children;
-		}
+	@Autowired
+	private TextFileService textFileService;
 
-		public void setChildren(List<FileNode> children) {
-			this.children = children;
-		}
+	@Value("${lynxe.fileBrowser.maxContentBytes:1048576}")
+	private int maxContentBytes;
 
-	}
+	@Value("${lynxe.fileBrowser.maxContentLines:2000}")
+	private int maxContentLines;
 
 	/**
-	 * Get file tree for a specific plan ID
+	 * Get file tree for a specific plan ID. The tree carries an ETag, a request with a
+	 * matching If-None-Match gets 304 without a body.
 	 * @param planId The plan ID
 	 * @return File tree structure
 	 */
 	@GetMapping("/tree/{planId}")
-	public ResponseEntity<?> getFileTree(@PathVariable("planId") String planId) {
+	public ResponseEntity<?> getFileTree(@PathVariable("planId") String planId, WebRequest request) {
 		try {
-			Path planDir = directoryManager.getRootPlanDirectory(planId);
+			PlanFileTreeIndex.Snapshot tree = fileTreeIndex.getTree(planId);
 
-			if (!Files.exists(planDir)) {
+			if (tree == null) {
 				return ResponseEntity
 					.ok(Map.of("success", false, "message", "Plan directory not found for planId: " + planId));
 			}
 
-			FileNode rootNode = buildFileTree(planDir, planId);
+			if (request.checkNotModified(tree.etag())) {
+				return null;
+			}
 
-			return ResponseEntity.ok(Map.of("success", true, "data", rootNode));
+			return ResponseEntity.ok().eTag(tree.etag()).body(Map.of("success", true, "data", tree.root()));
 
 		}
 		catch (Exception e) {
@@ -152,14 +110,20 @@ public class FileBrowserController {
 	}
 
 	/**
-	 * Get file content
+	 * Get file content, one page at a time. Without parameters the first
+	 * {@code lynxe.fileBrowser.maxContentBytes} bytes are returned; {@code offset} and
+	 * {@code length} select a byte range, {@code startLine} (1-based) and
+	 * {@code lineCount} a line range. The response tells where the next page starts.
 	 * @param planId The plan ID
 	 * @param filePath The relative file path
 	 * @return File content
 	 */
 	@GetMapping("/content/{planId}")
 	public ResponseEntity<?> getFileContent(@PathVariable("planId") String planId,
-			@RequestParam("path") String filePath) {
+			@RequestParam("path") String filePath, @RequestParam(value = "offset", required = false) Long offset,
+			@RequestParam(value = "length", required = false) Integer length,
+			@RequestParam(value = "startLine", required = false) Integer startLine,
+			@RequestParam(value = "lineCount", required = false) Integer lineCount) {
 		try {
 			Path planDir = directoryManager.getRootPlanDirectory(planId);
 			Path targetFile = planDir.resolve(filePath).normalize();
@@ -174,13 +138,17 @@ public class FileBrowserController {
 				return ResponseEntity.notFound().build();
 			}
 
-			String content = Files.readString(targetFile);
 			String mimeType = Files.probeContentType(targetFile);
+			Map<String, Object> data = (startLine != null || lineCount != null)
+					? readLines(planId, targetFile, startLine, lineCount) : readBytes(targetFile, offset, length);
+			data.put("mimeType", mimeType != null ? mimeType : "text/plain");
 
-			return ResponseEntity.ok(Map.of("success", true, "data", Map.of("content", content, "mimeType",
-					mimeType != null ? mimeType : "text/plain", "size", Files.size(targetFile))));
+			return ResponseEntity.ok(Map.of("success", true, "data", data));
 
 		}
+		catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
+		}
 		catch (Exception e) {
 			logger.error("Error reading file content for planId: {}, path: {}", planId, filePath, e);
 			return ResponseEntity.internalServerError()
@@ -189,95 +157,226 @@ public class FileBrowserController {
 	}
 
 	/**
-	 * Download file
+	 * Download file. Supports a single HTTP byte range (with If-Range) and conditional
+	 * requests; the body is sent with sendfile where the container supports it and with
+	 * {@link FileChannel#transferTo} otherwise.
 	 * @param planId The plan ID
 	 * @param filePath The relative file path
-	 * @return File download response
 	 */
 	@GetMapping("/download/{planId}")
-	public ResponseEntity<Resource> downloadFile(@PathVariable("planId") String planId,
-			@RequestParam("path") String filePath) {
+	public void downloadFile(@PathVariable("planId") String planId, @RequestParam("path") String filePath,
+			HttpServletRequest request, HttpServletResponse response) throws IOException {
 		try {
 			Path planDir = directoryManager.getRootPlanDirectory(planId);
 			Path targetFile = planDir.resolve(filePath).normalize();
 
 			// Security check: ensure the file is within the plan directory
 			if (!targetFile.startsWith(planDir)) {
-				return ResponseEntity.badRequest().build();
+				response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+				return;
 			}
 
 			if (!Files.exists(targetFile) || !Files.isRegularFile(targetFile)) {
-				return ResponseEntity.notFound().build();
+				response.sendError(HttpServletResponse.SC_NOT_FOUND);
+				return;
+			}
+
+			BasicFileAttributes attributes = Files.readAttributes(targetFile, BasicFileAttributes.class);
+			long size = attributes.size();
+			long lastModified = attributes.lastModifiedTime().toMillis();
+			String etag = "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+			if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+				return;
 			}
 
-			Resource resource = new FileSystemResource(targetFile);
 			String mimeType = Files.probeContentType(targetFile);
-			if (mimeType == null) {
-				mimeType = "application/octet-stream";
+			response.setContentType(mimeType != null ? mimeType : "application/octet-stream");
+			response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+				.filename(targetFile.getFileName().toString(), StandardCharsets.UTF_8)
+				.build()
+				.toString());
+			response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+			long start = 0;
+			long end = size;
+			String range = request.getHeader(HttpHeaders.RANGE);
+			if (range != null && rangeApplies(request.getHeader(HttpHeaders.IF_RANGE), etag, lastModified)) {
+				long[] bounds = parseRange(range, size);
+				if (bounds == null) {
+					response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+					response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+					return;
+				}
+				if (bounds.length == 2) {
+					start = bounds[0];
+					end = bounds[1];
+					response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+					response.setHeader(HttpHeaders.CONTENT_RANGE,
+							"bytes " + start + "-" + (end - 1) + "/" + size);
+				}
 			}
+			response.setContentLengthLong(end - start);
 
-			return ResponseEntity.ok()
-				.contentType(MediaType.parseMediaType(mimeType))
-				.header(HttpHeaders.CONTENT_DISPOSITION,
-						"attachment; filename=\"" + targetFile.getFileName().toString() + "\"")
-				.body(resource);
+			if ("HEAD".equals(request.getMethod()) || end == start) {
+				return;
+			}
+			if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+				request.setAttribute(SENDFILE_FILENAME, targetFile.toAbsolutePath().toString());
+				request.setAttribute(SENDFILE_START, start);
+				request.setAttribute(SENDFILE_END, end);
+				return;
+			}
+			try (FileChannel channel = FileChannel.open(targetFile, StandardOpenOption.READ)) {
+				WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+				long position = start;
+				while (position < end) {
+					position += channel.transferTo(position, end - position, out);
+				}
+			}
 
 		}
+		catch (IOException e) {
+			// Mostly clients that went away mid download
+			logger.debug("Error downloading file for planId: {}, path: {}: {}", planId, filePath, e.getMessage());
+		}
 		catch (Exception e) {
 			logger.error("Error downloading file for planId: {}, path: {}", planId, filePath, e);
-			return ResponseEntity.internalServerError().build();
+			if (!response.isCommitted()) {
+				response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+			}
 		}
 	}
 
 	/**
-	 * Build file tree recursively
+	 * Read a byte range. The range is widened or narrowed to UTF-8 character boundaries
+	 * so a page never splits a character.
 	 */
-	private FileNode buildFileTree(Path directory, String planId) throws IOException {
-		String relativePath = "";
-		Path planDir = directoryManager.getRootPlanDirectory(planId);
+	private Map<String, Object> readBytes(Path file, Long offset, Integer length) throws IOException {
+		long start = offset != null ? offset : 0;
+		int limit = length != null ? Math.min(length, maxContentBytes) : maxContentBytes;
+		if (start < 0 || limit <= 0) {
+			throw new IllegalArgumentException("offset must not be negative and length must be positive");
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			start = Math.min(start, size);
+			// Read a few bytes more to finish a character cut by the limit
+			ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size - start, (long) limit + 3));
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, start + buffer.position()) < 0) {
+					break;
+				}
+			}
+			byte[] bytes = buffer.array();
+			int read = buffer.position();
 
-		if (!directory.equals(planDir)) {
-			relativePath = planDir.relativize(directory).toString();
+			// Skip continuation bytes at the start, they belong to the previous page
+			int from = 0;
+			while (from < read && from < 3 && isContinuation(bytes[from])) {
+				from++;
+			}
+			int to = Math.min(read, from + limit);
+			while (to < read && to > from && isContinuation(bytes[to])) {
+				to++;
+			}
+
+			long nextOffset = start + to;
+			Map<String, Object> data = new LinkedHashMap<>();
+			data.put("content", new String(bytes, from, to - from, StandardCharsets.UTF_8));
+			data.put("size", size);
+			data.put("offset", start + from);
+			data.put("length", to - from);
+			data.put("nextOffset", nextOffset < size ? nextOffset : null);
+			data.put("hasMore", nextOffset < size);
+			return data;
 		}
+	}
 
-		FileNode node = new FileNode(directory.getFileName() != null ? directory.getFileName().toString() : planId,
-				relativePath, "directory", 0, Files.getLastModifiedTime(directory).toString());
-
-		try (Stream<Path> children = Files.list(directory)) {
-			children.sorted((a, b) -> {
-				// Directories first, then files
-				boolean aIsDir = Files.isDirectory(a);
-				boolean bIsDir = Files.isDirectory(b);
-				if (aIsDir && !bIsDir)
-					return -1;
-				if (!aIsDir && bIsDir)
-					return 1;
-				return a.getFileName().toString().compareToIgnoreCase(b.getFileName().toString());
-			}).forEach(child -> {
-				try {
-					// Skip symbolic links to prevent infinite loops and security issues
-					if (Files.isSymbolicLink(child)) {
-						logger.debug("Skipping symbolic link: {}", child);
-						return;
-					}
-
-					if (Files.isDirectory(child)) {
-						node.getChildren().add(buildFileTree(child, planId));
-					}
-					else {
-						String childRelativePath = planDir.relativize(child).toString();
-						FileNode fileNode = new FileNode(child.getFileName().toString(), childRelativePath, "file",
-								Files.size(child), Files.getLastModifiedTime(child).toString());
-						node.getChildren().add(fileNode);
-					}
-				}
-				catch (IOException e) {
-					logger.warn("Error processing file: {}", child, e);
-				}
-			});
+	/**
+	 * Read a line range through the plan's cached line index
+	 */
+	private Map<String, Object> readLines(String planId, Path file, Integer startLine, Integer lineCount)
+			throws IOException {
+		int first = startLine != null ? startLine : 1;
+		int count = lineCount != null ? Math.min(lineCount, maxContentLines) : maxContentLines;
+		if (first < 1 || count <= 0) {
+			throw new IllegalArgumentException("startLine must be at least 1 and lineCount must be positive");
+		}
+		TextFileView view = textFileService.getFileView(planId, file.toAbsolutePath());
+		int totalLines = view.getLineCount();
+		int from = Math.min(first - 1, totalLines);
+		int to = (int) Math.min((long) from + count, totalLines);
+
+		Map<String, Object> data = new LinkedHashMap<>();
+		data.put("content", String.join("\n", view.getLines(from, to)));
+		data.put("size", view.getSize());
+		data.put("startLine", from + 1);
+		data.put("lineCount", to - from);
+		data.put("totalLines", totalLines);
+		data.put("nextLine", to < totalLines ? to + 1 : null);
+		data.put("hasMore", to < totalLines);
+		return data;
+	}
+
+	private static boolean isContinuation(byte b) {
+		return (b & 0xC0) == 0x80;
+	}
+
+	/**
+	 * Whether a Range header applies: always without If-Range, otherwise only while the
+	 * file still has the given ETag or modification time
+	 */
+	private static boolean rangeApplies(String ifRange, String etag, long lastModified) {
+		if (ifRange == null) {
+			return true;
 		}
+		if (ifRange.startsWith("\"")) {
+			return ifRange.equals(etag);
+		}
+		try {
+			long since = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+			return lastModified / 1000 <= since / 1000;
+		}
+		catch (RuntimeException e) {
+			return false;
+		}
+	}
 
-		return node;
+	/**
+	 * Parse a single byte range
+	 * @return {start, end exclusive}, an empty array to serve the whole file (multiple or
+	 * malformed ranges), or null when the range cannot be satisfied
+	 */
+	private static long[] parseRange(String range, long size) {
+		if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+			return new long[0];
+		}
+		String spec = range.substring("bytes=".length()).trim();
+		int dash = spec.indexOf('-');
+		if (dash < 0) {
+			return new long[0];
+		}
+		try {
+			String first = spec.substring(0, dash).trim();
+			String last = spec.substring(dash + 1).trim();
+			if (first.isEmpty()) {
+				// Suffix range: the last n bytes
+				long suffix = Long.parseLong(last);
+				if (suffix <= 0 || size == 0) {
+					return null;
+				}
+				return new long[] { Math.max(size - suffix, 0), size };
+			}
+			long start = Long.parseLong(first);
+			long end = last.isEmpty() ? size : Math.min(Long.parseLong(last) + 1, size);
+			if (start >= size || end <= start) {
+				return null;
+			}
+			return new long[] { start, end };
+		}
+		catch (NumberFormatException e) {
+			return new long[0];
+		}
 	}
 
 }
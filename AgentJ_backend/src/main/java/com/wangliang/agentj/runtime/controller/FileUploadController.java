@@ -171,6 +171,8 @@ public class FileUploadController {
 		Map<String, Object> config = new HashMap<>();
 		config.put("maxFileSize", "1GB");
 		config.put("maxFiles", 10);
+		// Large files can be sent in resumable chunks instead of one multipart request
+		config.put("chunkedUploadPath", "/api/file-upload/chunked");
 		config.put("allowedTypes",
 				List.of("application/pdf", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
 						"application/vnd.ms-excel", "text/csv", "text/plain", "text/markdown", "application/json",
@@ -783,6 +783,9 @@ public class LynxeController implements LynxeListener<PlanExceptionEvent> {
 
 			// Mark task for stop in database (database-driven interruption)
 			boolean taskMarkedForStop = taskInterruptionManager.stopTask(planId);
+			// Agents suspended on a form hold no thread that could notice the stop,
+			// expiring their forms resumes them
+			userInputService.cancelPendingForms(planId);
 
 			// Note: taskInterruptionManager.stopTask() already sets state to STOP and
 			// end_time
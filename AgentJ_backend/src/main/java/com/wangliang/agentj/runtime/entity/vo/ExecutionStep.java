@@ -16,6 +16,7 @@
 package com.wangliang.agentj.runtime.entity.vo;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.wangliang.agentj.agent.AgentState;
 import com.wangliang.agentj.agent.BaseAgent;
 
@@ -67,6 +68,13 @@ public class ExecutionStep {
 
 	private String terminateColumns;
 
+	/**
+	 * Indexes of the steps this step waits for, counted from 0 like the step index. Null
+	 * lets the executor infer them, an empty list lets the step start right away.
+	 */
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private List<Integer> dependsOn;
+
 	public Integer getStepIndex() {
 		return stepIndex;
 	}
@@ -104,6 +112,14 @@ public class ExecutionStep {
 		this.terminateColumns = terminateColumns;
 	}
 
+	public List<Integer> getDependsOn() {
+		return dependsOn;
+	}
+
+	public void setDependsOn(List<Integer> dependsOn) {
+		this.dependsOn = dependsOn;
+	}
+
 	@JsonIgnore
 	public AgentState getStatus() {
 		return status != null ? status : (agent == null ? AgentState.NOT_STARTED : AgentState.NOT_STARTED);
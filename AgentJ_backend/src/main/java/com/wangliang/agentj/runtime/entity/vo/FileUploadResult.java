@@ -111,6 +111,9 @@ public class FileUploadResult {
 
 		private String error;
 
+		// Only known for files received through a chunked upload
+		private String sha256;
+
 		// Getters and setters
 		public String getOriginalName() {
 			return originalName;
@@ -160,6 +163,14 @@ public class FileUploadResult {
 			this.error = error;
 		}
 
+		public String getSha256() {
+			return sha256;
+		}
+
+		public void setSha256(String sha256) {
+			this.sha256 = sha256;
+		}
+
 	}
 
 }
@@ -22,14 +22,18 @@ import com.wangliang.agentj.config.LynxeProperties;
 import com.wangliang.agentj.llm.LlmService;
 import com.wangliang.agentj.recorder.service.PlanExecutionRecorder;
 import com.wangliang.agentj.runtime.entity.vo.*;
+import com.wangliang.agentj.runtime.observation.LynxeObservations;
 import com.wangliang.agentj.runtime.service.AgentInterruptionHelper;
 import com.wangliang.agentj.runtime.service.FileUploadService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -90,6 +94,7 @@ public abstract class AbstractPlanExecutor implements PlanExecutorInterface {
 	 * @return The step executor
 	 */
 	protected BaseAgent executeStep(ExecutionStep step, ExecutionContext context) {
+		boolean suspended = false;
 		try {
 			BaseAgent executor = getExecutorForStep(context, step);
 			if (executor == null) {
@@ -107,59 +112,102 @@ public abstract class AbstractPlanExecutor implements PlanExecutorInterface {
 				logger.warn("Failed to record step start for planId: {}", context.getCurrentPlanId(), e);
 			}
 
-			BaseAgent.AgentExecResult agentResult = executor.run();
-			step.setResult(agentResult.getResult());
-			step.setStatus(agentResult.getState());
-
-			// Check if agent was interrupted, completed, or failed
-			if (agentResult.getState() == AgentState.INTERRUPTED) {
-				logger.info("Agent {} was interrupted during step execution", executor.getName());
-				// Don't return null, return the executor so interruption can be handled
-				// at plan level
-			}
-			else if (agentResult.getState() == AgentState.COMPLETED) {
-				logger.info("Agent {} completed step execution", executor.getName());
-			}
-			else if (agentResult.getState() == AgentState.FAILED) {
-				logger.error("Agent {} failed during step execution", executor.getName());
-				// Set success to false for plan level handling
-				context.setSuccess(false);
-			}
-
+			suspended = applyAgentResult(executor, step, context, executor.run());
 			return executor;
 		}
 		catch (Exception e) {
 			logger.error("Error executing step: {} for planId: {}", step.getStepRequirement(),
 					context.getCurrentPlanId(), e);
-			String errorMessage = e.getMessage();
-			if (errorMessage == null || errorMessage.isEmpty()) {
-				errorMessage = e.getClass().getSimpleName() + " occurred during step execution";
-			}
-			step.setResult("Execution failed: " + errorMessage);
-			step.setErrorMessage(errorMessage);
+			markStepFailed(step, e);
 		}
 		catch (Throwable t) {
 			// Catch any other throwable (Error, etc.)
 			logger.error("Fatal error executing step: {} for planId: {}", step.getStepRequirement(),
 					context.getCurrentPlanId(), t);
-			String errorMessage = t.getMessage();
-			if (errorMessage == null || errorMessage.isEmpty()) {
-				errorMessage = t.getClass().getSimpleName() + " occurred during step execution";
-			}
-			step.setResult("Execution failed: " + errorMessage);
-			step.setErrorMessage(errorMessage);
+			markStepFailed(step, t);
 		}
 		finally {
-			try {
-				recorder.recordStepEnd(step, context.getCurrentPlanId());
+			if (!suspended) {
+				recordStepEnd(step, context);
 			}
-			catch (Exception e) {
-				logger.warn("Failed to record step end for planId: {}", context.getCurrentPlanId(), e);
+		}
+		return null;
+	}
+
+	/**
+	 * Continue a step whose agent suspended on a user form. Runs on a pool thread once the
+	 * form is answered or expired.
+	 * @param step The suspended step
+	 * @param context The execution context
+	 * @param executor The suspended agent of the step
+	 * @return The step executor
+	 */
+	protected BaseAgent resumeStep(ExecutionStep step, ExecutionContext context, BaseAgent executor) {
+		boolean suspended = false;
+		try {
+			suspended = applyAgentResult(executor, step, context, executor.resume());
+			return executor;
+		}
+		catch (Throwable t) {
+			logger.error("Error resuming step: {} for planId: {}", step.getStepRequirement(),
+					context.getCurrentPlanId(), t);
+			markStepFailed(step, t);
+		}
+		finally {
+			if (!suspended) {
+				recordStepEnd(step, context);
 			}
 		}
 		return null;
 	}
 
+	/**
+	 * Copy the agent result onto the step
+	 * @return whether the agent suspended and the step is not finished yet
+	 */
+	private boolean applyAgentResult(BaseAgent executor, ExecutionStep step, ExecutionContext context,
+			BaseAgent.AgentExecResult agentResult) {
+		step.setResult(agentResult.getResult());
+		step.setStatus(agentResult.getState());
+
+		// Check if agent was interrupted, completed, failed or suspended
+		if (agentResult.getState() == AgentState.INTERRUPTED) {
+			logger.info("Agent {} was interrupted during step execution", executor.getName());
+			// Don't return null, return the executor so interruption can be handled
+			// at plan level
+		}
+		else if (agentResult.getState() == AgentState.COMPLETED) {
+			logger.info("Agent {} completed step execution", executor.getName());
+		}
+		else if (agentResult.getState() == AgentState.FAILED) {
+			logger.error("Agent {} failed during step execution", executor.getName());
+			// Set success to false for plan level handling
+			context.setSuccess(false);
+		}
+		else if (agentResult.getState() == AgentState.SUSPENDED) {
+			logger.info("Agent {} suspended step execution awaiting user input", executor.getName());
+		}
+		return agentResult.getState() == AgentState.SUSPENDED;
+	}
+
+	private void markStepFailed(ExecutionStep step, Throwable t) {
+		String errorMessage = t.getMessage();
+		if (errorMessage == null || errorMessage.isEmpty()) {
+			errorMessage = t.getClass().getSimpleName() + " occurred during step execution";
+		}
+		step.setResult("Execution failed: " + errorMessage);
+		step.setErrorMessage(errorMessage);
+	}
+
+	private void recordStepEnd(ExecutionStep step, ExecutionContext context) {
+		try {
+			recorder.recordStepEnd(step, context.getCurrentPlanId());
+		}
+		catch (Exception e) {
+			logger.warn("Failed to record step end for planId: {}", context.getCurrentPlanId(), e);
+		}
+	}
+
 	/**
 	 * Extract the step type from the step requirement string.
 	 */
@@ -245,111 +293,313 @@ public abstract class AbstractPlanExecutor implements PlanExecutorInterface {
 		// Get the appropriate executor for this depth level
 		ExecutorService executor = levelBasedExecutorPool.getExecutorForLevel(planDepth);
 
-		return CompletableFuture.supplyAsync(() -> {
-			PlanExecutionResult result = new PlanExecutionResult();
-			BaseAgent lastExecutor = null;
+		PlanRun run = new PlanRun(context, executor);
+		return LynxeObservations
+			.observeAsync("lynxe.plan",
+					() -> CompletableFuture.runAsync(LynxeObservations.wrap(run::start), executor)
+						.thenCompose(started -> run.done),
+					"depth", String.valueOf(planDepth))
+			.exceptionally(throwable -> {
+				// Handle any uncaught exceptions that might escape the run
+				// This is a safety net for exceptions that occur outside the try-catch blocks
+				logger.error("Uncaught exception in CompletableFuture for planId: {}", context.getCurrentPlanId(),
+						throwable);
+				PlanExecutionResult errorResult = new PlanExecutionResult();
+				errorResult.setSuccess(false);
+				errorResult.setErrorMessage(describe(throwable, "occurred during async plan execution"));
+				return errorResult;
+			});
+	}
+
+	private static String describe(Throwable t, String fallbackSuffix) {
+		String errorMessage = t.getMessage();
+		if (errorMessage == null || errorMessage.isEmpty()) {
+			errorMessage = t.getClass().getSimpleName() + " " + fallbackSuffix;
+		}
+		return errorMessage;
+	}
+
+	/**
+	 * Prepare the plan and record its start
+	 * @return the steps to execute
+	 */
+	private List<ExecutionStep> startPlan(ExecutionContext context) {
+		PlanInterface plan = context.getPlan();
+		if (plan == null) {
+			throw new IllegalStateException("Plan is null in execution context");
+		}
+		plan.setCurrentPlanId(context.getCurrentPlanId());
+		plan.setRootPlanId(context.getRootPlanId());
+		plan.updateStepIndices();
+		// Synchronize uploaded files to plan directory at the beginning of
+		// execution
+		syncUploadedFilesToPlan(context);
+		List<ExecutionStep> steps = plan.getAllSteps();
+
+		recorder.recordPlanExecutionStart(context.getCurrentPlanId(), context.getPlan().getTitle(),
+				context.getTitle(), steps, context.getParentPlanId(), context.getRootPlanId(),
+				context.getToolCallId());
+		return steps != null ? steps : List.of();
+	}
+
+	/**
+	 * One plan execution. A step starts once the steps it depends on are done (see
+	 * {@link StepDependencies}), at most {@link LynxeProperties#getMaxParallelSteps()} at
+	 * a time; a plan without declared dependencies runs its steps one after another on a
+	 * single thread. No thread is held while a step waits for user input. After a failure
+	 * or an interruption no further step starts, the running ones are awaited.
+	 */
+	private final class PlanRun {
+
+		private final ExecutionContext context;
+
+		private final ExecutorService executor;
+
+		private final PlanExecutionResult result = new PlanExecutionResult();
+
+		private final CompletableFuture<PlanExecutionResult> done = new CompletableFuture<>();
+
+		private final BitSet started = new BitSet();
+
+		private List<ExecutionStep> steps = List.of();
+
+		private StepDependencies dependencies;
+
+		private int maxParallelSteps = 1;
+
+		// Number of unfinished dependencies per step
+		private int[] waitingFor = new int[0];
+
+		// Collected per step so the plan result lists them in declaration order
+		private StepResult[] stepResults = new StepResult[0];
+
+		private int running;
+
+		private boolean stopped;
+
+		private boolean crashed;
+
+		private boolean finished;
+
+		private BaseAgent lastExecutor;
+
+		private PlanRun(ExecutionContext context, ExecutorService executor) {
+			this.context = context;
+			this.executor = executor;
+		}
+
+		private void start() {
 			try {
-				PlanInterface plan = context.getPlan();
-				if (plan == null) {
-					throw new IllegalStateException("Plan is null in execution context");
+				steps = startPlan(context);
+				dependencies = StepDependencies.of(steps);
+				waitingFor = new int[steps.size()];
+				for (int i = 0; i < steps.size(); i++) {
+					waitingFor[i] = dependencies.dependenciesOf(i).cardinality();
+				}
+				stepResults = new StepResult[steps.size()];
+				if (!dependencies.isSequential()) {
+					Integer configured = lynxeProperties != null ? lynxeProperties.getMaxParallelSteps() : null;
+					maxParallelSteps = configured != null ? Math.max(1, configured) : 1;
+					logger.info("Plan {} runs {} steps by their dependencies, up to {} at a time",
+							context.getCurrentPlanId(), steps.size(), maxParallelSteps);
+				}
+			}
+			catch (Throwable t) {
+				logger.error("Unexpected error during plan execution for planId: {}", context.getCurrentPlanId(), t);
+				synchronized (this) {
+					crash(t);
+				}
+			}
+			drive(launchReadySteps(true), null);
+		}
+
+		/**
+		 * Run the step on the calling thread, then keep going with one of the steps it
+		 * unblocked while the others are handed to the pool
+		 */
+		private void drive(Integer index, BaseAgent suspendedAgent) {
+			Integer next = index;
+			BaseAgent agent = suspendedAgent;
+			while (next != null) {
+				if (runStep(next, agent)) {
+					return;
 				}
-				plan.setCurrentPlanId(context.getCurrentPlanId());
-				plan.setRootPlanId(context.getRootPlanId());
-				plan.updateStepIndices();
-				// Synchronize uploaded files to plan directory at the beginning of
-				// execution
-				syncUploadedFilesToPlan(context);
-				List<ExecutionStep> steps = plan.getAllSteps();
-
-				recorder.recordPlanExecutionStart(context.getCurrentPlanId(), context.getPlan().getTitle(),
-						context.getTitle(), steps, context.getParentPlanId(), context.getRootPlanId(),
-						context.getToolCallId());
-
-				if (steps != null && !steps.isEmpty()) {
-					for (int i = 0; i < steps.size(); i++) {
-						ExecutionStep step = steps.get(i);
-
-						// Check for interruption before each step
-						if (agentInterruptionHelper != null
-								&& !agentInterruptionHelper.checkInterruptionAndContinue(context.getRootPlanId())) {
-							logger.info("Plan execution interrupted at step {}/{} for planId: {}", i + 1, steps.size(),
-									context.getRootPlanId());
-							context.setSuccess(false);
-							result.setSuccess(false);
-							result.setErrorMessage("Plan execution interrupted by user");
-							break; // Stop executing remaining steps
-						}
-
-						BaseAgent stepExecutor = executeStep(step, context);
-						if (stepExecutor != null) {
-							lastExecutor = stepExecutor;
-
-							// Collect step result
-							StepResult stepResult = new StepResult();
-							stepResult.setStepIndex(step.getStepIndex());
-							stepResult.setStepRequirement(step.getStepRequirement());
-							stepResult.setResult(step.getResult());
-							stepResult.setStatus(step.getStatus());
-							stepResult.setAgentName(stepExecutor.getName());
-
-							result.addStepResult(stepResult);
-
-							// Check if this step was interrupted
-							if (step.getResult().contains("Execution interrupted by user")) {
-								logger.info("Step execution was interrupted, stopping plan execution");
-								context.setSuccess(false);
-								result.setSuccess(false);
-								result.setErrorMessage("Plan execution interrupted by user");
-								break; // Stop executing remaining steps
-							}
-
-							// Check if this step failed
-							if (step.getStatus() == AgentState.FAILED) {
-								logger.error("Step execution failed, stopping plan execution");
-								context.setSuccess(false);
-								result.setSuccess(false);
-								if (step.getErrorMessage() != null && !step.getErrorMessage().isEmpty()) {
-									result.setErrorMessage(step.getErrorMessage());
-								}
-								else {
-									result.setErrorMessage("Agent execution failed: " + step.getResult());
-								}
-								break; // Stop executing remaining steps
-							}
-						}
+				agent = null;
+				next = launchReadySteps(true);
+			}
+		}
+
+		/**
+		 * @return whether the step suspended and keeps its slot until it resumes
+		 */
+		private boolean runStep(int index, BaseAgent suspendedAgent) {
+			ExecutionStep step = steps.get(index);
+			try {
+				// Check for interruption before each step, a resumed step notices it on
+				// its next round
+				if (suspendedAgent == null && agentInterruptionHelper != null
+						&& !agentInterruptionHelper.checkInterruptionAndContinue(context.getRootPlanId())) {
+					logger.info("Plan execution interrupted at step {}/{} for planId: {}", index + 1, steps.size(),
+							context.getRootPlanId());
+					synchronized (this) {
+						stop("Plan execution interrupted by user");
 					}
+					stepDone(index, null, null);
+					return false;
 				}
 
-				// Only set success if no interruption or failure occurred
-				if (result.getErrorMessage() == null || (!result.getErrorMessage().contains("interrupted")
-						&& !result.getErrorMessage().contains("failed"))) {
-					context.setSuccess(true);
-					result.setSuccess(true);
-					result.setFinalResult(context.getPlan().getResult());
+				BaseAgent stepExecutor = LynxeObservations.observe("lynxe.step",
+						() -> suspendedAgent != null ? resumeStep(step, context, suspendedAgent)
+								: executeStep(step, context),
+						"depth", String.valueOf(context.getPlanDepth()));
+				if (stepExecutor != null && step.getStatus() == AgentState.SUSPENDED) {
+					resumeLater(index, stepExecutor);
+					return true;
 				}
+				stepDone(index, stepExecutor, null);
+			}
+			catch (Throwable t) {
+				logger.error("Unexpected error during plan execution for planId: {}", context.getCurrentPlanId(), t);
+				stepDone(index, null, t);
+			}
+			return false;
+		}
 
+		private void resumeLater(int index, BaseAgent agent) {
+			logger.info("Plan {} suspended at step {}, releasing its thread until the agent can resume",
+					context.getCurrentPlanId(), index + 1);
+			Runnable resume = LynxeObservations.wrap(() -> LynxeObservations.observe("lynxe.plan.resume",
+					() -> drive(index, agent), "depth", String.valueOf(context.getPlanDepth())));
+			agent.whenResumable().handleAsync((ignored, error) -> {
+				resume.run();
+				return null;
+			}, executor).whenComplete((ignored, error) -> {
+				if (error != null) {
+					logger.error("Could not resume step {} for planId: {}", index + 1, context.getCurrentPlanId(),
+							error);
+					stepDone(index, null, error);
+					drive(launchReadySteps(true), null);
+				}
+			});
+		}
+
+		private synchronized void stepDone(int index, BaseAgent stepExecutor, Throwable error) {
+			running--;
+			ExecutionStep step = steps.get(index);
+			if (error != null) {
+				crash(error);
 			}
-			catch (Exception e) {
-				logger.error("Unexpected error during plan execution for planId: {}", context.getCurrentPlanId(), e);
+			else if (stepExecutor != null) {
+				lastExecutor = stepExecutor;
+
+				StepResult stepResult = new StepResult();
+				stepResult.setStepIndex(step.getStepIndex());
+				stepResult.setStepRequirement(step.getStepRequirement());
+				stepResult.setResult(step.getResult());
+				stepResult.setStatus(step.getStatus());
+				stepResult.setAgentName(stepExecutor.getName());
+				stepResults[index] = stepResult;
+
+				if (step.getResult() != null && step.getResult().contains("Execution interrupted by user")) {
+					logger.info("Step execution was interrupted, stopping plan execution");
+					stop("Plan execution interrupted by user");
+				}
+				else if (step.getStatus() == AgentState.FAILED) {
+					logger.error("Step execution failed, stopping plan execution");
+					if (step.getErrorMessage() != null && !step.getErrorMessage().isEmpty()) {
+						stop(step.getErrorMessage());
+					}
+					else {
+						stop("Agent execution failed: " + step.getResult());
+					}
+				}
+			}
+			BitSet dependents = dependencies.dependentsOf(index);
+			for (int dependent = dependents.nextSetBit(0); dependent >= 0; dependent = dependents
+				.nextSetBit(dependent + 1)) {
+				waitingFor[dependent]--;
+			}
+		}
+
+		/**
+		 * Stop starting new steps, the first reason wins
+		 */
+		private void stop(String errorMessage) {
+			if (!stopped) {
+				stopped = true;
 				context.setSuccess(false);
 				result.setSuccess(false);
-				String errorMessage = e.getMessage();
-				if (errorMessage == null || errorMessage.isEmpty()) {
-					errorMessage = e.getClass().getSimpleName() + " occurred during plan execution";
-				}
 				result.setErrorMessage(errorMessage);
 			}
+		}
+
+		private void crash(Throwable t) {
+			stop(describe(t, "occurred during plan execution"));
+			crashed = true;
+		}
+
+		/**
+		 * Claim the steps that can start now and hand them to the pool, finishing the
+		 * run once nothing runs and nothing can start anymore
+		 * @param keepOne whether the caller runs the first ready step itself
+		 * @return the step for the caller to run, if any
+		 */
+		private Integer launchReadySteps(boolean keepOne) {
+			List<Integer> ready = new ArrayList<>();
+			boolean complete = false;
+			synchronized (this) {
+				for (int i = started.nextClearBit(0); !stopped && i < steps.size()
+						&& running < maxParallelSteps; i = started.nextClearBit(i + 1)) {
+					if (waitingFor[i] == 0) {
+						started.set(i);
+						running++;
+						ready.add(i);
+					}
+				}
+				if (running == 0 && !finished) {
+					finished = true;
+					complete = true;
+				}
+			}
+			if (complete) {
+				finish();
+				return null;
+			}
+			Integer inline = keepOne && !ready.isEmpty() ? ready.remove(0) : null;
+			for (int index : ready) {
+				try {
+					executor.execute(LynxeObservations.wrap(() -> drive(index, null)));
+				}
+				catch (RejectedExecutionException e) {
+					logger.error("Could not schedule step {} for planId: {}", index + 1, context.getCurrentPlanId(), e);
+					stepDone(index, null, e);
+					launchReadySteps(false);
+				}
+			}
+			return inline;
+		}
+
+		private void finish() {
+			try {
+				for (StepResult stepResult : stepResults) {
+					if (stepResult != null) {
+						result.addStepResult(stepResult);
+					}
+				}
+				// Only set success if no interruption or failure occurred
+				if (!crashed && (result.getErrorMessage() == null
+						|| (!result.getErrorMessage().contains("interrupted")
+								&& !result.getErrorMessage().contains("failed")))) {
+					context.setSuccess(true);
+					result.setSuccess(true);
+					result.setFinalResult(mergedResult());
+				}
+			}
 			catch (Throwable t) {
-				// Catch any other throwable (Error, etc.) that might not be caught by
-				// Exception
 				logger.error("Fatal error during plan execution for planId: {}", context.getCurrentPlanId(), t);
 				context.setSuccess(false);
 				result.setSuccess(false);
-				String errorMessage = t.getMessage();
-				if (errorMessage == null || errorMessage.isEmpty()) {
-					errorMessage = t.getClass().getSimpleName() + " occurred during plan execution";
-				}
-				result.setErrorMessage(errorMessage);
+				result.setErrorMessage(describe(t, "occurred during plan execution"));
 			}
 			finally {
 				try {
@@ -358,23 +608,38 @@ public abstract class AbstractPlanExecutor implements PlanExecutorInterface {
 				catch (Exception e) {
 					logger.error("Error during cleanup for planId: {}", context.getCurrentPlanId(), e);
 				}
+				done.complete(result);
 			}
+		}
 
-			return result;
-		}, executor).exceptionally(throwable -> {
-			// Handle any uncaught exceptions that might escape the supplyAsync lambda
-			// This is a safety net for exceptions that occur outside the try-catch blocks
-			logger.error("Uncaught exception in CompletableFuture for planId: {}", context.getCurrentPlanId(),
-					throwable);
-			PlanExecutionResult errorResult = new PlanExecutionResult();
-			errorResult.setSuccess(false);
-			String errorMessage = throwable.getMessage();
-			if (errorMessage == null || errorMessage.isEmpty()) {
-				errorMessage = throwable.getClass().getSimpleName() + " occurred during async plan execution";
+		/**
+		 * The plan result is the result of its last step. When several steps end the
+		 * graph, their results are joined in declaration order.
+		 */
+		private String mergedResult() {
+			List<Integer> ends = new ArrayList<>();
+			for (int i = 0; i < steps.size(); i++) {
+				if (dependencies.dependentsOf(i).isEmpty()) {
+					ends.add(i);
+				}
+			}
+			if (ends.size() <= 1) {
+				return context.getPlan().getResult();
+			}
+			StringBuilder merged = new StringBuilder();
+			for (int index : ends) {
+				String stepResult = steps.get(index).getResult();
+				if (stepResult == null || stepResult.isEmpty()) {
+					continue;
+				}
+				if (!merged.isEmpty()) {
+					merged.append("\n\n");
+				}
+				merged.append("Step ").append(index + 1).append(":\n").append(stepResult);
 			}
-			errorResult.setErrorMessage(errorMessage);
-			return errorResult;
-		});
+			return merged.toString();
+		}
+
 	}
 
 	/**
@@ -382,7 +647,7 @@ public abstract class AbstractPlanExecutor implements PlanExecutorInterface {
 	 */
 	protected void performCleanup(ExecutionContext context, BaseAgent lastExecutor) {
 		String planId = context.getCurrentPlanId();
-		llmService.clearAgentMemory(planId);
+		llmService.clearPlanAgentMemory(planId);
 		if (lastExecutor != null) {
 			lastExecutor.clearUp(planId);
 		}
@@ -23,6 +23,7 @@ import com.wangliang.agentj.agent.entity.DynamicAgentEntity;
 import com.wangliang.agentj.config.LynxeProperties;
 import com.wangliang.agentj.conversation.service.MemoryService;
 import com.wangliang.agentj.event.LynxeEventPublisher;
+import com.wangliang.agentj.event.PlanCompletedEvent;
 import com.wangliang.agentj.llm.ConversationMemoryLimitService;
 import com.wangliang.agentj.llm.LlmService;
 import com.wangliang.agentj.llm.StreamingResponseHandler;
@@ -177,4 +178,15 @@ public class DynamicToolPlanExecutor extends AbstractPlanExecutor {
 		return agent;
 	}
 
+	/**
+	 * Release tool state, then announce completion so plan-scoped service state is
+	 * dropped as well.
+	 */
+	@Override
+	protected void performCleanup(ExecutionContext context, BaseAgent lastExecutor) {
+		super.performCleanup(context, lastExecutor);
+		lynxeEventPublisher.publish(new PlanCompletedEvent(context.getCurrentPlanId(), context.getRootPlanId(),
+				context.isSuccess()));
+	}
+
 }
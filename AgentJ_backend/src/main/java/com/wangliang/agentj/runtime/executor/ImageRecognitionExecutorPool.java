@@ -16,8 +16,12 @@
 package com.wangliang.agentj.runtime.executor;
 
 import com.wangliang.agentj.config.LynxeProperties;
+import com.wangliang.agentj.event.ConfigChangeEvent;
+import com.wangliang.agentj.event.LynxeListener;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
 
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -26,8 +30,14 @@ import java.util.concurrent.atomic.AtomicInteger;
  * Dedicated executor pool for image recognition and OCR processing tasks. This pool is
  * specifically designed for handling image processing workloads with configurable thread
  * pool size and retry mechanisms.
+ *
+ * CPU work (rendering, scaling, encoding) runs on the fixed-size pool; blocking model
+ * requests run on virtual threads via {@link #submitRequest(Runnable)} so that waiting
+ * on the provider never occupies a worker. The fixed-size pool is rebuilt when its
+ * configured size changes.
  */
-public class ImageRecognitionExecutorPool {
+@Component
+public class ImageRecognitionExecutorPool implements LynxeListener<ConfigChangeEvent> {
 
 	private static final Logger log = LoggerFactory.getLogger(ImageRecognitionExecutorPool.class);
 
@@ -37,12 +47,10 @@ public class ImageRecognitionExecutorPool {
 
 	private volatile int currentPoolSize;
 
-	private volatile long lastConfigCheckTime;
+	private final ExecutorService requestExecutor = Executors
+		.newThreadPerTaskExecutor(Thread.ofVirtual().name("image-recognition-request-", 1).factory());
 
-	/**
-	 * Configuration check interval in milliseconds (10 seconds)
-	 */
-	private static final long CONFIG_CHECK_INTERVAL_MILLIS = 10_000;
+	private static final String POOL_SIZE_CONFIG_PATH = "lynxe.imageRecognition.poolSize";
 
 	public ImageRecognitionExecutorPool(LynxeProperties lynxeProperties) {
 		this.lynxeProperties = lynxeProperties;
@@ -50,7 +58,6 @@ public class ImageRecognitionExecutorPool {
 		// Initialize thread pool with current configuration
 		this.currentPoolSize = getConfiguredPoolSize();
 		this.executorService = createExecutorService(currentPoolSize);
-		this.lastConfigCheckTime = System.currentTimeMillis();
 
 		log.info("ImageRecognitionExecutorPool initialized with thread pool size: {}", currentPoolSize);
 	}
@@ -60,7 +67,7 @@ public class ImageRecognitionExecutorPool {
 	 * @return ExecutorService for image recognition processing
 	 */
 	public ExecutorService getExecutorService() {
-		return getUpdatedExecutorService();
+		return executorService;
 	}
 
 	/**
@@ -70,7 +77,7 @@ public class ImageRecognitionExecutorPool {
 	 * @return CompletableFuture representing the task execution
 	 */
 	public <T> CompletableFuture<T> submitTask(Callable<T> task) {
-		ExecutorService executor = getUpdatedExecutorService();
+		ExecutorService executor = executorService;
 		return CompletableFuture.supplyAsync(() -> {
 			try {
 				return task.call();
@@ -87,10 +94,20 @@ public class ImageRecognitionExecutorPool {
 	 * @return CompletableFuture representing the task execution
 	 */
 	public CompletableFuture<Void> submitTask(Runnable task) {
-		ExecutorService executor = getUpdatedExecutorService();
+		ExecutorService executor = executorService;
 		return CompletableFuture.runAsync(task, executor);
 	}
 
+	/**
+	 * Submit a blocking model request. Requests are not bounded here; callers bound them
+	 * through the model's {@code LlmCallScheduler} limiter.
+	 * @param task The request to execute
+	 * @return CompletableFuture representing the request execution
+	 */
+	public CompletableFuture<Void> submitRequest(Runnable task) {
+		return CompletableFuture.runAsync(task, requestExecutor);
+	}
+
 	/**
 	 * Get the configured pool size from LynxeProperties
 	 * @return configured pool size or default value if not configured
@@ -146,45 +163,35 @@ public class ImageRecognitionExecutorPool {
 	}
 
 	/**
-	 * Check and update thread pool configuration if needed. This method is called before
-	 * each executor service usage to ensure configuration changes are picked up without
-	 * using timers or background threads.
-	 * @return the current (potentially updated) executor service
+	 * Rebuild the thread pool when its configured size changes
 	 */
-	private ExecutorService getUpdatedExecutorService() {
-		long currentTime = System.currentTimeMillis();
-
-		// Check if enough time has passed since last configuration check
-		if (currentTime - lastConfigCheckTime >= CONFIG_CHECK_INTERVAL_MILLIS) {
-			lastConfigCheckTime = currentTime;
-
-			// Get current configuration
-			int newPoolSize = getConfiguredPoolSize();
-
-			// Check if configuration has changed
-			if (newPoolSize != currentPoolSize) {
-				log.info("Image recognition pool size configuration changed from {} to {}, rebuilding thread pool",
-						currentPoolSize, newPoolSize);
-
-				// Gracefully shutdown old executor service
-				ExecutorService oldExecutorService = executorService;
-
-				// Create new executor service with updated configuration
-				ExecutorService newExecutorService = createExecutorService(newPoolSize);
+	@Override
+	public void onEvent(ConfigChangeEvent event) {
+		if (event.isChanged(POOL_SIZE_CONFIG_PATH)) {
+			updateExecutorService();
+		}
+	}
 
-				// Update current state atomically
-				this.executorService = newExecutorService;
-				this.currentPoolSize = newPoolSize;
+	/**
+	 * Replace the thread pool if the configured size differs from the current one.
+	 * Tasks already submitted to the old pool still complete.
+	 */
+	private synchronized void updateExecutorService() {
+		int newPoolSize = getConfiguredPoolSize();
+		if (newPoolSize == currentPoolSize) {
+			return;
+		}
+		log.info("Image recognition pool size configuration changed from {} to {}, rebuilding thread pool",
+				currentPoolSize, newPoolSize);
 
-				// Gracefully shutdown old executor service in background
-				// This ensures existing tasks can complete
-				shutdownExecutorGracefully(oldExecutorService);
+		ExecutorService oldExecutorService = executorService;
+		this.executorService = createExecutorService(newPoolSize);
+		this.currentPoolSize = newPoolSize;
 
-				log.info("Image recognition thread pool successfully updated to size: {}", newPoolSize);
-			}
-		}
+		// Let tasks already queued on the old pool finish
+		shutdownExecutorGracefully(oldExecutorService);
 
-		return executorService;
+		log.info("Image recognition thread pool successfully updated to size: {}", newPoolSize);
 	}
 
 	/**
@@ -226,7 +233,9 @@ public class ImageRecognitionExecutorPool {
 	/**
 	 * Shutdown the executor pool gracefully
 	 */
+	@PreDestroy
 	public void shutdown() {
+		requestExecutor.shutdownNow();
 		if (executorService != null && !executorService.isShutdown()) {
 			executorService.shutdown();
 			try {
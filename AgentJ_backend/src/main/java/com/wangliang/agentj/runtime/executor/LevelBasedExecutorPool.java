@@ -17,6 +17,10 @@
 package com.wangliang.agentj.runtime.executor;
 
 import com.wangliang.agentj.config.LynxeProperties;
+import com.wangliang.agentj.event.ConfigChangeEvent;
+import com.wangliang.agentj.event.LynxeListener;
+import com.wangliang.agentj.runtime.observation.LynxeObservations;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
@@ -31,10 +35,11 @@ import java.util.concurrent.atomic.AtomicInteger;
 /**
  * Level-based executor common pool that manages thread pools by depth level. Each depth
  * level has its own thread pool to execute tasks at that hierarchy level. Maximum depth
- * level is 10.
+ * level is 10. Pool sizes follow the configured executor pool size as soon as it
+ * changes.
  */
 @Component
-public class LevelBasedExecutorPool {
+public class LevelBasedExecutorPool implements LynxeListener<ConfigChangeEvent> {
 
 	private static final Logger log = LoggerFactory.getLogger(LevelBasedExecutorPool.class);
 
@@ -44,7 +49,7 @@ public class LevelBasedExecutorPool {
 
 	private static final long DEFAULT_KEEP_ALIVE_TIME = 60L;
 
-	private static final long POOL_SIZE_CHECK_INTERVAL_SECONDS = 10L;
+	private static final String POOL_SIZE_CONFIG_PATH = "lynxe.agent.executorPoolSize";
 
 	private final Map<Integer, ExecutorService> levelPools = new ConcurrentHashMap<>();
 
@@ -52,8 +57,6 @@ public class LevelBasedExecutorPool {
 
 	private volatile int currentPoolSize = -1;
 
-	private ScheduledExecutorService poolSizeMonitor;
-
 	@Autowired(required = false)
 	private LynxeProperties lynxeProperties;
 
@@ -171,30 +174,27 @@ public class LevelBasedExecutorPool {
 	}
 
 	/**
-	 * Initialize the dynamic pool size monitor
+	 * Initialize the current pool size
 	 */
 	@PostConstruct
 	public void init() {
-		// Initialize current pool size
 		currentPoolSize = getConfiguredPoolSize();
+	}
 
-		// Start the periodic pool size monitor
-		poolSizeMonitor = new ScheduledThreadPoolExecutor(1, r -> {
-			Thread thread = new Thread(r, "level-based-executor-pool-size-monitor");
-			thread.setDaemon(true);
-			return thread;
-		});
-
-		poolSizeMonitor.scheduleWithFixedDelay(this::checkAndAdjustPoolSizes, POOL_SIZE_CHECK_INTERVAL_SECONDS,
-				POOL_SIZE_CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
-
-		log.info("Started dynamic pool size monitor (check interval: {} seconds)", POOL_SIZE_CHECK_INTERVAL_SECONDS);
+	/**
+	 * Resize all level pools when the executor pool size configuration changes
+	 */
+	@Override
+	public void onEvent(ConfigChangeEvent event) {
+		if (event.isChanged(POOL_SIZE_CONFIG_PATH)) {
+			checkAndAdjustPoolSizes();
+		}
 	}
 
 	/**
 	 * Check configured pool size and adjust all level pools if changed
 	 */
-	private void checkAndAdjustPoolSizes() {
+	private synchronized void checkAndAdjustPoolSizes() {
 		try {
 			int configuredSize = getConfiguredPoolSize();
 			// Validate configured size before using it
@@ -251,9 +251,15 @@ public class LevelBasedExecutorPool {
 			int oldCoreSize = executor.getCorePoolSize();
 			int oldMaxSize = executor.getMaximumPoolSize();
 
-			// Update both core and maximum pool size
-			executor.setCorePoolSize(newPoolSize);
-			executor.setMaximumPoolSize(newPoolSize);
+			// Core size may never exceed max size, so the order depends on the direction
+			if (newPoolSize > oldMaxSize) {
+				executor.setMaximumPoolSize(newPoolSize);
+				executor.setCorePoolSize(newPoolSize);
+			}
+			else {
+				executor.setCorePoolSize(newPoolSize);
+				executor.setMaximumPoolSize(newPoolSize);
+			}
 
 			log.info("Adjusted pool size for level {}: core {} -> {}, max {} -> {}", depthLevel, oldCoreSize,
 					newPoolSize, oldMaxSize, newPoolSize);
@@ -274,21 +280,6 @@ public class LevelBasedExecutorPool {
 	public void shutdownAll() {
 		log.info("Shutting down all level-based executor pools");
 
-		// Shutdown the pool size monitor
-		if (poolSizeMonitor != null && !poolSizeMonitor.isShutdown()) {
-			log.info("Shutting down pool size monitor");
-			poolSizeMonitor.shutdown();
-			try {
-				if (!poolSizeMonitor.awaitTermination(5, TimeUnit.SECONDS)) {
-					poolSizeMonitor.shutdownNow();
-				}
-			}
-			catch (InterruptedException e) {
-				poolSizeMonitor.shutdownNow();
-				Thread.currentThread().interrupt();
-			}
-		}
-
 		// Shutdown all level pools
 		for (Map.Entry<Integer, ExecutorService> entry : levelPools.entrySet()) {
 			int level = entry.getKey();
@@ -342,8 +333,13 @@ public class LevelBasedExecutorPool {
 					corePoolSize, maxPoolSize, unifiedPoolSize, depthLevel);
 		}
 
-		ThreadPoolExecutor executor = new ThreadPoolExecutor(unifiedPoolSize, unifiedPoolSize, DEFAULT_KEEP_ALIVE_TIME,
-				TimeUnit.SECONDS, new LinkedBlockingQueue<>(queueCapacity), new ThreadFactory() {
+		Timer queueWait = Timer.builder("lynxe.executor.queue.wait")
+			.description("Time a task waited in the level pool queue before a thread picked it up")
+			.tag("level", String.valueOf(depthLevel))
+			.publishPercentileHistogram()
+			.register(LynxeObservations.getMeterRegistry());
+		ThreadPoolExecutor executor = new ObservedThreadPoolExecutor(unifiedPoolSize, unifiedPoolSize,
+				DEFAULT_KEEP_ALIVE_TIME, TimeUnit.SECONDS, new LinkedBlockingQueue<>(queueCapacity), new ThreadFactory() {
 					private final AtomicInteger threadCounter = new AtomicInteger(1);
 
 					@Override
@@ -352,7 +348,7 @@ public class LevelBasedExecutorPool {
 						thread.setDaemon(false);
 						return thread;
 					}
-				}, new ThreadPoolExecutor.CallerRunsPolicy());
+				}, new ThreadPoolExecutor.CallerRunsPolicy(), queueWait);
 
 		log.info("Created executor pool for depth level {}: {} (pool size: {}, queue: {})", depthLevel, poolName,
 				unifiedPoolSize, queueCapacity);
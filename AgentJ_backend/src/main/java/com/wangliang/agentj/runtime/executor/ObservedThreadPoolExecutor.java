@@ -0,0 +1,52 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.runtime.executor;
+
+import com.wangliang.agentj.runtime.observation.LynxeObservations;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread pool that records how long each task waited in the queue and runs it with the
+ * submitter's observation context, so plan and step spans nest across the pool
+ */
+public class ObservedThreadPoolExecutor extends ThreadPoolExecutor {
+
+	private final Timer queueWait;
+
+	public ObservedThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+			BlockingQueue<Runnable> workQueue, ThreadFactory threadFactory, RejectedExecutionHandler handler,
+			Timer queueWait) {
+		super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, handler);
+		this.queueWait = queueWait;
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		long submittedNanos = System.nanoTime();
+		Runnable task = LynxeObservations.wrap(command);
+		super.execute(() -> {
+			queueWait.record(System.nanoTime() - submittedNanos, TimeUnit.NANOSECONDS);
+			task.run();
+		});
+	}
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.runtime.executor;
+
+import com.wangliang.agentj.runtime.entity.vo.ExecutionStep;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Dependencies between the steps of a plan.
+ * <p>
+ * A plan in which no step declares {@link ExecutionStep#getDependsOn()} runs strictly in
+ * order, as it always did. Once a step declares them, the plan is scheduled as a graph:
+ * declared steps wait for the listed steps, the others wait for the steps their
+ * requirement refers to ("step 2", "步骤2", "第2步") and, without such a reference, for
+ * all earlier steps. Steps only ever wait for earlier steps, so the graph has no cycles.
+ */
+final class StepDependencies {
+
+	private static final Logger logger = LoggerFactory.getLogger(StepDependencies.class);
+
+	private static final Pattern STEP_REFERENCE = Pattern
+		.compile("(?i)\\bsteps?\\s*#?(\\d+)|步骤\\s*(\\d+)|第\\s*(\\d+)\\s*步");
+
+	private final BitSet[] dependencies;
+
+	private final BitSet[] dependents;
+
+	private StepDependencies(int size) {
+		this.dependencies = new BitSet[size];
+		this.dependents = new BitSet[size];
+		for (int i = 0; i < size; i++) {
+			dependencies[i] = new BitSet(size);
+			dependents[i] = new BitSet(size);
+		}
+	}
+
+	static StepDependencies of(List<ExecutionStep> steps) {
+		StepDependencies graph = new StepDependencies(steps.size());
+		boolean declared = steps.stream().anyMatch(step -> step.getDependsOn() != null);
+		for (int i = 1; i < steps.size(); i++) {
+			ExecutionStep step = steps.get(i);
+			if (!declared) {
+				graph.add(i, i - 1);
+			}
+			else if (step.getDependsOn() != null) {
+				for (Integer dependency : step.getDependsOn()) {
+					if (dependency != null && dependency >= 0 && dependency < i) {
+						graph.add(i, dependency);
+					}
+					else {
+						logger.warn("Ignoring dependency {} of step {}, steps can only wait for earlier steps",
+								dependency, i);
+					}
+				}
+			}
+			else {
+				// References may count from 0 or from 1, waiting for every step up to
+				// the highest one covers both
+				int last = Math.min(highestReference(step.getStepRequirement()), i - 1);
+				for (int dependency = 0; dependency <= last; dependency++) {
+					graph.add(i, dependency);
+				}
+			}
+		}
+		return graph;
+	}
+
+	/**
+	 * @return the highest step number referenced in the requirement, or
+	 * {@link Integer#MAX_VALUE} without a reference
+	 */
+	private static int highestReference(String requirement) {
+		if (requirement == null) {
+			return Integer.MAX_VALUE;
+		}
+		int highest = -1;
+		Matcher matcher = STEP_REFERENCE.matcher(requirement);
+		while (matcher.find()) {
+			for (int group = 1; group <= matcher.groupCount(); group++) {
+				String number = matcher.group(group);
+				if (number != null) {
+					try {
+						highest = Math.max(highest, Integer.parseInt(number));
+					}
+					catch (NumberFormatException e) {
+						// Too long to be a step number
+					}
+				}
+			}
+		}
+		return highest >= 0 ? highest : Integer.MAX_VALUE;
+	}
+
+	private void add(int step, int dependency) {
+		dependencies[step].set(dependency);
+		dependents[dependency].set(step);
+	}
+
+	int size() {
+		return dependencies.length;
+	}
+
+	BitSet dependenciesOf(int step) {
+		return dependencies[step];
+	}
+
+	BitSet dependentsOf(int step) {
+		return dependents[step];
+	}
+
+	/**
+	 * Whether every step waits for the one before it, the plan then runs as a sequence
+	 */
+	boolean isSequential() {
+		for (int i = 1; i < dependencies.length; i++) {
+			if (!dependencies[i].get(i - 1)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
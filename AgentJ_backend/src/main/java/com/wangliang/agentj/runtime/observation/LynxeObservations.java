@@ -0,0 +1,132 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.runtime.observation;
+
+import io.micrometer.context.ContextSnapshot;
+import io.micrometer.context.ContextSnapshotFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Static access to the observation and meter registries for code that is not a Spring
+ * bean (agents, tools, browser actions). Each observation records a timer named after it
+ * and opens a span that becomes the parent of observations started on the same thread.
+ * Until the application context is ready every helper falls back to a no-op registry.
+ */
+@Component
+public class LynxeObservations {
+
+	private static final ContextSnapshotFactory SNAPSHOTS = ContextSnapshotFactory.builder().build();
+
+	private static volatile ObservationRegistry observationRegistry = ObservationRegistry.NOOP;
+
+	private static volatile MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+	public LynxeObservations(ObjectProvider<ObservationRegistry> observationRegistry,
+			ObjectProvider<MeterRegistry> meterRegistry) {
+		LynxeObservations.observationRegistry = observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP);
+		LynxeObservations.meterRegistry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+	}
+
+	public static ObservationRegistry getObservationRegistry() {
+		return observationRegistry;
+	}
+
+	public static MeterRegistry getMeterRegistry() {
+		return meterRegistry;
+	}
+
+	/**
+	 * Run the body inside an observation
+	 * @param name Observation name, also the timer name
+	 * @param lowCardinalityKeyValues Tag key/value pairs; values must come from a small
+	 * fixed set (tool names, levels), never plan or step IDs
+	 */
+	public static <T> T observe(String name, Supplier<T> body, String... lowCardinalityKeyValues) {
+		return create(name, lowCardinalityKeyValues).observe(body);
+	}
+
+	public static void observe(String name, Runnable body, String... lowCardinalityKeyValues) {
+		create(name, lowCardinalityKeyValues).observe(body);
+	}
+
+	/**
+	 * Observe work that finishes later: the observation opens around the body, which
+	 * starts the work, and stops when the returned future completes
+	 */
+	public static <T> CompletableFuture<T> observeAsync(String name, Supplier<CompletableFuture<T>> body,
+			String... lowCardinalityKeyValues) {
+		Observation observation = create(name, lowCardinalityKeyValues).start();
+		CompletableFuture<T> future;
+		try (Observation.Scope scope = observation.openScope()) {
+			future = body.get();
+		}
+		catch (RuntimeException | Error e) {
+			observation.error(e);
+			observation.stop();
+			throw e;
+		}
+		return future.whenComplete((value, error) -> {
+			if (error != null) {
+				observation.error(error);
+			}
+			observation.stop();
+		});
+	}
+
+	/**
+	 * Same as {@link #observe(String, Supplier, String...)} for bodies that throw checked
+	 * exceptions
+	 */
+	public static <T, E extends Throwable> T observeChecked(String name, Observation.CheckedCallable<T, E> body,
+			String... lowCardinalityKeyValues) throws E {
+		return create(name, lowCardinalityKeyValues).observeChecked(body);
+	}
+
+	/**
+	 * Capture the caller's observation and thread-local context so that a task handed to
+	 * another executor nests its observations under the caller's span
+	 */
+	public static Runnable wrap(Runnable task) {
+		return SNAPSHOTS.captureAll().wrap(task);
+	}
+
+	public static <T> Supplier<T> wrap(Supplier<T> task) {
+		ContextSnapshot snapshot = SNAPSHOTS.captureAll();
+		return () -> {
+			try (ContextSnapshot.Scope scope = snapshot.setThreadLocals()) {
+				return task.get();
+			}
+		};
+	}
+
+	private static Observation create(String name, String... lowCardinalityKeyValues) {
+		Observation observation = Observation.createNotStarted(name, observationRegistry);
+		for (int i = 0; i + 1 < lowCardinalityKeyValues.length; i += 2) {
+			String value = lowCardinalityKeyValues[i + 1];
+			observation.lowCardinalityKeyValue(lowCardinalityKeyValues[i], value != null ? value : "none");
+		}
+		return observation;
+	}
+
+}
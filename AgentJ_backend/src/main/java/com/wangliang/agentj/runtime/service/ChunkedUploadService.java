@@ -0,0 +1,478 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.runtime.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wangliang.agentj.runtime.entity.vo.ChunkedUploadStatus;
+import com.wangliang.agentj.runtime.entity.vo.FileUploadResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Resumable uploads of large files in chunks, modelled on the tus protocol: a session is
+ * created with the final length, chunks are appended at the offset the server reports,
+ * and the complete file is handed to the upload key of {@link FileUploadService}.
+ * <p>
+ * Chunks are written straight into a part file with positional writes while SHA-256 is
+ * updated incrementally. Offset and metadata are kept next to the part file, so an
+ * interrupted upload resumes from the last byte that reached the disk, also after a
+ * restart.
+ */
+@Service
+public class ChunkedUploadService {
+
+	private static final Logger logger = LoggerFactory.getLogger(ChunkedUploadService.class);
+
+	// Part files live under the upload root, so completing one is a rename
+	private static final String PARTIAL_DIR = ".partial";
+
+	private static final String PART_SUFFIX = ".part";
+
+	private static final String META_SUFFIX = ".json";
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final FileUploadService fileUploadService;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final Duration sessionTtl;
+
+	private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+	public ChunkedUploadService(FileUploadService fileUploadService,
+			@Value("${lynxe.upload.chunkedSessionTtlHours:24}") long sessionTtlHours) {
+		this.fileUploadService = fileUploadService;
+		this.sessionTtl = Duration.ofHours(sessionTtlHours);
+	}
+
+	/**
+	 * Create an upload session
+	 * @param fileName The original file name
+	 * @param length The total file size in bytes
+	 * @param uploadKey Upload key to add the file to, or null to start a new one
+	 * @param sha256 Expected SHA-256 of the file in hex, or null to skip verification
+	 * @return Status of the new session
+	 * @throws IOException if the part file cannot be created
+	 */
+	public ChunkedUploadStatus create(String fileName, long length, String uploadKey, String sha256)
+			throws IOException {
+		if (fileName == null || fileName.trim().isEmpty() || fileName.contains("/") || fileName.contains("\\")) {
+			throw new IllegalArgumentException("File name cannot be empty or contain path separators");
+		}
+		if (length <= 0) {
+			throw new IllegalArgumentException("File length must be positive");
+		}
+		fileUploadService.validateFileSize(length);
+		fileUploadService.validateFileType(fileName);
+		if (uploadKey == null || uploadKey.isBlank()) {
+			uploadKey = fileUploadService.generateUploadKey();
+		}
+		else if (!fileUploadService.isValidUploadKey(uploadKey)) {
+			throw new IllegalArgumentException("Invalid upload key: " + uploadKey);
+		}
+		if (sha256 != null && !sha256.matches("[0-9a-fA-F]{64}")) {
+			throw new IllegalArgumentException("sha256 must be 64 hex characters");
+		}
+
+		Path directory = partialDirectory();
+		Files.createDirectories(directory);
+		UploadSession session = new UploadSession(new SessionMetadata(UUID.randomUUID().toString(), uploadKey,
+				fileName, length, sha256 == null ? null : sha256.toLowerCase(), 0, System.currentTimeMillis()));
+		session.digest = sha256();
+		Files.createFile(partFile(session.metadata.uploadId()));
+		persist(session);
+		sessions.put(session.metadata.uploadId(), session);
+
+		logger.info("Created chunked upload {} for {} ({} bytes) with uploadKey: {}", session.metadata.uploadId(),
+				fileName, length, uploadKey);
+		return session.status();
+	}
+
+	/**
+	 * Get the status of an upload session
+	 * @param uploadId The upload session ID
+	 * @return Session status, with the offset the next chunk has to start at
+	 */
+	public ChunkedUploadStatus getStatus(String uploadId) {
+		return session(uploadId).status();
+	}
+
+	/**
+	 * Append a chunk to an upload session. Bytes that reached the file before the stream
+	 * broke off are kept, the client resumes at the offset reported afterwards.
+	 * @param uploadId The upload session ID
+	 * @param offset Offset the chunk starts at, must equal the current offset
+	 * @param body The chunk content
+	 * @return Session status after the chunk
+	 * @throws IOException if reading the chunk or writing the part file fails
+	 */
+	public ChunkedUploadStatus append(String uploadId, long offset, InputStream body) throws IOException {
+		UploadSession session = session(uploadId);
+		lock(session);
+		try {
+			prepare(session);
+			long current = session.metadata.offset();
+			if (offset != current) {
+				throw new ChunkedUploadException(ChunkedUploadException.Reason.OFFSET_MISMATCH,
+						"Chunk offset " + offset + " does not match upload offset " + current);
+			}
+			long length = session.metadata.length();
+			long position = current;
+			boolean appended = false;
+			try (FileChannel channel = FileChannel.open(partFile(uploadId), StandardOpenOption.WRITE)) {
+				byte[] buffer = new byte[BUFFER_SIZE];
+				try {
+					int read;
+					while ((read = body.read(buffer)) != -1) {
+						int accepted = (int) Math.min(read, length - position);
+						ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, accepted);
+						while (chunk.hasRemaining()) {
+							position += channel.write(chunk, position);
+						}
+						session.digest.update(buffer, 0, accepted);
+						if (accepted < read) {
+							throw new ChunkedUploadException(ChunkedUploadException.Reason.TOO_LARGE,
+									"Chunk exceeds the upload length of " + length + " bytes");
+						}
+					}
+				}
+				finally {
+					// Record only what is on the disk, so a resumed upload never skips bytes
+					channel.force(false);
+					session.metadata = session.metadata.withOffset(position);
+					persist(session);
+				}
+				appended = true;
+			}
+			finally {
+				if (!appended) {
+					// Bytes may have reached the file without reaching the digest, the next
+					// request hashes the part file again
+					session.digest = null;
+				}
+			}
+			logger.debug("Chunked upload {} at {}/{} bytes", uploadId, position, length);
+			return session.status();
+		}
+		finally {
+			session.lock.unlock();
+		}
+	}
+
+	/**
+	 * Complete an upload session and move the file to its upload key
+	 * @param uploadId The upload session ID
+	 * @return Upload result in the same form as a multipart upload
+	 * @throws IOException if moving the file fails
+	 */
+	public FileUploadResult complete(String uploadId) throws IOException {
+		UploadSession session = session(uploadId);
+		lock(session);
+		try {
+			prepare(session);
+			SessionMetadata metadata = session.metadata;
+			if (metadata.offset() != metadata.length()) {
+				throw new ChunkedUploadException(ChunkedUploadException.Reason.INCOMPLETE, "Upload has "
+						+ metadata.offset() + " of " + metadata.length() + " bytes, send the rest before completing");
+			}
+			String sha256 = HexFormat.of().formatHex(session.digest.digest());
+			// digest() resets the state, a retry after a failed move hashes the file again
+			session.digest = null;
+			if (metadata.sha256() != null && !metadata.sha256().equals(sha256)) {
+				discard(session);
+				throw new ChunkedUploadException(ChunkedUploadException.Reason.CHECKSUM_MISMATCH,
+						"SHA-256 of the received file is " + sha256 + ", expected " + metadata.sha256());
+			}
+
+			FileUploadResult.FileInfo fileInfo = fileUploadService.storeUploadedFile(partFile(uploadId),
+					metadata.fileName(), metadata.uploadKey());
+			fileInfo.setSha256(sha256);
+			discard(session);
+
+			FileUploadResult result = new FileUploadResult();
+			result.setSuccess(true);
+			result.setMessage("File uploaded successfully");
+			result.setUploadKey(metadata.uploadKey());
+			result.setUploadedFiles(List.of(fileInfo));
+			result.setTotalFiles(1);
+			result.setSuccessfulFiles(1);
+			result.setFailedFiles(0);
+
+			logger.info("Completed chunked upload {} of {} ({} bytes) with uploadKey: {}", uploadId,
+					metadata.fileName(), metadata.length(), metadata.uploadKey());
+			return result;
+		}
+		finally {
+			session.lock.unlock();
+		}
+	}
+
+	/**
+	 * Abort an upload session and delete what was received
+	 * @param uploadId The upload session ID
+	 * @throws IOException if deleting fails
+	 */
+	public void abort(String uploadId) throws IOException {
+		UploadSession session = session(uploadId);
+		lock(session);
+		try {
+			discard(session);
+			logger.info("Aborted chunked upload {}", uploadId);
+		}
+		finally {
+			session.lock.unlock();
+		}
+	}
+
+	/**
+	 * Remove sessions that saw no chunk within the session TTL
+	 */
+	@Scheduled(fixedRate = 3600000)
+	public void purgeExpiredSessions() {
+		Path directory = partialDirectory();
+		if (!Files.isDirectory(directory)) {
+			return;
+		}
+		long cutoff = System.currentTimeMillis() - sessionTtl.toMillis();
+		try (Stream<Path> files = Files.list(directory)) {
+			for (Path meta : (Iterable<Path>) files.filter(p -> p.toString().endsWith(META_SUFFIX))::iterator) {
+				if (Files.getLastModifiedTime(meta).toMillis() >= cutoff) {
+					continue;
+				}
+				String uploadId = meta.getFileName().toString().replace(META_SUFFIX, "");
+				UploadSession session = sessions.get(uploadId);
+				if (session != null && !session.lock.tryLock()) {
+					continue;
+				}
+				try {
+					sessions.remove(uploadId);
+					Files.deleteIfExists(partFile(uploadId));
+					Files.deleteIfExists(meta);
+					logger.info("Removed expired chunked upload {}", uploadId);
+				}
+				finally {
+					if (session != null) {
+						session.closed = true;
+						session.lock.unlock();
+					}
+				}
+			}
+		}
+		catch (IOException e) {
+			logger.warn("Failed to purge expired chunked uploads: {}", e.getMessage());
+		}
+	}
+
+	private UploadSession session(String uploadId) {
+		if (uploadId == null || !uploadId.matches("[0-9a-f-]{36}")) {
+			throw new ChunkedUploadException(ChunkedUploadException.Reason.NOT_FOUND, "Unknown upload: " + uploadId);
+		}
+		UploadSession session = sessions.computeIfAbsent(uploadId, this::load);
+		if (session == null) {
+			throw new ChunkedUploadException(ChunkedUploadException.Reason.NOT_FOUND, "Unknown upload: " + uploadId);
+		}
+		return session;
+	}
+
+	/**
+	 * Load a session left by an earlier run of the server
+	 */
+	private UploadSession load(String uploadId) {
+		try {
+			SessionMetadata metadata = objectMapper.readValue(metaFile(uploadId).toFile(), SessionMetadata.class);
+			return new UploadSession(metadata);
+		}
+		catch (NoSuchFileException e) {
+			return null;
+		}
+		catch (IOException e) {
+			logger.warn("Failed to load chunked upload {}: {}", uploadId, e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Rebuild the digest of a loaded session from the bytes already received, dropping
+	 * anything written past the recorded offset
+	 */
+	private void prepare(UploadSession session) throws IOException {
+		if (session.digest != null) {
+			return;
+		}
+		MessageDigest digest = sha256();
+		long offset = session.metadata.offset();
+		try (FileChannel channel = FileChannel.open(partFile(session.metadata.uploadId()), StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			channel.truncate(offset);
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			long position = 0;
+			while (position < offset) {
+				buffer.clear();
+				int read = channel.read(buffer, position);
+				if (read < 0) {
+					break;
+				}
+				buffer.flip();
+				digest.update(buffer);
+				position += read;
+			}
+			if (position < offset) {
+				// The part file lost bytes, continue from what is left
+				session.metadata = session.metadata.withOffset(position);
+				persist(session);
+			}
+		}
+		session.digest = digest;
+		logger.info("Resumed chunked upload {} at {} bytes", session.metadata.uploadId(), session.metadata.offset());
+	}
+
+	private void lock(UploadSession session) {
+		if (!session.lock.tryLock()) {
+			throw new ChunkedUploadException(ChunkedUploadException.Reason.BUSY,
+					"Another request is writing to upload " + session.metadata.uploadId());
+		}
+		if (session.closed) {
+			session.lock.unlock();
+			throw new ChunkedUploadException(ChunkedUploadException.Reason.NOT_FOUND,
+					"Unknown upload: " + session.metadata.uploadId());
+		}
+	}
+
+	private void persist(UploadSession session) throws IOException {
+		Path meta = metaFile(session.metadata.uploadId());
+		Path temp = meta.resolveSibling(meta.getFileName() + ".tmp");
+		objectMapper.writeValue(temp.toFile(), session.metadata);
+		Files.move(temp, meta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private void discard(UploadSession session) throws IOException {
+		String uploadId = session.metadata.uploadId();
+		session.closed = true;
+		sessions.remove(uploadId);
+		Files.deleteIfExists(partFile(uploadId));
+		Files.deleteIfExists(metaFile(uploadId));
+	}
+
+	private Path partialDirectory() {
+		return fileUploadService.getUploadRootDirectory().resolve(PARTIAL_DIR);
+	}
+
+	private Path partFile(String uploadId) {
+		return partialDirectory().resolve(uploadId + PART_SUFFIX);
+	}
+
+	private Path metaFile(String uploadId) {
+		return partialDirectory().resolve(uploadId + META_SUFFIX);
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not available", e);
+		}
+	}
+
+	/**
+	 * Persisted part of a session
+	 */
+	record SessionMetadata(String uploadId, String uploadKey, String fileName, long length, String sha256,
+			long offset, long createdAt) {
+
+		SessionMetadata withOffset(long offset) {
+			return new SessionMetadata(uploadId, uploadKey, fileName, length, sha256, offset, createdAt);
+		}
+
+	}
+
+	private static final class UploadSession {
+
+		private final ReentrantLock lock = new ReentrantLock();
+
+		private volatile SessionMetadata metadata;
+
+		// Null until the bytes received before a restart are hashed again
+		private MessageDigest digest;
+
+		private volatile boolean closed;
+
+		UploadSession(SessionMetadata metadata) {
+			this.metadata = metadata;
+		}
+
+		ChunkedUploadStatus status() {
+			SessionMetadata current = metadata;
+			ChunkedUploadStatus status = new ChunkedUploadStatus();
+			status.setUploadId(current.uploadId());
+			status.setUploadKey(current.uploadKey());
+			status.setFileName(current.fileName());
+			status.setLength(current.length());
+			status.setOffset(current.offset());
+			return status;
+		}
+
+	}
+
+	/**
+	 * Failure of a chunked upload request that the client can act on
+	 */
+	public static class ChunkedUploadException extends RuntimeException {
+
+		public enum Reason {
+
+			NOT_FOUND, OFFSET_MISMATCH, BUSY, TOO_LARGE, INCOMPLETE, CHECKSUM_MISMATCH
+
+		}
+
+		private final Reason reason;
+
+		public ChunkedUploadException(Reason reason, String message) {
+			super(message);
+			this.reason = reason;
+		}
+
+		public Reason getReason() {
+			return reason;
+		}
+
+	}
+
+}
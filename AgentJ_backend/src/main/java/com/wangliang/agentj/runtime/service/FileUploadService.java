@@ -48,7 +48,7 @@ public class FileUploadService {
 	private static final String UPLOADED_FILES_DIR = "uploaded_files";
 
 	// Maximum file size (1GB)
-	private static final long MAX_FILE_SIZE = 1024 * 1024 * 1024;
+	static final long MAX_FILE_SIZE = 1024 * 1024 * 1024;
 
 	// Maximum number of files per upload
 	private static final int MAX_FILES_PER_UPLOAD = 10;
@@ -301,22 +301,11 @@ public class FileUploadService {
 			throw new IllegalArgumentException("File cannot be empty");
 		}
 
-		if (file.getSize() > MAX_FILE_SIZE) {
-			throw new IllegalArgumentException(
-					"File size exceeds maximum allowed size: " + (MAX_FILE_SIZE / 1024 / 1024 / 1024) + "GB");
-		}
+		validateFileSize(file.getSize());
 
 		String originalFileName = file.getOriginalFilename();
 		if (originalFileName != null) {
-			// Use new file type configuration system
-			if (FileTypeConfiguration.isBlocked(originalFileName)) {
-				throw new IllegalArgumentException(
-						"File type blocked for security reasons: " + getFileExtension(originalFileName));
-			}
-			if (!FileTypeConfiguration.isUploadAllowed(originalFileName)) {
-				throw new IllegalArgumentException("File type not supported: " + getFileExtension(originalFileName)
-						+ ". Supported types: " + FileTypeConfiguration.getSupportedExtensionsString());
-			}
+			validateFileType(originalFileName);
 		}
 
 		String contentType = file.getContentType();
@@ -327,6 +316,80 @@ public class FileUploadService {
 		}
 	}
 
+	/**
+	 * Validate the size of a file against the upload limit
+	 * @param size The file size in bytes
+	 */
+	void validateFileSize(long size) {
+		if (size > MAX_FILE_SIZE) {
+			throw new IllegalArgumentException(
+					"File size exceeds maximum allowed size: " + (MAX_FILE_SIZE / 1024 / 1024 / 1024) + "GB");
+		}
+	}
+
+	/**
+	 * Validate the type of a file by its name
+	 * @param originalFileName The original file name
+	 */
+	void validateFileType(String originalFileName) {
+		// Use new file type configuration system
+		if (FileTypeConfiguration.isBlocked(originalFileName)) {
+			throw new IllegalArgumentException(
+					"File type blocked for security reasons: " + getFileExtension(originalFileName));
+		}
+		if (!FileTypeConfiguration.isUploadAllowed(originalFileName)) {
+			throw new IllegalArgumentException("File type not supported: " + getFileExtension(originalFileName)
+					+ ". Supported types: " + FileTypeConfiguration.getSupportedExtensionsString());
+		}
+	}
+
+	/**
+	 * Get the directory all upload key directories live in
+	 * @return Upload root directory
+	 */
+	Path getUploadRootDirectory() {
+		return directoryManager.getWorkingDirectory().resolve(UPLOADED_FILES_DIR);
+	}
+
+	/**
+	 * Check if an upload key has the format generated by {@link #generateUploadKey()}
+	 * @param uploadKey The upload key to check
+	 * @return true if the key can name an upload directory
+	 */
+	boolean isValidUploadKey(String uploadKey) {
+		return uploadKey != null && uploadKey.startsWith(UPLOAD_KEY_PREFIX) && uploadKey.matches("[A-Za-z0-9_-]+");
+	}
+
+	/**
+	 * Move a completely received file into the directory of an upload key, where it is
+	 * listed and synchronized like files of a multipart upload
+	 * @param source The received file, on the same file system as the upload directory
+	 * @param originalFileName The original file name
+	 * @param uploadKey The upload key the file belongs to
+	 * @return File information
+	 * @throws IOException if moving fails
+	 */
+	FileUploadResult.FileInfo storeUploadedFile(Path source, String originalFileName, String uploadKey)
+			throws IOException {
+		Path uploadDirectory = getUploadRootDirectory().resolve(uploadKey);
+		directoryManager.ensureDirectoryExists(uploadDirectory);
+
+		// Name choice and move are not atomic together, uploads to one key are rare
+		// enough to serialize
+		synchronized (this) {
+			Path targetPath = uploadDirectory.resolve(generateUniqueFileName(originalFileName, uploadDirectory));
+			Files.move(source, targetPath, StandardCopyOption.ATOMIC_MOVE);
+
+			FileUploadResult.FileInfo fileInfo = new FileUploadResult.FileInfo();
+			fileInfo.setOriginalName(originalFileName);
+			fileInfo.setSize(Files.size(targetPath));
+			fileInfo.setType(Files.probeContentType(targetPath));
+			fileInfo.setUploadTime(LocalDateTime.now());
+			fileInfo.setSuccess(true);
+			return fileInfo;
+		}
+	}
+
 	/**
 	 * Generate unique file name to avoid conflicts
 	 * @param originalFileName The original file name
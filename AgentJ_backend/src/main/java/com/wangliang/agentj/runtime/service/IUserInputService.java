@@ -20,6 +20,7 @@ import com.wangliang.agentj.runtime.entity.vo.UserInputWaitState;
 import com.wangliang.agentj.tools.FormInputTool;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * User input service interface managing user input related functions
@@ -27,15 +28,22 @@ import java.util.Map;
 public interface IUserInputService {
 
 	/**
-	 * Store a form input tool with exclusive access per root plan. Only one form can be
-	 * stored at a time per root plan. If another form is already stored, this method will
-	 * wait using spin lock.
+	 * Show a form for the root plan, or queue it behind the form another sub-plan is
+	 * already showing. Only one form is shown at a time per root plan. No thread waits for
+	 * the answer; the returned future completes when the user answers or the form expires.
 	 * @param planId The root plan ID
-	 * @param tool The form input tool to store
-	 * @param requesterPlanId The sub-plan ID requesting to store the tool
-	 * @return true if successfully stored, false if interrupted or timeout
+	 * @param tool The form input tool awaiting input
+	 * @param requesterPlanId The sub-plan ID requesting the form
+	 * @return Future completed with the final input state of the form
 	 */
-	boolean storeFormInputToolExclusive(String planId, FormInputTool tool, String requesterPlanId);
+	CompletableFuture<FormInputTool.InputState> awaitFormInput(String planId, FormInputTool tool,
+			String requesterPlanId);
+
+	/**
+	 * Expire the shown and queued forms of a root plan
+	 * @param planId The root plan ID
+	 */
+	void cancelPendingForms(String planId);
 
 	/**
 	 * Get form input tool
@@ -45,10 +53,11 @@ public interface IUserInputService {
 	FormInputTool getFormInputTool(String planId);
 
 	/**
-	 * Remove form input tool
-	 * @param planId Plan ID
+	 * Remove the given form input tool, leaving forms of other sub-plans in place
+	 * @param planId Root plan ID
+	 * @param tool Form input tool to remove
 	 */
-	void removeFormInputTool(String planId);
+	void removeFormInputTool(String planId, FormInputTool tool);
 
 	/**
 	 * Create user input waiting state
@@ -15,7 +15,10 @@
  */
 package com.wangliang.agentj.runtime.service;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wangliang.agentj.planning.PlanningFactory;
+import com.wangliang.agentj.runtime.observation.LynxeObservations;
 import com.wangliang.agentj.tools.AbstractBaseTool;
 import com.wangliang.agentj.tools.ToolCallBiFunctionDef;
 import com.wangliang.agentj.tools.code.ToolExecuteResult;
@@ -40,6 +43,15 @@ public class ParallelToolExecutionService {
 
 	private static final Logger log = LoggerFactory.getLogger(ParallelToolExecutionService.class);
 
+	private final ToolResultCache toolResultCache;
+
+	private final ObjectMapper objectMapper = new ObjectMapper()
+		.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+	public ParallelToolExecutionService(ToolResultCache toolResultCache) {
+		this.toolResultCache = toolResultCache;
+	}
+
 	/**
 	 * Result of a single tool execution
 	 */
@@ -51,10 +63,18 @@ public class ParallelToolExecutionService {
 
 		private final boolean success;
 
+		private final ToolResultCache.Outcome cacheOutcome;
+
 		public ToolExecutionResult(String toolName, ToolExecuteResult result, boolean success) {
+			this(toolName, result, success, null);
+		}
+
+		public ToolExecutionResult(String toolName, ToolExecuteResult result, boolean success,
+				ToolResultCache.Outcome cacheOutcome) {
 			this.toolName = toolName;
 			this.result = result;
 			this.success = success;
+			this.cacheOutcome = cacheOutcome;
 		}
 
 		public String getToolName() {
@@ -69,6 +89,13 @@ public class ParallelToolExecutionService {
 			return success;
 		}
 
+		/**
+		 * Cache use of the call, null if the tool is not cacheable
+		 */
+		public ToolResultCache.Outcome getCacheOutcome() {
+			return cacheOutcome;
+		}
+
 	}
 
 	/**
@@ -109,7 +136,7 @@ public class ParallelToolExecutionService {
 			}
 
 			// Create future for this tool execution
-			CompletableFuture<ToolExecutionResult> future = CompletableFuture.supplyAsync(() -> {
+			CompletableFuture<ToolExecutionResult> future = CompletableFuture.supplyAsync(LynxeObservations.wrap(() -> {
 				try {
 					log.debug("Executing tool: {} in parallel", toolName);
 
@@ -128,19 +155,28 @@ public class ParallelToolExecutionService {
 					}
 					ToolContext toolContextForExecution = new ToolContext(contextMap);
 
-					// Execute the tool using apply method
+					// Execute the tool using apply method, through the cache for cacheable
+					// tools
 					@SuppressWarnings("unchecked")
-					ToolExecuteResult result = ((AbstractBaseTool<Map<String, Object>>) functionInstance).apply(input,
-							toolContextForExecution);
+					AbstractBaseTool<Object> tool = (AbstractBaseTool<Object>) functionInstance;
+					Object typedInput = toInputType(input, tool.getInputType());
+					ToolExecuteResult result;
+					List<ToolResultCache.Outcome> outcomes;
+					try (ToolResultCache.Recording recording = ToolResultCache.startRecording()) {
+						result = LynxeObservations.observe("lynxe.tool", () -> toolResultCache.execute(tool,
+								typedInput, () -> tool.apply(typedInput, toolContextForExecution)), "tool", toolName);
+						outcomes = recording.getOutcomes();
+					}
 
 					log.debug("Completed execution for tool: {}", toolName);
-					return new ToolExecutionResult(toolName, result, true);
+					return new ToolExecutionResult(toolName, result, true,
+							outcomes.isEmpty() ? null : outcomes.get(outcomes.size() - 1));
 				}
 				catch (Exception e) {
 					log.error("Error executing tool {}: {}", toolName, e.getMessage(), e);
 					return new ToolExecutionResult(toolName, new ToolExecuteResult("Error: " + e.getMessage()), false);
 				}
-			});
+			}));
 
 			futures.add(future);
 		}
@@ -202,6 +238,17 @@ public class ParallelToolExecutionService {
 		return null;
 	}
 
+	/**
+	 * Convert parsed arguments to the input type of the tool, as the tool callback does
+	 * for single calls
+	 */
+	private Object toInputType(Map<String, Object> input, Class<?> inputType) {
+		if (inputType == null || inputType.isInstance(input)) {
+			return input;
+		}
+		return objectMapper.convertValue(input, inputType);
+	}
+
 	/**
 	 * Parse tool arguments from JSON string to Map
 	 */
@@ -213,7 +260,6 @@ public class ParallelToolExecutionService {
 
 		try {
 			// Try to parse as JSON
-			com.fasterxml.jackson.databind.ObjectMapper objectMapper = new com.fasterxml.jackson.databind.ObjectMapper();
 			Object parsed = objectMapper.readValue(arguments, Object.class);
 			if (parsed instanceof Map) {
 				return (Map<String, Object>) parsed;
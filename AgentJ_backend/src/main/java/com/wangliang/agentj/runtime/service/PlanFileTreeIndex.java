@@ -0,0 +1,396 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.runtime.service;
+
+import com.wangliang.agentj.tools.filesystem.UnifiedDirectoryManager;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * File trees of root plan directories, kept up to date by a {@link WatchService} instead
+ * of walking the directory on every request.
+ *
+ * Each directory's listing is cached once read and watched from then on; a change inside
+ * it drops only that listing, so the next request re-reads one directory rather than the
+ * whole tree. Every change also bumps the tree's version, which is exposed as an ETag.
+ * Trees of plans not browsed for {@code lynxe.fileBrowser.treeIdleMinutes} are dropped
+ * together with their watches. A directory that cannot be watched, for example once the
+ * system's watch limit is reached, is read on every request instead of cached.
+ */
+@Component
+public class PlanFileTreeIndex {
+
+	private static final Logger log = LoggerFactory.getLogger(PlanFileTreeIndex.class);
+
+	private final UnifiedDirectoryManager directoryManager;
+
+	private final PlanScopedState<PlanTree> trees;
+
+	private final Map<WatchKey, PlanTree> watchedDirectories = new ConcurrentHashMap<>();
+
+	/**
+	 * Versions are unique across plans and restarts, an old ETag never matches a new tree
+	 */
+	private final String versionPrefix = Long.toHexString(System.currentTimeMillis());
+
+	private final AtomicLong versions = new AtomicLong();
+
+	private final WatchService watchService;
+
+	private final Thread watcher;
+
+	public PlanFileTreeIndex(UnifiedDirectoryManager directoryManager, PlanStateRegistry planStateRegistry,
+			@Value("${lynxe.fileBrowser.treeIdleMinutes:10}") long treeIdleMinutes) throws IOException {
+		this.directoryManager = directoryManager;
+		// Finished plans are still browsed, only idleness drops a tree
+		this.trees = planStateRegistry.<PlanTree>newScope("fileBrowser.trees")
+			.idleTtl(Duration.ofMinutes(treeIdleMinutes))
+			.evictOnCompletion(false)
+			.weigher(tree -> 256L * tree.listings.size())
+			.onEvict((planId, tree) -> tree.close())
+			.build();
+		this.watchService = directoryManager.getWorkingDirectory().getFileSystem().newWatchService();
+		this.watcher = new Thread(this::watch, "PlanFileTreeWatcher");
+		this.watcher.setDaemon(true);
+		this.watcher.start();
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		try {
+			watchService.close();
+		}
+		catch (IOException e) {
+			log.warn("Error closing file tree watch service: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * Current tree of a root plan directory
+	 * @param planId Root plan ID
+	 * @return Tree with its version, or null if the plan has no directory
+	 */
+	public Snapshot getTree(String planId) throws IOException {
+		Path planDir = directoryManager.getRootPlanDirectory(planId);
+		if (!Files.isDirectory(planDir)) {
+			trees.evict(planId);
+			return null;
+		}
+		PlanTree tree = trees.computeIfAbsent(planId, id -> new PlanTree(id, planDir));
+		return tree.snapshot();
+	}
+
+	private void watch() {
+		while (true) {
+			WatchKey key;
+			try {
+				key = watchService.take();
+			}
+			catch (InterruptedException | ClosedWatchServiceException e) {
+				return;
+			}
+			PlanTree tree = watchedDirectories.get(key);
+			if (tree != null) {
+				Path directory = (Path) key.watchable();
+				boolean overflow = false;
+				for (WatchEvent<?> event : key.pollEvents()) {
+					if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+						overflow = true;
+					}
+				}
+				tree.changed(overflow ? null : directory);
+			}
+			else {
+				key.pollEvents();
+			}
+			if (!key.reset()) {
+				// The directory is gone; a directory created under the same name is
+				// listed and watched afresh
+				watchedDirectories.remove(key);
+				if (tree != null) {
+					tree.gone((Path) key.watchable(), key);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Cached listings of one plan directory
+	 */
+	private final class PlanTree {
+
+		private final String planId;
+
+		private final Path root;
+
+		private final Map<Path, Listing> listings = new HashMap<>();
+
+		private final Map<Path, WatchKey> keys = new HashMap<>();
+
+		private Snapshot snapshot;
+
+		// Set while building a snapshot when a directory could not be watched
+		private boolean unwatched;
+
+		private boolean unwatchedLogged;
+
+		PlanTree(String planId, Path root) {
+			this.planId = planId;
+			this.root = root;
+		}
+
+		synchronized Snapshot snapshot() throws IOException {
+			if (snapshot == null) {
+				unwatched = false;
+				Snapshot built = new Snapshot(node(root),
+						"W/\"" + versionPrefix + "-" + versions.incrementAndGet() + "\"");
+				if (unwatched) {
+					// A change there would not be noticed, so build the tree again next time
+					return built;
+				}
+				snapshot = built;
+			}
+			return snapshot;
+		}
+
+		/**
+		 * Drop the listing of a changed directory, or every listing when events were lost
+		 */
+		synchronized void changed(Path directory) {
+			snapshot = null;
+			if (directory == null) {
+				listings.clear();
+			}
+			else {
+				listings.remove(directory);
+			}
+		}
+
+		synchronized void gone(Path directory, WatchKey key) {
+			keys.remove(directory, key);
+			listings.remove(directory);
+			snapshot = null;
+		}
+
+		synchronized void close() {
+			for (WatchKey key : keys.values()) {
+				key.cancel();
+				watchedDirectories.remove(key);
+			}
+			keys.clear();
+			listings.clear();
+			snapshot = null;
+		}
+
+		private FileNode node(Path directory) throws IOException {
+			String relativePath = directory.equals(root) ? "" : root.relativize(directory).toString();
+			FileNode node = new FileNode(directory.equals(root) ? planId : directory.getFileName().toString(),
+					relativePath, "directory", 0, Files.getLastModifiedTime(directory).toString());
+			for (Entry entry : listing(directory).entries()) {
+				if (entry.directory()) {
+					try {
+						node.getChildren().add(node(entry.path()));
+					}
+					catch (IOException e) {
+						// Removed while listing, the watch event drops the parent listing
+						log.debug("Skipping vanished directory: {}", entry.path());
+					}
+				}
+				else {
+					node.getChildren()
+						.add(new FileNode(entry.path().getFileName().toString(), root.relativize(entry.path()).toString(),
+								"file", entry.size(), entry.lastModified()));
+				}
+			}
+			return node;
+		}
+
+		private Listing listing(Path directory) throws IOException {
+			Listing listing = listings.get(directory);
+			if (listing != null) {
+				return listing;
+			}
+			// Watch before reading so a change during the read is not missed
+			boolean watched = keys.containsKey(directory);
+			if (!watched) {
+				try {
+					WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+							StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+					keys.put(directory, key);
+					watchedDirectories.put(key, this);
+					watched = true;
+				}
+				catch (IOException e) {
+					if (!unwatchedLogged) {
+						unwatchedLogged = true;
+						log.warn("Cannot watch {} of plan {}, reading it on every request: {}", directory, planId,
+								e.getMessage());
+					}
+					unwatched = true;
+				}
+			}
+			List<Entry> entries = new ArrayList<>();
+			try (Stream<Path> children = Files.list(directory)) {
+				children.forEach(child -> {
+					try {
+						// Skip symbolic links to prevent infinite loops and security issues
+						BasicFileAttributes attributes = Files.readAttributes(child, BasicFileAttributes.class,
+								LinkOption.NOFOLLOW_LINKS);
+						if (attributes.isSymbolicLink()) {
+							log.debug("Skipping symbolic link: {}", child);
+							return;
+						}
+						entries.add(new Entry(child, attributes.isDirectory(), attributes.size(),
+								attributes.lastModifiedTime().toString()));
+					}
+					catch (IOException e) {
+						log.warn("Error processing file: {}", child, e);
+					}
+				});
+			}
+			// Directories first, then files
+			entries.sort((a, b) -> {
+				if (a.directory() != b.directory()) {
+					return a.directory() ? -1 : 1;
+				}
+				return a.path().getFileName().toString().compareToIgnoreCase(b.path().getFileName().toString());
+			});
+			listing = new Listing(entries);
+			if (watched) {
+				listings.put(directory, listing);
+			}
+			return listing;
+		}
+
+	}
+
+	private record Listing(List<Entry> entries) {
+	}
+
+	private record Entry(Path path, boolean directory, long size, String lastModified) {
+	}
+
+	/**
+	 * Tree of a plan directory at one version
+	 * @param root Root directory node
+	 * @param etag Weak ETag of this version
+	 */
+	public record Snapshot(FileNode root, String etag) {
+	}
+
+	/**
+	 * File tree node representation
+	 */
+	public static class FileNode {
+
+		private String name;
+
+		private String path;
+
+		private String type; // "file" or "directory"
+
+		private long size;
+
+		private String lastModified;
+
+		private List<FileNode> children;
+
+		public FileNode() {
+		}
+
+		public FileNode(String name, String path, String type, long size, String lastModified) {
+			this.name = name;
+			this.path = path;
+			this.type = type;
+			this.size = size;
+			this.lastModified = lastModified;
+			this.children = new ArrayList<>();
+		}
+
+		// Getters and setters
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public String getPath() {
+			return path;
+		}
+
+		public void setPath(String path) {
+			this.path = path;
+		}
+
+		public String getType() {
+			return type;
+		}
+
+		public void setType(String type) {
+			this.type = type;
+		}
+
+		public long getSize() {
+			return size;
+		}
+
+		public void setSize(long size) {
+			this.size = size;
+		}
+
+		public String getLastModified() {
+			return lastModified;
+		}
+
+		public void setLastModified(String lastModified) {
+			this.lastModified = lastModified;
+		}
+
+		public List<FileNode> getChildren() {
+			return children;
+		}
+
+		public void setChildren(List<FileNode> children) {
+			this.children = children;
+		}
+
+	}
+
+}
@@ -17,12 +17,18 @@ package com.wangliang.agentj.runtime.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 /**
  * ID converter, used to handle and convert the relationship between planId and
  * planTemplateId This class helps the system to be compatible with the old and new
  * interfaces, allowing both planId and planTemplateId to be supported
+ *
+ * All generated IDs share one {@link SnowflakeIdGenerator}, so they are unique across
+ * threads and, with a distinct {@code lynxe.id.nodeId} per node, across backend nodes
+ * sharing one database. Without a configured node ID one is derived from the host name
+ * and process ID.
  */
 @Component
 public class PlanIdDispatcher implements IPlanIdDispatcher {
@@ -35,6 +41,26 @@ public class PlanIdDispatcher implements IPlanIdDispatcher {
 	// planTemplateId prefix constant
 	private static final String PLAN_TEMPLATE_ID_PREFIX = "planTemplate-";
 
+	private static final String SUB_PLAN_ID_PREFIX = "subplan-";
+
+	private static final String TOOL_CALL_ID_PREFIX = "toolcall-";
+
+	private static final String STEP_ID_PREFIX = "step-";
+
+	private static final String THINK_ACT_ID_PREFIX = "thinkact-";
+
+	private static final String PARALLEL_EXECUTION_ID_PREFIX = "parallel-";
+
+	private final SnowflakeIdGenerator idGenerator;
+
+	public PlanIdDispatcher(@Value("${lynxe.id.nodeId:-1}") int nodeId) {
+		if (nodeId < 0) {
+			nodeId = SnowflakeIdGenerator.deriveNodeId();
+			logger.info("No lynxe.id.nodeId configured, using derived node ID {}", nodeId);
+		}
+		this.idGenerator = new SnowflakeIdGenerator(nodeId);
+	}
+
 	/**
 	 * Check if the ID is in planTemplateId format
 	 * @param id ID to check
@@ -68,8 +94,7 @@ public class PlanIdDispatcher implements IPlanIdDispatcher {
 		}
 
 		// Generate a new unique planId for both planTemplateId and planId formats
-		// Use timestamp and random number to ensure uniqueness
-		String uniqueId = PLAN_ID_PREFIX + System.currentTimeMillis() + "-" + (int) (Math.random() * 1000);
+		String uniqueId = PLAN_ID_PREFIX + idGenerator.nextIdString();
 
 		if (isPlanTemplateId(planTemplateId)) {
 			logger.debug("Generated new unique planId [{}] from planTemplateId [{}]", uniqueId, planTemplateId);
@@ -113,7 +138,7 @@ public class PlanIdDispatcher implements IPlanIdDispatcher {
 	 * @return new planTemplateId
 	 */
 	public String generatePlanTemplateId() {
-		String planTemplateId = PLAN_TEMPLATE_ID_PREFIX + System.currentTimeMillis();
+		String planTemplateId = PLAN_TEMPLATE_ID_PREFIX + idGenerator.nextIdString();
 		logger.debug("Generated new planTemplateId: {}", planTemplateId);
 		return planTemplateId;
 	}
@@ -123,7 +148,7 @@ public class PlanIdDispatcher implements IPlanIdDispatcher {
 	 * @return new planId
 	 */
 	public String generatePlanId() {
-		String planId = PLAN_ID_PREFIX + System.currentTimeMillis();
+		String planId = PLAN_ID_PREFIX + idGenerator.nextIdString();
 		logger.debug("Generated new planId: {}", planId);
 		return planId;
 	}
@@ -164,28 +189,8 @@ public class PlanIdDispatcher implements IPlanIdDispatcher {
 			throw new IllegalArgumentException("Parent plan ID cannot be null");
 		}
 
-		// Use a different prefix to ensure sub-plan ID is never identical to parent plan
-		// ID
-		String subPlanPrefix = "subplan-";
-
-		// Generate unique sub-plan ID with multiple uniqueness factors:
-		// 1. Different prefix ("subplan-" vs "plan-")
-		// 2. Current timestamp in nanoseconds for high precision
-		// 3. Random component for additional uniqueness
-		// 4. Hash of parent plan ID to maintain some relationship while ensuring
-		// uniqueness
-		long timestamp = System.nanoTime();
-		int randomComponent = (int) (Math.random() * 10000);
-		int parentIdHash = Math.abs(parentPlanId.hashCode()) % 10000;
-
-		String subPlanId = String.format("%s%d_%d_%d", subPlanPrefix, timestamp, randomComponent, parentIdHash);
-
-		// Double-check that the generated sub-plan ID is different from parent plan ID
-		if (subPlanId.equals(parentPlanId)) {
-			// This should never happen given our generation logic, but add failsafe
-			subPlanId = subPlanPrefix + "failsafe_" + timestamp + "_" + randomComponent;
-			logger.warn("Failsafe sub-plan ID generation triggered for parent plan: {}", parentPlanId);
-		}
+		// The "subplan-" prefix keeps the sub-plan ID distinct from any parent plan ID
+		String subPlanId = SUB_PLAN_ID_PREFIX + idGenerator.nextIdString();
 
 		logger.info("Generated unique sub-plan ID: {} for parent plan: {}", subPlanId, parentPlanId);
 
@@ -197,19 +202,7 @@ public class PlanIdDispatcher implements IPlanIdDispatcher {
 	 * @return unique tool call ID
 	 */
 	public String generateToolCallId() {
-		// Use a specific prefix for tool call IDs
-		String toolCallPrefix = "toolcall-";
-
-		// Generate unique tool call ID with multiple uniqueness factors:
-		// 1. Specific prefix for tool calls
-		// 2. Current timestamp in milliseconds
-		// 3. Random component for additional uniqueness
-		// 4. Thread ID to handle concurrent tool calls
-		long timestamp = System.currentTimeMillis();
-		int randomComponent = (int) (Math.random() * 10000);
-		long threadId = Thread.currentThread().getId();
-
-		String toolCallId = String.format("%s%d_%d_%d", toolCallPrefix, timestamp, randomComponent, threadId);
+		String toolCallId = TOOL_CALL_ID_PREFIX + idGenerator.nextIdString();
 
 		logger.debug("Generated unique tool call ID: {}", toolCallId);
 
@@ -221,19 +214,7 @@ public class PlanIdDispatcher implements IPlanIdDispatcher {
 	 * @return unique step ID
 	 */
 	public String generateStepId() {
-		// Use a specific prefix for step IDs
-		String stepPrefix = "step-";
-
-		// Generate unique step ID with multiple uniqueness factors:
-		// 1. Specific prefix for steps
-		// 2. Current timestamp in milliseconds
-		// 3. Random component for additional uniqueness
-		// 4. Thread ID to handle concurrent step executions
-		long timestamp = System.currentTimeMillis();
-		int randomComponent = (int) (Math.random() * 10000);
-		long threadId = Thread.currentThread().getId();
-
-		String stepId = String.format("%s%d_%d_%d", stepPrefix, timestamp, randomComponent, threadId);
+		String stepId = STEP_ID_PREFIX + idGenerator.nextIdString();
 
 		logger.debug("Generated unique step ID: {}", stepId);
 
@@ -245,19 +226,7 @@ public class PlanIdDispatcher implements IPlanIdDispatcher {
 	 * @return unique thinkAct ID
 	 */
 	public String generateThinkActId() {
-		// Use a specific prefix for thinkAct IDs
-		String thinkActPrefix = "thinkact-";
-
-		// Generate unique thinkAct ID with multiple uniqueness factors:
-		// 1. Specific prefix for thinkAct operations
-		// 2. Current timestamp in milliseconds
-		// 3. Random component for additional uniqueness
-		// 4. Thread ID to handle concurrent thinkAct executions
-		long timestamp = System.currentTimeMillis();
-		int randomComponent = (int) (Math.random() * 10000);
-		long threadId = Thread.currentThread().getId();
-
-		String thinkActId = String.format("%s%d_%d_%d", thinkActPrefix, timestamp, randomComponent, threadId);
+		String thinkActId = THINK_ACT_ID_PREFIX + idGenerator.nextIdString();
 
 		logger.debug("Generated unique thinkAct ID: {}", thinkActId);
 
@@ -269,19 +238,7 @@ public class PlanIdDispatcher implements IPlanIdDispatcher {
 	 * @return unique parallel execution ID
 	 */
 	public String generateParallelExecutionId() {
-		// Use a specific prefix for parallel execution IDs
-		String parallelPrefix = "parallel-";
-
-		// Generate unique parallel execution ID with multiple uniqueness factors:
-		// 1. Specific prefix for parallel executions
-		// 2. Current timestamp in milliseconds
-		// 3. Random component for additional uniqueness
-		// 4. Thread ID to handle concurrent parallel executions
-		long timestamp = System.currentTimeMillis();
-		int randomComponent = (int) (Math.random() * 10000);
-		long threadId = Thread.currentThread().getId();
-
-		String parallelId = String.format("%s%d_%d_%d", parallelPrefix, timestamp, randomComponent, threadId);
+		String parallelId = PARALLEL_EXECUTION_ID_PREFIX + idGenerator.nextIdString();
 
 		logger.debug("Generated unique parallel execution ID: {}", parallelId);
 
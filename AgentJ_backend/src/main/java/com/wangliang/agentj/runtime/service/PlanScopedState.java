@@ -0,0 +1,329 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.runtime.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Per-plan state of one service, created through {@link PlanStateRegistry#newScope}.
+ *
+ * An entry is dropped when its plan completes, when it was not accessed for the idle
+ * TTL, or least recently used first when the scope holds more plans than its limit. The
+ * eviction callback runs for each of these, so a service releases resources (flushes
+ * files, deletes sidecars) the same way on every path; {@link #remove(String)} drops an
+ * entry without it.
+ *
+ * @param <V> Type of the state kept per plan
+ */
+public class PlanScopedState<V> {
+
+	private static final Logger log = LoggerFactory.getLogger(PlanScopedState.class);
+
+	private final String name;
+
+	private final long idleTtlNanos;
+
+	private final int maxPlans;
+
+	private final boolean evictOnCompletion;
+
+	private final ToLongFunction<V> weigher;
+
+	private final BiConsumer<String, V> onEvict;
+
+	private final Map<String, Slot<V>> slots = new ConcurrentHashMap<>();
+
+	private PlanScopedState(Builder<V> builder) {
+		this.name = builder.name;
+		this.idleTtlNanos = builder.idleTtl.toNanos();
+		this.maxPlans = builder.maxPlans;
+		this.evictOnCompletion = builder.evictOnCompletion;
+		this.weigher = builder.weigher;
+		this.onEvict = builder.onEvict;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Get the state of a plan
+	 * @return State, or null if the plan has none
+	 */
+	public V get(String planId) {
+		Slot<V> slot = slots.get(planId);
+		if (slot == null) {
+			return null;
+		}
+		slot.touch();
+		return slot.value;
+	}
+
+	public V getOrDefault(String planId, V defaultValue) {
+		V value = get(planId);
+		return value != null ? value : defaultValue;
+	}
+
+	/**
+	 * Get the state of a plan, creating it on first access
+	 */
+	public V computeIfAbsent(String planId, Function<String, ? extends V> factory) {
+		boolean[] created = new boolean[1];
+		Slot<V> slot = slots.computeIfAbsent(planId, k -> {
+			created[0] = true;
+			return new Slot<>(factory.apply(k));
+		});
+		slot.touch();
+		if (created[0]) {
+			evictOverflow(planId);
+		}
+		return slot.value;
+	}
+
+	/**
+	 * Replace the state of a plan
+	 */
+	public void put(String planId, V value) {
+		Slot<V> previous = slots.put(planId, new Slot<>(value));
+		if (previous == null) {
+			evictOverflow(planId);
+		}
+	}
+
+	/**
+	 * Atomically recompute the state of a plan; a null result removes it
+	 */
+	public V compute(String planId, BiFunction<String, ? super V, ? extends V> remapping) {
+		Slot<V> slot = slots.compute(planId, (k, existing) -> {
+			V value = remapping.apply(k, existing != null ? existing.value : null);
+			return value != null ? new Slot<>(value) : null;
+		});
+		if (slot == null) {
+			return null;
+		}
+		evictOverflow(planId);
+		return slot.value;
+	}
+
+	public boolean containsKey(String planId) {
+		return planId != null && slots.containsKey(planId);
+	}
+
+	/**
+	 * Drop the state of a plan without running the eviction callback
+	 * @return Removed state, or null
+	 */
+	public V remove(String planId) {
+		Slot<V> slot = slots.remove(planId);
+		return slot != null ? slot.value : null;
+	}
+
+	/**
+	 * Drop the state of a plan and run the eviction callback
+	 * @return true if the plan had state
+	 */
+	public boolean evict(String planId) {
+		Slot<V> slot = slots.remove(planId);
+		if (slot == null) {
+			return false;
+		}
+		if (onEvict != null) {
+			try {
+				onEvict.accept(planId, slot.value);
+			}
+			catch (Exception e) {
+				log.error("Failed to release {} state of plan {}: {}", name, planId, e.getMessage(), e);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Drop all state without running the eviction callback
+	 */
+	public void clear() {
+		slots.clear();
+	}
+
+	/**
+	 * Number of plans with state
+	 */
+	public int size() {
+		return slots.size();
+	}
+
+	/**
+	 * Estimated heap footprint of all state in bytes, 0 without a weigher
+	 */
+	public long estimateBytes() {
+		if (weigher == null) {
+			return 0;
+		}
+		long total = 0;
+		for (Slot<V> slot : slots.values()) {
+			try {
+				total += weigher.applyAsLong(slot.value);
+			}
+			catch (RuntimeException e) {
+				// State mutated while being weighed, skip it for this estimate
+			}
+		}
+		return total;
+	}
+
+	boolean isEvictOnCompletion() {
+		return evictOnCompletion;
+	}
+
+	/**
+	 * Drop entries not accessed for the idle TTL
+	 * @return Number of evicted plans
+	 */
+	int evictIdle(long nowNanos) {
+		if (idleTtlNanos <= 0) {
+			return 0;
+		}
+		int evicted = 0;
+		for (Map.Entry<String, Slot<V>> entry : slots.entrySet()) {
+			if (nowNanos - entry.getValue().lastAccessNanos > idleTtlNanos && evict(entry.getKey())) {
+				log.debug("Evicted idle {} state of plan {}", name, entry.getKey());
+				evicted++;
+			}
+		}
+		return evicted;
+	}
+
+	private void evictOverflow(String keep) {
+		if (maxPlans <= 0 || slots.size() <= maxPlans) {
+			return;
+		}
+		List<Map.Entry<String, Slot<V>>> candidates = new ArrayList<>(slots.entrySet());
+		candidates.sort((a, b) -> Long.compare(a.getValue().lastAccessNanos, b.getValue().lastAccessNanos));
+		int excess = slots.size() - maxPlans;
+		for (Map.Entry<String, Slot<V>> candidate : candidates) {
+			if (excess <= 0) {
+				break;
+			}
+			if (!candidate.getKey().equals(keep) && evict(candidate.getKey())) {
+				log.info("Evicted {} state of plan {}: more than {} plans", name, candidate.getKey(), maxPlans);
+				excess--;
+			}
+		}
+	}
+
+	private static final class Slot<V> {
+
+		private final V value;
+
+		private volatile long lastAccessNanos = System.nanoTime();
+
+		private Slot(V value) {
+			this.value = value;
+		}
+
+		private void touch() {
+			lastAccessNanos = System.nanoTime();
+		}
+
+	}
+
+	/**
+	 * Options of a scope; {@link #build()} registers it with its registry
+	 */
+	public static final class Builder<V> {
+
+		private final PlanStateRegistry registry;
+
+		private final String name;
+
+		private Duration idleTtl;
+
+		private int maxPlans;
+
+		private boolean evictOnCompletion = true;
+
+		private ToLongFunction<V> weigher;
+
+		private BiConsumer<String, V> onEvict;
+
+		Builder(PlanStateRegistry registry, String name, Duration idleTtl, int maxPlans) {
+			this.registry = registry;
+			this.name = name;
+			this.idleTtl = idleTtl;
+			this.maxPlans = maxPlans;
+		}
+
+		/**
+		 * Time without access after which a plan's state is dropped; zero disables
+		 */
+		public Builder<V> idleTtl(Duration idleTtl) {
+			this.idleTtl = idleTtl;
+			return this;
+		}
+
+		/**
+		 * Maximum number of plans with state; zero disables
+		 */
+		public Builder<V> maxPlans(int maxPlans) {
+			this.maxPlans = maxPlans;
+			return this;
+		}
+
+		/**
+		 * Whether a plan's state is dropped when the plan completes (default true)
+		 */
+		public Builder<V> evictOnCompletion(boolean evictOnCompletion) {
+			this.evictOnCompletion = evictOnCompletion;
+			return this;
+		}
+
+		/**
+		 * Estimated heap size of one plan's state in bytes, for footprint reporting
+		 */
+		public Builder<V> weigher(ToLongFunction<V> weigher) {
+			this.weigher = weigher;
+			return this;
+		}
+
+		/**
+		 * Callback for state dropped by completion, idle TTL, size limit or
+		 * {@link PlanScopedState#evict(String)}
+		 */
+		public Builder<V> onEvict(BiConsumer<String, V> onEvict) {
+			this.onEvict = onEvict;
+			return this;
+		}
+
+		public PlanScopedState<V> build() {
+			PlanScopedState<V> scope = new PlanScopedState<>(this);
+			registry.register(scope);
+			return scope;
+		}
+
+	}
+
+}
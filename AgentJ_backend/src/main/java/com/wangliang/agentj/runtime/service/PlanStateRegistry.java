@@ -0,0 +1,142 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.runtime.service;
+
+import com.wangliang.agentj.event.LynxeListener;
+import com.wangliang.agentj.event.PlanCompletedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Shared registry of plan-scoped service state.
+ *
+ * Services create one {@link PlanScopedState} per kind of state instead of keeping
+ * unbounded maps keyed by plan ID. The registry drops a plan's state when a
+ * {@link PlanCompletedEvent} arrives, sweeps idle state every minute and reports the
+ * footprint of every scope. Application-wide caches that are not keyed by plan can
+ * register a gauge to appear in the same report.
+ */
+@Component
+public class PlanStateRegistry implements LynxeListener<PlanCompletedEvent> {
+
+	private static final Logger log = LoggerFactory.getLogger(PlanStateRegistry.class);
+
+	private final Duration defaultIdleTtl;
+
+	private final int defaultMaxPlans;
+
+	private final Map<String, PlanScopedState<?>> scopes = new ConcurrentHashMap<>();
+
+	private final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+
+	public PlanStateRegistry(@Value("${lynxe.planState.idleTtlMinutes:120}") long idleTtlMinutes,
+			@Value("${lynxe.planState.maxPlansPerScope:500}") int maxPlansPerScope) {
+		this.defaultIdleTtl = Duration.ofMinutes(idleTtlMinutes);
+		this.defaultMaxPlans = maxPlansPerScope;
+	}
+
+	/**
+	 * Start defining a scope with the default idle TTL and plan limit
+	 * @param name Unique scope name, used in logs and footprint reports
+	 */
+	public <V> PlanScopedState.Builder<V> newScope(String name) {
+		return new PlanScopedState.Builder<>(this, name, defaultIdleTtl, defaultMaxPlans);
+	}
+
+	void register(PlanScopedState<?> scope) {
+		if (scopes.putIfAbsent(scope.getName(), scope) != null) {
+			throw new IllegalStateException("Plan state scope already registered: " + scope.getName());
+		}
+	}
+
+	/**
+	 * Report an application-wide cache next to the plan-scoped state
+	 * @param name Unique name
+	 * @param entries Current number of entries
+	 * @param estimatedBytes Current estimated heap size in bytes
+	 */
+	public void registerGauge(String name, IntSupplier entries, LongSupplier estimatedBytes) {
+		gauges.put(name, new Gauge(entries, estimatedBytes));
+	}
+
+	@Override
+	public void onEvent(PlanCompletedEvent event) {
+		evictPlan(event.getPlanId());
+	}
+
+	/**
+	 * Drop the state of a plan in every scope that releases state on completion
+	 */
+	public void evictPlan(String planId) {
+		if (planId == null) {
+			return;
+		}
+		int evicted = 0;
+		for (PlanScopedState<?> scope : scopes.values()) {
+			if (scope.isEvictOnCompletion() && scope.evict(planId)) {
+				evicted++;
+			}
+		}
+		if (evicted > 0) {
+			log.debug("Released state of plan {} in {} scopes", planId, evicted);
+		}
+	}
+
+	@Scheduled(fixedRate = 60000)
+	public void evictIdle() {
+		long now = System.nanoTime();
+		for (PlanScopedState<?> scope : scopes.values()) {
+			int evicted = scope.evictIdle(now);
+			if (evicted > 0) {
+				log.info("Evicted idle {} state of {} plans", scope.getName(), evicted);
+			}
+		}
+	}
+
+	/**
+	 * Number of plans (or entries) and estimated heap size per scope and gauge
+	 */
+	public Map<String, Footprint> getFootprints() {
+		Map<String, Footprint> footprints = new TreeMap<>();
+		scopes.forEach((name, scope) -> footprints.put(name, new Footprint(scope.size(), scope.estimateBytes())));
+		gauges.forEach((name, gauge) -> footprints.put(name,
+				new Footprint(gauge.entries().getAsInt(), gauge.estimatedBytes().getAsLong())));
+		return footprints;
+	}
+
+	/**
+	 * @param entries Plans with state, or entries of an application-wide cache
+	 * @param estimatedBytes Estimated heap size in bytes
+	 */
+	public record Footprint(int entries, long estimatedBytes) {
+
+	}
+
+	private record Gauge(IntSupplier entries, LongSupplier estimatedBytes) {
+
+	}
+
+}
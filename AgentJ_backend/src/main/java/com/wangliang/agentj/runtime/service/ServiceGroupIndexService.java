@@ -45,6 +45,15 @@ public class ServiceGroupIndexService {
 	 */
 	private final AtomicInteger nextIndex = new AtomicInteger(1);
 
+	/**
+	 * Indices must stay stable for the application's lifetime, so the cache is not
+	 * plan-scoped; it is only reported next to the plan-scoped state.
+	 */
+	public ServiceGroupIndexService(PlanStateRegistry planStateRegistry) {
+		planStateRegistry.registerGauge("serviceGroup.indexes", serviceGroupIndexMap::size,
+				() -> serviceGroupIndexMap.size() * 96L);
+	}
+
 	/**
 	 * Get or assign a unique index for the given serviceGroup. If the serviceGroup
 	 * already exists in the cache, returns its existing index. Otherwise, assigns a new
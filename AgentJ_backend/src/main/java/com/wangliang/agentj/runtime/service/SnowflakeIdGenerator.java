@@ -0,0 +1,138 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.runtime.service;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free, time-ordered 64-bit ID generator in the Snowflake layout.
+ *
+ * <pre>
+ * | 1 bit unused | 41 bits ms since 2025-01-01 | 10 bits node | 12 bits sequence |
+ * </pre>
+ *
+ * The timestamp and sequence are advanced together with a single CAS on one
+ * {@link AtomicLong}: the next state is the larger of "previous + 1" and "now with
+ * sequence 0". When more than 4096 IDs are requested within one millisecond, or when the
+ * wall clock moves backwards, the generator keeps counting from the last state and
+ * borrows time from the following milliseconds instead of blocking, so IDs stay unique
+ * and strictly increasing per node.
+ *
+ * IDs are encoded as 13 lowercase Crockford base32 characters, which keeps their string
+ * order equal to their numeric order.
+ */
+public class SnowflakeIdGenerator {
+
+	/**
+	 * 2025-01-01T00:00:00Z
+	 */
+	static final long EPOCH_MILLIS = 1735689600000L;
+
+	static final int NODE_BITS = 10;
+
+	static final int SEQUENCE_BITS = 12;
+
+	public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+	private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+	private static final int ENCODED_LENGTH = 13;
+
+	private static final char[] ALPHABET = "0123456789abcdefghjkmnpqrstvwxyz".toCharArray();
+
+	private final long nodeBits;
+
+	// (milliseconds since epoch << SEQUENCE_BITS) | sequence of the last issued ID
+	private final AtomicLong state = new AtomicLong();
+
+	/**
+	 * @param nodeId ID of this node, 0 to {@link #MAX_NODE_ID}; must be unique among
+	 * nodes sharing one database
+	 */
+	public SnowflakeIdGenerator(int nodeId) {
+		if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+			throw new IllegalArgumentException("Node ID must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+		}
+		this.nodeBits = (long) nodeId << SEQUENCE_BITS;
+	}
+
+	/**
+	 * Next ID of this node, strictly greater than every ID issued before
+	 */
+	public long nextId() {
+		long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+		long previous;
+		long next;
+		do {
+			previous = state.get();
+			next = Math.max(previous + 1, now);
+		}
+		while (!state.compareAndSet(previous, next));
+		return ((next & ~SEQUENCE_MASK) << NODE_BITS) | nodeBits | (next & SEQUENCE_MASK);
+	}
+
+	/**
+	 * Next ID encoded as a fixed-width, order-preserving string
+	 */
+	public String nextIdString() {
+		return encode(nextId());
+	}
+
+	/**
+	 * Encode an ID as 13 Crockford base32 characters
+	 */
+	public static String encode(long id) {
+		char[] chars = new char[ENCODED_LENGTH];
+		for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+			chars[i] = ALPHABET[(int) (id & 31)];
+			id >>>= 5;
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Creation time of an ID in epoch milliseconds
+	 */
+	public static long timestampOf(long id) {
+		return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+	}
+
+	/**
+	 * Node ID an ID was issued by
+	 */
+	public static int nodeOf(long id) {
+		return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE_ID);
+	}
+
+	/**
+	 * Node ID derived from the host name and process ID, for single-node setups or as a
+	 * fallback when no node ID is configured
+	 */
+	public static int deriveNodeId() {
+		String host;
+		try {
+			host = InetAddress.getLocalHost().getHostName();
+		}
+		catch (Exception e) {
+			host = "localhost";
+		}
+		int hash = (host + "/" + ManagementFactory.getRuntimeMXBean().getName()).hashCode();
+		return (hash ^ (hash >>> 16)) & MAX_NODE_ID;
+	}
+
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.runtime.service;
+
+import com.wangliang.agentj.tools.AbstractBaseTool;
+import com.wangliang.agentj.tools.CacheableTool;
+import com.wangliang.agentj.tools.ToolCallBiFunctionDef;
+import com.wangliang.agentj.tools.code.ToolExecuteResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Results of {@link CacheableTool} calls, kept per root plan so that repeated calls with
+ * the same key (the metadata of the same table, the same listing, a retried round) are
+ * answered without running the tool again.
+ *
+ * An entry expires after the tool's TTL and is dropped early when a call that bypasses
+ * the cache may have changed what it depends on, see
+ * {@link CacheableTool#isInvalidatedBy(ToolCallBiFunctionDef)}. Callers that report cache
+ * use open a {@link Recording} around their calls; the outcome of every call made on that
+ * thread is collected in it.
+ */
+@Service
+public class ToolResultCache {
+
+	private static final Logger log = LoggerFactory.getLogger(ToolResultCache.class);
+
+	private static final ThreadLocal<Recording> RECORDING = new ThreadLocal<>();
+
+	private final MeterRegistry meterRegistry;
+
+	private final boolean enabled;
+
+	private final int maxEntriesPerPlan;
+
+	private final int maxResultChars;
+
+	private final PlanScopedState<PlanCache> plans;
+
+	public ToolResultCache(PlanStateRegistry planStateRegistry, MeterRegistry meterRegistry,
+			@Value("${lynxe.toolCache.enabled:true}") boolean enabled,
+			@Value("${lynxe.toolCache.maxEntriesPerPlan:256}") int maxEntriesPerPlan,
+			@Value("${lynxe.toolCache.maxResultChars:200000}") int maxResultChars) {
+		this.meterRegistry = meterRegistry;
+		this.enabled = enabled;
+		this.maxEntriesPerPlan = Math.max(1, maxEntriesPerPlan);
+		this.maxResultChars = maxResultChars;
+		this.plans = planStateRegistry.<PlanCache>newScope("tool.results").weigher(PlanCache::estimateBytes).build();
+	}
+
+	/**
+	 * Run a tool call through the cache
+	 * @param tool Called tool
+	 * @param input Input of the call, in the tool's input type
+	 * @param call Runs the tool on a miss
+	 * @return Result of the call or of an earlier call with the same key
+	 */
+	public <I> ToolExecuteResult execute(ToolCallBiFunctionDef<I> tool, I input, Supplier<ToolExecuteResult> call) {
+		String planId = planIdOf(tool);
+		String key = enabled && planId != null ? keyOf(tool, input) : null;
+		if (key == null) {
+			try {
+				return call.get();
+			}
+			finally {
+				if (planId != null) {
+					invalidate(planId, tool);
+				}
+			}
+		}
+
+		CacheableTool<?> cacheable = (CacheableTool<?>) tool;
+		PlanCache cache = plans.computeIfAbsent(planId, id -> new PlanCache(maxEntriesPerPlan));
+		Entry cached = cache.get(key, System.nanoTime());
+		if (cached != null) {
+			long savedMillis = TimeUnit.NANOSECONDS.toMillis(cached.elapsedNanos());
+			log.debug("Reused result of {} for plan {}, saved {} ms", tool.getName(), planId, savedMillis);
+			count(tool, "hit");
+			meterRegistry.counter("lynxe.tool.cache.saved", "tool", tool.getName()).increment(savedMillis);
+			record(new Outcome(tool.getName(), true, savedMillis));
+			return cached.result();
+		}
+
+		long start = System.nanoTime();
+		ToolExecuteResult result = call.get();
+		long elapsed = System.nanoTime() - start;
+		count(tool, "miss");
+		record(new Outcome(tool.getName(), false, 0));
+		if (cacheable.isReusable(result) && result.getOutput().length() <= maxResultChars) {
+			cache.put(key, new Entry(cacheable, result, start + cacheable.getCacheTtl().toNanos(), elapsed));
+		}
+		return result;
+	}
+
+	/**
+	 * Start collecting the cache outcomes of the calls made on this thread
+	 */
+	public static Recording startRecording() {
+		Recording recording = new Recording(RECORDING.get());
+		RECORDING.set(recording);
+		return recording;
+	}
+
+	private static void record(Outcome outcome) {
+		Recording recording = RECORDING.get();
+		if (recording != null) {
+			recording.outcomes.add(outcome);
+		}
+	}
+
+	private void count(ToolCallBiFunctionDef<?> tool, String result) {
+		meterRegistry.counter("lynxe.tool.cache", "tool", tool.getName(), "result", result).increment();
+	}
+
+	private void invalidate(String planId, ToolCallBiFunctionDef<?> tool) {
+		PlanCache cache = plans.get(planId);
+		if (cache != null) {
+			int dropped = cache.invalidate(tool);
+			if (dropped > 0) {
+				log.debug("Call of {} dropped {} cached results of plan {}", tool.getName(), dropped, planId);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <I> String keyOf(ToolCallBiFunctionDef<I> tool, I input) {
+		if (!(tool instanceof CacheableTool<?> cacheable)) {
+			return null;
+		}
+		try {
+			String key = ((CacheableTool<I>) cacheable).getCacheKey(input);
+			return key != null ? tool.getName() + '\n' + key : null;
+		}
+		catch (RuntimeException e) {
+			log.debug("No cache key for call of {}: {}", tool.getName(), e.getMessage());
+			return null;
+		}
+	}
+
+	private static String planIdOf(ToolCallBiFunctionDef<?> tool) {
+		if (tool instanceof AbstractBaseTool<?> baseTool) {
+			return baseTool.getRootPlanId() != null ? baseTool.getRootPlanId() : baseTool.getCurrentPlanId();
+		}
+		return null;
+	}
+
+	/**
+	 * Cache use of one tool call
+	 * @param tool Tool name
+	 * @param hit Whether the result was reused
+	 * @param savedMillis Run time of the reused call
+	 */
+	public record Outcome(String tool, boolean hit, long savedMillis) {
+
+	}
+
+	/**
+	 * Outcomes collected on one thread until closed
+	 */
+	public static final class Recording implements AutoCloseable {
+
+		private final Recording previous;
+
+		private final List<Outcome> outcomes = new ArrayList<>();
+
+		private Recording(Recording previous) {
+			this.previous = previous;
+		}
+
+		public List<Outcome> getOutcomes() {
+			return Collections.unmodifiableList(outcomes);
+		}
+
+		@Override
+		public void close() {
+			if (previous != null) {
+				RECORDING.set(previous);
+			}
+			else {
+				RECORDING.remove();
+			}
+		}
+
+	}
+
+	private record Entry(CacheableTool<?> owner, ToolExecuteResult result, long expiresAtNanos, long elapsedNanos) {
+
+	}
+
+	/**
+	 * Entries of one plan, least recently used first
+	 */
+	private static final class PlanCache {
+
+		private final int maxEntries;
+
+		private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+		private PlanCache(int maxEntries) {
+			this.maxEntries = maxEntries;
+		}
+
+		synchronized Entry get(String key, long nowNanos) {
+			Entry entry = entries.get(key);
+			if (entry != null && nowNanos - entry.expiresAtNanos() >= 0) {
+				entries.remove(key);
+				return null;
+			}
+			return entry;
+		}
+
+		synchronized void put(String key, Entry entry) {
+			entries.put(key, entry);
+			if (entries.size() > maxEntries) {
+				entries.remove(entries.keySet().iterator().next());
+			}
+		}
+
+		synchronized int invalidate(ToolCallBiFunctionDef<?> tool) {
+			int before = entries.size();
+			entries.values().removeIf(entry -> entry.owner().isInvalidatedBy(tool));
+			return before - entries.size();
+		}
+
+		synchronized long estimateBytes() {
+			long total = 0;
+			for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+				total += 2L * (entry.getKey().length() + entry.getValue().result().getOutput().length()) + 128;
+			}
+			return total;
+		}
+
+	}
+
+}
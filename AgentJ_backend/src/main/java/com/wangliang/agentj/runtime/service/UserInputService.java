@@ -15,18 +15,26 @@
  */
 package com.wangliang.agentj.runtime.service;
 
+import com.wangliang.agentj.config.LynxeProperties;
 import com.wangliang.agentj.runtime.entity.vo.UserInputWaitState;
 import com.wangliang.agentj.tools.FormInputTool;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 @Service
@@ -36,93 +44,124 @@ public class UserInputService implements IUserInputService {
 
     private final ConcurrentHashMap<String, FormInputTool> formInputToolMap = new ConcurrentHashMap<>();
 
-    // Lock for exclusive form storage per root plan
-    private final ReentrantLock formStorageLock = new ReentrantLock();
+    // Forms of other sub-plans waiting until the form shown for their root plan is done
+    private final ConcurrentHashMap<String, Queue<FormInputTool>> queuedForms = new ConcurrentHashMap<>();
+
+    private final LynxeProperties lynxeProperties;
+
+    // Expires forms nobody answers; pending forms hold no thread while they wait
+    private final ScheduledExecutorService expiryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "UserInputExpiry");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public UserInputService(LynxeProperties lynxeProperties) {
+        this.lynxeProperties = lynxeProperties;
+    }
 
     /**
-     * Store a form input tool with exclusive access per root plan. Only one form can be
-     * stored at a time per root plan. If another form is already stored, this method will
-     * wait using spin lock.
+     * Show a form for the root plan, or queue it behind the form another sub-plan is
+     * already showing. The returned future completes when the user answers the form or it
+     * expires after the user input timeout, which starts once the form is shown.
      *
      * @param planId          The root plan ID
-     * @param tool            The form input tool to store
-     * @param requesterPlanId The sub-plan ID requesting to store the tool
-     * @return true if successfully stored, false if interrupted or timeout
+     * @param tool            The form input tool awaiting input
+     * @param requesterPlanId The sub-plan ID requesting the form
+     * @return future completed with the final input state of the form
      */
-    public boolean storeFormInputToolExclusive(String planId, FormInputTool tool, String requesterPlanId) {
-        log.info("Sub-plan {} attempting to store form for root plan {}", requesterPlanId, planId);
-
-        // Try to acquire lock with timeout
-        try {
-            if (formStorageLock.tryLock(5, TimeUnit.SECONDS)) {
-                try {
-                    // Check if there's already a form for this root plan
-                    FormInputTool existingTool = formInputToolMap.get(planId);
-                    if (existingTool != null
-                            && existingTool.getInputState() == FormInputTool.InputState.AWAITING_USER_INPUT) {
-                        String existingOwner = getFormOwner(existingTool);
-                        if (existingOwner != null && !existingOwner.equals(requesterPlanId)) {
-                            log.info("Root plan {} already has form from sub-plan {}. Sub-plan {} will wait.", planId,
-                                    existingOwner, requesterPlanId);
-
-                            // Wait for existing form to complete using spin lock
-                            waitForFormCompletion(existingTool, requesterPlanId);
-
-                            // After waiting, remove the completed form
-                            formInputToolMap.remove(planId);
-                            log.info("Removed completed form from root plan {}", planId);
-                        }
-                    }
-
-                    // Now store our form
-                    formInputToolMap.put(planId, tool);
-                    log.info("Successfully stored form for root plan {} from sub-plan {}", planId, requesterPlanId);
-                    return true;
-
-                } finally {
-                    formStorageLock.unlock();
-                }
-            } else {
-                log.warn("Failed to acquire lock for storing form. Sub-plan {} timed out.", requesterPlanId);
-                return false;
+    public CompletableFuture<FormInputTool.InputState> awaitFormInput(String planId, FormInputTool tool,
+            String requesterPlanId) {
+        formInputToolMap.compute(planId, (id, shown) -> {
+            if (shown != null && shown != tool
+                    && shown.getInputState() == FormInputTool.InputState.AWAITING_USER_INPUT) {
+                log.info("Root plan {} already has form from sub-plan {}. Form of sub-plan {} is queued.", id,
+                        getFormOwner(shown), requesterPlanId);
+                queuedForms.computeIfAbsent(id, k -> new ConcurrentLinkedQueue<>()).add(tool);
+                return shown;
             }
-        } catch (InterruptedException e) {
-            log.warn("Interrupted while waiting for lock. Sub-plan {} interrupted.", requesterPlanId);
-            Thread.currentThread().interrupt();
-            return false;
-        }
+            show(id, tool);
+            return tool;
+        });
+        tool.whenAnswered().whenComplete((state, error) -> showNextForm(planId, tool));
+        return tool.whenAnswered();
     }
 
     /**
-     * Wait for a form to complete using spin lock mechanism
+     * Expire the shown and queued forms of a root plan, so suspended agents resume and
+     * notice the plan was stopped
      *
-     * @param existingTool    The existing form tool to wait for
-     * @param requesterPlanId The sub-plan ID waiting for completion
+     * @param planId The root plan ID
      */
-    private void waitForFormCompletion(FormInputTool existingTool, String requesterPlanId) {
-        log.info("Sub-plan {} entering spin lock to wait for form completion", requesterPlanId);
-        long startTime = System.currentTimeMillis();
-        long timeoutMs = 300000; // 5 minutes timeout
-        long checkIntervalMs = 100; // Check every 100ms
-
-        while (existingTool.getInputState() == FormInputTool.InputState.AWAITING_USER_INPUT) {
-            long currentTime = System.currentTimeMillis();
-            if (currentTime - startTime > timeoutMs) {
-                log.warn("Timeout waiting for form completion. Sub-plan {} giving up.", requesterPlanId);
-                break;
+    public void cancelPendingForms(String planId) {
+        List<FormInputTool> pending = new ArrayList<>();
+        formInputToolMap.computeIfPresent(planId, (id, shown) -> {
+            Queue<FormInputTool> queued = queuedForms.remove(id);
+            if (queued != null) {
+                pending.addAll(queued);
             }
+            pending.add(shown);
+            return shown;
+        });
+        // Outside compute: expiring completes the forms, which re-enters the map
+        pending.forEach(this::expire);
+    }
 
-            try {
-                TimeUnit.MILLISECONDS.sleep(checkIntervalMs);
-            } catch (InterruptedException e) {
-                log.warn("Interrupted while waiting for form completion. Sub-plan {} interrupted.", requesterPlanId);
-                Thread.currentThread().interrupt();
-                break;
+    /**
+     * Must be called inside compute for the root plan
+     */
+    private void show(String planId, FormInputTool tool) {
+        long timeoutSeconds = lynxeProperties.getUserInputTimeout();
+        ScheduledFuture<?> expiry = expiryScheduler.schedule(() -> expire(tool), timeoutSeconds, TimeUnit.SECONDS);
+        tool.whenAnswered().whenComplete((state, error) -> expiry.cancel(false));
+        log.info("Showing form of sub-plan {} for root plan {}", getFormOwner(tool), planId);
+    }
+
+    private void showNextForm(String planId, FormInputTool done) {
+        formInputToolMap.computeIfPresent(planId, (id, shown) -> {
+            if (shown != done) {
+                return shown;
+            }
+            FormInputTool next = pollQueued(id);
+            if (next == null) {
+                // Keep the answered form, as callers read its values afterwards
+                return shown;
+            }
+            show(id, next);
+            return next;
+        });
+    }
+
+    /**
+     * Must be called inside compute for the root plan
+     */
+    private FormInputTool pollQueued(String planId) {
+        Queue<FormInputTool> queue = queuedForms.get(planId);
+        if (queue == null) {
+            return null;
+        }
+        FormInputTool next = queue.poll();
+        while (next != null && next.getInputState() != FormInputTool.InputState.AWAITING_USER_INPUT) {
+            next = queue.poll();
+        }
+        if (queue.isEmpty()) {
+            queuedForms.remove(planId, queue);
+        }
+        return next;
+    }
+
+    private void expire(FormInputTool tool) {
+        synchronized (tool) {
+            if (tool.getInputState() == FormInputTool.InputState.AWAITING_USER_INPUT) {
+                log.warn("Timeout waiting for user input for planId: {}", getFormOwner(tool));
+                tool.handleInputTimeout();
             }
         }
+    }
 
-        log.info("Sub-plan {} finished waiting for form completion. Final state: {}", requesterPlanId,
-                existingTool.getInputState());
+    @PreDestroy
+    public void shutdown() {
+        expiryScheduler.shutdownNow();
     }
 
     /**
@@ -144,8 +183,29 @@ public class UserInputService implements IUserInputService {
         return formInputToolMap.get(planId);
     }
 
-    public void removeFormInputTool(String planId) {
-        formInputToolMap.remove(planId);
+    /**
+     * Remove a form of the root plan. Only the given form is removed, whether it is shown
+     * or still queued; a form shown for another sub-plan stays in place.
+     *
+     * @param planId The root plan ID
+     * @param tool   The form to remove
+     */
+    public void removeFormInputTool(String planId, FormInputTool tool) {
+        Queue<FormInputTool> queued = queuedForms.get(planId);
+        if (queued != null) {
+            queued.remove(tool);
+        }
+        formInputToolMap.computeIfPresent(planId, (id, shown) -> {
+            if (shown != tool) {
+                return shown;
+            }
+            // A queued form of another sub-plan takes the place of the removed one
+            FormInputTool next = pollQueued(id);
+            if (next != null) {
+                show(id, next);
+            }
+            return next;
+        });
     }
 
     public UserInputWaitState createUserInputWaitState(String planId, String title, FormInputTool formInputTool) {
@@ -227,8 +287,15 @@ public class UserInputService implements IUserInputService {
                 return new FormInputTool.InputItem(entry.getKey(), entry.getValue());
             }).collect(Collectors.toList());
 
-            formInputTool.setUserFormInputValues(inputItems);
-            formInputTool.markUserInputReceived();
+            synchronized (formInputTool) {
+                if (formInputTool.getInputState() != FormInputTool.InputState.AWAITING_USER_INPUT) {
+                    // Expired meanwhile
+                    return false;
+                }
+                formInputTool.setUserFormInputValues(inputItems);
+                // Completes the form, which resumes the suspended agent on its executor
+                formInputTool.markUserInputReceived();
+            }
             return true;
         } else {
             if (formInputTool == null) {
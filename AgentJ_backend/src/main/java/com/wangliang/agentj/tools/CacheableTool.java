@@ -0,0 +1,61 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.tools;
+
+import com.wangliang.agentj.tools.code.ToolExecuteResult;
+
+import java.time.Duration;
+
+/**
+ * Interface for tools whose calls have no side effects, so that a repeated call with the
+ * same key can be answered with the earlier result instead of running again
+ *
+ * @param <I> Tool input type
+ */
+public interface CacheableTool<I> {
+
+	/**
+	 * Derive the cache key of a call. Besides the input the key has to cover whatever else
+	 * the result depends on, such as the modification time of a file that is read.
+	 * @param input Tool input
+	 * @return Key of the call, or null if this call must not be served from the cache
+	 */
+	String getCacheKey(I input);
+
+	/**
+	 * How long a result may be reused
+	 */
+	default Duration getCacheTtl() {
+		return Duration.ofMinutes(5);
+	}
+
+	/**
+	 * Check if a result can be reused; by default results reporting an error are not
+	 */
+	default boolean isReusable(ToolExecuteResult result) {
+		return result != null && result.getOutput() != null && !result.getOutput().startsWith("Error");
+	}
+
+	/**
+	 * Check if a call of another tool in the same plan may change what the results of this
+	 * tool depend on. Such calls drop this tool's cached results of the plan.
+	 * @param tool Tool that was called without the cache
+	 */
+	default boolean isInvalidatedBy(ToolCallBiFunctionDef<?> tool) {
+		return false;
+	}
+
+}
@@ -32,6 +32,7 @@ import org.springframework.ai.openai.api.OpenAiApi;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * LLM form input tool: supports multiple input items with labels and descriptions.
@@ -358,7 +359,10 @@ public class FormInputTool extends AbstractBaseTool<FormInputTool.UserFormInput>
 
 	}
 
-	private InputState inputState = InputState.INPUT_RECEIVED; // Default state
+	private volatile InputState inputState = InputState.INPUT_RECEIVED; // Default state
+
+	// Completed with the final state once the pending form is answered or expires
+	private volatile CompletableFuture<InputState> answer = CompletableFuture.completedFuture(InputState.INPUT_RECEIVED);
 
 	private UserFormInput currentFormDefinition; // Stores the form structure defined by
 
@@ -386,6 +390,7 @@ public class FormInputTool extends AbstractBaseTool<FormInputTool.UserFormInput>
 				}
 			}
 		}
+		this.answer = new CompletableFuture<>();
 		setInputState(InputState.AWAITING_USER_INPUT);
 
 		// Return form definition as a structured result
@@ -442,6 +447,7 @@ public class FormInputTool extends AbstractBaseTool<FormInputTool.UserFormInput>
 
 	public void markUserInputReceived() {
 		setInputState(InputState.INPUT_RECEIVED);
+		answer.complete(InputState.INPUT_RECEIVED);
 	}
 
 	public void handleInputTimeout() {
@@ -449,6 +455,15 @@ public class FormInputTool extends AbstractBaseTool<FormInputTool.UserFormInput>
 				this.currentFormDefinition != null ? this.currentFormDefinition.getDescription() : "N/A");
 		setInputState(InputState.INPUT_TIMEOUT);
 		this.currentFormDefinition = null; // Clear form definition on timeout
+		answer.complete(InputState.INPUT_TIMEOUT);
+	}
+
+	/**
+	 * Completes with {@link InputState#INPUT_RECEIVED} or {@link InputState#INPUT_TIMEOUT}
+	 * once the form of the last call is answered or expires
+	 */
+	public CompletableFuture<InputState> whenAnswered() {
+		return answer;
 	}
 
 	@Override
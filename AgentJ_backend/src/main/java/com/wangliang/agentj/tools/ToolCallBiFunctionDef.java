@@ -100,4 +100,13 @@ public interface ToolCallBiFunctionDef<I> extends BiFunction<I, ToolContext, Too
      */
     void cleanup(String planId);
 
+    /**
+     * Whether running the tool twice with the same input has the same effect as running
+     * it once, so a failed call may be retried
+     * @return Returns true if the tool is safe to retry, false by default
+     */
+    default boolean isIdempotent() {
+        return false;
+    }
+
 }
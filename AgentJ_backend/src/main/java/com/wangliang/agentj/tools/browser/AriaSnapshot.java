@@ -42,6 +42,48 @@ public class AriaSnapshot {
 
 	private static final Logger log = LoggerFactory.getLogger(AriaSnapshot.class);
 
+	/**
+	 * Assigns {@code aria-id-N} labels. An element keeps its number for as long as the
+	 * document lives; new elements get the next free number. Without pending changes
+	 * from {@link DomChangeTracker} (first pass, or no tracker) every element is visited.
+	 */
+	private static final String LABEL_ELEMENTS_JS = """
+			(() => {
+				const tracker = window.__lynxeDomTracker;
+				let ids = window.__lynxeAriaIds;
+				const full = !ids || !tracker || !window.__lynxeAriaTracked;
+				if (!ids) {
+					ids = window.__lynxeAriaIds = new WeakMap();
+					window.__lynxeAriaNext = 1;
+				}
+				const label = (el) => {
+					const current = ids.get(el);
+					if (current !== undefined && el.getAttribute('aria-label') === 'aria-id-' + current) {
+						return;
+					}
+					// Clones copy the attribute but not the WeakMap entry, so they get a new ID
+					const id = current !== undefined ? current : window.__lynxeAriaNext++;
+					ids.set(el, id);
+					el.setAttribute('aria-label', 'aria-id-' + id);
+				};
+				if (full) {
+					document.querySelectorAll('*').forEach(label);
+				}
+				else {
+					for (const root of tracker.pending) {
+						if (root.isConnected) {
+							label(root);
+							root.querySelectorAll('*').forEach(label);
+						}
+					}
+				}
+				if (tracker) {
+					tracker.pending.clear();
+					window.__lynxeAriaTracked = true;
+				}
+			})();
+			""";
+
 	/**
 	 * Generate ARIA snapshot of a page using default options
 	 * @param page The page to snapshot
@@ -72,18 +114,10 @@ public class AriaSnapshot {
 			log.debug("Generating ARIA snapshot with selector: {}, timeout: {}", options.getSelector(),
 					options.getTimeout());
 
-			// Inject unique data-aria-id IDs into all elements before taking snapshot
-			// Force replace data-aria-id to ensure consistent IDs
-			page.evaluate("""
-					(() => {
-						const elements = document.querySelectorAll('*');
-						let counter = 1;
-						elements.forEach((el) => {
-							el.setAttribute('aria-label', 'aria-id-' + counter);
-							counter++;
-						});
-					})();
-					""");
+			// Inject aria-id labels before taking snapshot. IDs are stable for the
+			// lifetime of the document, and when a DomChangeTracker is installed only
+			// subtrees changed since the last pass are relabeled
+			page.evaluate(LABEL_ELEMENTS_JS);
 
 			// Wait for selector if timeout is specified (similar to frame.timeout in
 			// Playwright)
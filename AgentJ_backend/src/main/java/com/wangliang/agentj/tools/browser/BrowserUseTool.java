@@ -20,6 +20,7 @@ import com.microsoft.playwright.Page;
 import com.microsoft.playwright.PlaywrightException;
 import com.microsoft.playwright.TimeoutError;
 import com.wangliang.agentj.config.LynxeProperties;
+import com.wangliang.agentj.runtime.observation.LynxeObservations;
 import com.wangliang.agentj.tools.AbstractBaseTool;
 import com.wangliang.agentj.tools.browser.actions.*;
 import com.wangliang.agentj.tools.code.ToolExecuteResult;
@@ -50,6 +51,14 @@ public class BrowserUseTool extends AbstractBaseTool<BrowserRequestVO> {
 
 	private final ToolI18nService toolI18nService;
 
+	/**
+	 * How long the DOM has to stay unchanged before a snapshot is taken
+	 */
+	private static final long DOM_QUIET_MS = 300;
+
+	// Reuses the last ARIA snapshot per page while the DOM is unchanged
+	private final DomChangeTracker domChangeTracker = new DomChangeTracker();
+
 	public BrowserUseTool(ChromeDriverService chromeDriverService, SmartContentSavingService innerStorageService,
 			ObjectMapper objectMapper, ShortUrlService shortUrlService,
 			TextFileService textFileService, ToolI18nService toolI18nService) {
@@ -284,7 +293,8 @@ public class BrowserUseTool extends AbstractBaseTool<BrowserRequestVO> {
 
 		for (int attempt = 1; attempt <= maxRetries; attempt++) {
 			try {
-				return executor.execute();
+				return LynxeObservations.observeChecked("lynxe.browser.action", executor::execute, "action",
+						actionName);
 			}
 			catch (TimeoutError e) {
 				if (attempt == maxRetries) {
@@ -419,10 +429,12 @@ public class BrowserUseTool extends AbstractBaseTool<BrowserRequestVO> {
 																					// idle
 				}
 				catch (TimeoutError e) {
-					// If network idle timeout, wait a bit more for dynamic content to
-					// update
+					// If network idle timeout, wait (up to 1 second) for the DOM to
+					// settle instead of sleeping for a fixed time
 					log.debug("Network idle timeout, waiting for content updates: {}", e.getMessage());
-					Thread.sleep(1000); // Wait 1 second for content to update
+					if (domChangeTracker.waitForQuiet(page, DOM_QUIET_MS, 1000) == null) {
+						Thread.sleep(1000); // Wait 1 second for content to update
+					}
 				}
 			}
 			catch (TimeoutError e) {
@@ -473,9 +485,14 @@ public class BrowserUseTool extends AbstractBaseTool<BrowserRequestVO> {
 
 			// Wait a bit more before generating ARIA snapshot to ensure all dynamic
 			// content
-			// (like search results) is fully rendered
+			// (like search results) is fully rendered. With the DOM change tracker this
+			// returns as soon as the page has been quiet for DOM_QUIET_MS
+			DomChangeTracker.Marker domMarker = null;
 			try {
-				Thread.sleep(500); // Additional wait for content rendering
+				domMarker = domChangeTracker.waitForQuiet(page, DOM_QUIET_MS, 500);
+				if (domMarker == null) {
+					Thread.sleep(500); // Additional wait for content rendering
+				}
 			}
 			catch (InterruptedException e) {
 				Thread.currentThread().interrupt();
@@ -484,6 +501,15 @@ public class BrowserUseTool extends AbstractBaseTool<BrowserRequestVO> {
 
 			// Generate ARIA snapshot using the new AriaSnapshot utility with error
 			// handling
+			String pageUrl = (String) state.get("url");
+			String unchangedSnapshot = domChangeTracker.getUnchangedSnapshot(page, domMarker, pageUrl);
+			if (unchangedSnapshot != null) {
+				// Nothing changed since the last snapshot, skip relabeling and re-extraction
+				log.debug("DOM unchanged since last snapshot, reusing interactive elements");
+				state.put("interactive_elements", unchangedSnapshot);
+				state.put("interactive_elements_unchanged", true);
+				return state;
+			}
 			try {
 				AriaSnapshotOptions snapshotOptions = new AriaSnapshotOptions().setSelector("body")
 					.setTimeout(getBrowserTimeout() * 1000); // Convert to milliseconds
@@ -497,16 +523,23 @@ public class BrowserUseTool extends AbstractBaseTool<BrowserRequestVO> {
 						shortUrlService, rootPlanId);
 				if (snapshot != null && !snapshot.trim().isEmpty()) {
 					state.put("interactive_elements", snapshot);
+					String diff = domChangeTracker.record(page, domMarker, pageUrl, snapshot);
+					if (diff != null) {
+						state.put("interactive_elements_diff", diff);
+					}
 				}
 				else {
+					domChangeTracker.invalidate(page);
 					state.put("interactive_elements", "No interactive elements found or snapshot is empty");
 				}
 			}
 			catch (PlaywrightException e) {
+				domChangeTracker.invalidate(page);
 				log.warn("Playwright error getting ARIA snapshot: {}", e.getMessage());
 				state.put("interactive_elements", "Error getting interactive elements: " + e.getMessage());
 			}
 			catch (Exception e) {
+				domChangeTracker.invalidate(page);
 				log.warn("Unexpected error getting ARIA snapshot: {}", e.getMessage());
 				state.put("interactive_elements", "Error getting interactive elements: " + e.getMessage());
 			}
@@ -593,6 +626,13 @@ public class BrowserUseTool extends AbstractBaseTool<BrowserRequestVO> {
 
 		// Get interactive element information
 		String elementsInfo = (String) state.get("interactive_elements");
+		if (elementsInfo != null && Boolean.TRUE.equals(state.get("interactive_elements_unchanged"))) {
+			elementsInfo = "(Page unchanged since the previous step)\n" + elementsInfo;
+		}
+		else if (elementsInfo != null && state.get("interactive_elements_diff") != null) {
+			elementsInfo = "Changes since the previous step (element indices are unchanged):\n"
+					+ state.get("interactive_elements_diff") + "\nFull list:\n" + elementsInfo;
+		}
 
 		// Build final status string
 		String retString = String.format("""
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.tools.browser;
+
+import com.microsoft.playwright.Page;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+
+/**
+ * Tracks DOM changes of a page through an injected MutationObserver so that snapshots
+ * can be reused while the page is unchanged.
+ *
+ * The observer lives in the page's window and keeps a document ID, a version counter
+ * that is bumped on every relevant mutation, the time of the last mutation and the set
+ * of subtrees added since the last labeling pass (consumed by {@link AriaSnapshot}).
+ * Attribute writes made by the tool itself ({@code aria-id-*} labels and
+ * {@code lynxe-id}) are ignored. Input, change and focus events bump the version too,
+ * since field values, checked state and focus are properties the observer does not see.
+ * A navigation creates a new window and therefore a new
+ * document ID, which invalidates everything recorded for the old document.
+ *
+ * Instances keep the last snapshot per page in a weak map and are thread-safe.
+ */
+public class DomChangeTracker {
+
+	private static final Logger log = LoggerFactory.getLogger(DomChangeTracker.class);
+
+	/**
+	 * Largest share of changed lines for which a diff is reported instead of treating the
+	 * page as new
+	 */
+	private static final double MAX_DIFF_RATIO = 0.25;
+
+	private static final int QUIET_POLL_INTERVAL_MS = 100;
+
+	/**
+	 * Install the observer if needed and report the current document ID, version and
+	 * milliseconds since the last mutation
+	 */
+	private static final String OBSERVE_JS = """
+			(() => {
+				let t = window.__lynxeDomTracker;
+				if (!t) {
+					t = {
+						id: Date.now().toString(36) + '-' + Math.random().toString(36).slice(2),
+						version: 0,
+						lastMutation: Date.now(),
+						pending: new Set()
+					};
+					const observer = new MutationObserver((records) => {
+						for (const r of records) {
+							if (r.type === 'attributes') {
+								if (r.attributeName === 'lynxe-id') {
+									continue;
+								}
+								if (r.attributeName === 'aria-label') {
+									const value = r.target.getAttribute('aria-label');
+									if (value && value.startsWith('aria-id-')) {
+										continue;
+									}
+									// The page replaced a label, so the element has to be relabeled
+									t.pending.add(r.target);
+								}
+							}
+							else if (r.type === 'childList') {
+								for (const node of r.addedNodes) {
+									if (node.nodeType === Node.ELEMENT_NODE) {
+										t.pending.add(node);
+									}
+								}
+							}
+							t.version++;
+							t.lastMutation = Date.now();
+						}
+					});
+					observer.observe(document, { subtree: true, childList: true, attributes: true, characterData: true });
+					// Field values, checked state and focus are properties the observer never sees
+					const bump = () => {
+						t.version++;
+						t.lastMutation = Date.now();
+					};
+					for (const type of ['input', 'change', 'focusin']) {
+						document.addEventListener(type, bump, true);
+					}
+					window.__lynxeDomTracker = t;
+				}
+				return { id: t.id, version: t.version, idleMs: Date.now() - t.lastMutation };
+			})()
+			""";
+
+	private final Map<Page, PageSnapshot> snapshots = Collections.synchronizedMap(new WeakHashMap<>());
+
+	/**
+	 * Install the observer on the page (idempotent) and read its current state
+	 * @param page Page to observe
+	 * @return Current marker, or null if the observer could not be installed (for
+	 * example while the page is navigating)
+	 */
+	@SuppressWarnings("unchecked")
+	public Marker observe(Page page) {
+		try {
+			Map<String, Object> result = (Map<String, Object>) page.evaluate(OBSERVE_JS);
+			if (result == null) {
+				return null;
+			}
+			return new Marker((String) result.get("id"), ((Number) result.get("version")).longValue(),
+					((Number) result.get("idleMs")).longValue());
+		}
+		catch (Exception e) {
+			log.debug("Failed to observe DOM changes: {}", e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Wait until the DOM has not changed for {@code quietMs}, or until {@code maxWaitMs}
+	 * elapsed. Returns immediately on a page that is already quiet.
+	 * @param page Page to wait on
+	 * @param quietMs Required quiet period in milliseconds
+	 * @param maxWaitMs Maximum time to wait in milliseconds
+	 * @return Last marker read, or null if the observer is not available
+	 * @throws InterruptedException If interrupted while waiting
+	 */
+	public Marker waitForQuiet(Page page, long quietMs, long maxWaitMs) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + maxWaitMs;
+		Marker marker = observe(page);
+		while (marker != null && marker.idleMs() < quietMs && System.currentTimeMillis() < deadline) {
+			Thread.sleep(Math.min(QUIET_POLL_INTERVAL_MS, Math.max(quietMs - marker.idleMs(), 1)));
+			marker = observe(page);
+		}
+		return marker;
+	}
+
+	/**
+	 * Get the snapshot recorded for the page if the DOM has not changed since. The
+	 * observer only sees the main frame, so a page with child frames never reuses its
+	 * snapshot
+	 * @param page Page
+	 * @param marker Current marker from {@link #observe(Page)}
+	 * @param url Current page URL
+	 * @return Cached snapshot, or null if it is missing or stale
+	 */
+	public String getUnchangedSnapshot(Page page, Marker marker, String url) {
+		if (marker == null || page.frames().size() != 1) {
+			return null;
+		}
+		PageSnapshot previous = snapshots.get(page);
+		if (previous != null && previous.sameState(marker, url)) {
+			return previous.snapshot();
+		}
+		return null;
+	}
+
+	/**
+	 * Record a new snapshot for the page and describe how it differs from the previous
+	 * one of the same document
+	 * @param page Page
+	 * @param marker Marker read before the snapshot was taken (may be null)
+	 * @param url Current page URL
+	 * @param snapshot New snapshot text
+	 * @return Diff of added and removed lines when the page is mostly unchanged, or null
+	 * when there is no previous snapshot, nothing changed, or too much changed
+	 */
+	public String record(Page page, Marker marker, String url, String snapshot) {
+		PageSnapshot previous = snapshots.put(page, new PageSnapshot(marker, url, snapshot));
+		if (previous == null || marker == null || previous.marker() == null
+				|| !Objects.equals(previous.marker().documentId(), marker.documentId())
+				|| !Objects.equals(previous.url(), url)) {
+			return null;
+		}
+		return diff(previous.snapshot(), snapshot);
+	}
+
+	/**
+	 * Forget the snapshot recorded for the page
+	 */
+	public void invalidate(Page page) {
+		snapshots.remove(page);
+	}
+
+	/**
+	 * Line multiset diff between two snapshots. Element indexes are stable across
+	 * snapshots of the same document, so unchanged elements produce identical lines.
+	 */
+	static String diff(String previous, String current) {
+		String[] oldLines = previous.split("\n");
+		String[] newLines = current.split("\n");
+
+		Map<String, Integer> remaining = new HashMap<>();
+		for (String line : oldLines) {
+			remaining.merge(line, 1, Integer::sum);
+		}
+		List<String> added = new ArrayList<>();
+		for (String line : newLines) {
+			Integer count = remaining.get(line);
+			if (count != null && count > 0) {
+				remaining.put(line, count - 1);
+			}
+			else {
+				added.add(line);
+			}
+		}
+		List<String> removed = new ArrayList<>();
+		for (String line : oldLines) {
+			Integer count = remaining.get(line);
+			if (count != null && count > 0) {
+				removed.add(line);
+				remaining.put(line, count - 1);
+			}
+		}
+
+		int changed = added.size() + removed.size();
+		if (changed == 0 || changed > Math.max(newLines.length, 1) * MAX_DIFF_RATIO) {
+			return null;
+		}
+
+		StringBuilder result = new StringBuilder();
+		result.append(String.format("%d line(s) added, %d line(s) removed since the previous step\n", added.size(),
+				removed.size()));
+		for (String line : added) {
+			result.append("[added] ").append(line.strip()).append("\n");
+		}
+		for (String line : removed) {
+			result.append("[removed] ").append(line.strip()).append("\n");
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Observer state of a page
+	 * @param documentId ID of the observed document, new after every navigation
+	 * @param version Number of relevant mutations seen so far
+	 * @param idleMs Milliseconds since the last mutation
+	 */
+	public record Marker(String documentId, long version, long idleMs) {
+
+		public boolean sameState(Marker other) {
+			return other != null && Objects.equals(documentId, other.documentId) && version == other.version;
+		}
+
+	}
+
+	private record PageSnapshot(Marker marker, String url, String snapshot) {
+
+		boolean sameState(Marker current, String currentUrl) {
+			return marker != null && marker.sameState(current) && Objects.equals(url, currentUrl);
+		}
+
+	}
+
+}
@@ -417,13 +417,32 @@ public class InteractiveElementRegistry {
 	private final Map<Integer, InteractiveElement> indexToElementMap = new ConcurrentHashMap<>();
 
 	/**
-	 * Refresh all interactive elements on the specified page
+	 * Detects whether the main document changed since the last extraction
+	 */
+	private final DomChangeTracker changeTracker = new DomChangeTracker();
+
+	private volatile Page lastPage;
+
+	private volatile DomChangeTracker.Marker lastMarker;
+
+	/**
+	 * Refresh all interactive elements on the specified page. The extraction is skipped,
+	 * keeping the current elements and their indexes, when the page has a single frame
+	 * and its DOM has not changed since the last refresh.
 	 * @param page The page to process
 	 */
 	public void refresh(Page page) {
-		clearCache();
 		waitForPageLoad(page);
+		DomChangeTracker.Marker marker = changeTracker.observe(page);
+		if (marker != null && page == lastPage && marker.sameState(lastMarker) && page.frames().size() == 1
+				&& !interactiveElements.isEmpty()) {
+			log.debug("DOM unchanged, keeping {} interactive elements", interactiveElements.size());
+			return;
+		}
+		clearCache();
 		processPageElements(page);
+		lastPage = page;
+		lastMarker = marker;
 		log.info("Loaded {} interactive elements", interactiveElements.size());
 	}
 
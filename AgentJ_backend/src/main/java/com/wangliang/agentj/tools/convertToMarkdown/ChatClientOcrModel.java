@@ -0,0 +1,80 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.tools.convertToMarkdown;
+
+import com.wangliang.agentj.advisor.LlmCallSchedulerAdvisor;
+import com.wangliang.agentj.llm.LlmService;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.util.MimeType;
+
+import java.util.List;
+
+/**
+ * {@link OcrModel} backed by the default dynamic agent {@link ChatClient}
+ */
+class ChatClientOcrModel implements OcrModel {
+
+	private final LlmService llmService;
+
+	private final String modelName;
+
+	ChatClientOcrModel(LlmService llmService, String modelName) {
+		this.llmService = llmService;
+		this.modelName = modelName;
+	}
+
+	@Override
+	public String modelName() {
+		return modelName;
+	}
+
+	@Override
+	public Reply recognize(String systemText, String userText, List<byte[]> images, MimeType mimeType) {
+		ChatClient chatClient = llmService.getDefaultDynamicAgentChatClient();
+		ChatOptions chatOptions = ChatOptions.builder().model(modelName).build();
+		// OcrPipeline holds a scheduler permit for the call already
+		ChatResponse response = chatClient.prompt()
+			.options(chatOptions)
+			.advisors(advisor -> advisor.param(LlmCallSchedulerAdvisor.ADMITTED, true))
+			.system(systemText)
+			.user(userMessage -> {
+				userMessage.text(userText);
+				for (byte[] image : images) {
+					userMessage.media(mimeType, new ByteArrayResource(image));
+				}
+			})
+			.call()
+			.chatResponse();
+
+		if (response == null) {
+			return new Reply(null, 0, 0, null);
+		}
+		String text = response.getResult() != null && response.getResult().getOutput() != null
+				? response.getResult().getOutput().getText() : null;
+		ChatResponseMetadata metadata = response.getMetadata();
+		Usage usage = metadata != null ? metadata.getUsage() : null;
+		long promptTokens = usage != null && usage.getPromptTokens() != null ? usage.getPromptTokens() : 0;
+		long completionTokens = usage != null && usage.getCompletionTokens() != null ? usage.getCompletionTokens()
+				: 0;
+		return new Reply(text, promptTokens, completionTokens, metadata != null ? metadata.getRateLimit() : null);
+	}
+
+}
@@ -0,0 +1,420 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.tools.convertToMarkdown;
+
+import com.wangliang.agentj.tools.code.ToolExecuteResult;
+import com.wangliang.agentj.tools.filesystem.UnifiedDirectoryManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Disk cache of Markdown conversion results shared by all plans.
+ *
+ * Entries are keyed by the SHA-256 of the source file content together with the converter
+ * type, the converter settings that change the output (DPI, OCR model) and the additional
+ * requirement, so a document uploaded to several plans is converted only once. Each entry
+ * is a directory holding the Markdown file and, for Word documents, the extracted images.
+ * A hit is restored into the plan directory by copying the Markdown file and hard linking
+ * the images, falling back to copies where links are not supported.
+ *
+ * The total size is bounded and the least recently used entries are evicted first; access
+ * times are kept in the entry directory's modification time so they survive restarts.
+ * Concurrent conversions of the same key wait for the first one instead of converting
+ * again.
+ */
+@Service
+public class ConversionResultCache {
+
+	private static final Logger log = LoggerFactory.getLogger(ConversionResultCache.class);
+
+	private static final String CACHE_DIR = "conversion_cache";
+
+	private static final String MARKDOWN_FILE = "content.md";
+
+	private static final String ASSETS_DIR = "assets";
+
+	private static final String META_FILE = "meta.properties";
+
+	private static final String TMP_MARKER = ".tmp-";
+
+	private static final String SUCCESS_PREFIX = "Successfully";
+
+	private static final int INLINE_CONTENT_LIMIT = 1000;
+
+	private final Path cacheRoot;
+
+	private final long maxBytes;
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	private final Map<String, CompletableFuture<Boolean>> inFlight = new ConcurrentHashMap<>();
+
+	private final AtomicLong totalBytes = new AtomicLong();
+
+	public ConversionResultCache(UnifiedDirectoryManager directoryManager,
+			@Value("${lynxe.conversionCache.maxSizeMb:1024}") long maxSizeMb) {
+		this.cacheRoot = directoryManager.getWorkingDirectory().resolve(CACHE_DIR);
+		this.maxBytes = maxSizeMb * 1024 * 1024;
+		if (maxBytes > 0) {
+			loadIndex();
+		}
+	}
+
+	/**
+	 * Run a conversion through the cache
+	 * @param sourceFile Source document
+	 * @param converterType Converter name, part of the key
+	 * @param variant Converter settings that change the output, part of the key
+	 * @param additionalRequirement Additional requirement of the conversion, part of the
+	 * key
+	 * @param targetMarkdown Markdown file the conversion writes into the plan directory
+	 * @param assetFolderName Folder next to the Markdown file that the conversion fills
+	 * with referenced files, or null
+	 * @param conversion Conversion to run on a miss
+	 * @return Result of the conversion, or a result describing the restored entry
+	 */
+	public ToolExecuteResult convert(Path sourceFile, String converterType, String variant,
+			String additionalRequirement, Path targetMarkdown, String assetFolderName,
+			Supplier<ToolExecuteResult> conversion) {
+		// An existing result in the plan is reported by the converter itself
+		if (maxBytes <= 0 || Files.exists(targetMarkdown)) {
+			return conversion.get();
+		}
+
+		String key;
+		try {
+			key = computeKey(sourceFile, converterType, variant, additionalRequirement);
+		}
+		catch (IOException e) {
+			log.warn("Failed to hash {} for the conversion cache: {}", sourceFile, e.getMessage());
+			return conversion.get();
+		}
+
+		ToolExecuteResult restored = restore(key, sourceFile, targetMarkdown, assetFolderName);
+		if (restored != null) {
+			return restored;
+		}
+
+		CompletableFuture<Boolean> pending = new CompletableFuture<>();
+		CompletableFuture<Boolean> existing = inFlight.putIfAbsent(key, pending);
+		if (existing != null) {
+			log.info("Waiting for running conversion of the same content: {}", sourceFile.getFileName());
+			try {
+				existing.get();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return new ToolExecuteResult("Error: Interrupted while waiting for conversion of "
+						+ sourceFile.getFileName());
+			}
+			catch (ExecutionException e) {
+				// Never completed exceptionally
+			}
+			if (!Files.exists(targetMarkdown)) {
+				restored = restore(key, sourceFile, targetMarkdown, assetFolderName);
+				if (restored != null) {
+					return restored;
+				}
+			}
+			return conversion.get();
+		}
+
+		boolean stored = false;
+		try {
+			// The entry may have been stored between the first lookup and registration
+			restored = restore(key, sourceFile, targetMarkdown, assetFolderName);
+			if (restored != null) {
+				return restored;
+			}
+			ToolExecuteResult result = conversion.get();
+			if (result != null && result.getOutput() != null && result.getOutput().startsWith(SUCCESS_PREFIX)
+					&& Files.exists(targetMarkdown)) {
+				stored = store(key, targetMarkdown, assetFolderName);
+			}
+			return result;
+		}
+		finally {
+			inFlight.remove(key, pending);
+			pending.complete(stored);
+		}
+	}
+
+	/**
+	 * Number of cached conversions
+	 */
+	public int getEntryCount() {
+		return entries.size();
+	}
+
+	/**
+	 * Total size of the cached conversions in bytes
+	 */
+	public long getTotalBytes() {
+		return totalBytes.get();
+	}
+
+	private ToolExecuteResult restore(String key, Path sourceFile, Path targetMarkdown, String assetFolderName) {
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			return null;
+		}
+		try {
+			String content = Files.readString(entry.dir.resolve(MARKDOWN_FILE));
+			Path cachedAssets = entry.dir.resolve(ASSETS_DIR);
+			if (assetFolderName != null && Files.isDirectory(cachedAssets)) {
+				linkOrCopyTree(cachedAssets, targetMarkdown.resolveSibling(assetFolderName));
+				// Image references are relative to the folder named after the source file
+				if (entry.assetFolderName != null && !entry.assetFolderName.equals(assetFolderName)) {
+					content = content.replace("](" + entry.assetFolderName + "/", "](" + assetFolderName + "/");
+				}
+			}
+			Files.createDirectories(targetMarkdown.getParent());
+			Files.writeString(targetMarkdown, content, StandardCharsets.UTF_8);
+			touch(entry);
+			log.info("Restored cached conversion of {} into {}", sourceFile.getFileName(), targetMarkdown);
+
+			String result = String.format("Successfully converted %s to Markdown (reused cached conversion)\n\n"
+					+ "**Output File**: %s\n\n", sourceFile.getFileName(), targetMarkdown.getFileName());
+			if (content.length() < INLINE_CONTENT_LIMIT) {
+				result += "**Content**:\n\n" + content;
+			}
+			return new ToolExecuteResult(result);
+		}
+		catch (IOException e) {
+			// Evicted concurrently or damaged on disk, convert again
+			log.warn("Failed to restore cached conversion {}: {}", key, e.getMessage());
+			remove(key);
+			return null;
+		}
+	}
+
+	private boolean store(String key, Path markdown, String assetFolderName) {
+		Path tmp = cacheRoot.resolve(key + TMP_MARKER + System.nanoTime());
+		try {
+			Files.createDirectories(tmp);
+			Files.copy(markdown, tmp.resolve(MARKDOWN_FILE));
+			Properties meta = new Properties();
+			if (assetFolderName != null) {
+				Path assets = markdown.resolveSibling(assetFolderName);
+				if (Files.isDirectory(assets)) {
+					linkOrCopyTree(assets, tmp.resolve(ASSETS_DIR));
+					meta.setProperty("assetFolderName", assetFolderName);
+				}
+			}
+			try (Writer writer = Files.newBufferedWriter(tmp.resolve(META_FILE), StandardCharsets.UTF_8)) {
+				meta.store(writer, null);
+			}
+
+			long size = sizeOf(tmp);
+			if (size > maxBytes) {
+				log.info("Conversion result of {} bytes exceeds the cache limit, not cached", size);
+				deleteTree(tmp);
+				return false;
+			}
+			Path dir = cacheRoot.resolve(key);
+			Files.move(tmp, dir, StandardCopyOption.ATOMIC_MOVE);
+			Entry previous = entries.put(key,
+					new Entry(dir, size, meta.getProperty("assetFolderName"), System.currentTimeMillis()));
+			totalBytes.addAndGet(previous == null ? size : size - previous.size);
+			log.info("Cached conversion result {} ({} bytes)", key, size);
+			evict();
+			return true;
+		}
+		catch (IOException e) {
+			log.warn("Failed to cache conversion result {}: {}", key, e.getMessage());
+			deleteTree(tmp);
+			return false;
+		}
+	}
+
+	private synchronized void evict() {
+		if (totalBytes.get() <= maxBytes) {
+			return;
+		}
+		List<Map.Entry<String, Entry>> candidates = new ArrayList<>(entries.entrySet());
+		candidates.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+		Iterator<Map.Entry<String, Entry>> iterator = candidates.iterator();
+		while (totalBytes.get() > maxBytes && iterator.hasNext()) {
+			String key = iterator.next().getKey();
+			log.info("Evicting cached conversion result {}", key);
+			remove(key);
+		}
+	}
+
+	private void remove(String key) {
+		Entry entry = entries.remove(key);
+		if (entry != null) {
+			totalBytes.addAndGet(-entry.size);
+			deleteTree(entry.dir);
+		}
+	}
+
+	private void touch(Entry entry) {
+		long now = System.currentTimeMillis();
+		entry.lastAccess = now;
+		try {
+			Files.setLastModifiedTime(entry.dir, FileTime.fromMillis(now));
+		}
+		catch (IOException e) {
+			log.debug("Failed to update access time of {}: {}", entry.dir, e.getMessage());
+		}
+	}
+
+	private void loadIndex() {
+		try {
+			Files.createDirectories(cacheRoot);
+			try (DirectoryStream<Path> dirs = Files.newDirectoryStream(cacheRoot)) {
+				for (Path dir : dirs) {
+					String name = dir.getFileName().toString();
+					if (name.contains(TMP_MARKER) || !Files.isRegularFile(dir.resolve(MARKDOWN_FILE))) {
+						// Left over from an interrupted store
+						deleteTree(dir);
+						continue;
+					}
+					Properties meta = new Properties();
+					Path metaFile = dir.resolve(META_FILE);
+					if (Files.exists(metaFile)) {
+						try (Reader reader = Files.newBufferedReader(metaFile, StandardCharsets.UTF_8)) {
+							meta.load(reader);
+						}
+					}
+					long size = sizeOf(dir);
+					entries.put(name, new Entry(dir, size, meta.getProperty("assetFolderName"),
+							Files.getLastModifiedTime(dir).toMillis()));
+					totalBytes.addAndGet(size);
+				}
+			}
+			log.info("Loaded {} cached conversion results ({} bytes) from {}", entries.size(), totalBytes.get(),
+					cacheRoot);
+			evict();
+		}
+		catch (IOException e) {
+			log.warn("Failed to load conversion cache from {}: {}", cacheRoot, e.getMessage());
+		}
+	}
+
+	static String computeKey(Path sourceFile, String converterType, String variant, String additionalRequirement)
+			throws IOException {
+		MessageDigest digest = sha256();
+		try (InputStream in = Files.newInputStream(sourceFile)) {
+			byte[] buffer = new byte[64 * 1024];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		}
+		String contentHash = HexFormat.of().formatHex(digest.digest());
+		String keySource = String.join("\n", contentHash, converterType, variant == null ? "" : variant,
+				additionalRequirement == null ? "" : additionalRequirement.trim());
+		return HexFormat.of().formatHex(sha256().digest(keySource.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not available", e);
+		}
+	}
+
+	private static void linkOrCopyTree(Path source, Path target) throws IOException {
+		try (Stream<Path> paths = Files.walk(source)) {
+			for (Path path : (Iterable<Path>) paths::iterator) {
+				Path destination = target.resolve(source.relativize(path).toString());
+				if (Files.isDirectory(path)) {
+					Files.createDirectories(destination);
+				}
+				else if (!Files.exists(destination)) {
+					try {
+						Files.createLink(destination, path);
+					}
+					catch (IOException | UnsupportedOperationException e) {
+						Files.copy(path, destination);
+					}
+				}
+			}
+		}
+	}
+
+	private static long sizeOf(Path dir) throws IOException {
+		try (Stream<Path> paths = Files.walk(dir)) {
+			return paths.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+		}
+	}
+
+	private static void deleteTree(Path dir) {
+		if (!Files.exists(dir)) {
+			return;
+		}
+		try (Stream<Path> paths = Files.walk(dir)) {
+			for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+				Files.deleteIfExists(path);
+			}
+		}
+		catch (IOException e) {
+			log.warn("Failed to delete {}: {}", dir, e.getMessage());
+		}
+	}
+
+	private static final class Entry {
+
+		private final Path dir;
+
+		private final long size;
+
+		private final String assetFolderName;
+
+		private volatile long lastAccess;
+
+		private Entry(Path dir, long size, String assetFolderName, long lastAccess) {
+			this.dir = dir;
+			this.size = size;
+			this.assetFolderName = assetFolderName;
+			this.lastAccess = lastAccess;
+		}
+
+	}
+
+}
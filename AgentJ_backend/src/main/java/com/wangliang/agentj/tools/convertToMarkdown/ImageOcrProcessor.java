@@ -22,20 +22,13 @@ import com.wangliang.agentj.tools.code.ToolExecuteResult;
 import com.wangliang.agentj.tools.filesystem.UnifiedDirectoryManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.prompt.ChatOptions;
-import org.springframework.core.io.InputStreamResource;
-import org.springframework.util.MimeTypeUtils;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
 
 /**
  * Image OCR Processor using OpenAI Image Model
@@ -96,28 +89,19 @@ public class ImageOcrProcessor {
 				return new ToolExecuteResult("Error: Could not load image file or unsupported format");
 			}
 
-			// Step 3: Process image with OCR using executor pool
-			String extractedText;
-			if (imageRecognitionExecutorPool != null) {
-				CompletableFuture<String> ocrTask = imageRecognitionExecutorPool.submitTask(() -> {
-					log.info("Processing image with OCR");
-					return processImageWithOcrWithRetry(image, 1, additionalRequirement);
-				});
-
-				try {
-					extractedText = ocrTask.get();
-				}
-				catch (InterruptedException | ExecutionException e) {
-					log.error("Error processing image with OCR: {}", e.getMessage());
-					return new ToolExecuteResult("Error: OCR processing failed - " + e.getMessage());
-				}
+			// Step 3: Process image with OCR through the shared pipeline
+			String[] pageTexts = new String[1];
+			try {
+				log.info("Processing image with OCR");
+				newPipeline().process(1, pageIndex -> image, additionalRequirement,
+						(pageNumber, pageText) -> pageTexts[0] = pageText);
 			}
-			else {
-				// Throw exception if executor pool is not available
-				String errorMessage = "ImageRecognitionExecutorPool not available - OCR processing cannot continue";
-				log.error(errorMessage);
-				throw new IllegalStateException(errorMessage);
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				log.error("Error processing image with OCR: {}", e.getMessage());
+				return new ToolExecuteResult("Error: OCR processing failed - " + e.getMessage());
 			}
+			String extractedText = pageTexts[0];
 
 			if (extractedText == null || extractedText.trim().isEmpty()) {
 				return new ToolExecuteResult("Error: No text could be extracted from the image using OCR");
@@ -203,120 +187,22 @@ public class ImageOcrProcessor {
 	}
 
 	/**
-	 * Process a single image with OCR using ChatClient with retry mechanism
-	 * @param image The BufferedImage to process
-	 * @param imageNumber The image number for logging
-	 * @param additionalRequirement Optional additional requirements for OCR processing
-	 * @return Extracted text or null if failed
+	 * Create an OCR pipeline with the current configuration. A single image never fills
+	 * a batch, so batching stays off.
 	 */
-	private String processImageWithOcrWithRetry(BufferedImage image, int imageNumber, String additionalRequirement) {
-		int maxRetryAttempts = getConfiguredMaxRetryAttempts();
-
-		for (int attempt = 1; attempt <= maxRetryAttempts; attempt++) {
-			try {
-				log.debug("OCR attempt {} of {} for image {}", attempt, maxRetryAttempts, imageNumber);
-				String result = processImageWithOcr(image, imageNumber, additionalRequirement);
-
-				if (result != null && !result.trim().isEmpty()) {
-					if (attempt > 1) {
-						log.info("OCR succeeded on attempt {} for image {}", attempt, imageNumber);
-					}
-					return result;
-				}
-
-				log.warn("OCR attempt {} failed for image {} - empty result", attempt, imageNumber);
-
-			}
-			catch (Exception e) {
-				log.warn("OCR attempt {} failed for image {}: {}", attempt, imageNumber, e.getMessage());
-
-				// If this is the last attempt, log the error
-				if (attempt == maxRetryAttempts) {
-					log.error("All {} OCR attempts failed for image {}", maxRetryAttempts, imageNumber, e);
-				}
-			}
-
-			// Add a small delay between retry attempts (except for the last attempt)
-			if (attempt < maxRetryAttempts) {
-				try {
-					Thread.sleep(1000); // 1 second delay between retries
-				}
-				catch (InterruptedException e) {
-					Thread.currentThread().interrupt();
-					log.warn("OCR retry interrupted for image {}", imageNumber);
-					break;
-				}
-			}
+	private OcrPipeline newPipeline() {
+		if (imageRecognitionExecutorPool == null) {
+			// Throw exception if executor pool is not available
+			String errorMessage = "ImageRecognitionExecutorPool not available - OCR processing cannot continue";
+			log.error(errorMessage);
+			throw new IllegalStateException(errorMessage);
 		}
-
-		log.error("All OCR attempts failed for image {}", imageNumber);
-		return null;
-	}
-
-	/**
-	 * Process a single image with OCR using ChatClient
-	 * @param image The BufferedImage to process
-	 * @param imageNumber The image number for logging
-	 * @param additionalRequirement Optional additional requirements for OCR processing
-	 * @return Extracted text or null if failed
-	 */
-	private String processImageWithOcr(BufferedImage image, int imageNumber, String additionalRequirement) {
 		if (llmService == null) {
-			log.error("LlmService is not initialized, cannot perform OCR");
-			return null;
-		}
-
-		try {
-			// Convert BufferedImage to InputStream for ChatClient using configured format
-			ByteArrayOutputStream baos = new ByteArrayOutputStream();
-			ImageIO.write(image, imageFormatName, baos);
-			byte[] imageBytes = baos.toByteArray();
-
-			// Create InputStream from byte array
-			java.io.InputStream imageInputStream = new java.io.ByteArrayInputStream(imageBytes);
-
-			log.debug("Processing image for OCR ({} bytes, format: {})", imageBytes.length, imageFormatName);
-
-			// Get the ChatClient from LlmService
-			ChatClient chatClient = llmService.getDefaultDynamicAgentChatClient();
-			// Use configured model name from LynxeProperties
-			String modelName = getConfiguredModelName();
-			ChatOptions chatOptions = ChatOptions.builder().model(modelName).build();
-
-			// Use ChatClient to process the image with OCR
-			// Include additional requirements in the system message if provided
-			String extractedText = chatClient.prompt().options(chatOptions).system(systemMessage -> {
-				systemMessage.text("You are an OCR (Optical Character Recognition) specialist.");
-				systemMessage.text("Extract all visible text content from the provided image.");
-				systemMessage.text("Return only the extracted text without any additional formatting or descriptions.");
-				systemMessage.text("Preserve the structure and layout of the text as much as possible.");
-				systemMessage.text("Focus on accurate text recognition and maintain readability.");
-				if (additionalRequirement != null && !additionalRequirement.trim().isEmpty()) {
-					systemMessage.text("Additional requirements: " + additionalRequirement);
-				}
-				systemMessage.text("If no text is visible in the image, return ''(empty string) ");
-			})
-				.user(userMessage -> userMessage.text("Please extract all text content from this image:")
-					.media(MimeTypeUtils.parseMimeType("image/" + imageFormatName.toLowerCase()),
-							new InputStreamResource(imageInputStream)))
-				.call()
-				.content();
-
-			if (extractedText != null && !extractedText.trim().isEmpty()
-					&& !extractedText.toLowerCase().contains("no text detected")) {
-				log.debug("Successfully extracted text from image with OCR: {} characters", extractedText.length());
-				return extractedText;
-			}
-			else {
-				log.warn("No text extracted from image - empty or no text response");
-				return null;
-			}
-
-		}
-		catch (Exception e) {
-			log.error("Error processing image with OCR using ChatClient: {}", e.getMessage(), e);
-			return null;
+			throw new IllegalStateException("LlmService is not initialized, cannot perform OCR");
 		}
+		return new OcrPipeline(imageRecognitionExecutorPool, llmService.getCallScheduler(),
+				new ChatClientOcrModel(llmService, getConfiguredModelName()),
+				new OcrPipeline.Settings(imageFormatName, getConfiguredMaxRetryAttempts(), 1, 0));
 	}
 
 	/**
@@ -438,6 +324,13 @@ public class ImageOcrProcessor {
 		return originalImage;
 	}
 
+	/**
+	 * Settings that change the OCR output, used as part of conversion cache keys
+	 */
+	public String getCacheVariant() {
+		return "model=" + getConfiguredModelName();
+	}
+
 	/**
 	 * Get configured model name from LynxeProperties
 	 * @return configured model name or default value
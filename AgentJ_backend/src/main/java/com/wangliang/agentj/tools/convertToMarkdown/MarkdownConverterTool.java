@@ -27,6 +27,7 @@ import org.slf4j.LoggerFactory;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.function.Supplier;
 
 /**
  * Markdown Converter Tool - Converts various file types to Markdown format
@@ -53,15 +54,25 @@ public class MarkdownConverterTool extends AbstractBaseTool<MarkdownConverterToo
 
 	private final ToolI18nService toolI18nService;
 
+	private final ConversionResultCache conversionCache;
+
 	public MarkdownConverterTool(UnifiedDirectoryManager directoryManager, PdfOcrProcessor ocrProcessor,
 			ImageOcrProcessor imageOcrProcessor, IExcelProcessingService excelProcessingService,
 			ObjectMapper objectMapper, ToolI18nService toolI18nService) {
+		this(directoryManager, ocrProcessor, imageOcrProcessor, excelProcessingService, objectMapper,
+				toolI18nService, null);
+	}
+
+	public MarkdownConverterTool(UnifiedDirectoryManager directoryManager, PdfOcrProcessor ocrProcessor,
+			ImageOcrProcessor imageOcrProcessor, IExcelProcessingService excelProcessingService,
+			ObjectMapper objectMapper, ToolI18nService toolI18nService, ConversionResultCache conversionCache) {
 		this.directoryManager = directoryManager;
 		this.ocrProcessor = ocrProcessor;
 		this.imageOcrProcessor = imageOcrProcessor;
 		this.excelProcessingService = excelProcessingService;
 		this.objectMapper = objectMapper;
 		this.toolI18nService = toolI18nService;
+		this.conversionCache = conversionCache;
 	}
 
 	/**
@@ -133,13 +144,23 @@ public class MarkdownConverterTool extends AbstractBaseTool<MarkdownConverterToo
 						+ ". Please ensure the file exists in the root plan directory (rootPlanId/).");
 			}
 
-			// Step 4: Dispatch to appropriate processor
+			// Step 4: Dispatch to appropriate processor, reusing earlier conversions of the
+			// same content where possible
 			String ext = extension.toLowerCase().substring(1);
+			boolean forceLlm = forceLlmForPdf != null && forceLlmForPdf;
 			return switch (ext) {
-				case "doc", "docx" -> processWordToMarkdown(sourceFile, additionalRequirement);
-				case "xlsx", "xls" -> processExcelToMarkdown(sourceFile, additionalRequirement);
-				case "pdf" -> processPdfToMarkdown(sourceFile, additionalRequirement, forceLlmForPdf);
-				case "jpg", "jpeg", "png", "gif" -> processImageToMarkdown(sourceFile, additionalRequirement);
+				case "doc", "docx" -> convertWithCache(sourceFile, "word", "", additionalRequirement,
+						getBaseName(sourceFile.getFileName().toString()),
+						() -> processWordToMarkdown(sourceFile, additionalRequirement));
+				case "xlsx", "xls" -> convertWithCache(sourceFile, "excel", "", additionalRequirement, null,
+						() -> processExcelToMarkdown(sourceFile, additionalRequirement));
+				case "pdf" -> convertWithCache(sourceFile, "pdf",
+						"forceLlm=" + forceLlm + ";" + (ocrProcessor != null ? ocrProcessor.getCacheVariant() : ""),
+						additionalRequirement, null,
+						() -> processPdfToMarkdown(sourceFile, additionalRequirement, forceLlmForPdf));
+				case "jpg", "jpeg", "png", "gif" -> convertWithCache(sourceFile, "image",
+						imageOcrProcessor != null ? imageOcrProcessor.getCacheVariant() : "", additionalRequirement,
+						null, () -> processImageToMarkdown(sourceFile, additionalRequirement));
 				case "txt", "md", "json", "xml", "yaml", "yml", "log", "java", "py", "js", "html", "css" ->
 					processTextToMarkdown(sourceFile, additionalRequirement);
 				default -> new ToolExecuteResult("Error: Unsupported file type: " + extension
@@ -153,6 +174,23 @@ public class MarkdownConverterTool extends AbstractBaseTool<MarkdownConverterToo
 		}
 	}
 
+	/**
+	 * Run a conversion through the shared conversion cache, which restores the result of
+	 * an earlier conversion of the same content and settings instead of converting again
+	 * @param assetFolderName Folder next to the Markdown file holding extracted images,
+	 * or null
+	 */
+	private ToolExecuteResult convertWithCache(Path sourceFile, String converterType, String variant,
+			String additionalRequirement, String assetFolderName, Supplier<ToolExecuteResult> conversion) {
+		if (conversionCache == null) {
+			return conversion.get();
+		}
+		Path targetMarkdown = directoryManager.getRootPlanDirectory(rootPlanId)
+			.resolve(generateMarkdownFilename(sourceFile.getFileName().toString()));
+		return conversionCache.convert(sourceFile, converterType, variant, additionalRequirement, targetMarkdown,
+				assetFolderName, conversion);
+	}
+
 	/**
 	 * Process Word documents to Markdown
 	 */
@@ -327,6 +365,14 @@ public class MarkdownConverterTool extends AbstractBaseTool<MarkdownConverterToo
 		return lastDotIndex > 0 ? fileName.substring(lastDotIndex) : "";
 	}
 
+	/**
+	 * Get file name without extension
+	 */
+	private String getBaseName(String fileName) {
+		int lastDotIndex = fileName.lastIndexOf('.');
+		return lastDotIndex > 0 ? fileName.substring(0, lastDotIndex) : fileName;
+	}
+
 	/**
 	 * Generate markdown filename by replacing extension with .md
 	 */
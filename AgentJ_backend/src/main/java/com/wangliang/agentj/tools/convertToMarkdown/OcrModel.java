@@ -0,0 +1,53 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.tools.convertToMarkdown;
+
+import org.springframework.ai.chat.metadata.RateLimit;
+import org.springframework.util.MimeType;
+
+import java.util.List;
+
+/**
+ * Vision model that reads text from images, called by {@link OcrPipeline}
+ */
+public interface OcrModel {
+
+	/**
+	 * Model name, also used as the {@code LlmCallScheduler} limiter key
+	 */
+	String modelName();
+
+	/**
+	 * Send one request with all given images attached in order
+	 * @param systemText System prompt
+	 * @param userText User prompt
+	 * @param images Encoded images
+	 * @param mimeType Mime type of the images
+	 * @return Reply text and reported usage
+	 * @throws Exception If the request fails
+	 */
+	Reply recognize(String systemText, String userText, List<byte[]> images, MimeType mimeType) throws Exception;
+
+	/**
+	 * @param text Reply text, may be null
+	 * @param promptTokens Reported prompt tokens, 0 if unknown
+	 * @param completionTokens Reported completion tokens, 0 if unknown
+	 * @param rateLimit Provider rate-limit metadata, may be null
+	 */
+	record Reply(String text, long promptTokens, long completionTokens, RateLimit rateLimit) {
+	}
+
+}
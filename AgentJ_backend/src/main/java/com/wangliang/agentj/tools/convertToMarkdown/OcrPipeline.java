@@ -0,0 +1,538 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.tools.convertToMarkdown;
+
+import com.wangliang.agentj.llm.LlmCallScheduler;
+import com.wangliang.agentj.runtime.executor.ImageRecognitionExecutorPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Pipelined OCR of a sequence of pages.
+ *
+ * Pages are rendered and encoded on the {@link ImageRecognitionExecutorPool} workers while
+ * earlier pages are being recognized, so request threads only wait on the provider. At
+ * most two pages per worker are buffered ahead of the requests. Requests are admitted by
+ * the {@link LlmCallScheduler} limiter of the OCR model, which adapts their concurrency
+ * to the provider's latency and 429 responses.
+ * <p>
+ * With a batch size above 1, consecutive small pages are packed into one multi-image
+ * request whose reply separates the pages with markers. A batch whose reply cannot be
+ * split, or whose request fails for a reason other than throttling, is retried page by
+ * page. Every page is handed to the {@link PageListener} as soon as its text arrives.
+ */
+public class OcrPipeline {
+
+	private static final Logger log = LoggerFactory.getLogger(OcrPipeline.class);
+
+	private static final Pattern PAGE_MARKER = Pattern.compile("^[ \\t]*<<<PAGE (\\d+)>>>[ \\t]*$",
+			Pattern.MULTILINE);
+
+	/**
+	 * How long the dispatcher waits for another small page to join a batch
+	 */
+	private static final long BATCH_LINGER_MS = 50;
+
+	private static final long RETRY_DELAY_MS = 1000;
+
+	/**
+	 * Prompt tokens charged per image on admission, reconciled with the reported usage
+	 */
+	private static final long TOKENS_PER_IMAGE_ESTIMATE = 1000;
+
+	private final ImageRecognitionExecutorPool executorPool;
+
+	private final LlmCallScheduler callScheduler;
+
+	private final OcrModel model;
+
+	private final Settings settings;
+
+	public OcrPipeline(ImageRecognitionExecutorPool executorPool, LlmCallScheduler callScheduler, OcrModel model,
+			Settings settings) {
+		this.executorPool = executorPool;
+		this.callScheduler = callScheduler;
+		this.model = model;
+		this.settings = settings;
+	}
+
+	/**
+	 * Recognize all pages and wait until every page has been reported
+	 * @param pageCount Number of pages
+	 * @param source Renders a page by 0-based index; called on pool workers
+	 * @param additionalRequirement Optional additional requirements for OCR processing
+	 * @param listener Receives each page as it finishes, from request threads
+	 * @return Throughput and token usage of the run
+	 * @throws InterruptedException If interrupted while waiting; pending requests are
+	 * not retried afterwards
+	 */
+	public Stats process(int pageCount, PageSource source, String additionalRequirement, PageListener listener)
+			throws InterruptedException {
+		Run run = new Run(pageCount, source, additionalRequirement, listener);
+		try {
+			run.dispatch();
+			run.remaining.await();
+		}
+		catch (InterruptedException e) {
+			run.cancelled = true;
+			throw e;
+		}
+		Stats stats = run.stats();
+		log.info("OCR with model {} finished: {}", model.modelName(), stats);
+		return stats;
+	}
+
+	/**
+	 * @param imageFormatName ImageIO format pages are encoded in
+	 * @param maxRetryAttempts Attempts per page (or batch) before it is given up
+	 * @param batchSize Maximum pages per request, 1 sends every page alone
+	 * @param batchImageMaxBytes Encoded pages larger than this are always sent alone
+	 */
+	public record Settings(String imageFormatName, int maxRetryAttempts, int batchSize, int batchImageMaxBytes) {
+	}
+
+	/**
+	 * Renders one page; a null image or an exception marks the page as failed
+	 */
+	@FunctionalInterface
+	public interface PageSource {
+
+		BufferedImage render(int pageIndex) throws Exception;
+
+	}
+
+	@FunctionalInterface
+	public interface PageListener {
+
+		/**
+		 * @param pageNumber 1-based page number
+		 * @param text Extracted text, or null if the page failed or has no text
+		 */
+		void onPage(int pageNumber, String text);
+
+	}
+
+	/**
+	 * Outcome of one run; tokens are the cost measure
+	 * @param pages Pages submitted
+	 * @param recognizedPages Pages with extracted text
+	 * @param requests Model requests sent, including retries
+	 * @param failedRequests Requests that failed
+	 * @param promptTokens Reported prompt tokens
+	 * @param completionTokens Reported completion tokens
+	 * @param elapsedNanos Wall time of the run
+	 */
+	public record Stats(int pages, int recognizedPages, int requests, int failedRequests, long promptTokens,
+			long completionTokens, long elapsedNanos) {
+
+		public double pagesPerSecond() {
+			return elapsedNanos > 0 ? pages * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos : 0;
+		}
+
+		public double tokensPerPage() {
+			return pages > 0 ? (promptTokens + completionTokens) / (double) pages : 0;
+		}
+
+		public double requestsPerPage() {
+			return pages > 0 ? requests / (double) pages : 0;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d of %d pages in %.1f s (%.2f pages/s), %d requests (%d failed), %.0f tokens per page",
+					recognizedPages, pages, elapsedNanos / 1e9, pagesPerSecond(), requests, failedRequests,
+					tokensPerPage());
+		}
+
+	}
+
+	private record EncodedPage(int pageNumber, byte[] bytes) {
+	}
+
+	private class Run {
+
+		private final int pageCount;
+
+		private final PageSource source;
+
+		private final String additionalRequirement;
+
+		private final PageListener listener;
+
+		private final MimeType mimeType;
+
+		private final long startNanos = System.nanoTime();
+
+		private final CountDownLatch remaining;
+
+		private final BlockingQueue<EncodedPage> ready = new LinkedBlockingQueue<>();
+
+		private final AtomicInteger recognizedPages = new AtomicInteger();
+
+		private final AtomicInteger requests = new AtomicInteger();
+
+		private final AtomicInteger failedRequests = new AtomicInteger();
+
+		private final AtomicLong promptTokens = new AtomicLong();
+
+		private final AtomicLong completionTokens = new AtomicLong();
+
+		private volatile boolean cancelled;
+
+		// Dispatcher state, only touched by the calling thread
+		private int nextToEncode;
+
+		private int encoding;
+
+		private int received;
+
+		Run(int pageCount, PageSource source, String additionalRequirement, PageListener listener) {
+			this.pageCount = pageCount;
+			this.source = source;
+			this.additionalRequirement = additionalRequirement;
+			this.listener = listener;
+			this.mimeType = MimeTypeUtils.parseMimeType("image/" + settings.imageFormatName().toLowerCase());
+			this.remaining = new CountDownLatch(pageCount);
+		}
+
+		/**
+		 * Hand encoded pages to requests in page order as they become ready. Blocks on the
+		 * model's limiter, which holds back encoding as well once the buffer is full.
+		 */
+		void dispatch() throws InterruptedException {
+			int batchSize = Math.max(1, settings.batchSize());
+			int buffered = Math.max(2 * Math.max(1, executorPool.getCurrentPoolSize()), 2 * batchSize);
+			EncodedPage carried = null;
+			while (received < pageCount || carried != null) {
+				encodeAhead(buffered);
+				EncodedPage first = carried != null ? carried : take();
+				carried = null;
+				if (first.bytes() == null) {
+					deliver(first.pageNumber(), null);
+					continue;
+				}
+
+				List<EncodedPage> batch = new ArrayList<>(batchSize);
+				batch.add(first);
+				if (batchSize > 1 && isSmall(first)) {
+					while (batch.size() < batchSize && received < pageCount) {
+						encodeAhead(buffered);
+						EncodedPage next = ready.poll(BATCH_LINGER_MS, TimeUnit.MILLISECONDS);
+						if (next == null) {
+							break;
+						}
+						encoding--;
+						received++;
+						if (next.bytes() == null) {
+							deliver(next.pageNumber(), null);
+						}
+						else if (isSmall(next)) {
+							batch.add(next);
+						}
+						else {
+							carried = next;
+							break;
+						}
+					}
+				}
+
+				LlmCallScheduler.Permit permit = callScheduler.acquire(model.modelName(), 0,
+						batch.size() * TOKENS_PER_IMAGE_ESTIMATE);
+				executorPool.submitRequest(() -> recognize(batch, permit));
+			}
+		}
+
+		private EncodedPage take() throws InterruptedException {
+			EncodedPage page = ready.take();
+			encoding--;
+			received++;
+			return page;
+		}
+
+		private void encodeAhead(int buffered) {
+			while (nextToEncode < pageCount && encoding < buffered) {
+				int pageIndex = nextToEncode++;
+				encoding++;
+				executorPool.submitTask(() -> {
+					byte[] bytes = null;
+					try {
+						bytes = renderAndEncode(pageIndex);
+					}
+					finally {
+						ready.add(new EncodedPage(pageIndex + 1, bytes));
+					}
+				});
+			}
+		}
+
+		private byte[] renderAndEncode(int pageIndex) {
+			if (cancelled) {
+				return null;
+			}
+			try {
+				BufferedImage image = source.render(pageIndex);
+				return image != null ? encode(image) : null;
+			}
+			catch (Exception e) {
+				log.error("Error preparing page {} for OCR: {}", pageIndex + 1, e.getMessage(), e);
+				return null;
+			}
+		}
+
+		private byte[] encode(BufferedImage image) throws IOException {
+			BufferedImage target = image;
+			if (image.getColorModel().hasAlpha() && "jpeg".equalsIgnoreCase(settings.imageFormatName())) {
+				// JPEG has no alpha channel; flatten onto white
+				target = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+				Graphics2D g2d = target.createGraphics();
+				g2d.drawImage(image, 0, 0, Color.WHITE, null);
+				g2d.dispose();
+			}
+			ByteArrayOutputStream baos = new ByteArrayOutputStream(64 * 1024);
+			if (!ImageIO.write(target, settings.imageFormatName(), baos)) {
+				throw new IOException("No image writer for format " + settings.imageFormatName());
+			}
+			return baos.toByteArray();
+		}
+
+		private boolean isSmall(EncodedPage page) {
+			return page.bytes().length <= settings.batchImageMaxBytes();
+		}
+
+		/**
+		 * Run a request with retries on a request thread. Every page is delivered exactly
+		 * once, either here or by the per-page requests a failed batch is split into.
+		 * @param permit Admission for the first attempt
+		 */
+		private void recognize(List<EncodedPage> pages, LlmCallScheduler.Permit permit) {
+			boolean handedOff = false;
+			try {
+				int maxRetryAttempts = Math.max(1, settings.maxRetryAttempts());
+				for (int attempt = 1; attempt <= maxRetryAttempts && !cancelled; attempt++) {
+					if (permit == null) {
+						permit = callScheduler.acquire(model.modelName(), 0, pages.size() * TOKENS_PER_IMAGE_ESTIMATE);
+					}
+					OcrModel.Reply reply;
+					requests.incrementAndGet();
+					try {
+						reply = model.recognize(systemPrompt(pages.size()), userPrompt(pages.size()), images(pages),
+								mimeType);
+						permit.complete(reply.promptTokens(), reply.completionTokens(), reply.rateLimit());
+					}
+					catch (Exception e) {
+						permit.fail(e);
+						failedRequests.incrementAndGet();
+						boolean throttled = LlmCallScheduler.isRateLimitError(e);
+						if (pages.size() > 1 && !throttled) {
+							log.warn("OCR of pages {} failed, retrying page by page: {}", pageNumbers(pages),
+									e.getMessage());
+							splitUp(pages);
+							handedOff = true;
+							return;
+						}
+						log.warn("OCR attempt {} of {} failed for page(s) {}: {}", attempt, maxRetryAttempts,
+								pageNumbers(pages), e.getMessage());
+						permit = null;
+						// The limiter already holds back throttled calls for its cooldown
+						if (!throttled && attempt < maxRetryAttempts) {
+							Thread.sleep(RETRY_DELAY_MS);
+						}
+						continue;
+					}
+					permit = null;
+					promptTokens.addAndGet(reply.promptTokens());
+					completionTokens.addAndGet(reply.completionTokens());
+
+					if (pages.size() > 1) {
+						List<String> texts = splitReply(reply.text(), pages.size());
+						if (texts == null) {
+							log.warn("OCR reply for pages {} could not be split, retrying page by page",
+									pageNumbers(pages));
+							splitUp(pages);
+						}
+						else {
+							for (int i = 0; i < pages.size(); i++) {
+								String text = texts.get(i);
+								deliver(pages.get(i).pageNumber(), hasText(text) ? text : null);
+							}
+						}
+						handedOff = true;
+						return;
+					}
+
+					if (hasText(reply.text())) {
+						if (attempt > 1) {
+							log.info("OCR succeeded on attempt {} for page {}", attempt, pages.get(0).pageNumber());
+						}
+						deliver(pages.get(0).pageNumber(), reply.text());
+						handedOff = true;
+						return;
+					}
+					log.warn("OCR attempt {} failed for page {} - empty result", attempt, pages.get(0).pageNumber());
+					if (attempt < maxRetryAttempts) {
+						Thread.sleep(RETRY_DELAY_MS);
+					}
+				}
+				log.error("All OCR attempts failed for page(s) {}", pageNumbers(pages));
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				log.warn("OCR interrupted for page(s) {}", pageNumbers(pages));
+			}
+			catch (RuntimeException e) {
+				log.error("Error processing page(s) {} with OCR: {}", pageNumbers(pages), e.getMessage(), e);
+			}
+			finally {
+				if (permit != null) {
+					permit.fail(null);
+				}
+				if (!handedOff) {
+					pages.forEach(page -> deliver(page.pageNumber(), null));
+				}
+			}
+		}
+
+		private void splitUp(List<EncodedPage> pages) {
+			for (EncodedPage page : pages) {
+				executorPool.submitRequest(() -> recognize(List.of(page), null));
+			}
+		}
+
+		private void deliver(int pageNumber, String text) {
+			if (text != null) {
+				recognizedPages.incrementAndGet();
+			}
+			try {
+				listener.onPage(pageNumber, text);
+			}
+			catch (RuntimeException e) {
+				log.warn("OCR page listener failed for page {}: {}", pageNumber, e.getMessage(), e);
+			}
+			finally {
+				remaining.countDown();
+			}
+		}
+
+		private String systemPrompt(int imageCount) {
+			StringBuilder prompt = new StringBuilder();
+			prompt.append("You are an OCR (Optical Character Recognition) specialist.\n");
+			if (imageCount > 1) {
+				prompt.append("You will receive ")
+					.append(imageCount)
+					.append(" images, each one page of the same document, in order.\n");
+				prompt.append("Extract all visible text content from each image.\n");
+				prompt.append("Start the text of image k with a line containing only <<<PAGE k>>>, for k from 1 to ")
+					.append(imageCount)
+					.append(". Output every marker, also for images without text.\n");
+			}
+			else {
+				prompt.append("Extract all visible text content from the provided image.\n");
+			}
+			prompt.append("Return only the extracted text without any additional formatting or descriptions.\n");
+			prompt.append("Preserve the structure and layout of the text as much as possible.\n");
+			prompt.append("Focus on accurate text recognition and maintain readability.\n");
+			if (additionalRequirement != null && !additionalRequirement.trim().isEmpty()) {
+				prompt.append("Additional requirements: ").append(additionalRequirement).append('\n');
+			}
+			prompt.append("If no text is visible in an image, return ''(empty string) for it.");
+			return prompt.toString();
+		}
+
+		private String userPrompt(int imageCount) {
+			return imageCount > 1 ? "Please extract all text content from these " + imageCount + " images:"
+					: "Please extract all text content from this image:";
+		}
+
+		Stats stats() {
+			return new Stats(pageCount, recognizedPages.get(), requests.get(), failedRequests.get(),
+					promptTokens.get(), completionTokens.get(), System.nanoTime() - startNanos);
+		}
+
+	}
+
+	/**
+	 * Split a multi-image reply at its page markers
+	 * @return One text per image, or null unless every marker from 1 to imageCount
+	 * appears exactly once
+	 */
+	static List<String> splitReply(String reply, int imageCount) {
+		if (reply == null) {
+			return null;
+		}
+		TreeMap<Integer, String> sections = new TreeMap<>();
+		Matcher matcher = PAGE_MARKER.matcher(reply);
+		int number = -1;
+		int start = -1;
+		while (matcher.find()) {
+			if (number > 0 && sections.put(number, reply.substring(start, matcher.start()).strip()) != null) {
+				return null;
+			}
+			number = Integer.parseInt(matcher.group(1));
+			start = matcher.end();
+		}
+		if (number > 0 && sections.put(number, reply.substring(start).strip()) != null) {
+			return null;
+		}
+		if (sections.size() != imageCount || sections.firstKey() != 1 || sections.lastKey() != imageCount) {
+			return null;
+		}
+		return new ArrayList<>(sections.values());
+	}
+
+	private static boolean hasText(String text) {
+		return text != null && !text.trim().isEmpty() && !text.toLowerCase().contains("no text detected");
+	}
+
+	private static List<byte[]> images(List<EncodedPage> pages) {
+		List<byte[]> images = new ArrayList<>(pages.size());
+		for (EncodedPage page : pages) {
+			images.add(page.bytes());
+		}
+		return images;
+	}
+
+	private static String pageNumbers(List<EncodedPage> pages) {
+		StringBuilder numbers = new StringBuilder();
+		for (EncodedPage page : pages) {
+			if (!numbers.isEmpty()) {
+				numbers.append(',');
+			}
+			numbers.append(page.pageNumber());
+		}
+		return numbers.toString();
+	}
+
+}
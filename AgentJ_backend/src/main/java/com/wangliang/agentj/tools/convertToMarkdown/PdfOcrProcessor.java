@@ -25,23 +25,14 @@ import org.apache.pdfbox.rendering.ImageType;
 import org.apache.pdfbox.rendering.PDFRenderer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.prompt.ChatOptions;
-import org.springframework.core.io.InputStreamResource;
-import org.springframework.util.MimeTypeUtils;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
 
 /**
  * PDF OCR Processor using OpenAI Image Model
@@ -99,52 +90,43 @@ public class PdfOcrProcessor {
 				return new ToolExecuteResult("Skipped OCR processing - result file already exists: " + ocrFilename);
 			}
 
-			// Step 2: Convert PDF pages to images
-			List<BufferedImage> pageImages = convertPdfToImages(sourceFile);
-			if (pageImages.isEmpty()) {
+			// Step 2: Render, encode and recognize the pages in one pipeline
+			String[] pageTexts;
+			try (PDDocument document = PDDocument.load(sourceFile.toFile())) {
+				int pageCount = document.getNumberOfPages();
+				if (pageCount == 0) {
+					return new ToolExecuteResult("Error: Could not convert PDF pages to images");
+				}
+				log.info("Running OCR on {} pages", pageCount);
+				// Create temp folder if image saving is enabled
+				Path tempFolder = saveImagesToTempFolder ? createTempImageFolder(originalFilename) : null;
+				pageTexts = new String[pageCount];
+				newPipeline().process(pageCount, pageIndex -> renderPage(document, pageIndex, tempFolder),
+						additionalRequirement, (pageNumber, pageText) -> {
+							pageTexts[pageNumber - 1] = pageText;
+							log.debug("OCR finished page {} of {}", pageNumber, pageCount);
+						});
+				if (tempFolder != null) {
+					log.info("All converted images saved to temp folder: {}", tempFolder);
+				}
+			}
+			catch (IOException e) {
+				log.error("Error converting PDF to images: {}", e.getMessage(), e);
 				return new ToolExecuteResult("Error: Could not convert PDF pages to images");
 			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return new ToolExecuteResult("Error: OCR processing was interrupted");
+			}
 
-			// Step 3: Process each page with OCR using parallel execution
+			// Step 3: Join the page texts in page order
 			StringBuilder extractedText = new StringBuilder();
-
 			int processedPages = 0;
-			List<CompletableFuture<String>> ocrTasks = new ArrayList<>();
-
-			// Submit all OCR tasks to the dedicated executor pool
-			if (imageRecognitionExecutorPool != null) {
-				for (int i = 0; i < pageImages.size(); i++) {
-					final int pageIndex = i;
-					final BufferedImage pageImage = pageImages.get(i);
-
-					CompletableFuture<String> ocrTask = imageRecognitionExecutorPool.submitTask(() -> {
-						log.info("Processing page {} of {} with OCR", pageIndex + 1, pageImages.size());
-						return processImageWithOcrWithRetry(pageImage, pageIndex + 1, additionalRequirement);
-					});
-
-					ocrTasks.add(ocrTask);
-				}
-			}
-			else {
-				// Throw exception if executor pool is not available
-				String errorMessage = "ImageRecognitionExecutorPool not available - OCR processing cannot continue";
-				log.error(errorMessage);
-				throw new IllegalStateException(errorMessage);
-			}
-
-			// Wait for all OCR tasks to complete
-			for (int i = 0; i < ocrTasks.size(); i++) {
-				try {
-					String pageText = ocrTasks.get(i).get();
-					if (pageText != null && !pageText.trim().isEmpty()) {
-						extractedText.append("## Page ").append(i + 1).append("\n\n");
-						extractedText.append(pageText).append("\n\n");
-						processedPages++;
-					}
-				}
-				catch (InterruptedException | ExecutionException e) {
-					log.error("Error processing page {} with OCR: {}", i + 1, e.getMessage());
-					// Continue with next page instead of failing completely
+			for (int i = 0; i < pageTexts.length; i++) {
+				if (pageTexts[i] != null && !pageTexts[i].trim().isEmpty()) {
+					extractedText.append("## Page ").append(i + 1).append("\n\n");
+					extractedText.append(pageTexts[i]).append("\n\n");
+					processedPages++;
 				}
 			}
 
@@ -166,7 +148,7 @@ public class PdfOcrProcessor {
 				extractedText.append("*Total pages processed: ")
 					.append(processedPages)
 					.append(" of ")
-					.append(pageImages.size())
+					.append(pageTexts.length)
 					.append("*\n");
 			}
 
@@ -189,7 +171,7 @@ public class PdfOcrProcessor {
 				result = String.format(
 						"Successfully processed PDF with OCR\n\n" + "**Output File**: %s\n\n"
 								+ "**Pages Processed**: %d of %d\n\n",
-						normalizedFilename, processedPages, pageImages.size());
+						normalizedFilename, processedPages, pageTexts.length);
 			}
 
 			// Add content preview if less than 1000 characters
@@ -225,126 +207,54 @@ public class PdfOcrProcessor {
 	}
 
 	/**
-	 * Convert PDF pages to images using PDFBox with optimized settings and parallel
-	 * processing
-	 * @param sourceFile The source PDF file
-	 * @return List of BufferedImage objects representing PDF pages
+	 * Render one PDF page for OCR, called on the pipeline's pool workers
+	 * @param document The open PDF document
+	 * @param pageIndex The 0-based page index
+	 * @param tempFolder Folder to save the image to, null to skip saving
+	 * @return Optimized page image, or null if rendering failed
 	 */
-	private List<BufferedImage> convertPdfToImages(Path sourceFile) {
-		List<BufferedImage> images = new ArrayList<>();
-
-		try (PDDocument document = PDDocument.load(sourceFile.toFile())) {
-			int pageCount = document.getNumberOfPages();
-			log.info("Converting {} pages to images with parallel processing", pageCount);
-
-			// Use parallel processing for PDF to image conversion
-			List<CompletableFuture<BufferedImage>> conversionTasks = new ArrayList<>();
-
-			// Create temp folder if image saving is enabled
-			final Path tempFolder = saveImagesToTempFolder ? createTempImageFolder(sourceFile.getFileName().toString())
-					: null;
-
-			// Submit all conversion tasks to the executor pool
-			if (imageRecognitionExecutorPool != null) {
-				for (int pageIndex = 0; pageIndex < pageCount; pageIndex++) {
-					final int currentPageIndex = pageIndex;
-					final PDDocument docRef = document; // Reference for the task
-
-					CompletableFuture<BufferedImage> conversionTask = imageRecognitionExecutorPool.submitTask(() -> {
-						try {
-							// Validate page index and document state
-							if (currentPageIndex < 0 || currentPageIndex >= docRef.getNumberOfPages()) {
-								log.error("Invalid page index {} for document with {} pages", currentPageIndex + 1,
-										docRef.getNumberOfPages());
-								return null;
-							}
-
-							if (docRef.isEncrypted()) {
-								log.warn("Document is encrypted, page {} may not render correctly",
-										currentPageIndex + 1);
-							}
-
-							PDFRenderer pdfRenderer = new PDFRenderer(docRef);
-
-							// Use optimized DPI and image type from LynxeProperties
-							float dpi = getOptimizedDpi();
-							ImageType imageType = getConfiguredImageType();
-
-							// Render page with retry logic and fallback settings
-							BufferedImage image = renderPageWithRetry(pdfRenderer, currentPageIndex, dpi, imageType);
-
-							if (image == null) {
-								log.error("Failed to render page {} after all retry attempts", currentPageIndex + 1);
-								return null;
-							}
-
-							// Optimize the image for OCR processing
-							BufferedImage optimizedImage = optimizeImageForOcr(image);
-
-							log.debug("Converted page {} to image ({}x{}) with DPI: {}, Type: {}", currentPageIndex + 1,
-									optimizedImage.getWidth(), optimizedImage.getHeight(), dpi, imageType);
-
-							// Save image to temp folder if enabled (with optimization)
-							if (saveImagesToTempFolder && tempFolder != null) {
-								try {
-									saveImageToTempFolderOptimized(optimizedImage, currentPageIndex + 1, tempFolder);
-								}
-								catch (IOException e) {
-									log.error("Failed to save page {} image to temp folder: {}", currentPageIndex + 1,
-											e.getMessage(), e);
-								}
-							}
-
-							return optimizedImage;
-						}
-						catch (IllegalArgumentException e) {
-							log.error("Invalid argument error converting page {} to image: {}", currentPageIndex + 1,
-									e.getMessage(), e);
-							return null;
-						}
-						catch (Exception e) {
-							log.error("Error converting page {} to image: {}", currentPageIndex + 1, e.getMessage(), e);
-							return null; // Return null for failed conversions
-						}
-					});
-
-					conversionTasks.add(conversionTask);
-				}
+	private BufferedImage renderPage(PDDocument document, int pageIndex, Path tempFolder) {
+		try {
+			if (document.isEncrypted()) {
+				log.warn("Document is encrypted, page {} may not render correctly", pageIndex + 1);
 			}
-			else {
-				// Throw exception if executor pool is not available
-				String errorMessage = "ImageRecognitionExecutorPool not available - PDF conversion cannot continue";
-				log.error(errorMessage);
-				throw new IllegalStateException(errorMessage);
+
+			PDFRenderer pdfRenderer = new PDFRenderer(document);
+
+			// Use optimized DPI and image type from LynxeProperties
+			float dpi = getOptimizedDpi();
+			ImageType imageType = getConfiguredImageType();
+
+			// Render page with retry logic and fallback settings
+			BufferedImage image = renderPageWithRetry(pdfRenderer, pageIndex, dpi, imageType);
+
+			if (image == null) {
+				log.error("Failed to render page {} after all retry attempts", pageIndex + 1);
+				return null;
 			}
 
-			// Wait for all conversion tasks to complete
-			for (int i = 0; i < conversionTasks.size(); i++) {
+			// Optimize the image for OCR processing
+			BufferedImage optimizedImage = optimizeImageForOcr(image);
+
+			log.debug("Converted page {} to image ({}x{}) with DPI: {}, Type: {}", pageIndex + 1,
+					optimizedImage.getWidth(), optimizedImage.getHeight(), dpi, imageType);
+
+			// Save image to temp folder if enabled (with optimization)
+			if (tempFolder != null) {
 				try {
-					BufferedImage image = conversionTasks.get(i).get();
-					if (image != null) {
-						images.add(image);
-					}
-					else {
-						log.warn("Failed to convert page {} to image", i + 1);
-					}
+					saveImageToTempFolderOptimized(optimizedImage, pageIndex + 1, tempFolder);
 				}
-				catch (InterruptedException | ExecutionException e) {
-					log.error("Error processing page {} conversion: {}", i + 1, e.getMessage());
-					// Continue with next page instead of failing completely
+				catch (IOException e) {
+					log.error("Failed to save page {} image to temp folder: {}", pageIndex + 1, e.getMessage(), e);
 				}
 			}
 
-			if (saveImagesToTempFolder && tempFolder != null) {
-				log.info("All converted images saved to temp folder: {}", tempFolder);
-			}
-
+			return optimizedImage;
 		}
-		catch (IOException e) {
-			log.error("Error converting PDF to images: {}", e.getMessage(), e);
+		catch (Exception e) {
+			log.error("Error converting page {} to image: {}", pageIndex + 1, e.getMessage(), e);
+			return null;
 		}
-
-		return images;
 	}
 
 	/**
@@ -386,122 +296,22 @@ public class PdfOcrProcessor {
 	}
 
 	/**
-	 * Process a single image with OCR using ChatClient with retry mechanism
-	 * @param image The BufferedImage to process
-	 * @param pageNumber The page number for logging
-	 * @param additionalRequirement Optional additional requirements for OCR processing
-	 * @return Extracted text or null if failed
+	 * Create an OCR pipeline with the current configuration
 	 */
-	private String processImageWithOcrWithRetry(BufferedImage image, int pageNumber, String additionalRequirement) {
-		int maxRetryAttempts = getConfiguredMaxRetryAttempts();
-
-		for (int attempt = 1; attempt <= maxRetryAttempts; attempt++) {
-			try {
-				log.debug("OCR attempt {} of {} for page {}", attempt, maxRetryAttempts, pageNumber);
-				String result = processImageWithOcr(image, pageNumber, additionalRequirement);
-
-				if (result != null && !result.trim().isEmpty()) {
-					if (attempt > 1) {
-						log.info("OCR succeeded on attempt {} for page {}", attempt, pageNumber);
-					}
-					return result;
-				}
-
-				log.warn("OCR attempt {} failed for page {} - empty result", attempt, pageNumber);
-
-			}
-			catch (Exception e) {
-				log.warn("OCR attempt {} failed for page {}: {}", attempt, pageNumber, e.getMessage());
-
-				// If this is the last attempt, log the error
-				if (attempt == maxRetryAttempts) {
-					log.error("All {} OCR attempts failed for page {}", maxRetryAttempts, pageNumber, e);
-				}
-			}
-
-			// Add a small delay between retry attempts (except for the last attempt)
-			if (attempt < maxRetryAttempts) {
-				try {
-					Thread.sleep(1000); // 1 second delay between retries
-				}
-				catch (InterruptedException e) {
-					Thread.currentThread().interrupt();
-					log.warn("OCR retry interrupted for page {}", pageNumber);
-					break;
-				}
-			}
+	private OcrPipeline newPipeline() {
+		if (imageRecognitionExecutorPool == null) {
+			// Throw exception if executor pool is not available
+			String errorMessage = "ImageRecognitionExecutorPool not available - OCR processing cannot continue";
+			log.error(errorMessage);
+			throw new IllegalStateException(errorMessage);
 		}
-
-		log.error("All OCR attempts failed for page {}", pageNumber);
-		return null;
-	}
-
-	/**
-	 * Process a single image with OCR using ChatClient
-	 * @param image The BufferedImage to process
-	 * @param pageNumber The page number for logging
-	 * @param additionalRequirement Optional additional requirements for OCR processing
-	 * @return Extracted text or null if failed
-	 */
-	private String processImageWithOcr(BufferedImage image, int pageNumber, String additionalRequirement) {
 		if (llmService == null) {
-			log.error("LlmService is not initialized, cannot perform OCR");
-			return null;
-		}
-
-		try {
-			// Convert BufferedImage to InputStream for ChatClient using configured format
-			ByteArrayOutputStream baos = new ByteArrayOutputStream();
-			ImageIO.write(image, imageFormatName, baos);
-			byte[] imageBytes = baos.toByteArray();
-
-			// Create InputStream from byte array
-			java.io.InputStream imageInputStream = new java.io.ByteArrayInputStream(imageBytes);
-
-			log.debug("Processing page {} image for OCR ({} bytes, format: {})", pageNumber, imageBytes.length,
-					imageFormatName);
-
-			// Get the ChatClient from LlmService
-			ChatClient chatClient = llmService.getDefaultDynamicAgentChatClient();
-			// Use configured model name from LynxeProperties
-			String modelName = getConfiguredModelName();
-			ChatOptions chatOptions = ChatOptions.builder().model(modelName).build();
-
-			// Use ChatClient to process the image with OCR
-			// Include additional requirements in the system message if provided
-			String extractedText = chatClient.prompt().options(chatOptions).system(systemMessage -> {
-				systemMessage.text("You are an OCR (Optical Character Recognition) specialist.");
-				systemMessage.text("Extract all visible text content from the provided image.");
-				systemMessage.text("Return only the extracted text without any additional formatting or descriptions.");
-				systemMessage.text("Preserve the structure and layout of the text as much as possible.");
-				systemMessage.text("Focus on accurate text recognition and maintain readability.");
-				if (additionalRequirement != null && !additionalRequirement.trim().isEmpty()) {
-					systemMessage.text("Additional requirements: " + additionalRequirement);
-				}
-				systemMessage.text("If no text is visible in the image, return ''(empty string) ");
-			})
-				.user(userMessage -> userMessage.text("Please extract all text content from this image:")
-					.media(MimeTypeUtils.parseMimeType("image/" + imageFormatName.toLowerCase()),
-							new InputStreamResource(imageInputStream)))
-				.call()
-				.content();
-
-			if (extractedText != null && !extractedText.trim().isEmpty()
-					&& !extractedText.toLowerCase().contains("no text detected")) {
-				log.debug("Successfully extracted text from page {} with OCR: {} characters", pageNumber,
-						extractedText.length());
-				return extractedText;
-			}
-			else {
-				log.warn("No text extracted from page {} - empty or no text response", pageNumber);
-				return null;
-			}
-
-		}
-		catch (Exception e) {
-			log.error("Error processing page {} with OCR using ChatClient: {}", pageNumber, e.getMessage(), e);
-			return null;
+			throw new IllegalStateException("LlmService is not initialized, cannot perform OCR");
 		}
+		return new OcrPipeline(imageRecognitionExecutorPool, llmService.getCallScheduler(),
+				new ChatClientOcrModel(llmService, getConfiguredModelName()),
+				new OcrPipeline.Settings(imageFormatName, getConfiguredMaxRetryAttempts(), getConfiguredBatchSize(),
+						getConfiguredBatchImageMaxKb() * 1024));
 	}
 
 	/**
@@ -642,6 +452,14 @@ public class PdfOcrProcessor {
 		return String.format("Image format: %s - Used for OCR processing and file saving", imageFormatName);
 	}
 
+	/**
+	 * Settings that change the OCR output, used as part of conversion cache keys
+	 */
+	public String getCacheVariant() {
+		return "dpi=" + getOptimizedDpi() + ";imageType=" + getConfiguredImageType() + ";model="
+				+ getConfiguredModelName() + ";batch=" + getConfiguredBatchSize();
+	}
+
 	/**
 	 * Get configured DPI from LynxeProperties
 	 * @return configured DPI or default value
@@ -843,6 +661,34 @@ public class PdfOcrProcessor {
 		return 3; // Default max retry attempts
 	}
 
+	/**
+	 * Get configured OCR batch size from LynxeProperties
+	 * @return configured pages per request or 1
+	 */
+	private int getConfiguredBatchSize() {
+		if (lynxeProperties != null) {
+			Integer configuredBatchSize = lynxeProperties.getImageRecognitionBatchSize();
+			if (configuredBatchSize != null && configuredBatchSize > 0) {
+				return configuredBatchSize;
+			}
+		}
+		return 1; // One page per request
+	}
+
+	/**
+	 * Get configured size limit of batched pages from LynxeProperties
+	 * @return configured limit in KB or default value
+	 */
+	private int getConfiguredBatchImageMaxKb() {
+		if (lynxeProperties != null) {
+			Integer configuredMaxKb = lynxeProperties.getImageRecognitionBatchImageMaxKb();
+			if (configuredMaxKb != null && configuredMaxKb > 0) {
+				return configuredMaxKb;
+			}
+		}
+		return 300; // Default batched page size limit
+	}
+
 	/**
 	 * Get current OCR processor configuration status
 	 * @return Status string describing current OCR configuration
@@ -854,6 +700,7 @@ public class PdfOcrProcessor {
 		status.append("- DPI: ").append(getConfiguredDpi()).append("\n");
 		status.append("- Image Type: ").append(getConfiguredImageType()).append("\n");
 		status.append("- Max Retry Attempts: ").append(getConfiguredMaxRetryAttempts()).append("\n");
+		status.append("- Batch Size: ").append(getConfiguredBatchSize()).append("\n");
 		status.append("- Executor Pool Size: ")
 			.append(imageRecognitionExecutorPool != null
 					? String.valueOf(imageRecognitionExecutorPool.getCurrentPoolSize()) : "Not Available")
@@ -243,7 +243,7 @@ public class PdfToMarkdownProcessor {
 	/**
 	 * Convert extracted content to Markdown format
 	 */
-	private String convertToMarkdownFormat(String content, String additionalRequirement) {
+	String convertToMarkdownFormat(String content, String additionalRequirement) {
 		StringBuilder markdown = new StringBuilder();
 
 		// Add header
@@ -131,7 +131,7 @@ public class TextToMarkdownProcessor {
 	/**
 	 * Convert text content to Markdown format
 	 */
-	private String convertToMarkdownFormat(String content, Path sourceFile, String additionalRequirement) {
+	String convertToMarkdownFormat(String content, Path sourceFile, String additionalRequirement) {
 		StringBuilder markdown = new StringBuilder();
 		String filename = sourceFile.getFileName().toString();
 		String extension = getFileExtension(filename);
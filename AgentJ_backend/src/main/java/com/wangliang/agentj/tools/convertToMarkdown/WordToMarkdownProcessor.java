@@ -257,7 +257,7 @@ public class WordToMarkdownProcessor {
 	/**
 	 * Convert extracted content to Markdown format
 	 */
-	private String convertToMarkdownFormat(String content, String additionalRequirement) {
+	String convertToMarkdownFormat(String content, String additionalRequirement) {
 		StringBuilder markdown = new StringBuilder();
 
 		// Add header if additional requirements specify it
@@ -16,6 +16,7 @@
 
 package com.wangliang.agentj.tools.database;
 
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.jdbc.datasource.DriverManagerDataSource;
@@ -36,6 +37,8 @@ public class DataSourceService {
 
 	private final Map<String, String> dataSourceTypeMap = new ConcurrentHashMap<>();
 
+	private final SchemaMetadataCache schemaMetadataCache = new SchemaMetadataCache(this);
+
 	/**
 	 * Add data source
 	 */
@@ -59,6 +62,8 @@ public class DataSourceService {
 				dataSourceTypeMap.put(name, type);
 			}
 			log.info("Added datasource '{}' with url: {} and type: {}", name, url, type);
+			// Pre-warm schema metadata in the background
+			schemaMetadataCache.refresh(name);
 		}
 		catch (Exception e) {
 			log.error("Failed to add datasource '{}'", name, e);
@@ -113,6 +118,25 @@ public class DataSourceService {
 		return dataSource;
 	}
 
+	/**
+	 * Resolve a datasource name, falling back to the default (first) datasource
+	 * @return datasource name, or null if no datasource is available
+	 */
+	public String resolveDataSourceName(String datasourceName) {
+		if (datasourceName != null && !datasourceName.trim().isEmpty()) {
+			return datasourceName;
+		}
+		java.util.Set<String> names = getDataSourceNames();
+		return names.isEmpty() ? null : names.iterator().next();
+	}
+
+	/**
+	 * Cached table, column and index metadata of the registered datasources
+	 */
+	public SchemaMetadataCache getSchemaMetadataCache() {
+		return schemaMetadataCache;
+	}
+
 	/**
 	 * Get all data source names
 	 */
@@ -162,10 +186,12 @@ public class DataSourceService {
 	}
 
 	/**
-	 * Close resources if needed (no-op for DriverManagerDataSource)
+	 * Close resources (stops schema metadata loading; no-op for DriverManagerDataSource)
 	 */
+	@PreDestroy
 	public void close() {
-		log.info("Closing DataSourceService resources (no-op)");
+		log.info("Closing DataSourceService resources");
+		schemaMetadataCache.shutdown();
 	}
 
 	/**
@@ -18,19 +18,26 @@ package com.wangliang.agentj.tools.database;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wangliang.agentj.config.LynxeProperties;
 import com.wangliang.agentj.tools.AbstractBaseTool;
+import com.wangliang.agentj.tools.CacheableTool;
+import com.wangliang.agentj.tools.ToolCallBiFunctionDef;
 import com.wangliang.agentj.tools.code.ToolExecuteResult;
 import com.wangliang.agentj.tools.database.action.GetDatasourceInfoAction;
 import com.wangliang.agentj.tools.database.action.GetTableIndexAction;
 import com.wangliang.agentj.tools.database.action.GetTableMetaAction;
+import com.wangliang.agentj.tools.database.meta.TableMeta;
 import com.wangliang.agentj.tools.i18n.ToolI18nService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 @Component
-public class DatabaseMetadataTool extends AbstractBaseTool<DatabaseRequest> {
+public class DatabaseMetadataTool extends AbstractBaseTool<DatabaseRequest> implements CacheableTool<DatabaseRequest> {
 
 	private static final Logger log = LoggerFactory.getLogger(DatabaseMetadataTool.class);
 
@@ -58,6 +65,24 @@ public class DatabaseMetadataTool extends AbstractBaseTool<DatabaseRequest> {
 		return "database-service-group";
 	}
 
+	@Override
+	public String getCacheKey(DatabaseRequest request) {
+		return request.getAction() + "|" + request.getDatasourceName() + "|" + request.getText();
+	}
+
+	@Override
+	public boolean isReusable(ToolExecuteResult result) {
+		return CacheableTool.super.isReusable(result) && !result.getOutput().contains("failed:");
+	}
+
+	/**
+	 * Statements run by the other database tools may change the schema
+	 */
+	@Override
+	public boolean isInvalidatedBy(ToolCallBiFunctionDef<?> tool) {
+		return getServiceGroup().equals(tool.getServiceGroup());
+	}
+
 	@Override
 	public String getName() {
 		return name;
@@ -103,6 +128,8 @@ public class DatabaseMetadataTool extends AbstractBaseTool<DatabaseRequest> {
 				}
 				case "get_table_index":
 					return new GetTableIndexAction(objectMapper).execute(request, dataSourceService);
+				case "get_schema_summary":
+					return getSchemaSummary(request);
 				case "get_datasource_info":
 					return new GetDatasourceInfoAction(objectMapper).execute(request, dataSourceService);
 				default:
@@ -115,6 +142,31 @@ public class DatabaseMetadataTool extends AbstractBaseTool<DatabaseRequest> {
 		}
 	}
 
+	/**
+	 * One line per table from the cached schema, optionally filtered by a text that is
+	 * matched against table names and comments
+	 */
+	private ToolExecuteResult getSchemaSummary(DatabaseRequest request) throws SQLException {
+		String datasourceName = request.getDatasourceName();
+		String text = request.getText();
+		SchemaMetadataCache.Schema schema = dataSourceService.getSchemaMetadataCache().getSchema(datasourceName);
+		List<TableMeta> tables = new ArrayList<>();
+		for (TableMeta table : schema.tables().values()) {
+			if (text == null || text.isBlank() || matches(table, text)) {
+				tables.add(table);
+			}
+		}
+		return new ToolExecuteResult("Datasource: " + schema.datasourceName() + "\nTables: " + tables.size()
+				+ "\n" + SchemaMetadataCache.renderCompact(tables));
+	}
+
+	private static boolean matches(TableMeta table, String text) {
+		String needle = text.trim().toLowerCase(Locale.ROOT);
+		String comment = table.getTableComment();
+		return table.getTableName().toLowerCase(Locale.ROOT).contains(needle)
+				|| (comment != null && comment.toLowerCase(Locale.ROOT).contains(needle));
+	}
+
 	@Override
 	public void cleanup(String planId) {
 		if (planId != null) {
@@ -143,7 +195,9 @@ public class DatabaseMetadataTool extends AbstractBaseTool<DatabaseRequest> {
 				for (Map.Entry<String, String> entry : datasourceInfo.entrySet()) {
 					String datasourceName = entry.getKey();
 					String datasourceType = entry.getValue();
-					stateBuilder.append(String.format("  - %s (%s)\n", datasourceName, datasourceType));
+					int cachedTables = dataSourceService.getSchemaMetadataCache().getCachedTableCount(datasourceName);
+					stateBuilder.append(String.format("  - %s (%s)%s\n", datasourceName, datasourceType,
+							cachedTables >= 0 ? ", " + cachedTables + " tables cached" : ""));
 				}
 
 				// Get default data source information
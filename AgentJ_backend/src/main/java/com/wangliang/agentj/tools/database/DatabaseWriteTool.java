@@ -89,7 +89,10 @@ public class DatabaseWriteTool extends AbstractBaseTool<DatabaseRequest> {
 			}
 
 			// Execute write SQL
-			return new ExecuteSqlAction().execute(request, dataSourceService);
+			ToolExecuteResult result = new ExecuteSqlAction().execute(request, dataSourceService);
+			// Schema changes make the cached table metadata stale
+			dataSourceService.getSchemaMetadataCache().refreshIfDdl(request.getDatasourceName(), request.getQuery());
+			return result;
 		}
 		catch (Exception e) {
 			log.error("Database write action '" + action + "' failed", e);
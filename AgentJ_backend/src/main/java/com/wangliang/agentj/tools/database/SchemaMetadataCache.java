@@ -0,0 +1,419 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.tools.database;
+
+import com.wangliang.agentj.tools.database.meta.ColumnMeta;
+import com.wangliang.agentj.tools.database.meta.IndexMeta;
+import com.wangliang.agentj.tools.database.meta.TableMeta;
+import com.wangliang.agentj.tools.database.sql.DatabaseSqlGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Per-datasource cache of table, column and index metadata.
+ *
+ * The whole schema of a datasource is loaded with three batched {@code information_schema}
+ * queries (tables, then columns and indexes in chunks of {@link #IN_CLAUSE_BATCH_SIZE}
+ * table names) and kept for {@link #TTL_MILLIS}. Concurrent callers share one in-flight
+ * load. Loads run on a small daemon pool, so a datasource can be pre-warmed as soon as it
+ * is registered, and a DDL statement run by the agent triggers a background refresh.
+ *
+ * Cached {@link TableMeta} instances are shared between callers and must be treated as
+ * read-only.
+ */
+public class SchemaMetadataCache {
+
+	private static final Logger log = LoggerFactory.getLogger(SchemaMetadataCache.class);
+
+	static final long TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+	private static final int IN_CLAUSE_BATCH_SIZE = 500;
+
+	private static final int LOADER_THREADS = 2;
+
+	/**
+	 * Statements that change table, column, index or comment definitions
+	 */
+	private static final Pattern DDL_PATTERN = Pattern
+		.compile("^\\s*(CREATE|ALTER|DROP|RENAME|COMMENT)\\b", Pattern.CASE_INSENSITIVE);
+
+	private final DataSourceService dataSourceService;
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	private final ExecutorService loader;
+
+	public SchemaMetadataCache(DataSourceService dataSourceService) {
+		this.dataSourceService = dataSourceService;
+		AtomicInteger threadCount = new AtomicInteger();
+		this.loader = Executors.newFixedThreadPool(LOADER_THREADS, runnable -> {
+			Thread thread = new Thread(runnable, "schema-metadata-loader-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Cached schema of a datasource, loading it if it is missing, expired or failed
+	 * @param datasourceName Datasource name, null or empty for the default datasource
+	 * @return Schema snapshot
+	 * @throws SQLException If the schema cannot be loaded
+	 */
+	public Schema getSchema(String datasourceName) throws SQLException {
+		String name = dataSourceService.resolveDataSourceName(datasourceName);
+		if (name == null) {
+			throw new SQLException("No datasources available");
+		}
+		long now = System.currentTimeMillis();
+		Entry entry = entries.compute(name,
+				(key, existing) -> existing != null && existing.isUsable(now) ? existing : startLoad(key));
+		try {
+			return entry.future().join();
+		}
+		catch (CompletionException e) {
+			entries.remove(name, entry);
+			if (e.getCause() instanceof SQLException sqlException) {
+				throw sqlException;
+			}
+			throw new SQLException("Failed to load schema metadata: " + e.getCause().getMessage(), e.getCause());
+		}
+	}
+
+	/**
+	 * Reload the schema of a datasource in the background; callers wait for the new
+	 * snapshot
+	 */
+	public void refresh(String datasourceName) {
+		String name = dataSourceService.resolveDataSourceName(datasourceName);
+		if (name != null) {
+			entries.put(name, startLoad(name));
+		}
+	}
+
+	/**
+	 * Drop the cached schema of a datasource; it is loaded again on next use
+	 */
+	public void invalidate(String datasourceName) {
+		String name = dataSourceService.resolveDataSourceName(datasourceName);
+		if (name != null) {
+			entries.remove(name);
+		}
+	}
+
+	public void invalidateAll() {
+		entries.clear();
+	}
+
+	/**
+	 * Refresh the schema if the SQL contains a DDL statement
+	 * @param datasourceName Datasource the SQL was run on
+	 * @param sql One or more statements separated by semicolons
+	 * @return true if a refresh was triggered
+	 */
+	public boolean refreshIfDdl(String datasourceName, String sql) {
+		if (sql == null) {
+			return false;
+		}
+		for (String statement : sql.split(";")) {
+			if (DDL_PATTERN.matcher(statement).find()) {
+				log.info("DDL detected on datasource {}, refreshing schema metadata",
+						datasourceName != null ? datasourceName : "default");
+				refresh(datasourceName);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Number of tables in the cached schema, or -1 if the schema is not loaded
+	 */
+	public int getCachedTableCount(String datasourceName) {
+		String name = dataSourceService.resolveDataSourceName(datasourceName);
+		Entry entry = name != null ? entries.get(name) : null;
+		if (entry == null || !entry.future().isDone() || entry.future().isCompletedExceptionally()) {
+			return -1;
+		}
+		return entry.future().join().tables().size();
+	}
+
+	public void shutdown() {
+		loader.shutdownNow();
+	}
+
+	private Entry startLoad(String name) {
+		return new Entry(CompletableFuture.supplyAsync(() -> {
+			try {
+				return load(name);
+			}
+			catch (SQLException e) {
+				throw new CompletionException(e);
+			}
+		}, loader), System.currentTimeMillis());
+	}
+
+	private Schema load(String name) throws SQLException {
+		long startTime = System.currentTimeMillis();
+		String databaseType = dataSourceService.getDataSourceType(name);
+		Map<String, TableMeta> tables = new LinkedHashMap<>();
+
+		try (Connection conn = dataSourceService.getConnection(name)) {
+			try (PreparedStatement ps = conn
+				.prepareStatement(DatabaseSqlGenerator.generateTableInfoSql(databaseType, false, null));
+					ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					String tableName = rs.getString("TABLE_NAME");
+					TableMeta tableMeta = new TableMeta();
+					tableMeta.setTableName(tableName);
+					tableMeta.setTableComment(readTableComment(rs, tableName));
+					tableMeta.setColumns(new ArrayList<>());
+					tableMeta.setIndexes(new ArrayList<>());
+					tables.put(tableName, tableMeta);
+				}
+			}
+
+			List<String> tableNames = new ArrayList<>(tables.keySet());
+			for (int from = 0; from < tableNames.size(); from += IN_CLAUSE_BATCH_SIZE) {
+				List<String> batch = tableNames.subList(from, Math.min(from + IN_CLAUSE_BATCH_SIZE, tableNames.size()));
+				String inClause = String.join(",", Collections.nCopies(batch.size(), "?"));
+				loadColumns(conn, DatabaseSqlGenerator.generateColumnInfoSql(databaseType, inClause), batch, tables);
+				loadIndexes(conn, DatabaseSqlGenerator.generateIndexInfoSql(databaseType, inClause), batch, tables);
+			}
+		}
+
+		log.info("Loaded schema metadata for datasource {}: {} tables in {} ms", name, tables.size(),
+				System.currentTimeMillis() - startTime);
+		return new Schema(name, databaseType, Collections.unmodifiableMap(tables), System.currentTimeMillis());
+	}
+
+	private static String readTableComment(ResultSet rs, String tableName) {
+		// Handle different column names for table comment across databases
+		try {
+			return rs.getString("TABLE_COMMENT");
+		}
+		catch (SQLException e) {
+			try {
+				return rs.getString("REMARKS");
+			}
+			catch (SQLException e2) {
+				log.debug("Could not read table comment for table: {}", tableName);
+				return null;
+			}
+		}
+	}
+
+	private static void loadColumns(Connection conn, String sql, List<String> batch, Map<String, TableMeta> tables)
+			throws SQLException {
+		try (PreparedStatement ps = conn.prepareStatement(sql)) {
+			for (int i = 0; i < batch.size(); i++) {
+				ps.setString(i + 1, batch.get(i));
+			}
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					TableMeta tableMeta = tables.get(rs.getString("TABLE_NAME"));
+					if (tableMeta == null) {
+						continue;
+					}
+					ColumnMeta columnMeta = new ColumnMeta();
+					columnMeta.setColumnName(rs.getString("COLUMN_NAME"));
+					columnMeta.setColumnType(rs.getString("COLUMN_TYPE"));
+					Object length = rs.getObject("CHARACTER_MAXIMUM_LENGTH");
+					columnMeta.setColumnLength(length == null ? null : length.toString());
+					columnMeta.setColumnComment(rs.getString("COLUMN_COMMENT"));
+					columnMeta.setDefaultValue(rs.getString("COLUMN_DEFAULT"));
+					columnMeta.setNotNull("NO".equals(rs.getString("IS_NULLABLE")));
+					columnMeta.setIndexes(new ArrayList<>());
+					tableMeta.getColumns().add(columnMeta);
+				}
+			}
+		}
+	}
+
+	private static void loadIndexes(Connection conn, String sql, List<String> batch, Map<String, TableMeta> tables)
+			throws SQLException {
+		try (PreparedStatement ps = conn.prepareStatement(sql)) {
+			for (int i = 0; i < batch.size(); i++) {
+				ps.setString(i + 1, batch.get(i));
+			}
+			try (ResultSet rs = ps.executeQuery()) {
+				// Map<tableName, Map<indexName, IndexMeta>>
+				Map<String, Map<String, IndexMeta>> tableIndexMap = new HashMap<>();
+				while (rs.next()) {
+					String tableName = rs.getString("TABLE_NAME");
+					TableMeta tableMeta = tables.get(tableName);
+					if (tableMeta == null) {
+						continue;
+					}
+					String indexName = rs.getString("INDEX_NAME");
+					String columnName = rs.getString("COLUMN_NAME");
+					Map<String, IndexMeta> indexMap = tableIndexMap.computeIfAbsent(tableName, k -> new HashMap<>());
+					IndexMeta indexMeta = indexMap.get(indexName);
+					if (indexMeta == null) {
+						indexMeta = new IndexMeta();
+						indexMeta.setIndexName(indexName);
+						indexMeta.setIndexType(rs.getString("INDEX_TYPE"));
+						indexMeta.setRefColumnNames(new ArrayList<>());
+						indexMap.put(indexName, indexMeta);
+						tableMeta.getIndexes().add(indexMeta);
+					}
+					indexMeta.getRefColumnNames().add(columnName);
+					for (ColumnMeta column : tableMeta.getColumns()) {
+						if (column.getColumnName().equals(columnName)) {
+							column.getIndexes().add(indexMeta);
+							break;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Render tables as one line each, e.g.
+	 * {@code orders(id bigint PK, user_id bigint NN IDX, note varchar(255)) -- Customer orders}.
+	 * Markers: PK primary key (by index name), IDX member of another index, NN not null.
+	 */
+	public static String renderCompact(Collection<TableMeta> tables) {
+		StringBuilder sb = new StringBuilder();
+		for (TableMeta table : tables) {
+			sb.append(table.getTableName()).append('(');
+			List<ColumnMeta> columns = table.getColumns() != null ? table.getColumns() : List.of();
+			for (int i = 0; i < columns.size(); i++) {
+				ColumnMeta column = columns.get(i);
+				if (i > 0) {
+					sb.append(", ");
+				}
+				sb.append(column.getColumnName()).append(' ').append(compactType(column));
+				String marker = indexMarker(column);
+				if (marker != null) {
+					sb.append(' ').append(marker);
+				}
+				if (Boolean.TRUE.equals(column.getNotNull()) && !"PK".equals(marker)) {
+					sb.append(" NN");
+				}
+			}
+			sb.append(')');
+			if (table.getTableComment() != null && !table.getTableComment().isBlank()) {
+				sb.append(" -- ").append(table.getTableComment().strip());
+			}
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+	private static String compactType(ColumnMeta column) {
+		String type = column.getColumnType() != null ? column.getColumnType().toLowerCase(Locale.ROOT) : "?";
+		if (column.getColumnLength() != null && type.indexOf('(') < 0 && !type.contains("text")
+				&& !type.contains("lob")) {
+			type = type + "(" + column.getColumnLength() + ")";
+		}
+		return type;
+	}
+
+	private static String indexMarker(ColumnMeta column) {
+		if (column.getIndexes() == null || column.getIndexes().isEmpty()) {
+			return null;
+		}
+		for (IndexMeta index : column.getIndexes()) {
+			String name = index.getIndexName() != null ? index.getIndexName().toUpperCase(Locale.ROOT) : "";
+			if (name.equals("PRIMARY") || name.endsWith("_PKEY") || name.startsWith("PK_")) {
+				return "PK";
+			}
+		}
+		return "IDX";
+	}
+
+	/**
+	 * Schema snapshot of one datasource
+	 * @param datasourceName Resolved datasource name
+	 * @param databaseType Database type of the datasource, may be null
+	 * @param tables Tables by name in load order
+	 * @param loadedAt Load completion time in epoch milliseconds
+	 */
+	public record Schema(String datasourceName, String databaseType, Map<String, TableMeta> tables, long loadedAt) {
+
+		/**
+		 * Look up a table by exact name, then case-insensitively
+		 */
+		public TableMeta findTable(String tableName) {
+			if (tableName == null) {
+				return null;
+			}
+			TableMeta table = tables.get(tableName);
+			if (table != null) {
+				return table;
+			}
+			for (TableMeta candidate : tables.values()) {
+				if (candidate.getTableName().equalsIgnoreCase(tableName)) {
+					return candidate;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Tables matching the text, case-insensitively: the cached counterpart of the
+		 * per-dialect fuzzy lookup. Comments are matched everywhere; on H2, whose tables
+		 * rarely have comments, table names are matched as well.
+		 */
+		public List<TableMeta> findByText(String text) {
+			String needle = text.toLowerCase(Locale.ROOT);
+			boolean matchName = databaseType != null && "h2".equalsIgnoreCase(databaseType.trim());
+			List<TableMeta> result = new ArrayList<>();
+			for (TableMeta table : tables.values()) {
+				if (contains(table.getTableComment(), needle) || (matchName && contains(table.getTableName(), needle))) {
+					result.add(table);
+				}
+			}
+			return result;
+		}
+
+		private static boolean contains(String value, String needle) {
+			return value != null && value.toLowerCase(Locale.ROOT).contains(needle);
+		}
+
+	}
+
+	private record Entry(CompletableFuture<Schema> future, long createdAt) {
+
+		boolean isUsable(long now) {
+			return !future.isCompletedExceptionally() && now - createdAt < TTL_MILLIS;
+		}
+
+	}
+
+}
@@ -154,7 +154,7 @@ public class ExecuteSqlAction extends AbstractDatabaseAction {
 		}
 	}
 
-	private String formatResultSet(ResultSet rs) throws SQLException {
+	String formatResultSet(ResultSet rs) throws SQLException {
 		int columnCount = rs.getMetaData().getColumnCount();
 		// Collect column names
 		List<String> columnNames = new ArrayList<>();
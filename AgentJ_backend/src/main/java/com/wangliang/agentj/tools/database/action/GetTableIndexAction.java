@@ -20,14 +20,14 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wangliang.agentj.tools.code.ToolExecuteResult;
 import com.wangliang.agentj.tools.database.DataSourceService;
 import com.wangliang.agentj.tools.database.DatabaseRequest;
+import com.wangliang.agentj.tools.database.SchemaMetadataCache;
 import com.wangliang.agentj.tools.database.meta.IndexMeta;
-import com.wangliang.agentj.tools.database.sql.DatabaseSqlGenerator;
+import com.wangliang.agentj.tools.database.meta.TableMeta;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
 
 public class GetTableIndexAction extends AbstractDatabaseAction {
 
@@ -49,58 +49,22 @@ public class GetTableIndexAction extends AbstractDatabaseAction {
 			return new ToolExecuteResult("Datasource: " + (datasourceName != null ? datasourceName : "default")
 					+ "\nMissing query statement");
 		}
-		String[] tableNames = text.split(",");
-		StringBuilder inClause = new StringBuilder();
-		for (int i = 0; i < tableNames.length; i++) {
-			inClause.append("?");
-			if (i < tableNames.length - 1)
-				inClause.append(",");
-		}
-		// Get database type
-		String databaseType = datasourceName != null && !datasourceName.trim().isEmpty()
-				? dataSourceService.getDataSourceType(datasourceName) : dataSourceService.getDataSourceType();
-
-		// Generate SQL based on database type
-		String sql = DatabaseSqlGenerator.generateIndexInfoSql(databaseType, inClause.toString());
-
-		try (Connection conn = datasourceName != null && !datasourceName.trim().isEmpty()
-				? dataSourceService.getConnection(datasourceName) : dataSourceService.getConnection();
-				PreparedStatement ps = conn.prepareStatement(sql)) {
-			for (int i = 0; i < tableNames.length; i++) {
-				ps.setString(i + 1, tableNames[i].trim());
-			}
-			try (ResultSet rs = ps.executeQuery()) {
-				// Map<tableName, Map<indexName, IndexMeta>>
-				java.util.Map<String, java.util.Map<String, IndexMeta>> tableIndexMap = new java.util.HashMap<>();
-				while (rs.next()) {
-					String tableName = rs.getString("TABLE_NAME");
-					String indexName = rs.getString("INDEX_NAME");
-					String columnName = rs.getString("COLUMN_NAME");
-					String indexType = rs.getString("INDEX_TYPE");
-					tableIndexMap.putIfAbsent(tableName, new java.util.HashMap<>());
-					java.util.Map<String, IndexMeta> indexMap = tableIndexMap.get(tableName);
-					IndexMeta indexMeta = indexMap.get(indexName);
-					if (indexMeta == null) {
-						indexMeta = new IndexMeta();
-						indexMeta.setIndexName(indexName);
-						indexMeta.setIndexType(indexType);
-						indexMeta.setRefColumnNames(new java.util.ArrayList<>());
-						indexMap.put(indexName, indexMeta);
-					}
-					indexMeta.getRefColumnNames().add(columnName);
-				}
-				// Merge all indexes from all tables into one list
-				java.util.List<IndexMeta> allIndexes = new java.util.ArrayList<>();
-				for (java.util.Map<String, IndexMeta> indexMap : tableIndexMap.values()) {
-					allIndexes.addAll(indexMap.values());
+		try {
+			SchemaMetadataCache.Schema schema = dataSourceService.getSchemaMetadataCache().getSchema(datasourceName);
+			// Merge all indexes from all requested tables into one list
+			List<IndexMeta> allIndexes = new ArrayList<>();
+			for (String tableName : text.split(",")) {
+				TableMeta tableMeta = schema.findTable(tableName.trim());
+				if (tableMeta != null) {
+					allIndexes.addAll(tableMeta.getIndexes());
 				}
-				String json = objectMapper.writeValueAsString(allIndexes);
-				log.info("GetTableIndexAction completed successfully, datasourceName={}, found {} indexes",
-						datasourceName, allIndexes.size());
-				String resultContent = "Datasource: " + (datasourceName != null ? datasourceName : "default") + "\n"
-						+ json;
-				return new ToolExecuteResult(resultContent);
 			}
+			String json = objectMapper.writeValueAsString(allIndexes);
+			log.info("GetTableIndexAction completed successfully, datasourceName={}, found {} indexes", datasourceName,
+					allIndexes.size());
+			String resultContent = "Datasource: " + (datasourceName != null ? datasourceName : "default") + "\n"
+					+ json;
+			return new ToolExecuteResult(resultContent);
 		}
 		catch (Exception e) {
 			log.error("GetTableIndexAction failed with exception, datasourceName={}, error={}", datasourceName,
@@ -21,18 +21,14 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wangliang.agentj.tools.code.ToolExecuteResult;
 import com.wangliang.agentj.tools.database.DataSourceService;
 import com.wangliang.agentj.tools.database.DatabaseRequest;
-import com.wangliang.agentj.tools.database.meta.ColumnMeta;
-import com.wangliang.agentj.tools.database.meta.IndexMeta;
+import com.wangliang.agentj.tools.database.SchemaMetadataCache;
 import com.wangliang.agentj.tools.database.meta.TableMeta;
-import com.wangliang.agentj.tools.database.sql.DatabaseSqlGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.List;
 
 public class GetTableMetaAction extends AbstractDatabaseAction {
 
@@ -49,48 +45,10 @@ public class GetTableMetaAction extends AbstractDatabaseAction {
 		String text = request.getText();
 		String datasourceName = request.getDatasourceName();
 
-		List<TableMeta> tableMetaList = new ArrayList<>();
-		Map<String, TableMeta> tableMetaMap = new LinkedHashMap<>();
-		// 1. Get table information
-		String databaseType = datasourceName != null && !datasourceName.trim().isEmpty()
-				? dataSourceService.getDataSourceType(datasourceName) : dataSourceService.getDataSourceType();
-
-		boolean fuzzy = text != null && !text.trim().isEmpty();
-		String tableSql = DatabaseSqlGenerator.generateTableInfoSql(databaseType, fuzzy, text);
-		log.info("GetTableMetaAction tableSql, datasource={}, sql={}",
-				(datasourceName != null ? datasourceName : "default"), tableSql);
-
-		try (Connection conn = datasourceName != null && !datasourceName.trim().isEmpty()
-				? dataSourceService.getConnection(datasourceName) : dataSourceService.getConnection();
-				PreparedStatement ps = conn.prepareStatement(tableSql)) {
-			if (fuzzy) {
-				ps.setString(1, "%" + text + "%");
-			}
-			try (ResultSet rs = ps.executeQuery()) {
-				while (rs.next()) {
-					String tableName = rs.getString("TABLE_NAME");
-					// Handle different column names for table comment across databases
-					String tableComment = null;
-					try {
-						tableComment = rs.getString("TABLE_COMMENT");
-					}
-					catch (SQLException e) {
-						// Fallback: try REMARKS for H2 and other databases
-						try {
-							tableComment = rs.getString("REMARKS");
-						}
-						catch (SQLException e2) {
-							log.debug("Could not read table comment for table: {}", tableName);
-						}
-					}
-					TableMeta tableMeta = new TableMeta();
-					tableMeta.setTableName(tableName);
-					tableMeta.setTableComment(tableComment);
-					tableMeta.setColumns(new ArrayList<>());
-					tableMeta.setIndexes(new ArrayList<>());
-					tableMetaMap.put(tableName, tableMeta);
-				}
-			}
+		// Table, column and index information come from the cached schema
+		SchemaMetadataCache.Schema schema;
+		try {
+			schema = dataSourceService.getSchemaMetadataCache().getSchema(datasourceName);
 		}
 		catch (SQLException e) {
 			log.error("GetTableMetaAction failed to fetch table info, datasourceName={}, error={}", datasourceName,
@@ -98,110 +56,16 @@ public class GetTableMetaAction extends AbstractDatabaseAction {
 			return new ToolExecuteResult("Datasource: " + (datasourceName != null ? datasourceName : "default")
 					+ "\nError getting table information: " + e.getMessage());
 		}
-		if (tableMetaMap.isEmpty()) {
+
+		boolean fuzzy = text != null && !text.trim().isEmpty();
+		List<TableMeta> tableMetaList = new ArrayList<>(
+				fuzzy ? schema.findByText(text) : schema.tables().values());
+		if (tableMetaList.isEmpty()) {
 			log.warn("GetTableMetaAction found no tables, datasourceName={}, fuzzy={}", datasourceName, fuzzy);
 			return new ToolExecuteResult("Datasource: " + (datasourceName != null ? datasourceName : "default")
 					+ "\nNo matching tables found");
 		}
-		// 2. Get field information
-		StringBuilder inClause = new StringBuilder();
-		for (int i = 0; i < tableMetaMap.size(); i++) {
-			inClause.append("?");
-			if (i < tableMetaMap.size() - 1)
-				inClause.append(",");
-		}
-		String columnSql = DatabaseSqlGenerator.generateColumnInfoSql(databaseType, inClause.toString());
-		log.info("GetTableMetaAction columnSql, datasource={}, sql={}, tables={}",
-				(datasourceName != null ? datasourceName : "default"), columnSql, tableMetaMap.keySet());
-		try (Connection conn = datasourceName != null && !datasourceName.trim().isEmpty()
-				? dataSourceService.getConnection(datasourceName) : dataSourceService.getConnection();
-				PreparedStatement ps = conn.prepareStatement(columnSql)) {
-			int idx = 1;
-			for (String tableName : tableMetaMap.keySet()) {
-				ps.setString(idx++, tableName);
-			}
-			try (ResultSet rs = ps.executeQuery()) {
-				while (rs.next()) {
-					String tableName = rs.getString("TABLE_NAME");
-					TableMeta tableMeta = tableMetaMap.get(tableName);
-					if (tableMeta == null)
-						continue;
-					ColumnMeta columnMeta = new ColumnMeta();
-					columnMeta.setColumnName(rs.getString("COLUMN_NAME"));
-					columnMeta.setColumnType(rs.getString("COLUMN_TYPE"));
-					columnMeta.setColumnLength(rs.getObject("CHARACTER_MAXIMUM_LENGTH") == null ? null
-							: rs.getObject("CHARACTER_MAXIMUM_LENGTH").toString());
-					columnMeta.setColumnComment(rs.getString("COLUMN_COMMENT"));
-					columnMeta.setDefaultValue(rs.getString("COLUMN_DEFAULT"));
-					columnMeta.setNotNull("NO".equals(rs.getString("IS_NULLABLE")));
-					columnMeta.setIndexes(new ArrayList<>());
-					tableMeta.getColumns().add(columnMeta);
-				}
-			}
-		}
-		catch (SQLException e) {
-			log.error("GetTableMetaAction failed to fetch column info, datasourceName={}, error={}", datasourceName,
-					e.getMessage(), e);
-			return new ToolExecuteResult("Datasource: " + (datasourceName != null ? datasourceName : "default")
-					+ "\nError getting field information: " + e.getMessage());
-		}
-		// 3. Get index information
-		String indexSql = DatabaseSqlGenerator.generateIndexInfoSql(databaseType, inClause.toString());
-		log.info("GetTableMetaAction indexSql, datasource={}, sql={}, tables={}",
-				(datasourceName != null ? datasourceName : "default"), indexSql, tableMetaMap.keySet());
-		try (Connection conn = datasourceName != null && !datasourceName.trim().isEmpty()
-				? dataSourceService.getConnection(datasourceName) : dataSourceService.getConnection();
-				PreparedStatement ps = conn.prepareStatement(indexSql)) {
-			int idx = 1;
-			for (String tableName : tableMetaMap.keySet()) {
-				ps.setString(idx++, tableName);
-			}
-			try (ResultSet rs = ps.executeQuery()) {
-				// Map<tableName, Map<indexName, IndexMeta>>
-				Map<String, Map<String, IndexMeta>> tableIndexMap = new HashMap<>();
-				while (rs.next()) {
-					String tableName = rs.getString("TABLE_NAME");
-					String indexName = rs.getString("INDEX_NAME");
-					String columnName = rs.getString("COLUMN_NAME");
-					String indexType = rs.getString("INDEX_TYPE");
-					TableMeta tableMeta = tableMetaMap.get(tableName);
-					if (tableMeta == null)
-						continue;
-					// Find the column
-					ColumnMeta refColumn = null;
-					for (ColumnMeta col : tableMeta.getColumns()) {
-						if (col.getColumnName().equals(columnName)) {
-							refColumn = col;
-							break;
-						}
-					}
-					// Group index by tableName+indexName
-					tableIndexMap.putIfAbsent(tableName, new HashMap<>());
-					Map<String, IndexMeta> indexMap = tableIndexMap.get(tableName);
-					IndexMeta indexMeta = indexMap.get(indexName);
-					if (indexMeta == null) {
-						indexMeta = new IndexMeta();
-						indexMeta.setIndexName(indexName);
-						indexMeta.setIndexType(indexType);
-						indexMeta.setRefColumnNames(new ArrayList<>());
-						indexMap.put(indexName, indexMeta);
-						tableMeta.getIndexes().add(indexMeta);
-					}
-					indexMeta.getRefColumnNames().add(columnName);
-					if (refColumn != null) {
-						refColumn.getIndexes().add(indexMeta);
-					}
-				}
-			}
-		}
-		catch (SQLException e) {
-			log.error("GetTableMetaAction failed to fetch index info, datasourceName={}, error={}", datasourceName,
-					e.getMessage(), e);
-			return new ToolExecuteResult("Datasource: " + (datasourceName != null ? datasourceName : "default")
-					+ "\nError getting index information: " + e.getMessage());
-		}
-		tableMetaList.addAll(tableMetaMap.values());
-		// 4. Return structured object
+		// Return structured object
 		try {
 			String json = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(tableMetaList);
 			log.info("GetTableMetaAction completed successfully, datasourceName={}, found {} tables", datasourceName,
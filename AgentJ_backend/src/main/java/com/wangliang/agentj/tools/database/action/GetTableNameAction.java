@@ -20,15 +20,13 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wangliang.agentj.tools.code.ToolExecuteResult;
 import com.wangliang.agentj.tools.database.DataSourceService;
 import com.wangliang.agentj.tools.database.DatabaseRequest;
+import com.wangliang.agentj.tools.database.SchemaMetadataCache;
 import com.wangliang.agentj.tools.database.meta.ColumnMeta;
 import com.wangliang.agentj.tools.database.meta.TableMeta;
-import com.wangliang.agentj.tools.database.sql.DatabaseSqlGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.util.ArrayList;
 import java.util.List;
 
 public class GetTableNameAction extends AbstractDatabaseAction {
@@ -51,57 +49,36 @@ public class GetTableNameAction extends AbstractDatabaseAction {
 			return new ToolExecuteResult("Datasource: " + (datasourceName != null ? datasourceName : "default")
 					+ "\nMissing query statement");
 		}
-		// Get database type
-		String databaseType = datasourceName != null && !datasourceName.trim().isEmpty()
-				? dataSourceService.getDataSourceType(datasourceName) : dataSourceService.getDataSourceType();
-
-		// Generate SQL based on database type
-		String sql = DatabaseSqlGenerator.generateTableInfoSql(databaseType, true, text);
-
-		try (Connection conn = datasourceName != null && !datasourceName.trim().isEmpty()
-				? dataSourceService.getConnection(datasourceName) : dataSourceService.getConnection();
-				PreparedStatement ps = conn.prepareStatement(sql)) {
-			ps.setString(1, "%" + text + "%");
-			try (ResultSet rs = ps.executeQuery()) {
-				List<TableMeta> tableMetaList = new java.util.ArrayList<>();
-				while (rs.next()) {
-					TableMeta meta = new TableMeta();
-					meta.setTableName(rs.getString("TABLE_NAME"));
-					meta.setTableComment(rs.getString("TABLE_COMMENT"));
-					meta.setColumns(new java.util.ArrayList<>());
-					meta.setIndexes(new java.util.ArrayList<>());
-					tableMetaList.add(meta);
-				}
-
-				// Get column information for each table
-				for (TableMeta tableMeta : tableMetaList) {
-					String columnSql = DatabaseSqlGenerator.generateColumnInfoSql(databaseType, "?");
-					try (PreparedStatement columnPs = conn.prepareStatement(columnSql)) {
-						columnPs.setString(1, tableMeta.getTableName());
-						try (ResultSet columnRs = columnPs.executeQuery()) {
-							while (columnRs.next()) {
-								ColumnMeta columnMeta = new ColumnMeta();
-								columnMeta.setColumnName(columnRs.getString("COLUMN_NAME"));
-								columnMeta.setColumnType(columnRs.getString("COLUMN_TYPE"));
-								columnMeta.setColumnLength(columnRs.getObject("CHARACTER_MAXIMUM_LENGTH") == null ? null
-										: columnRs.getObject("CHARACTER_MAXIMUM_LENGTH").toString());
-								columnMeta.setColumnComment(columnRs.getString("COLUMN_COMMENT"));
-								columnMeta.setDefaultValue(columnRs.getString("COLUMN_DEFAULT"));
-								columnMeta.setNotNull("NO".equals(columnRs.getString("IS_NULLABLE")));
-								columnMeta.setIndexes(new java.util.ArrayList<>());
-								tableMeta.getColumns().add(columnMeta);
-							}
-						}
-					}
+		try {
+			SchemaMetadataCache.Schema schema = dataSourceService.getSchemaMetadataCache().getSchema(datasourceName);
+			// Table names with their columns only; indexes are left to get_table_index
+			List<TableMeta> tableMetaList = new ArrayList<>();
+			for (TableMeta cached : schema.findByText(text)) {
+				TableMeta meta = new TableMeta();
+				meta.setTableName(cached.getTableName());
+				meta.setTableComment(cached.getTableComment());
+				meta.setColumns(new ArrayList<>());
+				meta.setIndexes(new ArrayList<>());
+				for (ColumnMeta cachedColumn : cached.getColumns()) {
+					ColumnMeta columnMeta = new ColumnMeta();
+					columnMeta.setColumnName(cachedColumn.getColumnName());
+					columnMeta.setColumnType(cachedColumn.getColumnType());
+					columnMeta.setColumnLength(cachedColumn.getColumnLength());
+					columnMeta.setColumnComment(cachedColumn.getColumnComment());
+					columnMeta.setDefaultValue(cachedColumn.getDefaultValue());
+					columnMeta.setNotNull(cachedColumn.getNotNull());
+					columnMeta.setIndexes(new ArrayList<>());
+					meta.getColumns().add(columnMeta);
 				}
-
-				String json = objectMapper.writeValueAsString(tableMetaList);
-				log.info("GetTableNameAction completed successfully, datasourceName={}, found {} tables",
-						datasourceName, tableMetaList.size());
-				String resultContent = "Datasource: " + (datasourceName != null ? datasourceName : "default") + "\n"
-						+ json;
-				return new ToolExecuteResult(resultContent);
+				tableMetaList.add(meta);
 			}
+
+			String json = objectMapper.writeValueAsString(tableMetaList);
+			log.info("GetTableNameAction completed successfully, datasourceName={}, found {} tables", datasourceName,
+					tableMetaList.size());
+			String resultContent = "Datasource: " + (datasourceName != null ? datasourceName : "default") + "\n"
+					+ json;
+			return new ToolExecuteResult(resultContent);
 		}
 		catch (Exception e) {
 			log.error("GetTableNameAction failed with exception, datasourceName={}, error={}", datasourceName,
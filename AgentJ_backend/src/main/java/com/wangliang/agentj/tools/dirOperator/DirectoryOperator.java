@@ -18,6 +18,8 @@ package com.wangliang.agentj.tools.dirOperator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wangliang.agentj.tools.AbstractBaseTool;
+import com.wangliang.agentj.tools.CacheableTool;
+import com.wangliang.agentj.tools.ToolCallBiFunctionDef;
 import com.wangliang.agentj.tools.code.ToolExecuteResult;
 import com.wangliang.agentj.tools.filesystem.UnifiedDirectoryManager;
 import com.wangliang.agentj.tools.i18n.ToolI18nService;
@@ -28,6 +30,7 @@ import org.springframework.stereotype.Component;
 import java.io.IOException;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
 import java.util.*;
 
 /**
@@ -35,7 +38,8 @@ import java.util.*;
  * and copying files/directories similar to Linux commands 'ls -R' and 'cp -r'
  */
 @Component
-public class DirectoryOperator extends AbstractBaseTool<DirectoryOperator.DirectoryOperationInput> {
+public class DirectoryOperator extends AbstractBaseTool<DirectoryOperator.DirectoryOperationInput>
+		implements CacheableTool<DirectoryOperator.DirectoryOperationInput> {
 
 	private static final Logger log = LoggerFactory.getLogger(DirectoryOperator.class);
 
@@ -394,6 +398,31 @@ public class DirectoryOperator extends AbstractBaseTool<DirectoryOperator.Direct
 		return "default-service-group";
 	}
 
+	/**
+	 * Only listings are cached; copies always run
+	 */
+	@Override
+	public String getCacheKey(DirectoryOperationInput input) {
+		String action = input.getAction();
+		if (!"ls".equals(action) && !"list".equals(action)) {
+			return null;
+		}
+		return input.getSourcePath() + "|" + input.getRecursive() + "|" + input.getFilePattern();
+	}
+
+	@Override
+	public Duration getCacheTtl() {
+		return Duration.ofSeconds(30);
+	}
+
+	/**
+	 * Any tool that runs without the cache may write files into the plan directory
+	 */
+	@Override
+	public boolean isInvalidatedBy(ToolCallBiFunctionDef<?> tool) {
+		return true;
+	}
+
 	@Override
 	public String getName() {
 		return TOOL_NAME;
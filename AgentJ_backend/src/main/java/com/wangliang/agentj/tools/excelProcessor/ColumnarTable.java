@@ -0,0 +1,627 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.tools.excelProcessor;
+
+import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.context.AnalysisContext;
+import com.alibaba.excel.read.listener.ReadListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Worksheet held column by column for analytical queries.
+ *
+ * The sheet is streamed once with EasyExcel; the first non-empty row names the columns.
+ * Each column is typed while loading: it starts as integers in a {@code long[]}, widens
+ * to a {@code double[]} at the first decimal and falls back to dictionary encoded
+ * strings ({@code int[]} codes into a table of distinct values) at the first value that
+ * is not a plain number. Empty cells are tracked in a bitmap. A million rows with a
+ * dozen columns fit in a few tens of megabytes, against gigabytes as row lists.
+ */
+public final class ColumnarTable {
+
+	private static final Logger log = LoggerFactory.getLogger(ColumnarTable.class);
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	enum ColumnType {
+
+		LONG, DOUBLE, STRING
+
+	}
+
+	private final Path source;
+
+	private final String worksheetName;
+
+	private final long sourceModifiedTime;
+
+	private final long sourceSize;
+
+	private final List<Column> columns;
+
+	private final Map<String, Column> columnsByName;
+
+	private final int rowCount;
+
+	private ColumnarTable(Path source, String worksheetName, long sourceModifiedTime, long sourceSize,
+			List<Column> columns, int rowCount) {
+		this.source = source;
+		this.worksheetName = worksheetName;
+		this.sourceModifiedTime = sourceModifiedTime;
+		this.sourceSize = sourceSize;
+		this.columns = List.copyOf(columns);
+		this.rowCount = rowCount;
+		Map<String, Column> byName = new LinkedHashMap<>();
+		for (Column column : columns) {
+			byName.put(column.name(), column);
+		}
+		this.columnsByName = byName;
+	}
+
+	/**
+	 * Load a worksheet, or the whole file for CSV
+	 * @param source Spreadsheet file
+	 * @param worksheetName Worksheet to load, null for the first one
+	 * @param maxCells Upper bound of rows times columns, to keep one sheet from taking the
+	 * heap
+	 * @return Loaded table
+	 * @throws IOException if the file cannot be read or is larger than allowed
+	 */
+	static ColumnarTable load(Path source, String worksheetName, long maxCells) throws IOException {
+		long modifiedTime = Files.getLastModifiedTime(source).toMillis();
+		long size = Files.size(source);
+		long start = System.nanoTime();
+
+		List<ColumnBuilder> builders = new ArrayList<>();
+		int[] rows = new int[1];
+		boolean[] headerRead = new boolean[1];
+		ReadListener<Map<Integer, String>> listener = new ReadListener<>() {
+			@Override
+			public void invoke(Map<Integer, String> data, AnalysisContext context) {
+				if (!headerRead[0]) {
+					List<String> header = ExcelProcessingService.toRowList(data);
+					Set<String> names = new HashSet<>();
+					for (int i = 0; i < header.size(); i++) {
+						builders.add(new ColumnBuilder(columnName(header.get(i), i, names), 0));
+					}
+					headerRead[0] = true;
+					return;
+				}
+				for (Map.Entry<Integer, String> cell : data.entrySet()) {
+					if (cell.getKey() >= builders.size() && cell.getValue() != null && !cell.getValue().isEmpty()) {
+						// Cells right of the header get generated names
+						Set<String> names = new HashSet<>();
+						builders.forEach(builder -> names.add(builder.name));
+						while (builders.size() <= cell.getKey()) {
+							builders.add(new ColumnBuilder(columnName(null, builders.size(), names), rows[0]));
+						}
+					}
+				}
+				for (int i = 0; i < builders.size(); i++) {
+					builders.get(i).add(data.get(i));
+				}
+				rows[0]++;
+				if ((long) rows[0] * builders.size() > maxCells) {
+					throw new SheetTooLargeException(
+							"Sheet has more than " + maxCells + " cells, query a smaller file or split it first");
+				}
+			}
+
+			@Override
+			public void doAfterAllAnalysed(AnalysisContext context) {
+				// Sheet loaded
+			}
+		};
+
+		try {
+			if (source.toString().toLowerCase().endsWith(".csv")) {
+				EasyExcel.read(source.toFile(), listener).sheet().headRowNumber(0).doRead();
+			}
+			else if (worksheetName == null || worksheetName.isBlank()) {
+				EasyExcel.read(source.toFile(), listener).sheet(0).headRowNumber(0).doRead();
+			}
+			else {
+				EasyExcel.read(source.toFile(), listener).sheet(worksheetName).headRowNumber(0).doRead();
+			}
+		}
+		catch (RuntimeException e) {
+			// EasyExcel wraps exceptions thrown by listeners
+			for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+				if (cause instanceof SheetTooLargeException) {
+					throw new IOException(cause.getMessage());
+				}
+			}
+			throw new IOException("Failed to read " + source.getFileName() + ": " + e.getMessage(), e);
+		}
+
+		List<Column> columns = new ArrayList<>(builders.size());
+		for (ColumnBuilder builder : builders) {
+			columns.add(builder.build(rows[0]));
+		}
+		ColumnarTable table = new ColumnarTable(source, worksheetName, modifiedTime, size, columns, rows[0]);
+		log.info("Loaded {} rows x {} columns of {} into columnar form in {} ms (~{} KB)", rows[0], columns.size(),
+				source.getFileName(), (System.nanoTime() - start) / 1_000_000, table.estimateBytes() / 1024);
+		return table;
+	}
+
+	private static String columnName(String header, int index, Set<String> taken) {
+		String base = header == null || header.isBlank() ? "column_" + (index + 1) : header.trim();
+		String name = base;
+		for (int n = 2; !taken.add(name); n++) {
+			name = base + "_" + n;
+		}
+		return name;
+	}
+
+	/**
+	 * Whether the file is unchanged since the table was loaded
+	 */
+	boolean isCurrent() {
+		try {
+			return Files.getLastModifiedTime(source).toMillis() == sourceModifiedTime
+					&& Files.size(source) == sourceSize;
+		}
+		catch (IOException e) {
+			return false;
+		}
+	}
+
+	String getWorksheetName() {
+		return worksheetName;
+	}
+
+	int getRowCount() {
+		return rowCount;
+	}
+
+	List<Column> getColumns() {
+		return columns;
+	}
+
+	/**
+	 * Look up a column by name, ignoring case when there is no exact match
+	 */
+	Column column(String name) {
+		Column column = columnsByName.get(name);
+		if (column == null && name != null) {
+			for (Column candidate : columns) {
+				if (candidate.name().equalsIgnoreCase(name.trim())) {
+					return candidate;
+				}
+			}
+		}
+		if (column == null) {
+			throw new IllegalArgumentException("Unknown column: " + name + ". Columns: " + columnsByName.keySet());
+		}
+		return column;
+	}
+
+	long estimateBytes() {
+		long total = 64;
+		for (Column column : columns) {
+			total += column.estimateBytes();
+		}
+		return total;
+	}
+
+	/**
+	 * One column of the table
+	 */
+	abstract static sealed class Column permits LongColumn, DoubleColumn, StringColumn {
+
+		private final String name;
+
+		private final BitSet nulls;
+
+		Column(String name, BitSet nulls) {
+			this.name = name;
+			this.nulls = nulls;
+		}
+
+		String name() {
+			return name;
+		}
+
+		boolean isNull(int row) {
+			return nulls.get(row);
+		}
+
+		int nullCount() {
+			return nulls.cardinality();
+		}
+
+		abstract ColumnType type();
+
+		/**
+		 * Numeric value of a row, NaN for strings
+		 */
+		abstract double number(int row);
+
+		/**
+		 * Boxed value of a row (Long, Double or String), null for empty cells
+		 */
+		abstract Object value(int row);
+
+		abstract long estimateBytes();
+
+	}
+
+	static final class LongColumn extends Column {
+
+		private final long[] values;
+
+		LongColumn(String name, BitSet nulls, long[] values) {
+			super(name, nulls);
+			this.values = values;
+		}
+
+		long longValue(int row) {
+			return values[row];
+		}
+
+		@Override
+		ColumnType type() {
+			return ColumnType.LONG;
+		}
+
+		@Override
+		double number(int row) {
+			return values[row];
+		}
+
+		@Override
+		Object value(int row) {
+			return isNull(row) ? null : values[row];
+		}
+
+		@Override
+		long estimateBytes() {
+			return 8L * values.length + 64;
+		}
+
+	}
+
+	static final class DoubleColumn extends Column {
+
+		private final double[] values;
+
+		DoubleColumn(String name, BitSet nulls, double[] values) {
+			super(name, nulls);
+			this.values = values;
+		}
+
+		@Override
+		ColumnType type() {
+			return ColumnType.DOUBLE;
+		}
+
+		@Override
+		double number(int row) {
+			return values[row];
+		}
+
+		@Override
+		Object value(int row) {
+			return isNull(row) ? null : values[row];
+		}
+
+		@Override
+		long estimateBytes() {
+			return 8L * values.length + 64;
+		}
+
+	}
+
+	static final class StringColumn extends Column {
+
+		private final int[] codes;
+
+		private final String[] dictionary;
+
+		// Position of each dictionary entry in sort order, built on first use
+		private volatile int[] ranks;
+
+		StringColumn(String name, BitSet nulls, int[] codes, String[] dictionary) {
+			super(name, nulls);
+			this.codes = codes;
+			this.dictionary = dictionary;
+		}
+
+		int code(int row) {
+			return codes[row];
+		}
+
+		String[] dictionary() {
+			return dictionary;
+		}
+
+		int[] ranks() {
+			int[] result = ranks;
+			if (result == null) {
+				Integer[] order = new Integer[dictionary.length];
+				for (int i = 0; i < order.length; i++) {
+					order[i] = i;
+				}
+				Arrays.sort(order, (a, b) -> dictionary[a].compareTo(dictionary[b]));
+				result = new int[dictionary.length];
+				for (int i = 0; i < order.length; i++) {
+					result[order[i]] = i;
+				}
+				ranks = result;
+			}
+			return result;
+		}
+
+		@Override
+		ColumnType type() {
+			return ColumnType.STRING;
+		}
+
+		@Override
+		double number(int row) {
+			return Double.NaN;
+		}
+
+		@Override
+		Object value(int row) {
+			return isNull(row) ? null : dictionary[codes[row]];
+		}
+
+		@Override
+		long estimateBytes() {
+			long total = 4L * codes.length + 64;
+			for (String value : dictionary) {
+				total += 40 + 2L * value.length();
+			}
+			return total;
+		}
+
+	}
+
+	/**
+	 * Collects the values of one column while the sheet streams in
+	 */
+	private static final class ColumnBuilder {
+
+		private final String name;
+
+		private final BitSet nulls = new BitSet();
+
+		private ColumnType type = ColumnType.LONG;
+
+		private long[] longs = new long[INITIAL_CAPACITY];
+
+		private double[] doubles;
+
+		private int[] codes;
+
+		private List<String> dictionary;
+
+		private Map<String, Integer> codeOf;
+
+		private int size;
+
+		/**
+		 * @param leadingNulls Rows loaded before the column appeared
+		 */
+		ColumnBuilder(String name, int leadingNulls) {
+			this.name = name;
+			for (int i = 0; i < leadingNulls; i++) {
+				add(null);
+			}
+		}
+
+		void add(String raw) {
+			ensureCapacity(size + 1);
+			if (raw == null || raw.isBlank()) {
+				nulls.set(size++);
+				return;
+			}
+			String text = raw.trim();
+			if (type == ColumnType.LONG) {
+				if (isPlainLong(text)) {
+					longs[size++] = Long.parseLong(text);
+					return;
+				}
+				if (isPlainDecimal(text)) {
+					toDoubles();
+				}
+				else {
+					toStrings();
+				}
+			}
+			if (type == ColumnType.DOUBLE) {
+				if (isPlainDecimal(text)) {
+					doubles[size++] = Double.parseDouble(text);
+					return;
+				}
+				toStrings();
+			}
+			codes[size++] = encode(canonicalText(text));
+		}
+
+		private int encode(String value) {
+			Integer code = codeOf.get(value);
+			if (code == null) {
+				code = dictionary.size();
+				dictionary.add(value);
+				codeOf.put(value, code);
+			}
+			return code;
+		}
+
+		private void ensureCapacity(int capacity) {
+			int current = switch (type) {
+				case LONG -> longs.length;
+				case DOUBLE -> doubles.length;
+				case STRING -> codes.length;
+			};
+			if (capacity <= current) {
+				return;
+			}
+			int grown = Math.max(capacity, current + (current >> 1));
+			switch (type) {
+				case LONG -> longs = Arrays.copyOf(longs, grown);
+				case DOUBLE -> doubles = Arrays.copyOf(doubles, grown);
+				case STRING -> codes = Arrays.copyOf(codes, grown);
+			}
+		}
+
+		private void toDoubles() {
+			doubles = new double[longs.length];
+			for (int i = 0; i < size; i++) {
+				doubles[i] = longs[i];
+			}
+			longs = null;
+			type = ColumnType.DOUBLE;
+		}
+
+		private void toStrings() {
+			int capacity = type == ColumnType.LONG ? longs.length : doubles.length;
+			codes = new int[capacity];
+			dictionary = new ArrayList<>();
+			codeOf = new HashMap<>();
+			for (int i = 0; i < size; i++) {
+				if (!nulls.get(i)) {
+					codes[i] = encode(type == ColumnType.LONG ? Long.toString(longs[i]) : decimalText(doubles[i]));
+				}
+			}
+			longs = null;
+			doubles = null;
+			type = ColumnType.STRING;
+		}
+
+		Column build(int rowCount) {
+			while (size < rowCount) {
+				add(null);
+			}
+			return switch (type) {
+				case LONG -> new LongColumn(name, nulls, Arrays.copyOf(longs, size));
+				case DOUBLE -> new DoubleColumn(name, nulls, Arrays.copyOf(doubles, size));
+				case STRING -> new StringColumn(name, nulls, Arrays.copyOf(codes, size),
+						dictionary.toArray(new String[0]));
+			};
+		}
+
+	}
+
+	/**
+	 * Integers without leading zeros, so codes like "007" stay text
+	 */
+	static boolean isPlainLong(String text) {
+		int start = text.charAt(0) == '-' ? 1 : 0;
+		int digits = text.length() - start;
+		if (digits == 0 || digits > 18 || (digits > 1 && text.charAt(start) == '0')) {
+			return false;
+		}
+		for (int i = start; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c < '0' || c > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Decimal numbers in plain or scientific notation, without the NaN, Infinity and hex
+	 * forms {@link Double#parseDouble} also accepts
+	 */
+	static boolean isPlainDecimal(String text) {
+		int start = text.charAt(0) == '-' ? 1 : 0;
+		if (start == text.length() || text.length() > 32) {
+			return false;
+		}
+		char first = text.charAt(start);
+		if ((first < '0' || first > '9') && first != '.') {
+			return false;
+		}
+		if (first == '0' && text.length() > start + 1 && text.charAt(start + 1) != '.' && text.charAt(start + 1) != 'e'
+				&& text.charAt(start + 1) != 'E') {
+			return false;
+		}
+		boolean digit = false;
+		for (int i = start; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c >= '0' && c <= '9') {
+				digit = true;
+			}
+			else if (c != '.' && c != 'e' && c != 'E' && c != '-' && c != '+') {
+				return false;
+			}
+		}
+		if (!digit) {
+			return false;
+		}
+		try {
+			Double.parseDouble(text);
+			return true;
+		}
+		catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	static String decimalText(double value) {
+		return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+	}
+
+	/**
+	 * Text of a cell in a text column. Numbers are written the way a numeric column
+	 * renders them, so "1.0" read before and after the column turned into text shares
+	 * one dictionary entry
+	 * @param text Trimmed cell text
+	 */
+	static String canonicalText(String text) {
+		if (text.isEmpty()) {
+			return text;
+		}
+		if (isPlainLong(text)) {
+			return Long.toString(Long.parseLong(text));
+		}
+		if (isPlainDecimal(text)) {
+			return decimalText(Double.parseDouble(text));
+		}
+		return text;
+	}
+
+	/**
+	 * Stops the read once the sheet is larger than allowed
+	 */
+	private static final class SheetTooLargeException extends RuntimeException {
+
+		SheetTooLargeException(String message) {
+			super(message);
+		}
+
+	}
+
+}
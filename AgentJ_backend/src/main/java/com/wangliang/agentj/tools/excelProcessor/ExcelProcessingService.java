@@ -16,11 +16,18 @@
 package com.wangliang.agentj.tools.excelProcessor;
 
 import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.ExcelReader;
+import com.alibaba.excel.ExcelWriter;
 import com.alibaba.excel.context.AnalysisContext;
 import com.alibaba.excel.read.listener.PageReadListener;
 import com.alibaba.excel.read.listener.ReadListener;
+import com.alibaba.excel.read.metadata.ReadSheet;
+import com.alibaba.excel.write.metadata.WriteSheet;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wangliang.agentj.runtime.service.PlanScopedState;
+import com.wangliang.agentj.runtime.service.PlanStateRegistry;
 import com.wangliang.agentj.tools.filesystem.UnifiedDirectoryManager;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.usermodel.Font;
 import org.apache.poi.xssf.streaming.SXSSFWorkbook;
@@ -31,8 +38,10 @@ import org.springframework.stereotype.Service;
 
 import java.awt.*;
 import java.io.*;
+import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
@@ -60,19 +69,34 @@ public class ExcelProcessingService implements IExcelProcessingService {
 	private final UnifiedDirectoryManager unifiedDirectoryManager;
 
 	// Plan processing status tracking
-	private final Map<String, Map<String, Object>> planProcessingStatus = new ConcurrentHashMap<>();
+	private final PlanScopedState<Map<String, Object>> planProcessingStatus;
 
-	// Plan file states tracking
-	private final Map<String, Map<String, Object>> planFileStates = new ConcurrentHashMap<>();
+	// Plan file states tracking; evicting a plan also drops its row indexes
+	private final PlanScopedState<Map<String, Object>> planFileStates;
 
 	// Performance metrics tracking
-	private final Map<String, Map<String, Object>> performanceMetrics = new ConcurrentHashMap<>();
+	private final PlanScopedState<Map<String, Object>> performanceMetrics;
 
 	// JSON mapper for export
 	private final ObjectMapper jsonMapper = new ObjectMapper();
 
-	public ExcelProcessingService(UnifiedDirectoryManager unifiedDirectoryManager) {
+	// Maximum number of worksheet row indexes kept at the same time
+	private static final int MAX_ROW_INDEXES = 32;
+
+	private static final String ROW_INDEX_DIR = "excel_index";
+
+	// Sidecar row indexes keyed by normalized file path and worksheet name
+	private final Map<String, ExcelRowIndex> rowIndexes = new ConcurrentHashMap<>();
+
+	public ExcelProcessingService(UnifiedDirectoryManager unifiedDirectoryManager,
+			PlanStateRegistry planStateRegistry) {
 		this.unifiedDirectoryManager = unifiedDirectoryManager;
+		this.planProcessingStatus = planStateRegistry.<Map<String, Object>>newScope("excel.processingStatus").build();
+		this.planFileStates = planStateRegistry.<Map<String, Object>>newScope("excel.fileStates")
+			.weigher(states -> states.size() * 256L)
+			.onEvict((planId, states) -> releaseRowIndexes(planId))
+			.build();
+		this.performanceMetrics = planStateRegistry.<Map<String, Object>>newScope("excel.performanceMetrics").build();
 	}
 
 	@Override
@@ -213,9 +237,20 @@ public class ExcelProcessingService implements IExcelProcessingService {
 		List<List<String>> data = new ArrayList<>();
 		long fileSize = Files.size(absolutePath);
 
-		// Use streaming read for large files
+		// Serve large files from the sidecar row index, built on first access
 		if (fileSize > LARGE_FILE_THRESHOLD) {
-			return readLargeExcelData(planId, absolutePath, worksheetName, startRow, endRow, maxRows);
+			try {
+				List<List<String>> page = getRowIndex(absolutePath, worksheetName).read(startRow, endRow, maxRows);
+				updateFileState(planId, absolutePath.toString(), "indexed");
+				log.debug("Read {} rows from row index of worksheet: {} in file: {}", page.size(), worksheetName,
+						absolutePath);
+				return page;
+			}
+			catch (IOException e) {
+				log.warn("Row index unavailable for {} [{}], falling back to streaming read: {}", absolutePath,
+						worksheetName, e.getMessage());
+				return readLargeExcelData(planId, absolutePath, worksheetName, startRow, endRow, maxRows);
+			}
 		}
 
 		try (FileInputStream fis = new FileInputStream(absolutePath.toFile());
@@ -1005,14 +1040,28 @@ public class ExcelProcessingService implements IExcelProcessingService {
 	}
 
 	@Override
-	public void updateExcelCells(String planId, String filePath, String worksheetName, Map<String, String> updates)
-			throws IOException {
+	public List<String> updateExcelCells(String planId, String filePath, String worksheetName,
+			Map<String, String> updates) throws IOException {
 		Path absolutePath = validateFilePath(planId, filePath);
 
 		if (!Files.exists(absolutePath)) {
 			throw new IOException("File does not exist: " + absolutePath);
 		}
 
+		if (useStreamingRewrite(absolutePath)) {
+			Map<Integer, Map<Integer, String>> cellUpdates = new HashMap<>();
+			for (Map.Entry<String, String> entry : updates.entrySet()) {
+				int[] coordinates = parseCellAddress(entry.getKey());
+				cellUpdates.computeIfAbsent(coordinates[0], k -> new HashMap<>()).put(coordinates[1], entry.getValue());
+			}
+			List<String> replacedFormulas = rewriteWorksheetStreaming(absolutePath, worksheetName,
+					Collections.emptyNavigableSet(), cellUpdates);
+			updateFileState(planId, filePath, "cells_updated");
+			log.info("Updated {} cells in worksheet: {} in file: {} (streaming)", updates.size(), worksheetName,
+					absolutePath);
+			return replacedFormulas;
+		}
+
 		try (FileInputStream fis = new FileInputStream(absolutePath.toFile());
 				Workbook workbook = WorkbookFactory.create(fis)) {
 
@@ -1053,6 +1102,7 @@ public class ExcelProcessingService implements IExcelProcessingService {
 
 		updateFileState(planId, filePath, "cells_updated");
 		log.info("Updated {} cells in worksheet: {} in file: {}", updates.size(), worksheetName, absolutePath);
+		return List.of();
 	}
 
 	@Override
@@ -1065,83 +1115,147 @@ public class ExcelProcessingService implements IExcelProcessingService {
 		}
 
 		List<Map<String, Object>> results = new ArrayList<>();
+		List<String> headers = new ArrayList<>();
 
-		try (FileInputStream fis = new FileInputStream(absolutePath.toFile());
-				Workbook workbook = WorkbookFactory.create(fis)) {
-
-			Sheet sheet = workbook.getSheet(worksheetName);
-			if (sheet == null) {
-				throw new IOException("Worksheet not found: " + worksheetName);
+		scanMatchingRows(absolutePath, worksheetName, keywords, searchColumns, new MatchConsumer() {
+			@Override
+			public void onHeaders(List<String> headerRow) {
+				headers.addAll(headerRow);
 			}
 
-			// Get header row to map column names
-			Row headerRow = sheet.getRow(0);
-			if (headerRow == null) {
-				return results; // No data to search
+			@Override
+			public void onMatch(int rowIndex, List<String> row) {
+				Map<String, Object> rowData = new LinkedHashMap<>();
+				for (int colIndex = 0; colIndex < headers.size(); colIndex++) {
+					rowData.put(headers.get(colIndex), colIndex < row.size() ? row.get(colIndex) : "");
+				}
+				rowData.put("_rowIndex", rowIndex);
+				results.add(rowData);
 			}
+		});
 
-			List<String> headers = new ArrayList<>();
-			for (Cell cell : headerRow) {
-				headers.add(getCellValueAsString(cell));
-			}
+		updateFileState(planId, filePath, "data_searched");
+		log.info("Found {} matching rows in worksheet: {} in file: {}", results.size(), worksheetName, absolutePath);
 
-			// Determine which columns to search
-			Set<Integer> searchColumnIndices = new HashSet<>();
-			if (searchColumns == null || searchColumns.isEmpty()) {
-				// Search all columns
-				for (int i = 0; i < headers.size(); i++) {
-					searchColumnIndices.add(i);
+		return results;
+	}
+
+	@Override
+	public int exportSearchResults(String planId, String filePath, String worksheetName, List<String> keywords,
+			List<String> searchColumns, String outputPath) throws IOException {
+		Path absolutePath = validateFilePath(planId, filePath);
+		Path outputAbsolutePath = validateFilePath(planId, outputPath);
+
+		if (!Files.exists(absolutePath)) {
+			throw new IOException("File does not exist: " + absolutePath);
+		}
+		if (!isSupportedFileType(outputPath)) {
+			throw new IOException("Unsupported output file type. Only .xlsx, .xls, and .csv files are supported.");
+		}
+
+		AtomicInteger matchCount = new AtomicInteger(0);
+		List<List<Object>> buffer = new ArrayList<>(DEFAULT_BATCH_SIZE);
+
+		try (ExcelWriter writer = EasyExcel.write(outputAbsolutePath.toFile()).build()) {
+			WriteSheet writeSheet = EasyExcel.writerSheet(0, worksheetName).build();
+
+			scanMatchingRows(absolutePath, worksheetName, keywords, searchColumns, new MatchConsumer() {
+				@Override
+				public void onHeaders(List<String> headerRow) {
+					buffer.add(new ArrayList<>(headerRow));
 				}
-			}
-			else {
-				// Search specified columns
-				for (String columnName : searchColumns) {
-					int index = headers.indexOf(columnName);
-					if (index >= 0) {
-						searchColumnIndices.add(index);
+
+				@Override
+				public void onMatch(int rowIndex, List<String> row) {
+					buffer.add(new ArrayList<>(row));
+					matchCount.incrementAndGet();
+					if (buffer.size() >= DEFAULT_BATCH_SIZE) {
+						writer.write(buffer, writeSheet);
+						buffer.clear();
 					}
 				}
+			});
+
+			if (!buffer.isEmpty() || matchCount.get() == 0) {
+				writer.write(buffer, writeSheet);
 			}
+		}
 
-			// Search through data rows
-			for (int rowIndex = 1; rowIndex <= sheet.getLastRowNum(); rowIndex++) {
-				Row row = sheet.getRow(rowIndex);
-				if (row == null)
-					continue;
+		updateFileState(planId, outputPath, "search_exported");
+		log.info("Exported {} matching rows from worksheet: {} in file: {} to {}", matchCount.get(), worksheetName,
+				absolutePath, outputAbsolutePath);
+		return matchCount.get();
+	}
 
-				boolean matchFound = false;
-				Map<String, Object> rowData = new HashMap<>();
+	/**
+	 * Callback for {@link #scanMatchingRows}
+	 */
+	private interface MatchConsumer {
 
-				// Build row data map
-				for (int colIndex = 0; colIndex < headers.size(); colIndex++) {
-					Cell cell = row.getCell(colIndex);
-					String cellValue = getCellValueAsString(cell);
-					rowData.put(headers.get(colIndex), cellValue);
-
-					// Check if this cell matches any keyword (if it's a search column)
-					if (searchColumnIndices.contains(colIndex)) {
-						for (String keyword : keywords) {
-							if (cellValue.toLowerCase().contains(keyword.toLowerCase())) {
-								matchFound = true;
-								break;
+		void onHeaders(List<String> headers);
+
+		void onMatch(int rowIndex, List<String> row);
+
+	}
+
+	/**
+	 * Stream a worksheet with EasyExcel and report rows where any of the search columns
+	 * contains one of the keywords (case-insensitive). The first row is treated as the
+	 * header row; only the current row is held in memory.
+	 */
+	private void scanMatchingRows(Path absolutePath, String worksheetName, List<String> keywords,
+			List<String> searchColumns, MatchConsumer consumer) throws IOException {
+		List<String> lowerKeywords = keywords.stream().map(String::toLowerCase).collect(Collectors.toList());
+		Set<Integer> searchColumnIndices = new HashSet<>();
+		boolean[] headerSeen = new boolean[1];
+
+		try {
+			doReadSheet(absolutePath, worksheetName, new ReadListener<Map<Integer, String>>() {
+				@Override
+				public void invoke(Map<Integer, String> data, AnalysisContext context) {
+					List<String> row = toRowList(data);
+					if (!headerSeen[0]) {
+						headerSeen[0] = true;
+						if (searchColumns == null || searchColumns.isEmpty()) {
+							for (int i = 0; i < row.size(); i++) {
+								searchColumnIndices.add(i);
+							}
+						}
+						else {
+							for (String columnName : searchColumns) {
+								int index = row.indexOf(columnName);
+								if (index >= 0) {
+									searchColumnIndices.add(index);
+								}
+							}
+						}
+						consumer.onHeaders(row);
+						return;
+					}
+
+					for (Integer colIndex : searchColumnIndices) {
+						if (colIndex >= row.size()) {
+							continue;
+						}
+						String cellValue = row.get(colIndex).toLowerCase();
+						for (String keyword : lowerKeywords) {
+							if (cellValue.contains(keyword)) {
+								consumer.onMatch(context.readRowHolder().getRowIndex(), row);
+								return;
 							}
 						}
 					}
-					if (matchFound)
-						break;
 				}
 
-				if (matchFound) {
-					rowData.put("_rowIndex", rowIndex);
-					results.add(rowData);
+				@Override
+				public void doAfterAllAnalysed(AnalysisContext context) {
+					// Scan complete
 				}
-			}
+			});
+		}
+		catch (RuntimeException e) {
+			throw new IOException("Failed to search worksheet " + worksheetName + ": " + e.getMessage(), e);
 		}
-
-		updateFileState(planId, filePath, "data_searched");
-		log.info("Found {} matching rows in worksheet: {} in file: {}", results.size(), worksheetName, absolutePath);
-
-		return results;
 	}
 
 	@Override
@@ -1157,6 +1271,14 @@ public class ExcelProcessingService implements IExcelProcessingService {
 			return; // Nothing to delete
 		}
 
+		if (useStreamingRewrite(absolutePath)) {
+			rewriteWorksheetStreaming(absolutePath, worksheetName, new TreeSet<>(rowIndices), Collections.emptyMap());
+			updateFileState(planId, filePath, "rows_deleted");
+			log.info("Deleted {} rows from worksheet: {} in file: {} (streaming)", rowIndices.size(), worksheetName,
+					absolutePath);
+			return;
+		}
+
 		try (FileInputStream fis = new FileInputStream(absolutePath.toFile());
 				Workbook workbook = WorkbookFactory.create(fis)) {
 
@@ -1373,6 +1495,237 @@ public class ExcelProcessingService implements IExcelProcessingService {
 		log.info("Added {} formulas to worksheet: {} in file: {}", formulas.size(), worksheetName, absolutePath);
 	}
 
+	/**
+	 * Whether row updates and deletions should stream the file instead of loading it
+	 * into a POI workbook: CSV files, and .xlsx files above {@link #LARGE_FILE_THRESHOLD},
+	 * which {@link XlsxSheetRewriter} edits in place without touching other content.
+	 * Smaller workbooks and .xls files keep the DOM path.
+	 */
+	private boolean useStreamingRewrite(Path absolutePath) throws IOException {
+		String name = absolutePath.toString().toLowerCase();
+		return name.endsWith(".csv") || (name.endsWith(".xlsx") && Files.size(absolutePath) > LARGE_FILE_THRESHOLD);
+	}
+
+	/**
+	 * Rewrite a worksheet without loading the file. Rows listed in {@code deletedRows}
+	 * are dropped (later rows shift up) and {@code cellUpdates} (row -> column -> value)
+	 * are applied. .xlsx files go through {@link XlsxSheetRewriter}, which copies all
+	 * other content verbatim; CSV files are rewritten with EasyExcel. The result is
+	 * written to a temporary sibling and moved over the original, so a failure leaves the
+	 * original file intact.
+	 * @return Addresses of updated cells whose formulas were replaced by values
+	 */
+	private List<String> rewriteWorksheetStreaming(Path absolutePath, String worksheetName,
+			NavigableSet<Integer> deletedRows, Map<Integer, Map<Integer, String>> cellUpdates) throws IOException {
+		boolean csv = absolutePath.toString().toLowerCase().endsWith(".csv");
+		String fileName = absolutePath.getFileName().toString();
+		Path tempPath = absolutePath.resolveSibling("." + System.nanoTime() + "-" + fileName);
+
+		if (!csv) {
+			try {
+				List<String> replacedFormulas = XlsxSheetRewriter.rewrite(absolutePath, tempPath, worksheetName,
+						deletedRows, cellUpdates);
+				Files.move(tempPath, absolutePath, StandardCopyOption.REPLACE_EXISTING);
+				return replacedFormulas;
+			}
+			finally {
+				Files.deleteIfExists(tempPath);
+			}
+		}
+
+		List<String> sheetNames = listSheetNames(absolutePath);
+		int maxUpdatedRow = cellUpdates.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1);
+
+		try {
+			try (ExcelWriter writer = EasyExcel.write(tempPath.toFile()).build()) {
+				WriteSheet writeSheet = EasyExcel.writerSheet(0, sheetNames.isEmpty() ? worksheetName : sheetNames.get(0))
+					.build();
+				List<List<Object>> buffer = new ArrayList<>(DEFAULT_BATCH_SIZE);
+				int[] nextSourceRow = new int[1];
+
+				RowSink sink = (sourceRow, row) -> {
+					if (deletedRows.contains(sourceRow)) {
+						return;
+					}
+					Map<Integer, String> updates = cellUpdates.get(sourceRow);
+					if (updates != null) {
+						row = new ArrayList<>(row);
+						for (Map.Entry<Integer, String> update : updates.entrySet()) {
+							while (row.size() <= update.getKey()) {
+								row.add("");
+							}
+							row.set(update.getKey(), update.getValue());
+						}
+					}
+					buffer.add(toCellValues(row));
+					if (buffer.size() >= DEFAULT_BATCH_SIZE) {
+						writer.write(buffer, writeSheet);
+						buffer.clear();
+					}
+				};
+
+				doReadSheet(absolutePath, worksheetName, new ReadListener<Map<Integer, String>>() {
+					@Override
+					public void invoke(Map<Integer, String> data, AnalysisContext context) {
+						int sourceRow = context.readRowHolder().getRowIndex();
+						// EasyExcel skips blank rows; emit them so row positions are kept
+						while (nextSourceRow[0] < sourceRow) {
+							sink.accept(nextSourceRow[0]++, Collections.emptyList());
+						}
+						sink.accept(sourceRow, toRowList(data));
+						nextSourceRow[0] = sourceRow + 1;
+					}
+
+					@Override
+					public void doAfterAllAnalysed(AnalysisContext context) {
+						// File copied
+					}
+				});
+
+				// Updates may address rows past the end of the file
+				while (nextSourceRow[0] <= maxUpdatedRow) {
+					sink.accept(nextSourceRow[0]++, Collections.emptyList());
+				}
+
+				// Always write once so an empty file is still created
+				writer.write(buffer, writeSheet);
+			}
+			catch (RuntimeException e) {
+				throw new IOException("Failed to rewrite worksheet " + worksheetName + ": " + e.getMessage(), e);
+			}
+
+			Files.move(tempPath, absolutePath, StandardCopyOption.REPLACE_EXISTING);
+		}
+		finally {
+			Files.deleteIfExists(tempPath);
+		}
+		return List.of();
+	}
+
+	/**
+	 * Receives rows of a worksheet during a streaming rewrite
+	 */
+	@FunctionalInterface
+	private interface RowSink {
+
+		void accept(int sourceRow, List<String> row);
+
+	}
+
+	/**
+	 * Convert read cell strings back to typed values the same way {@link #setCellValue}
+	 * does, but only when the string survives the round trip (so "007" stays text)
+	 */
+	private static List<Object> toCellValues(List<String> row) {
+		List<Object> values = new ArrayList<>(row.size());
+		for (String value : row) {
+			values.add(toCellValue(value));
+		}
+		return values;
+	}
+
+	static Object toCellValue(String value) {
+		if (value == null || value.isEmpty()) {
+			return "";
+		}
+		if ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) {
+			return Boolean.parseBoolean(value);
+		}
+		return parsePlainNumber(value);
+	}
+
+	private static Object parsePlainNumber(String value) {
+		char first = value.charAt(0);
+		if (first != '-' && (first < '0' || first > '9')) {
+			return value;
+		}
+		try {
+			BigDecimal number = new BigDecimal(value);
+			return number.toPlainString().equals(value) ? number : value;
+		}
+		catch (NumberFormatException e) {
+			return value;
+		}
+	}
+
+	/**
+	 * Convert an EasyExcel row map to a dense list ordered by column, with blank cells as
+	 * empty strings
+	 */
+	static List<String> toRowList(Map<Integer, String> data) {
+		int width = data.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1) + 1;
+		List<String> row = new ArrayList<>(width);
+		for (int i = 0; i < width; i++) {
+			String value = data.get(i);
+			row.add(value != null ? value : "");
+		}
+		return row;
+	}
+
+	/**
+	 * Stream one worksheet (or the whole file for CSV) with all rows, header included,
+	 * delivered to the listener
+	 */
+	private void doReadSheet(Path absolutePath, String worksheetName, ReadListener<Map<Integer, String>> listener) {
+		if (absolutePath.toString().toLowerCase().endsWith(".csv")) {
+			EasyExcel.read(absolutePath.toFile(), listener).sheet().headRowNumber(0).doRead();
+		}
+		else {
+			EasyExcel.read(absolutePath.toFile(), listener).sheet(worksheetName).headRowNumber(0).doRead();
+		}
+	}
+
+	private List<String> listSheetNames(Path absolutePath) {
+		try (ExcelReader reader = EasyExcel.read(absolutePath.toFile()).build()) {
+			return reader.excelExecutor().sheetList().stream().map(ReadSheet::getSheetName).collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * Get the sidecar row index of a worksheet, building it on first use and rebuilding
+	 * it when the file changed since
+	 */
+	private ExcelRowIndex getRowIndex(Path absolutePath, String worksheetName) throws IOException {
+		String key = absolutePath.toAbsolutePath().normalize() + "#" + worksheetName;
+		try {
+			ExcelRowIndex index = rowIndexes.compute(key, (k, existing) -> {
+				if (existing != null && existing.isCurrent()) {
+					return existing;
+				}
+				if (existing != null) {
+					existing.delete();
+				}
+				Path sidecar = unifiedDirectoryManager.getWorkingDirectory()
+					.resolve(ROW_INDEX_DIR)
+					.resolve(DigestUtils.sha256Hex(k) + ".rows");
+				try {
+					return ExcelRowIndex.build(absolutePath, worksheetName, sidecar, jsonMapper);
+				}
+				catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+			evictRowIndexes(key);
+			return index;
+		}
+		catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	private void evictRowIndexes(String keep) {
+		Iterator<String> keys = rowIndexes.keySet().iterator();
+		while (rowIndexes.size() > MAX_ROW_INDEXES && keys.hasNext()) {
+			String key = keys.next();
+			if (!key.equals(keep)) {
+				ExcelRowIndex removed = rowIndexes.remove(key);
+				if (removed != null) {
+					removed.delete();
+				}
+			}
+		}
+	}
+
 	@Override
 	public void processExcelInBatches(String planId, String filePath, String worksheetName, int batchSize,
 			BatchProcessor processor) throws IOException {
@@ -1437,10 +1790,27 @@ public class ExcelProcessingService implements IExcelProcessingService {
 	@Override
 	public void cleanupPlanResources(String planId) {
 		planProcessingStatus.remove(planId);
-		planFileStates.remove(planId);
+		performanceMetrics.remove(planId);
+		if (!planFileStates.evict(planId)) {
+			releaseRowIndexes(planId);
+		}
 		log.debug("Cleaned up resources for plan: {}", planId);
 	}
 
+	/**
+	 * Delete the row indexes of worksheets under a plan's directory
+	 */
+	private void releaseRowIndexes(String planId) {
+		String planDir = unifiedDirectoryManager.getRootPlanDirectory(planId).toAbsolutePath().normalize().toString();
+		rowIndexes.entrySet().removeIf(entry -> {
+			if (entry.getKey().startsWith(planDir)) {
+				entry.getValue().delete();
+				return true;
+			}
+			return false;
+		});
+	}
+
 	private void updateFileState(String planId, String filePath, String state) {
 		planFileStates.computeIfAbsent(planId, k -> new ConcurrentHashMap<>())
 			.put(filePath, Map.of("state", state, "timestamp", System.currentTimeMillis()));
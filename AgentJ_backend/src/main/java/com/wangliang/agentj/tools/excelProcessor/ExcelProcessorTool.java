@@ -629,13 +629,18 @@ public class ExcelProcessorTool extends AbstractBaseTool<ExcelProcessorTool.Exce
 			return failure("Cell updates are required for update_cells action");
 		}
 
-		excelProcessingService.updateExcelCells(currentPlanId, input.getFilePath(), worksheetName, cellUpdates);
+		List<String> replacedFormulas = excelProcessingService.updateExcelCells(currentPlanId, input.getFilePath(),
+				worksheetName, cellUpdates);
 
 		Map<String, Object> result = new HashMap<>();
 		result.put("action", "update_cells");
 		result.put("file_path", input.getFilePath());
 		result.put("worksheet_name", worksheetName);
 		result.put("cells_updated", cellUpdates.size());
+		if (!replacedFormulas.isEmpty()) {
+			result.put("warning", "Formulas in " + String.join(", ", replacedFormulas)
+					+ " were replaced by the given values");
+		}
 		result.put("status", "success");
 
 		return success("Excel cells updated successfully", result);
@@ -652,6 +657,22 @@ public class ExcelProcessorTool extends AbstractBaseTool<ExcelProcessorTool.Exce
 			return failure("Keywords are required for search_data action");
 		}
 
+		// With an output path, matches are streamed to a file instead of into the response
+		if (input.output_path != null && !input.output_path.trim().isEmpty()) {
+			int exported = excelProcessingService.exportSearchResults(currentPlanId, input.getFilePath(),
+					worksheetName, keywords, input.getSearchColumns(), input.output_path);
+
+			Map<String, Object> result = new HashMap<>();
+			result.put("action", "search_data");
+			result.put("file_path", input.getFilePath());
+			result.put("worksheet_name", worksheetName);
+			result.put("keywords", keywords);
+			result.put("output_path", input.output_path);
+			result.put("results_count", exported);
+
+			return success("Excel search results exported successfully", result);
+		}
+
 		List<Map<String, Object>> searchResults = excelProcessingService.searchExcelData(currentPlanId,
 				input.getFilePath(), worksheetName, keywords, input.getSearchColumns());
 
@@ -1157,7 +1178,7 @@ public class ExcelProcessorTool extends AbstractBaseTool<ExcelProcessorTool.Exce
 				},
 				"output_path": {
 					"type": "string",
-					"description": "Output file path for CSV to Excel conversion (optional, used with read_csv action)"
+					"description": "Output file path for CSV to Excel conversion (optional, used with read_csv action), or for writing search_data matches to a file instead of returning them"
 				}			}
 				},
 					"required": ["action", "file_path"]
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.tools.excelProcessor;
+
+import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.context.AnalysisContext;
+import com.alibaba.excel.read.listener.ReadListener;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sidecar row index for one worksheet.
+ *
+ * The sheet is parsed once with EasyExcel and every non-empty row is written to a
+ * sidecar file as one line of {@code <sheetRowIndex>\t<json array>}. Every
+ * {@link #CHECKPOINT_INTERVAL} rows the byte offset of the line is remembered, so a page
+ * starting at any row can be served by seeking to the nearest checkpoint and reading
+ * forward, instead of reparsing the workbook from row 0.
+ *
+ * Row indices are sheet row numbers (0-based, header row included), matching the
+ * in-memory read path of {@link ExcelProcessingService#readExcelData}.
+ */
+public class ExcelRowIndex {
+
+	private static final Logger log = LoggerFactory.getLogger(ExcelRowIndex.class);
+
+	private static final int CHECKPOINT_INTERVAL = 256;
+
+	private static final TypeReference<List<String>> ROW_TYPE = new TypeReference<>() {
+	};
+
+	private final Path source;
+
+	private final String worksheetName;
+
+	private final Path sidecar;
+
+	private final long sourceModifiedTime;
+
+	private final long sourceSize;
+
+	private final int[] checkpointRows;
+
+	private final long[] checkpointOffsets;
+
+	private final int rowCount;
+
+	private final ObjectMapper objectMapper;
+
+	private ExcelRowIndex(Path source, String worksheetName, Path sidecar, long sourceModifiedTime, long sourceSize,
+			int[] checkpointRows, long[] checkpointOffsets, int rowCount, ObjectMapper objectMapper) {
+		this.source = source;
+		this.worksheetName = worksheetName;
+		this.sidecar = sidecar;
+		this.sourceModifiedTime = sourceModifiedTime;
+		this.sourceSize = sourceSize;
+		this.checkpointRows = checkpointRows;
+		this.checkpointOffsets = checkpointOffsets;
+		this.rowCount = rowCount;
+		this.objectMapper = objectMapper;
+	}
+
+	/**
+	 * Parse the worksheet once and write its sidecar file
+	 * @param source workbook or CSV file
+	 * @param worksheetName worksheet to index (ignored for CSV)
+	 * @param sidecar file to write the row lines to
+	 * @param objectMapper mapper used to encode rows
+	 * @return the built index
+	 * @throws IOException if reading the source or writing the sidecar fails
+	 */
+	public static ExcelRowIndex build(Path source, String worksheetName, Path sidecar, ObjectMapper objectMapper)
+			throws IOException {
+		long startTime = System.currentTimeMillis();
+		long modifiedTime = Files.getLastModifiedTime(source).toMillis();
+		long size = Files.size(source);
+
+		List<Integer> rows = new ArrayList<>();
+		List<Long> offsets = new ArrayList<>();
+		int[] count = new int[1];
+
+		boolean csv = source.getFileName().toString().toLowerCase().endsWith(".csv");
+
+		Files.createDirectories(sidecar.getParent());
+		try (CountingOutputStream out = new CountingOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(sidecar, StandardOpenOption.CREATE,
+						StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), 64 * 1024))) {
+			ReadListener<Map<Integer, String>> listener = new ReadListener<>() {
+				@Override
+				public void invoke(Map<Integer, String> data, AnalysisContext context) {
+					int rowIndex = context.readRowHolder().getRowIndex();
+					try {
+						if (count[0] % CHECKPOINT_INTERVAL == 0) {
+							rows.add(rowIndex);
+							offsets.add(out.getCount());
+						}
+						out.write(Integer.toString(rowIndex).getBytes(StandardCharsets.UTF_8));
+						out.write('\t');
+						out.write(objectMapper.writeValueAsBytes(ExcelProcessingService.toRowList(data)));
+						out.write('\n');
+						count[0]++;
+					}
+					catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+
+				@Override
+				public void doAfterAllAnalysed(AnalysisContext context) {
+					// Index complete
+				}
+			};
+			if (csv) {
+				EasyExcel.read(source.toFile(), listener).sheet().headRowNumber(0).doRead();
+			}
+			else {
+				EasyExcel.read(source.toFile(), listener).sheet(worksheetName).headRowNumber(0).doRead();
+			}
+		}
+		catch (RuntimeException e) {
+			// EasyExcel wraps listener failures in its own runtime exception
+			throw new IOException("Failed to build row index for " + source + ": " + e.getMessage(), e);
+		}
+
+		log.info("Built row index for {} [{}]: {} rows, {} checkpoints in {} ms", source, worksheetName, count[0],
+				rows.size(), System.currentTimeMillis() - startTime);
+		return new ExcelRowIndex(source, worksheetName, sidecar, modifiedTime, size,
+				rows.stream().mapToInt(Integer::intValue).toArray(), offsets.stream().mapToLong(Long::longValue).toArray(),
+				count[0], objectMapper);
+	}
+
+	/**
+	 * Whether the source file is unchanged since the index was built
+	 */
+	public boolean isCurrent() {
+		try {
+			return Files.exists(sidecar) && Files.getLastModifiedTime(source).toMillis() == sourceModifiedTime
+					&& Files.size(source) == sourceSize;
+		}
+		catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Read rows in [startRow, endRow] from the sidecar
+	 * @param startRow first sheet row (0-based, null for beginning)
+	 * @param endRow last sheet row (inclusive, null for end)
+	 * @param maxRows maximum number of rows to return (null for no limit)
+	 * @return rows in sheet order
+	 * @throws IOException if the sidecar cannot be read
+	 */
+	public List<List<String>> read(Integer startRow, Integer endRow, Integer maxRows) throws IOException {
+		List<List<String>> result = new ArrayList<>();
+		if (checkpointRows.length == 0) {
+			return result;
+		}
+
+		int first = startRow != null ? Math.max(startRow, 0) : 0;
+		int checkpoint = Arrays.binarySearch(checkpointRows, first);
+		if (checkpoint < 0) {
+			checkpoint = Math.max(-checkpoint - 2, 0);
+		}
+
+		try (FileChannel channel = FileChannel.open(sidecar, StandardOpenOption.READ)) {
+			channel.position(checkpointOffsets[checkpoint]);
+			BufferedReader reader = new BufferedReader(
+					new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (maxRows != null && result.size() >= maxRows) {
+					break;
+				}
+				int tab = line.indexOf('\t');
+				int rowIndex = Integer.parseInt(line, 0, tab, 10);
+				if (rowIndex < first) {
+					continue;
+				}
+				if (endRow != null && rowIndex > endRow) {
+					break;
+				}
+				result.add(objectMapper.readValue(line.substring(tab + 1), ROW_TYPE));
+			}
+		}
+		return result;
+	}
+
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	public Path getSource() {
+		return source;
+	}
+
+	public String getWorksheetName() {
+		return worksheetName;
+	}
+
+	/**
+	 * Remove the sidecar file
+	 */
+	public void delete() {
+		try {
+			Files.deleteIfExists(sidecar);
+		}
+		catch (IOException e) {
+			log.warn("Failed to delete row index sidecar {}: {}", sidecar, e.getMessage());
+		}
+	}
+
+	private static class CountingOutputStream extends OutputStream {
+
+		private final OutputStream delegate;
+
+		private long count;
+
+		CountingOutputStream(OutputStream delegate) {
+			this.delegate = delegate;
+		}
+
+		long getCount() {
+			return count;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			delegate.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			delegate.write(b, off, len);
+			count += len;
+		}
+
+		@Override
+		public void flush() throws IOException {
+			delegate.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			delegate.close();
+		}
+
+	}
+
+}
@@ -118,9 +118,11 @@ public interface IExcelProcessingService {
 	 * @param filePath path to the Excel file
 	 * @param worksheetName name of the worksheet
 	 * @param updates map of cell coordinates (e.g., "A1") to new values
+	 * @return addresses of updated cells whose formulas were replaced by the new values
+	 * (large .xlsx files only), empty if none
 	 * @throws IOException if file updating fails
 	 */
-	void updateExcelCells(String planId, String filePath, String worksheetName, Map<String, String> updates)
+	List<String> updateExcelCells(String planId, String filePath, String worksheetName, Map<String, String> updates)
 			throws IOException;
 
 	/**
@@ -136,13 +138,30 @@ public interface IExcelProcessingService {
 	List<Map<String, Object>> searchExcelData(String planId, String filePath, String worksheetName,
 			List<String> keywords, List<String> searchColumns) throws IOException;
 
+	/**
+	 * Search a worksheet like {@link #searchExcelData} but stream the header row and all
+	 * matching rows into another file instead of returning them
+	 * @param planId plan identifier
+	 * @param filePath path to the Excel file
+	 * @param worksheetName name of the worksheet
+	 * @param keywords list of keywords to search for
+	 * @param searchColumns specific columns to search (null for all columns)
+	 * @param outputPath path of the file to write matches to (.xlsx, .xls or .csv)
+	 * @return number of matching rows written
+	 * @throws IOException if reading or writing fails
+	 */
+	int exportSearchResults(String planId, String filePath, String worksheetName, List<String> keywords,
+			List<String> searchColumns, String outputPath) throws IOException;
+
 	/**
 	 * Delete rows from a worksheet by row indices
 	 * @param planId plan identifier
 	 * @param filePath path to the Excel file
 	 * @param worksheetName name of the worksheet
 	 * @param rowIndices list of row indices to delete (0-based)
-	 * @throws IOException if file updating fails
+	 * @throws IOException if file updating fails, or if the file is a large .xlsx whose
+	 * worksheet has formulas, merged cells or other content that would not shift with the
+	 * rows
 	 */
 	void deleteExcelRows(String planId, String filePath, String worksheetName, List<Integer> rowIndices)
 			throws IOException;
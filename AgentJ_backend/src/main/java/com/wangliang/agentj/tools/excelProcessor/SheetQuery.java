@@ -0,0 +1,225 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.tools.excelProcessor;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * JSON query over a {@link ColumnarTable}, the equivalent of
+ * {@code SELECT ... WHERE ... GROUP BY ... ORDER BY ... LIMIT n}.
+ *
+ * Conditions in {@code where} are combined with AND. With {@code group_by} or
+ * {@code aggregates} the result has one row per group holding the group columns and the
+ * aggregates; otherwise it holds the {@code select} columns (all by default) of the
+ * matching rows. {@code order_by} refers to result columns, aggregates by their alias.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class SheetQuery {
+
+	@JsonProperty("where")
+	private List<Condition> where;
+
+	@JsonProperty("select")
+	private List<String> select;
+
+	@JsonProperty("group_by")
+	private List<String> groupBy;
+
+	@JsonProperty("aggregates")
+	private List<Aggregate> aggregates;
+
+	@JsonProperty("order_by")
+	private List<Order> orderBy;
+
+	@JsonProperty("limit")
+	private Integer limit;
+
+	public List<Condition> getWhere() {
+		return where;
+	}
+
+	public void setWhere(List<Condition> where) {
+		this.where = where;
+	}
+
+	public List<String> getSelect() {
+		return select;
+	}
+
+	public void setSelect(List<String> select) {
+		this.select = select;
+	}
+
+	public List<String> getGroupBy() {
+		return groupBy;
+	}
+
+	public void setGroupBy(List<String> groupBy) {
+		this.groupBy = groupBy;
+	}
+
+	public List<Aggregate> getAggregates() {
+		return aggregates;
+	}
+
+	public void setAggregates(List<Aggregate> aggregates) {
+		this.aggregates = aggregates;
+	}
+
+	public List<Order> getOrderBy() {
+		return orderBy;
+	}
+
+	public void setOrderBy(List<Order> orderBy) {
+		this.orderBy = orderBy;
+	}
+
+	public Integer getLimit() {
+		return limit;
+	}
+
+	public void setLimit(Integer limit) {
+		this.limit = limit;
+	}
+
+	/**
+	 * Row condition. {@code op} is one of eq, ne, gt, gte, lt, lte, in, not_in, contains,
+	 * starts_with, is_null and not_null; {@code in} and {@code not_in} take a list as
+	 * value. String comparisons are case-insensitive for contains and starts_with only.
+	 * gt, gte, lt and lte with a numeric value compare text columns numerically; cells
+	 * that are not numbers do not match.
+	 */
+	@JsonIgnoreProperties(ignoreUnknown = true)
+	public static class Condition {
+
+		@JsonProperty("column")
+		private String column;
+
+		@JsonProperty("op")
+		private String op;
+
+		@JsonProperty("value")
+		private Object value;
+
+		public String getColumn() {
+			return column;
+		}
+
+		public void setColumn(String column) {
+			this.column = column;
+		}
+
+		public String getOp() {
+			return op;
+		}
+
+		public void setOp(String op) {
+			this.op = op;
+		}
+
+		public Object getValue() {
+			return value;
+		}
+
+		public void setValue(Object value) {
+			this.value = value;
+		}
+
+	}
+
+	/**
+	 * Aggregate over the rows of a group. {@code fn} is one of count, count_distinct,
+	 * sum, avg, min and max; count without a column counts rows.
+	 */
+	@JsonIgnoreProperties(ignoreUnknown = true)
+	public static class Aggregate {
+
+		@JsonProperty("fn")
+		private String fn;
+
+		@JsonProperty("column")
+		private String column;
+
+		@JsonProperty("as")
+		private String as;
+
+		public String getFn() {
+			return fn;
+		}
+
+		public void setFn(String fn) {
+			this.fn = fn;
+		}
+
+		public String getColumn() {
+			return column;
+		}
+
+		public void setColumn(String column) {
+			this.column = column;
+		}
+
+		public String getAs() {
+			return as;
+		}
+
+		public void setAs(String as) {
+			this.as = as;
+		}
+
+		/**
+		 * Name of the aggregate in the result, such as {@code sum_amount}
+		 */
+		String alias() {
+			if (as != null && !as.isBlank()) {
+				return as;
+			}
+			return column == null ? fn : fn + "_" + column;
+		}
+
+	}
+
+	@JsonIgnoreProperties(ignoreUnknown = true)
+	public static class Order {
+
+		@JsonProperty("column")
+		private String column;
+
+		@JsonProperty("desc")
+		private boolean desc;
+
+		public String getColumn() {
+			return column;
+		}
+
+		public void setColumn(String column) {
+			this.column = column;
+		}
+
+		public boolean isDesc() {
+			return desc;
+		}
+
+		public void setDesc(boolean desc) {
+			this.desc = desc;
+		}
+
+	}
+
+}
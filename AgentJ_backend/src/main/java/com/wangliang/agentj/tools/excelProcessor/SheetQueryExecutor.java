@@ -0,0 +1,752 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.tools.excelProcessor;
+
+import com.wangliang.agentj.tools.excelProcessor.ColumnarTable.Column;
+import com.wangliang.agentj.tools.excelProcessor.ColumnarTable.LongColumn;
+import com.wangliang.agentj.tools.excelProcessor.ColumnarTable.StringColumn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.DoublePredicate;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Runs a {@link SheetQuery} against a {@link ColumnarTable}.
+ *
+ * String conditions are evaluated once per dictionary entry and then checked per row by
+ * code; numeric conditions compare the primitive arrays directly. Group keys are built
+ * from dictionary codes, so grouping never materializes row values. Ordered projections
+ * keep only the top {@code limit} rows in a heap.
+ */
+final class SheetQueryExecutor {
+
+	private SheetQueryExecutor() {
+	}
+
+	/**
+	 * Compact query result
+	 * @param groups Number of groups before the limit, null without grouping
+	 */
+	record Result(List<String> columns, List<List<Object>> rows, int totalRows, int matchedRows, Integer groups,
+			boolean truncated) {
+	}
+
+	static Result execute(ColumnarTable table, SheetQuery query, int limit) {
+		int[] matched = filter(table, query.getWhere());
+		boolean grouped = !isEmpty(query.getGroupBy()) || !isEmpty(query.getAggregates());
+		return grouped ? aggregate(table, query, matched, limit) : project(table, query, matched, limit);
+	}
+
+	private static int[] filter(ColumnarTable table, List<SheetQuery.Condition> conditions) {
+		List<IntPredicate> predicates = new ArrayList<>();
+		if (conditions != null) {
+			for (SheetQuery.Condition condition : conditions) {
+				predicates.add(compile(table, condition));
+			}
+		}
+		int rowCount = table.getRowCount();
+		int[] rows = new int[rowCount];
+		int count = 0;
+		rows: for (int row = 0; row < rowCount; row++) {
+			for (IntPredicate predicate : predicates) {
+				if (!predicate.test(row)) {
+					continue rows;
+				}
+			}
+			rows[count++] = row;
+		}
+		return count == rowCount ? rows : Arrays.copyOf(rows, count);
+	}
+
+	private static IntPredicate compile(ColumnarTable table, SheetQuery.Condition condition) {
+		Column column = table.column(condition.getColumn());
+		String op = condition.getOp() == null ? "eq" : condition.getOp().toLowerCase(Locale.ROOT);
+		if ("is_null".equals(op)) {
+			return column::isNull;
+		}
+		if ("not_null".equals(op)) {
+			return row -> !column.isNull(row);
+		}
+		Object value = condition.getValue();
+		if (value == null) {
+			throw new IllegalArgumentException("Condition " + op + " on " + column.name() + " needs a value");
+		}
+		if (column instanceof StringColumn strings) {
+			Predicate<String> test = value instanceof Number && isRangeOp(op) ? numericTextTest(op, value, column.name())
+					: stringTest(op, value);
+			String[] dictionary = strings.dictionary();
+			boolean[] accepted = new boolean[dictionary.length];
+			for (int i = 0; i < dictionary.length; i++) {
+				accepted[i] = test.test(dictionary[i]);
+			}
+			return row -> !strings.isNull(row) && accepted[strings.code(row)];
+		}
+		DoublePredicate test = numberTest(op, value, column.name());
+		return row -> !column.isNull(row) && test.test(column.number(row));
+	}
+
+	private static boolean isRangeOp(String op) {
+		return "gt".equals(op) || "gte".equals(op) || "lt".equals(op) || "lte".equals(op);
+	}
+
+	/**
+	 * Range test with a number on a text column. A single entry such as "N/A" or "1,234"
+	 * makes a column text, so entries are compared as numbers where they parse, with
+	 * grouping commas removed; entries that are not numbers never match.
+	 */
+	private static Predicate<String> numericTextTest(String op, Object value, String column) {
+		DoublePredicate test = numberTest(op, value, column);
+		return s -> {
+			String text = s.trim().replace(",", "");
+			return !text.isEmpty() && ColumnarTable.isPlainDecimal(text) && test.test(Double.parseDouble(text));
+		};
+	}
+
+	private static Predicate<String> stringTest(String op, Object value) {
+		return switch (op) {
+			case "eq" -> cellText(value)::equals;
+			case "ne" -> s -> !s.equals(cellText(value));
+			case "gt" -> s -> s.compareTo(text(value)) > 0;
+			case "gte" -> s -> s.compareTo(text(value)) >= 0;
+			case "lt" -> s -> s.compareTo(text(value)) < 0;
+			case "lte" -> s -> s.compareTo(text(value)) <= 0;
+			case "in", "not_in" -> {
+				Set<String> values = new HashSet<>();
+				for (Object item : values(value)) {
+					values.add(cellText(item));
+				}
+				yield "in".equals(op) ? values::contains : s -> !values.contains(s);
+			}
+			case "contains" -> {
+				String needle = text(value).toLowerCase(Locale.ROOT);
+				yield s -> s.toLowerCase(Locale.ROOT).contains(needle);
+			}
+			case "starts_with" -> {
+				String prefix = text(value).toLowerCase(Locale.ROOT);
+				yield s -> s.toLowerCase(Locale.ROOT).startsWith(prefix);
+			}
+			default -> throw new IllegalArgumentException("Unknown operator: " + op);
+		};
+	}
+
+	private static DoublePredicate numberTest(String op, Object value, String column) {
+		return switch (op) {
+			case "eq" -> {
+				double v = number(value, column);
+				yield d -> d == v;
+			}
+			case "ne" -> {
+				double v = number(value, column);
+				yield d -> d != v;
+			}
+			case "gt" -> {
+				double v = number(value, column);
+				yield d -> d > v;
+			}
+			case "gte" -> {
+				double v = number(value, column);
+				yield d -> d >= v;
+			}
+			case "lt" -> {
+				double v = number(value, column);
+				yield d -> d < v;
+			}
+			case "lte" -> {
+				double v = number(value, column);
+				yield d -> d <= v;
+			}
+			case "in", "not_in" -> {
+				Set<Double> values = new HashSet<>();
+				for (Object item : values(value)) {
+					values.add(number(item, column));
+				}
+				yield "in".equals(op) ? values::contains : d -> !values.contains(d);
+			}
+			case "contains" -> {
+				String needle = text(value);
+				yield d -> ColumnarTable.decimalText(d).contains(needle);
+			}
+			case "starts_with" -> {
+				String prefix = text(value);
+				yield d -> ColumnarTable.decimalText(d).startsWith(prefix);
+			}
+			default -> throw new IllegalArgumentException("Unknown operator: " + op);
+		};
+	}
+
+	private static Result project(ColumnarTable table, SheetQuery query, int[] matched, int limit) {
+		List<Column> columns = new ArrayList<>();
+		if (isEmpty(query.getSelect())) {
+			columns.addAll(table.getColumns());
+		}
+		else {
+			for (String name : query.getSelect()) {
+				columns.add(table.column(name));
+			}
+		}
+
+		int[] rows;
+		if (isEmpty(query.getOrderBy())) {
+			rows = Arrays.copyOf(matched, Math.min(limit, matched.length));
+		}
+		else {
+			rows = topRows(matched, rowComparator(table, query.getOrderBy()), limit);
+		}
+
+		List<List<Object>> output = new ArrayList<>(rows.length);
+		for (int row : rows) {
+			List<Object> values = new ArrayList<>(columns.size());
+			for (Column column : columns) {
+				values.add(format(column.value(row)));
+			}
+			output.add(values);
+		}
+		return new Result(columns.stream().map(Column::name).toList(), output, table.getRowCount(), matched.length,
+				null, matched.length > rows.length);
+	}
+
+	/**
+	 * Compares rows by the order columns, empty cells last, ties by row position
+	 */
+	private static Comparator<Integer> rowComparator(ColumnarTable table, List<SheetQuery.Order> orders) {
+		Comparator<Integer> comparator = null;
+		for (SheetQuery.Order order : orders) {
+			Column column = table.column(order.getColumn());
+			Comparator<Integer> values = switch (column.type()) {
+				case LONG -> Comparator.comparingLong(((LongColumn) column)::longValue);
+				case DOUBLE -> Comparator.comparingDouble(column::number);
+				case STRING -> {
+					StringColumn strings = (StringColumn) column;
+					int[] ranks = strings.ranks();
+					yield Comparator.comparingInt(row -> ranks[strings.code(row)]);
+				}
+			};
+			Comparator<Integer> directed = order.isDesc() ? values.reversed() : values;
+			Comparator<Integer> nullsLast = (a, b) -> {
+				boolean nullA = column.isNull(a);
+				boolean nullB = column.isNull(b);
+				if (nullA || nullB) {
+					return nullA == nullB ? 0 : nullA ? 1 : -1;
+				}
+				return directed.compare(a, b);
+			};
+			comparator = comparator == null ? nullsLast : comparator.thenComparing(nullsLast);
+		}
+		return comparator.thenComparingInt(Integer::intValue);
+	}
+
+	private static int[] topRows(int[] rows, Comparator<Integer> comparator, int limit) {
+		if (limit <= 0) {
+			return new int[0];
+		}
+		// Max-heap of the best rows so far, its head is the first to give way
+		PriorityQueue<Integer> heap = new PriorityQueue<>(Math.min(limit, rows.length) + 1, comparator.reversed());
+		for (int row : rows) {
+			if (heap.size() < limit) {
+				heap.add(row);
+			}
+			else if (comparator.compare(row, heap.peek()) < 0) {
+				heap.poll();
+				heap.add(row);
+			}
+		}
+		return heap.stream().sorted(comparator).mapToInt(Integer::intValue).toArray();
+	}
+
+	private static Result aggregate(ColumnarTable table, SheetQuery query, int[] matched, int limit) {
+		List<Column> keys = new ArrayList<>();
+		if (query.getGroupBy() != null) {
+			for (String name : query.getGroupBy()) {
+				keys.add(table.column(name));
+			}
+		}
+		List<SheetQuery.Aggregate> specs = query.getAggregates() == null ? List.of() : query.getAggregates();
+		List<Accumulator> accumulators = new ArrayList<>();
+		List<String> columns = new ArrayList<>();
+		keys.forEach(key -> columns.add(key.name()));
+		for (SheetQuery.Aggregate spec : specs) {
+			accumulators.add(accumulator(table, spec));
+			columns.add(spec.alias());
+		}
+
+		Groups groups = keys.isEmpty() ? Groups.single(matched.length) : Groups.of(keys, matched);
+		for (Accumulator accumulator : accumulators) {
+			accumulator.init(groups.count());
+			for (int i = 0; i < matched.length; i++) {
+				accumulator.add(groups.groupOf()[i], matched[i]);
+			}
+		}
+
+		List<List<Object>> output = new ArrayList<>(groups.count());
+		for (int group = 0; group < groups.count(); group++) {
+			List<Object> values = new ArrayList<>(columns.size());
+			int first = groups.firstRows()[group];
+			for (Column key : keys) {
+				values.add(format(key.value(first)));
+			}
+			for (Accumulator accumulator : accumulators) {
+				values.add(format(accumulator.result(group)));
+			}
+			output.add(values);
+		}
+
+		if (!isEmpty(query.getOrderBy())) {
+			output.sort(resultComparator(columns, query.getOrderBy()));
+		}
+		int total = output.size();
+		List<List<Object>> limited = total > limit ? new ArrayList<>(output.subList(0, Math.max(limit, 0))) : output;
+		return new Result(columns, limited, table.getRowCount(), matched.length, keys.isEmpty() ? null : total,
+				total > limited.size());
+	}
+
+	private static Comparator<List<Object>> resultComparator(List<String> columns, List<SheetQuery.Order> orders) {
+		Comparator<List<Object>> comparator = null;
+		for (SheetQuery.Order order : orders) {
+			int index = -1;
+			for (int i = 0; i < columns.size() && index < 0; i++) {
+				if (columns.get(i).equalsIgnoreCase(order.getColumn())) {
+					index = i;
+				}
+			}
+			if (index < 0) {
+				throw new IllegalArgumentException(
+						"Cannot order by " + order.getColumn() + ", result columns: " + columns);
+			}
+			int column = index;
+			boolean desc = order.isDesc();
+			Comparator<List<Object>> next = (a, b) -> {
+				Object left = a.get(column);
+				Object right = b.get(column);
+				if (left == null || right == null) {
+					return left == right ? 0 : left == null ? 1 : -1;
+				}
+				return desc ? compareValues(right, left) : compareValues(left, right);
+			};
+			comparator = comparator == null ? next : comparator.thenComparing(next);
+		}
+		return comparator;
+	}
+
+	private static int compareValues(Object a, Object b) {
+		if (a instanceof Number x && b instanceof Number y) {
+			return Double.compare(x.doubleValue(), y.doubleValue());
+		}
+		return a.toString().compareTo(b.toString());
+	}
+
+	/**
+	 * Assignment of matched rows to groups, numbered in order of first appearance
+	 * @param groupOf Group of each matched row
+	 * @param firstRows First table row of each group, its key values stand for the group
+	 */
+	private record Groups(int count, int[] groupOf, int[] firstRows) {
+
+		static Groups single(int matched) {
+			// Aggregates without group_by form one group, even over no rows
+			return new Groups(1, new int[matched], new int[] { -1 });
+		}
+
+		static Groups of(List<Column> keys, int[] matched) {
+			int[][] codes = new int[keys.size()][];
+			long[] radix = new long[keys.size()];
+			boolean packed = true;
+			long span = 1;
+			for (int k = 0; k < keys.size(); k++) {
+				KeyCodes keyCodes = KeyCodes.of(keys.get(k), matched);
+				codes[k] = keyCodes.codes();
+				radix[k] = span;
+				try {
+					span = Math.multiplyExact(span, keyCodes.cardinality());
+				}
+				catch (ArithmeticException e) {
+					packed = false;
+				}
+			}
+
+			int[] groupOf = new int[matched.length];
+			int[] firstRows = new int[16];
+			int count = 0;
+			Map<Object, Integer> ids = new HashMap<>();
+			for (int i = 0; i < matched.length; i++) {
+				Object key;
+				if (packed) {
+					long value = 0;
+					for (int k = 0; k < codes.length; k++) {
+						value += codes[k][i] * radix[k];
+					}
+					key = value;
+				}
+				else {
+					int[] parts = new int[codes.length];
+					for (int k = 0; k < codes.length; k++) {
+						parts[k] = codes[k][i];
+					}
+					key = Arrays.toString(parts);
+				}
+				Integer id = ids.get(key);
+				if (id == null) {
+					id = count++;
+					ids.put(key, id);
+					if (id == firstRows.length) {
+						firstRows = Arrays.copyOf(firstRows, firstRows.length * 2);
+					}
+					firstRows[id] = matched[i];
+				}
+				groupOf[i] = id;
+			}
+			return new Groups(count, groupOf, Arrays.copyOf(firstRows, count));
+		}
+
+	}
+
+	/**
+	 * Dense key codes of one group column for the matched rows, 0 for empty cells
+	 */
+	private record KeyCodes(int[] codes, int cardinality) {
+
+		static KeyCodes of(Column column, int[] matched) {
+			int[] codes = new int[matched.length];
+			if (column instanceof StringColumn strings) {
+				for (int i = 0; i < matched.length; i++) {
+					int row = matched[i];
+					codes[i] = strings.isNull(row) ? 0 : strings.code(row) + 1;
+				}
+				return new KeyCodes(codes, strings.dictionary().length + 1);
+			}
+			Map<Long, Integer> codeOf = new HashMap<>();
+			for (int i = 0; i < matched.length; i++) {
+				int row = matched[i];
+				if (!column.isNull(row)) {
+					long bits = column instanceof LongColumn longs ? longs.longValue(row)
+							: Double.doubleToLongBits(column.number(row));
+					codes[i] = codeOf.computeIfAbsent(bits, b -> codeOf.size() + 1);
+				}
+			}
+			return new KeyCodes(codes, codeOf.size() + 1);
+		}
+
+	}
+
+	private static Accumulator accumulator(ColumnarTable table, SheetQuery.Aggregate spec) {
+		String fn = spec.getFn() == null ? "" : spec.getFn().toLowerCase(Locale.ROOT);
+		if ("count".equals(fn) && spec.getColumn() == null) {
+			return new Count(null);
+		}
+		if (spec.getColumn() == null) {
+			throw new IllegalArgumentException("Aggregate " + fn + " needs a column");
+		}
+		Column column = table.column(spec.getColumn());
+		boolean numeric = column.type() != ColumnarTable.ColumnType.STRING;
+		return switch (fn) {
+			case "count" -> new Count(column);
+			case "count_distinct" -> new CountDistinct(column);
+			case "sum", "avg" -> {
+				if (!numeric) {
+					throw new IllegalArgumentException(fn + " needs a numeric column, " + column.name() + " holds text");
+				}
+				yield new Sum(column, "avg".equals(fn));
+			}
+			case "min", "max" -> numeric ? new NumberExtreme(column, "max".equals(fn))
+					: new TextExtreme((StringColumn) column, "max".equals(fn));
+			default -> throw new IllegalArgumentException(
+					"Unknown aggregate: " + spec.getFn() + ". Supported: count, count_distinct, sum, avg, min, max");
+		};
+	}
+
+	/**
+	 * Aggregate state of all groups, kept in arrays indexed by group
+	 */
+	private interface Accumulator {
+
+		void init(int groups);
+
+		void add(int group, int row);
+
+		Object result(int group);
+
+	}
+
+	private static final class Count implements Accumulator {
+
+		private final Column column;
+
+		private long[] counts;
+
+		Count(Column column) {
+			this.column = column;
+		}
+
+		@Override
+		public void init(int groups) {
+			counts = new long[groups];
+		}
+
+		@Override
+		public void add(int group, int row) {
+			if (column == null || !column.isNull(row)) {
+				counts[group]++;
+			}
+		}
+
+		@Override
+		public Object result(int group) {
+			return counts[group];
+		}
+
+	}
+
+	private static final class CountDistinct implements Accumulator {
+
+		private final Column column;
+
+		private Set<Long>[] seen;
+
+		CountDistinct(Column column) {
+			this.column = column;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void init(int groups) {
+			seen = new Set[groups];
+		}
+
+		@Override
+		public void add(int group, int row) {
+			if (column.isNull(row)) {
+				return;
+			}
+			long key = switch (column.type()) {
+				case STRING -> ((StringColumn) column).code(row);
+				case LONG -> ((LongColumn) column).longValue(row);
+				case DOUBLE -> Double.doubleToLongBits(column.number(row));
+			};
+			if (seen[group] == null) {
+				seen[group] = new HashSet<>();
+			}
+			seen[group].add(key);
+		}
+
+		@Override
+		public Object result(int group) {
+			return seen[group] == null ? 0L : (long) seen[group].size();
+		}
+
+	}
+
+	private static final class Sum implements Accumulator {
+
+		private final Column column;
+
+		private final boolean average;
+
+		private final boolean integral;
+
+		private long[] longSums;
+
+		private double[] sums;
+
+		private long[] counts;
+
+		Sum(Column column, boolean average) {
+			this.column = column;
+			this.average = average;
+			this.integral = column instanceof LongColumn;
+		}
+
+		@Override
+		public void init(int groups) {
+			counts = new long[groups];
+			if (integral) {
+				longSums = new long[groups];
+			}
+			else {
+				sums = new double[groups];
+			}
+		}
+
+		@Override
+		public void add(int group, int row) {
+			if (column.isNull(row)) {
+				return;
+			}
+			counts[group]++;
+			if (integral) {
+				longSums[group] += ((LongColumn) column).longValue(row);
+			}
+			else {
+				sums[group] += column.number(row);
+			}
+		}
+
+		@Override
+		public Object result(int group) {
+			if (counts[group] == 0) {
+				return null;
+			}
+			if (average) {
+				return (integral ? (double) longSums[group] : sums[group]) / counts[group];
+			}
+			return integral ? (Object) longSums[group] : (Object) sums[group];
+		}
+
+	}
+
+	private static final class NumberExtreme implements Accumulator {
+
+		private final Column column;
+
+		private final boolean max;
+
+		private double[] best;
+
+		private boolean[] seen;
+
+		NumberExtreme(Column column, boolean max) {
+			this.column = column;
+			this.max = max;
+		}
+
+		@Override
+		public void init(int groups) {
+			best = new double[groups];
+			seen = new boolean[groups];
+		}
+
+		@Override
+		public void add(int group, int row) {
+			if (column.isNull(row)) {
+				return;
+			}
+			double value = column.number(row);
+			if (!seen[group] || (max ? value > best[group] : value < best[group])) {
+				best[group] = value;
+				seen[group] = true;
+			}
+		}
+
+		@Override
+		public Object result(int group) {
+			if (!seen[group]) {
+				return null;
+			}
+			return column instanceof LongColumn ? (Object) (long) best[group] : (Object) best[group];
+		}
+
+	}
+
+	private static final class TextExtreme implements Accumulator {
+
+		private final StringColumn column;
+
+		private final boolean max;
+
+		private final int[] ranks;
+
+		private int[] best;
+
+		TextExtreme(StringColumn column, boolean max) {
+			this.column = column;
+			this.max = max;
+			this.ranks = column.ranks();
+		}
+
+		@Override
+		public void init(int groups) {
+			best = new int[groups];
+			Arrays.fill(best, -1);
+		}
+
+		@Override
+		public void add(int group, int row) {
+			if (column.isNull(row)) {
+				return;
+			}
+			int code = column.code(row);
+			int current = best[group];
+			if (current < 0 || (max ? ranks[code] > ranks[current] : ranks[code] < ranks[current])) {
+				best[group] = code;
+			}
+		}
+
+		@Override
+		public Object result(int group) {
+			return best[group] < 0 ? null : column.dictionary()[best[group]];
+		}
+
+	}
+
+	/**
+	 * Round decimals for the result; whole numbers are written without a fraction
+	 */
+	private static Object format(Object value) {
+		if (value instanceof Double d) {
+			if (d.isNaN() || d.isInfinite()) {
+				return d.toString();
+			}
+			if (d == Math.rint(d) && Math.abs(d) < 1e15) {
+				return (long) d.doubleValue();
+			}
+			return Math.abs(d) < 1e9 ? Math.round(d * 1e6) / 1e6 : d;
+		}
+		return value;
+	}
+
+	private static String text(Object value) {
+		if (value instanceof Double || value instanceof Float) {
+			return ColumnarTable.decimalText(((Number) value).doubleValue());
+		}
+		return value.toString();
+	}
+
+	/**
+	 * Value as it is stored in a text column, see {@link ColumnarTable#canonicalText}
+	 */
+	private static String cellText(Object value) {
+		return ColumnarTable.canonicalText(text(value).trim());
+	}
+
+	private static double number(Object value, String column) {
+		if (value instanceof Number n) {
+			return n.doubleValue();
+		}
+		try {
+			return Double.parseDouble(value.toString().trim());
+		}
+		catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Column " + column + " is numeric, '" + value + "' is not a number");
+		}
+	}
+
+	private static List<?> values(Object value) {
+		return value instanceof List<?> list ? list : List.of(value);
+	}
+
+	private static boolean isEmpty(List<?> list) {
+		return list == null || list.isEmpty();
+	}
+
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.tools.excelProcessor;
+
+import com.wangliang.agentj.runtime.service.PlanScopedState;
+import com.wangliang.agentj.runtime.service.PlanStateRegistry;
+import com.wangliang.agentj.tools.excelProcessor.ColumnarTable.Column;
+import com.wangliang.agentj.tools.excelProcessor.ColumnarTable.StringColumn;
+import com.wangliang.agentj.tools.filesystem.UnifiedDirectoryManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Analytical queries over CSV and Excel files of a plan.
+ *
+ * Sheets are loaded into {@link ColumnarTable}s on first use and kept per root plan
+ * until the file changes or the plan completes, so an agent exploring a sheet with
+ * several queries parses it once. Only the compact query results go back to the model.
+ */
+@Service
+public class SheetQueryService {
+
+	private static final Logger log = LoggerFactory.getLogger(SheetQueryService.class);
+
+	private static final Set<String> SUPPORTED_EXTENSIONS = Set.of(".csv", ".xlsx", ".xls");
+
+	private static final int MAX_TABLES_PER_PLAN = 4;
+
+	private static final int SAMPLE_ROWS = 3;
+
+	private final UnifiedDirectoryManager unifiedDirectoryManager;
+
+	private final PlanScopedState<Map<String, ColumnarTable>> tables;
+
+	private final long maxCells;
+
+	private final int maxResultRows;
+
+	public SheetQueryService(UnifiedDirectoryManager unifiedDirectoryManager, PlanStateRegistry planStateRegistry,
+			@Value("${lynxe.sheetQuery.maxCells:50000000}") long maxCells,
+			@Value("${lynxe.sheetQuery.maxResultRows:200}") int maxResultRows) {
+		this.unifiedDirectoryManager = unifiedDirectoryManager;
+		this.maxCells = maxCells;
+		this.maxResultRows = maxResultRows;
+		this.tables = planStateRegistry.<Map<String, ColumnarTable>>newScope("sheetQuery.tables")
+			.weigher(planTables -> planTables.values().stream().mapToLong(ColumnarTable::estimateBytes).sum())
+			.build();
+	}
+
+	/**
+	 * Describe the columns of a sheet: type, empty cells, distinct values of text
+	 * columns, numeric range and a few sample rows
+	 * @param rootPlanId Root plan whose directory holds the file
+	 * @param filePath File path relative to the root plan directory
+	 * @param worksheetName Worksheet name, null for the first one
+	 * @return Description for the model
+	 * @throws IOException if the file cannot be read
+	 */
+	public Map<String, Object> describe(String rootPlanId, String filePath, String worksheetName) throws IOException {
+		ColumnarTable table = table(rootPlanId, filePath, worksheetName);
+		List<Map<String, Object>> columns = new ArrayList<>();
+		for (Column column : table.getColumns()) {
+			Map<String, Object> info = new LinkedHashMap<>();
+			info.put("name", column.name());
+			info.put("type", column.type().name().toLowerCase());
+			info.put("empty", column.nullCount());
+			if (column instanceof StringColumn strings) {
+				info.put("distinct", strings.dictionary().length);
+			}
+			else if (column.nullCount() < table.getRowCount()) {
+				SheetQuery.Aggregate min = aggregate("min", column.name());
+				SheetQuery.Aggregate max = aggregate("max", column.name());
+				SheetQuery range = new SheetQuery();
+				range.setAggregates(List.of(min, max));
+				List<Object> values = SheetQueryExecutor.execute(table, range, 1).rows().get(0);
+				info.put("min", values.get(0));
+				info.put("max", values.get(1));
+			}
+			columns.add(info);
+		}
+
+		SheetQuery sample = new SheetQuery();
+		SheetQueryExecutor.Result rows = SheetQueryExecutor.execute(table, sample, SAMPLE_ROWS);
+
+		Map<String, Object> description = new LinkedHashMap<>();
+		description.put("file", filePath);
+		if (table.getWorksheetName() != null) {
+			description.put("worksheet", table.getWorksheetName());
+		}
+		description.put("rows", table.getRowCount());
+		description.put("columns", columns);
+		description.put("sample_rows", rows.rows());
+		return description;
+	}
+
+	/**
+	 * Run a query over a sheet
+	 * @param rootPlanId Root plan whose directory holds the file
+	 * @param filePath File path relative to the root plan directory
+	 * @param worksheetName Worksheet name, null for the first one
+	 * @param query Query to run
+	 * @return Result columns and rows with match counts
+	 * @throws IOException if the file cannot be read
+	 */
+	public Map<String, Object> query(String rootPlanId, String filePath, String worksheetName, SheetQuery query)
+			throws IOException {
+		if (query == null) {
+			throw new IllegalArgumentException("query is required");
+		}
+		ColumnarTable table = table(rootPlanId, filePath, worksheetName);
+		int limit = query.getLimit() == null ? 50 : Math.max(0, Math.min(query.getLimit(), maxResultRows));
+		long start = System.nanoTime();
+		SheetQueryExecutor.Result result = SheetQueryExecutor.execute(table, query, limit);
+		log.debug("Sheet query on {} matched {} of {} rows in {} ms", filePath, result.matchedRows(),
+				result.totalRows(), (System.nanoTime() - start) / 1_000_000);
+
+		Map<String, Object> output = new LinkedHashMap<>();
+		output.put("columns", result.columns());
+		output.put("rows", result.rows());
+		output.put("total_rows", result.totalRows());
+		output.put("matched_rows", result.matchedRows());
+		if (result.groups() != null) {
+			output.put("groups", result.groups());
+		}
+		if (result.truncated()) {
+			output.put("truncated", true);
+		}
+		return output;
+	}
+
+	/**
+	 * Version of a file for caching query results, changes whenever the file does
+	 * @return Version string, or null if the file cannot be resolved
+	 */
+	public String fileVersion(String rootPlanId, String filePath) {
+		try {
+			Path path = resolve(rootPlanId, filePath);
+			return path + "|" + Files.size(path) + "|" + Files.getLastModifiedTime(path).toMillis();
+		}
+		catch (IOException | IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Get the loaded table of a sheet, loading it on first use or after the file changed
+	 */
+	private ColumnarTable table(String rootPlanId, String filePath, String worksheetName) throws IOException {
+		Path path = resolve(rootPlanId, filePath);
+		Map<String, ColumnarTable> planTables = tables.computeIfAbsent(rootPlanId, id -> new ConcurrentHashMap<>());
+		String key = path + "#" + (worksheetName == null ? "" : worksheetName);
+		try {
+			// Loading under the key lock lets concurrent queries of one sheet share the load
+			ColumnarTable table = planTables.compute(key, (k, existing) -> {
+				if (existing != null && existing.isCurrent()) {
+					return existing;
+				}
+				try {
+					return ColumnarTable.load(path, worksheetName, maxCells);
+				}
+				catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+			evictTables(planTables, key);
+			return table;
+		}
+		catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	private void evictTables(Map<String, ColumnarTable> planTables, String keep) {
+		Iterator<String> keys = planTables.keySet().iterator();
+		while (planTables.size() > MAX_TABLES_PER_PLAN && keys.hasNext()) {
+			String key = keys.next();
+			if (!key.equals(keep)) {
+				planTables.remove(key);
+			}
+		}
+	}
+
+	private Path resolve(String rootPlanId, String filePath) throws IOException {
+		if (rootPlanId == null || rootPlanId.isEmpty()) {
+			throw new IOException("rootPlanId is required for sheet queries");
+		}
+		if (filePath == null || filePath.isBlank()) {
+			throw new IllegalArgumentException("file_path is required");
+		}
+		String lowerPath = filePath.toLowerCase();
+		if (SUPPORTED_EXTENSIONS.stream().noneMatch(lowerPath::endsWith)) {
+			throw new IllegalArgumentException("Unsupported file type. Only .csv, .xlsx and .xls files are supported.");
+		}
+		Path root = unifiedDirectoryManager.getRootPlanDirectory(rootPlanId).toAbsolutePath().normalize();
+		Path path = root.resolve(filePath.startsWith("/") ? filePath.substring(1) : filePath).normalize();
+		if (!path.startsWith(root)) {
+			throw new IllegalArgumentException("Access denied: file path must be within the root plan directory");
+		}
+		if (!Files.isRegularFile(path)) {
+			throw new IOException("File not found: " + filePath);
+		}
+		return path;
+	}
+
+	private static SheetQuery.Aggregate aggregate(String fn, String column) {
+		SheetQuery.Aggregate aggregate = new SheetQuery.Aggregate();
+		aggregate.setFn(fn);
+		aggregate.setColumn(column);
+		return aggregate;
+	}
+
+}
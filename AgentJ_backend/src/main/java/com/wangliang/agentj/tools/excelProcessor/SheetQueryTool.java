@@ -0,0 +1,192 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.tools.excelProcessor;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wangliang.agentj.tools.AbstractBaseTool;
+import com.wangliang.agentj.tools.CacheableTool;
+import com.wangliang.agentj.tools.code.ToolExecuteResult;
+import com.wangliang.agentj.tools.i18n.ToolI18nService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+
+/**
+ * Tool for analysing CSV and Excel sheets in place: the model asks for filters, groups,
+ * aggregates and top rows, and gets back only the result instead of the raw rows
+ */
+public class SheetQueryTool extends AbstractBaseTool<SheetQueryTool.SheetQueryInput>
+		implements CacheableTool<SheetQueryTool.SheetQueryInput> {
+
+	private static final Logger log = LoggerFactory.getLogger(SheetQueryTool.class);
+
+	private static final String TOOL_NAME = "sheet_query";
+
+	private final SheetQueryService sheetQueryService;
+
+	private final ObjectMapper objectMapper;
+
+	private final ToolI18nService toolI18nService;
+
+	public SheetQueryTool(SheetQueryService sheetQueryService, ObjectMapper objectMapper,
+			ToolI18nService toolI18nService) {
+		this.sheetQueryService = sheetQueryService;
+		this.objectMapper = objectMapper;
+		this.toolI18nService = toolI18nService;
+	}
+
+	/**
+	 * Input class for sheet queries
+	 */
+	public static class SheetQueryInput {
+
+		@JsonProperty("action")
+		private String action;
+
+		@JsonProperty("file_path")
+		private String filePath;
+
+		@JsonProperty("worksheet_name")
+		private String worksheetName;
+
+		@JsonProperty("query")
+		private SheetQuery query;
+
+		public String getAction() {
+			return action;
+		}
+
+		public void setAction(String action) {
+			this.action = action;
+		}
+
+		public String getFilePath() {
+			return filePath;
+		}
+
+		public void setFilePath(String filePath) {
+			this.filePath = filePath;
+		}
+
+		public String getWorksheetName() {
+			return worksheetName;
+		}
+
+		public void setWorksheetName(String worksheetName) {
+			this.worksheetName = worksheetName;
+		}
+
+		public SheetQuery getQuery() {
+			return query;
+		}
+
+		public void setQuery(SheetQuery query) {
+			this.query = query;
+		}
+
+	}
+
+	@Override
+	public ToolExecuteResult run(SheetQueryInput input) {
+		if (input == null || input.getAction() == null) {
+			return new ToolExecuteResult("Error: action is required");
+		}
+		String action = input.getAction();
+		log.info("SheetQueryTool input: action={}, filePath={}", action, input.getFilePath());
+		try {
+			Map<String, Object> result = switch (action) {
+				case "describe" ->
+					sheetQueryService.describe(getRootPlanId(), input.getFilePath(), input.getWorksheetName());
+				case "query" -> sheetQueryService.query(getRootPlanId(), input.getFilePath(),
+						input.getWorksheetName(), input.getQuery());
+				default -> null;
+			};
+			if (result == null) {
+				return new ToolExecuteResult("Error: unknown action " + action + ". Supported actions: describe, query");
+			}
+			return new ToolExecuteResult(objectMapper.writeValueAsString(result));
+		}
+		catch (IllegalArgumentException e) {
+			return new ToolExecuteResult("Error: " + e.getMessage());
+		}
+		catch (Exception e) {
+			log.error("SheetQueryTool {} failed for {}", action, input.getFilePath(), e);
+			return new ToolExecuteResult("Error: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Results are keyed by the file version, so an edited sheet is queried again
+	 */
+	@Override
+	public String getCacheKey(SheetQueryInput input) {
+		String version = sheetQueryService.fileVersion(getRootPlanId(), input.getFilePath());
+		if (version == null) {
+			return null;
+		}
+		try {
+			return input.getAction() + "|" + version + "|" + input.getWorksheetName() + "|"
+					+ objectMapper.writeValueAsString(input.getQuery());
+		}
+		catch (JsonProcessingException e) {
+			return null;
+		}
+	}
+
+	@Override
+	public String getServiceGroup() {
+		return "default-service-group";
+	}
+
+	@Override
+	public String getName() {
+		return TOOL_NAME;
+	}
+
+	@Override
+	public String getDescription() {
+		return toolI18nService.getDescription("sheet-query-tool");
+	}
+
+	@Override
+	public String getParameters() {
+		return toolI18nService.getParameters("sheet-query-tool");
+	}
+
+	@Override
+	public Class<SheetQueryInput> getInputType() {
+		return SheetQueryInput.class;
+	}
+
+	@Override
+	public boolean isSelectable() {
+		return true;
+	}
+
+	@Override
+	public String getCurrentToolStateString() {
+		return "Sheet query tool ready for CSV and Excel analysis";
+	}
+
+	@Override
+	public void cleanup(String planId) {
+		// Loaded sheets are dropped with the plan's state
+	}
+
+}
@@ -0,0 +1,708 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.tools.excelProcessor;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Edits one worksheet of an .xlsx file without loading the workbook.
+ *
+ * An .xlsx file is a zip of XML parts. Every part except the edited worksheet is copied
+ * byte for byte, so formulas, dates, number formats, styles, merged cells and column
+ * widths survive everywhere else. The edited worksheet is streamed: deleted rows are
+ * dropped and later rows renumbered, updated cells get inline values and keep their
+ * style, and all other content is copied unchanged. The workbook is flagged for full
+ * recalculation on load, so formulas depending on edited cells are not left stale.
+ *
+ * An update never overwrites the master cell of a shared or array formula, since the
+ * cells that depend on it would be left without their formula. The dimension of the
+ * sheet is adjusted to deleted and added rows and columns.
+ *
+ * Deleting rows renumbers the rows after them, so it is refused when anything refers to
+ * cells of the sheet by position and would not be shifted along: formulas, merged cells,
+ * hyperlinks, conditional formats, validations, tables, drawings, comments or filters
+ * on the sheet, and formulas, defined names, charts or pivot caches elsewhere that refer
+ * to it.
+ */
+final class XlsxSheetRewriter {
+
+	private static final String MAIN_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+
+	private static final String REL_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+	private static final String PACKAGE_REL_NS = "http://schemas.openxmlformats.org/package/2006/relationships";
+
+	/**
+	 * Worksheet elements that address cells by position
+	 */
+	private static final Set<String> POSITIONAL_ELEMENTS = Set.of("mergeCells", "hyperlinks", "conditionalFormatting",
+			"dataValidations", "tableParts", "drawing", "legacyDrawing", "autoFilter", "sortState", "protectedRanges",
+			"rowBreaks", "ignoredErrors");
+
+	private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newFactory();
+
+	private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newFactory();
+
+	private static final XMLEventFactory EVENTS = XMLEventFactory.newFactory();
+
+	static {
+		INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+	}
+
+	private final String worksheetName;
+
+	// 1-based numbers of deleted rows, ascending
+	private final int[] deletedRows;
+
+	// 1-based row -> 1-based column -> value
+	private final TreeMap<Integer, TreeMap<Integer, String>> pendingUpdates = new TreeMap<>();
+
+	private final List<String> replacedFormulas = new ArrayList<>();
+
+	private String prefix = "";
+
+	private XlsxSheetRewriter(String worksheetName, NavigableSet<Integer> deletedRows,
+			Map<Integer, Map<Integer, String>> cellUpdates) {
+		this.worksheetName = worksheetName;
+		this.deletedRows = deletedRows.stream().mapToInt(row -> row + 1).toArray();
+		cellUpdates.forEach((row, columns) -> {
+			TreeMap<Integer, String> byColumn = new TreeMap<>();
+			columns.forEach((column, value) -> byColumn.put(column + 1, value));
+			pendingUpdates.put(row + 1, byColumn);
+		});
+	}
+
+	/**
+	 * Write a copy of {@code source} to {@code target} with rows of the worksheet deleted
+	 * and cells updated
+	 * @param deletedRows 0-based rows to delete; later rows shift up
+	 * @param cellUpdates 0-based row -> 0-based column -> new value, addressed by the
+	 * row's position before deletion
+	 * @return Addresses of updated cells that held formulas, now replaced by values
+	 * @throws IOException If the worksheet is missing, the file is not a valid
+	 * workbook, or the deletion would break references to the sheet
+	 */
+	static List<String> rewrite(Path source, Path target, String worksheetName, NavigableSet<Integer> deletedRows,
+			Map<Integer, Map<Integer, String>> cellUpdates) throws IOException {
+		XlsxSheetRewriter rewriter = new XlsxSheetRewriter(worksheetName, deletedRows, cellUpdates);
+		try (ZipFile zip = new ZipFile(source.toFile())) {
+			String workbookPart = findWorkbookPart(zip);
+			Map<String, String> sheetParts = new HashMap<>();
+			List<String> definedNames = new ArrayList<>();
+			readWorkbook(zip, workbookPart, sheetParts, definedNames);
+			String sheetPart = sheetParts.get(worksheetName);
+			if (sheetPart == null || zip.getEntry(sheetPart) == null) {
+				throw new IOException("Worksheet not found: " + worksheetName);
+			}
+
+			if (!deletedRows.isEmpty()) {
+				for (String definedName : definedNames) {
+					if (rewriter.refersToSheet(definedName)) {
+						throw rewriter.refuse("defined names that refer to it");
+					}
+				}
+				String referrer = rewriter.findReferrer(zip, sheetPart);
+				if (referrer != null) {
+					throw rewriter.refuse("references to it in " + referrer);
+				}
+			}
+
+			try (ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(target)))) {
+				Enumeration<? extends ZipEntry> entries = zip.entries();
+				while (entries.hasMoreElements()) {
+					ZipEntry entry = entries.nextElement();
+					out.putNextEntry(new ZipEntry(entry.getName()));
+					try (InputStream in = zip.getInputStream(entry)) {
+						if (entry.getName().equals(sheetPart)) {
+							rewriter.rewriteSheet(in, out);
+						}
+						else if (entry.getName().equals(workbookPart)) {
+							requestRecalculation(in, out);
+						}
+						else {
+							in.transferTo(out);
+						}
+					}
+					out.closeEntry();
+				}
+			}
+		}
+		catch (XMLStreamException e) {
+			throw new IOException("Failed to rewrite worksheet " + worksheetName + ": " + e.getMessage(), e);
+		}
+		return rewriter.replacedFormulas;
+	}
+
+	private void rewriteSheet(InputStream in, OutputStream out) throws XMLStreamException, IOException {
+		XMLEventReader reader = INPUT_FACTORY.createXMLEventReader(in);
+		XMLEventWriter writer = OUTPUT_FACTORY.createXMLEventWriter(nonClosing(out), "UTF-8");
+		boolean inSheetData = false;
+		int lastRow = 0;
+		while (reader.hasNext()) {
+			XMLEvent event = reader.nextEvent();
+			if (event.isStartElement()) {
+				StartElement start = event.asStartElement();
+				String name = start.getName().getLocalPart();
+				if (inSheetData && "row".equals(name)) {
+					int row = intAttribute(start, "r", lastRow + 1);
+					lastRow = row;
+					writeNewRows(writer, row);
+					if (isDeleted(row)) {
+						skipElement(reader);
+					}
+					else {
+						copyRow(reader, writer, start, row);
+					}
+					continue;
+				}
+				if ("sheetData".equals(name)) {
+					inSheetData = true;
+					prefix = start.getName().getPrefix();
+				}
+				else if ("dimension".equals(name) && !inSheetData) {
+					event = rewriteDimension(start);
+				}
+				else if (deletedRows.length > 0 && POSITIONAL_ELEMENTS.contains(name)) {
+					throw refuse(name + " elements");
+				}
+			}
+			else if (inSheetData && event.isEndElement()
+					&& "sheetData".equals(event.asEndElement().getName().getLocalPart())) {
+				writeNewRows(writer, Integer.MAX_VALUE);
+				inSheetData = false;
+			}
+			writer.add(event);
+		}
+		writer.close();
+		reader.close();
+	}
+
+	private void copyRow(XMLEventReader reader, XMLEventWriter writer, StartElement start, int row)
+			throws XMLStreamException, IOException {
+		int newRow = row - deletedBefore(row);
+		TreeMap<Integer, String> updates = pendingUpdates.remove(row);
+		List<Attribute> attributes = new ArrayList<>();
+		for (Iterator<Attribute> it = start.getAttributes(); it.hasNext();) {
+			Attribute attribute = it.next();
+			String name = attribute.getName().getLocalPart();
+			// Spans only hint at the used columns; drop them when cells are added
+			if (!"r".equals(name) && !(updates != null && "spans".equals(name))) {
+				attributes.add(attribute);
+			}
+		}
+		attributes.add(EVENTS.createAttribute("r", Integer.toString(newRow)));
+		writer.add(EVENTS.createStartElement(start.getName(), attributes.iterator(), start.getNamespaces()));
+
+		int lastColumn = 0;
+		while (true) {
+			XMLEvent event = reader.nextEvent();
+			if (event.isStartElement() && "c".equals(event.asStartElement().getName().getLocalPart())) {
+				StartElement cell = event.asStartElement();
+				String ref = attribute(cell, "r");
+				int column = ref != null ? columnNumber(ref) : lastColumn + 1;
+				lastColumn = column;
+				if (updates != null && updates.containsKey(column)) {
+					writeNewCells(writer, updates, column, newRow);
+					String value = updates.remove(column);
+					StartElement formula = skipElement(reader);
+					if (formula != null) {
+						String type = attribute(formula, "t");
+						if ("array".equals(type) || ("shared".equals(type) && attribute(formula, "ref") != null)) {
+							throw new IOException("Cannot update cell " + reference(column, row) + " of worksheet '"
+									+ worksheetName + "' in this large workbook: it holds the master of a "
+									+ type + " formula that other cells depend on. Edit the formula range "
+									+ "in a smaller copy of the workbook.");
+						}
+						replacedFormulas.add(reference(column, row));
+					}
+					writeCell(writer, column, newRow, attribute(cell, "s"), value);
+				}
+				else {
+					if (updates != null) {
+						writeNewCells(writer, updates, column, newRow);
+					}
+					copyCell(reader, writer, cell, ref != null && newRow != row ? reference(column, newRow) : null);
+				}
+				continue;
+			}
+			if (event.isEndElement() && "row".equals(event.asEndElement().getName().getLocalPart())) {
+				if (updates != null) {
+					writeNewCells(writer, updates, Integer.MAX_VALUE, newRow);
+				}
+				writer.add(event);
+				return;
+			}
+			writer.add(event);
+		}
+	}
+
+	private void copyCell(XMLEventReader reader, XMLEventWriter writer, StartElement cell, String newRef)
+			throws XMLStreamException, IOException {
+		if (newRef == null) {
+			writer.add(cell);
+		}
+		else {
+			List<Attribute> attributes = new ArrayList<>();
+			for (Iterator<Attribute> it = cell.getAttributes(); it.hasNext();) {
+				Attribute attribute = it.next();
+				if (!"r".equals(attribute.getName().getLocalPart())) {
+					attributes.add(attribute);
+				}
+			}
+			attributes.add(EVENTS.createAttribute("r", newRef));
+			writer.add(EVENTS.createStartElement(cell.getName(), attributes.iterator(), cell.getNamespaces()));
+		}
+		int depth = 1;
+		while (depth > 0) {
+			XMLEvent event = reader.nextEvent();
+			if (event.isStartElement()) {
+				depth++;
+				if (deletedRows.length > 0 && "f".equals(event.asStartElement().getName().getLocalPart())) {
+					throw refuse("formulas");
+				}
+			}
+			else if (event.isEndElement()) {
+				depth--;
+			}
+			writer.add(event);
+		}
+	}
+
+	/**
+	 * Dimension element with its range shifted by the deleted rows and widened to cover
+	 * the updated cells
+	 */
+	private StartElement rewriteDimension(StartElement dimension) {
+		String ref = attribute(dimension, "ref");
+		if (ref == null || ref.isEmpty()) {
+			return dimension;
+		}
+		String[] corners = ref.split(":");
+		String last = corners[corners.length - 1];
+		int firstColumn = columnNumber(corners[0]);
+		int lastColumn = columnNumber(last);
+		int firstRow = rowNumber(corners[0]);
+		int lastRow = rowNumber(last);
+		if (firstColumn == 0 || firstRow == 0 || lastColumn == 0 || lastRow == 0) {
+			return dimension;
+		}
+		// Rows after a deleted one move up; a deleted last row is replaced by the one above
+		firstRow = Math.max(1, firstRow - deletedBefore(firstRow));
+		lastRow = Math.max(firstRow, lastRow - deletedBefore(lastRow + 1));
+		for (Map.Entry<Integer, TreeMap<Integer, String>> entry : pendingUpdates.entrySet()) {
+			if (isDeleted(entry.getKey()) || entry.getValue().isEmpty()) {
+				continue;
+			}
+			int row = entry.getKey() - deletedBefore(entry.getKey());
+			firstRow = Math.min(firstRow, row);
+			lastRow = Math.max(lastRow, row);
+			firstColumn = Math.min(firstColumn, entry.getValue().firstKey());
+			lastColumn = Math.max(lastColumn, entry.getValue().lastKey());
+		}
+		String newRef = firstRow == lastRow && firstColumn == lastColumn ? reference(firstColumn, firstRow)
+				: reference(firstColumn, firstRow) + ":" + reference(lastColumn, lastRow);
+		List<Attribute> attributes = new ArrayList<>();
+		for (Iterator<Attribute> it = dimension.getAttributes(); it.hasNext();) {
+			Attribute attribute = it.next();
+			if (!"ref".equals(attribute.getName().getLocalPart())) {
+				attributes.add(attribute);
+			}
+		}
+		attributes.add(EVENTS.createAttribute("ref", newRef));
+		return EVENTS.createStartElement(dimension.getName(), attributes.iterator(), dimension.getNamespaces());
+	}
+
+	/**
+	 * Write rows that only exist through updates and come before {@code beforeRow}
+	 */
+	private void writeNewRows(XMLEventWriter writer, int beforeRow) throws XMLStreamException {
+		while (!pendingUpdates.isEmpty() && pendingUpdates.firstKey() < beforeRow) {
+			Map.Entry<Integer, TreeMap<Integer, String>> entry = pendingUpdates.pollFirstEntry();
+			if (isDeleted(entry.getKey())) {
+				continue;
+			}
+			int newRow = entry.getKey() - deletedBefore(entry.getKey());
+			writer.add(EVENTS.createStartElement(prefix, MAIN_NS, "row",
+					List.of(EVENTS.createAttribute("r", Integer.toString(newRow))).iterator(),
+					Collections.emptyIterator()));
+			writeNewCells(writer, entry.getValue(), Integer.MAX_VALUE, newRow);
+			writer.add(EVENTS.createEndElement(prefix, MAIN_NS, "row"));
+		}
+	}
+
+	/**
+	 * Write updated cells that do not exist yet and come before {@code beforeColumn}
+	 */
+	private void writeNewCells(XMLEventWriter writer, TreeMap<Integer, String> updates, int beforeColumn, int row)
+			throws XMLStreamException {
+		while (!updates.isEmpty() && updates.firstKey() < beforeColumn) {
+			Map.Entry<Integer, String> update = updates.pollFirstEntry();
+			writeCell(writer, update.getKey(), row, null, update.getValue());
+		}
+	}
+
+	/**
+	 * Write a cell with an inline value typed the way the streaming CSV rewrite types it
+	 */
+	private void writeCell(XMLEventWriter writer, int column, int row, String style, String value)
+			throws XMLStreamException {
+		Object typed = ExcelProcessingService.toCellValue(value);
+		List<Attribute> attributes = new ArrayList<>();
+		attributes.add(EVENTS.createAttribute("r", reference(column, row)));
+		if (style != null) {
+			attributes.add(EVENTS.createAttribute("s", style));
+		}
+		if (typed instanceof Boolean) {
+			attributes.add(EVENTS.createAttribute("t", "b"));
+		}
+		else if (typed instanceof String text && !text.isEmpty()) {
+			attributes.add(EVENTS.createAttribute("t", "inlineStr"));
+		}
+		writer.add(EVENTS.createStartElement(prefix, MAIN_NS, "c", attributes.iterator(), Collections.emptyIterator()));
+		if (typed instanceof Boolean bool) {
+			writeText(writer, "v", bool ? "1" : "0", false);
+		}
+		else if (typed instanceof BigDecimal number) {
+			writeText(writer, "v", number.toPlainString(), false);
+		}
+		else if (typed instanceof String text && !text.isEmpty()) {
+			writer.add(EVENTS.createStartElement(prefix, MAIN_NS, "is"));
+			writeText(writer, "t", text, true);
+			writer.add(EVENTS.createEndElement(prefix, MAIN_NS, "is"));
+		}
+		writer.add(EVENTS.createEndElement(prefix, MAIN_NS, "c"));
+	}
+
+	private void writeText(XMLEventWriter writer, String element, String text, boolean preserveSpace)
+			throws XMLStreamException {
+		Iterator<Attribute> attributes = preserveSpace
+				? List.of(EVENTS.createAttribute("xml", "http://www.w3.org/XML/1998/namespace", "space", "preserve"))
+					.iterator()
+				: Collections.emptyIterator();
+		writer.add(EVENTS.createStartElement(prefix, MAIN_NS, element, attributes, Collections.emptyIterator()));
+		writer.add(EVENTS.createCharacters(text));
+		writer.add(EVENTS.createEndElement(prefix, MAIN_NS, element));
+	}
+
+	private boolean isDeleted(int row) {
+		return Arrays.binarySearch(deletedRows, row) >= 0;
+	}
+
+	private int deletedBefore(int row) {
+		int index = Arrays.binarySearch(deletedRows, row);
+		return index >= 0 ? index : -index - 1;
+	}
+
+	/**
+	 * First part other than the edited sheet that refers to the sheet by name, or null
+	 */
+	private String findReferrer(ZipFile zip, String sheetPart) throws IOException, XMLStreamException {
+		Enumeration<? extends ZipEntry> entries = zip.entries();
+		while (entries.hasMoreElements()) {
+			ZipEntry entry = entries.nextElement();
+			String name = entry.getName();
+			if (name.equals(sheetPart) || !name.endsWith(".xml") || name.endsWith("sharedStrings.xml")
+					|| name.endsWith("styles.xml")) {
+				continue;
+			}
+			try (InputStream in = zip.getInputStream(entry)) {
+				if (partRefersToSheet(in)) {
+					return name;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Whether a part has a formula or chart range naming the sheet, or a pivot cache
+	 * sourced from it
+	 */
+	private boolean partRefersToSheet(InputStream in) throws XMLStreamException {
+		XMLEventReader reader = INPUT_FACTORY.createXMLEventReader(in);
+		try {
+			while (reader.hasNext()) {
+				XMLEvent event = reader.nextEvent();
+				if (!event.isStartElement()) {
+					continue;
+				}
+				StartElement start = event.asStartElement();
+				String name = start.getName().getLocalPart();
+				if ("f".equals(name) && refersToSheet(reader.getElementText())) {
+					return true;
+				}
+				if ("worksheetSource".equals(name) && worksheetName.equals(attribute(start, "sheet"))) {
+					return true;
+				}
+			}
+			return false;
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+	private boolean refersToSheet(String formula) {
+		return formula.contains(worksheetName + "!")
+				|| formula.contains("'" + worksheetName.replace("'", "''") + "'!");
+	}
+
+	private IOException refuse(String reason) {
+		return new IOException("Cannot delete rows from worksheet '" + worksheetName
+				+ "' of this large workbook: the sheet has " + reason
+				+ ", which would not be shifted with the rows. Clear the rows with update_cells instead, "
+				+ "or delete them in a smaller copy of the workbook.");
+	}
+
+	/**
+	 * Path of the workbook part, from the package relationships
+	 */
+	private static String findWorkbookPart(ZipFile zip) throws IOException, XMLStreamException {
+		ZipEntry rels = zip.getEntry("_rels/.rels");
+		if (rels != null) {
+			try (InputStream in = zip.getInputStream(rels)) {
+				for (String[] relationship : readRelationships(in)) {
+					if (relationship[1].endsWith("/officeDocument")) {
+						return resolve("", relationship[2]);
+					}
+				}
+			}
+		}
+		return "xl/workbook.xml";
+	}
+
+	private static void readWorkbook(ZipFile zip, String workbookPart, Map<String, String> sheetParts,
+			List<String> definedNames) throws IOException, XMLStreamException {
+		ZipEntry workbook = zip.getEntry(workbookPart);
+		if (workbook == null) {
+			throw new IOException("Not an .xlsx workbook: " + workbookPart + " is missing");
+		}
+		Map<String, String> sheetIds = new HashMap<>();
+		try (InputStream in = zip.getInputStream(workbook)) {
+			XMLEventReader reader = INPUT_FACTORY.createXMLEventReader(in);
+			while (reader.hasNext()) {
+				XMLEvent event = reader.nextEvent();
+				if (!event.isStartElement()) {
+					continue;
+				}
+				StartElement start = event.asStartElement();
+				String name = start.getName().getLocalPart();
+				if ("sheet".equals(name)) {
+					Attribute id = start.getAttributeByName(new QName(REL_NS, "id"));
+					if (id != null) {
+						sheetIds.put(id.getValue(), attribute(start, "name"));
+					}
+				}
+				else if ("definedName".equals(name)) {
+					definedNames.add(reader.getElementText());
+				}
+			}
+			reader.close();
+		}
+
+		String relsPart = workbookPart.substring(0, workbookPart.lastIndexOf('/') + 1) + "_rels/"
+				+ workbookPart.substring(workbookPart.lastIndexOf('/') + 1) + ".rels";
+		ZipEntry rels = zip.getEntry(relsPart);
+		if (rels == null) {
+			throw new IOException("Not an .xlsx workbook: " + relsPart + " is missing");
+		}
+		try (InputStream in = zip.getInputStream(rels)) {
+			for (String[] relationship : readRelationships(in)) {
+				String sheetName = sheetIds.get(relationship[0]);
+				if (sheetName != null) {
+					sheetParts.put(sheetName, resolve(workbookPart, relationship[2]));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Relationships of a .rels part as {id, type, target}
+	 */
+	private static List<String[]> readRelationships(InputStream in) throws XMLStreamException {
+		List<String[]> relationships = new ArrayList<>();
+		XMLEventReader reader = INPUT_FACTORY.createXMLEventReader(in);
+		while (reader.hasNext()) {
+			XMLEvent event = reader.nextEvent();
+			if (event.isStartElement()) {
+				StartElement start = event.asStartElement();
+				if (PACKAGE_REL_NS.equals(start.getName().getNamespaceURI())
+						&& "Relationship".equals(start.getName().getLocalPart())) {
+					relationships.add(new String[] { attribute(start, "Id"), String.valueOf(attribute(start, "Type")),
+							String.valueOf(attribute(start, "Target")) });
+				}
+			}
+		}
+		reader.close();
+		return relationships;
+	}
+
+	/**
+	 * Resolve a relationship target against the part that owns the relationship
+	 */
+	private static String resolve(String sourcePart, String target) {
+		if (target.startsWith("/")) {
+			return target.substring(1);
+		}
+		String directory = sourcePart.substring(0, sourcePart.lastIndexOf('/') + 1);
+		return URI.create(directory).resolve(target).getPath();
+	}
+
+	/**
+	 * Copy the workbook part with full recalculation on load turned on, so formulas
+	 * over edited cells do not show stale cached results
+	 */
+	private static void requestRecalculation(InputStream in, OutputStream out) throws XMLStreamException {
+		XMLEventReader reader = INPUT_FACTORY.createXMLEventReader(in);
+		XMLEventWriter writer = OUTPUT_FACTORY.createXMLEventWriter(nonClosing(out), "UTF-8");
+		while (reader.hasNext()) {
+			XMLEvent event = reader.nextEvent();
+			if (event.isStartElement() && "calcPr".equals(event.asStartElement().getName().getLocalPart())) {
+				StartElement start = event.asStartElement();
+				List<Attribute> attributes = new ArrayList<>();
+				for (Iterator<Attribute> it = start.getAttributes(); it.hasNext();) {
+					Attribute attribute = it.next();
+					if (!"fullCalcOnLoad".equals(attribute.getName().getLocalPart())) {
+						attributes.add(attribute);
+					}
+				}
+				attributes.add(EVENTS.createAttribute("fullCalcOnLoad", "1"));
+				event = EVENTS.createStartElement(start.getName(), attributes.iterator(), start.getNamespaces());
+			}
+			writer.add(event);
+		}
+		writer.close();
+		reader.close();
+	}
+
+	/**
+	 * Consume the rest of the current element
+	 * @return the formula element the element contained, or null
+	 */
+	private static StartElement skipElement(XMLEventReader reader) throws XMLStreamException {
+		StartElement formula = null;
+		int depth = 1;
+		while (depth > 0) {
+			XMLEvent event = reader.nextEvent();
+			if (event.isStartElement()) {
+				depth++;
+				if ("f".equals(event.asStartElement().getName().getLocalPart())) {
+					formula = event.asStartElement();
+				}
+			}
+			else if (event.isEndElement()) {
+				depth--;
+			}
+		}
+		return formula;
+	}
+
+	private static String attribute(StartElement element, String name) {
+		Attribute attribute = element.getAttributeByName(new QName(name));
+		return attribute != null ? attribute.getValue() : null;
+	}
+
+	private static int intAttribute(StartElement element, String name, int fallback) {
+		String value = attribute(element, name);
+		return value != null ? Integer.parseInt(value) : fallback;
+	}
+
+	/**
+	 * 1-based column number of a cell reference such as "AB12"
+	 */
+	static int columnNumber(String ref) {
+		int column = 0;
+		for (int i = 0; i < ref.length() && Character.isLetter(ref.charAt(i)); i++) {
+			column = column * 26 + (Character.toUpperCase(ref.charAt(i)) - 'A' + 1);
+		}
+		return column;
+	}
+
+	/**
+	 * Row number of a cell reference such as "AB12", or 0 if it has none
+	 */
+	static int rowNumber(String ref) {
+		int i = 0;
+		while (i < ref.length() && Character.isLetter(ref.charAt(i))) {
+			i++;
+		}
+		try {
+			return i < ref.length() ? Integer.parseInt(ref.substring(i)) : 0;
+		}
+		catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	static String reference(int column, int row) {
+		StringBuilder letters = new StringBuilder();
+		for (int c = column; c > 0; c = (c - 1) / 26) {
+			letters.insert(0, (char) ('A' + (c - 1) % 26));
+		}
+		return letters.append(row).toString();
+	}
+
+	/**
+	 * StAX writers may close their stream; keep the zip stream open for the next entry
+	 */
+	private static OutputStream nonClosing(OutputStream out) {
+		return new FilterOutputStream(out) {
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				out.write(b, off, len);
+			}
+
+			@Override
+			public void close() throws IOException {
+				flush();
+			}
+		};
+	}
+
+}
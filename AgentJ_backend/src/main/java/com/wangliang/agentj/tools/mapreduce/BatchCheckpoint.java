@@ -0,0 +1,235 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.tools.mapreduce;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.BitSet;
+
+/**
+ * Progress of a file based batch, kept next to its JSON Lines output in the root plan
+ * directory.
+ * <p>
+ * The output file is the source of truth: every finished item is one flushed line
+ * carrying its input index, so a restarted batch skips exactly the indexes found there.
+ * The checkpoint file ties an input file and tool to that output and records whether the
+ * batch finished; a batch is only resumed while it is still running and its input has
+ * not changed since it started.
+ */
+final class BatchCheckpoint {
+
+	private static final Logger logger = LoggerFactory.getLogger(BatchCheckpoint.class);
+
+	static final String STATUS_RUNNING = "RUNNING";
+
+	static final String STATUS_COMPLETED = "COMPLETED";
+
+	private final ObjectMapper objectMapper;
+
+	private final Path checkpointFile;
+
+	private final Path outputFile;
+
+	private final boolean resumed;
+
+	private State state;
+
+	private BatchCheckpoint(ObjectMapper objectMapper, Path checkpointFile, Path outputFile, boolean resumed,
+			State state) {
+		this.objectMapper = objectMapper;
+		this.checkpointFile = checkpointFile;
+		this.outputFile = outputFile;
+		this.resumed = resumed;
+		this.state = state;
+	}
+
+	/**
+	 * Pick up the running batch of this input and tool, or start a new one
+	 * @param objectMapper Mapper for the checkpoint file
+	 * @param directory Root plan directory holding input, output and checkpoint
+	 * @param inputFileName Input file name as given to the tool
+	 * @param inputFile Resolved input file
+	 * @param toolName Tool executed for every item
+	 */
+	static BatchCheckpoint open(ObjectMapper objectMapper, Path directory, String inputFileName, Path inputFile,
+			String toolName) throws IOException {
+		Path checkpointFile = directory
+			.resolve(".batch-" + (toolName + "-" + inputFileName).replaceAll("[^A-Za-z0-9._-]", "_") + ".checkpoint.json");
+		long inputSize = Files.size(inputFile);
+		long inputModified = Files.getLastModifiedTime(inputFile).toMillis();
+
+		if (Files.exists(checkpointFile)) {
+			try {
+				State previous = objectMapper.readValue(checkpointFile.toFile(), State.class);
+				Path previousOutput = directory.resolve(previous.outputFile()).normalize();
+				if (STATUS_RUNNING.equals(previous.status()) && toolName.equals(previous.toolName())
+						&& inputSize == previous.inputSize() && inputModified == previous.inputModified()
+						&& previousOutput.startsWith(directory) && Files.exists(previousOutput)) {
+					logger.info("Resuming batch of {} over {} into {}", toolName, inputFileName, previous.outputFile());
+					return new BatchCheckpoint(objectMapper, checkpointFile, previousOutput, true, previous);
+				}
+			}
+			catch (IOException e) {
+				logger.warn("Ignoring unreadable batch checkpoint {}: {}", checkpointFile, e.getMessage());
+			}
+		}
+
+		String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+		String outputFileName = toolName + "-" + timestamp + ".jsonl";
+		State state = new State(inputFileName, toolName, outputFileName, inputSize, inputModified, STATUS_RUNNING, 0,
+				0);
+		BatchCheckpoint checkpoint = new BatchCheckpoint(objectMapper, checkpointFile,
+				directory.resolve(outputFileName), false, state);
+		checkpoint.write();
+		return checkpoint;
+	}
+
+	boolean isResumed() {
+		return resumed;
+	}
+
+	Path getOutputFile() {
+		return outputFile;
+	}
+
+	String getOutputFileName() {
+		return state.outputFile();
+	}
+
+	/**
+	 * Scan the output of an earlier run. A line cut short by a crash is truncated away
+	 * so appended results start on a fresh line.
+	 * @return Indexes already finished with the success and failure counts among them
+	 */
+	Progress readProgress() throws IOException {
+		BitSet finished = new BitSet();
+		int successCount = 0;
+		int failureCount = 0;
+		if (!Files.exists(outputFile)) {
+			return new Progress(finished, 0, 0);
+		}
+		truncatePartialLine();
+		try (BufferedReader reader = Files.newBufferedReader(outputFile)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isBlank()) {
+					continue;
+				}
+				try {
+					JsonNode result = objectMapper.readTree(line);
+					int index = result.path("index").asInt(-1);
+					if (index < 0 || finished.get(index)) {
+						continue;
+					}
+					finished.set(index);
+					if ("SUCCESS".equals(result.path("status").asText())) {
+						successCount++;
+					}
+					else {
+						failureCount++;
+					}
+				}
+				catch (IOException e) {
+					logger.warn("Skipping unreadable result line in {}: {}", outputFile, e.getMessage());
+				}
+			}
+		}
+		return new Progress(finished, successCount, failureCount);
+	}
+
+	/**
+	 * Record the counts so far, the batch stays resumable
+	 */
+	void update(int successCount, int failureCount) throws IOException {
+		state = state.with(STATUS_RUNNING, successCount, failureCount);
+		write();
+	}
+
+	/**
+	 * Mark the batch finished, running the same input again starts a new output
+	 */
+	void complete(int successCount, int failureCount) throws IOException {
+		state = state.with(STATUS_COMPLETED, successCount, failureCount);
+		write();
+	}
+
+	/**
+	 * Drop the checkpoint and output of a batch that produced nothing
+	 */
+	void discard() throws IOException {
+		Files.deleteIfExists(outputFile);
+		Files.deleteIfExists(checkpointFile);
+	}
+
+	private void write() throws IOException {
+		Path tmp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+		Files.write(tmp, objectMapper.writeValueAsBytes(state));
+		Files.move(tmp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private void truncatePartialLine() throws IOException {
+		try (FileChannel channel = FileChannel.open(outputFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			long size = channel.size();
+			ByteBuffer one = ByteBuffer.allocate(1);
+			long end = size;
+			while (end > 0) {
+				one.clear();
+				channel.read(one, end - 1);
+				if (one.get(0) == '\n') {
+					break;
+				}
+				end--;
+			}
+			if (end < size) {
+				logger.warn("Truncating partial result line at offset {} in {}", end, outputFile);
+				channel.truncate(end);
+			}
+		}
+	}
+
+	/**
+	 * Finished indexes of an earlier run
+	 */
+	record Progress(BitSet finished, int successCount, int failureCount) {
+	}
+
+	/**
+	 * Checkpoint file content
+	 */
+	record State(String inputFile, String toolName, String outputFile, long inputSize, long inputModified,
+			String status, int successCount, int failureCount) {
+
+		State with(String status, int successCount, int failureCount) {
+			return new State(inputFile, toolName, outputFile, inputSize, inputModified, status, successCount,
+					failureCount);
+		}
+
+	}
+
+}
@@ -15,8 +15,8 @@
  */
 package com.wangliang.agentj.tools.mapreduce;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wangliang.agentj.planning.PlanningFactory;
 import com.wangliang.agentj.tools.AbstractBaseTool;
@@ -28,29 +28,39 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.model.ToolContext;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.List;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
- * File-based parallel execution tool that reads JSON parameters from a file (JSON array)
- * and executes a specified tool for each parameter set.
+ * File-based parallel execution tool that reads JSON parameters from a file and executes a
+ * specified tool for each parameter set.
  *
- * The file format: The entire file contains a single JSON array, where each element is a
- * JSON object representing one parameter set.
+ * The file format: JSON Lines, one JSON object per line, or a single JSON array of
+ * objects. Either way the file is read incrementally while the batch runs, and every
+ * result is appended to a JSON Lines output as soon as it completes. A batch that stops
+ * half way resumes where it stopped when it is run again with the same file and tool (see
+ * {@link BatchCheckpoint}).
  */
 public class FileBasedParallelExecutionTool extends AbstractBaseTool<FileBasedParallelExecutionTool.BatchExecutionInput>
 		implements AsyncToolCallBiFunctionDef<FileBasedParallelExecutionTool.BatchExecutionInput> {
 
 	private static final Logger logger = LoggerFactory.getLogger(FileBasedParallelExecutionTool.class);
 
+	/**
+	 * Results between two checkpoint updates
+	 */
+	private static final int CHECKPOINT_INTERVAL = 100;
+
 	private final ObjectMapper objectMapper;
 
 	private final Map<String, PlanningFactory.ToolCallBackContext> toolCallbackMap;
@@ -147,97 +157,96 @@ public class FileBasedParallelExecutionTool extends AbstractBaseTool<FileBasedPa
 	 * Asynchronous version - returns CompletableFuture for non-blocking execution
 	 */
 	@Override
-	public java.util.concurrent.CompletableFuture<ToolExecuteResult> applyAsync(BatchExecutionInput input,
+	public CompletableFuture<ToolExecuteResult> applyAsync(BatchExecutionInput input,
 			ToolContext toolContext) {
 		try {
 			String fileName = input.getFileName();
 			String toolName = input.getToolName();
 
 			if (fileName == null || fileName.trim().isEmpty()) {
-				return java.util.concurrent.CompletableFuture
+				return CompletableFuture
 					.completedFuture(new ToolExecuteResult("Error: file_name parameter is required"));
 			}
 
 			if (toolName == null || toolName.trim().isEmpty()) {
-				return java.util.concurrent.CompletableFuture
+				return CompletableFuture
 					.completedFuture(new ToolExecuteResult("Error: tool_name parameter is required"));
 			}
 
 			logger.debug("Executing batch execution: file={}, tool={}", fileName, toolName);
 
-			// Read file and parse JSON parameters
-			List<Map<String, Object>> paramsList = readAndParseFile(fileName);
-			if (paramsList == null || paramsList.isEmpty()) {
-				return java.util.concurrent.CompletableFuture
-					.completedFuture(new ToolExecuteResult("Error: No valid parameters found in file"));
+			if (parallelExecutionService.lookupToolContext(toolName, toolCallbackMap) == null) {
+				return CompletableFuture.completedFuture(new ToolExecuteResult("Error: Tool not found: " + toolName));
 			}
 
-			// Use common service to execute tools in parallel
-			List<ParallelExecutionService.ParallelExecutionRequest> executions = new ArrayList<>();
-			for (Map<String, Object> params : paramsList) {
-				executions.add(new ParallelExecutionService.ParallelExecutionRequest(toolName, params));
+			Path inputFile = resolveInRootPlanDirectory(fileName);
+			if (inputFile == null || !Files.exists(inputFile)) {
+				logger.error("File not found in root plan directory: {}", fileName);
+				return CompletableFuture
+					.completedFuture(new ToolExecuteResult("Error: File not found: " + fileName));
 			}
 
-			return parallelExecutionService.executeToolsInParallel(executions, toolCallbackMap, toolContext)
-				.thenApply(results -> {
-					// Count success and failure
-					int successCount = 0;
-					int failureCount = 0;
-					for (Map<String, Object> result : results) {
-						String status = (String) result.get("status");
-						if ("SUCCESS".equals(status)) {
-							successCount++;
-						}
-						else {
-							failureCount++;
-						}
-					}
+			BatchCheckpoint checkpoint = BatchCheckpoint.open(objectMapper,
+					directoryManager.getRootPlanDirectory(rootPlanId), fileName, inputFile, toolName);
+			BatchCheckpoint.Progress previous = checkpoint.isResumed() ? checkpoint.readProgress()
+					: new BatchCheckpoint.Progress(new BitSet(), 0, 0);
 
-					// Build complete result JSON
-					Map<String, Object> finalResult = new HashMap<>();
-					finalResult.put("message", "Executed " + paramsList.size() + " parameter sets");
-					finalResult.put("total", paramsList.size());
-					finalResult.put("successCount", successCount);
-					finalResult.put("failureCount", failureCount);
-					finalResult.put("results", results);
-
-					// Generate filename: toolName-timestamp.json
-					String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
-					String outputFileName = toolName + "-" + timestamp + ".json";
-
-					// Save complete JSON to file
-					String savedFilePath = saveResultToFile(finalResult, outputFileName);
-					if (savedFilePath == null) {
-						// If file save failed, return full result as fallback
-						try {
-							return new ToolExecuteResult(objectMapper.writeValueAsString(finalResult));
-						}
-						catch (JsonProcessingException e) {
-							logger.error("Error serializing result: {}", e.getMessage(), e);
-							return new ToolExecuteResult(
-									String.format("Executed %d parameter sets. Success: %d, Failure: %d",
-											paramsList.size(), successCount, failureCount));
-						}
-					}
-
-					// Return simplified message
-					String summaryMessage = String.format(
-							"Executed %d parameter sets. Success: %d, Failure: %d. Details saved to file: %s",
-							paramsList.size(), successCount, failureCount, outputFileName);
-					return new ToolExecuteResult(summaryMessage);
+			MappingIterator<Map<String, Object>> params = objectMapper
+				.readerFor(new TypeReference<Map<String, Object>>() {
 				})
-				.exceptionally(ex -> {
-					logger.error("Error in batch execution: {}", ex.getMessage(), ex);
-					return new ToolExecuteResult("Error in batch execution: " + ex.getMessage());
+				.readValues(inputFile.toFile());
+			BufferedWriter output = Files.newBufferedWriter(checkpoint.getOutputFile(), StandardOpenOption.CREATE,
+					StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+			ResultWriter resultWriter = new ResultWriter(output, checkpoint, previous);
+
+			return parallelExecutionService
+				.executeStreaming(toRequests(params, toolName), previous.finished()::get, resultWriter,
+						toolCallbackMap, toolContext)
+				.handle((stats, ex) -> {
+					closeQuietly(params, output);
+					if (ex != null) {
+						// The checkpoint stays running, the next call resumes this batch
+						logger.error("Error in batch execution: {}", ex.getMessage(), ex);
+						return new ToolExecuteResult(String.format(
+								"Error in batch execution: %s. %d results saved to file: %s, run again to resume",
+								ex.getMessage(), resultWriter.written(), checkpoint.getOutputFileName()));
+					}
+					return summarize(stats, previous, checkpoint);
 				});
 		}
 		catch (Exception e) {
 			logger.error("Error in FileBasedParallelExecutionTool: {}", e.getMessage(), e);
-			return java.util.concurrent.CompletableFuture
+			return CompletableFuture
 				.completedFuture(new ToolExecuteResult("Error: " + e.getMessage()));
 		}
 	}
 
+	private ToolExecuteResult summarize(ParallelExecutionService.BatchStats stats, BatchCheckpoint.Progress previous,
+			BatchCheckpoint checkpoint) {
+		try {
+			if (stats.total() == 0) {
+				checkpoint.discard();
+				return new ToolExecuteResult("Error: No valid parameters found in file");
+			}
+			int successCount = previous.successCount() + stats.successCount();
+			int failureCount = previous.failureCount() + stats.failureCount();
+			checkpoint.complete(successCount, failureCount);
+
+			String summaryMessage = String.format(
+					"Executed %d parameter sets. Success: %d, Failure: %d. Details saved to file: %s", stats.total(),
+					successCount, failureCount, checkpoint.getOutputFileName());
+			if (stats.skipped() > 0) {
+				summaryMessage += String.format(" (resumed, %d already done by an earlier run)", stats.skipped());
+			}
+			return new ToolExecuteResult(summaryMessage);
+		}
+		catch (IOException e) {
+			logger.error("Error finishing batch checkpoint: {}", e.getMessage(), e);
+			return new ToolExecuteResult(String.format("Executed %d parameter sets. Details saved to file: %s",
+					stats.total(), checkpoint.getOutputFileName()));
+		}
+	}
+
 	@Override
 	public ToolExecuteResult run(BatchExecutionInput input) {
 		throw new UnsupportedOperationException(
@@ -245,113 +254,112 @@ public class FileBasedParallelExecutionTool extends AbstractBaseTool<FileBasedPa
 	}
 
 	/**
-	 * Read file and parse JSON array of parameters File is located in root plan shared
-	 * directory (same as MarkdownConverterTool)
+	 * Resolve a file name in the root plan shared directory (same as
+	 * MarkdownConverterTool)
+	 * @return Resolved path, or null if there is no root plan or the name escapes its
+	 * directory
 	 */
-	private List<Map<String, Object>> readAndParseFile(String fileName) {
-		try {
-			if (rootPlanId == null || rootPlanId.trim().isEmpty()) {
-				logger.error("rootPlanId is required for file operations but is null or empty");
-				return null;
-			}
+	private Path resolveInRootPlanDirectory(String fileName) {
+		if (rootPlanId == null || rootPlanId.trim().isEmpty()) {
+			logger.error("rootPlanId is required for file operations but is null or empty");
+			return null;
+		}
 
-			// Get the root plan directory (same as MarkdownConverterTool)
-			Path rootPlanDirectory = directoryManager.getRootPlanDirectory(rootPlanId);
+		Path rootPlanDirectory = directoryManager.getRootPlanDirectory(rootPlanId);
+		Path filePath = rootPlanDirectory.resolve(fileName).normalize();
 
-			// Resolve file path within the root plan directory
-			Path filePath = rootPlanDirectory.resolve(fileName).normalize();
+		// Ensure the path stays within the root plan directory
+		if (!filePath.startsWith(rootPlanDirectory)) {
+			logger.warn("File path is outside root plan directory: {}", fileName);
+			return null;
+		}
+		return filePath;
+	}
 
-			// Ensure the path stays within the root plan directory
-			if (!filePath.startsWith(rootPlanDirectory)) {
-				logger.warn("File path is outside root plan directory: {}", fileName);
-				return null;
-			}
+	/**
+	 * Lazily map parsed parameter sets to execution requests, a {@code null} element runs
+	 * the tool without parameters
+	 */
+	private static Iterator<ParallelExecutionService.ParallelExecutionRequest> toRequests(
+			Iterator<Map<String, Object>> params, String toolName) {
+		return new Iterator<>() {
 
-			if (!Files.exists(filePath)) {
-				logger.error("File not found in root plan directory: {} (full path: {})", fileName, filePath);
-				return null;
+			@Override
+			public boolean hasNext() {
+				return params.hasNext();
 			}
 
-			// Read entire file content
-			String fileContent = Files.readString(filePath).trim();
-			if (fileContent.isEmpty()) {
-				logger.warn("File is empty: {}", filePath);
-				return new ArrayList<>();
+			@Override
+			public ParallelExecutionService.ParallelExecutionRequest next() {
+				Map<String, Object> next = params.next();
+				return new ParallelExecutionService.ParallelExecutionRequest(toolName,
+						next != null ? next : new HashMap<>());
 			}
 
-			// Parse entire file as JSON array
+		};
+	}
+
+	private static void closeQuietly(AutoCloseable... resources) {
+		for (AutoCloseable resource : resources) {
 			try {
-				List<Map<String, Object>> paramsList = objectMapper.readValue(fileContent,
-						new TypeReference<List<Map<String, Object>>>() {
-						});
-				if (paramsList == null) {
-					logger.warn("Parsed JSON array is null, returning empty list");
-					return new ArrayList<>();
-				}
-				logger.debug("Successfully parsed {} parameter sets from file: {}", paramsList.size(), fileName);
-				return paramsList;
+				resource.close();
 			}
 			catch (Exception e) {
-				logger.error("Error parsing JSON array from file {}: {}", fileName, e.getMessage(), e);
-				return null;
+				logger.warn("Error closing batch resource: {}", e.getMessage());
 			}
 		}
-		catch (IOException e) {
-			logger.error("Error reading file {}: {}", fileName, e.getMessage(), e);
-			return null;
-		}
-		catch (Exception e) {
-			logger.error("Error finding file {}: {}", fileName, e.getMessage(), e);
-			return null;
-		}
 	}
 
 	/**
-	 * Save complete result JSON to file in root plan directory
-	 * @param result Complete result map
-	 * @param fileName Output file name
-	 * @return Saved file path (relative) or null if failed
+	 * Appends each result as one flushed JSON line and updates the checkpoint counts
+	 * every {@link #CHECKPOINT_INTERVAL} results. Called by one thread at a time.
 	 */
-	private String saveResultToFile(Map<String, Object> result, String fileName) {
-		try {
-			if (rootPlanId == null || rootPlanId.trim().isEmpty()) {
-				logger.error("rootPlanId is required for file operations but is null or empty");
-				return null;
-			}
+	private final class ResultWriter implements Consumer<Map<String, Object>> {
 
-			// Get root plan directory (same as MarkdownConverterTool)
-			Path rootPlanDirectory = directoryManager.getRootPlanDirectory(rootPlanId);
+		private final BufferedWriter output;
 
-			// Ensure root plan directory exists
-			Files.createDirectories(rootPlanDirectory);
+		private final BatchCheckpoint checkpoint;
 
-			// Resolve file path within the root plan directory
-			Path filePath = rootPlanDirectory.resolve(fileName).normalize();
+		private final BatchCheckpoint.Progress previous;
 
-			// Ensure the path stays within the root plan directory
-			if (!filePath.startsWith(rootPlanDirectory)) {
-				logger.warn("File path is outside root plan directory: {}", fileName);
-				return null;
-			}
+		private int written;
 
-			// Convert to JSON string with pretty printing
-			String jsonContent = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(result);
+		private int successCount;
 
-			// Write to file
-			Files.writeString(filePath, jsonContent, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
-					StandardOpenOption.WRITE);
+		private int failureCount;
 
-			logger.info("Successfully saved execution results to file: {}", filePath);
-			return fileName; // Return relative path
+		ResultWriter(BufferedWriter output, BatchCheckpoint checkpoint, BatchCheckpoint.Progress previous) {
+			this.output = output;
+			this.checkpoint = checkpoint;
+			this.previous = previous;
 		}
-		catch (IOException e) {
-			logger.error("Error saving results to file: {}", fileName, e);
-			return null;
+
+		@Override
+		public void accept(Map<String, Object> result) {
+			try {
+				output.write(objectMapper.writeValueAsString(result));
+				output.newLine();
+				output.flush();
+				written++;
+				if ("SUCCESS".equals(result.get("status"))) {
+					successCount++;
+				}
+				else {
+					failureCount++;
+				}
+				if (written % CHECKPOINT_INTERVAL == 0) {
+					checkpoint.update(previous.successCount() + successCount, previous.failureCount() + failureCount);
+				}
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
 		}
-		catch (Exception e) {
-			logger.error("Error converting results to JSON for file: {}", fileName, e);
-			return null;
+
+		int written() {
+			return written;
 		}
+
 	}
 
 	@Override
@@ -17,33 +17,60 @@ package com.wangliang.agentj.tools.mapreduce;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wangliang.agentj.runtime.executor.LevelBasedExecutorPool;
 import com.wangliang.agentj.tools.AbstractBaseTool;
+import com.wangliang.agentj.tools.CacheableTool;
 import com.wangliang.agentj.tools.code.ToolExecuteResult;
 import com.wangliang.agentj.tools.i18n.ToolI18nService;
 import com.wangliang.agentj.tools.textOperator.TextFileService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.model.ToolContext;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * File splitter tool that splits text files (markdown, code, HTML, etc.) into smaller
- * pieces. Splits files by lines to ensure content completeness and adds index numbers to
- * split file names.
+ * pieces. Splits files at line (or Markdown section) boundaries to ensure content
+ * completeness and adds index numbers to split file names. Files are processed through
+ * channels without loading them into memory.
  */
-public class FileSplitterTool extends AbstractBaseTool<FileSplitterTool.FileSplitterInput> {
+public class FileSplitterTool extends AbstractBaseTool<FileSplitterTool.FileSplitterInput>
+		implements CacheableTool<FileSplitterTool.FileSplitterInput> {
 
 	private static final Logger log = LoggerFactory.getLogger(FileSplitterTool.class);
 
 	private static final String TOOL_NAME = "file_splitter";
 
 	/**
-	 * Number of pieces to split file into
+	 * Default number of pieces to split file into
 	 */
-	private static final int SPLIT_COUNT = 10;
+	private static final int DEFAULT_SPLIT_COUNT = 10;
+
+	/**
+	 * Upper bound on the number of pieces, whether requested directly or derived from a
+	 * target size
+	 */
+	private static final int MAX_SPLIT_COUNT = 1000;
+
+	/**
+	 * How far past a nominal boundary to look for a Markdown heading before settling for
+	 * the next line break
+	 */
+	private static final int SECTION_SEARCH_WINDOW = 256 * 1024;
+
+	private static final int SCAN_BUFFER_SIZE = 1024 * 1024;
 
 	/**
 	 * Set of supported text file extensions
@@ -76,6 +103,12 @@ public class FileSplitterTool extends AbstractBaseTool<FileSplitterTool.FileSpli
 
 		private String header;
 
+		@com.fasterxml.jackson.annotation.JsonProperty("piece_count")
+		private Integer pieceCount;
+
+		@com.fasterxml.jackson.annotation.JsonProperty("target_size_kb")
+		private Integer targetSizeKb;
+
 		// Getters and setters
 		public String getAction() {
 			return action;
@@ -101,6 +134,22 @@ public class FileSplitterTool extends AbstractBaseTool<FileSplitterTool.FileSpli
 			this.header = header;
 		}
 
+		public Integer getPieceCount() {
+			return pieceCount;
+		}
+
+		public void setPieceCount(Integer pieceCount) {
+			this.pieceCount = pieceCount;
+		}
+
+		public Integer getTargetSizeKb() {
+			return targetSizeKb;
+		}
+
+		public void setTargetSizeKb(Integer targetSizeKb) {
+			this.targetSizeKb = targetSizeKb;
+		}
+
 	}
 
 	private final TextFileService textFileService;
@@ -109,11 +158,14 @@ public class FileSplitterTool extends AbstractBaseTool<FileSplitterTool.FileSpli
 
 	private final ToolI18nService toolI18nService;
 
+	private final LevelBasedExecutorPool levelBasedExecutorPool;
+
 	public FileSplitterTool(TextFileService textFileService, ObjectMapper objectMapper,
-			ToolI18nService toolI18nService) {
+			ToolI18nService toolI18nService, LevelBasedExecutorPool levelBasedExecutorPool) {
 		this.textFileService = textFileService;
 		this.objectMapper = objectMapper;
 		this.toolI18nService = toolI18nService;
+		this.levelBasedExecutorPool = levelBasedExecutorPool;
 	}
 
 	public ToolExecuteResult run(String toolInput) {
@@ -126,6 +178,8 @@ public class FileSplitterTool extends AbstractBaseTool<FileSplitterTool.FileSpli
 			String action = (String) toolInputMap.get("action");
 			String filePath = (String) toolInputMap.get("file_path");
 			String header = (String) toolInputMap.get("header");
+			Integer pieceCount = toolInputMap.get("piece_count") instanceof Number n ? n.intValue() : null;
+			Integer targetSizeKb = toolInputMap.get("target_size_kb") instanceof Number n ? n.intValue() : null;
 
 			// Basic parameter validation
 			if (action == null) {
@@ -138,7 +192,7 @@ public class FileSplitterTool extends AbstractBaseTool<FileSplitterTool.FileSpli
 						yield new ToolExecuteResult("Error: file_path parameter is required for split operation");
 					}
 					// Header is optional, can be null or empty
-					yield splitFile(filePath, header);
+					yield splitFile(filePath, header, pieceCount, targetSizeKb, 0);
 				}
 				case "count" -> {
 					if (filePath == null || filePath.trim().isEmpty()) {
@@ -156,13 +210,33 @@ public class FileSplitterTool extends AbstractBaseTool<FileSplitterTool.FileSpli
 		}
 	}
 
+	/**
+	 * Read the plan depth from the tool context so pieces are copied on the executor
+	 * level below the calling plan
+	 */
+	@Override
+	public ToolExecuteResult apply(FileSplitterInput input, ToolContext toolContext) {
+		int planDepth = 0;
+		if (toolContext != null && toolContext.getContext() != null
+				&& toolContext.getContext().get("planDepth") instanceof Number depth) {
+			planDepth = depth.intValue();
+		}
+		return run(input, planDepth);
+	}
+
 	@Override
 	public ToolExecuteResult run(FileSplitterInput input) {
+		return run(input, 0);
+	}
+
+	private ToolExecuteResult run(FileSplitterInput input, int planDepth) {
 		log.info("FileSplitterTool input: action={}, filePath={}", input.getAction(), input.getFilePath());
 		try {
 			String action = input.getAction();
 			String filePath = input.getFilePath();
 			String header = input.getHeader();
+			Integer pieceCount = input.getPieceCount();
+			Integer targetSizeKb = input.getTargetSizeKb();
 
 			// Basic parameter validation
 			if (action == null) {
@@ -175,7 +249,7 @@ public class FileSplitterTool extends AbstractBaseTool<FileSplitterTool.FileSpli
 						yield new ToolExecuteResult("Error: file_path parameter is required for split operation");
 					}
 					// Header is optional, can be null or empty
-					yield splitFile(filePath, header);
+					yield splitFile(filePath, header, pieceCount, targetSizeKb, planDepth);
 				}
 				case "count" -> {
 					if (filePath == null || filePath.trim().isEmpty()) {
@@ -288,71 +362,79 @@ public class FileSplitterTool extends AbstractBaseTool<FileSplitterTool.FileSpli
 	}
 
 	/**
-	 * Split file into multiple pieces
+	 * Split file into multiple pieces. Boundaries are chosen by byte offset and moved
+	 * forward to the next line break (or, for Markdown, to the next heading if one is
+	 * close), then every piece is copied straight from the source channel in parallel, so
+	 * the file is never loaded into memory.
 	 */
-	private ToolExecuteResult splitFile(String filePath, String header) {
+	private ToolExecuteResult splitFile(String filePath, String header, Integer pieceCount, Integer targetSizeKb,
+			int planDepth) {
 		try {
 			Path sourceFile = validateFilePath(filePath);
 
-			// Read all lines from the source file
-			List<String> allLines = Files.readAllLines(sourceFile);
-			if (allLines.isEmpty()) {
+			long fileSize = Files.size(sourceFile);
+			if (fileSize == 0) {
 				return new ToolExecuteResult("Error: File is empty, cannot split");
 			}
 
-			int totalLines = allLines.size();
-			int linesPerPiece = totalLines / SPLIT_COUNT;
-			int remainder = totalLines % SPLIT_COUNT;
+			int requestedPieces = resolvePieceCount(fileSize, pieceCount, targetSizeKb);
 
 			// Prepare header (add newline if not empty)
 			String headerContent = (header != null && !header.trim().isEmpty()) ? header.trim() + "\n" : "";
+			byte[] headerBytes = headerContent.getBytes(StandardCharsets.UTF_8);
 
 			// Get file name and extension
 			String fileName = sourceFile.getFileName().toString();
 			int lastDotIndex = fileName.lastIndexOf('.');
 			String baseName = (lastDotIndex > 0) ? fileName.substring(0, lastDotIndex) : fileName;
 			String extension = (lastDotIndex > 0) ? fileName.substring(lastDotIndex) : "";
+			boolean markdown = ".md".equalsIgnoreCase(extension) || ".markdown".equalsIgnoreCase(extension);
 
 			// Get parent directory for output files
 			Path parentDir = sourceFile.getParent();
 
-			List<String> createdFiles = new ArrayList<>();
-			int currentLineIndex = 0;
-
-			// Split into SPLIT_COUNT pieces
-			for (int i = 0; i < SPLIT_COUNT; i++) {
-				// Calculate lines for this piece (distribute remainder evenly)
-				int pieceSize = linesPerPiece + (i < remainder ? 1 : 0);
-
-				if (pieceSize == 0) {
-					// Skip empty pieces if file is too small
-					continue;
-				}
-
-				// Create output file name with index prefix
-				String outputFileName = String.format("%d-%s%s", i, baseName, extension);
-				Path outputFile = parentDir.resolve(outputFileName);
+			List<Long> boundaries;
+			try (FileChannel channel = FileChannel.open(sourceFile, StandardOpenOption.READ)) {
+				boundaries = computeBoundaries(channel, fileSize, requestedPieces, markdown);
+			}
+			int pieces = boundaries.size() - 1;
 
-				// Prepare content for this piece
-				StringBuilder content = new StringBuilder();
-				if (!headerContent.isEmpty()) {
-					content.append(headerContent);
-				}
+			List<String> createdFiles = new ArrayList<>(pieces);
+			for (int i = 0; i < pieces; i++) {
+				createdFiles.add(String.format("%d-%s%s", i, baseName, extension));
+			}
 
-				// Add lines for this piece
-				for (int j = 0; j < pieceSize && currentLineIndex < totalLines; j++) {
-					content.append(allLines.get(currentLineIndex));
-					if (currentLineIndex < totalLines - 1 || j < pieceSize - 1) {
-						content.append("\n");
+			// Pool threads and the calling thread take pieces from a shared counter, so the
+			// split completes even when the shared pool has no idle thread
+			AtomicInteger nextPiece = new AtomicInteger();
+			CountDownLatch copied = new CountDownLatch(pieces);
+			AtomicReference<IOException> failure = new AtomicReference<>();
+			Runnable copier = () -> {
+				for (int i = nextPiece.getAndIncrement(); i < pieces; i = nextPiece.getAndIncrement()) {
+					try {
+						if (failure.get() == null) {
+							writePiece(sourceFile, parentDir.resolve(createdFiles.get(i)), headerBytes,
+									boundaries.get(i), boundaries.get(i + 1));
+						}
+					}
+					catch (Exception e) {
+						failure.compareAndSet(null,
+								e instanceof IOException ioException ? ioException : new IOException(e.getMessage(), e));
+					}
+					finally {
+						copied.countDown();
 					}
-					currentLineIndex++;
 				}
-
-				// Write the split file
-				Files.writeString(outputFile, content.toString());
-
-				createdFiles.add(outputFileName);
-				log.info("Created split file {} with {} lines", outputFileName, pieceSize);
+			};
+			ExecutorService executor = levelBasedExecutorPool.getExecutorForLevel(planDepth + 1);
+			int helpers = Math.min(pieces, Runtime.getRuntime().availableProcessors()) - 1;
+			for (int i = 0; i < helpers; i++) {
+				executor.execute(copier);
+			}
+			copier.run();
+			copied.await();
+			if (failure.get() != null) {
+				throw failure.get();
 			}
 
 			// Build result message
@@ -360,11 +442,13 @@ public class FileSplitterTool extends AbstractBaseTool<FileSplitterTool.FileSpli
 			result
 				.append(String.format("Successfully split file '%s' into %d pieces:\n", fileName, createdFiles.size()));
 			result.append("=".repeat(60)).append("\n");
-			for (String createdFile : createdFiles) {
-				result.append(String.format("  - %s\n", createdFile));
+			for (int i = 0; i < pieces; i++) {
+				result.append(String.format("  - %s (%s)\n", createdFiles.get(i),
+						formatFileSize(boundaries.get(i + 1) - boundaries.get(i))));
 			}
-			result.append(String.format("\nTotal lines in original file: %d\n", totalLines));
-			result.append(String.format("Lines per piece: approximately %d\n", linesPerPiece));
+			result.append(String.format("\nOriginal file size: %s\n", formatFileSize(fileSize)));
+			result.append(markdown ? "Pieces are cut at Markdown headings where possible, otherwise at line breaks\n"
+					: "Pieces are cut at line breaks\n");
 			if (!headerContent.isEmpty()) {
 				result.append("Header added to each split file\n");
 			}
@@ -382,27 +466,254 @@ public class FileSplitterTool extends AbstractBaseTool<FileSplitterTool.FileSpli
 	}
 
 	/**
-	 * Count total lines and character size of the file
+	 * Number of pieces to aim for: derived from the target size if given, otherwise the
+	 * requested count, otherwise {@link #DEFAULT_SPLIT_COUNT}
+	 */
+	private static int resolvePieceCount(long fileSize, Integer pieceCount, Integer targetSizeKb) {
+		long pieces;
+		if (targetSizeKb != null && targetSizeKb > 0) {
+			long targetBytes = targetSizeKb * 1024L;
+			pieces = (fileSize + targetBytes - 1) / targetBytes;
+		}
+		else if (pieceCount != null && pieceCount > 0) {
+			pieces = pieceCount;
+		}
+		else {
+			pieces = DEFAULT_SPLIT_COUNT;
+		}
+		return (int) Math.max(1, Math.min(pieces, MAX_SPLIT_COUNT));
+	}
+
+	/**
+	 * Compute piece boundaries as byte offsets, starting with 0 and ending with the file
+	 * size. Each inner boundary is the start of a line at or after the nominal even split
+	 * point; duplicates (lines longer than a piece) are dropped.
+	 */
+	static List<Long> computeBoundaries(FileChannel channel, long fileSize, int pieces, boolean markdown)
+			throws IOException {
+		List<Long> boundaries = new ArrayList<>(pieces + 1);
+		boundaries.add(0L);
+		ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+		long nominalSize = fileSize / pieces;
+		MarkdownScanner markdownScanner = markdown ? new MarkdownScanner() : null;
+
+		for (int i = 1; i < pieces; i++) {
+			long nominal = Math.max(nominalSize * i, boundaries.get(boundaries.size() - 1));
+			long boundary = -1;
+			if (markdown) {
+				long window = Math.min(SECTION_SEARCH_WINDOW, Math.max(nominalSize / 2, 1));
+				boundary = markdownScanner.findHeadingStart(channel, buffer, nominal,
+						Math.min(fileSize, nominal + window));
+			}
+			if (boundary < 0) {
+				boundary = findLineStart(channel, buffer, nominal, fileSize);
+			}
+			if (boundary > boundaries.get(boundaries.size() - 1) && boundary < fileSize) {
+				boundaries.add(boundary);
+			}
+		}
+
+		boundaries.add(fileSize);
+		return boundaries;
+	}
+
+	/**
+	 * Offset of the first line start at or after {@code from}, or {@code limit} if no
+	 * line break follows
+	 */
+	private static long findLineStart(FileChannel channel, ByteBuffer buffer, long from, long limit)
+			throws IOException {
+		if (from == 0) {
+			return 0;
+		}
+		// A line starts at 'from' if the byte before it is a line break
+		long position = from - 1;
+		while (position < limit) {
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				if (buffer.get(i) == '\n') {
+					return position + i + 1;
+				}
+			}
+			position += read;
+		}
+		return limit;
+	}
+
+	/**
+	 * Forward-only scanner over a Markdown file that knows whether the current line is
+	 * inside a fenced code block ({@code ```} or {@code ~~~}), so that a {@code #}
+	 * comment in code is not taken for a heading. Successive searches continue where the
+	 * previous one stopped, so the file is read at most once across all boundaries.
+	 */
+	static final class MarkdownScanner {
+
+		// Next byte to scan
+		private long position;
+
+		private boolean atLineStart = true;
+
+		// Fence of the enclosing code block, 0 outside a code block
+		private byte fenceChar;
+
+		private int fenceLength;
+
+		// State of the current line: leading spaces, then a run of fence characters
+		private int indent;
+
+		private byte runChar;
+
+		private int runLength;
+
+		private boolean runEnded;
+
+		private boolean textAfterRun;
+
+		private boolean notFence;
+
+		/**
+		 * Offset of the first Markdown heading line ({@code #} at line start, outside code
+		 * blocks) in [{@code from}, {@code limit}), or -1 if none. Bytes between the
+		 * previous search and {@code from} are scanned only to track code blocks.
+		 */
+		long findHeadingStart(FileChannel channel, ByteBuffer buffer, long from, long limit) throws IOException {
+			while (position < limit) {
+				buffer.clear().limit((int) Math.min(limit - position, buffer.capacity()));
+				int read = channel.read(buffer, position);
+				if (read <= 0) {
+					break;
+				}
+				for (int i = 0; i < read; i++) {
+					byte b = buffer.get(i);
+					if (atLineStart && fenceChar == 0 && b == '#' && position >= from) {
+						return position;
+					}
+					accept(b);
+					position++;
+				}
+			}
+			return -1;
+		}
+
+		private void accept(byte b) {
+			if (b == '\n') {
+				endLine();
+				return;
+			}
+			atLineStart = false;
+			if (notFence) {
+				return;
+			}
+			if (runLength == 0) {
+				if (b == ' ' && indent < 3) {
+					indent++;
+				}
+				else if (b == '`' || b == '~') {
+					runChar = b;
+					runLength = 1;
+				}
+				else {
+					notFence = true;
+				}
+			}
+			else if (!runEnded && b == runChar) {
+				runLength++;
+			}
+			else {
+				runEnded = true;
+				if (b != ' ' && b != '\t' && b != '\r') {
+					textAfterRun = true;
+				}
+			}
+		}
+
+		private void endLine() {
+			if (!notFence && runLength >= 3) {
+				if (fenceChar == 0) {
+					fenceChar = runChar;
+					fenceLength = runLength;
+				}
+				else if (runChar == fenceChar && runLength >= fenceLength && !textAfterRun) {
+					fenceChar = 0;
+				}
+			}
+			atLineStart = true;
+			indent = 0;
+			runLength = 0;
+			runEnded = false;
+			textAfterRun = false;
+			notFence = false;
+		}
+
+	}
+
+	private static void writePiece(Path sourceFile, Path outputFile, byte[] headerBytes, long start, long end)
+			throws IOException {
+		try (FileChannel source = FileChannel.open(sourceFile, StandardOpenOption.READ);
+				FileChannel target = FileChannel.open(outputFile, StandardOpenOption.CREATE,
+						StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer header = ByteBuffer.wrap(headerBytes);
+			while (header.hasRemaining()) {
+				target.write(header);
+			}
+			long position = start;
+			while (position < end) {
+				long transferred = source.transferTo(position, end - position, target);
+				if (transferred <= 0) {
+					throw new IOException("Failed to copy bytes " + position + "-" + end + " to " + outputFile);
+				}
+				position += transferred;
+			}
+		}
+		log.info("Created split file {} with {} bytes", outputFile.getFileName(), end - start);
+	}
+
+	/**
+	 * Count lines, words, characters and size of the file in a single streaming pass
 	 */
 	private ToolExecuteResult countFile(String filePath) {
 		try {
 			Path sourceFile = validateFilePath(filePath);
 
-			// Read all lines
-			List<String> allLines = Files.readAllLines(sourceFile);
-			int totalLines = allLines.size();
-
-			// Calculate total character count (including newlines)
+			long totalLines = 0;
+			long totalWords = 0;
 			long totalChars = 0;
-			for (String line : allLines) {
-				totalChars += line.length() + 1; // +1 for newline character
+			boolean inWord = false;
+			int lastByte = -1;
+
+			try (FileChannel channel = FileChannel.open(sourceFile, StandardOpenOption.READ)) {
+				ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+				while (channel.read(buffer) > 0) {
+					buffer.flip();
+					while (buffer.hasRemaining()) {
+						byte b = buffer.get();
+						if (b == '\n') {
+							totalLines++;
+						}
+						// Count UTF-8 code points by skipping continuation bytes
+						if ((b & 0xC0) != 0x80) {
+							totalChars++;
+						}
+						boolean whitespace = b == ' ' || b == '\n' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B;
+						if (whitespace) {
+							inWord = false;
+						}
+						else if (!inWord) {
+							inWord = true;
+							totalWords++;
+						}
+						lastByte = b;
+					}
+					buffer.clear();
+				}
 			}
-			// Subtract 1 if file doesn't end with newline
-			if (!allLines.isEmpty() && !allLines.get(allLines.size() - 1).isEmpty()) {
-				// Last line might not have trailing newline
-				// Actually, Files.readAllLines() doesn't include trailing newline in line
-				// content
-				// So we need to check if we should add it
+			// A last line without a trailing newline still counts
+			if (lastByte != -1 && lastByte != '\n') {
+				totalLines++;
 			}
 
 			// Get file size from filesystem
@@ -413,6 +724,7 @@ public class FileSplitterTool extends AbstractBaseTool<FileSplitterTool.FileSpli
 			result.append(String.format("File statistics for '%s':\n", sourceFile.getFileName()));
 			result.append("=".repeat(60)).append("\n");
 			result.append(String.format("Total lines: %d\n", totalLines));
+			result.append(String.format("Total words: %d\n", totalWords));
 			result.append(String.format("Total characters: %d\n", totalChars));
 			result.append(String.format("File size: %s\n", formatFileSize(fileSizeBytes)));
 			result.append(String.format("Average characters per line: %.1f\n",
@@ -433,7 +745,7 @@ public class FileSplitterTool extends AbstractBaseTool<FileSplitterTool.FileSpli
 	/**
 	 * Format file size in human-readable format
 	 */
-	private String formatFileSize(long size) {
+	private static String formatFileSize(long size) {
 		if (size < 1024)
 			return size + " B";
 		if (size < 1024 * 1024)
@@ -480,6 +792,24 @@ public class FileSplitterTool extends AbstractBaseTool<FileSplitterTool.FileSpli
 		return "parallel-execution";
 	}
 
+	/**
+	 * Only counting is cached, keyed by the file's size and modification time so that a
+	 * changed file is counted again
+	 */
+	@Override
+	public String getCacheKey(FileSplitterInput input) {
+		if (!"count".equals(input.getAction()) || input.getFilePath() == null) {
+			return null;
+		}
+		try {
+			Path path = validateFilePath(input.getFilePath());
+			return path + "|" + Files.size(path) + "|" + Files.getLastModifiedTime(path).toMillis();
+		}
+		catch (IOException e) {
+			return null;
+		}
+	}
+
 	@Override
 	public boolean isSelectable() {
 		return true;
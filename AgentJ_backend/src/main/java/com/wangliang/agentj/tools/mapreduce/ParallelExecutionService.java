@@ -26,13 +26,23 @@ import com.wangliang.agentj.tools.code.ToolExecuteResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
 
 /**
  * Common service for parallel execution of tools. Handles the execution logic shared
@@ -43,6 +53,10 @@ public class ParallelExecutionService {
 
 	private static final Logger logger = LoggerFactory.getLogger(ParallelExecutionService.class);
 
+	// Internal marker on error results whose cause may go away on retry, removed before
+	// the result is delivered
+	private static final String TRANSIENT_KEY = "transient";
+
 	private final ObjectMapper objectMapper;
 
 	private final PlanIdDispatcher planIdDispatcher;
@@ -51,12 +65,24 @@ public class ParallelExecutionService {
 
 	private final ServiceGroupIndexService serviceGroupIndexService;
 
+	private final int maxInFlight;
+
+	private final int maxRetries;
+
+	private final long retryBackoffMs;
+
 	public ParallelExecutionService(ObjectMapper objectMapper, PlanIdDispatcher planIdDispatcher,
-			LevelBasedExecutorPool levelBasedExecutorPool, ServiceGroupIndexService serviceGroupIndexService) {
+			LevelBasedExecutorPool levelBasedExecutorPool, ServiceGroupIndexService serviceGroupIndexService,
+			@Value("${lynxe.parallel.maxInFlight:16}") int maxInFlight,
+			@Value("${lynxe.parallel.maxRetries:0}") int maxRetries,
+			@Value("${lynxe.parallel.retryBackoffMs:1000}") long retryBackoffMs) {
 		this.objectMapper = objectMapper;
 		this.planIdDispatcher = planIdDispatcher;
 		this.levelBasedExecutorPool = levelBasedExecutorPool;
 		this.serviceGroupIndexService = serviceGroupIndexService;
+		this.maxInFlight = Math.max(1, maxInFlight);
+		this.maxRetries = Math.max(0, maxRetries);
+		this.retryBackoffMs = Math.max(0, retryBackoffMs);
 	}
 
 	/**
@@ -210,6 +236,7 @@ public class ParallelExecutionService {
 					}
 					errorResult.put("status", "ERROR");
 					errorResult.put("error", e.getMessage());
+					errorResult.put(TRANSIENT_KEY, isTransient(e));
 					return errorResult;
 				});
 			}
@@ -236,6 +263,7 @@ public class ParallelExecutionService {
 						}
 						errorResult.put("status", "ERROR");
 						errorResult.put("error", e.getMessage());
+						errorResult.put(TRANSIENT_KEY, isTransient(e));
 						return errorResult;
 					}
 				});
@@ -262,6 +290,7 @@ public class ParallelExecutionService {
 					}
 					errorResult.put("status", "ERROR");
 					errorResult.put("error", e.getMessage());
+					errorResult.put(TRANSIENT_KEY, isTransient(e));
 					return errorResult;
 				});
 			}
@@ -287,6 +316,7 @@ public class ParallelExecutionService {
 						}
 						errorResult.put("status", "ERROR");
 						errorResult.put("error", e.getMessage());
+						errorResult.put(TRANSIENT_KEY, isTransient(e));
 						return errorResult;
 					}
 				});
@@ -304,44 +334,40 @@ public class ParallelExecutionService {
 	public CompletableFuture<List<Map<String, Object>>> executeToolsInParallel(
 			List<ParallelExecutionRequest> executions, Map<String, PlanningFactory.ToolCallBackContext> toolCallbackMap,
 			ToolContext toolContext) {
-		List<CompletableFuture<Map<String, Object>>> futures = new ArrayList<>();
-
-		for (int i = 0; i < executions.size(); i++) {
-			ParallelExecutionRequest request = executions.get(i);
-			futures.add(executeTool(request.getToolName(), request.getParams(), toolCallbackMap, toolContext, i));
-		}
-
-		return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(v -> {
-			List<Map<String, Object>> results = new ArrayList<>();
-			for (CompletableFuture<Map<String, Object>> future : futures) {
-				try {
-					results.add(future.join());
-				}
-				catch (Exception e) {
-					logger.error("Error getting result from future: {}", e.getMessage(), e);
-					Map<String, Object> errorResult = new HashMap<>();
-					errorResult.put("status", "ERROR");
-					errorResult.put("error", e.getMessage());
-					results.add(errorResult);
-				}
-			}
-			// Sort results by index if present
-			results.sort((a, b) -> {
-				Integer indexA = (Integer) a.get("index");
-				Integer indexB = (Integer) b.get("index");
-				if (indexA == null && indexB == null) {
-					return 0;
-				}
-				if (indexA == null) {
-					return 1;
-				}
-				if (indexB == null) {
-					return -1;
-				}
-				return Integer.compare(indexA, indexB);
+		List<Map<String, Object>> results = new ArrayList<>(executions.size());
+		return executeStreaming(executions.iterator(), index -> false, results::add, toolCallbackMap, toolContext)
+			.thenApply(stats -> {
+				// Results arrive in completion order
+				results.sort((a, b) -> Integer.compare((Integer) a.get("index"), (Integer) b.get("index")));
+				return results;
 			});
-			return results;
-		});
+	}
+
+	/**
+	 * Execute a stream of requests with at most {@code lynxe.parallel.maxInFlight} of them
+	 * running at a time. Requests are pulled from the iterator only when a slot frees up,
+	 * so the level queue never sees more than the window and the input is never held in
+	 * memory as a whole. A request rejected by the level queue, or one whose
+	 * {@link ToolCallBiFunctionDef#isIdempotent() idempotent} tool failed with an I/O
+	 * error or timeout, is retried up to {@code lynxe.parallel.maxRetries} times (none by
+	 * default) with a growing delay; the last error is reported in the result together
+	 * with the number of attempts. Other failures, such as an unknown tool or input that
+	 * does not convert, are never retried.
+	 * @param requests Requests in input order, the position is the result index
+	 * @param alreadyDone Indexes finished by an earlier run, skipped without executing
+	 * @param sink Receives every final result as soon as it is known, in completion order
+	 * and never concurrently. A runtime exception from the sink fails the batch
+	 * @param toolCallbackMap Map of tool callbacks
+	 * @param toolContext Parent tool context
+	 * @return CompletableFuture that completes with the counts once every request has been
+	 * delivered to the sink
+	 */
+	public CompletableFuture<BatchStats> executeStreaming(Iterator<ParallelExecutionRequest> requests,
+			IntPredicate alreadyDone, Consumer<Map<String, Object>> sink,
+			Map<String, PlanningFactory.ToolCallBackContext> toolCallbackMap, ToolContext toolContext) {
+		StreamingRun run = new StreamingRun(requests, alreadyDone, sink, toolCallbackMap, toolContext);
+		run.pump();
+		return run.done;
 	}
 
 	/**
@@ -386,6 +412,29 @@ public class ParallelExecutionService {
 		}
 	}
 
+	/**
+	 * Whether a tool failure may go away on retry: an I/O error, a timeout or a rejected
+	 * submission somewhere in the cause chain
+	 */
+	private static boolean isTransient(Throwable e) {
+		for (Throwable cause = unwrap(e); cause != null; cause = cause.getCause()) {
+			if (cause instanceof IOException || cause instanceof TimeoutException
+					|| cause instanceof RejectedExecutionException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static Throwable unwrap(Throwable e) {
+		Throwable cause = e;
+		while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+				&& cause.getCause() != null) {
+			cause = cause.getCause();
+		}
+		return cause;
+	}
+
 	/**
 	 * Fill missing required parameters with empty string
 	 */
@@ -404,6 +453,165 @@ public class ParallelExecutionService {
 		return filledParams;
 	}
 
+	/**
+	 * One streaming batch. State is guarded by the run itself; tools are started and
+	 * their results handled outside the lock so a slow tool submission never blocks the
+	 * delivery of other results.
+	 */
+	private final class StreamingRun {
+
+		private final Iterator<ParallelExecutionRequest> requests;
+
+		private final IntPredicate alreadyDone;
+
+		private final Consumer<Map<String, Object>> sink;
+
+		private final Map<String, PlanningFactory.ToolCallBackContext> toolCallbackMap;
+
+		private final ToolContext toolContext;
+
+		private final CompletableFuture<BatchStats> done = new CompletableFuture<>();
+
+		private int nextIndex;
+
+		private int inFlight;
+
+		private int skipped;
+
+		private int successCount;
+
+		private int failureCount;
+
+		StreamingRun(Iterator<ParallelExecutionRequest> requests, IntPredicate alreadyDone,
+				Consumer<Map<String, Object>> sink, Map<String, PlanningFactory.ToolCallBackContext> toolCallbackMap,
+				ToolContext toolContext) {
+			this.requests = requests;
+			this.alreadyDone = alreadyDone;
+			this.sink = sink;
+			this.toolCallbackMap = toolCallbackMap;
+			this.toolContext = toolContext;
+		}
+
+		/**
+		 * Fill the window from the iterator and complete the run once it is exhausted
+		 * and drained
+		 */
+		void pump() {
+			List<ParallelExecutionRequest> started = new ArrayList<>();
+			List<Integer> startedIndexes = new ArrayList<>();
+			BatchStats finished = null;
+			synchronized (this) {
+				if (done.isDone()) {
+					return;
+				}
+				try {
+					while (inFlight < maxInFlight && requests.hasNext()) {
+						ParallelExecutionRequest request = requests.next();
+						int index = nextIndex++;
+						if (alreadyDone.test(index)) {
+							skipped++;
+							continue;
+						}
+						inFlight++;
+						started.add(request);
+						startedIndexes.add(index);
+					}
+					if (inFlight == 0 && !requests.hasNext()) {
+						finished = new BatchStats(nextIndex, skipped, successCount, failureCount);
+					}
+				}
+				catch (RuntimeException e) {
+					logger.error("Error reading batch input at index {}: {}", nextIndex, e.getMessage(), e);
+					done.completeExceptionally(e);
+					return;
+				}
+			}
+			for (int i = 0; i < started.size(); i++) {
+				attempt(started.get(i), startedIndexes.get(i), 1);
+			}
+			if (finished != null) {
+				done.complete(finished);
+			}
+		}
+
+		private void attempt(ParallelExecutionRequest request, int index, int attempt) {
+			CompletableFuture<Map<String, Object>> result;
+			try {
+				result = executeTool(request.getToolName(), request.getParams(), toolCallbackMap, toolContext, index);
+			}
+			catch (RuntimeException e) {
+				// The level queue may still reject when other plans share it
+				result = CompletableFuture.failedFuture(e);
+			}
+			// Handle results off the completing thread, tools that answer synchronously
+			// would otherwise recurse through pump()
+			result.whenCompleteAsync((resultMap, ex) -> {
+				Map<String, Object> outcome = resultMap;
+				boolean retryable;
+				if (ex != null) {
+					outcome = new HashMap<>();
+					outcome.put("index", index);
+					outcome.put("status", "ERROR");
+					outcome.put("error", ex.getMessage());
+					// The tool never ran when the level queue rejected it
+					retryable = unwrap(ex) instanceof RejectedExecutionException;
+				}
+				else {
+					retryable = Boolean.TRUE.equals(outcome.remove(TRANSIENT_KEY)) && isIdempotent(request);
+				}
+				if (retryable && attempt <= maxRetries && !done.isDone()) {
+					logger.debug("Retrying index {} of tool {} after attempt {}: {}", index, request.getToolName(),
+							attempt, outcome.get("error"));
+					CompletableFuture.delayedExecutor(retryBackoffMs * attempt, TimeUnit.MILLISECONDS)
+						.execute(() -> attempt(request, index, attempt + 1));
+					return;
+				}
+				outcome.put("attempts", attempt);
+				deliver(outcome);
+			});
+		}
+
+		private boolean isIdempotent(ParallelExecutionRequest request) {
+			PlanningFactory.ToolCallBackContext context = lookupToolContext(request.getToolName(), toolCallbackMap);
+			return context != null && context.getFunctionInstance().isIdempotent();
+		}
+
+		private void deliver(Map<String, Object> outcome) {
+			synchronized (this) {
+				inFlight--;
+				if (done.isDone()) {
+					return;
+				}
+				if ("SUCCESS".equals(outcome.get("status"))) {
+					successCount++;
+				}
+				else {
+					failureCount++;
+				}
+				try {
+					sink.accept(outcome);
+				}
+				catch (RuntimeException e) {
+					logger.error("Error delivering result of index {}: {}", outcome.get("index"), e.getMessage(), e);
+					done.completeExceptionally(e);
+					return;
+				}
+			}
+			pump();
+		}
+
+	}
+
+	/**
+	 * Counts of a finished streaming batch
+	 * @param total Requests read from the input, including skipped ones
+	 * @param skipped Requests finished by an earlier run
+	 * @param successCount Requests that succeeded in this run
+	 * @param failureCount Requests that failed in this run after all retries
+	 */
+	public record BatchStats(int total, int skipped, int successCount, int failureCount) {
+	}
+
 	/**
 	 * Request for parallel execution
 	 */
@@ -15,13 +15,14 @@
  */
 package com.wangliang.agentj.tools.shortUrl;
 
+import com.wangliang.agentj.runtime.service.PlanScopedState;
+import com.wangliang.agentj.runtime.service.PlanStateRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -40,50 +41,26 @@ public class ShortUrlService {
 	 */
 	public static final String SHORT_URL_PREFIX = "http://s@Url.a/";
 
-	// Map to store URL mappings per planId: planId -> (shortUrl -> realUrl)
-	private final ConcurrentHashMap<String, Map<String, String>> planUrlMappings = new ConcurrentHashMap<>();
+	// Rough heap cost of one mapping (two entries, two strings) for footprint reporting
+	private static final long BYTES_PER_MAPPING = 256;
 
-	// Map to store reverse mappings per planId: planId -> (realUrl -> shortUrl)
-	private final ConcurrentHashMap<String, Map<String, String>> planReverseMappings = new ConcurrentHashMap<>();
-
-	// Map to store counters per planId: planId -> counter
-	private final ConcurrentHashMap<String, Integer> planCounters = new ConcurrentHashMap<>();
-
-	// Locks per planId for thread safety
-	private final ConcurrentHashMap<String, Lock> planLocks = new ConcurrentHashMap<>();
+	// URL mappings per planId; the lock also guards the counter
+	private final PlanScopedState<PlanUrls> planUrls;
 
 	/**
 	 * Constructor
 	 */
-	public ShortUrlService() {
-	}
-
-	/**
-	 * Get or create lock for a planId
-	 */
-	private Lock getLockForPlan(String planId) {
-		return planLocks.computeIfAbsent(planId, k -> new ReentrantLock());
+	public ShortUrlService(PlanStateRegistry planStateRegistry) {
+		this.planUrls = planStateRegistry.<PlanUrls>newScope("shortUrl.mappings")
+			.weigher(urls -> urls.mappings.size() * BYTES_PER_MAPPING)
+			.build();
 	}
 
 	/**
-	 * Get or create mappings map for a planId
+	 * Get or create URL state for a planId
 	 */
-	private Map<String, String> getMappingsForPlan(String planId) {
-		return planUrlMappings.computeIfAbsent(planId, k -> new HashMap<>());
-	}
-
-	/**
-	 * Get or create reverse mappings map for a planId
-	 */
-	private Map<String, String> getReverseMappingsForPlan(String planId) {
-		return planReverseMappings.computeIfAbsent(planId, k -> new HashMap<>());
-	}
-
-	/**
-	 * Get or create counter for a planId
-	 */
-	private int getNextCounter(String planId) {
-		return planCounters.compute(planId, (k, v) -> (v == null) ? 1 : v + 1);
+	private PlanUrls getUrlsForPlan(String planId) {
+		return planUrls.computeIfAbsent(planId, k -> new PlanUrls());
 	}
 
 	/**
@@ -97,25 +74,24 @@ public class ShortUrlService {
 			throw new IllegalArgumentException("planId and realUrl cannot be null or empty");
 		}
 
-		Lock lock = getLockForPlan(planId);
+		PlanUrls urls = getUrlsForPlan(planId);
+		Lock lock = urls.lock;
 		lock.lock();
 		try {
 			// Check if URL already exists in reverse mappings
-			Map<String, String> reverseMappings = getReverseMappingsForPlan(planId);
-			String existingShortUrl = reverseMappings.get(realUrl);
+			String existingShortUrl = urls.reverseMappings.get(realUrl);
 			if (existingShortUrl != null) {
 				log.debug("Short URL already exists for realUrl: {} -> {}", realUrl, existingShortUrl);
 				return existingShortUrl;
 			}
 
 			// Create new short URL
-			int counter = getNextCounter(planId);
+			int counter = ++urls.counter;
 			String shortUrl = SHORT_URL_PREFIX + counter;
 
 			// Store mappings
-			Map<String, String> mappings = getMappingsForPlan(planId);
-			mappings.put(shortUrl, realUrl);
-			reverseMappings.put(realUrl, shortUrl);
+			urls.mappings.put(shortUrl, realUrl);
+			urls.reverseMappings.put(realUrl, shortUrl);
 
 			log.debug("Created short URL mapping: {} -> {} for planId: {}", shortUrl, realUrl, planId);
 
@@ -149,9 +125,9 @@ public class ShortUrlService {
 			return null;
 		}
 
-		Map<String, String> mappings = planUrlMappings.get(planId);
-		if (mappings != null) {
-			return mappings.get(shortUrl);
+		PlanUrls urls = planUrls.get(planId);
+		if (urls != null) {
+			return urls.mappings.get(shortUrl);
 		}
 
 		return null;
@@ -168,8 +144,8 @@ public class ShortUrlService {
 			return false;
 		}
 
-		Map<String, String> mappings = planUrlMappings.get(planId);
-		return mappings != null && mappings.containsKey(shortUrl);
+		PlanUrls urls = planUrls.get(planId);
+		return urls != null && urls.mappings.containsKey(shortUrl);
 	}
 
 	/**
@@ -181,19 +157,9 @@ public class ShortUrlService {
 			return;
 		}
 
-		Lock lock = getLockForPlan(planId);
-		lock.lock();
-		try {
-			planUrlMappings.remove(planId);
-			planReverseMappings.remove(planId);
-			planCounters.remove(planId);
-			planLocks.remove(planId);
-
+		if (planUrls.remove(planId) != null) {
 			log.info("Cleared all URL mappings for planId: {}", planId);
 		}
-		finally {
-			lock.unlock();
-		}
 	}
 
 	/**
@@ -207,12 +173,12 @@ public class ShortUrlService {
 			throw new IllegalArgumentException("planId and realUrl cannot be null or empty");
 		}
 
-		Lock lock = getLockForPlan(planId);
+		PlanUrls urls = getUrlsForPlan(planId);
+		Lock lock = urls.lock;
 		lock.lock();
 		try {
 			// Check if URL already exists
-			Map<String, String> reverseMappings = getReverseMappingsForPlan(planId);
-			String existingShortUrl = reverseMappings.get(realUrl);
+			String existingShortUrl = urls.reverseMappings.get(realUrl);
 			if (existingShortUrl != null) {
 				return existingShortUrl;
 			}
@@ -235,8 +201,8 @@ public class ShortUrlService {
 			return null;
 		}
 
-		Map<String, String> mappings = planUrlMappings.get(planId);
-		return mappings != null ? new HashMap<>(mappings) : new HashMap<>();
+		PlanUrls urls = planUrls.get(planId);
+		return urls != null ? new HashMap<>(urls.mappings) : new HashMap<>();
 	}
 
 	/**
@@ -279,4 +245,21 @@ public class ShortUrlService {
 		}
 	}
 
+	/**
+	 * URL state of one plan
+	 */
+	private static final class PlanUrls {
+
+		// shortUrl -> realUrl
+		private final Map<String, String> mappings = new HashMap<>();
+
+		// realUrl -> shortUrl
+		private final Map<String, String> reverseMappings = new HashMap<>();
+
+		private final Lock lock = new ReentrantLock();
+
+		private int counter;
+
+	}
+
 }
@@ -154,12 +154,13 @@ public interface ITableProcessingService {
 	 * Write multiple rows of data to table, ensuring data matches header size
 	 *
 	 * Implementation Logic: - Validate file type and check file existence - Get table
-	 * structure to validate data size for all rows - For each row: * Handle ID-based
-	 * operations: - If row starts with a valid ID that exists, update that row - If row
-	 * starts with an ID that doesn't exist, insert as new row - If no ID is specified or
-	 * ID is invalid, generate a new ID * Validate that row data size matches expected
-	 * columns (excluding ID column) - Write all updated data back to file - Update file
-	 * state to "Success: Multiple rows written to table"
+	 * structure from the open table session to validate data size for all rows - For
+	 * each row: * Handle ID-based operations: - A row with exactly the data column count
+	 * gets a newly generated ID - A row with one extra leading numeric value is treated
+	 * as ID + data: update the row with that ID if it exists, otherwise insert it with
+	 * that ID * Reject the whole batch if any row has another size - Apply rows to the
+	 * in-memory session; the file is written on flush, close or plan cleanup - Update
+	 * file state to "Success: Multiple rows written to table"
 	 * @param planId plan ID
 	 * @param filePath file path (relative or absolute)
 	 * @param data list of data rows to write (each row must match header size)
@@ -182,6 +183,23 @@ public interface ITableProcessingService {
 	 */
 	List<List<String>> searchRows(String planId, String filePath, List<String> keywords) throws IOException;
 
+	/**
+	 * Search for rows matching keywords in a single column
+	 *
+	 * Implementation Logic: - Resolve the column by header name - Match keywords exactly
+	 * against that column through a hash index built on first use and kept up to date
+	 * on appends - Fall back to the substring scan of all cells when column is null or
+	 * empty
+	 * @param planId plan ID
+	 * @param filePath file path (relative or absolute)
+	 * @param keywords list of values to match
+	 * @param column header name to search in, or null to search all cells
+	 * @return list of matching rows
+	 * @throws IOException if file operation fails or the column does not exist
+	 */
+	List<List<String>> searchRows(String planId, String filePath, List<String> keywords, String column)
+			throws IOException;
+
 	/**
 	 * Delete rows by list of row indices
 	 *
@@ -197,12 +215,36 @@ public interface ITableProcessingService {
 	 */
 	void deleteRowsByList(String planId, String filePath, List<Integer> rowIndices) throws IOException;
 
+	/**
+	 * Write pending changes of an open table to disk
+	 *
+	 * Implementation Logic: - Do nothing if the table has no pending changes - Append
+	 * new rows in place for CSV tables that only received appends since the last flush
+	 * - Otherwise rewrite the whole file from the in-memory session - Update file state
+	 * to "Success: Table flushed"
+	 * @param planId plan ID
+	 * @param filePath file path (relative or absolute)
+	 * @throws IOException if file operation fails
+	 */
+	void flushTable(String planId, String filePath) throws IOException;
+
+	/**
+	 * Flush and release an open table
+	 *
+	 * Implementation Logic: - Remove the session for the file from the plan - Flush its
+	 * pending changes - Update file state to "Success: Table closed"
+	 * @param planId plan ID
+	 * @param filePath file path (relative or absolute)
+	 * @throws IOException if file operation fails
+	 */
+	void closeTable(String planId, String filePath) throws IOException;
+
 	/**
 	 * Clean up plan directory resources
 	 *
-	 * Implementation Logic: - Remove all state tracking for the specified planId - Clean
-	 * up any temporary resources associated with the plan - Log cleanup operation for
-	 * debugging purposes
+	 * Implementation Logic: - Flush all open tables of the plan - Remove all state
+	 * tracking for the specified planId - Clean up any temporary resources associated
+	 * with the plan - Log cleanup operation for debugging purposes
 	 * @param planId plan ID
 	 */
 	void cleanupPlanDirectory(String planId);
@@ -16,20 +16,23 @@
 package com.wangliang.agentj.tools.tableProcessor;
 
 import com.alibaba.excel.EasyExcel;
-import com.alibaba.excel.context.AnalysisContext;
-import com.alibaba.excel.metadata.data.ReadCellData;
-import com.alibaba.excel.read.listener.ReadListener;
+import com.alibaba.excel.ExcelReader;
 import com.alibaba.excel.read.metadata.ReadSheet;
-import com.alibaba.excel.util.ConverterUtils;
+import com.wangliang.agentj.runtime.service.PlanScopedState;
+import com.wangliang.agentj.runtime.service.PlanStateRegistry;
 import com.wangliang.agentj.tools.filesystem.UnifiedDirectoryManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
@@ -48,82 +51,33 @@ public class TableProcessingService implements ITableProcessingService {
 		SUPPORTED_EXTENSIONS.add(".csv");
 	}
 
+	// Pending row mutations after which a session is written back without waiting for
+	// an explicit flush, bounding the work lost if the process dies
+	private static final int AUTO_FLUSH_THRESHOLD = 5000;
+
+	private static final String CSV_RECORD_SEPARATOR = "\r\n";
+
 	private final UnifiedDirectoryManager unifiedDirectoryManager;
 
 	// Store file states for each plan
-	private final Map<String, Map<String, String>> planFileStates = new ConcurrentHashMap<>();
+	private final PlanScopedState<Map<String, String>> planFileStates;
 
 	// Store current file paths for each plan
-	private final Map<String, String> currentFilePaths = new ConcurrentHashMap<>();
-
-	public TableProcessingService(UnifiedDirectoryManager unifiedDirectoryManager) {
-		this.unifiedDirectoryManager = unifiedDirectoryManager;
-	}
-
-	/**
-	 * Header reading listener - specifically for reading header data Based on EasyExcel
-	 * official documentation best practices
-	 */
-	private static class HeaderDataListener implements ReadListener<Map<Integer, String>> {
-
-		private final List<String> headers = new ArrayList<>();
-
-		private static final Logger log = LoggerFactory.getLogger(HeaderDataListener.class);
-
-		/**
-		 * This will return headers row by row
-		 */
-		@Override
-		public void invokeHead(Map<Integer, ReadCellData<?>> headMap, AnalysisContext context) {
-			log.debug("Parsed a header data:{}", headMap);
-			// Use ConverterUtils to convert to Map<Integer,String>
-			Map<Integer, String> stringHeadMap = ConverterUtils.convertToStringMap(headMap, context);
-
-			// Sort headers by column index and extract values
-			List<String> headRow = stringHeadMap.entrySet()
-				.stream()
-				.sorted(Map.Entry.comparingByKey())
-				.map(Map.Entry::getValue)
-				.collect(Collectors.toList());
-
-			if (!headRow.isEmpty()) {
-				headers.clear();
-				headers.addAll(headRow);
-				log.debug("Extracted headers: {}", headers);
-			}
-		}
+	private final PlanScopedState<String> currentFilePaths;
 
-		/**
-		 * Process data rows - for header reading, we mainly focus on invokeHead method
-		 */
-		@Override
-		public void invoke(Map<Integer, String> data, AnalysisContext context) {
-			// For header reading, this method is not the main focus
-			// But we can use the first row of data as a backup header (if invokeHead is
-			// not called)
-			if (headers.isEmpty() && data != null && !data.isEmpty()) {
-				List<String> firstRowAsHeaders = data.entrySet()
-					.stream()
-					.sorted(Map.Entry.comparingByKey())
-					.map(Map.Entry::getValue)
-					.collect(Collectors.toList());
-				headers.addAll(firstRowAsHeaders);
-				log.debug("Using first row data as headers: {}", headers);
-			}
-		}
-
-		/**
-		 * Called after all data parsing is completed
-		 */
-		@Override
-		public void doAfterAllAnalysed(AnalysisContext context) {
-			log.debug("Header data parsing completed, got {} headers in total", headers.size());
-		}
-
-		public List<String> getHeaders() {
-			return new ArrayList<>(headers);
-		}
+	// Open table sessions for each plan, keyed by normalized absolute path; evicted
+	// sessions are flushed first
+	private final PlanScopedState<Map<String, TableSession>> planSessions;
 
+	public TableProcessingService(UnifiedDirectoryManager unifiedDirectoryManager,
+			PlanStateRegistry planStateRegistry) {
+		this.unifiedDirectoryManager = unifiedDirectoryManager;
+		this.planFileStates = planStateRegistry.<Map<String, String>>newScope("table.fileStates").build();
+		this.currentFilePaths = planStateRegistry.<String>newScope("table.currentFilePaths").build();
+		this.planSessions = planStateRegistry.<Map<String, TableSession>>newScope("table.sessions")
+			.weigher(TableProcessingService::estimateSessionBytes)
+			.onEvict(this::flushSessions)
+			.build();
 	}
 
 	/**
@@ -196,8 +150,7 @@ public class TableProcessingService implements ITableProcessingService {
 			return;
 		}
 
-		planFileStates.computeIfAbsent(planId, k -> new ConcurrentHashMap<>());
-		planFileStates.get(planId).put(filePath, state);
+		planFileStates.computeIfAbsent(planId, k -> new ConcurrentHashMap<>()).put(filePath, state);
 		log.debug("Updated file state for planId={}, filePath={}, state={}", planId, filePath, state);
 	}
 
@@ -292,105 +245,28 @@ public class TableProcessingService implements ITableProcessingService {
 		EasyExcel.write(absolutePath.toFile()).sheet(actualSheetName).doWrite(tableData);
 		log.debug("Successfully created table file: {}", absolutePath);
 
+		// Any session opened on a previous file at this path is now stale
+		Map<String, TableSession> sessions = planSessions.get(sessionPlanKey(planId));
+		if (sessions != null) {
+			sessions.remove(sessionKey(absolutePath));
+		}
+
 		updateFileState(planId, filePath, "Success: Table created with headers");
 		log.info("Created table with headers for planId={}, filePath={}", planId, filePath);
 	}
 
 	/**
-	 * Get table structure (headers) using EasyExcel's official best practice Rewritten
-	 * according to EasyExcel official documentation header reading best practices
+	 * Get table structure (headers) from the open table session
 	 * @param planId plan ID
 	 * @param filePath file path (relative or absolute)
 	 * @return list of headers
 	 * @throws IOException if file operation fails
 	 */
 	public List<String> getTableStructure(String planId, String filePath) throws IOException {
-		Path absolutePath = validateFilePath(planId, filePath);
-
-		if (!Files.exists(absolutePath)) {
-			throw new IOException("File does not exist: " + absolutePath);
-		}
-
-		// Add file basic information debugging
-		try {
-			long fileSize = Files.size(absolutePath);
-			boolean isReadable = Files.isReadable(absolutePath);
-			log.debug("File info - path: {}, size: {} bytes, readable: {}", absolutePath, fileSize, isReadable);
-		}
-		catch (Exception e) {
-			log.warn("Failed to get file info: {}", e.getMessage());
-		}
-
-		log.debug("Reading table structure from: {}", absolutePath);
-
-		// Use official recommended listener method to read headers
-		HeaderDataListener headerListener = new HeaderDataListener();
-
-		try {
-			// Use EasyExcel's official method to read header data
-			EasyExcel.read(absolutePath.toFile(), headerListener).sheet().doRead();
-
-			List<String> headers = headerListener.getHeaders();
-			log.debug("Successfully extracted headers using listener: {}", headers);
-
-			if (headers.isEmpty()) {
-				log.warn("No headers found in file: {}", absolutePath);
-				// If listener method fails, try backup method
-				return fallbackReadHeaders(absolutePath);
-			}
-
-			// Remove ID column from returned headers if it exists and is the first column
-			if (!headers.isEmpty() && "ID".equals(headers.get(0))) {
-				return new ArrayList<>(headers.subList(1, headers.size()));
-			}
-
-			return headers;
-		}
-		catch (Exception e) {
-			log.warn("Failed to read headers using listener, trying fallback method: {}", e.getMessage());
-			List<String> headers = fallbackReadHeaders(absolutePath);
-
-			// Remove ID column from returned headers if it exists and is the first column
-			if (!headers.isEmpty() && "ID".equals(headers.get(0))) {
-				return new ArrayList<>(headers.subList(1, headers.size()));
-			}
-
-			return headers;
-		}
-	}
-
-	/**
-	 * Backup header reading method - used when listener method fails
-	 */
-	private List<String> fallbackReadHeaders(Path absolutePath) throws IOException {
-		log.debug("Using fallback method to read headers from: {}", absolutePath);
-
-		try {
-			// Try synchronous reading method
-			List<Map<Integer, String>> rawData = EasyExcel.read(absolutePath.toFile())
-				.sheet()
-				.headRowNumber(0) // Read from row 0, do not skip headers
-				.doReadSync();
-
-			log.debug("Fallback raw data size: {}", rawData.size());
-
-			if (!rawData.isEmpty()) {
-				Map<Integer, String> headerRow = rawData.get(0);
-				List<String> headers = headerRow.entrySet()
-					.stream()
-					.sorted(Map.Entry.comparingByKey())
-					.map(Map.Entry::getValue)
-					.collect(Collectors.toList());
-
-				log.debug("Fallback extracted headers: {}", headers);
-				return headers;
-			}
-		}
-		catch (Exception e) {
-			log.error("Fallback method also failed: {}", e.getMessage());
+		TableSession session = openSession(planId, filePath);
+		synchronized (session) {
+			return session.getDataHeaders();
 		}
-
-		return new ArrayList<>();
 	}
 
 	/**
@@ -401,89 +277,10 @@ public class TableProcessingService implements ITableProcessingService {
 	 * @throws IOException if file operation fails or data size mismatch
 	 */
 	public void writeDataToTable(String planId, String filePath, List<String> data) throws IOException {
-		Path absolutePath = validateFilePath(planId, filePath);
-
-		if (!Files.exists(absolutePath)) {
-			throw new IOException("File does not exist: " + absolutePath);
-		}
-
-		// Get table structure to validate data size
-		List<String> headers = getTableStructure(planId, filePath);
-
-		// Check if table has auto-generated ID column
-		boolean hasIdColumn = !headers.isEmpty() && "ID".equals(headers.get(0));
-		int expectedDataSize = hasIdColumn ? headers.size() - 1 : headers.size();
-
-		// Validate data size (excluding auto-generated ID column if present)
-		if (data.size() != expectedDataSize) {
-			throw new IOException(String.format(
-					"Data size mismatch. Expected: %d columns (excluding ID), Actual: %d columns. Headers: %s",
-					expectedDataSize, data.size(), headers));
-		}
-
-		// Read existing data
-		List<List<String>> existingData = readAllData(planId, filePath);
-
-		// Process data based on whether ID column exists
-		List<String> dataToWrite;
-		if (hasIdColumn) {
-			// Check if the first element in data is a valid ID for update
-			if (!data.isEmpty() && isNumeric(data.get(0))) {
-				String idToUpdate = data.get(0);
-				List<String> updatedData = new ArrayList<>();
-				updatedData.add(idToUpdate); // Add ID as first column
-				updatedData.addAll(data.subList(1, data.size())); // Add remaining data
-
-				// Try to find and update existing row with this ID
-				boolean updated = false;
-				for (int i = 0; i < existingData.size(); i++) {
-					List<String> row = existingData.get(i);
-					if (row.size() > 0 && idToUpdate.equals(row.get(0))) {
-						existingData.set(i, updatedData);
-						updated = true;
-						break;
-					}
-				}
-
-				// If not found, add as new row with specified ID
-				if (!updated) {
-					existingData.add(updatedData);
-				}
-
-				dataToWrite = null; // We've already handled adding the data
-			}
-			else {
-				// Auto-generate ID as the first column
-				String nextId = String.valueOf(existingData.size() > 0 ? existingData.size() - 1 : 0);
-				dataToWrite = new ArrayList<>();
-				dataToWrite.add(nextId);
-				dataToWrite.addAll(data);
-			}
-		}
-		else {
-			// No ID column, use data as is
-			dataToWrite = new ArrayList<>(data);
-		}
-
-		// Add new data if not already handled
-		if (dataToWrite != null) {
-			existingData.add(dataToWrite);
-		}
-
-		// Write all data back
-		String sheetName = getSheetName(absolutePath);
-		// Use model-free writing method, according to official documentation best
-		// practices
-		log.debug("Writing data to file: {}, sheetName: {}, dataSize: {}", absolutePath, sheetName,
-				existingData.size());
-		if (!existingData.isEmpty()) {
-			log.debug("First row (headers): {}", existingData.get(0));
-			if (existingData.size() > 1) {
-				log.debug("Second row (first data): {}", existingData.get(1));
-			}
+		TableSession session = openSession(planId, filePath);
+		synchronized (session) {
+			applyRows(planId, filePath, session, List.of(data));
 		}
-		EasyExcel.write(absolutePath.toFile()).sheet(sheetName).doWrite(existingData);
-		log.debug("Successfully wrote data to file: {}", absolutePath);
 		updateFileState(planId, filePath, "Success: Data written to table");
 		log.info("Written data to table for planId={}, filePath={}", planId, filePath);
 	}
@@ -497,7 +294,6 @@ public class TableProcessingService implements ITableProcessingService {
 	 */
 	public void writeMultipleRowsToTable(String planId, String filePath, List<List<String>> data) throws IOException {
 		log.info("Writing multiple rows to table for planId={}, filePath={}", planId, filePath);
-		Path absolutePath = validateFilePath(planId, filePath);
 
 		// Check file type
 		if (!isSupportedFileType(filePath)) {
@@ -506,88 +302,55 @@ public class TableProcessingService implements ITableProcessingService {
 					"Unsupported file type. Only Excel (.xlsx, .xls) and CSV (.csv) files are supported.");
 		}
 
-		// Get headers to validate data size
-		List<String> headers = getTableStructure(planId, filePath);
-		if (headers.isEmpty()) {
+		TableSession session = openSession(planId, filePath);
+		synchronized (session) {
+			applyRows(planId, filePath, session, data);
+		}
+		updateFileState(planId, filePath, "Success: Multiple rows written to table");
+		log.info("Written {} rows to table for planId={}, filePath={}", data.size(), planId, filePath);
+	}
+
+	/**
+	 * Validate and apply rows to the in-memory session. A row with exactly the data
+	 * column count is appended with a generated ID; a row with one extra leading numeric
+	 * value is treated as ID + data and updates or inserts the row with that ID.
+	 */
+	private void applyRows(String planId, String filePath, TableSession session, List<List<String>> data)
+			throws IOException {
+		if (session.getHeaders().isEmpty()) {
 			updateFileState(planId, filePath, "Error: Empty table or failed to read headers");
 			throw new IOException("Empty table or failed to read header information");
 		}
 
-		// Check if table has auto-generated ID column
-		boolean hasIdColumn = !headers.isEmpty() && "ID".equals(headers.get(0));
-		int expectedDataSize = hasIdColumn ? headers.size() - 1 : headers.size();
+		int expectedDataSize = session.getDataColumnCount();
 
-		// Validate all data rows
+		// Validate all rows before touching the session so a bad batch is not half-applied
 		for (int i = 0; i < data.size(); i++) {
 			List<String> row = data.get(i);
-			if (row.size() != expectedDataSize) {
+			boolean withId = session.hasIdColumn() && row.size() == expectedDataSize + 1 && isNumeric(row.get(0));
+			if (row.size() != expectedDataSize && !withId) {
 				String errorMsg = String.format(
 						"Data column count mismatch. Expected: %d columns (excluding ID column), Actual: %d columns. Headers: %s, Row %d data: %s",
-						expectedDataSize, row.size(), headers, i + 1, row);
+						expectedDataSize, row.size(), session.getDataHeaders(), i + 1, row);
 				updateFileState(planId, filePath, "Error: Data size mismatch");
 				throw new IOException(errorMsg);
 			}
 		}
 
-		// Read existing data
-		List<List<String>> existingData = readAllData(planId, filePath);
-
-		// Process data rows
-		if (hasIdColumn) {
-			// Handle rows with potential ID updates
-			for (List<String> row : data) {
-				if (!row.isEmpty() && isNumeric(row.get(0))) {
-					// Row contains an ID, try to update
-					String idToUpdate = row.get(0);
-					List<String> updatedData = new ArrayList<>();
-					updatedData.add(idToUpdate); // Add ID as first column
-					updatedData.addAll(row.subList(1, row.size())); // Add remaining data
-
-					// Try to find and update existing row with this ID
-					boolean updated = false;
-					for (int i = 0; i < existingData.size(); i++) {
-						List<String> existingRow = existingData.get(i);
-						if (existingRow.size() > 0 && idToUpdate.equals(existingRow.get(0))) {
-							existingData.set(i, updatedData);
-							updated = true;
-							break;
-						}
-					}
-
-					// If not found, add as new row
-					if (!updated) {
-						existingData.add(updatedData);
-					}
-				}
-				else {
-					// No ID specified, generate one
-					String nextId = String.valueOf(existingData.size() > 0 ? existingData.size() - 1 : 0);
-					List<String> dataToWrite = new ArrayList<>();
-					dataToWrite.add(nextId);
-					dataToWrite.addAll(row);
-					existingData.add(dataToWrite);
-				}
+		for (List<String> row : data) {
+			if (row.size() == expectedDataSize) {
+				session.append(row);
 			}
-		}
-		else {
-			// No ID column, add rows as is
-			existingData.addAll(data);
-		}
-
-		// Write all data back
-		String sheetName = getSheetName(absolutePath);
-		log.debug("Writing multiple rows to file: {}, sheetName: {}, dataSize: {}", absolutePath, sheetName,
-				existingData.size());
-		if (!existingData.isEmpty()) {
-			log.debug("First row (headers): {}", existingData.get(0));
-			if (existingData.size() > 1) {
-				log.debug("Second row (first data): {}", existingData.get(1));
+			else {
+				session.upsert(row.get(0), row.subList(1, row.size()));
 			}
 		}
-		EasyExcel.write(absolutePath.toFile()).sheet(sheetName).doWrite(existingData);
-		log.debug("Successfully wrote multiple rows to file: {}", absolutePath);
-		updateFileState(planId, filePath, "Success: Multiple rows written to table");
-		log.info("Written multiple rows to table for planId={}, filePath={}", planId, filePath);
+
+		if (session.getPendingMutations() >= AUTO_FLUSH_THRESHOLD) {
+			log.debug("Pending mutations for {} reached {}, flushing", session.getPath(),
+					session.getPendingMutations());
+			flush(session);
+		}
 	}
 
 	/**
@@ -599,23 +362,41 @@ public class TableProcessingService implements ITableProcessingService {
 	 * @throws IOException if file operation fails
 	 */
 	public List<List<String>> searchRows(String planId, String filePath, List<String> keywords) throws IOException {
-		Path absolutePath = validateFilePath(planId, filePath);
+		return searchRows(planId, filePath, keywords, null);
+	}
 
-		if (!Files.exists(absolutePath)) {
-			throw new IOException("File does not exist: " + absolutePath);
-		}
+	/**
+	 * Search for rows matching keywords, optionally restricted to one column
+	 * @param planId plan ID
+	 * @param filePath file path (relative or absolute)
+	 * @param keywords list of keywords to search for
+	 * @param column header name to match exactly against, or null to match keywords as
+	 * substrings of any cell
+	 * @return list of matching rows
+	 * @throws IOException if file operation fails
+	 */
+	public List<List<String>> searchRows(String planId, String filePath, List<String> keywords, String column)
+			throws IOException {
+		TableSession session = openSession(planId, filePath);
+		synchronized (session) {
+			if (column != null && !column.isEmpty()) {
+				int columnIndex = session.getHeaders().indexOf(column);
+				if (columnIndex < 0) {
+					throw new IOException("Column not found: " + column + ". Headers: " + session.getDataHeaders());
+				}
+				return session.lookup(columnIndex, keywords)
+					.stream()
+					.map(row -> withoutId(session, row))
+					.collect(Collectors.toList());
+			}
 
-		List<List<String>> allData = readAllData(planId, filePath);
-		if (allData.isEmpty()) {
-			return new ArrayList<>();
+			return session.getRows()
+				.stream()
+				.map(row -> withoutId(session, row))
+				.filter(row -> keywords.stream()
+					.anyMatch(keyword -> row.stream().anyMatch(cell -> cell != null && cell.contains(keyword))))
+				.collect(Collectors.toList());
 		}
-
-		// Skip header row and search in data rows
-		List<List<String>> dataRows = allData.subList(1, allData.size());
-
-		return dataRows.stream()
-			.filter(row -> keywords.stream().anyMatch(keyword -> row.stream().anyMatch(cell -> cell.contains(keyword))))
-			.collect(Collectors.toList());
 	}
 
 	/**
@@ -626,61 +407,218 @@ public class TableProcessingService implements ITableProcessingService {
 	 * @throws IOException if file operation fails
 	 */
 	public void deleteRowsByList(String planId, String filePath, List<Integer> rowIndices) throws IOException {
+		TableSession session = openSession(planId, filePath);
+		synchronized (session) {
+			// Validate indices
+			int dataRowCount = session.getRowCount();
+			for (Integer index : rowIndices) {
+				if (index < 0 || index >= dataRowCount) {
+					throw new IOException(
+							"Row index out of bounds: " + index + " (valid range: 0-" + (dataRowCount - 1) + ")");
+				}
+			}
+			session.delete(rowIndices);
+		}
+
+		updateFileState(planId, filePath, "Success: Rows deleted");
+		log.info("Deleted rows for planId={}, filePath={}, indices={}", planId, filePath, rowIndices);
+	}
+
+	/**
+	 * Write pending changes of an open table to disk
+	 * @param planId plan ID
+	 * @param filePath file path (relative or absolute)
+	 * @throws IOException if file operation fails
+	 */
+	public void flushTable(String planId, String filePath) throws IOException {
+		TableSession session = openSession(planId, filePath);
+		synchronized (session) {
+			flush(session);
+		}
+		updateFileState(planId, filePath, "Success: Table flushed");
+	}
+
+	/**
+	 * Flush and release an open table
+	 * @param planId plan ID
+	 * @param filePath file path (relative or absolute)
+	 * @throws IOException if file operation fails
+	 */
+	public void closeTable(String planId, String filePath) throws IOException {
 		Path absolutePath = validateFilePath(planId, filePath);
+		Map<String, TableSession> sessions = planSessions.get(sessionPlanKey(planId));
+		TableSession session = sessions != null ? sessions.remove(sessionKey(absolutePath)) : null;
+		if (session != null) {
+			synchronized (session) {
+				flush(session);
+			}
+		}
+		updateFileState(planId, filePath, "Success: Table closed");
+	}
 
-		if (!Files.exists(absolutePath)) {
-			throw new IOException("File does not exist: " + absolutePath);
+	/**
+	 * Describe the tables currently open for a plan
+	 * @param planId plan ID
+	 * @return one line per open table, or empty string if none
+	 */
+	public String getOpenTablesSummary(String planId) {
+		Map<String, TableSession> sessions = planSessions.get(sessionPlanKey(planId));
+		if (sessions == null || sessions.isEmpty()) {
+			return "";
 		}
+		StringBuilder summary = new StringBuilder();
+		for (TableSession session : sessions.values()) {
+			synchronized (session) {
+				summary.append(String.format("  - %s: %d rows, %d unflushed changes%n", session.getPath().getFileName(),
+						session.getRowCount(), session.getPendingMutations()));
+			}
+		}
+		return summary.toString();
+	}
+
+	/**
+	 * Get the open session for a table, loading it from disk on first access or when the
+	 * file was changed by someone else since the session last saw it
+	 */
+	private TableSession openSession(String planId, String filePath) throws IOException {
+		Path absolutePath = validateFilePath(planId, filePath);
+		Map<String, TableSession> sessions = planSessions.computeIfAbsent(sessionPlanKey(planId),
+				k -> new ConcurrentHashMap<>());
+		String key = sessionKey(absolutePath);
+
+		synchronized (sessions) {
+			if (!Files.exists(absolutePath)) {
+				sessions.remove(key);
+				throw new IOException("File does not exist: " + absolutePath);
+			}
 
-		List<List<String>> allData = readAllData(planId, filePath);
-		if (allData.isEmpty()) {
+			long modifiedTime = Files.getLastModifiedTime(absolutePath).toMillis();
+			long size = Files.size(absolutePath);
+
+			TableSession session = sessions.get(key);
+			if (session != null) {
+				synchronized (session) {
+					if (session.matchesDisk(modifiedTime, size)) {
+						return session;
+					}
+					if (session.isDirty()) {
+						log.warn("Table {} changed on disk while {} changes are pending; keeping in-memory state",
+								absolutePath, session.getPendingMutations());
+						return session;
+					}
+				}
+				log.debug("Table {} changed on disk, reloading session", absolutePath);
+			}
+
+			TableSession loaded = loadSession(absolutePath);
+			loaded.markSynced(modifiedTime, size);
+			sessions.put(key, loaded);
+			return loaded;
+		}
+	}
+
+	private TableSession loadSession(Path absolutePath) throws IOException {
+		log.debug("Loading table session from: {}", absolutePath);
+		List<List<String>> allData = readAllData(absolutePath);
+		List<String> headers = allData.isEmpty() ? new ArrayList<>() : allData.get(0);
+		List<List<String>> rows = allData.size() > 1 ? allData.subList(1, allData.size()) : new ArrayList<>();
+		TableSession session = new TableSession(absolutePath, getSheetName(absolutePath), headers, rows);
+		log.info("Opened table session for {} with {} rows", absolutePath, session.getRowCount());
+		return session;
+	}
+
+	/**
+	 * Write pending changes to disk. CSV tables that only received appends since the
+	 * last flush are extended in place; everything else is rewritten in full.
+	 */
+	private void flush(TableSession session) throws IOException {
+		if (!session.isDirty()) {
 			return;
 		}
 
-		// Validate indices
-		int dataRowCount = allData.size() - 1; // Exclude header row
-		for (Integer index : rowIndices) {
-			if (index < 0 || index >= dataRowCount) {
-				throw new IOException(
-						"Row index out of bounds: " + index + " (valid range: 0-" + (dataRowCount - 1) + ")");
-			}
+		Path path = session.getPath();
+		boolean canAppend = isCsv(path) && session.isAppendOnly() && Files.exists(path) && session
+			.matchesDisk(Files.getLastModifiedTime(path).toMillis(), Files.size(path));
+
+		if (canAppend) {
+			List<List<String>> newRows = session.getUnpersistedRows();
+			appendCsvRows(path, newRows);
+			log.debug("Appended {} rows to {}", newRows.size(), path);
+		}
+		else {
+			List<List<String>> allData = new ArrayList<>(session.getRowCount() + 1);
+			allData.add(session.getHeaders());
+			allData.addAll(session.getRows());
+			// Use model-free writing method, according to official documentation best
+			// practices
+			EasyExcel.write(path.toFile()).sheet(session.getSheetName()).doWrite(allData);
+			log.debug("Rewrote {} with {} rows", path, session.getRowCount());
 		}
 
-		// Sort indices in descending order to avoid index shifting issues
-		List<Integer> sortedIndices = rowIndices.stream()
-			.distinct() // Remove duplicates
-			.sorted((a, b) -> b.compareTo(a))
-			.collect(Collectors.toList());
+		session.markFlushed(Files.getLastModifiedTime(path).toMillis(), Files.size(path));
+	}
 
-		// Remove rows (adjusting for header row)
-		for (Integer index : sortedIndices) {
-			// Add 1 to index to account for header row
-			int actualIndex = index + 1;
-			if (actualIndex < allData.size()) {
-				allData.remove(actualIndex);
+	private void appendCsvRows(Path path, List<List<String>> rows) throws IOException {
+		boolean needsLeadingNewline = false;
+		try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "r")) {
+			if (file.length() > 0) {
+				file.seek(file.length() - 1);
+				needsLeadingNewline = file.read() != '\n';
 			}
 		}
 
-		// Write data back
-		String sheetName = getSheetName(absolutePath);
-		// Use model-free writing method, according to official documentation best
-		// practices
-		EasyExcel.write(absolutePath.toFile()).sheet(sheetName).doWrite(allData);
+		try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.APPEND)) {
+			if (needsLeadingNewline) {
+				writer.write(CSV_RECORD_SEPARATOR);
+			}
+			for (List<String> row : rows) {
+				for (int i = 0; i < row.size(); i++) {
+					if (i > 0) {
+						writer.write(',');
+					}
+					writer.write(escapeCsv(row.get(i)));
+				}
+				writer.write(CSV_RECORD_SEPARATOR);
+			}
+		}
+	}
 
-		updateFileState(planId, filePath, "Success: Rows deleted");
-		log.info("Deleted rows for planId={}, filePath={}, indices={}", planId, filePath, rowIndices);
+	private static String escapeCsv(String value) {
+		if (value == null) {
+			return "";
+		}
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+				&& value.indexOf('\r') < 0) {
+			return value;
+		}
+		return '"' + value.replace("\"", "\"\"") + '"';
+	}
+
+	private static boolean isCsv(Path path) {
+		return path.getFileName().toString().toLowerCase().endsWith(".csv");
+	}
+
+	private static List<String> withoutId(TableSession session, List<String> row) {
+		if (session.hasIdColumn() && !row.isEmpty()) {
+			return new ArrayList<>(row.subList(1, row.size()));
+		}
+		return new ArrayList<>(row);
+	}
+
+	private static String sessionPlanKey(String planId) {
+		return planId != null ? planId : "";
+	}
+
+	private static String sessionKey(Path absolutePath) {
+		return absolutePath.toAbsolutePath().normalize().toString();
 	}
 
 	/**
-	 * Read all data from table
-	 * @param planId plan ID
-	 * @param filePath file path (relative or absolute)
-	 * @return list of all data rows
-	 * @throws IOException if file operation fails
+	 * Read all rows from table, including the header row and ID column
+	 * @param absolutePath absolute file path
+	 * @return list of all rows
 	 */
-	private List<List<String>> readAllData(String planId, String filePath) throws IOException {
-		Path absolutePath = validateFilePath(planId, filePath);
-
+	private List<List<String>> readAllData(Path absolutePath) {
 		log.debug("Reading all data from: {}", absolutePath);
 
 		// Try different reading methods
@@ -709,23 +647,10 @@ public class TableProcessingService implements ITableProcessingService {
 			}
 		}
 
-		// Method 3: If still fails, try specifying headRowNumber=1
-		if (rawData == null || rawData.isEmpty()) {
-			try {
-				rawData = EasyExcel.read(absolutePath.toFile()).sheet().headRowNumber(1).doReadSync();
-				log.debug("Raw data size with headRowNumber=1: {}", rawData.size());
-			}
-			catch (Exception e) {
-				log.warn("Failed to read with headRowNumber=1: {}", e.getMessage());
-			}
-		}
-
 		if (rawData == null) {
 			rawData = new ArrayList<>();
 		}
 
-		log.debug("Raw data size in readAllData: {}", rawData.size());
-
 		List<List<String>> result = rawData.stream()
 			.map(row -> row.entrySet()
 				.stream()
@@ -735,14 +660,6 @@ public class TableProcessingService implements ITableProcessingService {
 			.collect(Collectors.toList());
 
 		log.debug("Converted data size: {}", result.size());
-
-		// If the first column is ID, remove it from all rows
-		if (!result.isEmpty() && !result.get(0).isEmpty() && "ID".equals(result.get(0).get(0))) {
-			return result.stream()
-				.map(row -> row.subList(1, row.size())) // Remove first column (ID)
-				.collect(Collectors.toList());
-		}
-
 		return result;
 	}
 
@@ -750,11 +667,12 @@ public class TableProcessingService implements ITableProcessingService {
 	 * Get sheet name from file
 	 * @param filePath file path
 	 * @return sheet name
-	 * @throws IOException if file operation fails
 	 */
-	private String getSheetName(Path filePath) throws IOException {
-		List<ReadSheet> sheets = EasyExcel.read(filePath.toFile()).build().excelExecutor().sheetList();
-		return sheets.isEmpty() ? "Sheet1" : sheets.get(0).getSheetName();
+	private String getSheetName(Path filePath) {
+		try (ExcelReader reader = EasyExcel.read(filePath.toFile()).build()) {
+			List<ReadSheet> sheets = reader.excelExecutor().sheetList();
+			return sheets.isEmpty() ? "Sheet1" : sheets.get(0).getSheetName();
+		}
 	}
 
 	/**
@@ -766,6 +684,9 @@ public class TableProcessingService implements ITableProcessingService {
 			return;
 		}
 
+		// Flush tables that still have pending changes before dropping them
+		planSessions.evict(planId);
+
 		// Clean up file states
 		planFileStates.remove(planId);
 		currentFilePaths.remove(planId);
@@ -773,6 +694,33 @@ public class TableProcessingService implements ITableProcessingService {
 		log.info("Cleaned up table processing resources for plan: {}", planId);
 	}
 
+	/**
+	 * Flush the open tables of a plan that is being dropped
+	 */
+	private void flushSessions(String planId, Map<String, TableSession> sessions) {
+		for (TableSession session : sessions.values()) {
+			synchronized (session) {
+				try {
+					flush(session);
+				}
+				catch (Exception e) {
+					log.error("Failed to flush table {} for plan {}: {}", session.getPath(), planId, e.getMessage(), e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Rough heap size of a plan's open tables, assuming short cell strings
+	 */
+	private static long estimateSessionBytes(Map<String, TableSession> sessions) {
+		long bytes = 0;
+		for (TableSession session : sessions.values()) {
+			bytes += (long) (session.getRowCount() + 1) * (session.getDataColumnCount() + 1) * 48L;
+		}
+		return bytes;
+	}
+
 	/**
 	 * Check if a string is numeric
 	 * @param str the string to check
@@ -48,6 +48,9 @@ public class TableProcessorTool extends AbstractBaseTool<TableProcessorTool.Tabl
 
 		private List<String> keywords;
 
+		@com.fasterxml.jackson.annotation.JsonProperty("search_column")
+		private String searchColumn;
+
 		@com.fasterxml.jackson.annotation.JsonProperty("row_indices")
 		private List<Integer> rowIndices;
 
@@ -102,6 +105,14 @@ public class TableProcessorTool extends AbstractBaseTool<TableProcessorTool.Tabl
 			this.keywords = keywords;
 		}
 
+		public String getSearchColumn() {
+			return searchColumn;
+		}
+
+		public void setSearchColumn(String searchColumn) {
+			this.searchColumn = searchColumn;
+		}
+
 		public List<Integer> getRowIndices() {
 			return rowIndices;
 		}
@@ -181,7 +192,7 @@ public class TableProcessorTool extends AbstractBaseTool<TableProcessorTool.Tabl
 						  "type": "string"
 						}
 					  },
-					  "description": "List of multiple rows data to write, each row data must match the number of headers"
+					  "description": "List of multiple rows data to write, each row data must match the number of headers. Prefix a row with an existing numeric ID to update that row instead of appending"
 					}
 				  },
 				  "required": ["action", "file_path", "multiple_rows_data"],
@@ -204,6 +215,10 @@ public class TableProcessorTool extends AbstractBaseTool<TableProcessorTool.Tabl
 						"type": "string"
 					  },
 					  "description": "List of search keywords"
+					},
+					"search_column": {
+					  "type": "string",
+					  "description": "Optional header name; when given, keywords are matched exactly against this column using an index instead of scanning all cells"
 					}
 				  },
 				  "required": ["action", "file_path", "keywords"],
@@ -230,6 +245,21 @@ public class TableProcessorTool extends AbstractBaseTool<TableProcessorTool.Tabl
 				  },
 				  "required": ["action", "file_path", "row_indices"],
 				  "additionalProperties": false
+				},
+				{
+				  "type": "object",
+				  "properties": {
+					"action": {
+					  "type": "string",
+					  "enum": ["flush_table", "close_table"]
+					},
+					"file_path": {
+					  "type": "string",
+					  "description": "Path to the table file"
+					}
+				  },
+				  "required": ["action", "file_path"],
+				  "additionalProperties": false
 				}
 			  ]
 			}
@@ -243,14 +273,17 @@ public class TableProcessorTool extends AbstractBaseTool<TableProcessorTool.Tabl
 			- create_table: Create a new table, accepting file path, worksheet name, and headers list as parameters, automatically adding ID column as the first column
 			- get_structure: Get table structure (header information)
 			- write_multiple_rows: Write multiple rows of data to the table, requiring the number of data columns to match the headers
-			- search_rows: Search for matching rows in the table based on keyword groups
+			- search_rows: Search for matching rows in the table based on keyword groups, optionally by exact match in one column
 			- delete_rows: Delete specified rows based on row index list
+			- flush_table: Save pending changes of an open table to the file
+			- close_table: Save pending changes and release the open table
 
 			Important notes:
 			1. File paths should use relative paths, using absolute paths will cause errors
 			2. All content is processed as strings
 			3. ID column will be automatically added as the first column in the table
 			4. When writing data, the number of data columns must match the number of header columns, otherwise an error message will be returned
+			5. Tables stay open in memory while you work on them; changes are saved on flush_table, close_table or when the task ends. Call flush_table before other tools read the file
 			""";
 
 	/**
@@ -301,7 +334,7 @@ public class TableProcessorTool extends AbstractBaseTool<TableProcessorTool.Tabl
 						yield new ToolExecuteResult("Error: keywords parameter is required for search_rows operation");
 					}
 
-					yield searchRows(planId, filePath, keywords);
+					yield searchRows(planId, filePath, keywords, input.getSearchColumn());
 				}
 				case "delete_rows" -> {
 					List<Integer> rowIndices = input.getRowIndices();
@@ -313,10 +346,12 @@ public class TableProcessorTool extends AbstractBaseTool<TableProcessorTool.Tabl
 
 					yield deleteRowsByList(planId, filePath, rowIndices);
 				}
+				case "flush_table" -> flushTable(planId, filePath);
+				case "close_table" -> closeTable(planId, filePath);
 				default -> {
 					tableProcessingService.updateFileState(planId, filePath, "Error: Unknown action");
 					yield new ToolExecuteResult("Unknown operation: " + action
-							+ ". Supported operations: create_table, get_structure, write_multiple_rows, search_rows, delete_rows");
+							+ ". Supported operations: create_table, get_structure, write_multiple_rows, search_rows, delete_rows, flush_table, close_table");
 				}
 			};
 		}
@@ -369,9 +404,10 @@ public class TableProcessorTool extends AbstractBaseTool<TableProcessorTool.Tabl
 		}
 	}
 
-	private ToolExecuteResult searchRows(String planId, String filePath, List<String> keywords) {
+	private ToolExecuteResult searchRows(String planId, String filePath, List<String> keywords, String searchColumn) {
 		try {
-			List<List<String>> matchingRows = tableProcessingService.searchRows(planId, filePath, keywords);
+			List<List<String>> matchingRows = tableProcessingService.searchRows(planId, filePath, keywords,
+					searchColumn);
 			tableProcessingService.updateFileState(planId, filePath, "Success: Rows searched");
 			if (matchingRows.isEmpty()) {
 				return new ToolExecuteResult("No matching rows found");
@@ -401,24 +437,49 @@ public class TableProcessorTool extends AbstractBaseTool<TableProcessorTool.Tabl
 		}
 	}
 
+	private ToolExecuteResult flushTable(String planId, String filePath) {
+		try {
+			tableProcessingService.flushTable(planId, filePath);
+			return new ToolExecuteResult("Table saved: " + filePath);
+		}
+		catch (IOException e) {
+			tableProcessingService.updateFileState(planId, filePath, "Error: " + e.getMessage());
+			return new ToolExecuteResult("Failed to save table: " + e.getMessage());
+		}
+	}
+
+	private ToolExecuteResult closeTable(String planId, String filePath) {
+		try {
+			tableProcessingService.closeTable(planId, filePath);
+			return new ToolExecuteResult("Table saved and closed: " + filePath);
+		}
+		catch (IOException e) {
+			tableProcessingService.updateFileState(planId, filePath, "Error: " + e.getMessage());
+			return new ToolExecuteResult("Failed to close table: " + e.getMessage());
+		}
+	}
+
 	@Override
 	public String getCurrentToolStateString() {
 		String planId = this.currentPlanId;
 		try {
 			// Get the root plan directory instead of using empty filePath
 			Path workingDir = tableProcessingService.getRootPlanDirectory(planId);
+			String openTables = tableProcessingService.getOpenTablesSummary(planId);
 			return String.format("""
 					Current Table Processing State:
 					- working Directory:
 					%s
 
-					- Operations are automatically handled (no manual file opening/closing required)
-					- All file operations (open, save) are performed automatically
+					- Tables are opened automatically on first use and saved on flush_table, close_table or task end
 					- Supported file types: xlsx, xls, csv
 
+					- Open Tables:
+					%s
 					- Last Operation Result:
 					%s
-					""", workingDir.toString(), tableProcessingService.getLastOperationResult(planId).isEmpty()
+					""", workingDir.toString(), openTables.isEmpty() ? "None\n" : openTables,
+					tableProcessingService.getLastOperationResult(planId).isEmpty()
 					? "No operation performed yet" : tableProcessingService.getLastOperationResult(planId));
 		}
 		catch (Exception e) {
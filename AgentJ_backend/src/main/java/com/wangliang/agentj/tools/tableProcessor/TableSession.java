@@ -0,0 +1,295 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.tools.tableProcessor;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory view of an open table file.
+ *
+ * Rows are kept together with their ID column so that ID-based upserts resolve through
+ * {@link #idIndex} instead of a scan. Mutations only touch memory; the owning
+ * {@link TableProcessingService} writes the session back to disk on an explicit flush,
+ * on close, or when the plan is cleaned up. Rows appended since the last flush are
+ * tracked separately so CSV files can be extended in place instead of rewritten.
+ *
+ * Instances are not thread-safe; callers synchronize on the session.
+ */
+public class TableSession {
+
+	private final Path path;
+
+	private final String sheetName;
+
+	private final List<String> headers;
+
+	private final boolean hasIdColumn;
+
+	private final List<List<String>> rows;
+
+	private final Map<String, Integer> idIndex = new HashMap<>();
+
+	// Lazily built exact-match indexes: column position -> cell value -> row positions
+	private final Map<Integer, Map<String, List<Integer>>> columnIndexes = new HashMap<>();
+
+	private long nextId;
+
+	// Number of leading rows that are known to be on disk in their current form
+	private int persistedRowCount;
+
+	// True when rows below persistedRowCount were updated or deleted since the last flush
+	private boolean structuralChange;
+
+	private int pendingMutations;
+
+	private long syncedModifiedTime;
+
+	private long syncedSize;
+
+	public TableSession(Path path, String sheetName, List<String> headers, List<List<String>> rows) {
+		this.path = path;
+		this.sheetName = sheetName;
+		this.headers = new ArrayList<>(headers);
+		this.hasIdColumn = !headers.isEmpty() && "ID".equals(headers.get(0));
+		this.rows = new ArrayList<>(rows);
+		this.persistedRowCount = this.rows.size();
+		rebuildIdIndex();
+	}
+
+	public Path getPath() {
+		return path;
+	}
+
+	public String getSheetName() {
+		return sheetName;
+	}
+
+	public boolean hasIdColumn() {
+		return hasIdColumn;
+	}
+
+	/**
+	 * @return headers as stored in the file, including the ID column if present
+	 */
+	public List<String> getHeaders() {
+		return Collections.unmodifiableList(headers);
+	}
+
+	/**
+	 * @return headers visible to callers (ID column excluded)
+	 */
+	public List<String> getDataHeaders() {
+		return hasIdColumn ? new ArrayList<>(headers.subList(1, headers.size())) : new ArrayList<>(headers);
+	}
+
+	public int getRowCount() {
+		return rows.size();
+	}
+
+	public boolean isDirty() {
+		return pendingMutations > 0;
+	}
+
+	public int getPendingMutations() {
+		return pendingMutations;
+	}
+
+	/**
+	 * Number of data columns a caller has to supply for a new row (ID excluded)
+	 */
+	public int getDataColumnCount() {
+		return hasIdColumn ? headers.size() - 1 : headers.size();
+	}
+
+	/**
+	 * Append a row without an ID; a new ID is generated when the table has an ID column
+	 */
+	public void append(List<String> data) {
+		List<String> row = new ArrayList<>(data.size() + 1);
+		if (hasIdColumn) {
+			row.add(String.valueOf(nextId++));
+		}
+		row.addAll(data);
+		addRow(row);
+	}
+
+	/**
+	 * Update the row with the given ID, or insert it with that ID if it does not exist
+	 * @param id row ID
+	 * @param data row data without the ID column
+	 */
+	public void upsert(String id, List<String> data) {
+		List<String> row = new ArrayList<>(data.size() + 1);
+		row.add(id);
+		row.addAll(data);
+
+		Integer position = idIndex.get(id);
+		if (position == null) {
+			addRow(row);
+			bumpNextId(id);
+			return;
+		}
+
+		rows.set(position, row);
+		if (position < persistedRowCount) {
+			structuralChange = true;
+		}
+		columnIndexes.clear();
+		pendingMutations++;
+	}
+
+	/**
+	 * Delete rows by position (0-based, header excluded). Indices must already be
+	 * validated by the caller.
+	 */
+	public void delete(List<Integer> positions) {
+		List<Integer> sorted = positions.stream().distinct().sorted(Collections.reverseOrder()).toList();
+		for (Integer position : sorted) {
+			rows.remove((int) position);
+			if (position < persistedRowCount) {
+				persistedRowCount--;
+				structuralChange = true;
+			}
+		}
+		rebuildIdIndex();
+		columnIndexes.clear();
+		pendingMutations += sorted.size();
+	}
+
+	/**
+	 * Rows whose given column exactly equals one of the values, served from a lazily
+	 * built hash index
+	 * @param column column position in the stored row (ID column included)
+	 */
+	public List<List<String>> lookup(int column, List<String> values) {
+		Map<String, List<Integer>> index = columnIndexes.computeIfAbsent(column, this::buildColumnIndex);
+		List<Integer> positions = new ArrayList<>();
+		for (String value : values) {
+			positions.addAll(index.getOrDefault(value, Collections.emptyList()));
+		}
+		Collections.sort(positions);
+		List<List<String>> result = new ArrayList<>(positions.size());
+		int previous = -1;
+		for (Integer position : positions) {
+			if (position != previous) {
+				result.add(rows.get(position));
+				previous = position;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return live view of all data rows (header excluded, ID column included)
+	 */
+	public List<List<String>> getRows() {
+		return Collections.unmodifiableList(rows);
+	}
+
+	/**
+	 * Whether the pending changes are pure appends, i.e. the file on disk is a prefix of
+	 * the in-memory table
+	 */
+	public boolean isAppendOnly() {
+		return !structuralChange;
+	}
+
+	/**
+	 * @return rows appended since the last flush
+	 */
+	public List<List<String>> getUnpersistedRows() {
+		return Collections.unmodifiableList(rows.subList(persistedRowCount, rows.size()));
+	}
+
+	public void markFlushed(long modifiedTime, long size) {
+		persistedRowCount = rows.size();
+		structuralChange = false;
+		pendingMutations = 0;
+		markSynced(modifiedTime, size);
+	}
+
+	public void markSynced(long modifiedTime, long size) {
+		this.syncedModifiedTime = modifiedTime;
+		this.syncedSize = size;
+	}
+
+	/**
+	 * Whether the file on disk still matches what this session last read or wrote
+	 */
+	public boolean matchesDisk(long modifiedTime, long size) {
+		return syncedModifiedTime == modifiedTime && syncedSize == size;
+	}
+
+	private void addRow(List<String> row) {
+		int position = rows.size();
+		rows.add(row);
+		if (hasIdColumn && !row.isEmpty() && row.get(0) != null) {
+			idIndex.put(row.get(0), position);
+		}
+		for (Map.Entry<Integer, Map<String, List<Integer>>> entry : columnIndexes.entrySet()) {
+			String value = cellAt(row, entry.getKey());
+			entry.getValue().computeIfAbsent(value, k -> new ArrayList<>()).add(position);
+		}
+		pendingMutations++;
+	}
+
+	private void rebuildIdIndex() {
+		idIndex.clear();
+		if (!hasIdColumn) {
+			return;
+		}
+		for (int i = 0; i < rows.size(); i++) {
+			List<String> row = rows.get(i);
+			if (!row.isEmpty() && row.get(0) != null) {
+				idIndex.put(row.get(0), i);
+				bumpNextId(row.get(0));
+			}
+		}
+	}
+
+	private void bumpNextId(String id) {
+		try {
+			long value = Long.parseLong(id);
+			if (value >= nextId) {
+				nextId = value + 1;
+			}
+		}
+		catch (NumberFormatException e) {
+			// Non-numeric IDs do not take part in ID generation
+		}
+	}
+
+	private Map<String, List<Integer>> buildColumnIndex(int column) {
+		Map<String, List<Integer>> index = new HashMap<>();
+		for (int i = 0; i < rows.size(); i++) {
+			index.computeIfAbsent(cellAt(rows.get(i), column), k -> new ArrayList<>()).add(i);
+		}
+		return index;
+	}
+
+	private static String cellAt(List<String> row, int column) {
+		if (column >= row.size() || row.get(column) == null) {
+			return "";
+		}
+		return row.get(column);
+	}
+
+}
@@ -31,6 +31,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.regex.Matcher;
@@ -668,6 +669,7 @@ public class GlobalFileOperator extends AbstractBaseTool<GlobalFileOperator.Glob
 			String content = Files.readString(absolutePath);
 			String newContent = content.replace(sourceText, targetText);
 			Files.writeString(absolutePath, newContent);
+			textFileService.invalidateFileView(this.rootPlanId, absolutePath);
 
 			// Force flush to disk
 			try (FileChannel channel = FileChannel.open(absolutePath, StandardOpenOption.WRITE)) {
@@ -713,36 +715,39 @@ public class GlobalFileOperator extends AbstractBaseTool<GlobalFileOperator.Glob
 				log.info("Created new file automatically: {}", absolutePath);
 			}
 
-			java.util.List<String> lines = Files.readAllLines(absolutePath);
+			TextFileView view = textFileService.getFileView(this.rootPlanId, absolutePath);
 
-			if (lines.isEmpty()) {
+			int totalLines = view.getLineCount();
+
+			if (totalLines == 0) {
 				return new ToolExecuteResult("File is empty");
 			}
 
 			// Validate line number range
-			if (startLine > lines.size()) {
+			if (startLine > totalLines) {
 				return new ToolExecuteResult(
-						"Error: Start line number exceeds file range (file has " + lines.size() + " lines)");
+						"Error: Start line number exceeds file range (file has " + totalLines + " lines)");
 			}
 
 			// Adjust end line number (not exceeding total file lines)
-			int actualEndLine = Math.min(endLine, lines.size());
+			int actualEndLine = Math.min(endLine, totalLines);
 
 			StringBuilder result = new StringBuilder();
 			result.append(String.format("File: %s (Lines %d-%d, Total %d lines)\n", filePath, startLine, actualEndLine,
-					lines.size()));
+					totalLines));
 			result.append("=".repeat(50)).append("\n");
 
-			for (int i = startLine - 1; i < actualEndLine; i++) {
-				result.append(String.format("%4d: %s\n", i + 1, lines.get(i)));
+			List<String> lines = view.getLines(startLine - 1, actualEndLine);
+			for (int i = 0; i < lines.size(); i++) {
+				result.append(String.format("%4d: %s\n", startLine + i, lines.get(i)));
 			}
 
 			// If file has more content, prompt user
-			if (actualEndLine < lines.size()) {
+			if (actualEndLine < totalLines) {
 				result.append("\nNote: File has more content (lines ")
 					.append(actualEndLine + 1)
 					.append("-")
-					.append(lines.size())
+					.append(totalLines)
 					.append("), you can continue calling get_text to retrieve.");
 			}
 
@@ -805,6 +810,7 @@ public class GlobalFileOperator extends AbstractBaseTool<GlobalFileOperator.Glob
 			}
 
 			Files.writeString(absolutePath, "\n" + content, StandardOpenOption.APPEND, StandardOpenOption.CREATE);
+			textFileService.invalidateFileView(this.rootPlanId, absolutePath);
 
 			// Force flush to disk
 			try (FileChannel channel = FileChannel.open(absolutePath, StandardOpenOption.WRITE)) {
@@ -834,8 +840,7 @@ public class GlobalFileOperator extends AbstractBaseTool<GlobalFileOperator.Glob
 				log.info("Created new file automatically: {}", absolutePath);
 			}
 
-			String content = Files.readString(absolutePath);
-			int wordCount = content.isEmpty() ? 0 : content.split("\\s+").length;
+			long wordCount = textFileService.getFileView(this.rootPlanId, absolutePath).getWordCount();
 
 			return new ToolExecuteResult(String.format("Total word count in file: %d", wordCount));
 		}
@@ -859,54 +864,23 @@ public class GlobalFileOperator extends AbstractBaseTool<GlobalFileOperator.Glob
 				log.info("Created new file automatically: {}", absolutePath);
 			}
 
-			java.util.List<String> lines = Files.readAllLines(absolutePath);
+			TextFileView view = textFileService.getFileView(this.rootPlanId, absolutePath);
 
-			if (lines.isEmpty()) {
+			if (view.getLineCount() == 0) {
 				return new ToolExecuteResult("File is empty");
 			}
 
-			// Prepare pattern for matching
-			String searchPattern = pattern;
-			if (!caseSensitive) {
-				searchPattern = pattern.toLowerCase();
-			}
-			if (wholeWord) {
-				searchPattern = "\\b" + Pattern.quote(searchPattern) + "\\b";
-			}
-
-			Pattern regexPattern;
-			if (wholeWord) {
-				regexPattern = caseSensitive ? Pattern.compile(searchPattern)
-						: Pattern.compile(searchPattern, Pattern.CASE_INSENSITIVE);
-			}
-			else {
-				regexPattern = caseSensitive
-						? Pattern.compile(Pattern.quote(searchPattern))
-						: Pattern.compile(Pattern.quote(searchPattern),
-								Pattern.CASE_INSENSITIVE);
-			}
+			// Compiled patterns are cached by the service and reused across calls
+			Pattern regexPattern = textFileService.getGrepPattern(pattern, caseSensitive, wholeWord);
+			TextFileView.GrepResult grepResult = view.grep(regexPattern, TextFileService.MAX_GREP_MATCHES);
 
 			StringBuilder result = new StringBuilder();
 			result.append(String.format("Grep results for pattern '%s' in file: %s\n", pattern, filePath));
 			result.append("=".repeat(60)).append("\n");
 
-			int matchCount = 0;
-			for (int i = 0; i < lines.size(); i++) {
-				String line = lines.get(i);
-				String searchLine = caseSensitive ? line : line.toLowerCase();
-
-				if (wholeWord) {
-					if (regexPattern.matcher(line).find()) {
-						result.append(String.format("%4d: %s\n", i + 1, line));
-						matchCount++;
-					}
-				}
-				else {
-					if (searchLine.contains(searchPattern)) {
-						result.append(String.format("%4d: %s\n", i + 1, line));
-						matchCount++;
-					}
-				}
+			int matchCount = grepResult.matches().size();
+			for (TextFileView.LineMatch match : grepResult.matches()) {
+				result.append(String.format("%4d: %s\n", match.lineNumber(), match.text()));
 			}
 
 			if (matchCount == 0) {
@@ -915,6 +889,11 @@ public class GlobalFileOperator extends AbstractBaseTool<GlobalFileOperator.Glob
 			else {
 				result.append(String.format("\nTotal matches found: %d\n", matchCount));
 			}
+			if (grepResult.truncated()) {
+				result.append(String.format(
+						"Note: Output limited to the first %d matching lines. Use a more specific pattern to narrow the results.\n",
+						TextFileService.MAX_GREP_MATCHES));
+			}
 
 			return new ToolExecuteResult(result.toString());
 		}
@@ -953,7 +932,8 @@ public class GlobalFileOperator extends AbstractBaseTool<GlobalFileOperator.Glob
 	public void cleanup(String planId) {
 		if (planId != null) {
 			log.info("Cleaning up file resources for plan: {}", planId);
-			// Cleanup if needed - the TextFileService handles the main cleanup
+			// The TextFileService handles the main cleanup; drop cached file views here
+			textFileService.releaseFileViews(planId);
 		}
 	}
 
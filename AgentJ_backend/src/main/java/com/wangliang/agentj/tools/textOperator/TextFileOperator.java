@@ -28,6 +28,7 @@ import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.List;
 import java.util.Map;
 
 public class TextFileOperator extends AbstractBaseTool<TextFileOperator.TextFileInput> {
@@ -409,9 +410,11 @@ public class TextFileOperator extends AbstractBaseTool<TextFileOperator.TextFile
 			}
 
 			Path absolutePath = textFileService.validateFilePath(this.rootPlanId, filePath, this.currentPlanId);
+			textFileService.checkFullReadSize(absolutePath);
 			String content = Files.readString(absolutePath);
 			String newContent = content.replace(sourceText, targetText);
 			Files.writeString(absolutePath, newContent);
+			textFileService.invalidateFileView(this.rootPlanId, absolutePath);
 
 			// Automatically save file
 			try (FileChannel channel = FileChannel.open(absolutePath, StandardOpenOption.WRITE)) {
@@ -463,37 +466,40 @@ public class TextFileOperator extends AbstractBaseTool<TextFileOperator.TextFile
 			}
 
 			Path absolutePath = textFileService.validateFilePath(this.rootPlanId, filePath, this.currentPlanId);
-			java.util.List<String> lines = Files.readAllLines(absolutePath);
+			TextFileView view = textFileService.getFileView(this.rootPlanId, absolutePath);
 
-			if (lines.isEmpty()) {
+			int totalLines = view.getLineCount();
+
+			if (totalLines == 0) {
 				textFileService.updateFileState(this.currentPlanId, filePath, "Success: File is empty");
 				return new ToolExecuteResult("File is empty");
 			}
 
 			// Validate line number range
-			if (startLine > lines.size()) {
+			if (startLine > totalLines) {
 				return new ToolExecuteResult(
-						"Error: Start line number exceeds file range (file has " + lines.size() + " lines)");
+						"Error: Start line number exceeds file range (file has " + totalLines + " lines)");
 			}
 
 			// Adjust end line number (not exceeding total file lines)
-			int actualEndLine = Math.min(endLine, lines.size());
+			int actualEndLine = Math.min(endLine, totalLines);
 
 			StringBuilder result = new StringBuilder();
 			result.append(String.format("File: %s (Lines %d-%d, Total %d lines)\n", filePath, startLine, actualEndLine,
-					lines.size()));
+					totalLines));
 			result.append("=".repeat(50)).append("\n");
 
-			for (int i = startLine - 1; i < actualEndLine; i++) {
-				result.append(String.format("%4d: %s\n", i + 1, lines.get(i)));
+			List<String> lines = view.getLines(startLine - 1, actualEndLine);
+			for (int i = 0; i < lines.size(); i++) {
+				result.append(String.format("%4d: %s\n", startLine + i, lines.get(i)));
 			}
 
 			// If file has more content, prompt user
-			if (actualEndLine < lines.size()) {
+			if (actualEndLine < totalLines) {
 				result.append("\nNote: File has more content (lines ")
 					.append(actualEndLine + 1)
 					.append("-")
-					.append(lines.size())
+					.append(totalLines)
 					.append("), you can continue calling get_text to retrieve.");
 			}
 
@@ -527,6 +533,7 @@ public class TextFileOperator extends AbstractBaseTool<TextFileOperator.TextFile
 
 			// Read file content
 			Path absolutePath = textFileService.validateFilePath(this.rootPlanId, filePath, this.currentPlanId);
+			textFileService.checkFullReadSize(absolutePath);
 			String content = Files.readString(absolutePath);
 
 			// Force flush to disk to ensure data consistency
@@ -574,6 +581,7 @@ public class TextFileOperator extends AbstractBaseTool<TextFileOperator.TextFile
 
 			Path absolutePath = textFileService.validateFilePath(this.rootPlanId, filePath, this.currentPlanId);
 			Files.writeString(absolutePath, "\n" + content, StandardOpenOption.APPEND, StandardOpenOption.CREATE);
+			textFileService.invalidateFileView(this.rootPlanId, absolutePath);
 
 			// Automatically save file
 			try (FileChannel channel = FileChannel.open(absolutePath, StandardOpenOption.WRITE)) {
@@ -609,8 +617,7 @@ public class TextFileOperator extends AbstractBaseTool<TextFileOperator.TextFile
 			}
 
 			Path absolutePath = textFileService.validateFilePath(this.rootPlanId, filePath, this.currentPlanId);
-			String content = Files.readString(absolutePath);
-			int wordCount = content.isEmpty() ? 0 : content.split("\\s+").length;
+			long wordCount = textFileService.getFileView(this.rootPlanId, absolutePath).getWordCount();
 
 			textFileService.updateFileState(this.currentPlanId, filePath, "Success: Counted words");
 			return new ToolExecuteResult(String.format("Total word count (including Markdown symbols): %d", wordCount));
@@ -641,55 +648,24 @@ public class TextFileOperator extends AbstractBaseTool<TextFileOperator.TextFile
 			}
 
 			Path absolutePath = textFileService.validateFilePath(this.rootPlanId, filePath, this.currentPlanId);
-			java.util.List<String> lines = Files.readAllLines(absolutePath);
+			TextFileView view = textFileService.getFileView(this.rootPlanId, absolutePath);
 
-			if (lines.isEmpty()) {
+			if (view.getLineCount() == 0) {
 				textFileService.updateFileState(this.currentPlanId, filePath, "Success: File is empty");
 				return new ToolExecuteResult("File is empty");
 			}
 
-			// Prepare pattern for matching
-			String searchPattern = pattern;
-			if (!caseSensitive) {
-				searchPattern = pattern.toLowerCase();
-			}
-			if (wholeWord) {
-				searchPattern = "\\b" + java.util.regex.Pattern.quote(searchPattern) + "\\b";
-			}
-
-			java.util.regex.Pattern regexPattern;
-			if (wholeWord) {
-				regexPattern = caseSensitive ? java.util.regex.Pattern.compile(searchPattern)
-						: java.util.regex.Pattern.compile(searchPattern, java.util.regex.Pattern.CASE_INSENSITIVE);
-			}
-			else {
-				regexPattern = caseSensitive
-						? java.util.regex.Pattern.compile(java.util.regex.Pattern.quote(searchPattern))
-						: java.util.regex.Pattern.compile(java.util.regex.Pattern.quote(searchPattern),
-								java.util.regex.Pattern.CASE_INSENSITIVE);
-			}
+			// Compiled patterns are cached by the service and reused across calls
+			java.util.regex.Pattern regexPattern = textFileService.getGrepPattern(pattern, caseSensitive, wholeWord);
+			TextFileView.GrepResult grepResult = view.grep(regexPattern, TextFileService.MAX_GREP_MATCHES);
 
 			StringBuilder result = new StringBuilder();
 			result.append(String.format("Grep results for pattern '%s' in file: %s\n", pattern, filePath));
 			result.append("=".repeat(60)).append("\n");
 
-			int matchCount = 0;
-			for (int i = 0; i < lines.size(); i++) {
-				String line = lines.get(i);
-				String searchLine = caseSensitive ? line : line.toLowerCase();
-
-				if (wholeWord) {
-					if (regexPattern.matcher(line).find()) {
-						result.append(String.format("%4d: %s\n", i + 1, line));
-						matchCount++;
-					}
-				}
-				else {
-					if (searchLine.contains(searchPattern)) {
-						result.append(String.format("%4d: %s\n", i + 1, line));
-						matchCount++;
-					}
-				}
+			int matchCount = grepResult.matches().size();
+			for (TextFileView.LineMatch match : grepResult.matches()) {
+				result.append(String.format("%4d: %s\n", match.lineNumber(), match.text()));
 			}
 
 			if (matchCount == 0) {
@@ -698,6 +674,11 @@ public class TextFileOperator extends AbstractBaseTool<TextFileOperator.TextFile
 			else {
 				result.append(String.format("\nTotal matches found: %d\n", matchCount));
 			}
+			if (grepResult.truncated()) {
+				result.append(String.format(
+						"Note: Output limited to the first %d matching lines. Use a more specific pattern to narrow the results.\n",
+						TextFileService.MAX_GREP_MATCHES));
+			}
 
 			textFileService.updateFileState(this.currentPlanId, filePath, "Success: Grep search completed");
 			return new ToolExecuteResult(result.toString());
@@ -16,6 +16,8 @@
 package com.wangliang.agentj.tools.textOperator;
 
 import com.wangliang.agentj.config.LynxeProperties;
+import com.wangliang.agentj.runtime.service.PlanScopedState;
+import com.wangliang.agentj.runtime.service.PlanStateRegistry;
 import com.wangliang.agentj.tools.filesystem.UnifiedDirectoryManager;
 import com.wangliang.agentj.tools.innerStorage.SmartContentSavingService;
 import jakarta.annotation.PreDestroy;
@@ -31,8 +33,10 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 @Service
 @Primary
@@ -67,7 +71,56 @@ public class TextFileService implements ApplicationRunner, ITextFileService {
 			".gradle", ".pom", ".mvn", // Build tools
 			".csv"));
 
-	private final ConcurrentHashMap<String, FileState> fileStates = new ConcurrentHashMap<>();
+	/**
+	 * Maximum size of a file the text operators will work on. Line ranges, grep and word
+	 * counts are served from a {@link TextFileView}, so this is no longer bounded by what
+	 * can be read into a String.
+	 */
+	public static final long MAX_FILE_SIZE = 512L * 1024 * 1024;
+
+	/**
+	 * Maximum size for operations that still load the whole file (get_all_text, replace)
+	 */
+	public static final long MAX_FULL_READ_SIZE = 10L * 1024 * 1024;
+
+	/**
+	 * Maximum number of matching lines returned by grep
+	 */
+	public static final int MAX_GREP_MATCHES = 500;
+
+	/**
+	 * Maximum number of file views kept per plan
+	 */
+	private static final int MAX_VIEWS_PER_PLAN = 16;
+
+	/**
+	 * Maximum number of compiled grep patterns kept
+	 */
+	private static final int MAX_CACHED_PATTERNS = 128;
+
+	private final PlanScopedState<FileState> fileStates;
+
+	// planId -> file -> view, access-ordered so the least recently used view is dropped
+	private final PlanScopedState<Map<Path, TextFileView>> fileViews;
+
+	private final Map<String, Pattern> grepPatterns = new LinkedHashMap<>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Pattern> eldest) {
+			return size() > MAX_CACHED_PATTERNS;
+		}
+	};
+
+	public TextFileService(PlanStateRegistry planStateRegistry) {
+		this.fileStates = planStateRegistry.<FileState>newScope("textFile.states").build();
+		// Views read their file on demand, so the heap cost is the line offset index
+		this.fileViews = planStateRegistry.<Map<Path, TextFileView>>newScope("textFile.views")
+			.weigher(views -> {
+				synchronized (views) {
+					return views.values().stream().mapToLong(view -> 4L * view.getLineCount() + 128).sum();
+				}
+			})
+			.build();
+	}
 
 	@Override
 	public void run(ApplicationArguments args) {
@@ -112,10 +165,7 @@ public class TextFileService implements ApplicationRunner, ITextFileService {
 			Path resolvedPath = unifiedDirectoryManager.getSpecifiedDirectory(filePath);
 
 			// Check file size (if file exists)
-			if (Files.exists(resolvedPath) && Files.size(resolvedPath) > 10 * 1024 * 1024) { // 10MB
-																								// limit
-				throw new IOException("File is too large (>10MB). For safety reasons, please use a smaller file.");
-			}
+			checkFileSize(resolvedPath);
 		}
 		catch (SecurityException e) {
 			throw new IOException("Access denied: " + e.getMessage());
@@ -146,6 +196,7 @@ public class TextFileService implements ApplicationRunner, ITextFileService {
 	public void cleanup() {
 		log.info("Cleaning up TextFileService resources");
 		fileStates.clear();
+		fileViews.clear();
 	}
 
 	/**
@@ -246,10 +297,7 @@ public class TextFileService implements ApplicationRunner, ITextFileService {
 		Path absolutePath = getAbsolutePath(rootPlanId, filePath, subPlanId);
 
 		// Check file size (if file exists)
-		if (Files.exists(absolutePath) && Files.size(absolutePath) > 10 * 1024 * 1024) { // 10MB
-																							// Restrictions
-			throw new IOException("File is too large (>10MB). For safety reasons, please use a smaller file.");
-		}
+		checkFileSize(absolutePath);
 
 		return absolutePath;
 	}
@@ -337,6 +385,7 @@ public class TextFileService implements ApplicationRunner, ITextFileService {
 			try {
 				// Clean up file status
 				fileStates.remove(planId);
+				releaseFileViews(planId);
 
 				// If needed, can also clean up directory (use with caution)
 				// unifiedDirectoryManager.cleanupRootPlanDirectory(planId);
@@ -349,4 +398,97 @@ public class TextFileService implements ApplicationRunner, ITextFileService {
 		}
 	}
 
+	private void checkFileSize(Path path) throws IOException {
+		if (Files.exists(path) && Files.size(path) > MAX_FILE_SIZE) {
+			throw new IOException("File is too large (>" + (MAX_FILE_SIZE / (1024 * 1024))
+					+ "MB). For safety reasons, please use a smaller file.");
+		}
+	}
+
+	/**
+	 * Fail if the file is too large to be loaded into memory as a whole
+	 * @param path File path
+	 * @throws IOException If the file exceeds {@link #MAX_FULL_READ_SIZE}
+	 */
+	public void checkFullReadSize(Path path) throws IOException {
+		if (Files.exists(path) && Files.size(path) > MAX_FULL_READ_SIZE) {
+			throw new IOException("File is too large (>" + (MAX_FULL_READ_SIZE / (1024 * 1024))
+					+ "MB) for this operation. Use get_text with a line range or grep instead.");
+		}
+	}
+
+	/**
+	 * Get a line-indexed view of a file, reusing the plan's cached view while the file's
+	 * modification time and size are unchanged
+	 * @param planId Plan ID owning the cache entry
+	 * @param path Absolute file path
+	 * @return Current view of the file
+	 * @throws IOException If the file cannot be read
+	 */
+	public TextFileView getFileView(String planId, Path path) throws IOException {
+		Map<Path, TextFileView> views = fileViews.computeIfAbsent(planId,
+				k -> new LinkedHashMap<Path, TextFileView>(16, 0.75f, true) {
+					@Override
+					protected boolean removeEldestEntry(Map.Entry<Path, TextFileView> eldest) {
+						return size() > MAX_VIEWS_PER_PLAN;
+					}
+				});
+		synchronized (views) {
+			TextFileView view = views.get(path);
+			if (view != null && view.isCurrent()) {
+				return view;
+			}
+			long startTime = System.currentTimeMillis();
+			view = TextFileView.open(path);
+			views.put(path, view);
+			log.debug("Indexed {} ({} lines) for plan {} in {} ms", path, view.getLineCount(), planId,
+					System.currentTimeMillis() - startTime);
+			return view;
+		}
+	}
+
+	/**
+	 * Drop the cached view of a file after it was written
+	 * @param planId Plan ID owning the cache entry
+	 * @param path Absolute file path
+	 */
+	public void invalidateFileView(String planId, Path path) {
+		Map<Path, TextFileView> views = fileViews.get(planId);
+		if (views != null) {
+			synchronized (views) {
+				views.remove(path);
+			}
+		}
+	}
+
+	/**
+	 * Drop all cached file views of a plan
+	 * @param planId Plan ID
+	 */
+	public void releaseFileViews(String planId) {
+		fileViews.remove(planId);
+	}
+
+	/**
+	 * Compile a grep pattern, reusing a previously compiled instance for the same options.
+	 * Plain patterns match literally; whole-word patterns are wrapped in word boundaries.
+	 * @param pattern Search text
+	 * @param caseSensitive Whether matching is case sensitive
+	 * @param wholeWord Whether to match whole words only
+	 * @return Compiled pattern
+	 */
+	public Pattern getGrepPattern(String pattern, boolean caseSensitive, boolean wholeWord) {
+		String key = (caseSensitive ? "1" : "0") + (wholeWord ? "1" : "0") + pattern;
+		synchronized (grepPatterns) {
+			return grepPatterns.computeIfAbsent(key, k -> {
+				String regex = Pattern.quote(pattern);
+				if (wholeWord) {
+					regex = "\\b" + regex + "\\b";
+				}
+				return caseSensitive ? Pattern.compile(regex)
+						: Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+			});
+		}
+	}
+
 }
@@ -0,0 +1,304 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wangliang.agentj.tools.textOperator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Read-only view of a text file with a line offset index.
+ *
+ * The file is scanned once for line breaks; afterwards a line range is read with a
+ * single positional read of its byte span, so paging through a large file costs
+ * O(range) instead of re-reading and re-splitting the whole file. Line semantics follow
+ * {@link Files#readAllLines(Path)} for {@code \n}, {@code \r\n} and lone {@code \r}
+ * terminators.
+ *
+ * Reads go through {@link FileChannel#read(ByteBuffer, long)} rather than a memory
+ * mapping, so a file truncated by another process surfaces as an {@link IOException}
+ * instead of a fault on access.
+ *
+ * A view is a snapshot: {@link #isCurrent()} compares the file's modification time and
+ * size with the values seen when the view was built, and {@link TextFileService}
+ * rebuilds stale views. Instances are immutable apart from the lazily computed word
+ * count and are safe to share between threads.
+ */
+public class TextFileView {
+
+	private static final int CHUNK_SIZE = 1024 * 1024;
+
+	private final Path path;
+
+	private final FileTime modifiedTime;
+
+	private final long size;
+
+	// Start offset of every line, plus one trailing entry for the end of the last line
+	private final int[] lineOffsets;
+
+	private volatile long wordCount = -1;
+
+	private TextFileView(Path path, FileTime modifiedTime, long size, int[] lineOffsets) {
+		this.path = path;
+		this.modifiedTime = modifiedTime;
+		this.size = size;
+		this.lineOffsets = lineOffsets;
+	}
+
+	/**
+	 * Scan the file and build its line offset index
+	 * @param path file to open
+	 * @return view over the current file content
+	 * @throws IOException if the file cannot be read, is too large to index or shrinks
+	 * while being scanned
+	 */
+	public static TextFileView open(Path path) throws IOException {
+		BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		long size = attributes.size();
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("File is too large to index: " + path);
+		}
+
+		int limit = (int) size;
+		int[] offsets = new int[1024];
+		int lines = 0;
+		offsets[lines++] = 0;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer chunk = ByteBuffer.allocate(Math.min(CHUNK_SIZE, Math.max(limit, 1)));
+			int position = 0;
+			// A \r ends a line unless the next byte, possibly in the next chunk, is \n
+			boolean afterCr = false;
+			while (position < limit) {
+				int length = Math.min(chunk.capacity(), limit - position);
+				readFully(channel, chunk, position, length, path);
+				for (int i = 0; i < length; i++) {
+					int offset = position + i;
+					byte b = chunk.get(i);
+					int lineStart = -1;
+					if (afterCr && b != '\n') {
+						lineStart = offset;
+					}
+					else if (b == '\n' && offset + 1 < limit) {
+						lineStart = offset + 1;
+					}
+					if (lineStart >= 0) {
+						if (lines == offsets.length) {
+							offsets = Arrays.copyOf(offsets, offsets.length * 2);
+						}
+						offsets[lines++] = lineStart;
+					}
+					afterCr = b == '\r';
+				}
+				position += length;
+			}
+		}
+		if (limit == 0) {
+			lines = 0;
+		}
+		int[] lineOffsets = Arrays.copyOf(offsets, lines + 1);
+		lineOffsets[lines] = limit;
+
+		return new TextFileView(path, attributes.lastModifiedTime(), size, lineOffsets);
+	}
+
+	/**
+	 * Whether the file still has the modification time and size this view was built from
+	 */
+	public boolean isCurrent() {
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+			return attributes.size() == size && attributes.lastModifiedTime().equals(modifiedTime);
+		}
+		catch (IOException e) {
+			return false;
+		}
+	}
+
+	public Path getPath() {
+		return path;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public int getLineCount() {
+		return lineOffsets.length - 1;
+	}
+
+	/**
+	 * @param index 0-based line index
+	 * @return line content without its terminator
+	 * @throws IOException if the file cannot be read or was truncated since the view was
+	 * built
+	 */
+	public String getLine(int index) throws IOException {
+		return getLines(index, index + 1).get(0);
+	}
+
+	/**
+	 * @param fromIndex first line, 0-based inclusive
+	 * @param toIndex last line, 0-based exclusive
+	 * @return lines in the range
+	 * @throws IOException if the file cannot be read or was truncated since the view was
+	 * built
+	 */
+	public List<String> getLines(int fromIndex, int toIndex) throws IOException {
+		if (toIndex <= fromIndex) {
+			return new ArrayList<>();
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return readLines(channel, fromIndex, toIndex);
+		}
+	}
+
+	/**
+	 * Number of whitespace-separated words, computed on first use
+	 * @throws IOException if the file cannot be read or was truncated since the view was
+	 * built
+	 */
+	public long getWordCount() throws IOException {
+		long count = wordCount;
+		if (count < 0) {
+			count = 0;
+			boolean inWord = false;
+			int limit = (int) size;
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				ByteBuffer chunk = ByteBuffer.allocate(Math.min(CHUNK_SIZE, Math.max(limit, 1)));
+				int position = 0;
+				while (position < limit) {
+					int length = Math.min(chunk.capacity(), limit - position);
+					readFully(channel, chunk, position, length, path);
+					for (int i = 0; i < length; i++) {
+						byte b = chunk.get(i);
+						if (b == ' ' || b == '\n' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B) {
+							inWord = false;
+						}
+						else if (!inWord) {
+							inWord = true;
+							count++;
+						}
+					}
+					position += length;
+				}
+			}
+			wordCount = count;
+		}
+		return count;
+	}
+
+	/**
+	 * Find lines matching the pattern, stopping once {@code maxMatches} lines were found
+	 * @param pattern compiled pattern, matched with {@link Matcher#find()}
+	 * @param maxMatches maximum number of lines to return
+	 * @return matching lines in file order
+	 * @throws IOException if the file cannot be read or was truncated since the view was
+	 * built
+	 */
+	public GrepResult grep(Pattern pattern, int maxMatches) throws IOException {
+		List<LineMatch> matches = new ArrayList<>();
+		Matcher matcher = pattern.matcher("");
+		int lineCount = getLineCount();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			int from = 0;
+			while (from < lineCount) {
+				// Read about one chunk of lines at a time; a longer line is read on its own
+				int to = from + 1;
+				while (to < lineCount && lineOffsets[to + 1] - lineOffsets[from] <= CHUNK_SIZE) {
+					to++;
+				}
+				List<String> lines = readLines(channel, from, to);
+				for (int i = 0; i < lines.size(); i++) {
+					String line = lines.get(i);
+					if (matcher.reset(line).find()) {
+						if (matches.size() >= maxMatches) {
+							return new GrepResult(matches, true);
+						}
+						matches.add(new LineMatch(from + i + 1, line));
+					}
+				}
+				from = to;
+			}
+		}
+		return new GrepResult(matches, false);
+	}
+
+	/**
+	 * Read the byte span of a line range with one positional read and split it into lines
+	 */
+	private List<String> readLines(FileChannel channel, int fromIndex, int toIndex) throws IOException {
+		int base = lineOffsets[fromIndex];
+		ByteBuffer span = ByteBuffer.allocate(lineOffsets[toIndex] - base);
+		readFully(channel, span, base, span.capacity(), path);
+		byte[] bytes = span.array();
+
+		List<String> lines = new ArrayList<>(toIndex - fromIndex);
+		for (int i = fromIndex; i < toIndex; i++) {
+			int start = lineOffsets[i] - base;
+			int end = lineOffsets[i + 1] - base;
+			if (end > start && bytes[end - 1] == '\n') {
+				end--;
+			}
+			if (end > start && bytes[end - 1] == '\r') {
+				end--;
+			}
+			lines.add(new String(bytes, start, end - start, StandardCharsets.UTF_8));
+		}
+		return lines;
+	}
+
+	/**
+	 * Fill the first {@code length} bytes of the buffer from the given file position
+	 * @throws IOException if the file ends before {@code length} bytes were read
+	 */
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position, int length, Path path)
+			throws IOException {
+		buffer.clear().limit(length);
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position + buffer.position());
+			if (read < 0) {
+				throw new IOException("File was truncated while reading: " + path);
+			}
+		}
+	}
+
+	/**
+	 * A matching line
+	 * @param lineNumber 1-based line number
+	 * @param text line content
+	 */
+	public record LineMatch(int lineNumber, String text) {
+	}
+
+	/**
+	 * Grep matches and whether the search stopped at the result cap
+	 */
+	public record GrepResult(List<LineMatch> matches, boolean truncated) {
+	}
+
+}
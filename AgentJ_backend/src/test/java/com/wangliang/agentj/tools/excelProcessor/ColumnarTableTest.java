@@ -0,0 +1,90 @@
+package com.wangliang.agentj.tools.excelProcessor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColumnarTableTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void integerColumnStaysLong() throws Exception {
+        ColumnarTable table = load("id,v\n1,1\n2,-20\n3,\n4,300\n");
+
+        ColumnarTable.Column column = table.column("v");
+        assertEquals(ColumnarTable.ColumnType.LONG, column.type());
+        assertEquals(4, table.getRowCount());
+        assertEquals(-20L, column.value(1));
+        assertNull(column.value(2));
+        assertEquals(300L, column.value(3));
+    }
+
+    @Test
+    void longColumnWidensToDouble() throws Exception {
+        ColumnarTable table = load("v\n1\n2\n2.5\n1e3\n");
+
+        ColumnarTable.Column column = table.column("v");
+        assertEquals(ColumnarTable.ColumnType.DOUBLE, column.type());
+        assertEquals(1.0, column.value(0));
+        assertEquals(2.5, column.value(2));
+        assertEquals(1000.0, column.value(3));
+    }
+
+    @Test
+    void doubleColumnFallsBackToText() throws Exception {
+        ColumnarTable table = load("id,v\n1,1\n2,2.5\n3,N/A\n4,1.0\n5, 1 \n6,2.50\n7,\n");
+
+        ColumnarTable.StringColumn column = (ColumnarTable.StringColumn) table.column("v");
+        assertEquals(ColumnarTable.ColumnType.STRING, column.type());
+        assertEquals("1", column.value(0));
+        assertEquals("2.5", column.value(1));
+        assertEquals("N/A", column.value(2));
+        // Numbers after the promotion are encoded like the ones before it
+        assertEquals("1", column.value(3));
+        assertEquals("1", column.value(4));
+        assertEquals("2.5", column.value(5));
+        assertNull(column.value(6));
+        assertEquals(column.code(0), column.code(3));
+        assertEquals(column.code(0), column.code(4));
+        assertEquals(column.code(1), column.code(5));
+        assertEquals(3, column.dictionary().length);
+    }
+
+    @Test
+    void leadingZerosKeepColumnText() throws Exception {
+        ColumnarTable table = load("code\n007\n42\n");
+
+        ColumnarTable.Column column = table.column("code");
+        assertEquals(ColumnarTable.ColumnType.STRING, column.type());
+        assertEquals("007", column.value(0));
+        assertEquals("42", column.value(1));
+    }
+
+    @Test
+    void plainNumberChecks() {
+        assertTrue(ColumnarTable.isPlainLong("-12"));
+        assertFalse(ColumnarTable.isPlainLong("012"));
+        assertTrue(ColumnarTable.isPlainDecimal("0.5"));
+        assertTrue(ColumnarTable.isPlainDecimal("-1.5e3"));
+        assertFalse(ColumnarTable.isPlainDecimal("NaN"));
+        assertFalse(ColumnarTable.isPlainDecimal("0x1p3"));
+        assertEquals("1", ColumnarTable.canonicalText("1.0"));
+        assertEquals("N/A", ColumnarTable.canonicalText("N/A"));
+    }
+
+    private ColumnarTable load(String csv) throws Exception {
+        Path file = Files.createTempFile(tempDir, "table", ".csv");
+        Files.writeString(file, csv);
+        return ColumnarTable.load(file, null, 1_000_000);
+    }
+
+}
@@ -0,0 +1,152 @@
+package com.wangliang.agentj.tools.excelProcessor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SheetQueryExecutorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void rangeConditionOnTextColumnComparesNumbers() throws Exception {
+        ColumnarTable table = load("id,amount\n1,10\n2,N/A\n3,\"1,234\"\n4,5\n5,9.5\n6,\n");
+
+        SheetQuery query = query(List.of(condition("amount", "gt", 6)), null);
+        query.setSelect(List.of("id"));
+        SheetQueryExecutor.Result result = SheetQueryExecutor.execute(table, query, 100);
+
+        assertEquals(List.of(List.of(1L), List.of(3L), List.of(5L)), result.rows());
+        assertEquals(3, result.matchedRows());
+
+        query = query(List.of(condition("amount", "lte", 5)), null);
+        query.setSelect(List.of("id"));
+        assertEquals(List.of(List.of(4L)), SheetQueryExecutor.execute(table, query, 100).rows());
+    }
+
+    @Test
+    void equalityOnTextColumnMatchesEveryNumericSpelling() throws Exception {
+        ColumnarTable table = load("v\n1\nN/A\n1.0\n 1\n2\n");
+
+        SheetQuery query = query(List.of(condition("v", "eq", "1.0")), null);
+        assertEquals(3, SheetQueryExecutor.execute(table, query, 100).matchedRows());
+
+        query = query(List.of(condition("v", "in", List.of(1, "N/A"))), null);
+        assertEquals(4, SheetQueryExecutor.execute(table, query, 100).matchedRows());
+    }
+
+    @Test
+    void topRowsPutEmptyCellsLast() throws Exception {
+        ColumnarTable table = load("id,score\n1,3\n2,\n3,1\n4,\n5,2\n");
+
+        SheetQuery query = query(null, List.of(order("score", false)));
+        query.setSelect(List.of("score"));
+        SheetQueryExecutor.Result result = SheetQueryExecutor.execute(table, query, 3);
+        assertEquals(List.of(List.of(1L), List.of(2L), List.of(3L)), result.rows());
+        assertTrue(result.truncated());
+
+        query = query(null, List.of(order("score", true)));
+        query.setSelect(List.of("id", "score"));
+        result = SheetQueryExecutor.execute(table, query, 10);
+        assertEquals(List.of(List.of(1L, 3L), List.of(5L, 2L), List.of(3L, 1L), Arrays.asList(2L, null),
+                Arrays.asList(4L, null)), result.rows());
+        assertFalse(result.truncated());
+    }
+
+    @Test
+    void groupingWithPackedKeys() throws Exception {
+        ColumnarTable table = load("region,year,amount\nnorth,2023,10\nsouth,2023,5\nnorth,2023,1\nnorth,2024,2\n"
+                + ",2024,7\n");
+
+        SheetQuery query = query(null, List.of(order("region", false), order("year", false)));
+        query.setGroupBy(List.of("region", "year"));
+        query.setAggregates(List.of(aggregate("sum", "amount"), aggregate("count", null)));
+        SheetQueryExecutor.Result result = SheetQueryExecutor.execute(table, query, 100);
+
+        assertEquals(List.of("region", "year", "sum_amount", "count"), result.columns());
+        assertEquals(List.of(List.of("north", 2023L, 11L, 2L), List.of("north", 2024L, 2L, 1L),
+                List.of("south", 2023L, 5L, 1L), Arrays.asList(null, 2024L, 7L, 1L)), result.rows());
+        assertEquals(4, result.groups());
+    }
+
+    @Test
+    void groupingWithUnpackedKeys() throws Exception {
+        // Seven key columns with 601 codes each overflow a packed long key
+        int keys = 7;
+        int distinct = 600;
+        StringBuilder csv = new StringBuilder();
+        List<String> header = new ArrayList<>();
+        for (int k = 0; k < keys; k++) {
+            header.add("k" + k);
+        }
+        csv.append(String.join(",", header)).append(",amount\n");
+        for (int row = 0; row <= distinct; row++) {
+            int value = row % distinct;
+            for (int k = 0; k < keys; k++) {
+                csv.append("v").append(value).append(',');
+            }
+            csv.append(row).append('\n');
+        }
+        ColumnarTable table = load(csv.toString());
+
+        SheetQuery query = query(null, null);
+        query.setGroupBy(header);
+        query.setAggregates(List.of(aggregate("count", null), aggregate("sum", "amount")));
+        SheetQueryExecutor.Result result = SheetQueryExecutor.execute(table, query, distinct);
+
+        assertEquals(distinct, result.groups());
+        List<Object> first = result.rows().get(0);
+        assertEquals("v0", first.get(0));
+        assertEquals(2L, first.get(keys));
+        assertEquals((long) distinct, first.get(keys + 1));
+        assertEquals(1L, result.rows().get(1).get(keys));
+    }
+
+    private ColumnarTable load(String csv) throws Exception {
+        Path file = Files.createTempFile(tempDir, "table", ".csv");
+        Files.writeString(file, csv);
+        return ColumnarTable.load(file, null, 10_000_000);
+    }
+
+    private static SheetQuery query(List<SheetQuery.Condition> where, List<SheetQuery.Order> orderBy) {
+        SheetQuery query = new SheetQuery();
+        query.setWhere(where);
+        query.setOrderBy(orderBy);
+        return query;
+    }
+
+    private static SheetQuery.Condition condition(String column, String op, Object value) {
+        SheetQuery.Condition condition = new SheetQuery.Condition();
+        condition.setColumn(column);
+        condition.setOp(op);
+        condition.setValue(value);
+        return condition;
+    }
+
+    private static SheetQuery.Order order(String column, boolean desc) {
+        SheetQuery.Order order = new SheetQuery.Order();
+        order.setColumn(column);
+        order.setDesc(desc);
+        return order;
+    }
+
+    private static SheetQuery.Aggregate aggregate(String fn, String column) {
+        SheetQuery.Aggregate aggregate = new SheetQuery.Aggregate();
+        aggregate.setFn(fn);
+        aggregate.setColumn(column);
+        return aggregate;
+    }
+
+}